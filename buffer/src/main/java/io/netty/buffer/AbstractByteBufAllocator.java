@@ -22,6 +22,7 @@ import io.netty.util.ResourceLeakDetector;
 import io.netty.util.ResourceLeakTracker;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.StringUtil;
+import io.netty.util.internal.UnstableApi;
 
 /**
  * Skeletal {@link ByteBufAllocator} implementation to extend.
@@ -82,6 +83,7 @@ public abstract class AbstractByteBufAllocator implements ByteBufAllocator {
 
     private final boolean directByDefault;
     private final ByteBuf emptyBuf;
+    private volatile ByteBufAllocationProfiler allocationProfiler;
 
     /**
      * Instance use heap buffers by default
@@ -165,7 +167,9 @@ public abstract class AbstractByteBufAllocator implements ByteBufAllocator {
             return emptyBuf;
         }
         validate(initialCapacity, maxCapacity);
-        return newHeapBuffer(initialCapacity, maxCapacity);
+        ByteBuf buf = newHeapBuffer(initialCapacity, maxCapacity);
+        ByteBufAllocationProfiler profiler = allocationProfiler;
+        return profiler == null ? buf : profiler.sample(buf);
     }
 
     @Override
@@ -184,7 +188,9 @@ public abstract class AbstractByteBufAllocator implements ByteBufAllocator {
             return emptyBuf;
         }
         validate(initialCapacity, maxCapacity);
-        return newDirectBuffer(initialCapacity, maxCapacity);
+        ByteBuf buf = newDirectBuffer(initialCapacity, maxCapacity);
+        ByteBufAllocationProfiler profiler = allocationProfiler;
+        return profiler == null ? buf : profiler.sample(buf);
     }
 
     @Override
@@ -223,6 +229,23 @@ public abstract class AbstractByteBufAllocator implements ByteBufAllocator {
         return toLeakAwareBuffer(new CompositeByteBuf(this, true, maxNumComponents));
     }
 
+    /**
+     * Set the {@link ByteBufAllocationProfiler} which samples the heap and direct buffers allocated by this allocator
+     * or {@code null} to stop sampling.
+     */
+    @UnstableApi
+    public final void setAllocationProfiler(ByteBufAllocationProfiler allocationProfiler) {
+        this.allocationProfiler = allocationProfiler;
+    }
+
+    /**
+     * Returns the {@link ByteBufAllocationProfiler} of this allocator or {@code null} if none is set.
+     */
+    @UnstableApi
+    public final ByteBufAllocationProfiler allocationProfiler() {
+        return allocationProfiler;
+    }
+
     private static void validate(int initialCapacity, int maxCapacity) {
         checkPositiveOrZero(initialCapacity, "initialCapacity");
         if (initialCapacity > maxCapacity) {
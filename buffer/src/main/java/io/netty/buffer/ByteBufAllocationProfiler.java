@@ -0,0 +1,410 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+import static io.netty.util.internal.ObjectUtil.checkPositive;
+
+import io.netty.util.ResourceLeakTracker;
+import io.netty.util.internal.StringUtil;
+import io.netty.util.internal.UnstableApi;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Samples one out of {@link #samplingInterval()} heap and direct buffers allocated by the
+ * {@link AbstractByteBufAllocator}s it is set on (see
+ * {@link AbstractByteBufAllocator#setAllocationProfiler(ByteBufAllocationProfiler)}) and records their size class,
+ * the call site that allocated them and how long they lived until they were released.
+ * <p>
+ * The samples are aggregated per size class and call site, which is identified by the hash of the top stack frames
+ * of the allocating thread. Allocations that are not sampled only pay for reading the profiler field of the
+ * allocator and drawing a random number.
+ */
+@UnstableApi
+public final class ByteBufAllocationProfiler {
+
+    private static final int DEFAULT_MAX_FRAMES = 8;
+    private static final int DEFAULT_MAX_SITES = 1024;
+
+    /**
+     * The number of buckets of the lifetime histograms. Bucket {@code 0} counts the buffers that were released within
+     * one microsecond, bucket {@code i} the ones that lived at least {@code 2^(i-1)} but less than {@code 2^i}
+     * microseconds and the last bucket all that lived longer.
+     */
+    public static final int LIFETIME_BUCKETS = 32;
+
+    private static final String[] SKIPPED_CLASSES = {
+            ByteBufAllocationProfiler.class.getName(),
+            AbstractByteBufAllocator.class.getName()
+    };
+
+    private final int samplingInterval;
+    private final int maxFrames;
+    private final int maxSites;
+    private final ConcurrentMap<Long, Site> sites = new ConcurrentHashMap<>();
+    private final LongAdder droppedSamples = new LongAdder();
+
+    /**
+     * Creates a new instance which samples one out of {@code samplingInterval} allocations.
+     */
+    public ByteBufAllocationProfiler(int samplingInterval) {
+        this(samplingInterval, DEFAULT_MAX_FRAMES, DEFAULT_MAX_SITES);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param samplingInterval  one out of {@code samplingInterval} allocations is sampled.
+     * @param maxFrames         the number of stack frames that identify the call site of an allocation.
+     * @param maxSites          the maximum number of distinct size class and call site combinations that are
+     *                          recorded. Samples of further combinations are dropped.
+     */
+    public ByteBufAllocationProfiler(int samplingInterval, int maxFrames, int maxSites) {
+        this.samplingInterval = checkPositive(samplingInterval, "samplingInterval");
+        this.maxFrames = checkPositive(maxFrames, "maxFrames");
+        this.maxSites = checkPositive(maxSites, "maxSites");
+    }
+
+    /**
+     * Returns the interval in which allocations are sampled.
+     */
+    public int samplingInterval() {
+        return samplingInterval;
+    }
+
+    /**
+     * Returns the number of samples that were dropped because {@code maxSites} call sites were recorded already.
+     */
+    public long droppedSamples() {
+        return droppedSamples.sum();
+    }
+
+    /**
+     * Returns a snapshot of all recorded call sites, the ones with the most sampled bytes first.
+     */
+    public List<AllocationSite> sites() {
+        List<AllocationSite> snapshot = new ArrayList<>(sites.size());
+        for (Site site: sites.values()) {
+            snapshot.add(site.snapshot(samplingInterval));
+        }
+        Collections.sort(snapshot, MOST_BYTES_FIRST);
+        return snapshot;
+    }
+
+    /**
+     * Discards all recorded samples. Buffers that were sampled before and are released afterwards are not recorded.
+     */
+    public void reset() {
+        sites.clear();
+        droppedSamples.reset();
+    }
+
+    /**
+     * Returns all recorded call sites as a human readable string. Be aware this may be expensive and so should not
+     * be called too frequently.
+     */
+    public String dump() {
+        List<AllocationSite> sites = sites();
+        StringBuilder buf = new StringBuilder(256)
+                .append(sites.size())
+                .append(" allocation site(s), sampling interval: ")
+                .append(samplingInterval)
+                .append(", dropped samples: ")
+                .append(droppedSamples())
+                .append(StringUtil.NEWLINE);
+        for (AllocationSite site: sites) {
+            buf.append(site).append(StringUtil.NEWLINE);
+        }
+        return buf.toString();
+    }
+
+    /**
+     * Returns the given buffer or, if it was sampled, a buffer wrapping it that records when it is released.
+     */
+    ByteBuf sample(ByteBuf buf) {
+        if (samplingInterval > 1 && ThreadLocalRandom.current().nextInt(samplingInterval) != 0) {
+            return buf;
+        }
+        StackTraceElement[] frames = callSite(new Throwable().getStackTrace());
+        int sizeClass = sizeClass(buf);
+        int stackHash = Arrays.hashCode(frames);
+        Long key = ((long) stackHash << 32) | (sizeClass & 0xFFFFFFFFL);
+
+        Site site = sites.get(key);
+        if (site == null) {
+            if (sites.size() >= maxSites) {
+                droppedSamples.increment();
+                return buf;
+            }
+            Site newSite = new Site(sizeClass, stackHash, frames);
+            site = sites.putIfAbsent(key, newSite);
+            if (site == null) {
+                site = newSite;
+            }
+        }
+        site.allocated();
+        return new SimpleLeakAwareByteBuf(buf, new Sample(site));
+    }
+
+    private StackTraceElement[] callSite(StackTraceElement[] stackTrace) {
+        int start = 0;
+        while (start < stackTrace.length && isSkipped(stackTrace[start])) {
+            start++;
+        }
+        return Arrays.copyOfRange(stackTrace, start, Math.min(stackTrace.length, start + maxFrames));
+    }
+
+    private static boolean isSkipped(StackTraceElement element) {
+        for (String className: SKIPPED_CLASSES) {
+            if (className.equals(element.getClassName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int sizeClass(ByteBuf buf) {
+        // Pooled buffers occupy the whole size class they were allocated from.
+        for (ByteBuf b = buf; b != null; b = b.unwrap()) {
+            if (b instanceof PooledByteBuf) {
+                return ((PooledByteBuf<?>) b).maxLength;
+            }
+        }
+        return buf.capacity();
+    }
+
+    private static final Comparator<AllocationSite> MOST_BYTES_FIRST =
+            Comparator.comparingLong(AllocationSite::sampledBytes).reversed();
+
+    /**
+     * The samples of a size class and call site combination.
+     */
+    private static final class Site {
+        private final int sizeClass;
+        private final int stackHash;
+        private final StackTraceElement[] stackTrace;
+
+        // Guarded by synchronized(this), samples are rare so there is no need for anything fancier.
+        private long allocations;
+        private long releases;
+        private long totalLifetimeNanos;
+        private final long[] lifetimeHistogram = new long[LIFETIME_BUCKETS];
+
+        Site(int sizeClass, int stackHash, StackTraceElement[] stackTrace) {
+            this.sizeClass = sizeClass;
+            this.stackHash = stackHash;
+            this.stackTrace = stackTrace;
+        }
+
+        synchronized void allocated() {
+            allocations++;
+        }
+
+        synchronized void released(long lifetimeNanos) {
+            releases++;
+            totalLifetimeNanos += lifetimeNanos;
+            lifetimeHistogram[lifetimeBucket(lifetimeNanos)]++;
+        }
+
+        synchronized AllocationSite snapshot(int samplingInterval) {
+            return new AllocationSite(sizeClass, stackHash, stackTrace, samplingInterval, allocations, releases,
+                    totalLifetimeNanos, lifetimeHistogram.clone());
+        }
+    }
+
+    static int lifetimeBucket(long lifetimeNanos) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(lifetimeNanos);
+        if (micros <= 0) {
+            return 0;
+        }
+        return Math.min(LIFETIME_BUCKETS - 1, Long.SIZE - Long.numberOfLeadingZeros(micros));
+    }
+
+    /**
+     * Records the lifetime of a sampled buffer when it is released.
+     */
+    private static final class Sample implements ResourceLeakTracker<ByteBuf> {
+        private final Site site;
+        private final long allocatedNanos = System.nanoTime();
+        private boolean closed;
+
+        Sample(Site site) {
+            this.site = site;
+        }
+
+        @Override
+        public void record() {
+            // NOOP
+        }
+
+        @Override
+        public void record(Object hint) {
+            // NOOP
+        }
+
+        @Override
+        public boolean close(ByteBuf trackedObject) {
+            synchronized (this) {
+                if (closed) {
+                    return false;
+                }
+                closed = true;
+            }
+            site.released(System.nanoTime() - allocatedNanos);
+            return true;
+        }
+    }
+
+    /**
+     * The samples of a size class and call site combination at the time {@link #sites()} was called.
+     */
+    public static final class AllocationSite {
+        private final int sizeClass;
+        private final int stackHash;
+        private final StackTraceElement[] stackTrace;
+        private final int samplingInterval;
+        private final long sampledAllocations;
+        private final long sampledReleases;
+        private final long totalLifetimeNanos;
+        private final long[] lifetimeHistogram;
+
+        AllocationSite(int sizeClass, int stackHash, StackTraceElement[] stackTrace, int samplingInterval,
+                       long sampledAllocations, long sampledReleases, long totalLifetimeNanos,
+                       long[] lifetimeHistogram) {
+            this.sizeClass = sizeClass;
+            this.stackHash = stackHash;
+            this.stackTrace = stackTrace;
+            this.samplingInterval = samplingInterval;
+            this.sampledAllocations = sampledAllocations;
+            this.sampledReleases = sampledReleases;
+            this.totalLifetimeNanos = totalLifetimeNanos;
+            this.lifetimeHistogram = lifetimeHistogram;
+        }
+
+        /**
+         * Returns the number of bytes each of the sampled buffers occupies. For pooled buffers this is the size
+         * class they were allocated from, otherwise their initial capacity.
+         */
+        public int sizeClass() {
+            return sizeClass;
+        }
+
+        /**
+         * Returns the hash of the top stack frames which identifies the call site.
+         */
+        public int stackHash() {
+            return stackHash;
+        }
+
+        /**
+         * Returns the top stack frames of the call site.
+         */
+        public StackTraceElement[] stackTrace() {
+            return stackTrace.clone();
+        }
+
+        /**
+         * Returns the number of sampled allocations.
+         */
+        public long sampledAllocations() {
+            return sampledAllocations;
+        }
+
+        /**
+         * Returns the estimated number of allocations, which is the number of sampled allocations multiplied by the
+         * sampling interval.
+         */
+        public long estimatedAllocations() {
+            return sampledAllocations * samplingInterval;
+        }
+
+        /**
+         * Returns the number of bytes of the sampled allocations.
+         */
+        public long sampledBytes() {
+            return sampledAllocations * sizeClass;
+        }
+
+        /**
+         * Returns the number of sampled buffers that were released.
+         */
+        public long sampledReleases() {
+            return sampledReleases;
+        }
+
+        /**
+         * Returns the number of sampled buffers that were not released yet.
+         */
+        public long liveSamples() {
+            return Math.max(0, sampledAllocations - sampledReleases);
+        }
+
+        /**
+         * Returns the mean lifetime of the released sampled buffers in nanoseconds or {@code 0} if none was released.
+         */
+        public long meanLifetimeNanos() {
+            return sampledReleases == 0 ? 0 : totalLifetimeNanos / sampledReleases;
+        }
+
+        /**
+         * Returns the lifetime histogram of the released sampled buffers, see {@link #LIFETIME_BUCKETS}.
+         */
+        public long[] lifetimeHistogram() {
+            return lifetimeHistogram.clone();
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder buf = new StringBuilder(256)
+                    .append("sizeClass: ").append(sizeClass)
+                    .append(", stackHash: ").append(Integer.toHexString(stackHash))
+                    .append(", sampledAllocations: ").append(sampledAllocations)
+                    .append(", estimatedAllocations: ").append(estimatedAllocations())
+                    .append(", liveSamples: ").append(liveSamples())
+                    .append(", meanLifetimeNanos: ").append(meanLifetimeNanos())
+                    .append(", lifetimeHistogram(us): ");
+            boolean first = true;
+            for (int i = 0; i < lifetimeHistogram.length; i++) {
+                if (lifetimeHistogram[i] == 0) {
+                    continue;
+                }
+                if (!first) {
+                    buf.append(", ");
+                }
+                first = false;
+                if (i == LIFETIME_BUCKETS - 1) {
+                    buf.append(">=").append(1L << (i - 1));
+                } else {
+                    buf.append('<').append(1L << i);
+                }
+                buf.append('=').append(lifetimeHistogram[i]);
+            }
+            for (StackTraceElement element: stackTrace) {
+                buf.append(StringUtil.NEWLINE).append("\tat ").append(element);
+            }
+            return buf.toString();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+import io.netty.util.internal.UnstableApi;
+
+/**
+ * Allocates the memory of the direct chunks of a {@link PooledByteBufAllocator} aligned to and backed by huge pages,
+ * which reduces the TLB misses when accessing the chunks.
+ * <p>
+ * Memory allocated by this allocator is not accounted against {@code io.netty.maxDirectMemory}.
+ */
+@UnstableApi
+public interface HugePageAllocator {
+
+    /**
+     * Returns the size of a huge page in bytes. Memory returned by {@link #allocate(int)} is aligned to it.
+     */
+    int hugePageSize();
+
+    /**
+     * Allocates {@code size} bytes, which is a multiple of {@link #hugePageSize()}, and returns the address of the
+     * memory or {@code 0} if no memory could be allocated. In the later case the chunk is allocated as if no
+     * {@link HugePageAllocator} was used.
+     */
+    long allocate(int size);
+
+    /**
+     * Frees the memory at the given address which was returned by {@link #allocate(int)} for the given size.
+     */
+    void free(long address, int size);
+}
@@ -16,6 +16,7 @@
 
 package io.netty.buffer;
 
+import io.netty.util.concurrent.ThreadPlacement;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.StringUtil;
 
@@ -24,33 +25,23 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.concurrent.atomic.LongAdder;
 
-import static io.netty.util.internal.ObjectUtil.checkPositiveOrZero;
+import static io.netty.buffer.PoolChunk.isSubpage;
 import static java.lang.Math.max;
 
-abstract class PoolArena<T> implements PoolArenaMetric {
+abstract class PoolArena<T> extends SizeClasses implements PoolArenaMetric {
     static final boolean HAS_UNSAFE = PlatformDependent.hasUnsafe();
 
     enum SizeClass {
-        Tiny,
         Small,
         Normal
     }
 
-    static final int numTinySubpagePools = 512 >>> 4;
-
     final PooledByteBufAllocator parent;
 
-    private final int maxOrder;
-    final int pageSize;
-    final int pageShifts;
-    final int chunkSize;
-    final int subpageOverflowMask;
-    final int numSmallSubpagePools;
-    final int directMemoryCacheAlignment;
     final int directMemoryCacheAlignmentMask;
-    private final PoolSubpage<T>[] tinySubpagePools;
     private final PoolSubpage<T>[] smallSubpagePools;
 
     private final PoolChunkList<T> q050;
@@ -65,43 +56,47 @@ abstract class PoolArena<T> implements PoolArenaMetric {
     // Metrics for allocations and deallocations
     private long allocationsNormal;
     // We need to use the LongAdder here as this is not guarded via synchronized block.
-    private final LongAdder allocationsTiny = new LongAdder();
     private final LongAdder allocationsSmall = new LongAdder();
     private final LongAdder allocationsHuge = new LongAdder();
     private final LongAdder activeBytesHuge = new LongAdder();
 
-    private long deallocationsTiny;
     private long deallocationsSmall;
     private long deallocationsNormal;
 
     // We need to use the LongAdder here as this is not guarded via synchronized block.
     private final LongAdder deallocationsHuge = new LongAdder();
 
+    // Advanced by every trimIdleChunks() call. Chunks remember the generation in which they became completely free.
+    int trimGeneration;
+    private long trimmedChunks;
+
+    // Hits and misses of the thread caches per size index. These are added up by the caches when they are trimmed.
+    private final AtomicLongArray threadCacheHits;
+    private final AtomicLongArray threadCacheMisses;
+
     // Number of thread caches backed by this arena.
     final AtomicInteger numThreadCaches = new AtomicInteger();
 
+    // The NUMA node this arena belongs to or ThreadPlacement.UNKNOWN. PooledByteBufAllocator binds the arena once
+    // the first Thread of a NUMA node uses it.
+    volatile int numaNode;
+
     // TODO: Test if adding padding helps under contention
     //private long pad0, pad1, pad2, pad3, pad4, pad5, pad6, pad7;
 
     protected PoolArena(PooledByteBufAllocator parent, int pageSize,
-          int maxOrder, int pageShifts, int chunkSize, int cacheAlignment) {
+          int pageShifts, int chunkSize, int cacheAlignment, int numaNode) {
+        super(pageSize, pageShifts, chunkSize, cacheAlignment);
         this.parent = parent;
-        this.pageSize = pageSize;
-        this.maxOrder = maxOrder;
-        this.pageShifts = pageShifts;
-        this.chunkSize = chunkSize;
-        directMemoryCacheAlignment = cacheAlignment;
+        this.numaNode = numaNode;
         directMemoryCacheAlignmentMask = cacheAlignment - 1;
-        subpageOverflowMask = ~(pageSize - 1);
-        tinySubpagePools = newSubpagePoolArray(numTinySubpagePools);
-        for (int i = 0; i < tinySubpagePools.length; i ++) {
-            tinySubpagePools[i] = newSubpagePoolHead(pageSize);
-        }
 
-        numSmallSubpagePools = pageShifts - 9;
-        smallSubpagePools = newSubpagePoolArray(numSmallSubpagePools);
+        threadCacheHits = new AtomicLongArray(nSizes);
+        threadCacheMisses = new AtomicLongArray(nSizes);
+
+        smallSubpagePools = newSubpagePoolArray(nSubpages);
         for (int i = 0; i < smallSubpagePools.length; i ++) {
-            smallSubpagePools[i] = newSubpagePoolHead(pageSize);
+            smallSubpagePools[i] = newSubpagePoolHead();
         }
 
         q100 = new PoolChunkList<>(this, null, 100, Integer.MAX_VALUE, chunkSize);
@@ -128,8 +123,8 @@ abstract class PoolArena<T> implements PoolArenaMetric {
         chunkListMetrics = Collections.unmodifiableList(metrics);
     }
 
-    private PoolSubpage<T> newSubpagePoolHead(int pageSize) {
-        PoolSubpage<T> head = new PoolSubpage<>(pageSize);
+    private PoolSubpage<T> newSubpagePoolHead() {
+        PoolSubpage<T> head = new PoolSubpage<>();
         head.prev = head;
         head.next = head;
         return head;
@@ -148,114 +143,84 @@ abstract class PoolArena<T> implements PoolArenaMetric {
         return buf;
     }
 
-    static int tinyIdx(int normCapacity) {
-        return normCapacity >>> 4;
-    }
+    private void allocate(PoolThreadCache cache, PooledByteBuf<T> buf, final int reqCapacity) {
+        final int sizeIdx = size2SizeIdx(reqCapacity);
 
-    static int smallIdx(int normCapacity) {
-        int tableIdx = 0;
-        int i = normCapacity >>> 10;
-        while (i != 0) {
-            i >>>= 1;
-            tableIdx ++;
+        if (sizeIdx <= smallMaxSizeIdx) {
+            tcacheAllocateSmall(cache, buf, reqCapacity, sizeIdx);
+        } else if (sizeIdx < nSizes) {
+            tcacheAllocateNormal(cache, buf, reqCapacity, sizeIdx);
+        } else {
+            int normCapacity = directMemoryCacheAlignment > 0
+                    ? normalizeSize(reqCapacity) : reqCapacity;
+            // Huge allocations are never served via the cache so just call allocateHuge
+            allocateHuge(buf, normCapacity);
         }
-        return tableIdx;
     }
 
-    // capacity < pageSize
-    boolean isTinyOrSmall(int normCapacity) {
-        return (normCapacity & subpageOverflowMask) == 0;
-    }
+    private void tcacheAllocateSmall(PoolThreadCache cache, PooledByteBuf<T> buf, final int reqCapacity,
+                                     final int sizeIdx) {
 
-    // normCapacity < 512
-    static boolean isTiny(int normCapacity) {
-        return (normCapacity & 0xFFFFFE00) == 0;
-    }
+        if (cache.allocateSmall(this, buf, reqCapacity, sizeIdx)) {
+            // was able to allocate out of the cache so move on
+            return;
+        }
 
-    private void allocate(PoolThreadCache cache, PooledByteBuf<T> buf, final int reqCapacity) {
-        final int normCapacity = normalizeCapacity(reqCapacity);
-        if (isTinyOrSmall(normCapacity)) { // capacity < pageSize
-            int tableIdx;
-            PoolSubpage<T>[] table;
-            boolean tiny = isTiny(normCapacity);
-            if (tiny) { // < 512
-                if (cache.allocateTiny(this, buf, reqCapacity, normCapacity)) {
-                    // was able to allocate out of the cache so move on
-                    return;
-                }
-                tableIdx = tinyIdx(normCapacity);
-                table = tinySubpagePools;
-            } else {
-                if (cache.allocateSmall(this, buf, reqCapacity, normCapacity)) {
-                    // was able to allocate out of the cache so move on
-                    return;
-                }
-                tableIdx = smallIdx(normCapacity);
-                table = smallSubpagePools;
+        /**
+         * Synchronize on the head. This is needed as {@link PoolChunk#allocateSubpage(int)} and
+         * {@link PoolChunk#free(long, int, ByteBuffer)} may modify the doubly linked list as well.
+         */
+        final PoolSubpage<T> head = smallSubpagePools[sizeIdx];
+        final boolean needsNormalAllocation;
+        synchronized (head) {
+            final PoolSubpage<T> s = head.next;
+            needsNormalAllocation = s == head;
+            if (!needsNormalAllocation) {
+                assert s.doNotDestroy && s.elemSize == sizeIdx2size(sizeIdx);
+                long handle = s.allocate();
+                assert handle >= 0;
+                s.chunk.initBufWithSubpage(buf, null, handle, reqCapacity);
             }
+        }
 
-            final PoolSubpage<T> head = table[tableIdx];
-
-            /**
-             * Synchronize on the head. This is needed as {@link PoolChunk#allocateSubpage(int)} and
-             * {@link PoolChunk#free(long)} may modify the doubly linked list as well.
-             */
-            synchronized (head) {
-                final PoolSubpage<T> s = head.next;
-                if (s != head) {
-                    assert s.doNotDestroy && s.elemSize == normCapacity;
-                    long handle = s.allocate();
-                    assert handle >= 0;
-                    s.chunk.initBufWithSubpage(buf, null, handle, reqCapacity);
-                    incTinySmallAllocation(tiny);
-                    return;
-                }
-            }
+        if (needsNormalAllocation) {
             synchronized (this) {
-                allocateNormal(buf, reqCapacity, normCapacity);
+                allocateNormal(buf, reqCapacity, sizeIdx);
             }
+        }
+
+        allocationsSmall.increment();
+    }
 
-            incTinySmallAllocation(tiny);
+    private void tcacheAllocateNormal(PoolThreadCache cache, PooledByteBuf<T> buf, final int reqCapacity,
+                                      final int sizeIdx) {
+        if (cache.allocateNormal(this, buf, reqCapacity, sizeIdx)) {
+            // was able to allocate out of the cache so move on
             return;
         }
-        if (normCapacity <= chunkSize) {
-            if (cache.allocateNormal(this, buf, reqCapacity, normCapacity)) {
-                // was able to allocate out of the cache so move on
-                return;
-            }
-            synchronized (this) {
-                allocateNormal(buf, reqCapacity, normCapacity);
-                ++allocationsNormal;
-            }
-        } else {
-            // Huge allocations are never served via the cache so just call allocateHuge
-            allocateHuge(buf, reqCapacity);
+        synchronized (this) {
+            allocateNormal(buf, reqCapacity, sizeIdx);
+            ++allocationsNormal;
         }
     }
 
-    // Method must be called inside synchronized(this) { ... } block
-    private void allocateNormal(PooledByteBuf<T> buf, int reqCapacity, int normCapacity) {
-        if (q050.allocate(buf, reqCapacity, normCapacity) || q025.allocate(buf, reqCapacity, normCapacity) ||
-            q000.allocate(buf, reqCapacity, normCapacity) || qInit.allocate(buf, reqCapacity, normCapacity) ||
-            q075.allocate(buf, reqCapacity, normCapacity)) {
+    // Method must be called inside synchronized(this) { ... } block
+    private void allocateNormal(PooledByteBuf<T> buf, int reqCapacity, int sizeIdx) {
+        if (q050.allocate(buf, reqCapacity, sizeIdx) ||
+            q025.allocate(buf, reqCapacity, sizeIdx) ||
+            q000.allocate(buf, reqCapacity, sizeIdx) ||
+            qInit.allocate(buf, reqCapacity, sizeIdx) ||
+            q075.allocate(buf, reqCapacity, sizeIdx)) {
             return;
         }
 
         // Add a new chunk.
-        PoolChunk<T> c = newChunk(pageSize, maxOrder, pageShifts, chunkSize);
-        boolean success = c.allocate(buf, reqCapacity, normCapacity);
+        PoolChunk<T> c = newChunk(pageSize, nPSizes, pageShifts, chunkSize);
+        boolean success = c.allocate(buf, reqCapacity, sizeIdx);
         assert success;
         qInit.add(c);
     }
 
-    private void incTinySmallAllocation(boolean tiny) {
-        if (tiny) {
-            allocationsTiny.increment();
-        } else {
-            allocationsSmall.increment();
-        }
-    }
-
     private void allocateHuge(PooledByteBuf<T> buf, int reqCapacity) {
         PoolChunk<T> chunk = newUnpooledChunk(reqCapacity);
         activeBytesHuge.add(chunk.chunkSize());
@@ -270,24 +235,22 @@ abstract class PoolArena<T> implements PoolArenaMetric {
             activeBytesHuge.add(-size);
             deallocationsHuge.increment();
         } else {
-            SizeClass sizeClass = sizeClass(normCapacity);
+            SizeClass sizeClass = sizeClass(handle);
             if (cache != null && cache.add(this, chunk, nioBuffer, handle, normCapacity, sizeClass)) {
                 // cached so not free it.
                 return;
             }
 
-            freeChunk(chunk, handle, sizeClass, nioBuffer, false);
+            freeChunk(chunk, handle, normCapacity, sizeClass, nioBuffer, false);
         }
     }
 
-    private SizeClass sizeClass(int normCapacity) {
-        if (!isTinyOrSmall(normCapacity)) {
-            return SizeClass.Normal;
-        }
-        return isTiny(normCapacity) ? SizeClass.Tiny : SizeClass.Small;
+    private static SizeClass sizeClass(long handle) {
+        return isSubpage(handle) ? SizeClass.Small : SizeClass.Normal;
     }
 
-    void freeChunk(PoolChunk<T> chunk, long handle, SizeClass sizeClass, ByteBuffer nioBuffer, boolean finalizer) {
+    void freeChunk(PoolChunk<T> chunk, long handle, int normCapacity, SizeClass sizeClass, ByteBuffer nioBuffer,
+                   boolean finalizer) {
         final boolean destroyChunk;
         synchronized (this) {
             // We only call this if freeChunk is not called because of the PoolThreadCache finalizer as otherwise this
@@ -300,14 +263,11 @@ abstract class PoolArena<T> implements PoolArenaMetric {
                     case Small:
                         ++deallocationsSmall;
                         break;
-                    case Tiny:
-                        ++deallocationsTiny;
-                        break;
                     default:
                         throw new Error();
                 }
             }
-            destroyChunk = !chunk.parent.free(chunk, handle, nioBuffer);
+            destroyChunk = !chunk.parent.free(chunk, handle, normCapacity, nioBuffer);
         }
         if (destroyChunk) {
             // destroyChunk not need to be called while holding the synchronized lock.
@@ -315,67 +275,37 @@ abstract class PoolArena<T> implements PoolArenaMetric {
         }
     }
 
-    PoolSubpage<T> findSubpagePoolHead(int elemSize) {
-        int tableIdx;
-        PoolSubpage<T>[] table;
-        if (isTiny(elemSize)) { // < 512
-            tableIdx = elemSize >>> 4;
-            table = tinySubpagePools;
-        } else {
-            tableIdx = 0;
-            elemSize >>>= 10;
-            while (elemSize != 0) {
-                elemSize >>>= 1;
-                tableIdx ++;
-            }
-            table = smallSubpagePools;
-        }
-
-        return table[tableIdx];
-    }
-
-    int normalizeCapacity(int reqCapacity) {
-        checkPositiveOrZero(reqCapacity, "reqCapacity");
-
-        if (reqCapacity >= chunkSize) {
-            return directMemoryCacheAlignment == 0 ? reqCapacity : alignCapacity(reqCapacity);
+    /**
+     * Destroys all pooled chunks that did not serve any allocation since the previous call of this method and so
+     * gives their memory back to the system. Returns the number of bytes that were released.
+     */
+    long trimIdleChunks() {
+        List<PoolChunk<T>> idleChunks = new ArrayList<>();
+        synchronized (this) {
+            // Only qInit can contain completely free chunks, all other lists destroy or move them when they drain.
+            qInit.removeIdleChunks(trimGeneration++, idleChunks);
+            trimmedChunks += idleChunks.size();
         }
-
-        if (!isTiny(reqCapacity)) { // >= 512
-            // Doubled
-
-            int normalizedCapacity = reqCapacity;
-            normalizedCapacity --;
-            normalizedCapacity |= normalizedCapacity >>>  1;
-            normalizedCapacity |= normalizedCapacity >>>  2;
-            normalizedCapacity |= normalizedCapacity >>>  4;
-            normalizedCapacity |= normalizedCapacity >>>  8;
-            normalizedCapacity |= normalizedCapacity >>> 16;
-            normalizedCapacity ++;
-
-            if (normalizedCapacity < 0) {
-                normalizedCapacity >>>= 1;
-            }
-            assert directMemoryCacheAlignment == 0 || (normalizedCapacity & directMemoryCacheAlignmentMask) == 0;
-
-            return normalizedCapacity;
+        long trimmedBytes = 0;
+        for (PoolChunk<T> chunk: idleChunks) {
+            trimmedBytes += chunk.chunkSize();
+            // destroyChunk not need to be called while holding the synchronized lock.
+            destroyChunk(chunk);
         }
+        return trimmedBytes;
+    }
 
-        if (directMemoryCacheAlignment > 0) {
-            return alignCapacity(reqCapacity);
+    void addThreadCacheStats(int sizeIdx, int hits, int misses) {
+        if (hits != 0) {
+            threadCacheHits.addAndGet(sizeIdx, hits);
         }
-
-        // Quantum-spaced
-        if ((reqCapacity & 15) == 0) {
-            return reqCapacity;
+        if (misses != 0) {
+            threadCacheMisses.addAndGet(sizeIdx, misses);
         }
-
-        return (reqCapacity & ~15) + 16;
     }
 
-    int alignCapacity(int reqCapacity) {
-        int delta = reqCapacity & directMemoryCacheAlignmentMask;
-        return delta == 0 ? reqCapacity : reqCapacity + directMemoryCacheAlignment - delta;
+    PoolSubpage<T> findSubpagePoolHead(int sizeIdx) {
+        return smallSubpagePools[sizeIdx];
     }
 
     void reallocate(PooledByteBuf<T> buf, int newCapacity, boolean freeOldMemory) {
@@ -413,9 +343,15 @@ abstract class PoolArena<T> implements PoolArenaMetric {
         return numThreadCaches.get();
     }
 
+    @Override
+    public int numaNode() {
+        return numaNode;
+    }
+
+    @Deprecated
     @Override
     public int numTinySubpages() {
-        return tinySubpagePools.length;
+        return 0;
     }
 
     @Override
@@ -428,9 +364,10 @@ abstract class PoolArena<T> implements PoolArenaMetric {
         return chunkListMetrics.size();
     }
 
+    @Deprecated
     @Override
     public List<PoolSubpageMetric> tinySubpages() {
-        return subPageMetricList(tinySubpagePools);
+        return Collections.emptyList();
     }
 
     @Override
@@ -464,12 +401,13 @@ abstract class PoolArena<T> implements PoolArenaMetric {
         synchronized (this) {
             allocsNormal = allocationsNormal;
         }
-        return allocationsTiny.longValue() + allocationsSmall.longValue() + allocsNormal + allocationsHuge.longValue();
+        return allocationsSmall.longValue() + allocsNormal + allocationsHuge.longValue();
     }
 
+    @Deprecated
     @Override
     public long numTinyAllocations() {
-        return allocationsTiny.longValue();
+        return 0;
     }
 
     @Override
@@ -486,14 +424,15 @@ abstract class PoolArena<T> implements PoolArenaMetric {
     public long numDeallocations() {
         final long deallocs;
         synchronized (this) {
-            deallocs = deallocationsTiny + deallocationsSmall + deallocationsNormal;
+            deallocs = deallocationsSmall + deallocationsNormal;
         }
         return deallocs + deallocationsHuge.longValue();
     }
 
+    @Deprecated
     @Override
-    public synchronized long numTinyDeallocations() {
-        return deallocationsTiny;
+    public long numTinyDeallocations() {
+        return 0;
     }
 
     @Override
@@ -518,17 +457,18 @@ abstract class PoolArena<T> implements PoolArenaMetric {
 
     @Override
     public  long numActiveAllocations() {
-        long val = allocationsTiny.longValue() + allocationsSmall.longValue() + allocationsHuge.longValue()
+        long val = allocationsSmall.longValue() + allocationsHuge.longValue()
                 - deallocationsHuge.longValue();
         synchronized (this) {
-            val += allocationsNormal - (deallocationsTiny + deallocationsSmall + deallocationsNormal);
+            val += allocationsNormal - (deallocationsSmall + deallocationsNormal);
         }
         return max(val, 0);
     }
 
+    @Deprecated
     @Override
     public long numActiveTinyAllocations() {
-        return max(numTinyAllocations() - numTinyDeallocations(), 0);
+        return 0;
     }
 
     @Override
@@ -563,7 +503,39 @@ abstract class PoolArena<T> implements PoolArenaMetric {
         return max(0, val);
     }
 
-    protected abstract PoolChunk<T> newChunk(int pageSize, int maxOrder, int pageShifts, int chunkSize);
+    @Override
+    public synchronized long numTrimmedChunks() {
+        return trimmedChunks;
+    }
+
+    @Override
+    public long numTrimmedBytes() {
+        return numTrimmedChunks() * chunkSize;
+    }
+
+    @Override
+    public long numThreadCacheHits(int sizeIdx) {
+        return threadCacheHits.get(sizeIdx);
+    }
+
+    @Override
+    public long numThreadCacheMisses(int sizeIdx) {
+        return threadCacheMisses.get(sizeIdx);
+    }
+
+    @Override
+    public double threadCacheHitRatio(int sizeIdx) {
+        long hits = numThreadCacheHits(sizeIdx);
+        long total = hits + numThreadCacheMisses(sizeIdx);
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public SizeClassesMetric sizeClasses() {
+        return this;
+    }
+
+    protected abstract PoolChunk<T> newChunk(int pageSize, int maxPageIdx, int pageShifts, int chunkSize);
     protected abstract PoolChunk<T> newUnpooledChunk(int capacity);
     protected abstract PooledByteBuf<T> newByteBuf(int maxCapacity);
     protected abstract void memoryCopy(T src, int srcOffset, PooledByteBuf<T> dst, int length);
@@ -596,11 +568,11 @@ abstract class PoolArena<T> implements PoolArenaMetric {
             .append(StringUtil.NEWLINE)
             .append(q100)
             .append(StringUtil.NEWLINE)
-            .append("tiny subpages:");
-        appendPoolSubPages(buf, tinySubpagePools);
-        buf.append(StringUtil.NEWLINE)
-           .append("small subpages:");
+            .append("small subpages:");
         appendPoolSubPages(buf, smallSubpagePools);
+        buf.append(StringUtil.NEWLINE)
+            .append("thread cache hit ratios:");
+        appendThreadCacheHitRatios(buf);
         buf.append(StringUtil.NEWLINE);
 
         return buf.toString();
@@ -624,13 +596,31 @@ abstract class PoolArena<T> implements PoolArenaMetric {
         }
     }
 
+    private void appendThreadCacheHitRatios(StringBuilder buf) {
+        for (int i = 0; i < nSizes; i ++) {
+            long hits = threadCacheHits.get(i);
+            long misses = threadCacheMisses.get(i);
+            if (hits == 0 && misses == 0) {
+                continue;
+            }
+            buf.append(StringUtil.NEWLINE)
+                    .append(sizeIdx2size(i))
+                    .append(": ")
+                    .append(hits * 100 / (hits + misses))
+                    .append("% (")
+                    .append(hits)
+                    .append(" hits, ")
+                    .append(misses)
+                    .append(" misses)");
+        }
+    }
+
     @Override
     protected final void finalize() throws Throwable {
         try {
             super.finalize();
         } finally {
             destroyPoolSubPages(smallSubpagePools);
-            destroyPoolSubPages(tinySubpagePools);
             destroyPoolChunkLists(qInit, q000, q025, q050, q075, q100);
         }
     }
@@ -649,10 +639,16 @@ abstract class PoolArena<T> implements PoolArenaMetric {
 
     static final class HeapArena extends PoolArena<byte[]> {
 
-        HeapArena(PooledByteBufAllocator parent, int pageSize, int maxOrder,
-                int pageShifts, int chunkSize, int directMemoryCacheAlignment) {
-            super(parent, pageSize, maxOrder, pageShifts, chunkSize,
-                    directMemoryCacheAlignment);
+        HeapArena(PooledByteBufAllocator parent, int pageSize, int pageShifts,
+                int chunkSize, int directMemoryCacheAlignment) {
+            this(parent, pageSize, pageShifts, chunkSize, directMemoryCacheAlignment,
+                    ThreadPlacement.UNKNOWN);
+        }
+
+        HeapArena(PooledByteBufAllocator parent, int pageSize, int pageShifts,
+                int chunkSize, int directMemoryCacheAlignment, int numaNode) {
+            super(parent, pageSize, pageShifts, chunkSize,
+                    directMemoryCacheAlignment, numaNode);
         }
 
         private static byte[] newByteArray(int size) {
@@ -665,8 +661,8 @@ abstract class PoolArena<T> implements PoolArenaMetric {
         }
 
         @Override
-        protected PoolChunk<byte[]> newChunk(int pageSize, int maxOrder, int pageShifts, int chunkSize) {
-            return new PoolChunk<>(this, newByteArray(chunkSize), pageSize, maxOrder, pageShifts, chunkSize, 0);
+        protected PoolChunk<byte[]> newChunk(int pageSize, int maxPageIdx, int pageShifts, int chunkSize) {
+            return new PoolChunk<>(this, newByteArray(chunkSize), pageSize, pageShifts, chunkSize, maxPageIdx, 0);
         }
 
         @Override
@@ -696,11 +692,28 @@ abstract class PoolArena<T> implements PoolArenaMetric {
     }
 
     static final class DirectArena extends PoolArena<ByteBuffer> {
+        // The smallest page size of the supported platforms.
+        private static final int FIRST_TOUCH_STRIDE = 4096;
+
+        private final HugePageAllocator hugePageAllocator;
+
+        DirectArena(PooledByteBufAllocator parent, int pageSize, int pageShifts,
+                int chunkSize, int directMemoryCacheAlignment) {
+            this(parent, pageSize, pageShifts, chunkSize, directMemoryCacheAlignment,
+                    ThreadPlacement.UNKNOWN);
+        }
+
+        DirectArena(PooledByteBufAllocator parent, int pageSize, int pageShifts,
+                int chunkSize, int directMemoryCacheAlignment, int numaNode) {
+            this(parent, pageSize, pageShifts, chunkSize, directMemoryCacheAlignment, numaNode, null);
+        }
 
-        DirectArena(PooledByteBufAllocator parent, int pageSize, int maxOrder,
-                int pageShifts, int chunkSize, int directMemoryCacheAlignment) {
-            super(parent, pageSize, maxOrder, pageShifts, chunkSize,
-                    directMemoryCacheAlignment);
+        DirectArena(PooledByteBufAllocator parent, int pageSize, int pageShifts,
+                int chunkSize, int directMemoryCacheAlignment, int numaNode, HugePageAllocator hugePageAllocator) {
+            super(parent, pageSize, pageShifts, chunkSize,
+                    directMemoryCacheAlignment, numaNode);
+            assert hugePageAllocator == null || chunkSize % hugePageAllocator.hugePageSize() == 0;
+            this.hugePageAllocator = hugePageAllocator;
         }
 
         @Override
@@ -721,20 +734,40 @@ abstract class PoolArena<T> implements PoolArenaMetric {
         }
 
         @Override
-        protected PoolChunk<ByteBuffer> newChunk(int pageSize, int maxOrder,
+        protected PoolChunk<ByteBuffer> newChunk(int pageSize, int maxPageIdx,
                 int pageShifts, int chunkSize) {
+            if (hugePageAllocator != null) {
+                PoolChunk<ByteBuffer> chunk = newHugePageChunk(pageSize, maxPageIdx, pageShifts, chunkSize);
+                if (chunk != null) {
+                    return chunk;
+                }
+            }
             if (directMemoryCacheAlignment == 0) {
                 return new PoolChunk<>(this,
-                        allocateDirect(chunkSize), pageSize, maxOrder,
-                        pageShifts, chunkSize, 0);
+                        allocateDirect(chunkSize), pageSize, pageShifts,
+                        chunkSize, maxPageIdx, 0);
             }
             final ByteBuffer memory = allocateDirect(chunkSize
                     + directMemoryCacheAlignment);
             return new PoolChunk<>(this, memory, pageSize,
-                    maxOrder, pageShifts, chunkSize,
+                    pageShifts, chunkSize, maxPageIdx,
                     offsetCacheLine(memory));
         }
 
+        /**
+         * Allocates a chunk from huge pages or returns {@code null} if the {@link HugePageAllocator} could not
+         * allocate the memory. The memory is aligned to the huge page size, so it is aligned to the cache line too.
+         */
+        private PoolChunk<ByteBuffer> newHugePageChunk(int pageSize, int maxPageIdx, int pageShifts, int chunkSize) {
+            long address = hugePageAllocator.allocate(chunkSize);
+            if (address == 0) {
+                return null;
+            }
+            ByteBuffer memory = PlatformDependent.directBuffer(address, chunkSize);
+            firstTouchIfLocal(address, chunkSize);
+            return new PoolChunk<>(this, memory, pageSize, pageShifts, chunkSize, maxPageIdx, 0, true);
+        }
+
         @Override
         protected PoolChunk<ByteBuffer> newUnpooledChunk(int capacity) {
             if (directMemoryCacheAlignment == 0) {
@@ -747,14 +780,39 @@ abstract class PoolArena<T> implements PoolArenaMetric {
                     offsetCacheLine(memory));
         }
 
-        private static ByteBuffer allocateDirect(int capacity) {
-            return PlatformDependent.useDirectBufferNoCleaner() ?
-                    PlatformDependent.allocateDirectNoCleaner(capacity) : ByteBuffer.allocateDirect(capacity);
+        private ByteBuffer allocateDirect(int capacity) {
+            if (!PlatformDependent.useDirectBufferNoCleaner()) {
+                // ByteBuffer.allocateDirect(...) zeroes the memory and so already touches every page on this Thread.
+                return ByteBuffer.allocateDirect(capacity);
+            }
+            ByteBuffer memory = PlatformDependent.allocateDirectNoCleaner(capacity);
+            firstTouchIfLocal(PlatformDependent.directBufferAddress(memory), capacity);
+            return memory;
+        }
+
+        private void firstTouchIfLocal(long address, int capacity) {
+            int numaNode = this.numaNode;
+            if (numaNode != ThreadPlacement.UNKNOWN && ThreadPlacement.numaNode(Thread.currentThread()) == numaNode) {
+                firstTouch(address, capacity);
+            }
+        }
+
+        /**
+         * Writes to every page of the given memory, so the kernel backs it with pages of the NUMA node of the calling
+         * {@link Thread} (first-touch policy) and not of the {@link Thread} that writes to it first later on. This is
+         * only needed for memory that is not zeroed when it is allocated.
+         */
+        private static void firstTouch(long address, int capacity) {
+            for (int i = 0; i < capacity; i += FIRST_TOUCH_STRIDE) {
+                PlatformDependent.putByte(address + i, (byte) 0);
+            }
         }
 
         @Override
         protected void destroyChunk(PoolChunk<ByteBuffer> chunk) {
-            if (PlatformDependent.useDirectBufferNoCleaner()) {
+            if (chunk.hugePages) {
+                hugePageAllocator.free(PlatformDependent.directBufferAddress(chunk.memory), chunk.chunkSize());
+            } else if (PlatformDependent.useDirectBufferNoCleaner()) {
                 PlatformDependent.freeDirectNoCleaner(chunk.memory);
             } else {
                 PlatformDependent.freeDirectBuffer(chunk.memory);
@@ -30,7 +30,10 @@ public interface PoolArenaMetric {
 
     /**
      * Returns the number of tiny sub-pages for the arena.
+     *
+     * @deprecated Tiny sub-pages have been merged into small sub-pages.
      */
+    @Deprecated
     int numTinySubpages();
 
     /**
@@ -45,7 +48,10 @@ public interface PoolArenaMetric {
 
     /**
      * Returns an unmodifiable {@link List} which holds {@link PoolSubpageMetric}s for tiny sub-pages.
+     *
+     * @deprecated Tiny sub-pages have been merged into small sub-pages.
      */
+    @Deprecated
     List<PoolSubpageMetric> tinySubpages();
 
     /**
@@ -65,7 +71,10 @@ public interface PoolArenaMetric {
 
     /**
      * Return the number of tiny allocations done via the arena.
+     *
+     * @deprecated Tiny allocations have been merged into small allocations.
      */
+    @Deprecated
     long numTinyAllocations();
 
     /**
@@ -90,7 +99,10 @@ public interface PoolArenaMetric {
 
     /**
      * Return the number of tiny deallocations done via the arena.
+     *
+     * @deprecated Tiny deallocations have been merged into small deallocations.
      */
+    @Deprecated
     long numTinyDeallocations();
 
     /**
@@ -115,7 +127,10 @@ public interface PoolArenaMetric {
 
     /**
      * Return the number of currently active tiny allocations.
+     *
+     * @deprecated Tiny allocations have been merged into small allocations.
      */
+    @Deprecated
     long numActiveTinyAllocations();
 
     /**
@@ -137,4 +152,58 @@ public interface PoolArenaMetric {
      * Return the number of active bytes that are currently allocated by the arena.
      */
     long numActiveBytes();
+
+    /**
+     * Return the number of chunks that were released because they were not used between two chunk trims.
+     */
+    default long numTrimmedChunks() {
+        return 0;
+    }
+
+    /**
+     * Return the number of bytes that were given back to the system because chunks were not used between two
+     * chunk trims.
+     */
+    default long numTrimmedBytes() {
+        return 0;
+    }
+
+    /**
+     * Return the number of allocations of the given size index (see {@link #sizeClasses()}) that were served by
+     * thread caches. Thread caches add up their numbers when they are trimmed, so this lags behind a bit.
+     */
+    default long numThreadCacheHits(int sizeIdx) {
+        return 0;
+    }
+
+    /**
+     * Return the number of allocations of the given size index (see {@link #sizeClasses()}) that could not be
+     * served by thread caches. Thread caches add up their numbers when they are trimmed, so this lags behind a bit.
+     */
+    default long numThreadCacheMisses(int sizeIdx) {
+        return 0;
+    }
+
+    /**
+     * Return the ratio of allocations of the given size index (see {@link #sizeClasses()}) that were served by
+     * thread caches, or {@code 0} if no allocation of this size was tried to be served by a thread cache.
+     */
+    default double threadCacheHitRatio(int sizeIdx) {
+        return 0;
+    }
+
+    /**
+     * Returns the NUMA node this arena belongs to or {@code -1} if the arena is not bound to a NUMA node.
+     */
+    default int numaNode() {
+        return -1;
+    }
+
+    /**
+     * Returns the {@link SizeClassesMetric} which maps sizes to the size indexes of this arena or {@code null} if
+     * this arena does not use size classes.
+     */
+    default SizeClassesMetric sizeClasses() {
+        return null;
+    }
 }
@@ -76,7 +76,8 @@ final class PoolChunkList<T> implements PoolChunkListMetric {
         this.prevList = prevList;
     }
 
-    boolean allocate(PooledByteBuf<T> buf, int reqCapacity, int normCapacity) {
+    boolean allocate(PooledByteBuf<T> buf, int reqCapacity, int sizeIdx) {
+        int normCapacity = arena.sizeIdx2size(sizeIdx);
         if (normCapacity > maxCapacity) {
             // Either this PoolChunkList is empty or the requested capacity is larger then the capacity which can
             // be handled by the PoolChunks that are contained in this PoolChunkList.
@@ -84,7 +85,7 @@ final class PoolChunkList<T> implements PoolChunkListMetric {
         }
 
         for (PoolChunk<T> cur = head; cur != null; cur = cur.next) {
-            if (cur.allocate(buf, reqCapacity, normCapacity)) {
+            if (cur.allocate(buf, reqCapacity, sizeIdx)) {
                 if (cur.usage() >= maxUsage) {
                     remove(cur);
                     nextList.add(cur);
@@ -95,8 +96,8 @@ final class PoolChunkList<T> implements PoolChunkListMetric {
         return false;
     }
 
-    boolean free(PoolChunk<T> chunk, long handle, ByteBuffer nioBuffer) {
-        chunk.free(handle, nioBuffer);
+    boolean free(PoolChunk<T> chunk, long handle, int normCapacity, ByteBuffer nioBuffer) {
+        chunk.free(handle, normCapacity, nioBuffer);
         if (chunk.usage() < minUsage) {
             remove(chunk);
             // Move the PoolChunk down the PoolChunkList linked-list.
@@ -105,6 +106,21 @@ final class PoolChunkList<T> implements PoolChunkListMetric {
         return true;
     }
 
+    /**
+     * Removes all {@link PoolChunk}s that did not serve any allocation since before the given trim generation and
+     * adds them to {@code idleChunks}. Must be called while holding the lock of the arena.
+     */
+    void removeIdleChunks(int generation, List<PoolChunk<T>> idleChunks) {
+        for (PoolChunk<T> cur = head; cur != null;) {
+            PoolChunk<T> next = cur.next;
+            if (cur.isIdleSince(generation)) {
+                remove(cur);
+                idleChunks.add(cur);
+            }
+            cur = next;
+        }
+    }
+
     private boolean move(PoolChunk<T> chunk) {
         assert chunk.usage() < maxUsage;
 
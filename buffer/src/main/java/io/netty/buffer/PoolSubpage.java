@@ -16,12 +16,18 @@
 
 package io.netty.buffer;
 
+import static io.netty.buffer.PoolChunk.IS_SUBPAGE_SHIFT;
+import static io.netty.buffer.PoolChunk.IS_USED_SHIFT;
+import static io.netty.buffer.PoolChunk.RUN_OFFSET_SHIFT;
+import static io.netty.buffer.PoolChunk.SIZE_SHIFT;
+import static io.netty.buffer.SizeClasses.LOG2_QUANTUM;
+
 final class PoolSubpage<T> implements PoolSubpageMetric {
 
     final PoolChunk<T> chunk;
-    private final int memoryMapIdx;
+    private final int pageShifts;
     private final int runOffset;
-    private final int pageSize;
+    private final int runSize;
     private final long[] bitmap;
 
     PoolSubpage<T> prev;
@@ -38,50 +44,41 @@ final class PoolSubpage<T> implements PoolSubpageMetric {
     //private long pad0, pad1, pad2, pad3, pad4, pad5, pad6, pad7;
 
     /** Special constructor that creates a linked list head */
-    PoolSubpage(int pageSize) {
+    PoolSubpage() {
         chunk = null;
-        memoryMapIdx = -1;
+        pageShifts = -1;
         runOffset = -1;
         elemSize = -1;
-        this.pageSize = pageSize;
+        runSize = -1;
         bitmap = null;
     }
 
-    PoolSubpage(PoolSubpage<T> head, PoolChunk<T> chunk, int memoryMapIdx, int runOffset, int pageSize, int elemSize) {
+    PoolSubpage(PoolSubpage<T> head, PoolChunk<T> chunk, int pageShifts, int runOffset, int runSize, int elemSize) {
         this.chunk = chunk;
-        this.memoryMapIdx = memoryMapIdx;
+        this.pageShifts = pageShifts;
         this.runOffset = runOffset;
-        this.pageSize = pageSize;
-        bitmap = new long[pageSize >>> 10]; // pageSize / 16 / 64
-        init(head, elemSize);
-    }
+        this.runSize = runSize;
+        this.elemSize = elemSize;
+        bitmap = new long[runSize >>> 6 + LOG2_QUANTUM]; // runSize / 64 / QUANTUM
 
-    void init(PoolSubpage<T> head, int elemSize) {
         doNotDestroy = true;
-        this.elemSize = elemSize;
-        if (elemSize != 0) {
-            maxNumElems = numAvail = pageSize / elemSize;
-            nextAvail = 0;
-            bitmapLength = maxNumElems >>> 6;
-            if ((maxNumElems & 63) != 0) {
-                bitmapLength ++;
-            }
+        maxNumElems = numAvail = runSize / elemSize;
+        nextAvail = 0;
+        bitmapLength = maxNumElems >>> 6;
+        if ((maxNumElems & 63) != 0) {
+            bitmapLength ++;
+        }
 
-            for (int i = 0; i < bitmapLength; i ++) {
-                bitmap[i] = 0;
-            }
+        for (int i = 0; i < bitmapLength; i ++) {
+            bitmap[i] = 0;
         }
         addToPool(head);
     }
 
     /**
-     * Returns the bitmap index of the subpage allocation.
+     * Returns the handle of the subpage allocation.
      */
     long allocate() {
-        if (elemSize == 0) {
-            return toHandle(0);
-        }
-
         if (numAvail == 0 || !doNotDestroy) {
             return -1;
         }
@@ -104,9 +101,6 @@ final class PoolSubpage<T> implements PoolSubpageMetric {
      *         {@code false} if this subpage is not used by its chunk and thus it's OK to be released.
      */
     boolean free(PoolSubpage<T> head, int bitmapIdx) {
-        if (elemSize == 0) {
-            return true;
-        }
         int q = bitmapIdx >>> 6;
         int r = bitmapIdx & 63;
         assert (bitmap[q] >>> r & 1) != 0;
@@ -195,7 +189,12 @@ final class PoolSubpage<T> implements PoolSubpageMetric {
     }
 
     private long toHandle(int bitmapIdx) {
-        return 0x4000000000000000L | (long) bitmapIdx << 32 | memoryMapIdx;
+        int pages = runSize >> pageShifts;
+        return (long) runOffset << RUN_OFFSET_SHIFT
+               | (long) pages << SIZE_SHIFT
+               | 1L << IS_USED_SHIFT
+               | 1L << IS_SUBPAGE_SHIFT
+               | bitmapIdx;
     }
 
     @Override
@@ -226,11 +225,11 @@ final class PoolSubpage<T> implements PoolSubpageMetric {
         }
 
         if (!doNotDestroy) {
-            return "(" + memoryMapIdx + ": not in use)";
+            return "(" + runOffset + ": not in use)";
         }
 
-        return "(" + memoryMapIdx + ": " + (maxNumElems - numAvail) + '/' + maxNumElems +
-                ", offset: " + runOffset + ", length: " + pageSize + ", elemSize: " + elemSize + ')';
+        return "(" + runOffset + ": " + (maxNumElems - numAvail) + '/' + maxNumElems +
+                ", offset: " + runOffset + ", length: " + runSize + ", elemSize: " + elemSize + ')';
     }
 
     @Override
@@ -271,7 +270,7 @@ final class PoolSubpage<T> implements PoolSubpageMetric {
 
     @Override
     public int pageSize() {
-        return pageSize;
+        return 1 << pageShifts;
     }
 
     void destroy() {
@@ -29,6 +29,10 @@ import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -38,26 +42,31 @@ import java.util.concurrent.atomic.AtomicBoolean;
  * technics of
  * <a href="https://www.facebook.com/notes/facebook-engineering/scalable-memory-allocation-using-jemalloc/480222803919">
  * Scalable memory allocation using jemalloc</a>.
+ *
+ * The configured cache sizes are the maximum number of entries per size class. Every time the cache is trimmed the
+ * actual limit of each size class is adapted to its hits and misses since the last trim: size classes that missed
+ * more often than they hit are grown, size classes that were not requested at all are shrunk. If a
+ * {@code maxCachedBytes} budget is given the coldest size classes are shrunk until the cache fits into it.
  */
 final class PoolThreadCache {
 
     private static final InternalLogger logger = InternalLoggerFactory.getInstance(PoolThreadCache.class);
+    private static final int INTEGER_SIZE_MINUS_ONE = Integer.SIZE - 1;
 
     final PoolArena<byte[]> heapArena;
     final PoolArena<ByteBuffer> directArena;
 
-    // Hold the caches for the different size classes, which are tiny, small and normal.
-    private final MemoryRegionCache<byte[]>[] tinySubPageHeapCaches;
+    // Hold the caches for the different size classes, which are small and normal.
     private final MemoryRegionCache<byte[]>[] smallSubPageHeapCaches;
-    private final MemoryRegionCache<ByteBuffer>[] tinySubPageDirectCaches;
     private final MemoryRegionCache<ByteBuffer>[] smallSubPageDirectCaches;
     private final MemoryRegionCache<byte[]>[] normalHeapCaches;
     private final MemoryRegionCache<ByteBuffer>[] normalDirectCaches;
 
-    // Used for bitshifting when calculate the index of normal caches later
-    private final int numShiftsNormalDirect;
-    private final int numShiftsNormalHeap;
+    // All of the caches above, used when adapting the limits of the caches to their hit rates.
+    private final List<MemoryRegionCache<?>> caches;
+
     private final int freeSweepAllocationThreshold;
+    private final long maxCachedBytes;
     private final AtomicBoolean freed = new AtomicBoolean();
 
     private int allocations;
@@ -66,67 +75,78 @@ final class PoolThreadCache {
     //private long pad0, pad1, pad2, pad3, pad4, pad5, pad6, pad7;
 
     PoolThreadCache(PoolArena<byte[]> heapArena, PoolArena<ByteBuffer> directArena,
-                    int tinyCacheSize, int smallCacheSize, int normalCacheSize,
-                    int maxCachedBufferCapacity, int freeSweepAllocationThreshold) {
+                    int smallCacheSize, int normalCacheSize, int maxCachedBufferCapacity,
+                    int freeSweepAllocationThreshold) {
+        this(heapArena, directArena, smallCacheSize, normalCacheSize, maxCachedBufferCapacity,
+                freeSweepAllocationThreshold, 0);
+    }
+
+    PoolThreadCache(PoolArena<byte[]> heapArena, PoolArena<ByteBuffer> directArena,
+                    int smallCacheSize, int normalCacheSize, int maxCachedBufferCapacity,
+                    int freeSweepAllocationThreshold, long maxCachedBytes) {
         checkPositiveOrZero(maxCachedBufferCapacity, "maxCachedBufferCapacity");
         this.freeSweepAllocationThreshold = freeSweepAllocationThreshold;
+        this.maxCachedBytes = checkPositiveOrZero(maxCachedBytes, "maxCachedBytes");
         this.heapArena = heapArena;
         this.directArena = directArena;
         if (directArena != null) {
-            tinySubPageDirectCaches = createSubPageCaches(
-                    tinyCacheSize, PoolArena.numTinySubpagePools, SizeClass.Tiny);
-            smallSubPageDirectCaches = createSubPageCaches(
-                    smallCacheSize, directArena.numSmallSubpagePools, SizeClass.Small);
+            smallSubPageDirectCaches = createSubPageCaches(smallCacheSize, directArena);
 
-            numShiftsNormalDirect = log2(directArena.pageSize);
             normalDirectCaches = createNormalCaches(
                     normalCacheSize, maxCachedBufferCapacity, directArena);
 
             directArena.numThreadCaches.getAndIncrement();
         } else {
             // No directArea is configured so just null out all caches
-            tinySubPageDirectCaches = null;
             smallSubPageDirectCaches = null;
             normalDirectCaches = null;
-            numShiftsNormalDirect = -1;
         }
         if (heapArena != null) {
             // Create the caches for the heap allocations
-            tinySubPageHeapCaches = createSubPageCaches(
-                    tinyCacheSize, PoolArena.numTinySubpagePools, SizeClass.Tiny);
-            smallSubPageHeapCaches = createSubPageCaches(
-                    smallCacheSize, heapArena.numSmallSubpagePools, SizeClass.Small);
+            smallSubPageHeapCaches = createSubPageCaches(smallCacheSize, heapArena);
 
-            numShiftsNormalHeap = log2(heapArena.pageSize);
             normalHeapCaches = createNormalCaches(
                     normalCacheSize, maxCachedBufferCapacity, heapArena);
 
             heapArena.numThreadCaches.getAndIncrement();
         } else {
             // No heapArea is configured so just null out all caches
-            tinySubPageHeapCaches = null;
             smallSubPageHeapCaches = null;
             normalHeapCaches = null;
-            numShiftsNormalHeap = -1;
         }
 
         // Only check if there are caches in use.
-        if ((tinySubPageDirectCaches != null || smallSubPageDirectCaches != null || normalDirectCaches != null
-                || tinySubPageHeapCaches != null || smallSubPageHeapCaches != null || normalHeapCaches != null)
+        if ((smallSubPageDirectCaches != null || normalDirectCaches != null
+                || smallSubPageHeapCaches != null || normalHeapCaches != null)
                 && freeSweepAllocationThreshold < 1) {
             throw new IllegalArgumentException("freeSweepAllocationThreshold: "
                     + freeSweepAllocationThreshold + " (expected: > 0)");
         }
+
+        List<MemoryRegionCache<?>> caches = new ArrayList<>();
+        addAll(caches, smallSubPageDirectCaches);
+        addAll(caches, normalDirectCaches);
+        addAll(caches, smallSubPageHeapCaches);
+        addAll(caches, normalHeapCaches);
+        this.caches = caches;
+
+        if (maxCachedBytes > 0) {
+            shrinkToBudget();
+        }
+    }
+
+    private static void addAll(List<MemoryRegionCache<?>> list, MemoryRegionCache<?>[] caches) {
+        if (caches != null) {
+            Collections.addAll(list, caches);
+        }
     }
 
-    private static <T> MemoryRegionCache<T>[] createSubPageCaches(
-            int cacheSize, int numCaches, SizeClass sizeClass) {
-        if (cacheSize > 0 && numCaches > 0) {
+    private static <T> MemoryRegionCache<T>[] createSubPageCaches(int cacheSize, PoolArena<T> area) {
+        if (cacheSize > 0 && area.nSubpages > 0) {
             @SuppressWarnings("unchecked")
-            MemoryRegionCache<T>[] cache = new MemoryRegionCache[numCaches];
+            MemoryRegionCache<T>[] cache = new MemoryRegionCache[area.nSubpages];
             for (int i = 0; i < cache.length; i++) {
-                // TODO: maybe use cacheSize / cache.length
-                cache[i] = new SubPageMemoryRegionCache<>(cacheSize, sizeClass);
+                cache[i] = new SubPageMemoryRegionCache<>(cacheSize, area, i);
             }
             return cache;
         } else {
@@ -138,47 +158,37 @@ final class PoolThreadCache {
             int cacheSize, int maxCachedBufferCapacity, PoolArena<T> area) {
         if (cacheSize > 0 && maxCachedBufferCapacity > 0) {
             int max = Math.min(area.chunkSize, maxCachedBufferCapacity);
-            int arraySize = Math.max(1, log2(max / area.pageSize) + 1);
-
-            @SuppressWarnings("unchecked")
-            MemoryRegionCache<T>[] cache = new MemoryRegionCache[arraySize];
-            for (int i = 0; i < cache.length; i++) {
-                cache[i] = new NormalMemoryRegionCache<>(cacheSize);
+            // Create as many normal caches as we support based on how many sizeIdx we have and what the upper
+            // bound is that we want to cache in general.
+            List<MemoryRegionCache<T>> cache = new ArrayList<>();
+            for (int idx = area.nSubpages; idx < area.nSizes && area.sizeIdx2size(idx) <= max; idx++) {
+                cache.add(new NormalMemoryRegionCache<>(cacheSize, area, idx));
             }
-            return cache;
+            @SuppressWarnings("unchecked")
+            MemoryRegionCache<T>[] array = cache.toArray(new MemoryRegionCache[0]);
+            return array;
         } else {
             return null;
         }
     }
 
-    private static int log2(int val) {
-        int res = 0;
-        while (val > 1) {
-            val >>= 1;
-            res++;
-        }
-        return res;
-    }
-
-    /**
-     * Try to allocate a tiny buffer out of the cache. Returns {@code true} if successful {@code false} otherwise
-     */
-    boolean allocateTiny(PoolArena<?> area, PooledByteBuf<?> buf, int reqCapacity, int normCapacity) {
-        return allocate(cacheForTiny(area, normCapacity), buf, reqCapacity);
+    // val > 0
+    static int log2(int val) {
+        return INTEGER_SIZE_MINUS_ONE - Integer.numberOfLeadingZeros(val);
     }
 
     /**
      * Try to allocate a small buffer out of the cache. Returns {@code true} if successful {@code false} otherwise
      */
-    boolean allocateSmall(PoolArena<?> area, PooledByteBuf<?> buf, int reqCapacity, int normCapacity) {
-        return allocate(cacheForSmall(area, normCapacity), buf, reqCapacity);
+    boolean allocateSmall(PoolArena<?> area, PooledByteBuf<?> buf, int reqCapacity, int sizeIdx) {
+        return allocate(cacheForSmall(area, sizeIdx), buf, reqCapacity);
     }
 
     /**
-     * Try to allocate a small buffer out of the cache. Returns {@code true} if successful {@code false} otherwise
+     * Try to allocate a normal buffer out of the cache. Returns {@code true} if successful {@code false} otherwise
      */
-    boolean allocateNormal(PoolArena<?> area, PooledByteBuf<?> buf, int reqCapacity, int normCapacity) {
-        return allocate(cacheForNormal(area, normCapacity), buf, reqCapacity);
+    boolean allocateNormal(PoolArena<?> area, PooledByteBuf<?> buf, int reqCapacity, int sizeIdx) {
+        return allocate(cacheForNormal(area, sizeIdx), buf, reqCapacity);
     }
 
     @SuppressWarnings({ "unchecked", "rawtypes" })
@@ -202,21 +212,20 @@ final class PoolThreadCache {
     @SuppressWarnings({ "unchecked", "rawtypes" })
     boolean add(PoolArena<?> area, PoolChunk chunk, ByteBuffer nioBuffer,
                 long handle, int normCapacity, SizeClass sizeClass) {
-        MemoryRegionCache<?> cache = cache(area, normCapacity, sizeClass);
+        int sizeIdx = area.size2SizeIdx(normCapacity);
+        MemoryRegionCache<?> cache = cache(area, sizeIdx, sizeClass);
         if (cache == null) {
             return false;
         }
-        return cache.add(chunk, nioBuffer, handle);
+        return cache.add(chunk, nioBuffer, handle, normCapacity);
     }
 
-    private MemoryRegionCache<?> cache(PoolArena<?> area, int normCapacity, SizeClass sizeClass) {
+    private MemoryRegionCache<?> cache(PoolArena<?> area, int sizeIdx, SizeClass sizeClass) {
         switch (sizeClass) {
         case Normal:
-            return cacheForNormal(area, normCapacity);
+            return cacheForNormal(area, sizeIdx);
         case Small:
-            return cacheForSmall(area, normCapacity);
-        case Tiny:
-            return cacheForTiny(area, normCapacity);
+            return cacheForSmall(area, sizeIdx);
         default:
             throw new Error();
         }
@@ -239,10 +248,8 @@ final class PoolThreadCache {
         // As free() may be called either by the finalizer or by FastThreadLocal.onRemoval(...) we need to ensure
         // we only call this one time.
         if (freed.compareAndSet(false, true)) {
-            int numFreed = free(tinySubPageDirectCaches, finalizer) +
-                    free(smallSubPageDirectCaches, finalizer) +
+            int numFreed = free(smallSubPageDirectCaches, finalizer) +
                     free(normalDirectCaches, finalizer) +
-                    free(tinySubPageHeapCaches, finalizer) +
                     free(smallSubPageHeapCaches, finalizer) +
                     free(normalHeapCaches, finalizer);
 
@@ -281,52 +288,113 @@ final class PoolThreadCache {
     }
 
     void trim() {
-        trim(tinySubPageDirectCaches);
-        trim(smallSubPageDirectCaches);
-        trim(normalDirectCaches);
-        trim(tinySubPageHeapCaches);
-        trim(smallSubPageHeapCaches);
-        trim(normalHeapCaches);
+        for (MemoryRegionCache<?> c: caches) {
+            c.trim();
+        }
+        growMissingCaches();
+        if (maxCachedBytes > 0) {
+            shrinkToBudget();
+        }
     }
 
-    private static void trim(MemoryRegionCache<?>[] caches) {
-        if (caches == null) {
+    /**
+     * Grow the caches that missed more often than they hit since the last trim, the ones with the most misses first,
+     * as long as the cache stays within {@link #maxCachedBytes}.
+     */
+    private void growMissingCaches() {
+        List<MemoryRegionCache<?>> missing = null;
+        for (MemoryRegionCache<?> c: caches) {
+            if (c.shouldGrow()) {
+                if (missing == null) {
+                    missing = new ArrayList<>();
+                }
+                missing.add(c);
+            }
+        }
+        if (missing == null) {
             return;
         }
-        for (MemoryRegionCache<?> c: caches) {
-            trim(c);
+        Collections.sort(missing, MOST_MISSES_FIRST);
+
+        long cachedBytes = maxCachedBytes > 0 ? cachedBytes() : 0;
+        for (MemoryRegionCache<?> c: missing) {
+            if (maxCachedBytes > 0) {
+                long grownBytes = c.cachedBytes();
+                if (cachedBytes + grownBytes > maxCachedBytes) {
+                    continue;
+                }
+                cachedBytes += grownBytes;
+            }
+            c.grow();
         }
     }
 
-    private static void trim(MemoryRegionCache<?> cache) {
-        if (cache == null) {
+    /**
+     * Shrink the caches that hit least often since the last trim, the bigger ones first, until the cache fits into
+     * {@link #maxCachedBytes}.
+     */
+    private void shrinkToBudget() {
+        long cachedBytes = cachedBytes();
+        if (cachedBytes <= maxCachedBytes) {
             return;
         }
-        cache.trim();
+        List<MemoryRegionCache<?>> coldest = new ArrayList<>(caches);
+        Collections.sort(coldest, COLDEST_FIRST);
+        for (MemoryRegionCache<?> c: coldest) {
+            do {
+                long released = c.shrink();
+                if (released == 0) {
+                    break;
+                }
+                cachedBytes -= released;
+            } while (cachedBytes > maxCachedBytes);
+
+            if (cachedBytes <= maxCachedBytes) {
+                return;
+            }
+        }
     }
 
-    private MemoryRegionCache<?> cacheForTiny(PoolArena<?> area, int normCapacity) {
-        int idx = PoolArena.tinyIdx(normCapacity);
-        if (area.isDirect()) {
-            return cache(tinySubPageDirectCaches, idx);
+    private long cachedBytes() {
+        long cachedBytes = 0;
+        for (MemoryRegionCache<?> c: caches) {
+            cachedBytes += c.cachedBytes();
         }
-        return cache(tinySubPageHeapCaches, idx);
+        return cachedBytes;
+    }
+
+    private static final Comparator<MemoryRegionCache<?>> MOST_MISSES_FIRST =
+            Comparator.<MemoryRegionCache<?>>comparingInt(c -> c.lastMisses).reversed();
+
+    // Among caches with the same number of hits the ones with the biggest elements are shrunk first.
+    private static final Comparator<MemoryRegionCache<?>> COLDEST_FIRST =
+            Comparator.<MemoryRegionCache<?>>comparingInt(c -> c.lastHits)
+                    .thenComparing(Comparator.<MemoryRegionCache<?>>comparingInt(c -> c.elemSize).reversed());
+
+    /**
+     * Returns the number of entries the cache for the given size index currently may hold or {@code -1} if the
+     * size index is not cached.
+     */
+    // Visible for testing
+    int cacheLimit(PoolArena<?> area, int sizeIdx) {
+        MemoryRegionCache<?> cache = sizeIdx < area.nSubpages ?
+                cacheForSmall(area, sizeIdx) : cacheForNormal(area, sizeIdx);
+        return cache == null ? -1 : cache.limit;
     }
 
-    private MemoryRegionCache<?> cacheForSmall(PoolArena<?> area, int normCapacity) {
-        int idx = PoolArena.smallIdx(normCapacity);
+    private MemoryRegionCache<?> cacheForSmall(PoolArena<?> area, int sizeIdx) {
         if (area.isDirect()) {
-            return cache(smallSubPageDirectCaches, idx);
+            return cache(smallSubPageDirectCaches, sizeIdx);
         }
-        return cache(smallSubPageHeapCaches, idx);
+        return cache(smallSubPageHeapCaches, sizeIdx);
     }
 
-    private MemoryRegionCache<?> cacheForNormal(PoolArena<?> area, int normCapacity) {
+    private MemoryRegionCache<?> cacheForNormal(PoolArena<?> area, int sizeIdx) {
+        // We need to subtract area.nSubpages as sizeIdx is the overall index for all sizes.
+        int idx = sizeIdx - area.nSubpages;
         if (area.isDirect()) {
-            int idx = log2(normCapacity >> numShiftsNormalDirect);
             return cache(normalDirectCaches, idx);
         }
-        int idx = log2(normCapacity >> numShiftsNormalHeap);
         return cache(normalHeapCaches, idx);
     }
 
@@ -338,11 +406,11 @@ final class PoolThreadCache {
     }
 
     /**
-     * Cache used for buffers which are backed by TINY or SMALL size.
+     * Cache used for buffers which are backed by SMALL size.
      */
     private static final class SubPageMemoryRegionCache<T> extends MemoryRegionCache<T> {
-        SubPageMemoryRegionCache(int size, SizeClass sizeClass) {
-            super(size, sizeClass);
+        SubPageMemoryRegionCache(int size, PoolArena<T> area, int sizeIdx) {
+            super(size, SizeClass.Small, area, sizeIdx);
         }
 
         @Override
@@ -356,8 +424,8 @@ final class PoolThreadCache {
      * Cache used for buffers which are backed by NORMAL size.
      */
     private static final class NormalMemoryRegionCache<T> extends MemoryRegionCache<T> {
-        NormalMemoryRegionCache(int size) {
-            super(size, SizeClass.Normal);
+        NormalMemoryRegionCache(int size, PoolArena<T> area, int sizeIdx) {
+            super(size, SizeClass.Normal, area, sizeIdx);
         }
 
         @Override
@@ -371,12 +439,30 @@ final class PoolThreadCache {
         private final int size;
         private final Queue<Entry<T>> queue;
         private final SizeClass sizeClass;
+        private final PoolArena<T> area;
+        private final int sizeIdx;
+        private final int elemSize;
+
+        // The number of entries this cache may hold, between 1 and size. This is only changed by the owning thread
+        // but also read by other threads in add(...), which is fine as a stale value only delays the adaption.
+        private int limit;
+
+        // Hits and misses since the last trim, only changed by the owning thread.
         private int allocations;
+        private int misses;
 
-        MemoryRegionCache(int size, SizeClass sizeClass) {
+        // Hits and misses between the last two trims.
+        private int lastHits;
+        private int lastMisses;
+
+        MemoryRegionCache(int size, SizeClass sizeClass, PoolArena<T> area, int sizeIdx) {
             this.size = MathUtil.safeFindNextPositivePowerOfTwo(size);
             queue = PlatformDependent.newFixedMpscQueue(this.size);
             this.sizeClass = sizeClass;
+            this.area = area;
+            this.sizeIdx = sizeIdx;
+            elemSize = area.sizeIdx2size(sizeIdx);
+            limit = this.size;
         }
 
         /**
@@ -389,8 +475,11 @@ final class PoolThreadCache {
          * Add to cache if not already full.
          */
         @SuppressWarnings("unchecked")
-        public final boolean add(PoolChunk<T> chunk, ByteBuffer nioBuffer, long handle) {
-            Entry<T> entry = newEntry(chunk, nioBuffer, handle);
+        public final boolean add(PoolChunk<T> chunk, ByteBuffer nioBuffer, long handle, int normCapacity) {
+            if (limit < size && queue.size() >= limit) {
+                return false;
+            }
+            Entry<T> entry = newEntry(chunk, nioBuffer, handle, normCapacity);
             boolean queued = queue.offer(entry);
             if (!queued) {
                 // If it was not possible to cache the chunk, immediately recycle the entry
@@ -406,6 +495,7 @@ final class PoolThreadCache {
         public final boolean allocate(PooledByteBuf<T> buf, int reqCapacity) {
             Entry<T> entry = queue.poll();
             if (entry == null) {
+                ++ misses;
                 return false;
             }
             initBuf(entry.chunk, entry.nioBuffer, entry.handle, buf, reqCapacity);
@@ -420,6 +510,7 @@ final class PoolThreadCache {
          * Clear out this cache and free up all previous cached {@link PoolChunk}s and {@code handle}s.
          */
         public final int free(boolean finalizer) {
+            flushStats();
             return free(Integer.MAX_VALUE, finalizer);
         }
 
@@ -438,16 +529,72 @@ final class PoolThreadCache {
         }
 
         /**
-         * Free up cached {@link PoolChunk}s if not allocated frequently enough.
+         * Free up cached {@link PoolChunk}s if not allocated frequently enough and shrink the cache if it was not
+         * used at all since the last trim.
          */
         public final void trim() {
-            int free = size - allocations;
-            allocations = 0;
+            lastHits = allocations;
+            lastMisses = misses;
+            flushStats();
+            if (lastHits == 0 && lastMisses == 0) {
+                limit = Math.max(1, limit >>> 1);
+            }
 
+            int free = limit - lastHits;
             // We not even allocated all the number that are
             if (free > 0) {
                 free(free, false);
             }
+            freeAboveLimit();
+        }
+
+        private void flushStats() {
+            if (allocations != 0 || misses != 0) {
+                area.addThreadCacheStats(sizeIdx, allocations, misses);
+                allocations = 0;
+                misses = 0;
+            }
+        }
+
+        private void freeAboveLimit() {
+            int excess = queue.size() - limit;
+            if (excess > 0) {
+                free(excess, false);
+            }
+        }
+
+        /**
+         * Returns {@code true} if this cache missed more often than it hit between the last two trims and so should
+         * hold more entries.
+         */
+        final boolean shouldGrow() {
+            return lastMisses > lastHits && limit < size;
+        }
+
+        /**
+         * Doubles the number of entries this cache may hold.
+         */
+        final void grow() {
+            limit = Math.min(size, limit << 1);
+        }
+
+        /**
+         * Halves the number of entries this cache may hold and returns the number of bytes this released from the
+         * budget.
+         */
+        final long shrink() {
+            int newLimit = Math.max(1, limit >>> 1);
+            long released = (long) (limit - newLimit) * elemSize;
+            limit = newLimit;
+            freeAboveLimit();
+            return released;
+        }
+
+        /**
+         * Returns the number of bytes this cache may hold at most with its current limit.
+         */
+        final long cachedBytes() {
+            return (long) limit * elemSize;
         }
 
         @SuppressWarnings({ "unchecked", "rawtypes" })
@@ -455,6 +602,7 @@ final class PoolThreadCache {
             PoolChunk chunk = entry.chunk;
             long handle = entry.handle;
             ByteBuffer nioBuffer = entry.nioBuffer;
+            int normCapacity = entry.normCapacity;
 
             if (!finalizer) {
                 // recycle now so PoolChunk can be GC'ed. This will only be done if this is not freed because of
@@ -462,7 +610,7 @@ final class PoolThreadCache {
                 entry.recycle();
             }
 
-            chunk.arena.freeChunk(chunk, handle, sizeClass, nioBuffer, finalizer);
+            chunk.arena.freeChunk(chunk, handle, normCapacity, sizeClass, nioBuffer, finalizer);
         }
 
         static final class Entry<T> {
@@ -470,6 +618,7 @@ final class PoolThreadCache {
             PoolChunk<T> chunk;
             ByteBuffer nioBuffer;
             long handle = -1;
+            int normCapacity;
 
             Entry(Handle<Entry<?>> recyclerHandle) {
                 this.recyclerHandle = recyclerHandle;
@@ -479,16 +628,18 @@ final class PoolThreadCache {
                 chunk = null;
                 nioBuffer = null;
                 handle = -1;
+                normCapacity = 0;
                 recyclerHandle.recycle(this);
             }
         }
 
         @SuppressWarnings("rawtypes")
-        private static Entry newEntry(PoolChunk<?> chunk, ByteBuffer nioBuffer, long handle) {
+        private static Entry newEntry(PoolChunk<?> chunk, ByteBuffer nioBuffer, long handle, int normCapacity) {
             Entry entry = RECYCLER.get();
             entry.chunk = chunk;
             entry.nioBuffer = nioBuffer;
             entry.handle = handle;
+            entry.normCapacity = normCapacity;
             return entry;
         }
 
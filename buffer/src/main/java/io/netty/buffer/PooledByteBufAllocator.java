@@ -19,21 +19,28 @@ package io.netty.buffer;
 import static io.netty.util.internal.ObjectUtil.checkPositiveOrZero;
 
 import io.netty.util.NettyRuntime;
+import io.netty.util.concurrent.DefaultThreadFactory;
 import io.netty.util.concurrent.EventExecutor;
 import io.netty.util.concurrent.FastThreadLocal;
 import io.netty.util.concurrent.FastThreadLocalThread;
+import io.netty.util.concurrent.ThreadPlacement;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.StringUtil;
 import io.netty.util.internal.SystemPropertyUtil;
 import io.netty.util.internal.ThreadExecutorMap;
+import io.netty.util.internal.UnstableApi;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 
+import java.lang.ref.WeakReference;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 public class PooledByteBufAllocator extends AbstractByteBufAllocator implements ByteBufAllocatorMetricProvider {
 
@@ -43,15 +50,17 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
 
     private static final int DEFAULT_PAGE_SIZE;
     private static final int DEFAULT_MAX_ORDER; // 8192 << 11 = 16 MiB per chunk
-    private static final int DEFAULT_TINY_CACHE_SIZE;
     private static final int DEFAULT_SMALL_CACHE_SIZE;
     private static final int DEFAULT_NORMAL_CACHE_SIZE;
     private static final int DEFAULT_MAX_CACHED_BUFFER_CAPACITY;
+    private static final long DEFAULT_MAX_CACHED_BYTES_PER_THREAD;
     private static final int DEFAULT_CACHE_TRIM_INTERVAL;
     private static final long DEFAULT_CACHE_TRIM_INTERVAL_MILLIS;
+    private static final long DEFAULT_CHUNK_TRIM_INTERVAL_MILLIS;
     private static final boolean DEFAULT_USE_CACHE_FOR_ALL_THREADS;
     private static final int DEFAULT_DIRECT_MEMORY_CACHE_ALIGNMENT;
     static final int DEFAULT_MAX_CACHED_BYTEBUFFERS_PER_CHUNK;
+    private static final int DEFAULT_NUMA_NODES;
 
     private static final int MIN_PAGE_SIZE = 4096;
     private static final int MAX_CHUNK_SIZE = (int) (((long) Integer.MAX_VALUE + 1) / 2);
@@ -106,7 +115,6 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
                                 PlatformDependent.maxDirectMemory() / defaultChunkSize / 2 / 3)));
 
         // cache sizes
-        DEFAULT_TINY_CACHE_SIZE = SystemPropertyUtil.getInt("io.netty.allocator.tinyCacheSize", 512);
         DEFAULT_SMALL_CACHE_SIZE = SystemPropertyUtil.getInt("io.netty.allocator.smallCacheSize", 256);
         DEFAULT_NORMAL_CACHE_SIZE = SystemPropertyUtil.getInt("io.netty.allocator.normalCacheSize", 64);
 
@@ -115,6 +123,10 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
         DEFAULT_MAX_CACHED_BUFFER_CAPACITY = SystemPropertyUtil.getInt(
                 "io.netty.allocator.maxCachedBufferCapacity", 32 * 1024);
 
+        // the budget of bytes each thread cache may hold, 0 means it is only bounded by the configured cache sizes
+        DEFAULT_MAX_CACHED_BYTES_PER_THREAD = Math.max(0, SystemPropertyUtil.getLong(
+                "io.netty.allocator.maxCachedBytesPerThread", 0));
+
         // the number of threshold of allocations when cached entries will be freed up if not frequently used
         DEFAULT_CACHE_TRIM_INTERVAL = SystemPropertyUtil.getInt(
                 "io.netty.allocator.cacheTrimInterval", 8192);
@@ -122,6 +134,10 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
         DEFAULT_CACHE_TRIM_INTERVAL_MILLIS = SystemPropertyUtil.getLong(
                 "io.netty.allocation.cacheTrimIntervalMillis", 0);
 
+        // chunks that were not used for this interval are released so their memory is given back to the system
+        DEFAULT_CHUNK_TRIM_INTERVAL_MILLIS = SystemPropertyUtil.getLong(
+                "io.netty.allocator.chunkTrimIntervalMillis", 0);
+
         DEFAULT_USE_CACHE_FOR_ALL_THREADS = SystemPropertyUtil.getBoolean(
                 "io.netty.allocator.useCacheForAllThreads", false);
 
@@ -133,6 +149,9 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
         DEFAULT_MAX_CACHED_BYTEBUFFERS_PER_CHUNK = SystemPropertyUtil.getInt(
                 "io.netty.allocator.maxCachedByteBuffersPerChunk", 1023);
 
+        // Arenas are not bound to NUMA nodes by default.
+        DEFAULT_NUMA_NODES = Math.max(0, SystemPropertyUtil.getInt("io.netty.allocator.numaNodes", 0));
+
         if (logger.isDebugEnabled()) {
             logger.debug("-Dio.netty.allocator.numHeapArenas: {}", DEFAULT_NUM_HEAP_ARENA);
             logger.debug("-Dio.netty.allocator.numDirectArenas: {}", DEFAULT_NUM_DIRECT_ARENA);
@@ -147,15 +166,17 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
                 logger.debug("-Dio.netty.allocator.maxOrder: {}", DEFAULT_MAX_ORDER, maxOrderFallbackCause);
             }
             logger.debug("-Dio.netty.allocator.chunkSize: {}", DEFAULT_PAGE_SIZE << DEFAULT_MAX_ORDER);
-            logger.debug("-Dio.netty.allocator.tinyCacheSize: {}", DEFAULT_TINY_CACHE_SIZE);
             logger.debug("-Dio.netty.allocator.smallCacheSize: {}", DEFAULT_SMALL_CACHE_SIZE);
             logger.debug("-Dio.netty.allocator.normalCacheSize: {}", DEFAULT_NORMAL_CACHE_SIZE);
             logger.debug("-Dio.netty.allocator.maxCachedBufferCapacity: {}", DEFAULT_MAX_CACHED_BUFFER_CAPACITY);
+            logger.debug("-Dio.netty.allocator.maxCachedBytesPerThread: {}", DEFAULT_MAX_CACHED_BYTES_PER_THREAD);
             logger.debug("-Dio.netty.allocator.cacheTrimInterval: {}", DEFAULT_CACHE_TRIM_INTERVAL);
             logger.debug("-Dio.netty.allocator.cacheTrimIntervalMillis: {}", DEFAULT_CACHE_TRIM_INTERVAL_MILLIS);
+            logger.debug("-Dio.netty.allocator.chunkTrimIntervalMillis: {}", DEFAULT_CHUNK_TRIM_INTERVAL_MILLIS);
             logger.debug("-Dio.netty.allocator.useCacheForAllThreads: {}", DEFAULT_USE_CACHE_FOR_ALL_THREADS);
             logger.debug("-Dio.netty.allocator.maxCachedByteBuffersPerChunk: {}",
                     DEFAULT_MAX_CACHED_BYTEBUFFERS_PER_CHUNK);
+            logger.debug("-Dio.netty.allocator.numaNodes: {}", DEFAULT_NUMA_NODES);
         }
     }
 
@@ -164,13 +185,15 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
 
     private final PoolArena<byte[]>[] heapArenas;
     private final PoolArena<ByteBuffer>[] directArenas;
-    private final int tinyCacheSize;
     private final int smallCacheSize;
     private final int normalCacheSize;
     private final List<PoolArenaMetric> heapArenaMetrics;
     private final List<PoolArenaMetric> directArenaMetrics;
     private final PoolThreadLocalCache threadCache;
     private final int chunkSize;
+    private final int numaNodes;
+    // The NUMA node each group of arenas is bound to or ThreadPlacement.UNKNOWN if not bound yet.
+    private final AtomicIntegerArray numaNodeIds;
     private final PooledByteBufAllocatorMetric metric;
 
     public PooledByteBufAllocator() {
@@ -189,46 +212,129 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
 
     /**
      * @deprecated use
-     * {@link PooledByteBufAllocator#PooledByteBufAllocator(boolean, int, int, int, int, int, int, int, boolean)}
+     * {@link PooledByteBufAllocator#PooledByteBufAllocator(boolean, int, int, int, int, int, int, boolean)}
      */
     @Deprecated
     public PooledByteBufAllocator(boolean preferDirect, int nHeapArena, int nDirectArena, int pageSize, int maxOrder) {
         this(preferDirect, nHeapArena, nDirectArena, pageSize, maxOrder,
-                DEFAULT_TINY_CACHE_SIZE, DEFAULT_SMALL_CACHE_SIZE, DEFAULT_NORMAL_CACHE_SIZE);
+                DEFAULT_SMALL_CACHE_SIZE, DEFAULT_NORMAL_CACHE_SIZE,
+                DEFAULT_USE_CACHE_FOR_ALL_THREADS, DEFAULT_DIRECT_MEMORY_CACHE_ALIGNMENT);
     }
 
     /**
      * @deprecated use
-     * {@link PooledByteBufAllocator#PooledByteBufAllocator(boolean, int, int, int, int, int, int, int, boolean)}
+     * {@link PooledByteBufAllocator#PooledByteBufAllocator(boolean, int, int, int, int, int, int, boolean)}
      */
     @Deprecated
     public PooledByteBufAllocator(boolean preferDirect, int nHeapArena, int nDirectArena, int pageSize, int maxOrder,
                                   int tinyCacheSize, int smallCacheSize, int normalCacheSize) {
-        this(preferDirect, nHeapArena, nDirectArena, pageSize, maxOrder, tinyCacheSize, smallCacheSize,
+        this(preferDirect, nHeapArena, nDirectArena, pageSize, maxOrder, smallCacheSize,
                 normalCacheSize, DEFAULT_USE_CACHE_FOR_ALL_THREADS, DEFAULT_DIRECT_MEMORY_CACHE_ALIGNMENT);
     }
 
+    /**
+     * @deprecated use
+     * {@link PooledByteBufAllocator#PooledByteBufAllocator(boolean, int, int, int, int, int, int, boolean)}
+     */
+    @Deprecated
     public PooledByteBufAllocator(boolean preferDirect, int nHeapArena,
                                   int nDirectArena, int pageSize, int maxOrder, int tinyCacheSize,
                                   int smallCacheSize, int normalCacheSize,
                                   boolean useCacheForAllThreads) {
         this(preferDirect, nHeapArena, nDirectArena, pageSize, maxOrder,
-                tinyCacheSize, smallCacheSize, normalCacheSize,
+                smallCacheSize, normalCacheSize, useCacheForAllThreads);
+    }
+
+    public PooledByteBufAllocator(boolean preferDirect, int nHeapArena,
+                                  int nDirectArena, int pageSize, int maxOrder,
+                                  int smallCacheSize, int normalCacheSize,
+                                  boolean useCacheForAllThreads) {
+        this(preferDirect, nHeapArena, nDirectArena, pageSize, maxOrder,
+                smallCacheSize, normalCacheSize,
                 useCacheForAllThreads, DEFAULT_DIRECT_MEMORY_CACHE_ALIGNMENT);
     }
 
+    /**
+     * @deprecated use
+     * {@link PooledByteBufAllocator#PooledByteBufAllocator(boolean, int, int, int, int, int, int, boolean, int)}
+     */
+    @Deprecated
     public PooledByteBufAllocator(boolean preferDirect, int nHeapArena, int nDirectArena, int pageSize, int maxOrder,
                                   int tinyCacheSize, int smallCacheSize, int normalCacheSize,
                                   boolean useCacheForAllThreads, int directMemoryCacheAlignment) {
+        this(preferDirect, nHeapArena, nDirectArena, pageSize, maxOrder,
+                smallCacheSize, normalCacheSize,
+                useCacheForAllThreads, directMemoryCacheAlignment);
+    }
+
+    public PooledByteBufAllocator(boolean preferDirect, int nHeapArena, int nDirectArena, int pageSize, int maxOrder,
+                                  int smallCacheSize, int normalCacheSize,
+                                  boolean useCacheForAllThreads, int directMemoryCacheAlignment) {
+        this(preferDirect, nHeapArena, nDirectArena, pageSize, maxOrder,
+                smallCacheSize, normalCacheSize,
+                useCacheForAllThreads, directMemoryCacheAlignment, DEFAULT_NUMA_NODES);
+    }
+
+    /**
+     * @deprecated use
+     * {@link PooledByteBufAllocator#PooledByteBufAllocator(boolean, int, int, int, int, int, int, boolean, int, int)}
+     */
+    @Deprecated
+    public PooledByteBufAllocator(boolean preferDirect, int nHeapArena, int nDirectArena, int pageSize, int maxOrder,
+                                  int tinyCacheSize, int smallCacheSize, int normalCacheSize,
+                                  boolean useCacheForAllThreads, int directMemoryCacheAlignment, int numaNodes) {
+        this(preferDirect, nHeapArena, nDirectArena, pageSize, maxOrder,
+                smallCacheSize, normalCacheSize,
+                useCacheForAllThreads, directMemoryCacheAlignment, numaNodes);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param numaNodes the number of NUMA nodes the arenas are distributed over or {@code 0} to not take NUMA nodes
+     *                  into account. Arena {@code i} belongs to group {@code i % numaNodes}. Each group is bound to
+     *                  the NUMA node, as reported by {@link ThreadPlacement}, of the first {@link Thread} with a known
+     *                  NUMA node that allocates from it. Such {@link Thread}s then use an arena of their node.
+     */
+    public PooledByteBufAllocator(boolean preferDirect, int nHeapArena, int nDirectArena, int pageSize, int maxOrder,
+                                  int smallCacheSize, int normalCacheSize,
+                                  boolean useCacheForAllThreads, int directMemoryCacheAlignment, int numaNodes) {
+        this(preferDirect, nHeapArena, nDirectArena, pageSize, maxOrder,
+                smallCacheSize, normalCacheSize,
+                useCacheForAllThreads, directMemoryCacheAlignment, numaNodes, null);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param numaNodes the number of NUMA nodes the arenas are distributed over or {@code 0} to not take NUMA nodes
+     *                  into account. Arena {@code i} belongs to group {@code i % numaNodes}. Each group is bound to
+     *                  the NUMA node, as reported by {@link ThreadPlacement}, of the first {@link Thread} with a known
+     *                  NUMA node that allocates from it. Such {@link Thread}s then use an arena of their node.
+     * @param hugePageAllocator the {@link HugePageAllocator} the chunks of the direct arenas are allocated from or
+     *                          {@code null} to allocate them like any other direct memory. The chunk size must be a
+     *                          multiple of its huge page size. Chunks are allocated like any other direct memory if
+     *                          it fails to allocate a chunk or if direct buffers can not be created for arbitrary
+     *                          memory addresses on this platform.
+     */
+    @UnstableApi
+    public PooledByteBufAllocator(boolean preferDirect, int nHeapArena, int nDirectArena, int pageSize, int maxOrder,
+                                  int smallCacheSize, int normalCacheSize,
+                                  boolean useCacheForAllThreads, int directMemoryCacheAlignment, int numaNodes,
+                                  HugePageAllocator hugePageAllocator) {
         super(preferDirect);
         threadCache = new PoolThreadLocalCache(useCacheForAllThreads);
-        this.tinyCacheSize = tinyCacheSize;
         this.smallCacheSize = smallCacheSize;
         this.normalCacheSize = normalCacheSize;
         chunkSize = validateAndCalculateChunkSize(pageSize, maxOrder);
 
         checkPositiveOrZero(nHeapArena, "nHeapArena");
         checkPositiveOrZero(nDirectArena, "nDirectArena");
+        this.numaNodes = checkPositiveOrZero(numaNodes, "numaNodes");
+        numaNodeIds = new AtomicIntegerArray(numaNodes);
+        for (int i = 0; i < numaNodes; i++) {
+            numaNodeIds.set(i, ThreadPlacement.UNKNOWN);
+        }
 
         checkPositiveOrZero(directMemoryCacheAlignment, "directMemoryCacheAlignment");
         if (directMemoryCacheAlignment > 0 && !isDirectMemoryCacheAlignmentSupported()) {
@@ -242,13 +348,27 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
 
         int pageShifts = validateAndCalculatePageShifts(pageSize);
 
+        if (hugePageAllocator != null) {
+            int hugePageSize = hugePageAllocator.hugePageSize();
+            if (hugePageSize <= 0 || chunkSize % hugePageSize != 0 || hugePageSize < directMemoryCacheAlignment) {
+                throw new IllegalArgumentException("hugePageSize: " + hugePageSize +
+                        " (expected: chunkSize (" + chunkSize + ") must be a multiple of it and it must not be " +
+                        "smaller than directMemoryCacheAlignment (" + directMemoryCacheAlignment + "))");
+            }
+            if (!PlatformDependent.hasDirectBufferNoCleanerConstructor()) {
+                logger.debug("Direct buffers can not be created for arbitrary memory addresses, " +
+                        "not using huge pages for direct chunks");
+                hugePageAllocator = null;
+            }
+        }
+
         if (nHeapArena > 0) {
             heapArenas = newArenaArray(nHeapArena);
             List<PoolArenaMetric> metrics = new ArrayList<>(heapArenas.length);
             for (int i = 0; i < heapArenas.length; i ++) {
                 PoolArena.HeapArena arena = new PoolArena.HeapArena(this,
-                        pageSize, maxOrder, pageShifts, chunkSize,
-                        directMemoryCacheAlignment);
+                        pageSize, pageShifts, chunkSize,
+                        directMemoryCacheAlignment, ThreadPlacement.UNKNOWN);
                 heapArenas[i] = arena;
                 metrics.add(arena);
             }
@@ -262,8 +382,8 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
             directArenas = newArenaArray(nDirectArena);
             List<PoolArenaMetric> metrics = new ArrayList<>(directArenas.length);
             for (int i = 0; i < directArenas.length; i ++) {
-                PoolArena.DirectArena arena = new PoolArena.DirectArena(
-                        this, pageSize, maxOrder, pageShifts, chunkSize, directMemoryCacheAlignment);
+                PoolArena.DirectArena arena = new PoolArena.DirectArena(this, pageSize, pageShifts, chunkSize,
+                        directMemoryCacheAlignment, ThreadPlacement.UNKNOWN, hugePageAllocator);
                 directArenas[i] = arena;
                 metrics.add(arena);
             }
@@ -273,6 +393,40 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
             directArenaMetrics = Collections.emptyList();
         }
         metric = new PooledByteBufAllocatorMetric(this);
+
+        if (DEFAULT_CHUNK_TRIM_INTERVAL_MILLIS > 0) {
+            ChunkTrimTask.schedule(this, DEFAULT_CHUNK_TRIM_INTERVAL_MILLIS);
+        }
+    }
+
+    /**
+     * Returns the group of arenas that is bound to the given NUMA node or {@code -1} if all groups are bound to other
+     * NUMA nodes already. The first unbound group is bound to the NUMA node if none is bound to it yet.
+     */
+    private int numaGroup(int numaNode) {
+        for (int i = 0; i < numaNodes; i++) {
+            int id = numaNodeIds.get(i);
+            if (id == ThreadPlacement.UNKNOWN) {
+                if (numaNodeIds.compareAndSet(i, ThreadPlacement.UNKNOWN, numaNode)) {
+                    bindArenas(heapArenas, i, numaNode);
+                    bindArenas(directArenas, i, numaNode);
+                    return i;
+                }
+                id = numaNodeIds.get(i);
+            }
+            if (id == numaNode) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void bindArenas(PoolArena<?>[] arenas, int group, int numaNode) {
+        if (arenas != null) {
+            for (int i = group; i < arenas.length; i += numaNodes) {
+                arenas[i].numaNode = numaNode;
+            }
+        }
     }
 
     @SuppressWarnings("unchecked")
@@ -372,6 +526,13 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
         return DEFAULT_MAX_ORDER;
     }
 
+    /**
+     * Default number of NUMA nodes - System Property: io.netty.allocator.numaNodes - default 0
+     */
+    public static int defaultNumaNodes() {
+        return DEFAULT_NUMA_NODES;
+    }
+
     /**
      * Default thread caching behavior - System Property: io.netty.allocator.useCacheForAllThreads - default true
      */
@@ -387,10 +548,13 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
     }
 
     /**
-     * Default tiny cache size - System Property: io.netty.allocator.tinyCacheSize - default 512
+     * Default tiny cache size - default 0
+     *
+     * @deprecated Tiny caches have been merged into small caches.
      */
+    @Deprecated
     public static int defaultTinyCacheSize() {
-        return DEFAULT_TINY_CACHE_SIZE;
+        return 0;
     }
 
     /**
@@ -451,20 +615,25 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
             final Thread current = Thread.currentThread();
             if (useCacheForAllThreads || current instanceof FastThreadLocalThread) {
                 final PoolThreadCache cache = new PoolThreadCache(
-                        heapArena, directArena, tinyCacheSize, smallCacheSize, normalCacheSize,
-                        DEFAULT_MAX_CACHED_BUFFER_CAPACITY, DEFAULT_CACHE_TRIM_INTERVAL);
-
-                if (DEFAULT_CACHE_TRIM_INTERVAL_MILLIS > 0) {
+                        heapArena, directArena, smallCacheSize, normalCacheSize,
+                        DEFAULT_MAX_CACHED_BUFFER_CAPACITY, DEFAULT_CACHE_TRIM_INTERVAL,
+                        DEFAULT_MAX_CACHED_BYTES_PER_THREAD);
+
+                // Cached buffers keep their chunks alive, so if chunks are trimmed the caches must be trimmed by time
+                // as well.
+                final long trimIntervalMillis = DEFAULT_CACHE_TRIM_INTERVAL_MILLIS > 0 ?
+                        DEFAULT_CACHE_TRIM_INTERVAL_MILLIS : DEFAULT_CHUNK_TRIM_INTERVAL_MILLIS;
+                if (trimIntervalMillis > 0) {
                     final EventExecutor executor = ThreadExecutorMap.currentExecutor();
                     if (executor != null) {
-                        executor.scheduleAtFixedRate(trimTask, DEFAULT_CACHE_TRIM_INTERVAL_MILLIS,
-                                DEFAULT_CACHE_TRIM_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                        executor.scheduleAtFixedRate(trimTask, trimIntervalMillis,
+                                trimIntervalMillis, TimeUnit.MILLISECONDS);
                     }
                 }
                 return cache;
             }
             // No caching so just use 0 as sizes.
-            return new PoolThreadCache(heapArena, directArena, 0, 0, 0, 0, 0);
+            return new PoolThreadCache(heapArena, directArena, 0, 0, 0, 0);
         }
 
         @Override
@@ -477,6 +646,17 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
                 return null;
             }
 
+            if (numaNodes > 0) {
+                // Prefer the arenas on the NUMA node of the Thread if it is known.
+                int numaNode = ThreadPlacement.numaNode(Thread.currentThread());
+                if (numaNode != ThreadPlacement.UNKNOWN) {
+                    PoolArena<T> minArena = leastUsedArena(arenas, numaNode);
+                    if (minArena != null) {
+                        return minArena;
+                    }
+                }
+            }
+
             PoolArena<T> minArena = arenas[0];
             for (int i = 1; i < arenas.length; i++) {
                 PoolArena<T> arena = arenas[i];
@@ -487,6 +667,21 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
 
             return minArena;
         }
+
+        private <T> PoolArena<T> leastUsedArena(PoolArena<T>[] arenas, int numaNode) {
+            int group = numaGroup(numaNode);
+            if (group == -1) {
+                return null;
+            }
+            PoolArena<T> minArena = null;
+            for (int i = group; i < arenas.length; i += numaNodes) {
+                PoolArena<T> arena = arenas[i];
+                if (minArena == null || arena.numThreadCaches.get() < minArena.numThreadCaches.get()) {
+                    minArena = arena;
+                }
+            }
+            return minArena;
+        }
     }
 
     @Override
@@ -561,7 +756,7 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
      */
     @Deprecated
     public int tinyCacheSize() {
-        return tinyCacheSize;
+        return 0;
     }
 
     /**
@@ -602,6 +797,74 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
         return usedMemory(directArenas);
     }
 
+    final long trimmedHeapMemory() {
+        return trimmedMemory(heapArenas);
+    }
+
+    final long trimmedDirectMemory() {
+        return trimmedMemory(directArenas);
+    }
+
+    private static long trimmedMemory(PoolArena<?>[] arenas) {
+        if (arenas == null) {
+            return 0;
+        }
+        long trimmed = 0;
+        for (PoolArena<?> arena : arenas) {
+            trimmed += arena.numTrimmedBytes();
+        }
+        return trimmed;
+    }
+
+    final int numaNodes() {
+        return numaNodes;
+    }
+
+    final List<PoolArenaMetric> heapArenas(int numaNode) {
+        return arenas(heapArenas, numaNode);
+    }
+
+    final List<PoolArenaMetric> directArenas(int numaNode) {
+        return arenas(directArenas, numaNode);
+    }
+
+    private static List<PoolArenaMetric> arenas(PoolArena<?>[] arenas, int numaNode) {
+        if (arenas == null) {
+            return Collections.emptyList();
+        }
+        List<PoolArenaMetric> metrics = new ArrayList<>();
+        for (PoolArena<?> arena : arenas) {
+            if (arena.numaNode == numaNode) {
+                metrics.add(arena);
+            }
+        }
+        return Collections.unmodifiableList(metrics);
+    }
+
+    final long usedHeapMemory(int numaNode) {
+        return usedMemory(heapArenas, numaNode);
+    }
+
+    final long usedDirectMemory(int numaNode) {
+        return usedMemory(directArenas, numaNode);
+    }
+
+    private static long usedMemory(PoolArena<?>[] arenas, int numaNode) {
+        if (arenas == null) {
+            return -1;
+        }
+        long used = 0;
+        for (PoolArena<?> arena : arenas) {
+            if (arena.numaNode == numaNode) {
+                used += arena.numActiveBytes();
+                if (used < 0) {
+                    return Long.MAX_VALUE;
+                }
+            }
+        }
+        return used;
+    }
+
     private static long usedMemory(PoolArena<?>[] arenas) {
         if (arenas == null) {
             return -1;
@@ -637,6 +900,72 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
         return false;
     }
 
+    /**
+     * Release all chunks that did not serve any allocation since the previous call of this method, which gives
+     * their memory back to the system. Buffers held by thread local caches keep their chunks alive, so these
+     * should be trimmed as well (see {@link #trimCurrentThreadCache()}).
+     *
+     * This is called periodically if {@code io.netty.allocator.chunkTrimIntervalMillis} is set.
+     *
+     * Returns the number of bytes that were released.
+     */
+    public long trimIdleChunks() {
+        return trimIdleChunks(heapArenas) + trimIdleChunks(directArenas);
+    }
+
+    private static long trimIdleChunks(PoolArena<?>[] arenas) {
+        if (arenas == null) {
+            return 0;
+        }
+        long trimmed = 0;
+        for (PoolArena<?> arena : arenas) {
+            trimmed += arena.trimIdleChunks();
+        }
+        return trimmed;
+    }
+
+    /**
+     * Periodically calls {@link #trimIdleChunks()} from a shared daemon thread until the allocator is collected.
+     */
+    private static final class ChunkTrimTask implements Runnable {
+        private static final ScheduledThreadPoolExecutor EXECUTOR;
+
+        static {
+            EXECUTOR = new ScheduledThreadPoolExecutor(1,
+                    new DefaultThreadFactory("pooledByteBufAllocatorChunkTrimmer", true, Thread.NORM_PRIORITY, null));
+            EXECUTOR.setRemoveOnCancelPolicy(true);
+        }
+
+        private final WeakReference<PooledByteBufAllocator> allocator;
+        private volatile ScheduledFuture<?> future;
+
+        private ChunkTrimTask(PooledByteBufAllocator allocator) {
+            this.allocator = new WeakReference<>(allocator);
+        }
+
+        static void schedule(PooledByteBufAllocator allocator, long intervalMillis) {
+            ChunkTrimTask task = new ChunkTrimTask(allocator);
+            task.future = EXECUTOR.scheduleAtFixedRate(task, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void run() {
+            PooledByteBufAllocator allocator = this.allocator.get();
+            if (allocator == null) {
+                ScheduledFuture<?> future = this.future;
+                if (future != null) {
+                    future.cancel(false);
+                }
+                return;
+            }
+            try {
+                allocator.trimIdleChunks();
+            } catch (Throwable cause) {
+                logger.warn("Failed to trim idle chunks", cause);
+            }
+        }
+    }
+
     /**
      * Returns the status of the allocator (which contains all metrics) as string. Be aware this may be expensive
      * and so should not called too frequently.
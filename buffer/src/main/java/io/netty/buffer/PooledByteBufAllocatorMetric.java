@@ -59,6 +59,45 @@ public final class PooledByteBufAllocatorMetric implements ByteBufAllocatorMetri
         return allocator.directArenas();
     }
 
+    /**
+     * Return the number of NUMA nodes the arenas are distributed over or {@code 0} if the arenas are not bound to
+     * NUMA nodes.
+     */
+    public int numaNodes() {
+        return allocator.numaNodes();
+    }
+
+    /**
+     * Return a {@link List} of the heap {@link PoolArenaMetric}s that belong to the given NUMA node. Arenas are bound
+     * to a NUMA node once the first {@link Thread} of that node allocates from them.
+     */
+    public List<PoolArenaMetric> heapArenas(int numaNode) {
+        return allocator.heapArenas(numaNode);
+    }
+
+    /**
+     * Return a {@link List} of the direct {@link PoolArenaMetric}s that belong to the given NUMA node. Arenas are
+     * bound to a NUMA node once the first {@link Thread} of that node allocates from them.
+     */
+    public List<PoolArenaMetric> directArenas(int numaNode) {
+        return allocator.directArenas(numaNode);
+    }
+
+    /**
+     * Returns the number of bytes of heap memory used by the arenas of the given NUMA node or {@code -1} if unknown.
+     */
+    public long usedHeapMemory(int numaNode) {
+        return allocator.usedHeapMemory(numaNode);
+    }
+
+    /**
+     * Returns the number of bytes of direct memory used by the arenas of the given NUMA node or {@code -1} if
+     * unknown.
+     */
+    public long usedDirectMemory(int numaNode) {
+        return allocator.usedDirectMemory(numaNode);
+    }
+
     /**
      * Return the number of thread local caches used by this {@link PooledByteBufAllocator}.
      */
@@ -68,9 +107,12 @@ public final class PooledByteBufAllocatorMetric implements ByteBufAllocatorMetri
 
     /**
      * Return the size of the tiny cache.
+     *
+     * @deprecated Tiny caches have been merged into small caches.
      */
+    @Deprecated
     public int tinyCacheSize() {
-        return allocator.tinyCacheSize();
+        return 0;
     }
 
     /**
@@ -104,15 +146,35 @@ public final class PooledByteBufAllocatorMetric implements ByteBufAllocatorMetri
         return allocator.usedDirectMemory();
     }
 
+    /**
+     * Returns the number of bytes of heap memory that were given back to the system by trimming idle chunks.
+     *
+     * @see PooledByteBufAllocator#trimIdleChunks()
+     */
+    public long trimmedHeapMemory() {
+        return allocator.trimmedHeapMemory();
+    }
+
+    /**
+     * Returns the number of bytes of direct memory that were given back to the system by trimming idle chunks.
+     *
+     * @see PooledByteBufAllocator#trimIdleChunks()
+     */
+    public long trimmedDirectMemory() {
+        return allocator.trimmedDirectMemory();
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder(256);
         sb.append(StringUtil.simpleClassName(this))
                 .append("(usedHeapMemory: ").append(usedHeapMemory())
                 .append("; usedDirectMemory: ").append(usedDirectMemory())
+                .append("; trimmedHeapMemory: ").append(trimmedHeapMemory())
+                .append("; trimmedDirectMemory: ").append(trimmedDirectMemory())
                 .append("; numHeapArenas: ").append(numHeapArenas())
                 .append("; numDirectArenas: ").append(numDirectArenas())
-                .append("; tinyCacheSize: ").append(tinyCacheSize())
+                .append("; numaNodes: ").append(numaNodes())
                 .append("; smallCacheSize: ").append(smallCacheSize())
                 .append("; normalCacheSize: ").append(normalCacheSize())
                 .append("; numThreadLocalCaches: ").append(numThreadLocalCaches())
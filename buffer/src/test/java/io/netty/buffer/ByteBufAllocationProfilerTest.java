@@ -0,0 +1,154 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+import io.netty.buffer.ByteBufAllocationProfiler.AllocationSite;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ByteBufAllocationProfilerTest {
+
+    @Test
+    public void testNoProfilerByDefault() {
+        UnpooledByteBufAllocator allocator = new UnpooledByteBufAllocator(false);
+        assertEquals(null, allocator.allocationProfiler());
+        ByteBuf buf = allocator.heapBuffer(8);
+        assertFalse(buf instanceof SimpleLeakAwareByteBuf);
+        assertTrue(buf.release());
+    }
+
+    @Test
+    public void testSamplesCallSiteAndLifetime() {
+        ByteBufAllocationProfiler profiler = new ByteBufAllocationProfiler(1);
+        UnpooledByteBufAllocator allocator = new UnpooledByteBufAllocator(false);
+        allocator.setAllocationProfiler(profiler);
+        assertSame(profiler, allocator.allocationProfiler());
+
+        ByteBuf[] buffers = new ByteBuf[2];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = allocateHeap(allocator);
+        }
+
+        List<AllocationSite> sites = profiler.sites();
+        assertEquals(1, sites.size());
+        AllocationSite site = sites.get(0);
+        assertEquals(100, site.sizeClass());
+        assertEquals(2, site.sampledAllocations());
+        assertEquals(2, site.estimatedAllocations());
+        assertEquals(200, site.sampledBytes());
+        assertEquals(2, site.liveSamples());
+        StackTraceElement top = site.stackTrace()[0];
+        assertEquals(ByteBufAllocationProfilerTest.class.getName(), top.getClassName());
+        assertEquals("allocateHeap", top.getMethodName());
+
+        for (ByteBuf buf: buffers) {
+            assertTrue(buf.release());
+        }
+        site = profiler.sites().get(0);
+        assertEquals(2, site.sampledReleases());
+        assertEquals(0, site.liveSamples());
+        assertEquals(2, sum(site.lifetimeHistogram()));
+        assertTrue(profiler.dump().contains("allocateHeap"));
+
+        // A different call site is recorded separately.
+        assertTrue(allocator.heapBuffer(100).release());
+        assertEquals(2, profiler.sites().size());
+
+        profiler.reset();
+        assertTrue(profiler.sites().isEmpty());
+        allocator.setAllocationProfiler(null);
+        assertTrue(allocator.heapBuffer(100).release());
+        assertTrue(profiler.sites().isEmpty());
+    }
+
+    @Test
+    public void testPooledSizeClass() {
+        ByteBufAllocationProfiler profiler = new ByteBufAllocationProfiler(1);
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 0, 1, 8192, 11, 0, 0, false);
+        allocator.setAllocationProfiler(profiler);
+
+        ByteBuf buf = allocator.directBuffer(1000);
+        assertEquals(1024, profiler.sites().get(0).sizeClass());
+        assertTrue(buf.release());
+        assertEquals(1, profiler.sites().get(0).sampledReleases());
+    }
+
+    @Test
+    public void testReleasedWithLastReference() {
+        ByteBufAllocationProfiler profiler = new ByteBufAllocationProfiler(1);
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 0, 1, 8192, 11, 0, 0, false);
+        allocator.setAllocationProfiler(profiler);
+
+        ByteBuf buf = allocator.directBuffer(64);
+        buf.writeLong(1);
+        ByteBuf slice = buf.retainedSlice();
+        assertFalse(buf.release());
+        assertEquals(0, profiler.sites().get(0).sampledReleases());
+        assertTrue(slice.release());
+        assertEquals(1, profiler.sites().get(0).sampledReleases());
+    }
+
+    @Test
+    public void testSampling() {
+        ByteBufAllocationProfiler profiler = new ByteBufAllocationProfiler(1 << 30);
+        UnpooledByteBufAllocator allocator = new UnpooledByteBufAllocator(false);
+        allocator.setAllocationProfiler(profiler);
+        ByteBuf buf = allocator.heapBuffer(8);
+        // The chance of sampling this buffer is negligible.
+        assertNotSame(SimpleLeakAwareByteBuf.class, buf.getClass());
+        assertTrue(buf.release());
+    }
+
+    @Test
+    public void testMaxSites() {
+        ByteBufAllocationProfiler profiler = new ByteBufAllocationProfiler(1, 8, 1);
+        UnpooledByteBufAllocator allocator = new UnpooledByteBufAllocator(false);
+        allocator.setAllocationProfiler(profiler);
+        assertTrue(allocator.heapBuffer(8).release());
+        assertTrue(allocator.heapBuffer(16).release());
+        assertEquals(1, profiler.sites().size());
+        assertEquals(1, profiler.droppedSamples());
+    }
+
+    @Test
+    public void testLifetimeBucket() {
+        assertEquals(0, ByteBufAllocationProfiler.lifetimeBucket(999));
+        assertEquals(1, ByteBufAllocationProfiler.lifetimeBucket(1000));
+        assertEquals(2, ByteBufAllocationProfiler.lifetimeBucket(2000));
+        assertEquals(2, ByteBufAllocationProfiler.lifetimeBucket(3999));
+        assertEquals(ByteBufAllocationProfiler.LIFETIME_BUCKETS - 1,
+                ByteBufAllocationProfiler.lifetimeBucket(Long.MAX_VALUE));
+    }
+
+    private static ByteBuf allocateHeap(ByteBufAllocator allocator) {
+        return allocator.heapBuffer(100);
+    }
+
+    private static long sum(long[] values) {
+        long sum = 0;
+        for (long value: values) {
+            sum += value;
+        }
+        return sum;
+    }
+}
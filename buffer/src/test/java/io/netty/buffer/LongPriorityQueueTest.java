@@ -0,0 +1,102 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LongPriorityQueueTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void mustThrowWhenAddingNoValue() {
+        new LongPriorityQueue().offer(LongPriorityQueue.NO_VALUE);
+    }
+
+    @Test
+    public void mustReturnValuesInOrder() {
+        ThreadLocalRandom tlr = ThreadLocalRandom.current();
+        int initialValues = tlr.nextInt(5, 30);
+        List<Long> values = new ArrayList<>();
+        for (int i = 0; i < initialValues; i++) {
+            values.add(tlr.nextLong(0, Long.MAX_VALUE));
+        }
+        LongPriorityQueue pq = new LongPriorityQueue();
+        assertTrue(pq.isEmpty());
+        for (Long value : values) {
+            pq.offer(value);
+        }
+        Collections.sort(values);
+        for (Long value : values) {
+            assertEquals((long) value, pq.peek());
+            assertEquals((long) value, pq.poll());
+        }
+        assertTrue(pq.isEmpty());
+        assertEquals(LongPriorityQueue.NO_VALUE, pq.peek());
+        assertEquals(LongPriorityQueue.NO_VALUE, pq.poll());
+    }
+
+    @Test
+    public void mustRemoveValues() {
+        LongPriorityQueue pq = new LongPriorityQueue();
+        pq.offer(3);
+        pq.offer(1);
+        pq.offer(2);
+        pq.remove(1);
+        pq.remove(42);
+        assertEquals(2, pq.poll());
+        assertEquals(3, pq.poll());
+        assertTrue(pq.isEmpty());
+    }
+
+    @Test
+    public void randomOperationsMustMatchPriorityQueue() {
+        ThreadLocalRandom tlr = ThreadLocalRandom.current();
+        LongPriorityQueue pq = new LongPriorityQueue();
+        PriorityQueue<Long> expected = new PriorityQueue<>();
+        for (int i = 0; i < 10000; i++) {
+            int op = tlr.nextInt(3);
+            if (op == 0 || expected.isEmpty()) {
+                long value = tlr.nextLong(0, 1000);
+                pq.offer(value);
+                expected.offer(value);
+            } else if (op == 1) {
+                assertEquals((long) expected.poll(), pq.poll());
+            } else {
+                long value = expected.iterator().next();
+                expected.remove(value);
+                pq.remove(value);
+            }
+            assertEquals(expected.isEmpty(), pq.isEmpty());
+            if (!expected.isEmpty()) {
+                assertEquals((long) expected.peek(), pq.peek());
+            }
+        }
+        while (!expected.isEmpty()) {
+            assertFalse(pq.isEmpty());
+            assertEquals((long) expected.poll(), pq.poll());
+        }
+        assertTrue(pq.isEmpty());
+    }
+}
@@ -26,23 +26,80 @@ import java.nio.ByteBuffer;
 
 public class PoolArenaTest {
 
+    private static final int PAGE_SIZE = 8192;
+    private static final int PAGE_SHIFTS = 13;
+    // chunkSize = pageSize << maxOrder(11)
+    private static final int CHUNK_SIZE = 16777216;
+
     @Test
-    public void testNormalizeCapacity() throws Exception {
-        PoolArena<ByteBuffer> arena = new PoolArena.DirectArena(null, 0, 0, 9, 999999, 0);
+    public void testNormalizeCapacity() {
+        PoolArena<ByteBuffer> arena = new PoolArena.DirectArena(null, PAGE_SIZE, PAGE_SHIFTS, CHUNK_SIZE, 0);
         int[] reqCapacities = {0, 15, 510, 1024, 1023, 1025};
-        int[] expectedResult = {0, 16, 512, 1024, 1024, 2048};
+        int[] expectedResult = {16, 16, 512, 1024, 1024, 1280};
         for (int i = 0; i < reqCapacities.length; i ++) {
-            Assert.assertEquals(expectedResult[i], arena.normalizeCapacity(reqCapacities[i]));
+            Assert.assertEquals(expectedResult[i], arena.sizeIdx2size(arena.size2SizeIdx(reqCapacities[i])));
+            Assert.assertEquals(expectedResult[i], arena.normalizeSize(reqCapacities[i]));
         }
     }
 
     @Test
-    public void testNormalizeAlignedCapacity() throws Exception {
-        PoolArena<ByteBuffer> arena = new PoolArena.DirectArena(null, 0, 0, 9, 999999, 64);
+    public void testNormalizeAlignedCapacity() {
+        PoolArena<ByteBuffer> arena = new PoolArena.DirectArena(null, PAGE_SIZE, PAGE_SHIFTS, CHUNK_SIZE, 64);
         int[] reqCapacities = {0, 15, 510, 1024, 1023, 1025};
-        int[] expectedResult = {0, 64, 512, 1024, 1024, 2048};
+        int[] expectedResult = {64, 64, 512, 1024, 1024, 1280};
         for (int i = 0; i < reqCapacities.length; i ++) {
-            Assert.assertEquals(expectedResult[i], arena.normalizeCapacity(reqCapacities[i]));
+            Assert.assertEquals(expectedResult[i], arena.sizeIdx2size(arena.size2SizeIdx(reqCapacities[i])));
+            Assert.assertEquals(expectedResult[i], arena.normalizeSize(reqCapacities[i]));
+        }
+    }
+
+    @Test
+    public void testSize2SizeIdx() {
+        PoolArena<ByteBuffer> arena = new PoolArena.DirectArena(null, PAGE_SIZE, PAGE_SHIFTS, CHUNK_SIZE, 0);
+
+        for (int sz = 0; sz <= CHUNK_SIZE; sz++) {
+            int sizeIdx = arena.size2SizeIdx(sz);
+            Assert.assertTrue(sz <= arena.sizeIdx2size(sizeIdx));
+            if (sizeIdx > 0) {
+                Assert.assertTrue(sz > arena.sizeIdx2size(sizeIdx - 1));
+            }
+        }
+        Assert.assertEquals(arena.nSizes, arena.size2SizeIdx(CHUNK_SIZE + 1));
+    }
+
+    @Test
+    public void testPages2PageIdx() {
+        PoolArena<ByteBuffer> arena = new PoolArena.DirectArena(null, PAGE_SIZE, PAGE_SHIFTS, CHUNK_SIZE, 0);
+
+        int maxPages = CHUNK_SIZE >> PAGE_SHIFTS;
+        for (int pages = 1; pages <= maxPages; pages++) {
+            int pageIdxFloor = arena.pages2pageIdxFloor(pages);
+            Assert.assertTrue(pages << PAGE_SHIFTS >= arena.pageIdx2size(pageIdxFloor));
+            if (pageIdxFloor < arena.nPSizes - 1) {
+                Assert.assertTrue(pages << PAGE_SHIFTS < arena.pageIdx2size(pageIdxFloor + 1));
+            }
+
+            int pageIdxCeiling = arena.pages2pageIdx(pages);
+            Assert.assertTrue(pages << PAGE_SHIFTS <= arena.pageIdx2size(pageIdxCeiling));
+            if (pageIdxCeiling > 0) {
+                Assert.assertTrue(pages << PAGE_SHIFTS > arena.pageIdx2size(pageIdxCeiling - 1));
+            }
+        }
+    }
+
+    @Test
+    public void testSizeIdx2size() {
+        PoolArena<ByteBuffer> arena = new PoolArena.DirectArena(null, PAGE_SIZE, PAGE_SHIFTS, CHUNK_SIZE, 0);
+        for (int i = 0; i < arena.nSizes; i++) {
+            Assert.assertEquals(arena.sizeIdx2sizeCompute(i), arena.sizeIdx2size(i));
+        }
+    }
+
+    @Test
+    public void testPageIdx2size() {
+        PoolArena<ByteBuffer> arena = new PoolArena.DirectArena(null, PAGE_SIZE, PAGE_SHIFTS, CHUNK_SIZE, 0);
+        for (int i = 0; i < arena.nPSizes; i++) {
+            Assert.assertEquals(arena.pageIdx2sizeCompute(i), arena.pageIdx2size(i));
         }
     }
 
@@ -57,7 +114,8 @@ public class PoolArenaTest {
                     ? PlatformDependent.allocateDirectNoCleaner(capacity + alignment)
                     : ByteBuffer.allocateDirect(capacity + alignment);
 
-            PoolArena.DirectArena arena = new PoolArena.DirectArena(null, 0, 0, 9, 9, alignment);
+            PoolArena.DirectArena arena = new PoolArena.DirectArena(null, PAGE_SIZE, PAGE_SHIFTS, CHUNK_SIZE,
+                    alignment);
             int offset = arena.offsetCacheLine(bb);
             long address = PlatformDependent.directBufferAddress(bb);
 
@@ -74,18 +132,17 @@ public class PoolArenaTest {
                 1,      // nDirectArena
                 8192,   // pageSize
                 11,     // maxOrder
-                0,      // tinyCacheSize
                 0,      // smallCacheSize
                 0,      // normalCacheSize
                 true    // useCacheForAllThreads
                 );
 
-        // create tiny buffer
+        // create small buffer
         final ByteBuf b1 = allocator.directBuffer(24);
         // create small buffer
         final ByteBuf b2 = allocator.directBuffer(800);
-        // create normal buffer
-        final ByteBuf b3 = allocator.directBuffer(8192 * 2);
+        // create normal buffer, everything below 4 pages is served by the small size classes
+        final ByteBuf b3 = allocator.directBuffer(8192 * 5);
 
         Assert.assertNotNull(b1);
         Assert.assertNotNull(b2);
@@ -103,10 +160,8 @@ public class PoolArenaTest {
         Assert.assertEquals(3, metric.numDeallocations());
         Assert.assertEquals(3, metric.numAllocations());
 
-        Assert.assertEquals(1, metric.numTinyDeallocations());
-        Assert.assertEquals(1, metric.numTinyAllocations());
-        Assert.assertEquals(1, metric.numSmallDeallocations());
-        Assert.assertEquals(1, metric.numSmallAllocations());
+        Assert.assertEquals(2, metric.numSmallDeallocations());
+        Assert.assertEquals(2, metric.numSmallAllocations());
         Assert.assertEquals(1, metric.numNormalDeallocations());
         Assert.assertEquals(1, metric.numNormalAllocations());
     }
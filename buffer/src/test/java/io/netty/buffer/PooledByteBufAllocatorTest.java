@@ -18,13 +18,17 @@ package io.netty.buffer;
 
 import io.netty.util.concurrent.FastThreadLocal;
 import io.netty.util.concurrent.FastThreadLocalThread;
+import io.netty.util.concurrent.ThreadPlacement;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.SystemPropertyUtil;
 import org.junit.Assume;
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
@@ -35,6 +39,7 @@ import java.util.concurrent.locks.LockSupport;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
@@ -121,7 +126,6 @@ public class PooledByteBufAllocatorTest extends AbstractByteBufAllocatorTest<Poo
                 /*nDirectArena=*/ 1,
                 /*pageSize=*/8192,
                 /*maxOrder=*/ 11,
-                /*tinyCacheSize=*/ 0,
                 /*smallCacheSize=*/ 0,
                 /*normalCacheSize=*/ 0,
                 /*useCacheForAllThreads=*/ false);
@@ -218,7 +222,10 @@ public class PooledByteBufAllocatorTest extends AbstractByteBufAllocatorTest<Poo
         ByteBuf buffer = allocator.heapBuffer(1);
         try {
             PoolArenaMetric metric = allocator.metric().heapArenas().get(0);
-            PoolSubpageMetric subpageMetric = metric.tinySubpages().get(0);
+            // Tiny sizes are served by the small size classes.
+            assertTrue(metric.tinySubpages().isEmpty());
+            PoolSubpageMetric subpageMetric = metric.smallSubpages().get(0);
+            assertEquals(16, subpageMetric.elementSize());
             assertEquals(1, subpageMetric.maxNumElements() - subpageMetric.numAvailable());
         } finally {
             buffer.release();
@@ -274,6 +281,222 @@ public class PooledByteBufAllocatorTest extends AbstractByteBufAllocatorTest<Poo
         assertFalse(lists.get(5).iterator().hasNext());
     }
 
+    @Test
+    public void testTrimIdleChunks() {
+        int chunkSize = 16 * 1024 * 1024;
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 1, 0, 8192, 11, 0, 0, false);
+        PoolArenaMetric arena = allocator.metric().heapArenas().get(0);
+
+        ByteBuf buffer = allocator.heapBuffer(64 * 1024);
+        // Chunks that are in use are never trimmed.
+        assertEquals(0, allocator.trimIdleChunks());
+        assertTrue(buffer.release());
+
+        // The chunk stays in qInit but only became free after the previous trim.
+        assertEquals(chunkSize, arena.numActiveBytes());
+        assertEquals(0, allocator.trimIdleChunks());
+        assertEquals(chunkSize, arena.numActiveBytes());
+
+        assertEquals(chunkSize, allocator.trimIdleChunks());
+        assertEquals(0, arena.numActiveBytes());
+        assertFalse(arena.chunkLists().get(0).iterator().hasNext());
+        assertEquals(1, arena.numTrimmedChunks());
+        assertEquals(chunkSize, arena.numTrimmedBytes());
+        assertEquals(chunkSize, allocator.metric().trimmedHeapMemory());
+        assertEquals(0, allocator.metric().trimmedDirectMemory());
+    }
+
+    @Test
+    public void testTrimIdleChunksKeepsReusedChunks() {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 1, 0, 8192, 11, 0, 0, false);
+        PoolArenaMetric arena = allocator.metric().heapArenas().get(0);
+
+        assertTrue(allocator.heapBuffer(64 * 1024).release());
+        assertEquals(0, allocator.trimIdleChunks());
+
+        // Using the chunk again between two trims must keep it alive for another interval.
+        assertTrue(allocator.heapBuffer(64 * 1024).release());
+        assertEquals(0, allocator.trimIdleChunks());
+        assertEquals(allocator.metric().chunkSize(), arena.numActiveBytes());
+        assertEquals(0, arena.numTrimmedChunks());
+
+        // The allocator is still usable after its chunks were trimmed.
+        assertEquals(allocator.metric().chunkSize(), allocator.trimIdleChunks());
+        ByteBuf buffer = allocator.heapBuffer(64 * 1024);
+        assertEquals(allocator.metric().chunkSize(), arena.numActiveBytes());
+        assertTrue(buffer.release());
+    }
+
+    @Test
+    public void testThreadCacheHitRatio() {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 0, 1, 8192, 11, 16, 16, true);
+        PoolArenaMetric arena = allocator.metric().directArenas().get(0);
+        int sizeIdx = arena.sizeClasses().size2SizeIdx(64);
+
+        // The cache is empty so the first allocation misses, the second one is served by the released buffer.
+        assertTrue(allocator.directBuffer(64).release());
+        assertTrue(allocator.directBuffer(64).release());
+
+        // The numbers are only added to the arena when the cache is trimmed.
+        assertEquals(0, arena.numThreadCacheHits(sizeIdx));
+        assertTrue(allocator.trimCurrentThreadCache());
+        assertEquals(1, arena.numThreadCacheHits(sizeIdx));
+        assertEquals(1, arena.numThreadCacheMisses(sizeIdx));
+        assertEquals(0.5, arena.threadCacheHitRatio(sizeIdx), 0.0);
+        assertEquals(0.0, arena.threadCacheHitRatio(arena.sizeClasses().size2SizeIdx(128)), 0.0);
+    }
+
+    @Test
+    public void testThreadCacheAdaptsToHitRate() {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 0, 1, 8192, 11, 16, 16, true);
+        PoolThreadCache cache = allocator.threadCache();
+        PoolArena<ByteBuffer> arena = cache.directArena;
+        int sizeIdx = arena.size2SizeIdx(64);
+        assertEquals(16, cache.cacheLimit(arena, sizeIdx));
+
+        // Size classes that are not requested at all shrink.
+        allocator.trimCurrentThreadCache();
+        assertEquals(8, cache.cacheLimit(arena, sizeIdx));
+        allocator.trimCurrentThreadCache();
+        assertEquals(4, cache.cacheLimit(arena, sizeIdx));
+
+        // Size classes that miss more often than they hit grow again, up to the configured cache size.
+        List<ByteBuf> buffers = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            buffers.add(allocator.directBuffer(64));
+        }
+        allocator.trimCurrentThreadCache();
+        assertEquals(8, cache.cacheLimit(arena, sizeIdx));
+
+        // Only as many buffers as the current limit allows are cached.
+        for (ByteBuf buffer: buffers) {
+            assertTrue(buffer.release());
+        }
+        buffers.clear();
+        for (int i = 0; i < 12; i++) {
+            buffers.add(allocator.directBuffer(64));
+        }
+        allocator.trimCurrentThreadCache();
+        assertEquals(8, arena.numThreadCacheHits(sizeIdx));
+        assertEquals(16, arena.numThreadCacheMisses(sizeIdx));
+
+        // The cache hit more often than it missed so it keeps its size.
+        assertEquals(8, cache.cacheLimit(arena, sizeIdx));
+        for (ByteBuf buffer: buffers) {
+            assertTrue(buffer.release());
+        }
+    }
+
+    @Test
+    public void testThreadCacheBudget() {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 0, 1, 8192, 11, 256, 64, true);
+        PoolArena<ByteBuffer> arena = allocator.threadCache().directArena;
+        long budget = 256 * 1024;
+        PoolThreadCache cache = new PoolThreadCache(null, arena, 256, 64, 32 * 1024, 8192, budget);
+        try {
+            assertTrue(cachedBytes(cache, arena) <= budget);
+            // The biggest size classes are shrunk first.
+            assertEquals(256, cache.cacheLimit(arena, 0));
+            assertEquals(1, cache.cacheLimit(arena, arena.size2SizeIdx(32 * 1024)));
+        } finally {
+            cache.free(false);
+        }
+    }
+
+    private static long cachedBytes(PoolThreadCache cache, PoolArena<?> arena) {
+        long cachedBytes = 0;
+        for (int i = 0; i < arena.nSizes; i++) {
+            int limit = cache.cacheLimit(arena, i);
+            if (limit > 0) {
+                cachedBytes += (long) limit * arena.sizeIdx2size(i);
+            }
+        }
+        return cachedBytes;
+    }
+
+    @Test
+    public void testHugePageChunks() {
+        Assume.assumeTrue(PlatformDependent.hasDirectBufferNoCleanerConstructor());
+        TestHugePageAllocator hugePageAllocator = new TestHugePageAllocator(false);
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 0, 1, 8192, 11, 0, 0, false, 0, 0,
+                hugePageAllocator);
+
+        ByteBuf buffer = allocator.directBuffer(64 * 1024);
+        assertEquals(1, hugePageAllocator.allocations);
+        assertEquals(0, unwrapPooled(buffer).memoryAddress() & (hugePageAllocator.hugePageSize() - 1));
+        buffer.writeLong(42);
+        assertEquals(42, buffer.readLong());
+        assertTrue(buffer.release());
+
+        // Huge allocations are not served by chunks and so are allocated like before.
+        ByteBuf huge = allocator.directBuffer(32 * 1024 * 1024);
+        assertEquals(1, hugePageAllocator.allocations);
+        assertTrue(huge.release());
+
+        allocator.trimIdleChunks();
+        assertEquals(allocator.metric().chunkSize(), allocator.trimIdleChunks());
+        assertEquals(1, hugePageAllocator.frees);
+    }
+
+    @Test
+    public void testHugePageChunksFallback() {
+        TestHugePageAllocator hugePageAllocator = new TestHugePageAllocator(true);
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 0, 1, 8192, 11, 0, 0, false, 0, 0,
+                hugePageAllocator);
+        ByteBuf buffer = allocator.directBuffer(64 * 1024);
+        buffer.writeLong(42);
+        assertTrue(buffer.release());
+        allocator.trimIdleChunks();
+        assertEquals(allocator.metric().chunkSize(), allocator.trimIdleChunks());
+        assertEquals(0, hugePageAllocator.frees);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testHugePageSizeMustDivideChunkSize() {
+        new PooledByteBufAllocator(true, 0, 1, 8192, 0, 0, 0, false, 0, 0, new TestHugePageAllocator(true));
+    }
+
+    private static ByteBuf unwrapPooled(ByteBuf buffer) {
+        while (!(buffer instanceof PooledByteBuf)) {
+            buffer = buffer.unwrap();
+        }
+        return buffer;
+    }
+
+    private static final class TestHugePageAllocator implements HugePageAllocator {
+        private final boolean fail;
+        private final Map<Long, Long> allocated = new HashMap<>();
+        int allocations;
+        int frees;
+
+        TestHugePageAllocator(boolean fail) {
+            this.fail = fail;
+        }
+
+        @Override
+        public int hugePageSize() {
+            return 2 * 1024 * 1024;
+        }
+
+        @Override
+        public long allocate(int size) {
+            if (fail) {
+                return 0;
+            }
+            allocations++;
+            long memory = PlatformDependent.allocateMemory(size + hugePageSize());
+            long address = (memory + hugePageSize() - 1) & -hugePageSize();
+            allocated.put(address, memory);
+            return address;
+        }
+
+        @Override
+        public void free(long address, int size) {
+            frees++;
+            PlatformDependent.freeMemory(allocated.remove(address));
+        }
+    }
+
     @Test (timeout = 4000)
     public void testThreadCacheDestroyedByThreadCleaner() throws InterruptedException {
         testThreadCacheDestroyed(false);
@@ -395,6 +618,89 @@ public class PooledByteBufAllocatorTest extends AbstractByteBufAllocatorTest<Poo
         assertEquals(0, allocator.metric().directArenas().get(1).numThreadCaches());
     }
 
+    @Test(timeout = 3000)
+    public void testThreadCacheToNumaNodeArenaMappings() throws Throwable {
+        final PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 4, 4, 8192, 1,
+                0, 0, true, 0, 2);
+        PooledByteBufAllocatorMetric metric = allocator.metric();
+        assertEquals(2, metric.numaNodes());
+        // Arenas are only bound once a Thread of a NUMA node uses them.
+        assertEquals(0, metric.heapArenas(0).size());
+        assertEquals(0, metric.directArenas(1).size());
+
+        // NUMA node ids do not need to be contiguous or start at 0.
+        allocateOnNumaNode(allocator, 3, true);
+        allocateOnNumaNode(allocator, 1, true);
+        assertEquals(2, metric.heapArenas(3).size());
+        assertEquals(2, metric.directArenas(3).size());
+        assertEquals(2, metric.heapArenas(1).size());
+        assertEquals(2, metric.directArenas(1).size());
+        assertEquals(0, metric.directArenas(0).size());
+        for (int i = 0; i < 4; i++) {
+            // Arena i belongs to group i % numaNodes and the first group was bound first.
+            assertEquals(i % 2 == 0 ? 3 : 1, metric.directArenas().get(i).numaNode());
+        }
+
+        // All groups are bound already, so Threads of other NUMA nodes use the least used arena.
+        allocateOnNumaNode(allocator, 5, false);
+        assertEquals(0, metric.directArenas(5).size());
+    }
+
+    private static void allocateOnNumaNode(final PooledByteBufAllocator allocator, final int numaNode,
+                                           final boolean bound) throws Throwable {
+        final PooledByteBufAllocatorMetric metric = allocator.metric();
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        Thread thread = new NumaThread(() -> {
+            try {
+                ByteBuf heap = allocator.heapBuffer(1024);
+                ByteBuf direct = allocator.directBuffer(1024);
+                if (bound) {
+                    assertEquals(numaNode, arena(heap).numaNode());
+                    assertEquals(numaNode, arena(direct).numaNode());
+                    assertEquals(metric.chunkSize(), metric.usedDirectMemory(numaNode));
+                    assertEquals(metric.chunkSize(), metric.usedHeapMemory(numaNode));
+                } else {
+                    assertNotEquals(numaNode, arena(direct).numaNode());
+                }
+                heap.release();
+                direct.release();
+            } catch (Throwable cause) {
+                error.set(cause);
+            } finally {
+                FastThreadLocal.removeAll();
+            }
+        }, numaNode);
+        thread.start();
+        thread.join();
+        if (error.get() != null) {
+            throw error.get();
+        }
+    }
+
+    private static PoolArena<?> arena(ByteBuf buf) {
+        ByteBuf pooled = buf instanceof PooledByteBuf ? buf : buf.unwrap();
+        return ((PooledByteBuf<?>) pooled).chunk.arena;
+    }
+
+    private static final class NumaThread extends FastThreadLocalThread implements ThreadPlacement {
+        private final int numaNode;
+
+        NumaThread(Runnable target, int numaNode) {
+            super(target);
+            this.numaNode = numaNode;
+        }
+
+        @Override
+        public int cpu() {
+            return UNKNOWN;
+        }
+
+        @Override
+        public int numaNode() {
+            return numaNode;
+        }
+    }
+
     private static ThreadCache createNewThreadCache(final PooledByteBufAllocator allocator)
             throws InterruptedException {
         final CountDownLatch latch = new CountDownLatch(1);
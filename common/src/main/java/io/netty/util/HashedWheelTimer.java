@@ -15,6 +15,7 @@
  */
 package io.netty.util;
 
+import io.netty.util.concurrent.ImmediateExecutor;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
@@ -24,6 +25,7 @@ import java.util.HashSet;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadFactory;
@@ -110,8 +112,11 @@ public class HashedWheelTimer implements Timer {
     private final Queue<HashedWheelTimeout> cancelledTimeouts = PlatformDependent.newMpscQueue();
     private final AtomicLong pendingTimeouts = new AtomicLong(0);
     private final long maxPendingTimeouts;
+    private final Executor taskExecutor;
+    private final boolean countInstance;
 
     private volatile long startTime;
+    private volatile long tickLag;
 
     /**
      * Creates a new timer with the default thread factory
@@ -242,8 +247,52 @@ public class HashedWheelTimer implements Timer {
             ThreadFactory threadFactory,
             long tickDuration, TimeUnit unit, int ticksPerWheel, boolean leakDetection,
             long maxPendingTimeouts) {
+        this(threadFactory, tickDuration, unit, ticksPerWheel, leakDetection,
+                maxPendingTimeouts, ImmediateExecutor.INSTANCE);
+    }
+
+    /**
+     * Creates a new timer.
+     *
+     * @param threadFactory        a {@link ThreadFactory} that creates a
+     *                             background {@link Thread} which is dedicated to
+     *                             {@link TimerTask} execution.
+     * @param tickDuration         the duration between tick
+     * @param unit                 the time unit of the {@code tickDuration}
+     * @param ticksPerWheel        the size of the wheel
+     * @param leakDetection        {@code true} if leak detection should be enabled always,
+     *                             if false it will only be enabled if the worker thread is not
+     *                             a daemon thread.
+     * @param  maxPendingTimeouts  The maximum number of pending timeouts after which call to
+     *                             {@code newTimeout} will result in
+     *                             {@link java.util.concurrent.RejectedExecutionException}
+     *                             being thrown. No maximum pending timeouts limit is assumed if
+     *                             this value is 0 or negative.
+     * @param  taskExecutor        The {@link Executor} that is used to execute the submitted {@link TimerTask}s.
+     *                             The caller is responsible to shutdown the {@link Executor} once it is not needed
+     *                             anymore.
+     * @throws NullPointerException     if either of {@code threadFactory}, {@code unit} and {@code taskExecutor}
+     *                                  is {@code null}
+     * @throws IllegalArgumentException if either of {@code tickDuration} and {@code ticksPerWheel} is &lt;= 0
+     */
+    public HashedWheelTimer(
+            ThreadFactory threadFactory,
+            long tickDuration, TimeUnit unit, int ticksPerWheel, boolean leakDetection,
+            long maxPendingTimeouts, Executor taskExecutor) {
+        this(threadFactory, tickDuration, unit, ticksPerWheel, leakDetection, maxPendingTimeouts, taskExecutor, true);
+    }
+
+    /**
+     * Creates a new timer which is only counted against the limit of active instances if {@code countInstance} is
+     * {@code true}. This is used by {@link ShardedHashedWheelTimer} which is counted as one instance in total.
+     */
+    HashedWheelTimer(
+            ThreadFactory threadFactory,
+            long tickDuration, TimeUnit unit, int ticksPerWheel, boolean leakDetection,
+            long maxPendingTimeouts, Executor taskExecutor, boolean countInstance) {
         requireNonNull(threadFactory, "threadFactory");
         requireNonNull(unit, "unit");
+        this.taskExecutor = requireNonNull(taskExecutor, "taskExecutor");
         if (tickDuration <= 0) {
             throw new IllegalArgumentException("tickDuration must be greater than 0: " + tickDuration);
         }
@@ -278,8 +327,9 @@ public class HashedWheelTimer implements Timer {
         leak = leakDetection || !workerThread.isDaemon() ? leakDetector.track(this) : null;
 
         this.maxPendingTimeouts = maxPendingTimeouts;
+        this.countInstance = countInstance;
 
-        if (INSTANCE_COUNTER.incrementAndGet() > INSTANCE_COUNT_LIMIT &&
+        if (countInstance && INSTANCE_COUNTER.incrementAndGet() > INSTANCE_COUNT_LIMIT &&
             WARNED_TOO_MANY_INSTANCES.compareAndSet(false, true)) {
             reportTooManyInstances();
         }
@@ -293,11 +343,22 @@ public class HashedWheelTimer implements Timer {
             // This object is going to be GCed and it is assumed the ship has sailed to do a proper shutdown. If
             // we have not yet shutdown then we want to make sure we decrement the active instance count.
             if (WORKER_STATE_UPDATER.getAndSet(this, WORKER_STATE_SHUTDOWN) != WORKER_STATE_SHUTDOWN) {
-                INSTANCE_COUNTER.decrementAndGet();
+                decrementInstanceCounter();
             }
         }
     }
 
+    // Visible for testing.
+    static int activeInstances() {
+        return INSTANCE_COUNTER.get();
+    }
+
+    private void decrementInstanceCounter() {
+        if (countInstance) {
+            INSTANCE_COUNTER.decrementAndGet();
+        }
+    }
+
     private static HashedWheelBucket[] createWheel(int ticksPerWheel) {
         if (ticksPerWheel <= 0) {
             throw new IllegalArgumentException(
@@ -368,7 +429,7 @@ public class HashedWheelTimer implements Timer {
         if (!WORKER_STATE_UPDATER.compareAndSet(this, WORKER_STATE_STARTED, WORKER_STATE_SHUTDOWN)) {
             // workerState can be 0 or 2 at this moment - let it always be 2.
             if (WORKER_STATE_UPDATER.getAndSet(this, WORKER_STATE_SHUTDOWN) != WORKER_STATE_SHUTDOWN) {
-                INSTANCE_COUNTER.decrementAndGet();
+                decrementInstanceCounter();
                 if (leak != null) {
                     boolean closed = leak.close(this);
                     assert closed;
@@ -393,7 +454,7 @@ public class HashedWheelTimer implements Timer {
                 Thread.currentThread().interrupt();
             }
         } finally {
-            INSTANCE_COUNTER.decrementAndGet();
+            decrementInstanceCounter();
             if (leak != null) {
                 boolean closed = leak.close(this);
                 assert closed;
@@ -438,6 +499,14 @@ public class HashedWheelTimer implements Timer {
         return pendingTimeouts.get();
     }
 
+    /**
+     * Returns how late the last tick was processed compared to when it was due. A value that keeps growing means
+     * the worker thread can not keep up with the number of timeouts.
+     */
+    public long tickLag(TimeUnit unit) {
+        return unit.convert(tickLag, TimeUnit.NANOSECONDS);
+    }
+
     private static void reportTooManyInstances() {
         if (logger.isErrorEnabled()) {
             String resourceType = simpleClassName(HashedWheelTimer.class);
@@ -467,6 +536,7 @@ public class HashedWheelTimer implements Timer {
             do {
                 final long deadline = waitForNextTick();
                 if (deadline > 0) {
+                    tickLag = deadline - tickDuration * (tick + 1);
                     int idx = (int) (tick & mask);
                     processCancelledTasks();
                     HashedWheelBucket bucket =
@@ -583,7 +653,7 @@ public class HashedWheelTimer implements Timer {
         }
     }
 
-    private static final class HashedWheelTimeout implements Timeout {
+    private static final class HashedWheelTimeout implements Timeout, Runnable {
 
         private static final int ST_INIT = 0;
         private static final int ST_CANCELLED = 1;
@@ -671,6 +741,18 @@ public class HashedWheelTimer implements Timer {
                 return;
             }
 
+            try {
+                timer.taskExecutor.execute(this);
+            } catch (Throwable t) {
+                if (logger.isWarnEnabled()) {
+                    logger.warn("An exception was thrown while submitting " + TimerTask.class.getSimpleName()
+                            + " for execution.", t);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
             try {
                 task.run(this);
             } catch (Throwable t) {
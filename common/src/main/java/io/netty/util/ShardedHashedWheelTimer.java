@@ -0,0 +1,186 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util;
+
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.ImmediateExecutor;
+import io.netty.util.internal.UnstableApi;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import static io.netty.util.internal.ObjectUtil.checkPositive;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A {@link Timer} that spreads its timeouts over multiple {@link HashedWheelTimer}s (shards), each with its own wheel
+ * and worker thread.
+ * <p>
+ * A single {@link HashedWheelTimer} routes all {@link #newTimeout(TimerTask, long, TimeUnit)} calls through one queue
+ * and expires all timeouts from one thread, which can become a bottleneck if millions of timeouts are scheduled per
+ * second. This timer picks the shard by the calling thread, or by a key if
+ * {@link #newTimeout(Object, TimerTask, long, TimeUnit)} is used, so the load is split between all shards.
+ * <p>
+ * The {@link TimerTask}s can be executed on a different {@link Executor} so that expensive tasks do not delay the
+ * ticks of the worker threads. Use {@link #pendingTimeouts(int)} and {@link #tickLag(int, TimeUnit)} to check if
+ * the shards can keep up.
+ * <p>
+ * As with {@link HashedWheelTimer}, make sure to only create a few instances and share them.
+ */
+@UnstableApi
+public final class ShardedHashedWheelTimer implements Timer {
+
+    private final HashedWheelTimer[] shards;
+
+    /**
+     * Creates a new timer with one shard per available processor (but not more than 16), the default tick duration
+     * and default number of ticks per wheel. The {@link TimerTask}s are executed by the worker threads of the shards.
+     */
+    public ShardedHashedWheelTimer() {
+        this(Math.min(NettyRuntime.availableProcessors(), 16));
+    }
+
+    /**
+     * Creates a new timer with the default tick duration and default number of ticks per wheel. The
+     * {@link TimerTask}s are executed by the worker threads of the shards.
+     *
+     * @param shards        the number of {@link HashedWheelTimer}s to use.
+     * @throws IllegalArgumentException if {@code shards} is &lt;= 0
+     */
+    public ShardedHashedWheelTimer(int shards) {
+        this(shards, new DefaultThreadFactory(ShardedHashedWheelTimer.class, true),
+                100, TimeUnit.MILLISECONDS, 512, -1, ImmediateExecutor.INSTANCE);
+    }
+
+    /**
+     * Creates a new timer.
+     *
+     * @param shards              the number of {@link HashedWheelTimer}s to use.
+     * @param threadFactory       a {@link ThreadFactory} that creates the worker {@link Thread} of each shard.
+     * @param tickDuration        the duration between tick
+     * @param unit                the time unit of the {@code tickDuration}
+     * @param ticksPerWheel       the size of the wheel of each shard
+     * @param maxPendingTimeouts  The maximum number of pending timeouts per shard after which call to
+     *                            {@code newTimeout} will result in
+     *                            {@link java.util.concurrent.RejectedExecutionException}
+     *                            being thrown. No maximum pending timeouts limit is assumed if
+     *                            this value is 0 or negative.
+     * @param taskExecutor        The {@link Executor} that is used to execute the submitted {@link TimerTask}s.
+     *                            The caller is responsible to shutdown the {@link Executor} once it is not needed
+     *                            anymore.
+     * @throws NullPointerException     if either of {@code threadFactory}, {@code unit} and {@code taskExecutor}
+     *                                  is {@code null}
+     * @throws IllegalArgumentException if either of {@code shards}, {@code tickDuration} and {@code ticksPerWheel}
+     *                                  is &lt;= 0
+     */
+    public ShardedHashedWheelTimer(int shards, ThreadFactory threadFactory, long tickDuration, TimeUnit unit,
+                                   int ticksPerWheel, long maxPendingTimeouts, Executor taskExecutor) {
+        checkPositive(shards, "shards");
+        requireNonNull(threadFactory, "threadFactory");
+        requireNonNull(taskExecutor, "taskExecutor");
+        this.shards = new HashedWheelTimer[shards];
+        for (int i = 0; i < shards; i++) {
+            // Leak detection is only enabled for non daemon threads, the same as for every other HashedWheelTimer.
+            // Only the first shard is counted, so the whole timer is counted as one instance.
+            this.shards[i] = new HashedWheelTimer(threadFactory, tickDuration, unit, ticksPerWheel, false,
+                    maxPendingTimeouts, taskExecutor, i == 0);
+        }
+    }
+
+    /**
+     * Schedules the specified {@link TimerTask} for one-time execution after the specified delay on the shard that
+     * belongs to the calling thread.
+     *
+     * @see Timer#newTimeout(TimerTask, long, TimeUnit)
+     */
+    @Override
+    public Timeout newTimeout(TimerTask task, long delay, TimeUnit unit) {
+        return shards[shardIndex(Thread.currentThread().getId())].newTimeout(task, delay, unit);
+    }
+
+    /**
+     * Schedules the specified {@link TimerTask} for one-time execution after the specified delay on the shard that
+     * belongs to the given {@code key}. All timeouts with the same {@code key} are handled by the same shard.
+     *
+     * @see Timer#newTimeout(TimerTask, long, TimeUnit)
+     */
+    public Timeout newTimeout(Object key, TimerTask task, long delay, TimeUnit unit) {
+        int hash = requireNonNull(key, "key").hashCode();
+        return shards[shardIndex(hash ^ (hash >>> 16))].newTimeout(task, delay, unit);
+    }
+
+    private int shardIndex(long hash) {
+        return (int) Math.floorMod(hash, (long) shards.length);
+    }
+
+    /**
+     * Starts the background threads of all shards explicitly. The background threads will start automatically on
+     * demand even if you did not call this method.
+     *
+     * @throws IllegalStateException if this timer has been {@linkplain #stop() stopped} already
+     */
+    public void start() {
+        for (HashedWheelTimer shard: shards) {
+            shard.start();
+        }
+    }
+
+    @Override
+    public Set<Timeout> stop() {
+        Set<Timeout> unprocessed = new HashSet<>();
+        for (HashedWheelTimer shard: shards) {
+            unprocessed.addAll(shard.stop());
+        }
+        return unprocessed;
+    }
+
+    /**
+     * Returns the number of shards.
+     */
+    public int shards() {
+        return shards.length;
+    }
+
+    /**
+     * Returns the number of pending timeouts of all shards.
+     */
+    public long pendingTimeouts() {
+        long pending = 0;
+        for (HashedWheelTimer shard: shards) {
+            pending += shard.pendingTimeouts();
+        }
+        return pending;
+    }
+
+    /**
+     * Returns the number of pending timeouts of the given shard.
+     */
+    public long pendingTimeouts(int shard) {
+        return shards[shard].pendingTimeouts();
+    }
+
+    /**
+     * Returns how late the last tick of the given shard was processed compared to when it was due.
+     *
+     * @see HashedWheelTimer#tickLag(TimeUnit)
+     */
+    public long tickLag(int shard, TimeUnit unit) {
+        return shards[shard].tickLag(unit);
+    }
+}
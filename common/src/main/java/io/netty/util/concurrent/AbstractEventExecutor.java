@@ -18,6 +18,7 @@ package io.netty.util.concurrent;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
@@ -25,6 +26,7 @@ import java.util.List;
 import java.util.concurrent.AbstractExecutorService;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RunnableFuture;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -110,6 +112,19 @@ public abstract class AbstractEventExecutor extends AbstractExecutorService impl
         return (Future<T>) super.submit(task);
     }
 
+    @Override
+    public List<Future<?>> submitBatch(Collection<? extends Runnable> tasks) {
+        List<Future<?>> futures = new ArrayList<>(tasks.size());
+        List<Runnable> futureTasks = new ArrayList<>(tasks.size());
+        for (Runnable task: tasks) {
+            RunnableFuture<Void> futureTask = newTaskFor(task, null);
+            futures.add((Future<?>) futureTask);
+            futureTasks.add(futureTask);
+        }
+        executeBatch(futureTasks);
+        return futures;
+    }
+
     @Override
     protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
         return newRunnableFuture(this.newPromise(), runnable, value);
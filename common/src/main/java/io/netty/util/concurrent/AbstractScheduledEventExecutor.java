@@ -39,9 +39,21 @@ public abstract class AbstractScheduledEventExecutor extends AbstractEventExecut
     private static final Comparator<RunnableScheduledFutureNode<?>> SCHEDULED_FUTURE_TASK_COMPARATOR =
             Comparable::compareTo;
 
+    private final ScheduledTaskQueueType scheduledTaskQueueType;
     private PriorityQueue<RunnableScheduledFutureNode<?>> scheduledTaskQueue;
+    private ScheduledTaskTimingWheel timingWheel;
 
     protected AbstractScheduledEventExecutor() {
+        this(ScheduledTaskQueueType.PRIORITY_QUEUE);
+    }
+
+    /**
+     * Create a new instance
+     *
+     * @param scheduledTaskQueueType    the {@link ScheduledTaskQueueType} that is used to store scheduled tasks.
+     */
+    protected AbstractScheduledEventExecutor(ScheduledTaskQueueType scheduledTaskQueueType) {
+        this.scheduledTaskQueueType = requireNonNull(scheduledTaskQueueType, "scheduledTaskQueueType");
     }
 
     /**
@@ -71,6 +83,25 @@ public abstract class AbstractScheduledEventExecutor extends AbstractEventExecut
         return scheduledTaskQueue;
     }
 
+    private ScheduledTaskTimingWheel timingWheel() {
+        if (timingWheel == null) {
+            timingWheel = new ScheduledTaskTimingWheel(ScheduledTaskTimingWheel.DEFAULT_TICK_NANOS, nanoTime());
+        }
+        return timingWheel;
+    }
+
+    /**
+     * Moves all tasks of the timing wheel that may be ready at the given {@code nanoTime} to the
+     * {@link #scheduledTaskQueue()}.
+     */
+    private Queue<RunnableScheduledFutureNode<?>> expireScheduledTasks(long nanoTime) {
+        ScheduledTaskTimingWheel timingWheel = this.timingWheel;
+        if (timingWheel != null) {
+            timingWheel.expire(nanoTime, scheduledTaskQueue());
+        }
+        return scheduledTaskQueue;
+    }
+
     private static boolean isNullOrEmpty(Queue<RunnableScheduledFutureNode<?>> queue) {
         return queue == null || queue.isEmpty();
     }
@@ -82,6 +113,14 @@ public abstract class AbstractScheduledEventExecutor extends AbstractEventExecut
      */
     protected final void cancelScheduledTasks() {
         assert inEventLoop();
+        ScheduledTaskTimingWheel timingWheel = this.timingWheel;
+        if (timingWheel != null && timingWheel.size() != 0) {
+            for (RunnableScheduledFutureNode<?> task: timingWheel.toArray()) {
+                task.cancel(false);
+            }
+            timingWheel.clearIgnoringIndexes();
+        }
+
         PriorityQueue<RunnableScheduledFutureNode<?>> scheduledTaskQueue = this.scheduledTaskQueue;
         if (isNullOrEmpty(scheduledTaskQueue)) {
             return;
@@ -113,7 +152,7 @@ public abstract class AbstractScheduledEventExecutor extends AbstractEventExecut
     protected final RunnableScheduledFuture<?> pollScheduledTask(long nanoTime) {
         assert inEventLoop();
 
-        Queue<RunnableScheduledFutureNode<?>> scheduledTaskQueue = this.scheduledTaskQueue;
+        Queue<RunnableScheduledFutureNode<?>> scheduledTaskQueue = expireScheduledTasks(nanoTime);
         RunnableScheduledFutureNode<?> scheduledTask = scheduledTaskQueue == null ? null : scheduledTaskQueue.peek();
         if (scheduledTask == null) {
             return null;
@@ -132,14 +171,32 @@ public abstract class AbstractScheduledEventExecutor extends AbstractEventExecut
      * This method MUST be called only when {@link #inEventLoop()} is {@code true}.
      */
     protected final long nextScheduledTaskNano() {
+        ScheduledTaskTimingWheel timingWheel = this.timingWheel;
+        if (isNullOrEmpty(scheduledTaskQueue) && (timingWheel == null || timingWheel.size() == 0)) {
+            return -1;
+        }
+        return Math.max(0, nextScheduledTaskDeadlineNanos(0) - nanoTime());
+    }
+
+    /**
+     * Return the deadline (relative to {@link #nanoTime()}) of the scheduled task that is ready to be run first or
+     * {@code defaultValue} if no task is scheduled. If {@link ScheduledTaskQueueType#TIMING_WHEEL} is used the
+     * returned deadline may be earlier than the actual one, but never later.
+     */
+    final long nextScheduledTaskDeadlineNanos(long defaultValue) {
         Queue<RunnableScheduledFutureNode<?>> scheduledTaskQueue = this.scheduledTaskQueue;
         RunnableScheduledFutureNode<?> scheduledTask = scheduledTaskQueue == null ? null : scheduledTaskQueue.peek();
-        if (scheduledTask == null) {
-            return -1;
+        ScheduledTaskTimingWheel timingWheel = this.timingWheel;
+        if (timingWheel == null || timingWheel.size() == 0) {
+            return scheduledTask == null ? defaultValue : scheduledTask.deadlineNanos();
         }
-        return Math.max(0, scheduledTask.deadlineNanos() - nanoTime());
+        long deadlineNanos = timingWheel.nextDeadlineNanos();
+        return scheduledTask == null ? deadlineNanos : Math.min(deadlineNanos, scheduledTask.deadlineNanos());
     }
 
+    /**
+     * Return the scheduled task with the closest deadline that is not stored in the timing wheel.
+     */
     final RunnableScheduledFuture<?> peekScheduledTask() {
         Queue<RunnableScheduledFutureNode<?>> scheduledTaskQueue = this.scheduledTaskQueue;
         if (scheduledTaskQueue == null) {
@@ -159,7 +216,8 @@ public abstract class AbstractScheduledEventExecutor extends AbstractEventExecut
      */
     protected final boolean hasScheduledTasks() {
         assert inEventLoop();
-        Queue<RunnableScheduledFutureNode<?>> scheduledTaskQueue = this.scheduledTaskQueue;
+        Queue<RunnableScheduledFutureNode<?>> scheduledTaskQueue = timingWheel == null ?
+                this.scheduledTaskQueue : expireScheduledTasks(nanoTime());
         RunnableScheduledFutureNode<?> scheduledTask = scheduledTaskQueue == null ? null : scheduledTaskQueue.peek();
         return scheduledTask != null && scheduledTask.deadlineNanos() <= nanoTime();
     }
@@ -242,11 +300,18 @@ public abstract class AbstractScheduledEventExecutor extends AbstractEventExecut
         } else {
             node = new DefaultRunnableScheduledFutureNode<V>(task);
         }
+        if (scheduledTaskQueueType == ScheduledTaskQueueType.TIMING_WHEEL && timingWheel().add(node)) {
+            return;
+        }
         scheduledTaskQueue().add(node);
     }
 
     final void removeScheduled(final RunnableScheduledFutureNode<?> task) {
         if (inEventLoop()) {
+            ScheduledTaskTimingWheel timingWheel = this.timingWheel;
+            if (timingWheel != null && timingWheel.remove(task)) {
+                return;
+            }
             scheduledTaskQueue().removeTyped(task);
         } else {
             execute(() -> removeScheduled(task));
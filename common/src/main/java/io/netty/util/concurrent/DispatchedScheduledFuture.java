@@ -0,0 +1,185 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * {@link ScheduledFuture} for {@link EventExecutor}s that have no timer of their own. The delay is tracked by a timer
+ * on the shared {@link GlobalEventExecutor} and once it fires the task is handed over to the {@link EventExecutor}
+ * via {@link EventExecutor#execute(Runnable)}, so it runs like any other task of the {@link EventExecutor}.
+ */
+final class DispatchedScheduledFuture<V> extends PromiseTask<V> implements ScheduledFuture<V> {
+
+    static ScheduledFuture<?> schedule(EventExecutor executor, Runnable command, long delay, TimeUnit unit) {
+        requireNonNull(command, "command");
+        return schedule(executor, Executors.callable(command), delay, unit);
+    }
+
+    static <V> ScheduledFuture<V> schedule(EventExecutor executor, Callable<V> callable, long delay, TimeUnit unit) {
+        requireNonNull(callable, "callable");
+        requireNonNull(unit, "unit");
+        if (delay < 0) {
+            delay = 0;
+        }
+        return new DispatchedScheduledFuture<>(executor, callable, unit.toNanos(delay), 0).arm();
+    }
+
+    static ScheduledFuture<?> scheduleAtFixedRate(EventExecutor executor, Runnable command, long initialDelay,
+                                                  long period, TimeUnit unit) {
+        requireNonNull(command, "command");
+        requireNonNull(unit, "unit");
+        if (initialDelay < 0) {
+            throw new IllegalArgumentException(
+                    String.format("initialDelay: %d (expected: >= 0)", initialDelay));
+        }
+        if (period <= 0) {
+            throw new IllegalArgumentException(
+                    String.format("period: %d (expected: > 0)", period));
+        }
+        return new DispatchedScheduledFuture<>(executor, Executors.<Void>callable(command, null),
+                unit.toNanos(initialDelay), unit.toNanos(period)).arm();
+    }
+
+    static ScheduledFuture<?> scheduleWithFixedDelay(EventExecutor executor, Runnable command, long initialDelay,
+                                                     long delay, TimeUnit unit) {
+        requireNonNull(command, "command");
+        requireNonNull(unit, "unit");
+        if (initialDelay < 0) {
+            throw new IllegalArgumentException(
+                    String.format("initialDelay: %d (expected: >= 0)", initialDelay));
+        }
+        if (delay <= 0) {
+            throw new IllegalArgumentException(
+                    String.format("delay: %d (expected: > 0)", delay));
+        }
+        return new DispatchedScheduledFuture<>(executor, Executors.<Void>callable(command, null),
+                unit.toNanos(initialDelay), -unit.toNanos(delay)).arm();
+    }
+
+    /* 0 - no repeat, >0 - repeat at fixed rate, <0 - repeat with fixed delay */
+    private final long periodNanos;
+    // Written by the EventExecutor before the timer is armed again and read by the timer and any caller of getDelay().
+    private volatile long deadlineNanos;
+    private volatile ScheduledFuture<?> timer;
+
+    private DispatchedScheduledFuture(EventExecutor executor, Callable<V> callable, long delayNanos,
+                                      long periodNanos) {
+        super(executor, callable);
+        this.periodNanos = periodNanos;
+        deadlineNanos = AbstractScheduledEventExecutor.deadlineNanos(delayNanos);
+    }
+
+    private DispatchedScheduledFuture<V> arm() {
+        ScheduledFuture<?> timer = GlobalEventExecutor.INSTANCE.schedule(
+                this::dispatch, getDelay(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+        this.timer = timer;
+        if (isCancelled()) {
+            // cancel() may have missed the new timer.
+            timer.cancel(false);
+        }
+        return this;
+    }
+
+    private void dispatch() {
+        if (isCancelled()) {
+            return;
+        }
+        try {
+            executor().execute(this);
+        } catch (Throwable cause) {
+            // Most likely the EventExecutor was shutdown in the meantime.
+            tryFailureInternal(cause);
+        }
+    }
+
+    @Override
+    public void run() {
+        if (periodNanos == 0) {
+            super.run();
+            return;
+        }
+        // check if is done as it may was cancelled
+        if (isCancelled()) {
+            return;
+        }
+        try {
+            task.call();
+        } catch (Throwable cause) {
+            tryFailureInternal(cause);
+            return;
+        }
+        if (!executor().isShutdown()) {
+            long p = periodNanos;
+            if (p > 0) {
+                deadlineNanos += p;
+            } else {
+                deadlineNanos = AbstractScheduledEventExecutor.nanoTime() - p;
+            }
+            if (!isCancelled()) {
+                arm();
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param mayInterruptIfRunning this value has no effect in this implementation.
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        boolean cancelled = super.cancel(mayInterruptIfRunning);
+        if (cancelled) {
+            ScheduledFuture<?> timer = this.timer;
+            if (timer != null) {
+                timer.cancel(false);
+            }
+        }
+        return cancelled;
+    }
+
+    @Override
+    public long getDelay(TimeUnit unit) {
+        return unit.convert(Math.max(0, deadlineNanos - AbstractScheduledEventExecutor.nanoTime()),
+                TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public int compareTo(Delayed o) {
+        if (this == o) {
+            return 0;
+        }
+        return Long.compare(getDelay(TimeUnit.NANOSECONDS), o.getDelay(TimeUnit.NANOSECONDS));
+    }
+
+    @Override
+    protected StringBuilder toStringBuilder() {
+        StringBuilder buf = super.toStringBuilder();
+        buf.setCharAt(buf.length() - 1, ',');
+
+        return buf.append(" deadline: ")
+                  .append(deadlineNanos)
+                  .append(", period: ")
+                  .append(periodNanos)
+                  .append(')');
+    }
+}
@@ -15,6 +15,10 @@
  */
 package io.netty.util.concurrent;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
 /**
  * The {@link EventExecutor} is a special {@link EventExecutorGroup} which comes
  * with some handy methods to see if a {@link Thread} is executed in a event loop.
@@ -64,4 +68,28 @@ public interface EventExecutor extends EventExecutorGroup {
      * every call of blocking methods will just return without blocking.
      */
     <V> Future<V> newFailedFuture(Throwable cause);
+
+    /**
+     * Executes all the given tasks in the order of the {@link Collection}. Implementations may enqueue them at once
+     * and so only wake up the executing thread once, which is cheaper than calling {@link #execute(Runnable)} for
+     * each of the tasks.
+     */
+    default void executeBatch(Collection<? extends Runnable> tasks) {
+        for (Runnable task: tasks) {
+            execute(task);
+        }
+    }
+
+    /**
+     * Submits all the given tasks in the order of the {@link Collection} and returns a {@link Future} for each of
+     * them. Implementations may enqueue them at once and so only wake up the executing thread once, which is cheaper
+     * than calling {@link #submit(Runnable)} for each of the tasks.
+     */
+    default List<Future<?>> submitBatch(Collection<? extends Runnable> tasks) {
+        List<Future<?>> futures = new ArrayList<>(tasks.size());
+        for (Runnable task: tasks) {
+            futures.add(submit(task));
+        }
+        return futures;
+    }
 }
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runtime metrics of an {@link EventExecutor}. All methods may be called from any thread and so the returned values
+ * are only estimates.
+ */
+public interface EventExecutorMetric {
+    /**
+     * Returns the number of tasks that are pending for processing (excluding the scheduled tasks) or {@code -1} if
+     * unknown.
+     */
+    int pendingTasks();
+
+    /**
+     * Returns the number of tasks that were executed so far or {@code -1} if unknown.
+     */
+    long executedTasks();
+
+    /**
+     * Returns the average time a task waited in the task queue before it was picked up for execution or {@code -1}
+     * if unknown. The wait time is only measured for a sample of the submitted tasks.
+     */
+    long averageTaskWaitTime(TimeUnit unit);
+}
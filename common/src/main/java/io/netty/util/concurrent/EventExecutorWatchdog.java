@@ -0,0 +1,315 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import io.netty.util.internal.StringUtil;
+import io.netty.util.internal.SystemPropertyUtil;
+import io.netty.util.internal.UnstableApi;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import static io.netty.util.internal.ObjectUtil.checkPositive;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Detects if a {@link SingleThreadEventExecutor} is stalled, which means that a single task or a single pass of IO
+ * processing takes longer than a given threshold, and notifies a {@link StallListener} with the stack of the stalled
+ * thread.
+ * <p>
+ * The watched executors only increment a heartbeat counter while they make progress. A single shared daemon thread
+ * checks the heartbeats of all watched executors periodically, so nothing is measured on the hot path. When there is
+ * no executor to watch anymore the daemon thread terminates itself and a new one is started once a new executor is
+ * watched again.
+ * <p>
+ * Every {@link SingleThreadEventExecutor} is watched automatically and its stalls are logged if the system property
+ * {@code io.netty.eventexecutor.stallThresholdMillis} is set to a value greater than {@code 0}.
+ */
+@UnstableApi
+public final class EventExecutorWatchdog {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(EventExecutorWatchdog.class);
+
+    private static final long MIN_CHECK_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long MAX_CHECK_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /**
+     * {@link StallListener} which logs every {@link Stall} with level {@code WARN}.
+     */
+    public static final StallListener LOGGING_LISTENER = stall -> {
+        if (logger.isWarnEnabled()) {
+            StallException cause = new StallException(stall);
+            logger.warn("{} is stalled for {}ms while processing {} (handler: {})", stall.executor(),
+                    stall.duration(TimeUnit.MILLISECONDS), stall.context(), stall.handlerContext(), cause);
+        }
+    };
+
+    private static final ThreadFactory threadFactory;
+    private static final List<Entry> entries = new CopyOnWriteArrayList<>();
+    private static Thread watchdogThread;
+
+    static {
+        String poolName = "eventExecutorWatchdog";
+        String serviceThreadPrefix = SystemPropertyUtil.get("io.netty.serviceThreadPrefix");
+        if (!StringUtil.isNullOrEmpty(serviceThreadPrefix)) {
+            poolName = serviceThreadPrefix + poolName;
+        }
+        // The watchdog is a singleton and so must not be sticky about the thread group of the caller.
+        threadFactory = new DefaultThreadFactory(poolName, true, Thread.MAX_PRIORITY, null);
+    }
+
+    /**
+     * Listener that is notified once an executor is detected as stalled.
+     */
+    @FunctionalInterface
+    public interface StallListener {
+        /**
+         * Called from the watchdog thread once per stall, while the executor is still stalled. Implementations must
+         * return quickly as otherwise the checks of other executors are delayed.
+         */
+        void stalled(Stall stall);
+    }
+
+    /**
+     * Describes a stall of a {@link SingleThreadEventExecutor}.
+     */
+    public static final class Stall {
+        private final SingleThreadEventExecutor executor;
+        private final Thread thread;
+        private final Object context;
+        private final Object handlerContext;
+        private final long durationNanos;
+        private final StackTraceElement[] stackTrace;
+
+        Stall(SingleThreadEventExecutor executor, Thread thread, Object context, Object handlerContext,
+              long durationNanos, StackTraceElement[] stackTrace) {
+            this.executor = executor;
+            this.thread = thread;
+            this.context = context;
+            this.handlerContext = handlerContext;
+            this.durationNanos = durationNanos;
+            this.stackTrace = stackTrace;
+        }
+
+        /**
+         * Returns the stalled {@link SingleThreadEventExecutor}.
+         */
+        public SingleThreadEventExecutor executor() {
+            return executor;
+        }
+
+        /**
+         * Returns the {@link Thread} of the stalled {@link SingleThreadEventExecutor}.
+         */
+        public Thread thread() {
+            return thread;
+        }
+
+        /**
+         * Returns what was processed when the stall was detected. This is the task that was run, the {@code Channel}
+         * for which IO was processed or {@code null} if unknown.
+         */
+        public Object context() {
+            return context;
+        }
+
+        /**
+         * Returns the handler which was invoked when the stall was detected. This is the {@code ChannelHandlerContext}
+         * of the handler that is found in the {@link #stackTrace()} while processing IO for a {@code Channel} or
+         * {@code null} if unknown.
+         */
+        public Object handlerContext() {
+            return handlerContext;
+        }
+
+        /**
+         * Returns for how long the {@link SingleThreadEventExecutor} made no progress when the stall was detected.
+         */
+        public long duration(TimeUnit unit) {
+            return unit.convert(durationNanos, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Returns the stack of the {@link #thread()}, which was sampled while it was stalled.
+         */
+        public StackTraceElement[] stackTrace() {
+            return stackTrace.clone();
+        }
+
+        @Override
+        public String toString() {
+            return StringUtil.simpleClassName(this) + "(executor: " + executor + ", thread: " + thread.getName() +
+                    ", durationMillis: " + duration(TimeUnit.MILLISECONDS) + ", context: " + context +
+                    ", handlerContext: " + handlerContext +
+                    ", stackTrace: " + Arrays.toString(stackTrace) + ')';
+        }
+    }
+
+    /**
+     * Watches the given {@link SingleThreadEventExecutor} and logs all stalls that take longer than the given
+     * threshold.
+     */
+    public static void watch(SingleThreadEventExecutor executor, long threshold, TimeUnit unit) {
+        watch(executor, threshold, unit, LOGGING_LISTENER);
+    }
+
+    /**
+     * Watches the given {@link SingleThreadEventExecutor} and notifies the {@link StallListener} about all stalls
+     * that take longer than the given threshold. Once the executor is terminated it is not watched anymore.
+     */
+    public static void watch(SingleThreadEventExecutor executor, long threshold, TimeUnit unit,
+                             StallListener listener) {
+        requireNonNull(executor, "executor");
+        requireNonNull(unit, "unit");
+        requireNonNull(listener, "listener");
+        long thresholdNanos = unit.toNanos(checkPositive(threshold, "threshold"));
+
+        synchronized (EventExecutorWatchdog.class) {
+            unwatch0(executor);
+            entries.add(new Entry(executor, thresholdNanos, listener));
+            executor.watched = true;
+            if (watchdogThread == null) {
+                watchdogThread = threadFactory.newThread(EventExecutorWatchdog::run);
+                watchdogThread.start();
+            }
+        }
+    }
+
+    /**
+     * Stops watching the given {@link SingleThreadEventExecutor}.
+     *
+     * @return {@code true} if the executor was watched before.
+     */
+    public static boolean unwatch(SingleThreadEventExecutor executor) {
+        requireNonNull(executor, "executor");
+        synchronized (EventExecutorWatchdog.class) {
+            return unwatch0(executor);
+        }
+    }
+
+    private static boolean unwatch0(SingleThreadEventExecutor executor) {
+        for (Entry entry: entries) {
+            if (entry.executor == executor) {
+                entries.remove(entry);
+                executor.watched = false;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void run() {
+        for (;;) {
+            long checkIntervalNanos = MAX_CHECK_INTERVAL_NANOS;
+            for (Entry entry: entries) {
+                if (entry.executor.isTerminated()) {
+                    unwatch(entry.executor);
+                    continue;
+                }
+                entry.check();
+                // Check at least 4 times per threshold so a stall is reported at most 25% later than the threshold.
+                checkIntervalNanos = Math.min(checkIntervalNanos, entry.thresholdNanos >>> 2);
+            }
+
+            synchronized (EventExecutorWatchdog.class) {
+                if (entries.isEmpty()) {
+                    watchdogThread = null;
+                    return;
+                }
+            }
+
+            try {
+                TimeUnit.NANOSECONDS.sleep(Math.max(MIN_CHECK_INTERVAL_NANOS, checkIntervalNanos));
+            } catch (InterruptedException ignore) {
+                // Ignore the interrupt as the watchdog must not terminate while executors are watched.
+            }
+        }
+    }
+
+    private static final class Entry {
+        final SingleThreadEventExecutor executor;
+        final long thresholdNanos;
+        final StallListener listener;
+
+        // Only accessed by the watchdog thread.
+        long lastHeartbeat = -1;
+        long lastHeartbeatNanos;
+        boolean reported;
+
+        Entry(SingleThreadEventExecutor executor, long thresholdNanos, StallListener listener) {
+            this.executor = executor;
+            this.thresholdNanos = thresholdNanos;
+            this.listener = listener;
+        }
+
+        void check() {
+            long heartbeat = executor.heartbeat();
+            long nowNanos = System.nanoTime();
+            if (heartbeat != lastHeartbeat || (heartbeat & 1) != 0) {
+                // Made progress or is waiting for work.
+                lastHeartbeat = heartbeat;
+                lastHeartbeatNanos = nowNanos;
+                reported = false;
+                return;
+            }
+            long stalledNanos = nowNanos - lastHeartbeatNanos;
+            if (reported || stalledNanos < thresholdNanos) {
+                return;
+            }
+            Thread thread = executor.executorThread();
+            if (thread == null) {
+                return;
+            }
+            Object context = executor.heartbeatContext();
+            StackTraceElement[] stackTrace = thread.getStackTrace();
+            if (executor.heartbeat() != heartbeat) {
+                // Not stalled anymore, so the sampled stack may not belong to the stall.
+                return;
+            }
+            reported = true;
+            Object handlerContext = null;
+            try {
+                handlerContext = executor.stalledHandlerContext(context, stackTrace);
+            } catch (Throwable t) {
+                logger.warn("Failed to find the handler of {}", executor, t);
+            }
+            try {
+                listener.stalled(new Stall(executor, thread, context, handlerContext, stalledNanos, stackTrace));
+            } catch (Throwable t) {
+                logger.warn("An exception was thrown by {}.stalled()", listener.getClass().getName(), t);
+            }
+        }
+    }
+
+    /**
+     * Only used to log the stack trace of the stalled thread.
+     */
+    private static final class StallException extends Exception {
+        private static final long serialVersionUID = -2209862587024716441L;
+
+        StallException(Stall stall) {
+            super("Stack trace of " + stall.thread().getName(), null, false, true);
+            setStackTrace(stall.stackTrace);
+        }
+    }
+
+    private EventExecutorWatchdog() { }
+}
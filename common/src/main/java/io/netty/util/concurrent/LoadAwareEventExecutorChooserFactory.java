@@ -0,0 +1,92 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import io.netty.util.internal.UnstableApi;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.ToDoubleFunction;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * {@link EventExecutorChooserFactory} which takes the load of the {@link EventExecutor}s into account.
+ * <p>
+ * It uses the "power of two choices" strategy: two {@link EventExecutor}s are picked at random and the one with the
+ * lower load is returned. This is nearly as good as always picking the least loaded {@link EventExecutor} but does
+ * not need to inspect all of them. Even more important, it does not send a burst of work to the same
+ * {@link EventExecutor} while its load was not updated yet.
+ * <p>
+ * The load is obtained via the given {@link ToDoubleFunction}, which is called from the thread that asks for the
+ * next {@link EventExecutor}. It must be cheap and must not block, racy reads of counters are expected.
+ */
+@UnstableApi
+public final class LoadAwareEventExecutorChooserFactory implements EventExecutorChooserFactory {
+
+    /**
+     * Uses the number of pending tasks of {@link SingleThreadEventExecutor}s as load. All other
+     * {@link EventExecutor}s are treated as not loaded.
+     */
+    public static final LoadAwareEventExecutorChooserFactory PENDING_TASKS =
+            new LoadAwareEventExecutorChooserFactory(executor -> executor instanceof SingleThreadEventExecutor ?
+                    ((SingleThreadEventExecutor) executor).pendingTasks() : 0);
+
+    private final ToDoubleFunction<? super EventExecutor> loadFunction;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param loadFunction  returns the current load of an {@link EventExecutor}. A lower value means less load.
+     */
+    public LoadAwareEventExecutorChooserFactory(ToDoubleFunction<? super EventExecutor> loadFunction) {
+        this.loadFunction = requireNonNull(loadFunction, "loadFunction");
+    }
+
+    @Override
+    public EventExecutorChooser newChooser(EventExecutor[] executors) {
+        if (executors.length == 1) {
+            EventExecutor executor = executors[0];
+            return () -> executor;
+        }
+        return new PowerOfTwoChoicesEventExecutorChooser(executors, loadFunction);
+    }
+
+    private static final class PowerOfTwoChoicesEventExecutorChooser implements EventExecutorChooser {
+        private final EventExecutor[] executors;
+        private final ToDoubleFunction<? super EventExecutor> loadFunction;
+
+        PowerOfTwoChoicesEventExecutorChooser(EventExecutor[] executors,
+                                              ToDoubleFunction<? super EventExecutor> loadFunction) {
+            this.executors = executors;
+            this.loadFunction = loadFunction;
+        }
+
+        @Override
+        public EventExecutor next() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int length = executors.length;
+            int first = random.nextInt(length);
+            // Pick a second index that is guaranteed to be different from the first one.
+            int second = first + 1 + random.nextInt(length - 1);
+            if (second >= length) {
+                second -= length;
+            }
+            EventExecutor a = executors[first];
+            EventExecutor b = executors[second];
+            return loadFunction.applyAsDouble(b) < loadFunction.applyAsDouble(a) ? b : a;
+        }
+    }
+}
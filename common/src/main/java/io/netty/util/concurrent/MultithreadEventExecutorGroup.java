@@ -26,6 +26,8 @@ import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import static java.util.Objects.requireNonNull;
+
 /**
  * {@link EventExecutorGroup} implementation that handles their tasks with multiple threads at
  * the same time.
@@ -36,7 +38,7 @@ public class MultithreadEventExecutorGroup extends AbstractEventExecutorGroup {
     private final List<EventExecutor> readonlyChildren;
     private final AtomicInteger terminatedChildren = new AtomicInteger();
     private final Promise<?> terminationFuture = new DefaultPromise(GlobalEventExecutor.INSTANCE);
-    private final boolean powerOfTwo;
+    private final EventExecutorChooserFactory.EventExecutorChooser chooser;
 
     /**
      * Create a new instance.
@@ -114,6 +116,42 @@ public class MultithreadEventExecutorGroup extends AbstractEventExecutorGroup {
      */
     protected MultithreadEventExecutorGroup(int nThreads, Executor executor, int maxPendingTasks,
                                             RejectedExecutionHandler rejectedHandler, Object... args) {
+        this(nThreads, executor, DefaultEventExecutorChooserFactory.INSTANCE, maxPendingTasks, rejectedHandler, args);
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param nThreads          the number of threads that will be used by this instance.
+     * @param threadFactory     the ThreadFactory to use, or {@code null} if the default should be used.
+     * @param chooserFactory    the {@link EventExecutorChooserFactory} to use.
+     * @param maxPendingTasks   the maximum number of pending tasks before new tasks will be rejected.
+     * @param rejectedHandler   the {@link RejectedExecutionHandler} to use.
+     * @param args              arguments which will passed to each {@link #newChild(Executor, int,
+     * RejectedExecutionHandler, Object...)} call
+     */
+    protected MultithreadEventExecutorGroup(int nThreads, ThreadFactory threadFactory,
+                                            EventExecutorChooserFactory chooserFactory, int maxPendingTasks,
+                                            RejectedExecutionHandler rejectedHandler, Object... args) {
+        this(nThreads, threadFactory == null ? null : new ThreadPerTaskExecutor(threadFactory),
+                chooserFactory, maxPendingTasks, rejectedHandler, args);
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param nThreads          the number of threads that will be used by this instance.
+     * @param executor          the Executor to use, or {@code null} if the default should be used.
+     * @param chooserFactory    the {@link EventExecutorChooserFactory} to use.
+     * @param maxPendingTasks   the maximum number of pending tasks before new tasks will be rejected.
+     * @param rejectedHandler   the {@link RejectedExecutionHandler} to use.
+     * @param args              arguments which will passed to each {@link #newChild(Executor, int,
+     * RejectedExecutionHandler, Object...)} call
+     */
+    protected MultithreadEventExecutorGroup(int nThreads, Executor executor,
+                                            EventExecutorChooserFactory chooserFactory, int maxPendingTasks,
+                                            RejectedExecutionHandler rejectedHandler, Object... args) {
+        requireNonNull(chooserFactory, "chooserFactory");
         if (nThreads <= 0) {
             throw new IllegalArgumentException(String.format("nThreads: %d (expected: > 0)", nThreads));
         }
@@ -123,7 +161,6 @@ public class MultithreadEventExecutorGroup extends AbstractEventExecutorGroup {
         }
 
         children = new EventExecutor[nThreads];
-        powerOfTwo = isPowerOfTwo(children.length);
         for (int i = 0; i < nThreads; i ++) {
             boolean success = false;
             try {
@@ -164,10 +201,9 @@ public class MultithreadEventExecutorGroup extends AbstractEventExecutorGroup {
             e.terminationFuture().addListener(terminationListener);
         }
         readonlyChildren = Collections.unmodifiableList(Arrays.asList(children));
+        chooser = chooserFactory.newChooser(children.clone());
     }
 
-    private final AtomicInteger idx = new AtomicInteger();
-
     /**
      * The {@link EventExecutor}s that are used by this {@link MultithreadEventExecutorGroup}.
      */
@@ -176,19 +212,14 @@ public class MultithreadEventExecutorGroup extends AbstractEventExecutorGroup {
     }
 
     /**
-     * Returns the next {@link EventExecutor} to use. The default implementation will use round-robin, but you may
-     * override this to change the selection algorithm.
+     * Returns the next {@link EventExecutor} to use. The default implementation will ask the
+     * {@link EventExecutorChooserFactory.EventExecutorChooser} that was created by the
+     * {@link EventExecutorChooserFactory} given to the constructor, which uses round-robin by default.
+     * You may also override this to change the selection algorithm.
      */
     @Override
     public EventExecutor next() {
-        if (powerOfTwo) {
-            return children[idx.getAndIncrement() & children.length - 1];
-        }
-        return children[Math.abs(idx.getAndIncrement() % children.length)];
-    }
-
-    private static boolean isPowerOfTwo(int val) {
-        return (val & -val) == val;
+        return chooser.next();
     }
 
     @Override
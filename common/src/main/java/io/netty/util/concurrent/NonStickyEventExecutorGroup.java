@@ -341,27 +341,29 @@ public final class NonStickyEventExecutorGroup implements EventExecutorGroup {
             }
         }
 
+        // Scheduled tasks are executed via execute(Runnable) once their delay elapsed, so these keep the order
+        // guarantee as well.
         @Override
         public ScheduledFuture<?> schedule(Runnable command, long delay,
                                            TimeUnit unit) {
-            throw new UnsupportedOperationException();
+            return DispatchedScheduledFuture.schedule(this, command, delay, unit);
         }
 
         @Override
         public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
-            throw new UnsupportedOperationException();
+            return DispatchedScheduledFuture.schedule(this, callable, delay, unit);
         }
 
         @Override
         public ScheduledFuture<?> scheduleAtFixedRate(
                 Runnable command, long initialDelay, long period, TimeUnit unit) {
-            throw new UnsupportedOperationException();
+            return DispatchedScheduledFuture.scheduleAtFixedRate(this, command, initialDelay, period, unit);
         }
 
         @Override
         public ScheduledFuture<?> scheduleWithFixedDelay(
                 Runnable command, long initialDelay, long delay, TimeUnit unit) {
-            throw new UnsupportedOperationException();
+            return DispatchedScheduledFuture.scheduleWithFixedDelay(this, command, initialDelay, delay, unit);
         }
     }
 }
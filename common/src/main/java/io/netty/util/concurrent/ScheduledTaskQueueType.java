@@ -0,0 +1,38 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import io.netty.util.internal.UnstableApi;
+
+/**
+ * The data structure an {@link AbstractScheduledEventExecutor} uses to keep track of its scheduled tasks.
+ */
+@UnstableApi
+public enum ScheduledTaskQueueType {
+    /**
+     * All scheduled tasks are stored in a priority queue, which costs {@code O(log n)} for every schedule and cancel
+     * operation.
+     */
+    PRIORITY_QUEUE,
+
+    /**
+     * Scheduled tasks are stored in a hierarchical timing wheel with a resolution of one millisecond, which allows to
+     * schedule and cancel tasks in {@code O(1)}. Only tasks that are about to expire are moved to a priority queue, so
+     * tasks are still executed at their exact deadline. This is a good fit if many timeouts are scheduled that are
+     * usually cancelled before they expire, like the ones used by {@code IdleStateHandler}.
+     */
+    TIMING_WHEEL
+}
@@ -0,0 +1,325 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import io.netty.util.concurrent.AbstractScheduledEventExecutor.RunnableScheduledFutureNode;
+import io.netty.util.internal.PriorityQueue;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static io.netty.util.internal.PriorityQueueNode.INDEX_NOT_IN_QUEUE;
+
+/**
+ * Hierarchical timing wheel which is used by {@link AbstractScheduledEventExecutor} to store scheduled tasks that
+ * are not about to expire yet. Adding and removing a task is {@code O(1)}. Once the tick of a task is reached it is
+ * moved to the priority queue of the executor, which then takes care of running it at its exact deadline. As most
+ * timeouts are cancelled long before they expire this keeps the priority queue small.
+ * <p>
+ * The first level has 256 slots of one tick each, every following level has 64 slots that each cover a whole
+ * rotation of the previous level. Tasks of a higher level are cascaded down to the lower levels when the lower levels
+ * wrap around.
+ * <p>
+ * The index of a task in the wheel is stored as its {@link io.netty.util.internal.PriorityQueueNode} index, so removal
+ * does not need any extra allocations. As a task is either stored in the wheel or in the priority queue the flag
+ * {@link #WHEEL_INDEX_FLAG} is used to tell both apart.
+ * <p>
+ * <strong>Not thread-safe</strong>, must only be used from the {@link EventExecutor} thread.
+ */
+final class ScheduledTaskTimingWheel {
+    static final long DEFAULT_TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final int WHEEL_INDEX_FLAG = 1 << 30;
+    private static final int POSITION_BITS = 21;
+    private static final int POSITION_MASK = (1 << POSITION_BITS) - 1;
+    private static final int SLOT_MASK = (1 << 9) - 1;
+
+    private static final int ROOT_BITS = 8;
+    private static final int ROOT_SIZE = 1 << ROOT_BITS;
+    private static final int ROOT_MASK = ROOT_SIZE - 1;
+    private static final int LEVEL_BITS = 6;
+    private static final int LEVEL_SIZE = 1 << LEVEL_BITS;
+    private static final int LEVEL_MASK = LEVEL_SIZE - 1;
+    private static final int LEVELS = 5;
+    private static final int SLOTS = ROOT_SIZE + (LEVELS - 1) * LEVEL_SIZE;
+    // Number of ticks that can be covered by the wheel, everything that is further away is placed in the last slot
+    // and re-inserted once it is cascaded.
+    private static final int MAX_DELTA_BITS = ROOT_BITS + (LEVELS - 1) * LEVEL_BITS;
+
+    private static final RunnableScheduledFutureNode<?>[] EMPTY = new RunnableScheduledFutureNode<?>[0];
+
+    private final long tickNanos;
+    private final RunnableScheduledFutureNode<?>[][] slots = new RunnableScheduledFutureNode<?>[SLOTS][];
+    private final int[] slotSizes = new int[SLOTS];
+    // One bit per slot that tells if it contains any task.
+    private final long[] occupied = new long[SLOTS / Long.SIZE];
+
+    // The next tick that was not expired yet.
+    private long currentTick;
+    private int size;
+
+    ScheduledTaskTimingWheel(long tickNanos, long nanoTime) {
+        this.tickNanos = tickNanos;
+        currentTick = ticks(nanoTime);
+    }
+
+    /**
+     * Returns the number of tasks in the wheel.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Add the task to the wheel. Returns {@code false} if the tick of the task was already reached, in which case the
+     * task needs to be added to the priority queue directly.
+     */
+    boolean add(RunnableScheduledFutureNode<?> task) {
+        long tick = ticks(task.deadlineNanos());
+        if (tick < currentTick || !place(task, tick)) {
+            return false;
+        }
+        size++;
+        return true;
+    }
+
+    /**
+     * Removes the task from the wheel. Returns {@code false} if the task is not contained in the wheel.
+     */
+    boolean remove(RunnableScheduledFutureNode<?> task) {
+        int index = task.priorityQueueIndex(null);
+        if (index < 0 || (index & WHEEL_INDEX_FLAG) == 0) {
+            return false;
+        }
+        int slot = (index >>> POSITION_BITS) & SLOT_MASK;
+        int position = index & POSITION_MASK;
+        RunnableScheduledFutureNode<?>[] tasks = slots[slot];
+        if (tasks == null || position >= slotSizes[slot] || tasks[position] != task) {
+            return false;
+        }
+        int last = --slotSizes[slot];
+        if (position != last) {
+            RunnableScheduledFutureNode<?> moved = tasks[last];
+            tasks[position] = moved;
+            moved.priorityQueueIndex(null, index(slot, position));
+        }
+        tasks[last] = null;
+        if (last == 0) {
+            occupied[slot >>> 6] &= ~(1L << slot);
+        }
+        task.priorityQueueIndex(null, INDEX_NOT_IN_QUEUE);
+        size--;
+        return true;
+    }
+
+    /**
+     * Moves all tasks whose tick was reached at {@code nanoTime} to the given {@link PriorityQueue}.
+     */
+    void expire(long nanoTime, PriorityQueue<RunnableScheduledFutureNode<?>> queue) {
+        long nowTick = ticks(nanoTime);
+        while (currentTick <= nowTick) {
+            if (size == 0) {
+                // Nothing left to expire or cascade, just move forward.
+                currentTick = nowTick + 1;
+                return;
+            }
+            long tick = currentTick;
+            int index = (int) tick & ROOT_MASK;
+            if (index == 0) {
+                cascade(tick);
+            }
+            if (slotSizes[index] != 0) {
+                drain(index, queue);
+            }
+            int next = nextOccupiedRootSlot(index + 1);
+            if (next == -1) {
+                // No more tasks in the current rotation of the first level, skip to the next cascade.
+                currentTick = Math.min(nowTick, tick | ROOT_MASK) + 1;
+            } else {
+                currentTick = Math.min(nowTick + 1, tick + next - index);
+            }
+        }
+    }
+
+    /**
+     * Returns the earliest point in time at which a task of the wheel may expire. This is never later than the
+     * deadline of the task in the wheel that expires first, but may be earlier.
+     */
+    long nextDeadlineNanos() {
+        assert size > 0;
+        long tick = Long.MAX_VALUE;
+        int index = (int) currentTick & ROOT_MASK;
+        int next = nextOccupiedRootSlot(index);
+        if (next == -1) {
+            next = nextOccupiedRootSlot(0);
+        }
+        if (next != -1) {
+            tick = currentTick + ((next - index) & ROOT_MASK);
+        }
+        int shift = ROOT_BITS;
+        for (int level = 1; level < LEVELS; level++, shift += LEVEL_BITS) {
+            long bits = occupied[ROOT_SIZE / Long.SIZE + level - 1];
+            if (bits != 0) {
+                // The slots of this level are cascaded when the current tick is a multiple of the slot size.
+                long cascade = (currentTick + (1L << shift) - 1) >>> shift;
+                long distance = Long.numberOfTrailingZeros(Long.rotateRight(bits, (int) cascade & LEVEL_MASK));
+                tick = Math.min(tick, (cascade + distance) << shift);
+            }
+        }
+        if (tick > Long.MAX_VALUE / tickNanos) {
+            return Long.MAX_VALUE;
+        }
+        return tick * tickNanos;
+    }
+
+    /**
+     * Returns all tasks that are stored in the wheel.
+     */
+    RunnableScheduledFutureNode<?>[] toArray() {
+        if (size == 0) {
+            return EMPTY;
+        }
+        RunnableScheduledFutureNode<?>[] array = new RunnableScheduledFutureNode<?>[size];
+        int i = 0;
+        for (int slot = 0; slot < SLOTS; slot++) {
+            int slotSize = slotSizes[slot];
+            if (slotSize != 0) {
+                System.arraycopy(slots[slot], 0, array, i, slotSize);
+                i += slotSize;
+            }
+        }
+        return array;
+    }
+
+    /**
+     * Removes all tasks from the wheel without resetting their indexes.
+     */
+    void clearIgnoringIndexes() {
+        for (int slot = 0; slot < SLOTS; slot++) {
+            if (slotSizes[slot] != 0) {
+                Arrays.fill(slots[slot], 0, slotSizes[slot], null);
+                slotSizes[slot] = 0;
+            }
+        }
+        Arrays.fill(occupied, 0);
+        size = 0;
+    }
+
+    private long ticks(long nanos) {
+        return Math.floorDiv(nanos, tickNanos);
+    }
+
+    private boolean place(RunnableScheduledFutureNode<?> task, long tick) {
+        long delta = tick - currentTick;
+        int slot;
+        if (delta < ROOT_SIZE) {
+            slot = (int) tick & ROOT_MASK;
+        } else {
+            if (delta >= 1L << MAX_DELTA_BITS) {
+                // Too far in the future, put it in the last slot that can be reached. It will be placed again
+                // once this slot is cascaded.
+                tick = currentTick + (1L << MAX_DELTA_BITS) - 1;
+                delta = tick - currentTick;
+            }
+            int level = 1;
+            int shift = ROOT_BITS;
+            while (delta >= 1L << (shift + LEVEL_BITS)) {
+                level++;
+                shift += LEVEL_BITS;
+            }
+            slot = ROOT_SIZE + (level - 1) * LEVEL_SIZE + ((int) (tick >>> shift) & LEVEL_MASK);
+        }
+        int position = slotSizes[slot];
+        if (position > POSITION_MASK) {
+            return false;
+        }
+        RunnableScheduledFutureNode<?>[] tasks = slots[slot];
+        if (tasks == null) {
+            tasks = slots[slot] = new RunnableScheduledFutureNode<?>[16];
+        } else if (position == tasks.length) {
+            tasks = slots[slot] = Arrays.copyOf(tasks, position << 1);
+        }
+        tasks[position] = task;
+        slotSizes[slot] = position + 1;
+        occupied[slot >>> 6] |= 1L << slot;
+        task.priorityQueueIndex(null, index(slot, position));
+        return true;
+    }
+
+    private void cascade(long tick) {
+        int shift = ROOT_BITS;
+        for (int level = 1; level < LEVELS; level++, shift += LEVEL_BITS) {
+            int index = (int) (tick >>> shift) & LEVEL_MASK;
+            int slot = ROOT_SIZE + (level - 1) * LEVEL_SIZE + index;
+            int slotSize = slotSizes[slot];
+            if (slotSize != 0) {
+                RunnableScheduledFutureNode<?>[] tasks = slots[slot];
+                slots[slot] = null;
+                slotSizes[slot] = 0;
+                occupied[slot >>> 6] &= ~(1L << slot);
+                for (int i = 0; i < slotSize; i++) {
+                    RunnableScheduledFutureNode<?> task = tasks[i];
+                    tasks[i] = null;
+                    // The task stays in the wheel so the size does not change. The position is always valid as
+                    // the task was part of the wheel before.
+                    boolean placed = place(task, ticks(task.deadlineNanos()));
+                    assert placed;
+                }
+                if (slots[slot] == null) {
+                    // Reuse the array.
+                    slots[slot] = tasks;
+                }
+            }
+            if (index != 0) {
+                break;
+            }
+        }
+    }
+
+    private void drain(int slot, PriorityQueue<RunnableScheduledFutureNode<?>> queue) {
+        RunnableScheduledFutureNode<?>[] tasks = slots[slot];
+        int slotSize = slotSizes[slot];
+        slotSizes[slot] = 0;
+        occupied[slot >>> 6] &= ~(1L << slot);
+        size -= slotSize;
+        for (int i = 0; i < slotSize; i++) {
+            RunnableScheduledFutureNode<?> task = tasks[i];
+            tasks[i] = null;
+            task.priorityQueueIndex(null, INDEX_NOT_IN_QUEUE);
+            queue.add(task);
+        }
+    }
+
+    /**
+     * Returns the first occupied slot of the first level that is {@code >= fromIndex} or {@code -1} if there is none.
+     */
+    private int nextOccupiedRootSlot(int fromIndex) {
+        for (int word = fromIndex >>> 6; word < ROOT_SIZE / Long.SIZE; word++) {
+            long bits = occupied[word];
+            if (word == fromIndex >>> 6) {
+                bits &= -1L << fromIndex;
+            }
+            if (bits != 0) {
+                return (word << 6) + Long.numberOfTrailingZeros(bits);
+            }
+        }
+        return -1;
+    }
+
+    private static int index(int slot, int position) {
+        return WHEEL_INDEX_FLAG | slot << POSITION_BITS | position;
+    }
+}
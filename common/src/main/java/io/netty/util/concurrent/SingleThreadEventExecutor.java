@@ -41,17 +41,27 @@ import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 /**
  * {@link OrderedEventExecutor}'s implementation that execute all its submitted tasks in a single thread.
  *
  */
-public class SingleThreadEventExecutor extends AbstractScheduledEventExecutor implements OrderedEventExecutor {
+public class SingleThreadEventExecutor extends AbstractScheduledEventExecutor implements OrderedEventExecutor,
+        EventExecutorMetricProvider {
 
     protected static final int DEFAULT_MAX_PENDING_EXECUTOR_TASKS = Math.max(16,
             SystemPropertyUtil.getInt("io.netty.eventexecutor.maxPendingTasks", Integer.MAX_VALUE));
 
+    // If false no counters are maintained for the EventExecutorMetric, so the hot path does not pay for them.
+    private static final boolean METRICS_ENABLED =
+            SystemPropertyUtil.getBoolean("io.netty.eventexecutor.metrics", true);
+
+    // If > 0 every SingleThreadEventExecutor is watched by the EventExecutorWatchdog and stalls are logged.
+    private static final long DEFAULT_STALL_THRESHOLD_MILLIS = Math.max(0,
+            SystemPropertyUtil.getLong("io.netty.eventexecutor.stallThresholdMillis", 0));
+
     private static final InternalLogger logger =
             InternalLoggerFactory.getInstance(SingleThreadEventExecutor.class);
 
@@ -67,12 +77,22 @@ public class SingleThreadEventExecutor extends AbstractScheduledEventExecutor im
     private static final Runnable NOOP_TASK = () -> {
         // Do nothing.
     };
+    private static final Object TASK_WAIT_SAMPLE_REQUESTED = new Object();
+
+    // The wait time is measured for at most one out of TASK_WAIT_SAMPLE_MASK + 1 executed tasks.
+    private static final int TASK_WAIT_SAMPLE_MASK = 63;
 
     private static final AtomicIntegerFieldUpdater<SingleThreadEventExecutor> STATE_UPDATER =
             AtomicIntegerFieldUpdater.newUpdater(SingleThreadEventExecutor.class, "state");
     private static final AtomicReferenceFieldUpdater<SingleThreadEventExecutor, ThreadProperties> PROPERTIES_UPDATER =
             AtomicReferenceFieldUpdater.newUpdater(
                     SingleThreadEventExecutor.class, ThreadProperties.class, "threadProperties");
+    private static final AtomicLongFieldUpdater<SingleThreadEventExecutor> HEARTBEAT_UPDATER =
+            AtomicLongFieldUpdater.newUpdater(SingleThreadEventExecutor.class, "heartbeat");
+    private static final AtomicLongFieldUpdater<SingleThreadEventExecutor> EXECUTED_TASKS_UPDATER =
+            AtomicLongFieldUpdater.newUpdater(SingleThreadEventExecutor.class, "executedTasks");
+    private static final AtomicReferenceFieldUpdater<SingleThreadEventExecutor, Object> TASK_WAIT_SAMPLE_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(SingleThreadEventExecutor.class, Object.class, "taskWaitSample");
 
     private final Queue<Runnable> taskQueue;
 
@@ -89,6 +109,44 @@ public class SingleThreadEventExecutor extends AbstractScheduledEventExecutor im
 
     private long lastExecutionTime;
 
+    // Only written by the EventExecutor thread. The heartbeat is odd while the thread waits for work and is checked by
+    // the EventExecutorWatchdog.
+    private volatile long heartbeat;
+    // Only updated while watched by the EventExecutorWatchdog. Always written before the heartbeat, so the ordered
+    // store of the heartbeat publishes it to the EventExecutorWatchdog which reads it after the heartbeat.
+    private Object heartbeatContext;
+    volatile boolean watched;
+
+    // Only written by the EventExecutor thread.
+    private volatile long executedTasks;
+    private volatile long taskWaitNanos;
+    private volatile long taskWaitSamples;
+
+    // Either null, TASK_WAIT_SAMPLE_REQUESTED or the TaskWaitSample that is currently measured.
+    @SuppressWarnings("unused")
+    private volatile Object taskWaitSample = METRICS_ENABLED ? TASK_WAIT_SAMPLE_REQUESTED : null;
+
+    private final EventExecutorMetric metric = new EventExecutorMetric() {
+        @Override
+        public int pendingTasks() {
+            return SingleThreadEventExecutor.this.pendingTasks();
+        }
+
+        @Override
+        public long executedTasks() {
+            return METRICS_ENABLED ? executedTasks : -1;
+        }
+
+        @Override
+        public long averageTaskWaitTime(TimeUnit unit) {
+            if (!METRICS_ENABLED) {
+                return -1;
+            }
+            long samples = taskWaitSamples;
+            return samples == 0 ? 0 : unit.convert(taskWaitNanos / samples, TimeUnit.NANOSECONDS);
+        }
+    };
+
     @SuppressWarnings({ "FieldMayBeFinal", "unused" })
     private volatile int state = ST_NOT_STARTED;
 
@@ -143,6 +201,35 @@ public class SingleThreadEventExecutor extends AbstractScheduledEventExecutor im
      * @param rejectedHandler   the {@link RejectedExecutionHandler} to use.
      */
     public SingleThreadEventExecutor(Executor executor, int maxPendingTasks, RejectedExecutionHandler rejectedHandler) {
+        this(executor, maxPendingTasks, rejectedHandler, ScheduledTaskQueueType.PRIORITY_QUEUE);
+    }
+
+    /**
+     * Create a new instance
+     *
+     * @param threadFactory             the {@link ThreadFactory} which will be used for the used {@link Thread}
+     * @param maxPendingTasks           the maximum number of pending tasks before new tasks will be rejected.
+     * @param rejectedHandler           the {@link RejectedExecutionHandler} to use.
+     * @param scheduledTaskQueueType    the {@link ScheduledTaskQueueType} that is used to store scheduled tasks.
+     */
+    public SingleThreadEventExecutor(ThreadFactory threadFactory, int maxPendingTasks,
+                                     RejectedExecutionHandler rejectedHandler,
+                                     ScheduledTaskQueueType scheduledTaskQueueType) {
+        this(new ThreadPerTaskExecutor(threadFactory), maxPendingTasks, rejectedHandler, scheduledTaskQueueType);
+    }
+
+    /**
+     * Create a new instance
+     *
+     * @param executor                  the {@link Executor} which will be used for executing
+     * @param maxPendingTasks           the maximum number of pending tasks before new tasks will be rejected.
+     * @param rejectedHandler           the {@link RejectedExecutionHandler} to use.
+     * @param scheduledTaskQueueType    the {@link ScheduledTaskQueueType} that is used to store scheduled tasks.
+     */
+    public SingleThreadEventExecutor(Executor executor, int maxPendingTasks,
+                                     RejectedExecutionHandler rejectedHandler,
+                                     ScheduledTaskQueueType scheduledTaskQueueType) {
+        super(scheduledTaskQueueType);
         this.executor = ThreadExecutorMap.apply(executor, this);
         taskQueue = newTaskQueue(Math.max(16, maxPendingTasks));
         this.addTaskWakesUp = taskQueue instanceof BlockingQueue;
@@ -190,10 +277,37 @@ public class SingleThreadEventExecutor extends AbstractScheduledEventExecutor im
             if (task == WAKEUP_TASK) {
                 continue;
             }
+            if (task != null) {
+                taskPolled(task);
+            }
             return task;
         }
     }
 
+    private void taskPolled(Runnable task) {
+        reportProgress(task);
+        if (!METRICS_ENABLED) {
+            return;
+        }
+
+        long executed = executedTasks + 1;
+        // Use lazySet as we are the only writer and the value is only used for metrics.
+        EXECUTED_TASKS_UPDATER.lazySet(this, executed);
+
+        Object sample = taskWaitSample;
+        if (sample instanceof TaskWaitSample) {
+            TaskWaitSample waitSample = (TaskWaitSample) sample;
+            if (waitSample.task == task) {
+                taskWaitNanos += System.nanoTime() - waitSample.submitNanos;
+                taskWaitSamples++;
+                taskWaitSample = null;
+            }
+        } else if (sample == null && (executed & TASK_WAIT_SAMPLE_MASK) == 0) {
+            // Ask the next submitter to record the time it submitted its task.
+            taskWaitSample = TASK_WAIT_SAMPLE_REQUESTED;
+        }
+    }
+
     /**
      * Take the next {@link Runnable} from the task queue and so will block if no task is currently present.
      * <p>
@@ -213,22 +327,25 @@ public class SingleThreadEventExecutor extends AbstractScheduledEventExecutor im
 
         BlockingQueue<Runnable> taskQueue = (BlockingQueue<Runnable>) this.taskQueue;
         for (;;) {
-            RunnableScheduledFuture<?> scheduledTask = peekScheduledTask();
-            if (scheduledTask == null) {
+            long delayNanos = nextScheduledTaskNano();
+            if (delayNanos == -1) {
                 Runnable task = null;
                 try {
+                    reportIdle();
                     task = taskQueue.take();
                     if (task == WAKEUP_TASK) {
                         task = null;
+                    } else {
+                        taskPolled(task);
                     }
                 } catch (InterruptedException e) {
                     // Ignore
                 }
                 return task;
             } else {
-                long delayNanos = scheduledTask.delayNanos();
                 Runnable task = null;
                 if (delayNanos > 0) {
+                    reportIdle();
                     try {
                         task = taskQueue.poll(delayNanos, TimeUnit.NANOSECONDS);
                     } catch (InterruptedException e) {
@@ -246,6 +363,7 @@ public class SingleThreadEventExecutor extends AbstractScheduledEventExecutor im
                 }
 
                 if (task != null) {
+                    taskPolled(task);
                     return task;
                 }
             }
@@ -285,11 +403,20 @@ public class SingleThreadEventExecutor extends AbstractScheduledEventExecutor im
      * before.
      */
     private void addTask(Runnable task) {
+        TaskWaitSample sample = taskWaitSample == TASK_WAIT_SAMPLE_REQUESTED ? sampleTaskWait(task) : null;
         if (!offerTask(task)) {
+            if (sample != null) {
+                TASK_WAIT_SAMPLE_UPDATER.compareAndSet(this, sample, TASK_WAIT_SAMPLE_REQUESTED);
+            }
             rejectedExecutionHandler.rejected(task, this);
         }
     }
 
+    private TaskWaitSample sampleTaskWait(Runnable task) {
+        TaskWaitSample sample = new TaskWaitSample(task, System.nanoTime());
+        return TASK_WAIT_SAMPLE_UPDATER.compareAndSet(this, TASK_WAIT_SAMPLE_REQUESTED, sample) ? sample : null;
+    }
+
     /**
      * @see Queue#offer(Object)
      */
@@ -305,7 +432,15 @@ public class SingleThreadEventExecutor extends AbstractScheduledEventExecutor im
      * @see Queue#remove(Object)
      */
     protected final boolean removeTask(Runnable task) {
-        return taskQueue.remove(task);
+        if (taskQueue.remove(task)) {
+            Object sample = taskWaitSample;
+            if (sample instanceof TaskWaitSample && ((TaskWaitSample) sample).task == task) {
+                // The task will never be polled, so request a new sample.
+                TASK_WAIT_SAMPLE_UPDATER.compareAndSet(this, sample, TASK_WAIT_SAMPLE_REQUESTED);
+            }
+            return true;
+        }
+        return false;
     }
 
     /**
@@ -371,6 +506,73 @@ public class SingleThreadEventExecutor extends AbstractScheduledEventExecutor im
         return processedTasks;
     }
 
+    /**
+     * Reports that the {@link EventExecutor} thread made progress and is now processing the given {@code context}
+     * (a task, a {@code Channel} or {@code null} if unknown). This is used by the {@link EventExecutorWatchdog} to
+     * detect stalls and is called automatically for every task taken via {@link #pollTask()} or {@link #takeTask()}.
+     *
+     * This method must be called from the {@link EventExecutor} thread.
+     */
+    protected final void reportProgress(Object context) {
+        if (watched) {
+            heartbeatContext = context;
+        }
+        // Use lazySet as we are the only writer. This will always produce an even value.
+        HEARTBEAT_UPDATER.lazySet(this, (heartbeat | 1) + 1);
+    }
+
+    /**
+     * Reports that the {@link EventExecutor} thread is about to block while waiting for work, so the
+     * {@link EventExecutorWatchdog} will not treat it as stalled. Sub-classes that override {@link #run()} and block
+     * without using {@link #takeTask()} must call this method before blocking.
+     *
+     * This method must be called from the {@link EventExecutor} thread.
+     */
+    protected final void reportIdle() {
+        if (watched) {
+            heartbeatContext = null;
+        }
+        // Use lazySet as we are the only writer. This will always produce an odd value.
+        HEARTBEAT_UPDATER.lazySet(this, heartbeat | 1);
+    }
+
+    long heartbeat() {
+        return heartbeat;
+    }
+
+    /**
+     * Must only be called after {@link #heartbeat()} was read.
+     */
+    Object heartbeatContext() {
+        return heartbeatContext;
+    }
+
+    /**
+     * Returns the handler (for example a {@code ChannelHandlerContext}) that was invoked while processing the given
+     * {@code context} when a stall was detected or {@code null} if unknown. The default implementation always
+     * returns {@code null}.
+     *
+     * This method is called from the {@link EventExecutorWatchdog} thread with the stack that was sampled from the
+     * stalled thread, so it must not expect the handler to still be running.
+     */
+    protected Object stalledHandlerContext(Object context, StackTraceElement[] stackTrace) {
+        return null;
+    }
+
+    Thread executorThread() {
+        return thread;
+    }
+
+    /**
+     * Returns the {@link EventExecutorMetric} of this {@link SingleThreadEventExecutor}. The metric is maintained with
+     * cheap counters, which can be disabled by setting the system property {@code io.netty.eventexecutor.metrics} to
+     * {@code false}. In this case the values that depend on them are reported as unknown.
+     */
+    @Override
+    public EventExecutorMetric metric() {
+        return metric;
+    }
+
     /**
      * Returns the amount of time left until the scheduled task with the closest dead line is executed.
      *
@@ -378,12 +580,8 @@ public class SingleThreadEventExecutor extends AbstractScheduledEventExecutor im
      */
     protected final long delayNanos(long currentTimeNanos) {
         assert inEventLoop();
-        RunnableScheduledFuture<?> scheduledTask = peekScheduledTask();
-        if (scheduledTask == null) {
-            return SCHEDULE_PURGE_INTERVAL;
-        }
-
-        return scheduledTask.delayNanos(currentTimeNanos);
+        long nanoTime = currentTimeNanos - START_TIME;
+        return Math.max(0, nextScheduledTaskDeadlineNanos(nanoTime + SCHEDULE_PURGE_INTERVAL) - nanoTime);
     }
 
     /**
@@ -394,11 +592,7 @@ public class SingleThreadEventExecutor extends AbstractScheduledEventExecutor im
      */
     protected final long deadlineNanos() {
         assert inEventLoop();
-        RunnableScheduledFuture<?> scheduledTask = peekScheduledTask();
-        if (scheduledTask == null) {
-            return nanoTime() + SCHEDULE_PURGE_INTERVAL;
-        }
-        return scheduledTask.deadlineNanos();
+        return nextScheduledTaskDeadlineNanos(nanoTime() + SCHEDULE_PURGE_INTERVAL);
     }
 
     /**
@@ -733,6 +927,56 @@ public class SingleThreadEventExecutor extends AbstractScheduledEventExecutor im
         }
     }
 
+    /**
+     * Adds all the given tasks to the task queue and wakes up the {@link EventExecutor} thread at most once.
+     */
+    @Override
+    public void executeBatch(Collection<? extends Runnable> tasks) {
+        requireNonNull(tasks, "tasks");
+        for (Runnable task: tasks) {
+            requireNonNull(task, "task");
+        }
+        if (tasks.isEmpty()) {
+            return;
+        }
+
+        boolean inEventLoop = inEventLoop();
+        boolean wakeup = false;
+        try {
+            for (Runnable task: tasks) {
+                addTask(task);
+                if (!wakeup && !addTaskWakesUp && wakesUpForTask(task)) {
+                    wakeup = true;
+                }
+            }
+        } finally {
+            // Also run the tasks that were added before one was rejected.
+            if (!inEventLoop) {
+                startThread();
+            }
+            if (wakeup) {
+                wakeup(inEventLoop);
+            }
+        }
+
+        if (!inEventLoop && isShutdown()) {
+            boolean reject = false;
+            try {
+                for (Runnable task: tasks) {
+                    if (removeTask(task)) {
+                        reject = true;
+                    }
+                }
+            } catch (UnsupportedOperationException e) {
+                // The task queue does not support removal so the best thing we can do is to just move on and
+                // hope we will be able to pick-up the tasks before its completely terminated.
+            }
+            if (reject) {
+                reject();
+            }
+        }
+    }
+
     @Override
     public <T> T invokeAny(Collection<? extends Callable<T>> tasks) throws InterruptedException, ExecutionException {
         throwIfInEventLoop("invokeAny");
@@ -843,6 +1087,9 @@ public class SingleThreadEventExecutor extends AbstractScheduledEventExecutor im
 
     private void doStartThread() {
         assert thread == null;
+        if (DEFAULT_STALL_THRESHOLD_MILLIS > 0) {
+            EventExecutorWatchdog.watch(this, DEFAULT_STALL_THRESHOLD_MILLIS, TimeUnit.MILLISECONDS);
+        }
         executor.execute(() -> {
             thread = Thread.currentThread();
             if (interrupted) {
@@ -983,5 +1230,25 @@ public class SingleThreadEventExecutor extends AbstractScheduledEventExecutor im
         public boolean isAlive() {
             return t.isAlive();
         }
+
+        @Override
+        public int cpu() {
+            return ThreadPlacement.cpu(t);
+        }
+
+        @Override
+        public int numaNode() {
+            return ThreadPlacement.numaNode(t);
+        }
+    }
+
+    private static final class TaskWaitSample {
+        final Runnable task;
+        final long submitNanos;
+
+        TaskWaitSample(Runnable task, long submitNanos) {
+            this.task = task;
+            this.submitNanos = submitNanos;
+        }
     }
 }
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import io.netty.util.internal.UnstableApi;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * {@link EventExecutor} implementation which executes each task in its own {@link Thread} that is created by the
+ * given {@link ThreadFactory} via a {@link ThreadPerTaskExecutor}. It makes no guarantees about the ordering of task
+ * execution and so is usually wrapped by a {@link NonStickyEventExecutorGroup}.
+ * <p>
+ * This is only a good fit when creating a {@link Thread} is cheap, like when using virtual threads. See
+ * {@link VirtualThreadEventExecutorGroup}.
+ * <p>
+ * Scheduled tasks are timed by the {@link GlobalEventExecutor} and executed like any other task once their delay
+ * elapsed. If the executor was shutdown by then, they are failed with a {@link RejectedExecutionException}.
+ */
+@UnstableApi
+public final class ThreadPerTaskEventExecutor extends AbstractEventExecutor {
+    // The lowest bit is set once the executor was shutdown, the other bits count the running tasks.
+    private static final int SHUTDOWN = 1;
+    private static final int TASK = 2;
+
+    private final ThreadPerTaskExecutor executor;
+    private final AtomicInteger state = new AtomicInteger();
+    private final Promise<?> terminationFuture = GlobalEventExecutor.INSTANCE.newPromise();
+
+    public ThreadPerTaskEventExecutor(ThreadFactory threadFactory) {
+        executor = new ThreadPerTaskExecutor(threadFactory);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        requireNonNull(task, "task");
+        if ((state.addAndGet(TASK) & SHUTDOWN) != 0) {
+            taskDone();
+            throw new RejectedExecutionException("event executor terminated");
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    safeExecute(task);
+                } finally {
+                    taskDone();
+                }
+            });
+        } catch (Throwable cause) {
+            taskDone();
+            throw cause;
+        }
+    }
+
+    private void taskDone() {
+        if (state.addAndGet(-TASK) == SHUTDOWN) {
+            terminationFuture.trySuccess(null);
+        }
+    }
+
+    /**
+     * Returns the number of tasks that are currently executed.
+     */
+    public int runningTasks() {
+        return state.get() >>> 1;
+    }
+
+    @Override
+    public boolean inEventLoop(Thread thread) {
+        return false;
+    }
+
+    @Override
+    public boolean isShuttingDown() {
+        return isShutdown();
+    }
+
+    /**
+     * Rejects all new tasks and completes the {@link #terminationFuture()} once all running tasks are done. The
+     * {@code quietPeriod} and {@code timeout} are ignored as running tasks can not be interrupted.
+     */
+    @Override
+    public Future<?> shutdownGracefully(long quietPeriod, long timeout, TimeUnit unit) {
+        shutdown();
+        return terminationFuture();
+    }
+
+    @Override
+    public Future<?> terminationFuture() {
+        return terminationFuture;
+    }
+
+    @Deprecated
+    @Override
+    public void shutdown() {
+        for (;;) {
+            int state = this.state.get();
+            if ((state & SHUTDOWN) != 0) {
+                return;
+            }
+            if (this.state.compareAndSet(state, state | SHUTDOWN)) {
+                if (state == 0) {
+                    terminationFuture.trySuccess(null);
+                }
+                return;
+            }
+        }
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return (state.get() & SHUTDOWN) != 0;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return terminationFuture.isDone();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return terminationFuture.await(timeout, unit);
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+        checkNotShutdown();
+        return DispatchedScheduledFuture.schedule(this, command, delay, unit);
+    }
+
+    @Override
+    public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+        checkNotShutdown();
+        return DispatchedScheduledFuture.schedule(this, callable, delay, unit);
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+        checkNotShutdown();
+        return DispatchedScheduledFuture.scheduleAtFixedRate(this, command, initialDelay, period, unit);
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
+        checkNotShutdown();
+        return DispatchedScheduledFuture.scheduleWithFixedDelay(this, command, initialDelay, delay, unit);
+    }
+
+    private void checkNotShutdown() {
+        if (isShutdown()) {
+            throw new RejectedExecutionException("event executor terminated");
+        }
+    }
+}
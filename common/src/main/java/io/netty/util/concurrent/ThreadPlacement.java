@@ -0,0 +1,57 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import io.netty.util.internal.UnstableApi;
+
+/**
+ * Implemented by {@link Thread}s that know where they are placed, for example because they are pinned to a CPU.
+ * Allocators and {@link EventExecutorChooserFactory.EventExecutorChooser}s can use this information to keep data
+ * local to the CPU or NUMA node of the {@link Thread} that uses it.
+ */
+@UnstableApi
+public interface ThreadPlacement {
+
+    /**
+     * Returned if the CPU or NUMA node is not known.
+     */
+    int UNKNOWN = -1;
+
+    /**
+     * Returns the CPU this {@link Thread} is pinned to or {@link #UNKNOWN} if it may run on more than one CPU.
+     */
+    int cpu();
+
+    /**
+     * Returns the NUMA node this {@link Thread} is pinned to or {@link #UNKNOWN} if it may run on more than one NUMA
+     * node.
+     */
+    int numaNode();
+
+    /**
+     * Returns the CPU the given {@link Thread} is pinned to or {@link #UNKNOWN}.
+     */
+    static int cpu(Thread thread) {
+        return thread instanceof ThreadPlacement ? ((ThreadPlacement) thread).cpu() : UNKNOWN;
+    }
+
+    /**
+     * Returns the NUMA node the given {@link Thread} is pinned to or {@link #UNKNOWN}.
+     */
+    static int numaNode(Thread thread) {
+        return thread instanceof ThreadPlacement ? ((ThreadPlacement) thread).numaNode() : UNKNOWN;
+    }
+}
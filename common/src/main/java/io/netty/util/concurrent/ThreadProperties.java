@@ -58,4 +58,18 @@ public interface ThreadProperties {
      * @see Thread#isAlive()
      */
     boolean isAlive();
+
+    /**
+     * @see ThreadPlacement#cpu()
+     */
+    default int cpu() {
+        return ThreadPlacement.UNKNOWN;
+    }
+
+    /**
+     * @see ThreadPlacement#numaNode()
+     */
+    default int numaNode() {
+        return ThreadPlacement.UNKNOWN;
+    }
 }
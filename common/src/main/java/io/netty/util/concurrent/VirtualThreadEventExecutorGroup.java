@@ -0,0 +1,287 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import io.netty.util.internal.UnstableApi;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link EventExecutorGroup} which executes tasks on
+ * <a href="https://openjdk.org/jeps/444">virtual threads</a> and so is a good fit for offloading blocking work
+ * (like JDBC or filesystem access) from the {@code EventLoop}s without the need to size a pool of
+ * platform threads.
+ * <p>
+ * Each {@link EventExecutor} returned by {@link #next()} is an {@link OrderedEventExecutor}, so all tasks submitted
+ * to it are executed one after each other in submission order, but not necessary by the same {@link Thread}. Callers
+ * that need ordering (for example per {@code Channel}) should call {@link #next()} once and keep the
+ * returned {@link EventExecutor}. See {@link NonStickyEventExecutorGroup} for the details.
+ * <p>
+ * Virtual threads are detected at runtime and require Java 21 or later, use {@link #isAvailable()} to check if this
+ * {@link EventExecutorGroup} can be used.
+ */
+@UnstableApi
+public final class VirtualThreadEventExecutorGroup implements EventExecutorGroup {
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(
+            VirtualThreadEventExecutorGroup.class);
+    private static final AtomicInteger poolId = new AtomicInteger();
+
+    private static final Method OF_VIRTUAL;
+    private static final Method BUILDER_NAME;
+    private static final Method BUILDER_FACTORY;
+    private static final Throwable UNAVAILABILITY_CAUSE;
+
+    static {
+        Method ofVirtual = null;
+        Method name = null;
+        Method factory = null;
+        Throwable cause = null;
+        try {
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            name = builderClass.getMethod("name", String.class, long.class);
+            factory = builderClass.getMethod("factory");
+            // Will fail on Java 19 and 20 if preview features are not enabled.
+            ThreadFactory threadFactory = (ThreadFactory) factory.invoke(ofVirtual.invoke(null));
+            if (threadFactory == null) {
+                throw new IllegalStateException("Thread.ofVirtual().factory() returned null");
+            }
+        } catch (Throwable t) {
+            cause = t;
+            ofVirtual = null;
+            name = null;
+            factory = null;
+        }
+        OF_VIRTUAL = ofVirtual;
+        BUILDER_NAME = name;
+        BUILDER_FACTORY = factory;
+        UNAVAILABILITY_CAUSE = cause;
+        logger.debug("virtual threads: {}", cause == null ? "available" : "unavailable");
+    }
+
+    /**
+     * Returns {@code true} if virtual threads are supported by the running JVM.
+     */
+    public static boolean isAvailable() {
+        return UNAVAILABILITY_CAUSE == null;
+    }
+
+    /**
+     * Ensure that virtual threads are supported by the running JVM.
+     *
+     * @throws UnsupportedOperationException if unavailable
+     */
+    public static void ensureAvailability() {
+        if (UNAVAILABILITY_CAUSE != null) {
+            throw (UnsupportedOperationException) new UnsupportedOperationException(
+                    "virtual threads are not supported by this JVM").initCause(UNAVAILABILITY_CAUSE);
+        }
+    }
+
+    /**
+     * Returns the cause of unavailability of virtual threads.
+     *
+     * @return the cause if unavailable. {@code null} if available.
+     */
+    public static Throwable unavailabilityCause() {
+        return UNAVAILABILITY_CAUSE;
+    }
+
+    /**
+     * Returns a new {@link ThreadFactory} which creates virtual threads named {@code prefix0}, {@code prefix1}, ...
+     *
+     * @throws UnsupportedOperationException if virtual threads are not supported by this JVM.
+     */
+    public static ThreadFactory newVirtualThreadFactory(String prefix) {
+        ensureAvailability();
+        try {
+            return (ThreadFactory) BUILDER_FACTORY.invoke(BUILDER_NAME.invoke(OF_VIRTUAL.invoke(null), prefix, 0L));
+        } catch (Exception e) {
+            throw new IllegalStateException("failed to create virtual thread factory", e);
+        }
+    }
+
+    private final ThreadPerTaskEventExecutor executor;
+    private final NonStickyEventExecutorGroup group;
+
+    /**
+     * Creates a new instance.
+     *
+     * @throws UnsupportedOperationException if virtual threads are not supported by this JVM.
+     */
+    public VirtualThreadEventExecutorGroup() {
+        this(1024);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param maxTaskExecutePerRun the maximum number of tasks of one {@link EventExecutor} that are executed by a
+     *                             virtual thread before the remaining tasks are handed over to a new one.
+     * @throws UnsupportedOperationException if virtual threads are not supported by this JVM.
+     */
+    public VirtualThreadEventExecutorGroup(int maxTaskExecutePerRun) {
+        this(newVirtualThreadFactory("virtualThreadEventExecutorGroup-" + poolId.incrementAndGet() + '-'),
+                maxTaskExecutePerRun);
+    }
+
+    /**
+     * Creates a new instance which uses the given {@link ThreadFactory}, which is expected to create virtual
+     * threads (see {@link #newVirtualThreadFactory(String)}).
+     */
+    public VirtualThreadEventExecutorGroup(ThreadFactory threadFactory, int maxTaskExecutePerRun) {
+        executor = new ThreadPerTaskEventExecutor(threadFactory);
+        group = new NonStickyEventExecutorGroup(executor, maxTaskExecutePerRun);
+    }
+
+    /**
+     * Returns the number of tasks that are currently executed.
+     */
+    public int runningTasks() {
+        return executor.runningTasks();
+    }
+
+    @Override
+    public boolean isShuttingDown() {
+        return group.isShuttingDown();
+    }
+
+    @Override
+    public Future<?> shutdownGracefully() {
+        return group.shutdownGracefully();
+    }
+
+    @Override
+    public Future<?> shutdownGracefully(long quietPeriod, long timeout, TimeUnit unit) {
+        return group.shutdownGracefully(quietPeriod, timeout, unit);
+    }
+
+    @Override
+    public Future<?> terminationFuture() {
+        return group.terminationFuture();
+    }
+
+    @SuppressWarnings("deprecation")
+    @Override
+    public void shutdown() {
+        group.shutdown();
+    }
+
+    @SuppressWarnings("deprecation")
+    @Override
+    public List<Runnable> shutdownNow() {
+        return group.shutdownNow();
+    }
+
+    @Override
+    public EventExecutor next() {
+        return group.next();
+    }
+
+    @Override
+    public Iterator<EventExecutor> iterator() {
+        return group.iterator();
+    }
+
+    @Override
+    public Future<?> submit(Runnable task) {
+        return group.submit(task);
+    }
+
+    @Override
+    public <T> Future<T> submit(Runnable task, T result) {
+        return group.submit(task, result);
+    }
+
+    @Override
+    public <T> Future<T> submit(Callable<T> task) {
+        return group.submit(task);
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+        return group.schedule(command, delay, unit);
+    }
+
+    @Override
+    public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+        return group.schedule(callable, delay, unit);
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+        return group.scheduleAtFixedRate(command, initialDelay, period, unit);
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
+        return group.scheduleWithFixedDelay(command, initialDelay, delay, unit);
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return group.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return group.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return group.awaitTermination(timeout, unit);
+    }
+
+    @Override
+    public <T> List<java.util.concurrent.Future<T>> invokeAll(
+            Collection<? extends Callable<T>> tasks) throws InterruptedException {
+        return group.invokeAll(tasks);
+    }
+
+    @Override
+    public <T> List<java.util.concurrent.Future<T>> invokeAll(
+            Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit) throws InterruptedException {
+        return group.invokeAll(tasks, timeout, unit);
+    }
+
+    @Override
+    public <T> T invokeAny(Collection<? extends Callable<T>> tasks) throws InterruptedException, ExecutionException {
+        return group.invokeAny(tasks);
+    }
+
+    @Override
+    public <T> T invokeAny(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        return group.invokeAny(tasks, timeout, unit);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        group.execute(command);
+    }
+}
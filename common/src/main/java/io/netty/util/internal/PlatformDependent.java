@@ -423,6 +423,13 @@ public final class PlatformDependent {
         return PlatformDependent0.getInt(address);
     }
 
+    /**
+     * Reads the {@code int} at the given native memory {@code address} with volatile semantics.
+     */
+    public static int getIntVolatile(long address) {
+        return PlatformDependent0.getIntVolatile(address);
+    }
+
     public static long getLong(long address) {
         return PlatformDependent0.getLong(address);
     }
@@ -551,6 +558,21 @@ public final class PlatformDependent {
         PlatformDependent0.putInt(address, value);
     }
 
+    /**
+     * Writes the {@code int} to the given native memory {@code address} with release (ordered) semantics.
+     */
+    public static void putIntOrdered(long address, int newValue) {
+        PlatformDependent0.putIntOrdered(address, newValue);
+    }
+
+    /**
+     * Writes the {@code int} to the given native memory {@code address} with volatile semantics, so it is ordered
+     * before any subsequent volatile read.
+     */
+    public static void putIntVolatile(long address, int value) {
+        PlatformDependent0.putIntVolatile(address, value);
+    }
+
     public static void putLong(long address, long value) {
         PlatformDependent0.putLong(address, value);
     }
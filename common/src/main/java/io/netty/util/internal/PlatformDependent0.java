@@ -463,6 +463,10 @@ final class PlatformDependent0 {
         return UNSAFE.getInt(address);
     }
 
+    static int getIntVolatile(long address) {
+        return UNSAFE.getIntVolatile(null, address);
+    }
+
     static long getLong(long address) {
         return UNSAFE.getLong(address);
     }
@@ -495,6 +499,14 @@ final class PlatformDependent0 {
         UNSAFE.putInt(address, value);
     }
 
+    static void putIntOrdered(long address, int newValue) {
+        UNSAFE.putOrderedInt(null, address, newValue);
+    }
+
+    static void putIntVolatile(long address, int value) {
+        UNSAFE.putIntVolatile(null, address, value);
+    }
+
     static void putLong(long address, long value) {
         UNSAFE.putLong(address, value);
     }
@@ -23,6 +23,7 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -215,6 +216,22 @@ public class HashedWheelTimerTest {
         timer.stop();
     }
 
+    @Test(timeout = 3000)
+    public void testExecutionOnTaskExecutor() throws InterruptedException {
+        final AtomicInteger executions = new AtomicInteger();
+        final HashedWheelTimer timer = new HashedWheelTimer(Executors.defaultThreadFactory(), 100,
+                TimeUnit.MILLISECONDS, 32, true, 2, command -> {
+                    executions.incrementAndGet();
+                    command.run();
+                });
+        final CountDownLatch latch = new CountDownLatch(1);
+        timer.newTimeout(createCountDownLatchTimerTask(latch), 1, TimeUnit.MILLISECONDS);
+        latch.await();
+        assertEquals(1, executions.get());
+        assertTrue(timer.tickLag(TimeUnit.NANOSECONDS) >= 0);
+        timer.stop();
+    }
+
     private static TimerTask createNoOpTimerTask() {
         return timeout -> {
         };
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util;
+
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.junit.Test;
+
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ShardedHashedWheelTimerTest {
+
+    @Test(timeout = 5000)
+    public void testTimeoutsExpireOnAllShards() throws Exception {
+        final ShardedHashedWheelTimer timer = new ShardedHashedWheelTimer(4);
+        try {
+            final CountDownLatch latch = new CountDownLatch(100);
+            Thread[] threads = new Thread[4];
+            for (int i = 0; i < threads.length; i++) {
+                threads[i] = new Thread(() -> {
+                    for (int j = 0; j < 25; j++) {
+                        timer.newTimeout(timeout -> latch.countDown(), 10, TimeUnit.MILLISECONDS);
+                    }
+                });
+                threads[i].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            latch.await();
+            assertEquals(0, timer.pendingTimeouts());
+        } finally {
+            timer.stop();
+        }
+    }
+
+    @Test
+    public void testSameKeyUsesSameShard() {
+        final ShardedHashedWheelTimer timer = new ShardedHashedWheelTimer(8);
+        try {
+            Timeout first = timer.newTimeout("key", timeout -> { }, 1, TimeUnit.HOURS);
+            Timeout second = timer.newTimeout("key", timeout -> { }, 1, TimeUnit.HOURS);
+            assertSame(first.timer(), second.timer());
+            assertEquals(2, timer.pendingTimeouts());
+
+            int shardsWithTimeouts = 0;
+            for (int i = 0; i < timer.shards(); i++) {
+                if (timer.pendingTimeouts(i) != 0) {
+                    assertEquals(2, timer.pendingTimeouts(i));
+                    shardsWithTimeouts++;
+                }
+            }
+            assertEquals(1, shardsWithTimeouts);
+        } finally {
+            Set<Timeout> unprocessed = timer.stop();
+            assertEquals(2, unprocessed.size());
+        }
+    }
+
+    @Test
+    public void testShardIsPickedByThread() throws Exception {
+        final ShardedHashedWheelTimer timer = new ShardedHashedWheelTimer(2);
+        try {
+            final AtomicReference<Timeout> other = new AtomicReference<>();
+            Timeout timeout = timer.newTimeout(t -> { }, 1, TimeUnit.HOURS);
+            Thread thread = new Thread(() -> other.set(timer.newTimeout(t -> { }, 1, TimeUnit.HOURS)));
+            thread.start();
+            thread.join();
+            // The shard is picked by the id of the calling thread.
+            if (thread.getId() % 2 == Thread.currentThread().getId() % 2) {
+                assertSame(timeout.timer(), other.get().timer());
+            } else {
+                assertNotSame(timeout.timer(), other.get().timer());
+            }
+        } finally {
+            timer.stop();
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void testTasksRunOnTaskExecutor() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor(new DefaultThreadFactory("taskExecutor"));
+        final ShardedHashedWheelTimer timer = new ShardedHashedWheelTimer(2,
+                new DefaultThreadFactory(ShardedHashedWheelTimer.class), 10, TimeUnit.MILLISECONDS, 64, -1, executor);
+        try {
+            final AtomicReference<Thread> thread = new AtomicReference<>();
+            final CountDownLatch latch = new CountDownLatch(1);
+            timer.newTimeout(timeout -> {
+                thread.set(Thread.currentThread());
+                latch.countDown();
+            }, 1, TimeUnit.MILLISECONDS);
+            latch.await();
+            assertTrue(thread.get().getName().startsWith("taskExecutor"));
+            for (int i = 0; i < timer.shards(); i++) {
+                assertTrue(timer.tickLag(i, TimeUnit.NANOSECONDS) >= 0);
+            }
+        } finally {
+            timer.stop();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testCountedAsOneInstance() {
+        int instances = HashedWheelTimer.activeInstances();
+        ShardedHashedWheelTimer timer = new ShardedHashedWheelTimer(8);
+        try {
+            timer.start();
+            assertEquals(instances + 1, HashedWheelTimer.activeInstances());
+        } finally {
+            timer.stop();
+        }
+        assertEquals(instances, HashedWheelTimer.activeInstances());
+    }
+}
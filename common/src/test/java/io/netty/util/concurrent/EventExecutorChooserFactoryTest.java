@@ -0,0 +1,124 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class EventExecutorChooserFactoryTest {
+
+    private EventExecutor[] executors;
+
+    @Before
+    public void setUp() {
+        executors = new EventExecutor[3];
+        for (int i = 0; i < executors.length; i++) {
+            executors[i] = new SingleThreadEventExecutor();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        for (EventExecutor executor : executors) {
+            executor.shutdownGracefully();
+        }
+    }
+
+    @Test
+    public void testRoundRobin() {
+        EventExecutorChooserFactory.EventExecutorChooser chooser =
+                DefaultEventExecutorChooserFactory.INSTANCE.newChooser(executors);
+        for (int i = 0; i < executors.length * 3; i++) {
+            assertSame(executors[i % executors.length], chooser.next());
+        }
+    }
+
+    @Test
+    public void testRoundRobinPowerOfTwo() {
+        EventExecutor[] executors = { this.executors[0], this.executors[1] };
+        EventExecutorChooserFactory.EventExecutorChooser chooser =
+                DefaultEventExecutorChooserFactory.INSTANCE.newChooser(executors);
+        for (int i = 0; i < executors.length * 3; i++) {
+            assertSame(executors[i % executors.length], chooser.next());
+        }
+    }
+
+    @Test
+    public void testLoadAwareNeverChoosesMostLoaded() {
+        final Map<EventExecutor, Integer> loads = new IdentityHashMap<>();
+        loads.put(executors[0], 1);
+        loads.put(executors[1], 100);
+        loads.put(executors[2], 2);
+
+        EventExecutorChooserFactory.EventExecutorChooser chooser =
+                new LoadAwareEventExecutorChooserFactory(loads::get).newChooser(executors);
+        Set<EventExecutor> chosen = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            EventExecutor executor = chooser.next();
+            assertNotSame(executors[1], executor);
+            chosen.add(executor);
+        }
+        // The least loaded one wins against both others, the second one only against the most loaded.
+        assertEquals(2, chosen.size());
+        assertTrue(chosen.contains(executors[0]));
+        assertTrue(chosen.contains(executors[2]));
+    }
+
+    @Test
+    public void testLoadAwareTwoExecutorsAlwaysChoosesLeastLoaded() {
+        EventExecutor[] executors = { this.executors[0], this.executors[1] };
+        EventExecutorChooserFactory.EventExecutorChooser chooser =
+                new LoadAwareEventExecutorChooserFactory(e -> e == executors[0] ? 10 : 5).newChooser(executors);
+        for (int i = 0; i < 100; i++) {
+            assertSame(executors[1], chooser.next());
+        }
+    }
+
+    @Test
+    public void testLoadAwareSingleExecutor() {
+        EventExecutor[] executors = { this.executors[0] };
+        EventExecutorChooserFactory.EventExecutorChooser chooser =
+                LoadAwareEventExecutorChooserFactory.PENDING_TASKS.newChooser(executors);
+        assertSame(executors[0], chooser.next());
+    }
+
+    @Test
+    public void testMultithreadEventExecutorGroupUsesChooser() {
+        MultithreadEventExecutorGroup group = new MultithreadEventExecutorGroup(3, (Executor) null,
+                (EventExecutorChooserFactory) executors -> () -> executors[2], Integer.MAX_VALUE,
+                RejectedExecutionHandlers.reject());
+        try {
+            EventExecutor last = group.executors().get(2);
+            for (int i = 0; i < 10; i++) {
+                assertSame(last, group.next());
+            }
+        } finally {
+            group.shutdownGracefully();
+        }
+    }
+}
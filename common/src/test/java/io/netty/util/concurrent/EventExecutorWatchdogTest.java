@@ -0,0 +1,102 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class EventExecutorWatchdogTest {
+
+    @Test(timeout = 10000)
+    public void testStalledTaskIsReported() throws Exception {
+        SingleThreadEventExecutor executor = new SingleThreadEventExecutor();
+        BlockingQueue<EventExecutorWatchdog.Stall> stalls = new LinkedBlockingQueue<>();
+        EventExecutorWatchdog.watch(executor, 50, TimeUnit.MILLISECONDS, stalls::add);
+        try {
+            Runnable task = () -> {
+                try {
+                    Thread.sleep(500);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            };
+            Future<?> future = executor.submit(task);
+
+            EventExecutorWatchdog.Stall stall = stalls.take();
+            assertSame(executor, stall.executor());
+            assertNotNull(stall.context());
+            assertNull(stall.handlerContext());
+            assertTrue(stall.duration(TimeUnit.MILLISECONDS) >= 50);
+            assertTrue(Arrays.toString(stall.stackTrace()), containsSleep(stall.stackTrace()));
+
+            future.sync();
+            // Every stall is only reported once.
+            assertNull(stalls.poll(200, TimeUnit.MILLISECONDS));
+        } finally {
+            EventExecutorWatchdog.unwatch(executor);
+            executor.shutdownGracefully(0, 0, TimeUnit.MILLISECONDS).syncUninterruptibly();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testIdleExecutorIsNotReported() throws Exception {
+        SingleThreadEventExecutor executor = new SingleThreadEventExecutor();
+        BlockingQueue<EventExecutorWatchdog.Stall> stalls = new LinkedBlockingQueue<>();
+        EventExecutorWatchdog.watch(executor, 20, TimeUnit.MILLISECONDS, stalls::add);
+        try {
+            for (int i = 0; i < 10; i++) {
+                executor.submit(() -> { }).sync();
+            }
+            assertNull(stalls.poll(300, TimeUnit.MILLISECONDS));
+        } finally {
+            assertTrue(EventExecutorWatchdog.unwatch(executor));
+            assertFalse(EventExecutorWatchdog.unwatch(executor));
+            executor.shutdownGracefully(0, 0, TimeUnit.MILLISECONDS).syncUninterruptibly();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testTerminatedExecutorIsUnwatched() throws Exception {
+        SingleThreadEventExecutor executor = new SingleThreadEventExecutor();
+        EventExecutorWatchdog.watch(executor, 20, TimeUnit.MILLISECONDS, stall -> { });
+        executor.submit(() -> { }).sync();
+        executor.shutdownGracefully(0, 0, TimeUnit.MILLISECONDS).syncUninterruptibly();
+        while (!executor.isTerminated() || executor.watched) {
+            Thread.sleep(10);
+        }
+        assertFalse(EventExecutorWatchdog.unwatch(executor));
+        assertFalse(executor.watched);
+    }
+
+    private static boolean containsSleep(StackTraceElement[] stackTrace) {
+        for (StackTraceElement element: stackTrace) {
+            if (Thread.class.getName().equals(element.getClassName()) && "sleep".equals(element.getMethodName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import io.netty.util.concurrent.AbstractScheduledEventExecutor.RunnableScheduledFutureNode;
+import io.netty.util.internal.DefaultPriorityQueue;
+import io.netty.util.internal.PriorityQueue;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import static io.netty.util.internal.PriorityQueueNode.INDEX_NOT_IN_QUEUE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ScheduledTaskTimingWheelTest {
+    private static final long TICK = ScheduledTaskTimingWheel.DEFAULT_TICK_NANOS;
+    private static final Callable<Void> NOOP = () -> null;
+    private static final Comparator<RunnableScheduledFutureNode<?>> COMPARATOR = Comparable::compareTo;
+
+    private final SingleThreadEventExecutor executor = new SingleThreadEventExecutor();
+
+    @Test
+    public void testAddAndRemove() {
+        ScheduledTaskTimingWheel wheel = new ScheduledTaskTimingWheel(TICK, 0);
+        List<RunnableScheduledFutureNode<?>> tasks = new ArrayList<>();
+        for (long delay = TICK; delay < TimeUnit.DAYS.toNanos(100); delay *= 3) {
+            RunnableScheduledFutureNode<?> task = newTask(delay);
+            assertTrue(wheel.add(task));
+            tasks.add(task);
+        }
+        assertEquals(tasks.size(), wheel.size());
+        for (RunnableScheduledFutureNode<?> task : tasks) {
+            assertTrue(wheel.remove(task));
+            assertEquals(INDEX_NOT_IN_QUEUE, task.priorityQueueIndex(null));
+            assertFalse(wheel.remove(task));
+        }
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void testAddExpiredTick() {
+        ScheduledTaskTimingWheel wheel = new ScheduledTaskTimingWheel(TICK, 10 * TICK);
+        assertFalse(wheel.add(newTask(9 * TICK)));
+        assertTrue(wheel.add(newTask(10 * TICK)));
+        assertEquals(1, wheel.size());
+    }
+
+    @Test
+    public void testExpireNeverEarlyNorLate() {
+        Random random = new Random(42);
+        ScheduledTaskTimingWheel wheel = new ScheduledTaskTimingWheel(TICK, 0);
+        PriorityQueue<RunnableScheduledFutureNode<?>> queue = new DefaultPriorityQueue<>(COMPARATOR, 16);
+        List<RunnableScheduledFutureNode<?>> tasks = new ArrayList<>();
+        long nanoTime = 0;
+        for (int i = 0; i < 20000; i++) {
+            long delay;
+            switch (random.nextInt(4)) {
+                case 0:
+                    delay = random.nextInt((int) (300 * TICK));
+                    break;
+                case 1:
+                    delay = (long) (random.nextDouble() * TimeUnit.MINUTES.toNanos(5));
+                    break;
+                case 2:
+                    delay = (long) (random.nextDouble() * TimeUnit.DAYS.toNanos(1));
+                    break;
+                default:
+                    // Further away then the wheel can cover.
+                    delay = TimeUnit.DAYS.toNanos(50) + (long) (random.nextDouble() * TimeUnit.DAYS.toNanos(10));
+                    break;
+            }
+            RunnableScheduledFutureNode<?> task = newTask(nanoTime + delay);
+            if (!wheel.add(task)) {
+                queue.add(task);
+            }
+            tasks.add(task);
+            if (random.nextInt(3) == 0) {
+                // Cancel a random task, most timeouts never fire.
+                RunnableScheduledFutureNode<?> cancelled = tasks.remove(random.nextInt(tasks.size()));
+                if (!wheel.remove(cancelled)) {
+                    assertTrue(queue.removeTyped(cancelled));
+                }
+            }
+            if (wheel.size() != 0) {
+                long lowerBound = wheel.nextDeadlineNanos();
+                for (RunnableScheduledFutureNode<?> t : wheel.toArray()) {
+                    assertTrue(lowerBound <= t.deadlineNanos());
+                }
+            }
+            nanoTime += random.nextInt((int) (50 * TICK));
+            if (random.nextInt(1000) == 0) {
+                nanoTime += TimeUnit.HOURS.toNanos(12);
+            }
+            wheel.expire(nanoTime, queue);
+            assertExpired(wheel, queue, nanoTime, tasks);
+        }
+
+        // Expire everything that is left.
+        nanoTime += TimeUnit.DAYS.toNanos(61);
+        wheel.expire(nanoTime, queue);
+        assertEquals(0, wheel.size());
+        assertEquals(tasks.size(), queue.size());
+    }
+
+    private static void assertExpired(ScheduledTaskTimingWheel wheel,
+                                      PriorityQueue<RunnableScheduledFutureNode<?>> queue, long nanoTime,
+                                      List<RunnableScheduledFutureNode<?>> tasks) {
+        // Nothing that is ready must be left in the wheel and the wheel must not hand out tasks of later ticks.
+        for (RunnableScheduledFutureNode<?> task : wheel.toArray()) {
+            assertTrue(task.deadlineNanos() > nanoTime);
+        }
+        for (RunnableScheduledFutureNode<?> task : queue) {
+            assertTrue(Math.floorDiv(task.deadlineNanos(), TICK) <= Math.floorDiv(nanoTime, TICK));
+        }
+        RunnableScheduledFutureNode<?> task;
+        while ((task = queue.peek()) != null && task.deadlineNanos() <= nanoTime) {
+            assertSame(task, queue.poll());
+            assertTrue(tasks.remove(task));
+        }
+    }
+
+    @Test
+    public void testClear() {
+        ScheduledTaskTimingWheel wheel = new ScheduledTaskTimingWheel(TICK, 0);
+        for (int i = 1; i <= 1000; i++) {
+            assertTrue(wheel.add(newTask(i * 97 * TICK)));
+        }
+        assertEquals(1000, wheel.toArray().length);
+        wheel.clearIgnoringIndexes();
+        assertEquals(0, wheel.size());
+        assertEquals(0, wheel.toArray().length);
+    }
+
+    @Test(timeout = 5000)
+    public void testExecutorUsingTimingWheel() throws Exception {
+        SingleThreadEventExecutor executor = new SingleThreadEventExecutor(new DefaultThreadFactory("wheel"),
+                Integer.MAX_VALUE, RejectedExecutionHandlers.reject(), ScheduledTaskQueueType.TIMING_WHEEL);
+        try {
+            List<ScheduledFuture<Long>> futures = new ArrayList<>();
+            List<ScheduledFuture<?>> cancelled = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                final long deadline = AbstractScheduledEventExecutor.nanoTime() + TimeUnit.MILLISECONDS.toNanos(i);
+                futures.add(executor.schedule(() -> AbstractScheduledEventExecutor.nanoTime() - deadline,
+                        i, TimeUnit.MILLISECONDS));
+                cancelled.add(executor.schedule(() -> {
+                    throw new AssertionError();
+                }, i + 1, TimeUnit.SECONDS));
+            }
+            for (ScheduledFuture<?> future : cancelled) {
+                assertTrue(future.cancel(false));
+            }
+            for (ScheduledFuture<Long> future : futures) {
+                // Never run before the deadline.
+                assertTrue(future.get() >= 0);
+            }
+            ScheduledFuture<?> periodic = executor.scheduleAtFixedRate(() -> { }, 1, 1, TimeUnit.MILLISECONDS);
+            Thread.sleep(20);
+            assertTrue(periodic.cancel(false));
+            assertNull(executor.submit(() -> executor.peekScheduledTask()).get());
+        } finally {
+            executor.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+        }
+    }
+
+    private RunnableScheduledFutureNode<?> newTask(long deadlineNanos) {
+        return new RunnableScheduledFutureAdapter<>(executor, executor.newPromise(), NOOP, deadlineNanos, 0);
+    }
+}
@@ -19,11 +19,15 @@ import org.hamcrest.CoreMatchers;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -75,6 +79,34 @@ public class SingleThreadEventExecutorTest {
         }
     }
 
+    @Test(timeout = 10000)
+    public void testMetric() throws Exception {
+        // Delay the start of the thread so the first task, which is always sampled, has to wait.
+        Executor delayedStartExecutor = command -> new Thread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            command.run();
+        }).start();
+        SingleThreadEventExecutor executor = new SingleThreadEventExecutor(delayedStartExecutor);
+        try {
+            CountDownLatch latch = new CountDownLatch(100);
+            for (int i = 0; i < 100; i++) {
+                executor.execute(latch::countDown);
+            }
+            latch.await();
+
+            EventExecutorMetric metric = executor.metric();
+            Assert.assertEquals(100, metric.executedTasks());
+            Assert.assertEquals(0, metric.pendingTasks());
+            Assert.assertTrue(metric.averageTaskWaitTime(TimeUnit.MILLISECONDS) >= 50);
+        } finally {
+            executor.shutdownGracefully(0, 0, TimeUnit.MILLISECONDS).syncUninterruptibly();
+        }
+    }
+
     @Test
     public void testThreadProperties() {
         final AtomicReference<Thread> threadRef = new AtomicReference<Thread>();
@@ -256,4 +288,97 @@ public class SingleThreadEventExecutorTest {
             Assert.assertTrue(f.isSuccess());
         }
     }
+
+    @Test(timeout = 5000)
+    public void testExecuteBatchWakesUpOnce() throws Exception {
+        final AtomicInteger wakeups = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch block = new CountDownLatch(1);
+        SingleThreadEventExecutor executor = new SingleThreadEventExecutor(Executors.defaultThreadFactory()) {
+            @Override
+            protected Queue<Runnable> newTaskQueue(int maxPendingTasks) {
+                // Not a BlockingQueue so adding a task does not wake up the thread by itself.
+                return new ConcurrentLinkedQueue<>();
+            }
+
+            @Override
+            protected void run() {
+                do {
+                    try {
+                        Thread.sleep(1000);
+                    } catch (InterruptedException e) {
+                        // Waken up by interruptThread()
+                    }
+                    runAllTasks(Integer.MAX_VALUE);
+                } while (!confirmShutdown());
+            }
+
+            @Override
+            protected void wakeup(boolean inEventLoop) {
+                if (!inEventLoop) {
+                    wakeups.incrementAndGet();
+                    interruptThread();
+                }
+            }
+        };
+        try {
+            executor.execute(() -> {
+                started.countDown();
+                try {
+                    block.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            started.await();
+            wakeups.set(0);
+
+            final List<Integer> order = new ArrayList<>();
+            List<Runnable> tasks = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                final int n = i;
+                tasks.add(() -> order.add(n));
+            }
+            executor.executeBatch(tasks);
+            Assert.assertEquals(1, wakeups.get());
+            Assert.assertEquals(100, executor.pendingTasks());
+
+            block.countDown();
+            executor.submit(() -> { }).sync();
+            Assert.assertEquals(100, order.size());
+            for (int i = 0; i < order.size(); i++) {
+                Assert.assertEquals(i, (int) order.get(i));
+            }
+        } finally {
+            block.countDown();
+            executor.shutdownGracefully(0, 0, TimeUnit.MILLISECONDS).syncUninterruptibly();
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void testSubmitBatch() throws Exception {
+        SingleThreadEventExecutor executor = new SingleThreadEventExecutor(Executors.defaultThreadFactory());
+        try {
+            final AtomicInteger counter = new AtomicInteger();
+            List<Runnable> tasks = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                tasks.add(counter::incrementAndGet);
+            }
+            List<Future<?>> futures = executor.submitBatch(tasks);
+            Assert.assertEquals(tasks.size(), futures.size());
+            for (Future<?> f : futures) {
+                Assert.assertTrue(f.sync().isSuccess());
+            }
+            Assert.assertEquals(10, counter.get());
+        } finally {
+            executor.shutdownGracefully(0, 0, TimeUnit.MILLISECONDS).syncUninterruptibly();
+        }
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void testExecuteBatchAfterShutdown() {
+        SingleThreadEventExecutor executor = new SingleThreadEventExecutor(Executors.defaultThreadFactory());
+        executor.shutdownGracefully(0, 0, TimeUnit.MILLISECONDS).syncUninterruptibly();
+        executor.executeBatch(Collections.singletonList(() -> { }));
+    }
 }
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ThreadPerTaskEventExecutorTest {
+
+    @Test(timeout = 10000)
+    public void testTasksRunConcurrently() throws Exception {
+        ThreadPerTaskEventExecutor executor = new ThreadPerTaskEventExecutor(new DefaultThreadFactory("test"));
+        int tasks = 16;
+        CountDownLatch started = new CountDownLatch(tasks);
+        CountDownLatch block = new CountDownLatch(1);
+        try {
+            for (int i = 0; i < tasks; i++) {
+                executor.execute(() -> {
+                    started.countDown();
+                    try {
+                        block.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+            // All tasks block at the same time, which is only possible with one thread per task.
+            started.await();
+            assertEquals(tasks, executor.runningTasks());
+        } finally {
+            block.countDown();
+            executor.shutdownGracefully().sync();
+        }
+        assertEquals(0, executor.runningTasks());
+    }
+
+    @Test(timeout = 10000)
+    public void testTerminatesWhenRunningTasksAreDone() throws Exception {
+        ThreadPerTaskEventExecutor executor = new ThreadPerTaskEventExecutor(new DefaultThreadFactory("test"));
+        CountDownLatch block = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                block.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        Future<?> termination = executor.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+        assertTrue(executor.isShutdown());
+        assertFalse(termination.await(100, TimeUnit.MILLISECONDS));
+        assertFalse(executor.isTerminated());
+        try {
+            executor.execute(() -> { });
+            fail();
+        } catch (RejectedExecutionException expected) {
+            // expected
+        }
+        block.countDown();
+        termination.sync();
+        assertTrue(executor.isTerminated());
+    }
+
+    @Test(timeout = 10000)
+    public void testShutdownWithoutTasks() throws Exception {
+        ThreadPerTaskEventExecutor executor = new ThreadPerTaskEventExecutor(new DefaultThreadFactory("test"));
+        executor.shutdownGracefully().sync();
+        assertTrue(executor.isTerminated());
+    }
+
+    @Test(timeout = 10000)
+    public void testSchedule() throws Exception {
+        ThreadPerTaskEventExecutor executor = new ThreadPerTaskEventExecutor(new DefaultThreadFactory("test"));
+        try {
+            long start = System.nanoTime();
+            ScheduledFuture<String> future = executor.schedule(() -> "done", 100, TimeUnit.MILLISECONDS);
+            assertEquals("done", future.sync().getNow());
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+
+            ScheduledFuture<?> cancelled = executor.schedule(() -> fail(), 100, TimeUnit.MILLISECONDS);
+            assertTrue(cancelled.cancel(false));
+            assertTrue(cancelled.isCancelled());
+        } finally {
+            executor.shutdownGracefully().sync();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testScheduleAtFixedRate() throws Exception {
+        ThreadPerTaskEventExecutor executor = new ThreadPerTaskEventExecutor(new DefaultThreadFactory("test"));
+        CountDownLatch latch = new CountDownLatch(3);
+        try {
+            ScheduledFuture<?> future = executor.scheduleAtFixedRate(latch::countDown, 0, 10, TimeUnit.MILLISECONDS);
+            latch.await();
+            assertTrue(future.cancel(false));
+        } finally {
+            executor.shutdownGracefully().sync();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testScheduledTaskFailsAfterShutdown() throws Exception {
+        ThreadPerTaskEventExecutor executor = new ThreadPerTaskEventExecutor(new DefaultThreadFactory("test"));
+        ScheduledFuture<?> future = executor.schedule(() -> { }, 100, TimeUnit.MILLISECONDS);
+        executor.shutdownGracefully().sync();
+        assertTrue(future.await().cause() instanceof RejectedExecutionException);
+        try {
+            executor.schedule(() -> { }, 100, TimeUnit.MILLISECONDS);
+            fail();
+        } catch (RejectedExecutionException expected) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class VirtualThreadEventExecutorGroupTest {
+
+    @Test
+    public void testAvailability() {
+        if (VirtualThreadEventExecutorGroup.isAvailable()) {
+            VirtualThreadEventExecutorGroup.ensureAvailability();
+        } else {
+            assertNotNull(VirtualThreadEventExecutorGroup.unavailabilityCause());
+            try {
+                new VirtualThreadEventExecutorGroup();
+            } catch (UnsupportedOperationException expected) {
+                return;
+            }
+            throw new AssertionError();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testOrderingWithBlockingTasks() throws Exception {
+        assumeTrue(VirtualThreadEventExecutorGroup.isAvailable());
+        VirtualThreadEventExecutorGroup group = new VirtualThreadEventExecutorGroup(16);
+        try {
+            int executors = 64;
+            int tasks = 100;
+            CountDownLatch done = new CountDownLatch(executors);
+            AtomicInteger errors = new AtomicInteger();
+            for (int i = 0; i < executors; i++) {
+                EventExecutor executor = group.next();
+                assertTrue(executor instanceof OrderedEventExecutor);
+                List<Integer> order = new ArrayList<>();
+                for (int j = 0; j < tasks; j++) {
+                    int n = j;
+                    executor.execute(() -> {
+                        if (!isVirtual(Thread.currentThread())) {
+                            errors.incrementAndGet();
+                        }
+                        try {
+                            Thread.sleep(0, 1000);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        if (order.size() != n) {
+                            errors.incrementAndGet();
+                        }
+                        order.add(n);
+                        if (n == tasks - 1) {
+                            done.countDown();
+                        }
+                    });
+                }
+            }
+            done.await();
+            assertEquals(0, errors.get());
+        } finally {
+            group.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+        }
+        assertEquals(0, group.runningTasks());
+    }
+
+    @Test(timeout = 10000)
+    public void testSchedule() throws Exception {
+        // Scheduling does not depend on virtual threads, so use platform threads to also run on older JVMs.
+        VirtualThreadEventExecutorGroup group = new VirtualThreadEventExecutorGroup(
+                new DefaultThreadFactory("test"), 16);
+        try {
+            assertEquals("group", group.schedule(() -> "group", 10, TimeUnit.MILLISECONDS).sync().getNow());
+
+            // Like ctx.executor().schedule(...) of a handler that was added with this group.
+            EventExecutor executor = group.next();
+            List<Integer> order = new ArrayList<>();
+            executor.execute(() -> order.add(0));
+            ScheduledFuture<?> future = executor.schedule(() -> order.add(2), 50, TimeUnit.MILLISECONDS);
+            executor.execute(() -> order.add(1));
+            future.sync();
+            assertEquals(3, order.size());
+            for (int i = 0; i < order.size(); i++) {
+                assertEquals(i, (int) order.get(i));
+            }
+        } finally {
+            group.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+        }
+    }
+
+    private static boolean isVirtual(Thread thread) {
+        try {
+            return (Boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.ssl;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelConfig;
+import io.netty.channel.ChannelException;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOption;
+import io.netty.util.internal.UnstableApi;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * {@link SslRecordLayerOffload} which lets the Linux kernel protect the TLS records (kTLS). Once the
+ * {@link SslHandler} completed the handshake the negotiated keys are installed into the socket and the
+ * {@link SslHandler} is removed from the pipeline, so plaintext {@link io.netty.buffer.ByteBuf}s and
+ * {@link io.netty.channel.DefaultFileRegion}s are written without copying the data through the
+ * {@link javax.net.ssl.SSLEngine}. This allows to use {@code sendfile} and {@code splice} for TLS connections.
+ * <p>
+ * The keys are installed via the {@code TCP_ULP}, {@code TLS_TX} and {@code TLS_RX} {@link ChannelOption}s, which are
+ * supported by the {@code EpollSocketChannel} of the native epoll transport. This requires the {@code tls} kernel
+ * module (linux 4.17+, or 5.11+ for {@code CHACHA20_POLY1305}). If the {@link Channel} or the kernel does not support
+ * it the {@link SslHandler} continues to protect the records itself.
+ * <p>
+ * The kernel only handles application data. Once offloaded, a received alert (for example {@code close_notify}) or
+ * handshake message fails the read and the {@link Channel} is closed, and no {@code close_notify} is sent when the
+ * {@link Channel} is closed.
+ *
+ * <pre>
+ * SslHandler sslHandler = sslContext.newHandler(ch.alloc());
+ * sslHandler.setRecordLayerOffload(KernelTlsOffload.INSTANCE);
+ * ch.pipeline().addLast(sslHandler);
+ * </pre>
+ */
+@UnstableApi
+public final class KernelTlsOffload implements SslRecordLayerOffload {
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(KernelTlsOffload.class);
+
+    // The same options as EpollChannelOption.TCP_ULP, TLS_TX and TLS_RX, which can not be referenced from here.
+    private static final ChannelOption<String> TCP_ULP = ChannelOption.valueOf("TCP_ULP");
+    private static final ChannelOption<byte[]> TLS_TX = ChannelOption.valueOf("TLS_TX");
+    private static final ChannelOption<byte[]> TLS_RX = ChannelOption.valueOf("TLS_RX");
+
+    // See include/uapi/linux/tls.h
+    private static final int TLS_CIPHER_AES_GCM_128 = 51;
+    private static final int TLS_CIPHER_AES_GCM_256 = 52;
+    private static final int TLS_CIPHER_CHACHA20_POLY1305 = 54;
+    private static final int TLS_GCM_EXPLICIT_IV_SIZE = 8;
+    private static final int TLS_SEQUENCE_NUMBER_SIZE = 8;
+
+    public static final KernelTlsOffload INSTANCE = new KernelTlsOffload();
+
+    private KernelTlsOffload() { }
+
+    @Override
+    public boolean offload(ChannelHandlerContext ctx, SslRecordLayerKeys keys) {
+        Channel channel = ctx.channel();
+        ChannelConfig config = channel.config();
+        try {
+            if (!config.setOption(TCP_ULP, "tls")) {
+                return false;
+            }
+        } catch (ChannelException e) {
+            logger.debug("{} Kernel TLS is not supported", channel, e);
+            return false;
+        }
+        // The tls ULP can not be removed again, so from here on a failure closes the Channel instead of letting the
+        // SslHandler fall back. Data that is still in the ChannelOutboundBuffer (like the Finished message) was
+        // already protected by the SSLEngine and so is written as it is.
+        config.setOption(TLS_RX, cryptoInfo(
+                keys.protocolVersion(), keys.cipher(), keys.readKey(), keys.readIv(), keys.readSequenceNumber()));
+        config.setOption(TLS_TX, cryptoInfo(
+                keys.protocolVersion(), keys.cipher(), keys.writeKey(), keys.writeIv(), keys.writeSequenceNumber()));
+        return true;
+    }
+
+    /**
+     * Returns the {@code struct tls12_crypto_info_*} for the given keys.
+     */
+    static byte[] cryptoInfo(int version, SslRecordLayerKeys.Cipher cipher, byte[] key, byte[] iv,
+                             long sequenceNumber) {
+        final int cipherType;
+        final byte[] explicitIv;
+        final byte[] salt;
+        switch (cipher) {
+            case AES_128_GCM:
+            case AES_256_GCM:
+                cipherType = cipher == SslRecordLayerKeys.Cipher.AES_128_GCM ?
+                        TLS_CIPHER_AES_GCM_128 : TLS_CIPHER_AES_GCM_256;
+                // Like OpenSSL use the sequence number as explicit part of the nonce, the kernel increments it for
+                // every record.
+                explicitIv = ByteBuffer.allocate(TLS_GCM_EXPLICIT_IV_SIZE).putLong(sequenceNumber).array();
+                salt = iv;
+                break;
+            case CHACHA20_POLY1305:
+                cipherType = TLS_CIPHER_CHACHA20_POLY1305;
+                explicitIv = iv;
+                salt = new byte[0];
+                break;
+            default:
+                throw new IllegalArgumentException("cipher: " + cipher);
+        }
+        ByteBuffer info = ByteBuffer.allocate(
+                4 + explicitIv.length + key.length + salt.length + TLS_SEQUENCE_NUMBER_SIZE);
+        // struct tls_crypto_info uses the native byte order, while the sequence number is in network byte order.
+        info.order(ByteOrder.nativeOrder()).putShort((short) version).putShort((short) cipherType);
+        info.order(ByteOrder.BIG_ENDIAN).put(explicitIv).put(key).put(salt).putLong(sequenceNumber);
+        return info.array();
+    }
+}
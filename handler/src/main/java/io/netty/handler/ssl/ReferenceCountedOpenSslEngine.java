@@ -394,6 +394,20 @@ public class ReferenceCountedOpenSslEngine extends SSLEngine implements Referenc
         return new SecretKeySpec(SSL.getMasterKey(ssl), "AES");
     }
 
+    final synchronized byte[] clientRandom() {
+        if (isDestroyed()) {
+            return null;
+        }
+        return SSL.getClientRandom(ssl);
+    }
+
+    final synchronized byte[] serverRandom() {
+        if (isDestroyed()) {
+            return null;
+        }
+        return SSL.getServerRandom(ssl);
+    }
+
     /**
      * Sets the OCSP response.
      */
@@ -395,6 +395,13 @@ public class SslHandler extends ByteToMessageDecoder {
     private boolean closeNotify;
     private boolean processTask;
 
+    /**
+     * Set once the handshake is done if the record layer may be offloaded, until it was decided if this is possible.
+     * While set no application data is wrapped or unwrapped by the {@link SSLEngine}.
+     */
+    private boolean offloadPending;
+    private volatile SslRecordLayerOffload recordLayerOffload;
+
     private int packetLength;
 
     /**
@@ -502,6 +509,25 @@ public class SslHandler extends ByteToMessageDecoder {
         this.wrapDataSize = wrapDataSize;
     }
 
+    /**
+     * Sets the {@link SslRecordLayerOffload} which is asked to take over the record layer once the handshake is done,
+     * or {@code null} to always protect the records with the {@link SSLEngine}. This must be set before the handshake
+     * completes.
+     * <p>
+     * The record layer can only be offloaded if the {@link SSLEngine} is provided by {@link SslProvider#OPENSSL} or
+     * {@link SslProvider#OPENSSL_REFCNT}, {@code TLSv1.2} with one of the ciphers of
+     * {@link SslRecordLayerKeys.Cipher} was negotiated and no application data was received before the handshake
+     * completed. Otherwise this {@link SslHandler} continues to protect the records itself.
+     * <p>
+     * If the record layer was offloaded this {@link SslHandler} removes itself from the {@link ChannelPipeline}
+     * after the {@link SslHandshakeCompletionEvent} was fired. From then on plaintext messages (including
+     * {@link io.netty.channel.FileRegion}s) can be written directly to the {@link Channel}.
+     */
+    @UnstableApi
+    public final void setRecordLayerOffload(SslRecordLayerOffload recordLayerOffload) {
+        this.recordLayerOffload = recordLayerOffload;
+    }
+
     /**
      * @deprecated use {@link #getCloseNotifyFlushTimeoutMillis()}
      */
@@ -810,7 +836,7 @@ public class SslHandler extends ByteToMessageDecoder {
             final int wrapDataSize = this.wrapDataSize;
             // Only continue to loop if the handler was not removed in the meantime.
             // See https://github.com/netty/netty/issues/5860
-            outer: while (!ctx.isRemoved()) {
+            outer: while (!ctx.isRemoved() && !offloadPending) {
                 promise = ctx.newPromise();
                 buf = wrapDataSize > 0 ?
                         pendingUnencryptedWrites.remove(alloc, wrapDataSize, promise) :
@@ -1268,6 +1294,9 @@ public class SslHandler extends ByteToMessageDecoder {
         } else {
             decodeNonJdkCompatible(ctx, in);
         }
+        if (offloadPending) {
+            offloadRecordLayer(ctx, in);
+        }
     }
 
     @Override
@@ -1276,6 +1305,15 @@ public class SslHandler extends ByteToMessageDecoder {
     }
 
     private void channelReadComplete0(ChannelHandlerContext ctx) {
+        if (offloadPending && !processTask) {
+            // The handshake was completed without calling decode(...), which may happen if a delegated task was run.
+            try {
+                offloadRecordLayer(ctx, internalBuffer());
+            } catch (SSLException e) {
+                ctx.fireExceptionCaught(e);
+            }
+        }
+
         // Discard bytes of the cumulation buffer if needed.
         discardSomeReadBytes();
 
@@ -1334,6 +1372,7 @@ public class SslHandler extends ByteToMessageDecoder {
 
                 switch (status) {
                 case BUFFER_OVERFLOW:
+                    stopForOffload(produced);
                     final int readableBytes = decodeOut.readableBytes();
                     final int previousOverflowReadableBytes = overflowReadableBytes;
                     overflowReadableBytes = readableBytes;
@@ -1420,6 +1459,9 @@ public class SslHandler extends ByteToMessageDecoder {
                     case NOT_HANDSHAKING:
                         if (setHandshakeSuccessIfStillHandshaking()) {
                             wrapLater = true;
+                            if (stopForOffload(produced)) {
+                                break unwrapLoop;
+                            }
                             continue;
                         }
 
@@ -1434,6 +1476,10 @@ public class SslHandler extends ByteToMessageDecoder {
                         throw new IllegalStateException("unknown handshake status: " + handshakeStatus);
                 }
 
+                if (stopForOffload(produced)) {
+                    break unwrapLoop;
+                }
+
                 if (status == Status.BUFFER_UNDERFLOW ||
                         // If we processed NEED_TASK we should try again even we did not consume or produce anything.
                         handshakeStatus != HandshakeStatus.NEED_TASK && consumed == 0 && produced == 0) {
@@ -1477,6 +1523,54 @@ public class SslHandler extends ByteToMessageDecoder {
         return originalLength - length;
     }
 
+    /**
+     * Returns {@code true} if unwrapping should stop because the record layer may be offloaded.
+     */
+    private boolean stopForOffload(int produced) {
+        if (offloadPending && produced > 0) {
+            // The SSLEngine unwrapped application data already, so the sequence number of the next record is unknown.
+            offloadPending = false;
+        }
+        return offloadPending;
+    }
+
+    /**
+     * Decides if the record layer is offloaded once the handshake is done. {@code in} contains the received data
+     * that was not unwrapped yet.
+     */
+    private void offloadRecordLayer(ChannelHandlerContext ctx, ByteBuf in) throws SSLException {
+        offloadPending = false;
+        boolean offloaded = false;
+        // Data that was received but not unwrapped yet is protected with sequence numbers the SSLEngine already
+        // advanced past, so we can only offload if there is none.
+        if (!in.isReadable() && !outboundClosed && !engine.isInboundDone() &&
+                ((ReferenceCountedOpenSslEngine) engine).sslPending() <= 0) {
+            SslRecordLayerKeys keys = SslRecordLayerKeys.newInstance((ReferenceCountedOpenSslEngine) engine);
+            if (keys != null) {
+                try {
+                    offloaded = recordLayerOffload.offload(ctx, keys);
+                } catch (Throwable cause) {
+                    // The offload may have changed the socket already, so the SSLEngine can not protect the records
+                    // anymore. Close the Channel without sending a close_notify through this handler.
+                    ctx.fireExceptionCaught(cause);
+                    ctx.close();
+                    return;
+                }
+            }
+        }
+        if (offloaded) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("{} Offloaded TLS record layer: {}", ctx.channel(), engine.getSession().getCipherSuite());
+            }
+            // Everything written from now on is plaintext.
+            pendingUnencryptedWrites.writeAndRemoveAll(ctx);
+            forceFlush(ctx);
+            ctx.pipeline().remove(this);
+        } else if (!pendingUnencryptedWrites.isEmpty()) {
+            wrapAndFlush(ctx);
+        }
+    }
+
     private static ByteBuffer toByteBuffer(ByteBuf out, int index, int len) {
         return out.nioBufferCount() == 1 ? out.internalNioBuffer(index, len) :
                 out.nioBuffer(index, len);
@@ -1730,6 +1824,9 @@ public class SslHandler extends ByteToMessageDecoder {
      * Notify all the handshake futures about the successfully handshake
      */
     private void setHandshakeSuccess() {
+        // Decide if the record layer may be offloaded before anyone is notified, so no application data is wrapped
+        // by the SSLEngine in the meantime.
+        offloadPending = recordLayerOffload != null && engine instanceof ReferenceCountedOpenSslEngine;
         handshakePromise.trySuccess(ctx.channel());
 
         if (logger.isDebugEnabled()) {
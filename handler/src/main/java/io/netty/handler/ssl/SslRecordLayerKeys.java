@@ -0,0 +1,192 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.ssl;
+
+import io.netty.util.internal.UnstableApi;
+
+import javax.crypto.spec.SecretKeySpec;
+import javax.net.ssl.SSLSession;
+import java.util.Arrays;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+/**
+ * The negotiated keys of a TLS session which are needed to protect the records of both directions outside of the
+ * {@link javax.net.ssl.SSLEngine}, for example by the kernel of the operating system.
+ * <p>
+ * Only {@code TLSv1.2} with one of the AEAD ciphers listed in {@link Cipher} is supported, as the traffic keys of
+ * these can be derived from the master secret.
+ */
+@UnstableApi
+public final class SslRecordLayerKeys {
+
+    /**
+     * The AEAD ciphers for which the keys can be exported.
+     */
+    public enum Cipher {
+        AES_128_GCM(16, 4),
+        AES_256_GCM(32, 4),
+        CHACHA20_POLY1305(32, 12);
+
+        private final int keyLength;
+        private final int ivLength;
+
+        Cipher(int keyLength, int ivLength) {
+            this.keyLength = keyLength;
+            this.ivLength = ivLength;
+        }
+
+        /**
+         * Returns the length of the key in bytes.
+         */
+        public int keyLength() {
+            return keyLength;
+        }
+
+        /**
+         * Returns the length of the implicit (fixed) part of the nonce in bytes.
+         */
+        public int ivLength() {
+            return ivLength;
+        }
+    }
+
+    private static final byte[] KEY_EXPANSION = "key expansion".getBytes(US_ASCII);
+
+    // The last record that is protected by the SSLEngine is the Finished message, which is always the first record
+    // after the ChangeCipherSpec and so uses the sequence number 0.
+    private static final long FIRST_SEQUENCE_NUMBER = 1;
+
+    private final Cipher cipher;
+    private final byte[] writeKey;
+    private final byte[] writeIv;
+    private final byte[] readKey;
+    private final byte[] readIv;
+
+    private SslRecordLayerKeys(Cipher cipher, byte[] writeKey, byte[] writeIv, byte[] readKey, byte[] readIv) {
+        this.cipher = cipher;
+        this.writeKey = writeKey;
+        this.writeIv = writeIv;
+        this.readKey = readKey;
+        this.readIv = readIv;
+    }
+
+    /**
+     * Derives the keys of the given {@link ReferenceCountedOpenSslEngine}, which must have finished the handshake and
+     * not have protected any application data yet. Returns {@code null} if the negotiated protocol or cipher is not
+     * supported.
+     */
+    static SslRecordLayerKeys newInstance(ReferenceCountedOpenSslEngine engine) {
+        SSLSession session = engine.getSession();
+        if (!SslUtils.PROTOCOL_TLS_V1_2.equals(session.getProtocol())) {
+            return null;
+        }
+        String cipherSuite = session.getCipherSuite();
+        final Cipher cipher;
+        String prfAlgorithm = "HmacSHA256";
+        if (cipherSuite.endsWith("_WITH_AES_128_GCM_SHA256")) {
+            cipher = Cipher.AES_128_GCM;
+        } else if (cipherSuite.endsWith("_WITH_AES_256_GCM_SHA384")) {
+            cipher = Cipher.AES_256_GCM;
+            prfAlgorithm = "HmacSHA384";
+        } else if (cipherSuite.endsWith("_WITH_CHACHA20_POLY1305_SHA256")) {
+            cipher = Cipher.CHACHA20_POLY1305;
+        } else {
+            return null;
+        }
+
+        SecretKeySpec masterKey = engine.masterKey();
+        byte[] clientRandom = engine.clientRandom();
+        byte[] serverRandom = engine.serverRandom();
+        if (masterKey == null || clientRandom == null || serverRandom == null) {
+            // Destroyed in the meantime.
+            return null;
+        }
+
+        // See https://tools.ietf.org/html/rfc5246#section-6.3, AEAD ciphers do not use MAC keys.
+        byte[] seed = Arrays.copyOf(serverRandom, serverRandom.length + clientRandom.length);
+        System.arraycopy(clientRandom, 0, seed, serverRandom.length, clientRandom.length);
+        int keyLength = cipher.keyLength();
+        int ivLength = cipher.ivLength();
+        byte[] keyBlock = PseudoRandomFunction.hash(
+                masterKey.getEncoded(), KEY_EXPANSION, seed, 2 * (keyLength + ivLength), prfAlgorithm);
+        byte[] clientKey = Arrays.copyOfRange(keyBlock, 0, keyLength);
+        byte[] serverKey = Arrays.copyOfRange(keyBlock, keyLength, 2 * keyLength);
+        byte[] clientIv = Arrays.copyOfRange(keyBlock, 2 * keyLength, 2 * keyLength + ivLength);
+        byte[] serverIv = Arrays.copyOfRange(keyBlock, 2 * keyLength + ivLength, 2 * (keyLength + ivLength));
+        Arrays.fill(keyBlock, (byte) 0);
+
+        return engine.getUseClientMode() ?
+                new SslRecordLayerKeys(cipher, clientKey, clientIv, serverKey, serverIv) :
+                new SslRecordLayerKeys(cipher, serverKey, serverIv, clientKey, clientIv);
+    }
+
+    /**
+     * Returns the protocol version as used in the TLS record header, which is always {@code 0x0303} ({@code TLSv1.2}).
+     */
+    public int protocolVersion() {
+        return 0x0303;
+    }
+
+    /**
+     * Returns the {@link Cipher} of the session.
+     */
+    public Cipher cipher() {
+        return cipher;
+    }
+
+    /**
+     * Returns the key that is used to protect outgoing records.
+     */
+    public byte[] writeKey() {
+        return writeKey.clone();
+    }
+
+    /**
+     * Returns the implicit part of the nonce that is used to protect outgoing records.
+     */
+    public byte[] writeIv() {
+        return writeIv.clone();
+    }
+
+    /**
+     * Returns the sequence number of the next outgoing record.
+     */
+    public long writeSequenceNumber() {
+        return FIRST_SEQUENCE_NUMBER;
+    }
+
+    /**
+     * Returns the key that is used to verify and decrypt incoming records.
+     */
+    public byte[] readKey() {
+        return readKey.clone();
+    }
+
+    /**
+     * Returns the implicit part of the nonce that is used to verify and decrypt incoming records.
+     */
+    public byte[] readIv() {
+        return readIv.clone();
+    }
+
+    /**
+     * Returns the sequence number of the next incoming record.
+     */
+    public long readSequenceNumber() {
+        return FIRST_SEQUENCE_NUMBER;
+    }
+}
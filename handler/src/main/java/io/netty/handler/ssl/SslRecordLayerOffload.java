@@ -0,0 +1,49 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.ssl;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.util.internal.UnstableApi;
+
+/**
+ * Takes over the TLS record layer of a {@link io.netty.channel.Channel} once the handshake was completed by the
+ * {@link SslHandler}, for example by installing the keys into the kernel of the operating system.
+ *
+ * @see SslHandler#setRecordLayerOffload(SslRecordLayerOffload)
+ */
+@UnstableApi
+public interface SslRecordLayerOffload {
+
+    /**
+     * Called by the {@link SslHandler} once the handshake is done and before any application data was protected by
+     * the {@link javax.net.ssl.SSLEngine}.
+     * <p>
+     * If {@code true} is returned the implementation has to ensure that everything which was written via the
+     * {@link ChannelHandlerContext} before is still sent as it is, while everything written afterwards is protected
+     * with the given keys. The same is true for the inbound direction, all data that is received after this method
+     * returned needs to be verified and decrypted with the given keys. The {@link SslHandler} writes its pending
+     * writes and removes itself from the pipeline afterwards.
+     * <p>
+     * If {@code false} is returned the {@link SslHandler} continues to protect the records itself, so this must only be
+     * done if the {@link io.netty.channel.Channel} was not changed. If an exception is thrown the exception is fired
+     * through the pipeline and the {@link io.netty.channel.Channel} is closed.
+     *
+     * @param ctx   the {@link ChannelHandlerContext} of the {@link SslHandler}.
+     * @param keys  the keys of the session.
+     * @return      {@code true} if the record layer was taken over.
+     */
+    boolean offload(ChannelHandlerContext ctx, SslRecordLayerKeys keys) throws Exception;
+}
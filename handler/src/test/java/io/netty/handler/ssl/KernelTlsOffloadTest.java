@@ -0,0 +1,130 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.ssl;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import io.netty.handler.ssl.util.SelfSignedCertificate;
+import io.netty.util.CharsetUtil;
+import io.netty.util.ReferenceCountUtil;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class KernelTlsOffloadTest {
+
+    @Test
+    public void testCryptoInfo() {
+        byte[] key = new byte[16];
+        Arrays.fill(key, (byte) 1);
+        byte[] salt = { 2, 2, 2, 2 };
+        byte[] info = KernelTlsOffload.cryptoInfo(0x0303, SslRecordLayerKeys.Cipher.AES_128_GCM, key, salt, 1);
+        // struct tls12_crypto_info_aes_gcm_128
+        assertEquals(40, info.length);
+        ByteBuffer buffer = ByteBuffer.wrap(info).order(ByteOrder.nativeOrder());
+        assertEquals(0x0303, buffer.getShort());
+        assertEquals(51, buffer.getShort());
+        buffer.order(ByteOrder.BIG_ENDIAN);
+        assertEquals(1, buffer.getLong());
+        byte[] actualKey = new byte[16];
+        buffer.get(actualKey);
+        assertArrayEquals(key, actualKey);
+        byte[] actualSalt = new byte[4];
+        buffer.get(actualSalt);
+        assertArrayEquals(salt, actualSalt);
+        assertEquals(1, buffer.getLong());
+
+        // struct tls12_crypto_info_chacha20_poly1305
+        info = KernelTlsOffload.cryptoInfo(0x0303, SslRecordLayerKeys.Cipher.CHACHA20_POLY1305,
+                new byte[32], new byte[12], 1);
+        assertEquals(56, info.length);
+        assertEquals(54, ByteBuffer.wrap(info).order(ByteOrder.nativeOrder()).getShort(2));
+    }
+
+    @Test(timeout = 10000)
+    public void testNotSupportedByChannel() throws Exception {
+        assumeTrue(OpenSsl.isAvailable());
+
+        SelfSignedCertificate cert = new SelfSignedCertificate();
+        SslContext serverContext = SslContextBuilder.forServer(cert.certificate(), cert.privateKey())
+                .sslProvider(SslProvider.OPENSSL).protocols(SslUtils.PROTOCOL_TLS_V1_2).build();
+        SslContext clientContext = SslContextBuilder.forClient()
+                .trustManager(InsecureTrustManagerFactory.INSTANCE)
+                .sslProvider(SslProvider.OPENSSL).protocols(SslUtils.PROTOCOL_TLS_V1_2).build();
+        EmbeddedChannel serverChannel = null;
+        EmbeddedChannel clientChannel = null;
+        try {
+            SslHandler serverSslHandler = serverContext.newHandler(UnpooledByteBufAllocator.DEFAULT);
+            serverSslHandler.setRecordLayerOffload(KernelTlsOffload.INSTANCE);
+            serverChannel = new EmbeddedChannel(serverSslHandler);
+            clientChannel = new EmbeddedChannel(clientContext.newHandler(UnpooledByteBufAllocator.DEFAULT));
+            forwardUntilDone(clientChannel, serverChannel);
+            assertTrue(serverSslHandler.handshakeFuture().isSuccess());
+
+            // The EmbeddedChannel does not support the TCP_ULP option, so the SslHandler protects the records.
+            assertNotNull(serverChannel.pipeline().get(SslHandler.class));
+            clientChannel.writeOutbound(Unpooled.copiedBuffer("request", CharsetUtil.US_ASCII));
+            forwardUntilDone(clientChannel, serverChannel);
+            ByteBuf received = serverChannel.readInbound();
+            assertEquals("request", received.toString(CharsetUtil.US_ASCII));
+            received.release();
+        } finally {
+            if (clientChannel != null) {
+                clientChannel.finishAndReleaseAll();
+            }
+            if (serverChannel != null) {
+                serverChannel.finishAndReleaseAll();
+            }
+            ReferenceCountUtil.release(serverContext);
+            ReferenceCountUtil.release(clientContext);
+            cert.delete();
+        }
+    }
+
+    private static void forwardUntilDone(EmbeddedChannel clientChannel, EmbeddedChannel serverChannel) {
+        boolean forwarded;
+        do {
+            forwarded = forward(clientChannel, serverChannel) | forward(serverChannel, clientChannel);
+        } while (forwarded);
+    }
+
+    private static boolean forward(EmbeddedChannel from, EmbeddedChannel to) {
+        boolean forwarded = false;
+        for (;;) {
+            ByteBuf buf = from.readOutbound();
+            if (buf == null) {
+                return forwarded;
+            }
+            if (buf.isReadable()) {
+                to.writeInbound(buf);
+                forwarded = true;
+            } else {
+                buf.release();
+            }
+        }
+    }
+}
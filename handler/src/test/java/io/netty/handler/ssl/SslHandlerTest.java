@@ -20,6 +20,7 @@ import io.netty.bootstrap.Bootstrap;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
 import io.netty.buffer.Unpooled;
 import io.netty.buffer.UnpooledByteBufAllocator;
 import io.netty.channel.Channel;
@@ -47,6 +48,7 @@ import io.netty.handler.codec.UnsupportedMessageTypeException;
 import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
 import io.netty.handler.ssl.util.SelfSignedCertificate;
 import io.netty.util.AbstractReferenceCounted;
+import io.netty.util.CharsetUtil;
 import io.netty.util.IllegalReferenceCountException;
 import io.netty.util.ReferenceCountUtil;
 import io.netty.util.ReferenceCounted;
@@ -60,6 +62,8 @@ import org.junit.Test;
 import java.net.InetSocketAddress;
 import java.nio.channels.ClosedChannelException;
 import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Queue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletionException;
@@ -74,6 +78,9 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLEngine;
 import javax.net.ssl.SSLException;
@@ -84,9 +91,12 @@ import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -1041,4 +1051,223 @@ public class SslHandlerTest {
             ReferenceCountUtil.release(sslClientCtx);
         }
     }
+
+    @Test(timeout = 10000)
+    public void testRecordLayerOffload() throws Exception {
+        assumeTrue(OpenSsl.isAvailable());
+
+        SelfSignedCertificate cert = new SelfSignedCertificate();
+        SslContext serverContext = SslContextBuilder.forServer(cert.certificate(), cert.privateKey())
+                .sslProvider(SslProvider.OPENSSL).protocols(SslUtils.PROTOCOL_TLS_V1_2)
+                .ciphers(Collections.singletonList("TLS_ECDHE_RSA_WITH_AES_128_GCM_SHA256")).build();
+        SslContext clientContext = SslContextBuilder.forClient()
+                .trustManager(InsecureTrustManagerFactory.INSTANCE)
+                .sslProvider(SslProvider.OPENSSL).protocols(SslUtils.PROTOCOL_TLS_V1_2).build();
+        EmbeddedChannel serverChannel = null;
+        EmbeddedChannel clientChannel = null;
+        try {
+            final AtomicReference<SslRecordLayerKeys> serverKeys = new AtomicReference<>();
+            SslHandler serverSslHandler = serverContext.newHandler(UnpooledByteBufAllocator.DEFAULT);
+            serverSslHandler.setRecordLayerOffload((ctx, keys) -> {
+                serverKeys.set(keys);
+                return true;
+            });
+            final AtomicReference<SslRecordLayerKeys> clientKeys = new AtomicReference<>();
+            SslHandler clientSslHandler = clientContext.newHandler(UnpooledByteBufAllocator.DEFAULT);
+            clientSslHandler.setRecordLayerOffload((ctx, keys) -> {
+                clientKeys.set(keys);
+                // Keep protecting the records in the SSLEngine.
+                return false;
+            });
+            serverChannel = new EmbeddedChannel(serverSslHandler);
+            clientChannel = new EmbeddedChannel(clientSslHandler);
+            forwardUntilDone(clientChannel, serverChannel);
+            assertTrue(clientSslHandler.handshakeFuture().isSuccess());
+            assertTrue(serverSslHandler.handshakeFuture().isSuccess());
+
+            SslRecordLayerKeys server = serverKeys.get();
+            SslRecordLayerKeys client = clientKeys.get();
+            assertEquals(SslRecordLayerKeys.Cipher.AES_128_GCM, server.cipher());
+            assertEquals(SslRecordLayerKeys.Cipher.AES_128_GCM, client.cipher());
+            assertArrayEquals(client.writeKey(), server.readKey());
+            assertArrayEquals(client.writeIv(), server.readIv());
+            assertArrayEquals(server.writeKey(), client.readKey());
+            assertArrayEquals(server.writeIv(), client.readIv());
+
+            // The server removed the SslHandler, while the client still uses it.
+            assertNull(serverChannel.pipeline().get(SslHandler.class));
+            assertNotNull(clientChannel.pipeline().get(SslHandler.class));
+
+            // A record that is protected with the exported keys must be accepted by the peer.
+            byte[] request = "request".getBytes(CharsetUtil.US_ASCII);
+            clientChannel.writeInbound(Unpooled.wrappedBuffer(encryptRecord(server, request)));
+            ByteBuf received = clientChannel.readInbound();
+            assertEquals("request", received.toString(CharsetUtil.US_ASCII));
+            received.release();
+
+            // A record that is protected by the peer must be readable with the exported keys.
+            clientChannel.writeOutbound(Unpooled.copiedBuffer("response", CharsetUtil.US_ASCII));
+            ByteBuf record = clientChannel.readOutbound();
+            byte[] response = decryptRecord(server, ByteBufUtil.getBytes(record));
+            record.release();
+            assertEquals("response", new String(response, CharsetUtil.US_ASCII));
+        } finally {
+            if (clientChannel != null) {
+                clientChannel.finishAndReleaseAll();
+            }
+            if (serverChannel != null) {
+                serverChannel.finishAndReleaseAll();
+            }
+            ReferenceCountUtil.release(serverContext);
+            ReferenceCountUtil.release(clientContext);
+            cert.delete();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testRecordLayerOffloadUnsupportedProtocol() throws Exception {
+        assumeTrue(OpenSsl.isAvailable());
+        assumeTrue(OpenSsl.isTlsv13Supported());
+
+        SelfSignedCertificate cert = new SelfSignedCertificate();
+        SslContext serverContext = SslContextBuilder.forServer(cert.certificate(), cert.privateKey())
+                .sslProvider(SslProvider.OPENSSL).protocols(SslUtils.PROTOCOL_TLS_V1_3).build();
+        SslContext clientContext = SslContextBuilder.forClient()
+                .trustManager(InsecureTrustManagerFactory.INSTANCE)
+                .sslProvider(SslProvider.OPENSSL).protocols(SslUtils.PROTOCOL_TLS_V1_3).build();
+        EmbeddedChannel serverChannel = null;
+        EmbeddedChannel clientChannel = null;
+        try {
+            final AtomicBoolean offloadCalled = new AtomicBoolean();
+            SslHandler serverSslHandler = serverContext.newHandler(UnpooledByteBufAllocator.DEFAULT);
+            serverSslHandler.setRecordLayerOffload((ctx, keys) -> offloadCalled.compareAndSet(false, true));
+            serverChannel = new EmbeddedChannel(serverSslHandler);
+            clientChannel = new EmbeddedChannel(clientContext.newHandler(UnpooledByteBufAllocator.DEFAULT));
+            forwardUntilDone(clientChannel, serverChannel);
+            assertTrue(serverSslHandler.handshakeFuture().isSuccess());
+
+            // The keys of TLSv1.3 can not be exported, so the records are still protected by the SslHandler.
+            assertFalse(offloadCalled.get());
+            assertNotNull(serverChannel.pipeline().get(SslHandler.class));
+            clientChannel.writeOutbound(Unpooled.copiedBuffer("request", CharsetUtil.US_ASCII));
+            forwardUntilDone(clientChannel, serverChannel);
+            ByteBuf received = serverChannel.readInbound();
+            assertEquals("request", received.toString(CharsetUtil.US_ASCII));
+            received.release();
+        } finally {
+            if (clientChannel != null) {
+                clientChannel.finishAndReleaseAll();
+            }
+            if (serverChannel != null) {
+                serverChannel.finishAndReleaseAll();
+            }
+            ReferenceCountUtil.release(serverContext);
+            ReferenceCountUtil.release(clientContext);
+            cert.delete();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testRecordLayerOffloadFailureClosesChannel() throws Exception {
+        assumeTrue(OpenSsl.isAvailable());
+
+        SelfSignedCertificate cert = new SelfSignedCertificate();
+        SslContext serverContext = SslContextBuilder.forServer(cert.certificate(), cert.privateKey())
+                .sslProvider(SslProvider.OPENSSL).protocols(SslUtils.PROTOCOL_TLS_V1_2).build();
+        SslContext clientContext = SslContextBuilder.forClient()
+                .trustManager(InsecureTrustManagerFactory.INSTANCE)
+                .sslProvider(SslProvider.OPENSSL).protocols(SslUtils.PROTOCOL_TLS_V1_2).build();
+        EmbeddedChannel serverChannel = null;
+        EmbeddedChannel clientChannel = null;
+        try {
+            final IllegalStateException cause = new IllegalStateException("partially offloaded");
+            SslHandler serverSslHandler = serverContext.newHandler(UnpooledByteBufAllocator.DEFAULT);
+            serverSslHandler.setRecordLayerOffload((ctx, keys) -> {
+                throw cause;
+            });
+            serverChannel = new EmbeddedChannel(serverSslHandler);
+            clientChannel = new EmbeddedChannel(clientContext.newHandler(UnpooledByteBufAllocator.DEFAULT));
+            try {
+                forwardUntilDone(clientChannel, serverChannel);
+                fail();
+            } catch (IllegalStateException e) {
+                assertSame(cause, e);
+            }
+            assertTrue(serverSslHandler.handshakeFuture().isSuccess());
+
+            // The SslHandler must not fall back to protect the records itself.
+            assertFalse(serverChannel.isOpen());
+        } finally {
+            if (clientChannel != null) {
+                clientChannel.finishAndReleaseAll();
+            }
+            if (serverChannel != null) {
+                serverChannel.finishAndReleaseAll();
+            }
+            ReferenceCountUtil.release(serverContext);
+            ReferenceCountUtil.release(clientContext);
+            cert.delete();
+        }
+    }
+
+    private static void forwardUntilDone(EmbeddedChannel clientChannel, EmbeddedChannel serverChannel) {
+        boolean forwarded;
+        do {
+            forwarded = forward(clientChannel, serverChannel) | forward(serverChannel, clientChannel);
+        } while (forwarded);
+    }
+
+    private static boolean forward(EmbeddedChannel from, EmbeddedChannel to) {
+        boolean forwarded = false;
+        for (;;) {
+            ByteBuf buf = from.readOutbound();
+            if (buf == null) {
+                return forwarded;
+            }
+            if (buf.isReadable()) {
+                to.writeInbound(buf);
+                forwarded = true;
+            } else {
+                buf.release();
+            }
+        }
+    }
+
+    // See https://tools.ietf.org/html/rfc5288#section-3
+    private static byte[] encryptRecord(SslRecordLayerKeys keys, byte[] plaintext) throws Exception {
+        byte[] explicitNonce = Unpooled.buffer(8).writeLong(keys.writeSequenceNumber()).array();
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(keys.writeKey(), "AES"),
+                new GCMParameterSpec(128, nonce(keys.writeIv(), explicitNonce)));
+        cipher.updateAAD(additionalData(keys.writeSequenceNumber(), plaintext.length));
+        byte[] ciphertext = cipher.doFinal(plaintext);
+        return ByteBufUtil.getBytes(Unpooled.buffer()
+                .writeByte(SslUtils.SSL_CONTENT_TYPE_APPLICATION_DATA).writeShort(keys.protocolVersion())
+                .writeShort(explicitNonce.length + ciphertext.length).writeBytes(explicitNonce).writeBytes(ciphertext));
+    }
+
+    private static byte[] decryptRecord(SslRecordLayerKeys keys, byte[] record) throws Exception {
+        ByteBuf buf = Unpooled.wrappedBuffer(record);
+        assertEquals(SslUtils.SSL_CONTENT_TYPE_APPLICATION_DATA, buf.readByte());
+        assertEquals(keys.protocolVersion(), buf.readShort());
+        int length = buf.readShort();
+        byte[] explicitNonce = ByteBufUtil.getBytes(buf.readBytes(8));
+        byte[] ciphertext = ByteBufUtil.getBytes(buf.readBytes(length - explicitNonce.length));
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(keys.readKey(), "AES"),
+                new GCMParameterSpec(128, nonce(keys.readIv(), explicitNonce)));
+        cipher.updateAAD(additionalData(keys.readSequenceNumber(), ciphertext.length - 16));
+        return cipher.doFinal(ciphertext);
+    }
+
+    private static byte[] nonce(byte[] salt, byte[] explicitNonce) {
+        byte[] nonce = Arrays.copyOf(salt, salt.length + explicitNonce.length);
+        System.arraycopy(explicitNonce, 0, nonce, salt.length, explicitNonce.length);
+        return nonce;
+    }
+
+    private static byte[] additionalData(long sequenceNumber, int length) {
+        return Unpooled.buffer(13).writeLong(sequenceNumber).writeByte(SslUtils.SSL_CONTENT_TYPE_APPLICATION_DATA)
+                .writeShort(0x0303).writeShort(length).array();
+    }
 }
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.buffer;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.unix.NativeHugePageAllocator;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.internal.PlatformDependent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link PooledByteBufAllocator} direct chunks backed by regular pages with chunks backed by huge pages.
+ * The buffers span far more memory than the TLB covers with 4 KiB pages, so random accesses into them are
+ * dominated by TLB misses unless the chunks are mapped with huge pages. Requires the native epoll transport.
+ */
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PooledByteBufAllocatorHugePageBenchmark extends AbstractMicrobenchmark {
+
+    private static final int OPERATIONS = 1024;
+    // Large enough that the visited pages do not stay resident in the TLB between invocations.
+    private static final int INDEXES = OPERATIONS * 256;
+
+    @Param({ "false", "true" })
+    private boolean hugePages;
+
+    @Param({ "256" })
+    private int totalMegabytes;
+
+    @Param({ "65536" })
+    private int bufferSize;
+
+    @Param({ "4096" })
+    private int copySize;
+
+    private PooledByteBufAllocator allocator;
+    private ByteBuf[] buffers;
+    private int[] longIndexes;
+    private int[] copyIndexes;
+    private int[] bufferIndexes;
+    private int next;
+
+    @Setup
+    public void setup() {
+        NativeHugePageAllocator hugePageAllocator = null;
+        if (hugePages) {
+            Epoll.ensureAvailability();
+            if (!PlatformDependent.hasDirectBufferNoCleanerConstructor()) {
+                throw new IllegalStateException("Huge page chunks require the no-cleaner DirectByteBuffer");
+            }
+            hugePageAllocator = new NativeHugePageAllocator(false);
+        }
+        allocator = new PooledByteBufAllocator(true, 0, 1, 8192, 11, 0, 0, false, 0, 0, hugePageAllocator);
+        buffers = new ByteBuf[(int) ((totalMegabytes * 1024L * 1024L) / bufferSize)];
+        for (int i = 0; i < buffers.length; i++) {
+            // Touch every page up front so page faults are not part of the measurement.
+            buffers[i] = allocator.directBuffer(bufferSize, bufferSize).writeZero(bufferSize);
+        }
+
+        SplittableRandom random = new SplittableRandom(42);
+        bufferIndexes = new int[INDEXES];
+        longIndexes = new int[INDEXES];
+        copyIndexes = new int[INDEXES];
+        for (int i = 0; i < INDEXES; i++) {
+            bufferIndexes[i] = random.nextInt(buffers.length);
+            longIndexes[i] = random.nextInt(bufferSize / Long.BYTES) * Long.BYTES;
+            copyIndexes[i] = random.nextInt(bufferSize - copySize + 1);
+        }
+    }
+
+    @TearDown
+    public void teardown() {
+        for (ByteBuf buffer : buffers) {
+            buffer.release();
+        }
+        allocator.trimIdleChunks();
+        allocator.trimIdleChunks();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public long randomAccess() {
+        ByteBuf[] buffers = this.buffers;
+        int[] bufferIndexes = this.bufferIndexes;
+        int[] longIndexes = this.longIndexes;
+        int start = nextIndex();
+        long sum = 0;
+        for (int i = start; i < start + OPERATIONS; i++) {
+            sum += buffers[bufferIndexes[i]].getLong(longIndexes[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public void memcpy() {
+        ByteBuf[] buffers = this.buffers;
+        int[] bufferIndexes = this.bufferIndexes;
+        int[] copyIndexes = this.copyIndexes;
+        int copySize = this.copySize;
+        int start = nextIndex();
+        for (int i = start; i < start + OPERATIONS; i++) {
+            int dst = (i + OPERATIONS) & (INDEXES - 1);
+            buffers[bufferIndexes[dst]].setBytes(copyIndexes[dst], buffers[bufferIndexes[i]],
+                    copyIndexes[i], copySize);
+        }
+    }
+
+    private int nextIndex() {
+        int start = next;
+        next = (start + OPERATIONS) & (INDEXES - 1);
+        return start;
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.channel;
+
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoopChooserFactories;
+import io.netty.channel.MultithreadEventLoopGroup;
+import io.netty.channel.SingleThreadEventLoop;
+import io.netty.channel.local.LocalChannel;
+import io.netty.channel.local.LocalHandler;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.concurrent.EventExecutorChooserFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the {@link EventExecutorChooserFactory}s of {@link EventLoopChooserFactories} when the load is skewed:
+ * one {@link SingleThreadEventLoop} has many registered {@link Channel}s and is kept busy all the time, while all the
+ * others are idle. Each operation picks an {@link SingleThreadEventLoop} via {@link MultithreadEventLoopGroup#next()}
+ * and waits until a task was executed by it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EventLoopChooserBenchmark extends AbstractMicrobenchmark {
+
+    public enum ChooserType {
+        ROUND_ROBIN,
+        PENDING_TASKS,
+        REGISTERED_CHANNELS,
+        BUSY
+    }
+
+    private static final Runnable NOOP = () -> { };
+
+    @Param
+    public ChooserType chooser;
+
+    @Param({ "4" })
+    public int eventLoops;
+
+    @Param({ "1000" })
+    public int heavyChannels;
+
+    @Param({ "100" })
+    public int heavyTaskMicros;
+
+    private MultithreadEventLoopGroup group;
+    private final List<Channel> channels = new ArrayList<>();
+    private volatile boolean running;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        group = new MultithreadEventLoopGroup(eventLoops, LocalHandler.newFactory(), newChooserFactory(chooser));
+        final SingleThreadEventLoop heavyLoop = (SingleThreadEventLoop) group.iterator().next();
+        for (int i = 0; i < heavyChannels; i++) {
+            Channel channel = new LocalChannel(heavyLoop);
+            channel.register().sync();
+            channels.add(channel);
+        }
+
+        running = true;
+        final long heavyTaskNanos = TimeUnit.MICROSECONDS.toNanos(heavyTaskMicros);
+        heavyLoop.execute(new Runnable() {
+            @Override
+            public void run() {
+                long deadline = System.nanoTime() + heavyTaskNanos;
+                while (System.nanoTime() < deadline) {
+                    // Simulate a loop that is busy with processing the IO of its heavy connections.
+                }
+                if (running) {
+                    heavyLoop.execute(this);
+                }
+            }
+        });
+    }
+
+    private static EventExecutorChooserFactory newChooserFactory(ChooserType type) {
+        switch (type) {
+            case ROUND_ROBIN:
+                return EventLoopChooserFactories.roundRobin();
+            case PENDING_TASKS:
+                return EventLoopChooserFactories.leastPendingTasks();
+            case REGISTERED_CHANNELS:
+                return EventLoopChooserFactories.leastRegisteredChannels();
+            case BUSY:
+                return EventLoopChooserFactories.leastBusy();
+            default:
+                throw new IllegalArgumentException("Unknown chooser: " + type);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        running = false;
+        for (Channel channel : channels) {
+            channel.close().sync();
+        }
+        channels.clear();
+        group.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+    }
+
+    @Benchmark
+    public Object nextAndExecute() throws Exception {
+        return group.next().submit(NOOP).sync();
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.channel.epoll;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.FixedRecvByteBufAllocator;
+import io.netty.channel.MultithreadEventLoopGroup;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollDatagramChannel;
+import io.netty.channel.epoll.EpollHandler;
+import io.netty.channel.epoll.SegmentedDatagramPacket;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.NetUtil;
+import io.netty.util.ReferenceCountUtil;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures the packet rate of an {@link EpollDatagramChannel} over loopback when sending every datagram on its own
+ * (batched via {@code sendmmsg}) compared to sending them as one {@link SegmentedDatagramPacket} ({@code UDP_SEGMENT}),
+ * optionally with {@code UDP_GRO} enabled on the receiving side. The score is the number of datagrams sent, the
+ * {@code received} counter shows how many of these were actually read by the receiver.
+ */
+public class EpollDatagramSegmentationBenchmark extends AbstractMicrobenchmark {
+    private static final int SEGMENTS = 32;
+    private static final int SEGMENT_SIZE = 1200;
+
+    public enum Mode {
+        SENDMMSG, GSO
+    }
+
+    @Param
+    public Mode mode;
+
+    @Param({ "false", "true" })
+    public boolean gro;
+
+    private final AtomicLong receivedDatagrams = new AtomicLong();
+    private EventLoopGroup group;
+    private Channel receiver;
+    private Channel sender;
+    private InetSocketAddress address;
+    private ByteBuf payload;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public long received;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            received = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        group = new MultithreadEventLoopGroup(2, EpollHandler.newFactory());
+        receiver = new Bootstrap().group(group).channel(EpollDatagramChannel.class)
+                .option(ChannelOption.RCVBUF_ALLOCATOR, new FixedRecvByteBufAllocator(64 * 1024))
+                .option(ChannelOption.SO_RCVBUF, 4 * 1024 * 1024)
+                .option(EpollChannelOption.UDP_GRO, gro)
+                .handler(new ChannelHandler() {
+                    @Override
+                    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                        receivedDatagrams.incrementAndGet();
+                        ReferenceCountUtil.release(msg);
+                    }
+                }).bind(new InetSocketAddress(NetUtil.LOCALHOST, 0)).sync().channel();
+        address = (InetSocketAddress) receiver.localAddress();
+        sender = new Bootstrap().group(group).channel(EpollDatagramChannel.class)
+                .handler(new ChannelHandler() { })
+                .bind(new InetSocketAddress(NetUtil.LOCALHOST, 0)).sync().channel();
+        payload = PooledByteBufAllocator.DEFAULT.directBuffer(SEGMENTS * SEGMENT_SIZE)
+                .writeZero(SEGMENTS * SEGMENT_SIZE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        sender.close().sync();
+        receiver.close().sync();
+        group.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+        payload.release();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SEGMENTS)
+    public void send(Counters counters) throws Exception {
+        ChannelFuture future;
+        if (mode == Mode.GSO) {
+            future = sender.writeAndFlush(new SegmentedDatagramPacket(
+                    payload.retainedDuplicate(), SEGMENT_SIZE, address));
+        } else {
+            future = null;
+            for (int i = 0; i < SEGMENTS; i++) {
+                future = sender.write(new DatagramPacket(
+                        payload.retainedSlice(i * SEGMENT_SIZE, SEGMENT_SIZE), address));
+            }
+            sender.flush();
+        }
+        future.sync();
+        counters.received += receivedDatagrams.getAndSet(0);
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.channel.epoll;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.MultithreadEventLoopGroup;
+import io.netty.channel.epoll.EpollHandler;
+import io.netty.channel.epoll.EpollReusePort;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.NetUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the connection rate of a classic boss / worker setup compared to one {@code SO_REUSEPORT} listener per
+ * {@link io.netty.channel.EventLoop}. Every connection is accepted, answered with a single byte and closed again.
+ */
+@Threads(4)
+public class EpollReusePortAcceptBenchmark extends AbstractMicrobenchmark {
+
+    public enum Mode {
+        BOSS_WORKER, REUSEPORT, REUSEPORT_CPU
+    }
+
+    @Param
+    public Mode mode;
+
+    @Param({ "4" })
+    public int workers;
+
+    private EventLoopGroup bossGroup;
+    private EventLoopGroup workerGroup;
+    private ChannelGroup listeners;
+    private Channel listener;
+    private InetSocketAddress address;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        workerGroup = new MultithreadEventLoopGroup(workers, EpollHandler.newFactory());
+        ServerBootstrap bootstrap = new ServerBootstrap()
+                .channel(EpollServerSocketChannel.class)
+                .childHandler(new ChannelHandler() {
+                    @Override
+                    public void channelActive(ChannelHandlerContext ctx) {
+                        ctx.writeAndFlush(ctx.alloc().directBuffer(1).writeByte('a'))
+                                .addListener(ChannelFutureListener.CLOSE);
+                    }
+                });
+        InetSocketAddress localAddress = new InetSocketAddress(NetUtil.LOCALHOST, 0);
+        if (mode == Mode.BOSS_WORKER) {
+            bossGroup = new MultithreadEventLoopGroup(1, EpollHandler.newFactory());
+            listener = bootstrap.group(bossGroup, workerGroup).bind(localAddress).sync().channel();
+            address = (InetSocketAddress) listener.localAddress();
+        } else {
+            listeners = EpollReusePort.bind(bootstrap.group(workerGroup), localAddress, mode == Mode.REUSEPORT_CPU)
+                    .sync().getNow();
+            address = (InetSocketAddress) listeners.iterator().next().localAddress();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if (listener != null) {
+            listener.close().sync();
+        }
+        if (listeners != null) {
+            listeners.close().sync();
+        }
+        if (bossGroup != null) {
+            bossGroup.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+        }
+        workerGroup.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+    }
+
+    @Benchmark
+    public int connect() throws IOException {
+        try (Socket socket = new Socket(address.getAddress(), address.getPort())) {
+            InputStream in = socket.getInputStream();
+            return in.read();
+        }
+    }
+}
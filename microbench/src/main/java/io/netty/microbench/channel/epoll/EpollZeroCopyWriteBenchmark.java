@@ -0,0 +1,103 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.channel.epoll;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.MultithreadEventLoopGroup;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollHandler;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.NetUtil;
+import io.netty.util.ReferenceCountUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the write throughput of an {@link EpollSocketChannel} over loopback with and without
+ * {@link EpollChannelOption#SO_ZEROCOPY}. Every operation writes one payload of the given size, the payloads are
+ * written in batches and the benchmark waits until the last write of a batch is complete (which for zero-copy writes
+ * means the kernel released the memory).
+ * <p>
+ * Note that loopback always falls back to copying the data once it reaches the receiving socket. The channel detects
+ * this from the first completion and stops using {@code MSG_ZEROCOPY}, so the gain is only visible on a real NIC.
+ */
+public class EpollZeroCopyWriteBenchmark extends AbstractMicrobenchmark {
+    private static final int BATCH = 16;
+
+    @Param({ "65536", "262144", "1048576", "4194304" })
+    public int size;
+
+    @Param({ "false", "true" })
+    public boolean zeroCopy;
+
+    private EventLoopGroup group;
+    private Channel serverChannel;
+    private Channel clientChannel;
+    private ByteBuf payload;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        group = new MultithreadEventLoopGroup(2, EpollHandler.newFactory());
+        serverChannel = new ServerBootstrap().group(group).channel(EpollServerSocketChannel.class)
+                .childHandler(new ChannelHandler() {
+                    @Override
+                    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                        ReferenceCountUtil.release(msg);
+                    }
+                }).bind(new InetSocketAddress(NetUtil.LOCALHOST, 0)).sync().channel();
+        clientChannel = new Bootstrap().group(group).channel(EpollSocketChannel.class)
+                .option(EpollChannelOption.SO_ZEROCOPY, zeroCopy)
+                .handler(new ChannelHandler() { })
+                .connect(serverChannel.localAddress()).sync().channel();
+        payload = PooledByteBufAllocator.DEFAULT.directBuffer(size).writeZero(size);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        clientChannel.close().sync();
+        serverChannel.close().sync();
+        group.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+        payload.release();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void write() throws Exception {
+        ChannelFuture future = null;
+        for (int i = 0; i < BATCH; i++) {
+            future = clientChannel.write(payload.retainedDuplicate());
+        }
+        clientChannel.flush();
+        future.sync();
+    }
+}
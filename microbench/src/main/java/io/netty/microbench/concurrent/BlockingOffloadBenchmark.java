@@ -0,0 +1,111 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.concurrent;
+
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.concurrent.DefaultEventExecutorGroup;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.EventExecutorGroup;
+import io.netty.util.concurrent.VirtualThreadEventExecutorGroup;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares offloading blocking work (simulated by sleeping) to a {@link DefaultEventExecutorGroup} with the
+ * offloading to a {@link VirtualThreadEventExecutorGroup}. Each of the {@code channels} submits one blocking task to
+ * "its" {@link EventExecutor} and the benchmark measures how long it takes until all of them are done.
+ * <p>
+ * The {@code virtualThreadEventExecutorGroup} type requires Java 21 or later.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BlockingOffloadBenchmark extends AbstractMicrobenchmark {
+
+    @Param({ "defaultEventExecutorGroup", "virtualThreadEventExecutorGroup" })
+    public String executorType;
+
+    /**
+     * The number of threads used by the {@link DefaultEventExecutorGroup}.
+     */
+    @Param({ "16" })
+    public int threads;
+
+    @Param({ "16", "1024" })
+    public int channels;
+
+    @Param({ "1" })
+    public int blockMillis;
+
+    private EventExecutorGroup group;
+    private EventExecutor[] executors;
+
+    @Setup
+    public void setup() {
+        switch (executorType) {
+            case "defaultEventExecutorGroup":
+                group = new DefaultEventExecutorGroup(threads);
+                break;
+            case "virtualThreadEventExecutorGroup":
+                group = new VirtualThreadEventExecutorGroup();
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported executorType: " + executorType);
+        }
+        executors = new EventExecutor[channels];
+        for (int i = 0; i < executors.length; i++) {
+            // Like a Channel that keeps the EventExecutor it was assigned to.
+            executors[i] = group.next();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        group.shutdownGracefully(0, 1, TimeUnit.SECONDS).await();
+    }
+
+    @Benchmark
+    public long blockingTasks() throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(executors.length);
+        final long blockMillis = this.blockMillis;
+        for (EventExecutor executor : executors) {
+            executor.execute(() -> {
+                try {
+                    Thread.sleep(blockMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                done.countDown();
+            });
+        }
+        done.await();
+        return done.getCount();
+    }
+}
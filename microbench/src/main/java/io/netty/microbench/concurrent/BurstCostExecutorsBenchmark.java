@@ -23,6 +23,8 @@ import io.netty.channel.kqueue.KQueueHandler;
 import io.netty.channel.nio.NioHandler;
 import io.netty.microbench.util.AbstractMicrobenchmark;
 import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.EventExecutorMetric;
+import io.netty.util.concurrent.EventExecutorMetricProvider;
 import io.netty.util.concurrent.RejectedExecutionHandlers;
 import io.netty.util.concurrent.SingleThreadEventExecutor;
 import io.netty.util.internal.PlatformDependent;
@@ -178,9 +180,14 @@ public class BurstCostExecutorsBenchmark extends AbstractMicrobenchmark {
     private String executorType;
     @Param({ "0", "10" })
     private int work;
+    // Reads the metric of the executor every millisecond from another thread, like a metrics exporter would do.
+    @Param({ "false", "true" })
+    private boolean scrapeMetric;
 
     private ExecutorService executor;
     private ExecutorService executorToShutdown;
+    private Thread metricScraper;
+    private volatile boolean scraping;
 
     @Setup
     public void setup() {
@@ -226,10 +233,33 @@ public class BurstCostExecutorsBenchmark extends AbstractMicrobenchmark {
             executorToShutdown = kqueueEventLoopGroup;
             break;
         }
+        if (scrapeMetric && executor instanceof EventExecutorMetricProvider) {
+            final EventExecutorMetric metric = ((EventExecutorMetricProvider) executor).metric();
+            scraping = true;
+            metricScraper = new Thread(() -> {
+                long sink = 0;
+                while (scraping) {
+                    sink += metric.pendingTasks() + metric.executedTasks() +
+                            metric.averageTaskWaitTime(TimeUnit.NANOSECONDS);
+                    try {
+                        Thread.sleep(1);
+                    } catch (InterruptedException e) {
+                        break;
+                    }
+                }
+                Blackhole.consumeCPU(sink & 1);
+            });
+            metricScraper.start();
+        }
     }
 
     @TearDown
-    public void tearDown() {
+    public void tearDown() throws InterruptedException {
+        if (metricScraper != null) {
+            scraping = false;
+            metricScraper.join();
+            metricScraper = null;
+        }
         executorToShutdown.shutdown();
     }
 
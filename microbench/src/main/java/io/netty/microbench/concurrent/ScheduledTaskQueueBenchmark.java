@@ -0,0 +1,91 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.concurrent;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.MultithreadEventLoopGroup;
+import io.netty.channel.local.LocalHandler;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.ScheduledFuture;
+import io.netty.util.concurrent.ScheduledTaskQueueType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schedules timeouts, most of them are cancelled before they expire, like it is done by
+ * {@code IdleStateHandler} and {@code ReadTimeoutHandler} for every read.
+ */
+@State(Scope.Benchmark)
+public class ScheduledTaskQueueBenchmark extends AbstractMicrobenchmark {
+
+    private static final Callable<Void> NO_OP = () -> null;
+
+    @Param
+    ScheduledTaskQueueType type;
+
+    // The number of timeouts that are scheduled at any time.
+    @Param({ "1000", "100000" })
+    int pending;
+
+    private EventLoopGroup group;
+    private ScheduledFuture<?>[] futures;
+    private long[] delays;
+    private int index;
+
+    @Setup
+    public void setup() {
+        group = new MultithreadEventLoopGroup(1, LocalHandler.newFactory(), type);
+        futures = new ScheduledFuture<?>[pending];
+        delays = new long[pending];
+        Random random = new Random(42);
+        for (int i = 0; i < pending; i++) {
+            // Between 10 and 60 seconds.
+            delays[i] = TimeUnit.SECONDS.toMillis(10) + random.nextInt((int) TimeUnit.SECONDS.toMillis(50));
+        }
+        group.submit(() -> {
+            for (int i = 0; i < pending; i++) {
+                futures[i] = group.schedule(NO_OP, delays[i], TimeUnit.MILLISECONDS);
+            }
+        }).syncUninterruptibly();
+    }
+
+    @TearDown
+    public void teardown() {
+        group.shutdownGracefully(0, 0, TimeUnit.MILLISECONDS).syncUninterruptibly();
+    }
+
+    @Benchmark
+    public Future<?> rescheduleTimeouts() {
+        // Cancel and re-schedule a batch of timeouts, which is what happens when data is read on many channels.
+        return group.submit(() -> {
+            for (int i = 0; i < 1000; i++) {
+                int idx = index;
+                futures[idx].cancel(false);
+                futures[idx] = group.schedule(NO_OP, delays[idx], TimeUnit.MILLISECONDS);
+                index = idx + 1 == pending ? 0 : idx + 1;
+            }
+        }).syncUninterruptibly();
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.util;
+
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.ShardedHashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link HashedWheelTimer} with {@link ShardedHashedWheelTimer} when many threads schedule request deadlines
+ * that are cancelled once the response is received.
+ */
+@State(Scope.Benchmark)
+@Threads(8)
+public class HashedWheelTimerBenchmark extends AbstractMicrobenchmark {
+
+    private static final TimerTask NOOP = timeout -> { };
+
+    public enum TimerType {
+        SINGLE,
+        SHARDED
+    }
+
+    @Param
+    TimerType type;
+
+    private Timer timer;
+
+    @Setup
+    public void setup() {
+        DefaultThreadFactory threadFactory = new DefaultThreadFactory(HashedWheelTimerBenchmark.class, true);
+        if (type == TimerType.SINGLE) {
+            timer = new HashedWheelTimer(threadFactory, 10, TimeUnit.MILLISECONDS);
+        } else {
+            timer = new ShardedHashedWheelTimer(4, threadFactory, 10, TimeUnit.MILLISECONDS, 512, -1,
+                    Runnable::run);
+        }
+    }
+
+    @TearDown
+    public void teardown() {
+        timer.stop();
+    }
+
+    @Benchmark
+    public boolean newTimeoutAndCancel() {
+        Timeout timeout = timer.newTimeout(NOOP, 1, TimeUnit.SECONDS);
+        return timeout.cancel();
+    }
+}
@@ -23,10 +23,13 @@
 
 #include <stdlib.h>
 #include <string.h>
+#include <fcntl.h>
 #include <errno.h>
 #include <netinet/in.h>
 #include <sys/sendfile.h>
 #include <linux/tcp.h> // TCP_NOTSENT_LOWAT is a linux specific define
+#include <linux/filter.h>
+#include <linux/errqueue.h>
 
 #include "netty_epoll_linuxsocket.h"
 #include "netty_unix_errors.h"
@@ -55,6 +58,58 @@
 #define SO_BUSY_POLL 46
 #endif
 
+// SO_ZEROCOPY and MSG_ZEROCOPY are defined in linux 4.14. We define these here so older kernels can compile.
+#ifndef SO_ZEROCOPY
+#define SO_ZEROCOPY 60
+#endif
+
+#ifndef MSG_ZEROCOPY
+#define MSG_ZEROCOPY 0x4000000
+#endif
+
+#ifndef SO_EE_ORIGIN_ZEROCOPY
+#define SO_EE_ORIGIN_ZEROCOPY 5
+#endif
+
+// UDP_GRO is defined in linux 5.0. We define this here so older kernels can compile.
+#ifndef SOL_UDP
+#define SOL_UDP 17
+#endif
+
+#ifndef UDP_GRO
+#define UDP_GRO 104
+#endif
+
+// TCP_ULP is defined in linux 4.13. We define this here so older kernels can compile.
+#ifndef TCP_ULP
+#define TCP_ULP 31
+#endif
+
+#ifndef SOL_TLS
+#define SOL_TLS 282
+#endif
+
+#ifndef TLS_TX
+#define TLS_TX 1
+#endif
+
+#ifndef TLS_RX
+#define TLS_RX 2
+#endif
+
+// Big enough for all struct tls12_crypto_info_* variants.
+#define TLS_CRYPTO_INFO_MAX_SIZE 64
+
+// Upper bound of connections accepted by a single acceptBatch(...) call.
+#define ACCEPT_BATCH_MAX 64
+// 1 byte for the length followed by at most 16 bytes address, 4 bytes scope id and 4 bytes port.
+#define ACCEPT_BATCH_ADDRESS_SIZE 26
+
+// SO_ATTACH_REUSEPORT_CBPF is defined in linux 4.5. We define this here so older kernels can compile.
+#ifndef SO_ATTACH_REUSEPORT_CBPF
+#define SO_ATTACH_REUSEPORT_CBPF 51
+#endif
+
 static jclass peerCredentialsClass = NULL;
 static jmethodID peerCredentialsMethodId = NULL;
 
@@ -154,10 +209,205 @@ static void netty_epoll_linuxsocket_setIpRecvOrigDestAddr(JNIEnv* env, jclass cl
     netty_unix_socket_setOption(env, fd, IPPROTO_IP, IP_RECVORIGDSTADDR, &optval, sizeof(optval));
 }
 
+static void netty_epoll_linuxsocket_setSoPassCred(JNIEnv* env, jclass clazz, jint fd, jint optval) {
+    netty_unix_socket_setOption(env, fd, SOL_SOCKET, SO_PASSCRED, &optval, sizeof(optval));
+}
+
 static void netty_epoll_linuxsocket_setSoBusyPoll(JNIEnv* env, jclass clazz, jint fd, jint optval) {
     netty_unix_socket_setOption(env, fd, SOL_SOCKET, SO_BUSY_POLL, &optval, sizeof(optval));
 }
 
+static void netty_epoll_linuxsocket_setSoZeroCopy(JNIEnv* env, jclass clazz, jint fd, jint optval) {
+    netty_unix_socket_setOption(env, fd, SOL_SOCKET, SO_ZEROCOPY, &optval, sizeof(optval));
+}
+
+static void netty_epoll_linuxsocket_setUdpGro(JNIEnv* env, jclass clazz, jint fd, jint optval) {
+    netty_unix_socket_setOption(env, fd, SOL_UDP, UDP_GRO, &optval, sizeof(optval));
+}
+
+static void netty_epoll_linuxsocket_setTcpUlp(JNIEnv* env, jclass clazz, jint fd, jbyteArray name) {
+    char ulp[16];
+    jsize len = (*env)->GetArrayLength(env, name);
+    if (len >= (jsize) sizeof(ulp)) {
+        netty_unix_errors_throwIOException(env, "ulp name too long");
+        return;
+    }
+    (*env)->GetByteArrayRegion(env, name, 0, len, (jbyte*) ulp);
+    ulp[len] = '\0';
+    netty_unix_socket_setOption(env, fd, IPPROTO_TCP, TCP_ULP, ulp, len);
+}
+
+static void netty_epoll_linuxsocket_setTlsCryptoInfo(JNIEnv* env, jclass clazz, jint fd, jboolean tx, jbyteArray info) {
+    char cryptoInfo[TLS_CRYPTO_INFO_MAX_SIZE];
+    jsize len = (*env)->GetArrayLength(env, info);
+    if (len > (jsize) sizeof(cryptoInfo)) {
+        netty_unix_errors_throwIOException(env, "crypto info too long");
+        return;
+    }
+    (*env)->GetByteArrayRegion(env, info, 0, len, (jbyte*) cryptoInfo);
+    netty_unix_socket_setOption(env, fd, SOL_TLS, tx == JNI_TRUE ? TLS_TX : TLS_RX, cryptoInfo, len);
+    // Do not keep the keys on the stack longer than needed.
+    memset(cryptoInfo, 0, sizeof(cryptoInfo));
+}
+
+// Encodes the address the same way as Socket.accept(...) does: length, address, [scope id], port.
+static void encodeAcceptedAddress(const struct sockaddr_storage* addr, jbyte* out) {
+    int port;
+    int offset;
+    uint32_t scopeId = 0;
+    int ipLength = netty_unix_socket_ipAddressLength(addr);
+
+    if (addr->ss_family == AF_INET) {
+        struct sockaddr_in* s = (struct sockaddr_in*) addr;
+        port = ntohs(s->sin_port);
+        memcpy(out + 1, &s->sin_addr.s_addr, 4);
+    } else {
+        struct sockaddr_in6* s = (struct sockaddr_in6*) addr;
+        port = ntohs(s->sin6_port);
+        if (ipLength == 4) {
+            // IPv4-mapped-on-IPv6, we only need the last 4 bytes.
+            memcpy(out + 1, &(s->sin6_addr.s6_addr[12]), 4);
+        } else {
+            memcpy(out + 1, &(s->sin6_addr.s6_addr), 16);
+            scopeId = s->sin6_scope_id;
+        }
+    }
+    offset = 1 + ipLength;
+    if (ipLength != 4) {
+        out[offset++] = scopeId >> 24;
+        out[offset++] = scopeId >> 16;
+        out[offset++] = scopeId >> 8;
+        out[offset++] = scopeId;
+    }
+    out[offset++] = port >> 24;
+    out[offset++] = port >> 16;
+    out[offset++] = port >> 8;
+    out[offset++] = port;
+    out[0] = (jbyte) (offset - 1);
+}
+
+static jint netty_epoll_linuxsocket_acceptBatch(JNIEnv* env, jclass clazz, jint fd, jintArray fds, jbyteArray addresses) {
+    jint accepted[ACCEPT_BATCH_MAX];
+    jbyte encoded[ACCEPT_BATCH_MAX * ACCEPT_BATCH_ADDRESS_SIZE];
+    struct sockaddr_storage addr;
+    socklen_t addressLen;
+    jint socketFd;
+    int err = 0;
+    int count = 0;
+    jsize max = (*env)->GetArrayLength(env, fds);
+    jsize maxAddresses = (*env)->GetArrayLength(env, addresses) / ACCEPT_BATCH_ADDRESS_SIZE;
+
+    if (maxAddresses < max) {
+        max = maxAddresses;
+    }
+    if (max > ACCEPT_BATCH_MAX) {
+        max = ACCEPT_BATCH_MAX;
+    }
+
+    while (count < max) {
+        do {
+            addressLen = sizeof(addr);
+            socketFd = accept4(fd, (struct sockaddr*) &addr, &addressLen, SOCK_NONBLOCK | SOCK_CLOEXEC);
+            // keep on accepting if it was interrupted
+        } while (socketFd == -1 && ((err = errno) == EINTR));
+
+        if (socketFd == -1) {
+            if (count == 0) {
+                return -err;
+            }
+            // Report what we have, the error (if any) will be seen again by the next call.
+            break;
+        }
+        accepted[count] = socketFd;
+        memset(encoded + count * ACCEPT_BATCH_ADDRESS_SIZE, 0, ACCEPT_BATCH_ADDRESS_SIZE);
+        encodeAcceptedAddress(&addr, encoded + count * ACCEPT_BATCH_ADDRESS_SIZE);
+        count++;
+    }
+
+    (*env)->SetIntArrayRegion(env, fds, 0, count, accepted);
+    (*env)->SetByteArrayRegion(env, addresses, 0, count * ACCEPT_BATCH_ADDRESS_SIZE, encoded);
+    return count;
+}
+
+static jlong netty_epoll_linuxsocket_writevAddressesZeroCopy(JNIEnv* env, jclass clazz, jint fd, jlong memoryAddress, jint length) {
+    struct msghdr msg;
+    ssize_t res;
+    int err = 0;
+
+    memset(&msg, 0, sizeof(msg));
+    msg.msg_iov = (struct iovec*) (intptr_t) memoryAddress;
+    msg.msg_iovlen = length;
+
+    do {
+        res = sendmsg(fd, &msg, MSG_ZEROCOPY);
+        // keep on writing if it was interrupted
+    } while (res == -1 && ((err = errno) == EINTR));
+
+    if (res < 0) {
+        return -err;
+    }
+    return (jlong) res;
+}
+
+// Reads the MSG_ZEROCOPY notifications from the error queue. Every notification is stored as three ints
+// (first id, last id, code) into the given array. Returns the number of notifications or -errno.
+static jint netty_epoll_linuxsocket_recvZeroCopyCompletions(JNIEnv* env, jclass clazz, jint fd, jintArray completions) {
+    jsize max = (*env)->GetArrayLength(env, completions) / 3;
+    char control[128];
+    jint completion[3];
+    struct msghdr msg;
+    struct cmsghdr* cm;
+    struct sock_extended_err* serr;
+    ssize_t res;
+    int err = 0;
+    int count = 0;
+
+    while (count < max) {
+        memset(&msg, 0, sizeof(msg));
+        msg.msg_control = control;
+        msg.msg_controllen = sizeof(control);
+
+        do {
+            res = recvmsg(fd, &msg, MSG_ERRQUEUE);
+            // keep on reading if it was interrupted
+        } while (res == -1 && ((err = errno) == EINTR));
+
+        if (res < 0) {
+            if (err == EAGAIN || err == EWOULDBLOCK) {
+                break;
+            }
+            return -err;
+        }
+
+        for (cm = CMSG_FIRSTHDR(&msg); cm != NULL && count < max; cm = CMSG_NXTHDR(&msg, cm)) {
+            if (!((cm->cmsg_level == SOL_IP && cm->cmsg_type == IP_RECVERR) ||
+                  (cm->cmsg_level == SOL_IPV6 && cm->cmsg_type == IPV6_RECVERR))) {
+                continue;
+            }
+            serr = (struct sock_extended_err*) CMSG_DATA(cm);
+            if (serr->ee_errno != 0 || serr->ee_origin != SO_EE_ORIGIN_ZEROCOPY) {
+                continue;
+            }
+            completion[0] = (jint) serr->ee_info;
+            completion[1] = (jint) serr->ee_data;
+            completion[2] = (jint) serr->ee_code;
+            (*env)->SetIntArrayRegion(env, completions, count * 3, 3, completion);
+            count++;
+        }
+    }
+    return count;
+}
+
+// Duplicates the file descriptor, so the socket stays alive after the original one was closed.
+// Returns the new file descriptor or -errno.
+static jint netty_epoll_linuxsocket_dup(JNIEnv* env, jclass clazz, jint fd) {
+    int res = fcntl(fd, F_DUPFD_CLOEXEC, 0);
+    if (res == -1) {
+        return -errno;
+    }
+    return res;
+}
+
 static void netty_epoll_linuxsocket_joinGroup(JNIEnv* env, jclass clazz, jint fd, jboolean ipv6, jbyteArray groupAddress, jbyteArray interfaceAddress, jint scopeId, jint interfaceIndex) {
     struct sockaddr_storage groupAddr;
     socklen_t groupAddrSize;
@@ -421,6 +671,42 @@ static void netty_epoll_linuxsocket_setTcpMd5Sig(JNIEnv* env, jclass clazz, jint
     }
 }
 
+static void netty_epoll_linuxsocket_setReusePortCbpf(JNIEnv* env, jclass clazz, jint fd, jintArray program) {
+    // Every instruction is encoded as four ints: code, jt, jf and k.
+    jsize len = (*env)->GetArrayLength(env, program) / 4;
+    jint* insns = NULL;
+    struct sock_filter* filter = NULL;
+    struct sock_fprog fprog;
+    int i;
+
+    if (len <= 0 || len > BPF_MAXINSNS) {
+        netty_unix_errors_throwIOException(env, "Invalid program length");
+        return;
+    }
+    filter = calloc(len, sizeof(struct sock_filter));
+    if (filter == NULL) {
+        netty_unix_errors_throwOutOfMemoryError(env);
+        return;
+    }
+    insns = (*env)->GetIntArrayElements(env, program, NULL);
+    if (insns == NULL) {
+        free(filter);
+        return;
+    }
+    for (i = 0; i < len; i++) {
+        filter[i].code = (__u16) insns[i * 4];
+        filter[i].jt = (__u8) insns[i * 4 + 1];
+        filter[i].jf = (__u8) insns[i * 4 + 2];
+        filter[i].k = (__u32) insns[i * 4 + 3];
+    }
+    (*env)->ReleaseIntArrayElements(env, program, insns, JNI_ABORT);
+
+    fprog.len = (unsigned short) len;
+    fprog.filter = filter;
+    netty_unix_socket_setOption(env, fd, SOL_SOCKET, SO_ATTACH_REUSEPORT_CBPF, &fprog, sizeof(fprog));
+    free(filter);
+}
+
 static int netty_epoll_linuxsocket_getInterface(JNIEnv* env, jclass clazz, jint fd, jboolean ipv6) {
     if (ipv6 == JNI_TRUE) {
         int optval;
@@ -519,6 +805,22 @@ static jint netty_epoll_linuxsocket_isIpRecvOrigDestAddr(JNIEnv* env, jclass cla
      return optval;
 }
 
+static jint netty_epoll_linuxsocket_isSoPassCred(JNIEnv* env, jclass clazz, jint fd) {
+     int optval;
+     if (netty_unix_socket_getOption(env, fd, SOL_SOCKET, SO_PASSCRED, &optval, sizeof(optval)) == -1) {
+         return -1;
+     }
+     return optval;
+}
+
+static jint netty_epoll_linuxsocket_isSoAcceptConn(JNIEnv* env, jclass clazz, jint fd) {
+     int optval;
+     if (netty_unix_socket_getOption(env, fd, SOL_SOCKET, SO_ACCEPTCONN, &optval, sizeof(optval)) == -1) {
+         return -1;
+     }
+     return optval;
+}
+
 static void netty_epoll_linuxsocket_getTcpInfo(JNIEnv* env, jclass clazz, jint fd, jlongArray array) {
      struct tcp_info tcp_info;
      if (netty_unix_socket_getOption(env, fd, IPPROTO_TCP, TCP_INFO, &tcp_info, sizeof(tcp_info)) == -1) {
@@ -578,6 +880,14 @@ static jint netty_epoll_linuxsocket_getSoBusyPoll(JNIEnv* env, jclass clazz, jin
     return optval;
 }
 
+static jint netty_epoll_linuxsocket_isSoZeroCopy(JNIEnv* env, jclass clazz, jint fd) {
+    int optval;
+    if (netty_unix_socket_getOption(env, fd, SOL_SOCKET, SO_ZEROCOPY, &optval, sizeof(optval)) == -1) {
+        return -1;
+    }
+    return optval;
+}
+
 static jint netty_epoll_linuxsocket_getTcpDeferAccept(JNIEnv* env, jclass clazz, jint fd) {
     int optval;
     if (netty_unix_socket_getOption(env, fd, IPPROTO_TCP, TCP_DEFER_ACCEPT, &optval, sizeof(optval)) == -1) {
@@ -675,6 +985,15 @@ static const JNINativeMethod fixed_method_table[] = {
   { "setTcpNotSentLowAt", "(II)V", (void *) netty_epoll_linuxsocket_setTcpNotSentLowAt },
   { "isTcpCork", "(I)I", (void *) netty_epoll_linuxsocket_isTcpCork },
   { "getSoBusyPoll", "(I)I", (void *) netty_epoll_linuxsocket_getSoBusyPoll },
+  { "setSoZeroCopy", "(II)V", (void *) netty_epoll_linuxsocket_setSoZeroCopy },
+  { "isSoZeroCopy", "(I)I", (void *) netty_epoll_linuxsocket_isSoZeroCopy },
+  { "setUdpGro", "(II)V", (void *) netty_epoll_linuxsocket_setUdpGro },
+  { "setTcpUlp", "(I[B)V", (void *) netty_epoll_linuxsocket_setTcpUlp },
+  { "setTlsCryptoInfo", "(IZ[B)V", (void *) netty_epoll_linuxsocket_setTlsCryptoInfo },
+  { "acceptBatch", "(I[I[B)I", (void *) netty_epoll_linuxsocket_acceptBatch },
+  { "writevAddressesZeroCopy", "(IJI)J", (void *) netty_epoll_linuxsocket_writevAddressesZeroCopy },
+  { "recvZeroCopyCompletions", "(I[I)I", (void *) netty_epoll_linuxsocket_recvZeroCopyCompletions },
+  { "dup", "(I)I", (void *) netty_epoll_linuxsocket_dup },
   { "getTcpDeferAccept", "(I)I", (void *) netty_epoll_linuxsocket_getTcpDeferAccept },
   { "getTcpNotSentLowAt", "(I)I", (void *) netty_epoll_linuxsocket_getTcpNotSentLowAt },
   { "isTcpQuickAck", "(I)I", (void *) netty_epoll_linuxsocket_isTcpQuickAck },
@@ -695,8 +1014,12 @@ static const JNINativeMethod fixed_method_table[] = {
   { "isIpFreeBind", "(I)I", (void *) netty_epoll_linuxsocket_isIpFreeBind },
   { "isIpTransparent", "(I)I", (void *) netty_epoll_linuxsocket_isIpTransparent },
   { "isIpRecvOrigDestAddr", "(I)I", (void *) netty_epoll_linuxsocket_isIpRecvOrigDestAddr },
+  { "setSoPassCred", "(II)V", (void *) netty_epoll_linuxsocket_setSoPassCred },
+  { "isSoPassCred", "(I)I", (void *) netty_epoll_linuxsocket_isSoPassCred },
+  { "isSoAcceptConn", "(I)I", (void *) netty_epoll_linuxsocket_isSoAcceptConn },
   { "getTcpInfo", "(I[J)V", (void *) netty_epoll_linuxsocket_getTcpInfo },
   { "setTcpMd5Sig", "(IZ[BI[B)V", (void *) netty_epoll_linuxsocket_setTcpMd5Sig },
+  { "setReusePortCbpf", "(I[I)V", (void *) netty_epoll_linuxsocket_setReusePortCbpf },
   { "joinGroup", "(IZ[B[BII)V", (void *) netty_epoll_linuxsocket_joinGroup },
   { "joinSsmGroup", "(IZ[B[BII[B)V", (void *) netty_epoll_linuxsocket_joinSsmGroup },
   { "leaveGroup", "(IZ[B[BII)V", (void *) netty_epoll_linuxsocket_leaveGroup },
@@ -36,6 +36,9 @@
 #include <inttypes.h>
 #include <link.h>
 #include <time.h>
+#include <sched.h>
+#include <sys/mman.h>
+#include <sys/stat.h>
 // Needed to be able to use syscalls directly and so not depend on newer GLIBC versions
 #include <linux/net.h>
 #include <sys/syscall.h>
@@ -54,6 +57,42 @@
 #define TCP_FASTOPEN 23
 #endif
 
+// UDP_SEGMENT is defined in linux 4.18 and UDP_GRO in linux 5.0. We define these here so older kernels can compile.
+#ifndef SOL_UDP
+#define SOL_UDP 17
+#endif
+
+#ifndef UDP_SEGMENT
+#define UDP_SEGMENT 103
+#endif
+
+#ifndef UDP_GRO
+#define UDP_GRO 104
+#endif
+
+// EPOLLEXCLUSIVE is defined in linux 4.5. We define this here so older kernels can compile.
+#ifndef EPOLLEXCLUSIVE
+#define EPOLLEXCLUSIVE (1u << 28)
+#endif
+
+// MFD_CLOEXEC is defined in linux 3.17. We define this here so older kernels can compile.
+#ifndef MFD_CLOEXEC
+#define MFD_CLOEXEC 1u
+#endif
+
+// MFD_ALLOW_SEALING and the file seals are defined in linux 3.17. We define these here so older kernels can compile.
+#ifndef MFD_ALLOW_SEALING
+#define MFD_ALLOW_SEALING 2u
+#endif
+
+#ifndef F_ADD_SEALS
+#define F_ADD_SEALS 1033
+#define F_GET_SEALS 1034
+#define F_SEAL_SEAL 0x0001
+#define F_SEAL_SHRINK 0x0002
+#define F_SEAL_GROW 0x0004
+#endif
+
 // optional
 extern int epoll_create1(int flags) __attribute__((weak));
 
@@ -98,6 +137,10 @@ static jfieldID packetScopeIdFieldId = NULL;
 static jfieldID packetPortFieldId = NULL;
 static jfieldID packetMemoryAddressFieldId = NULL;
 static jfieldID packetCountFieldId = NULL;
+static jfieldID packetSegmentSizeFieldId = NULL;
+static jfieldID packetPidFieldId = NULL;
+static jfieldID packetUidFieldId = NULL;
+static jfieldID packetGidFieldId = NULL;
 
 // util methods
 static int getSysctlValue(const char * property, int* returnValue) {
@@ -176,6 +219,56 @@ static void netty_epoll_native_eventFdRead(JNIEnv* env, jclass clazz, jint fd) {
     }
 }
 
+static jint netty_epoll_native_memfdCreate0(JNIEnv* env, jclass clazz, jlong size) {
+#ifdef SYS_memfd_create
+    // We directly use the syscall to prevent depending on GLIBC 2.27.
+    int fd = syscall(SYS_memfd_create, "netty", MFD_CLOEXEC | MFD_ALLOW_SEALING);
+    if (fd < 0) {
+        return -errno;
+    }
+    // Seal the size so the peer can not truncate the file while it is mapped, which would cause SIGBUS.
+    if (ftruncate(fd, size) < 0 || fcntl(fd, F_ADD_SEALS, F_SEAL_SHRINK | F_SEAL_GROW | F_SEAL_SEAL) < 0) {
+        int err = errno;
+        close(fd);
+        return -err;
+    }
+    return fd;
+#else
+    return -ENOSYS;
+#endif // SYS_memfd_create
+}
+
+static jint netty_epoll_native_isSizeSealed0(JNIEnv* env, jclass clazz, jint fd) {
+    int seals = fcntl(fd, F_GET_SEALS);
+    if (seals < 0) {
+        return -errno;
+    }
+    return (seals & (F_SEAL_SHRINK | F_SEAL_GROW)) == (F_SEAL_SHRINK | F_SEAL_GROW) ? 1 : 0;
+}
+
+static jlong netty_epoll_native_mmapShared0(JNIEnv* env, jclass clazz, jint fd, jlong size) {
+    void* address = mmap(NULL, (size_t) size, PROT_READ | PROT_WRITE, MAP_SHARED, fd, 0);
+    if (address == MAP_FAILED) {
+        return -errno;
+    }
+    return (jlong) (intptr_t) address;
+}
+
+static jint netty_epoll_native_munmap0(JNIEnv* env, jclass clazz, jlong address, jlong size) {
+    if (munmap((void*) (intptr_t) address, (size_t) size) < 0) {
+        return -errno;
+    }
+    return 0;
+}
+
+static jlong netty_epoll_native_fileSize0(JNIEnv* env, jclass clazz, jint fd) {
+    struct stat st;
+    if (fstat(fd, &st) < 0) {
+        return -errno;
+    }
+    return (jlong) st.st_size;
+}
+
 static void netty_epoll_native_timerFdRead(JNIEnv* env, jclass clazz, jint fd) {
     uint64_t timerFireCount;
 
@@ -302,10 +395,12 @@ static jint netty_epoll_native_epollCtlDel0(JNIEnv* env, jclass clazz, jint efd,
 static jint netty_epoll_native_sendmmsg0(JNIEnv* env, jclass clazz, jint fd, jboolean ipv6, jobjectArray packets, jint offset, jint len) {
     struct mmsghdr msg[len];
     struct sockaddr_storage addr[len];
+    char control[len][CMSG_SPACE(sizeof(uint16_t))];
     socklen_t addrSize;
     int i;
 
     memset(msg, 0, sizeof(msg));
+    memset(control, 0, sizeof(control));
 
     for (i = 0; i < len; i++) {
 
@@ -326,6 +421,18 @@ static jint netty_epoll_native_sendmmsg0(JNIEnv* env, jclass clazz, jint fd, jbo
 
         msg[i].msg_hdr.msg_iov = (struct iovec*) (intptr_t) (*env)->GetLongField(env, packet, packetMemoryAddressFieldId);
         msg[i].msg_hdr.msg_iovlen = (*env)->GetIntField(env, packet, packetCountFieldId);
+
+        jint segmentSize = (*env)->GetIntField(env, packet, packetSegmentSizeFieldId);
+        if (segmentSize > 0) {
+            // Let the kernel (or the NIC) split the payload into datagrams of segmentSize bytes.
+            msg[i].msg_hdr.msg_control = control[i];
+            msg[i].msg_hdr.msg_controllen = sizeof(control[i]);
+            struct cmsghdr* cm = CMSG_FIRSTHDR(&msg[i].msg_hdr);
+            cm->cmsg_level = SOL_UDP;
+            cm->cmsg_type = UDP_SEGMENT;
+            cm->cmsg_len = CMSG_LEN(sizeof(uint16_t));
+            *((uint16_t*) CMSG_DATA(cm)) = (uint16_t) segmentSize;
+        }
     }
 
     ssize_t res;
@@ -348,6 +455,7 @@ static jint netty_epoll_native_recvmmsg0(JNIEnv* env, jclass clazz, jint fd, jbo
     struct sockaddr_storage addr[len];
     int addrSize = sizeof(addr);
     memset(addr, 0, addrSize);
+    char control[len][CMSG_SPACE(sizeof(int))];
 
     int i;
 
@@ -358,6 +466,10 @@ static jint netty_epoll_native_recvmmsg0(JNIEnv* env, jclass clazz, jint fd, jbo
 
         msg[i].msg_hdr.msg_name = addr + i;
         msg[i].msg_hdr.msg_namelen = (socklen_t) addrSize;
+
+        // Used to receive the segment size if UDP_GRO is enabled.
+        msg[i].msg_hdr.msg_control = control[i];
+        msg[i].msg_hdr.msg_controllen = sizeof(control[i]);
     }
 
     ssize_t res;
@@ -379,6 +491,16 @@ static jint netty_epoll_native_recvmmsg0(JNIEnv* env, jclass clazz, jint fd, jbo
 
         (*env)->SetIntField(env, packet, packetCountFieldId, msg[i].msg_len);
 
+        jint segmentSize = 0;
+        struct cmsghdr* cm;
+        for (cm = CMSG_FIRSTHDR(&msg[i].msg_hdr); cm != NULL; cm = CMSG_NXTHDR(&msg[i].msg_hdr, cm)) {
+            if (cm->cmsg_level == SOL_UDP && cm->cmsg_type == UDP_GRO) {
+                segmentSize = *((int*) CMSG_DATA(cm));
+                break;
+            }
+        }
+        (*env)->SetIntField(env, packet, packetSegmentSizeFieldId, segmentSize);
+
         struct sockaddr_storage* addr = (struct sockaddr_storage*) msg[i].msg_hdr.msg_name;
 
         if (addr->ss_family == AF_INET) {
@@ -407,6 +529,145 @@ static jint netty_epoll_native_recvmmsg0(JNIEnv* env, jclass clazz, jint fd, jbo
     return (jint) res;
 }
 
+static jint netty_epoll_native_sendmmsgDomain0(JNIEnv* env, jclass clazz, jint fd, jobjectArray packets, jint offset, jint len) {
+    struct mmsghdr msg[len];
+    struct sockaddr_un addr[len];
+    int i;
+
+    memset(msg, 0, sizeof(msg));
+    memset(addr, 0, sizeof(addr));
+
+    for (i = 0; i < len; i++) {
+        jobject packet = (*env)->GetObjectArrayElement(env, packets, i + offset);
+        jint addrLen = (*env)->GetIntField(env, packet, packetAddrLenFieldId);
+
+        if (addrLen != 0) {
+            jbyteArray address = (jbyteArray) (*env)->GetObjectField(env, packet, packetAddrFieldId);
+            if (addrLen > sizeof(addr[i].sun_path)) {
+                addrLen = sizeof(addr[i].sun_path);
+            }
+            addr[i].sun_family = AF_UNIX;
+            (*env)->GetByteArrayRegion(env, address, 0, addrLen, (jbyte*) addr[i].sun_path);
+            msg[i].msg_hdr.msg_name = &addr[i];
+            msg[i].msg_hdr.msg_namelen = offsetof(struct sockaddr_un, sun_path) + addrLen;
+        }
+
+        msg[i].msg_hdr.msg_iov = (struct iovec*) (intptr_t) (*env)->GetLongField(env, packet, packetMemoryAddressFieldId);
+        msg[i].msg_hdr.msg_iovlen = (*env)->GetIntField(env, packet, packetCountFieldId);
+    }
+
+    ssize_t res;
+    int err;
+    if (SYS_sendmmsg == -1) {
+        // sendmmsg(...) is not available, fall back to one sendmsg(...) per datagram.
+        for (i = 0; i < len; i++) {
+            do {
+                res = sendmsg(fd, &msg[i].msg_hdr, 0);
+            } while (res == -1 && ((err = errno) == EINTR));
+            if (res < 0) {
+                return i > 0 ? i : -err;
+            }
+        }
+        return len;
+    }
+    do {
+       // We directly use the syscall to prevent depending on GLIBC 2.14.
+       res = syscall(SYS_sendmmsg, fd, msg, len, 0);
+       // keep on writing if it was interrupted
+    } while (res == -1 && ((err = errno) == EINTR));
+
+    if (res < 0) {
+        return -err;
+    }
+    return (jint) res;
+}
+
+static jint netty_epoll_native_recvmmsgDomain0(JNIEnv* env, jclass clazz, jint fd, jobjectArray packets, jint offset, jint len) {
+    struct mmsghdr msg[len];
+    struct sockaddr_un addr[len];
+    // Used to receive the credentials of the sender if SO_PASSCRED is enabled.
+    char control[len][CMSG_SPACE(sizeof(struct ucred))];
+    int i;
+
+    memset(msg, 0, sizeof(msg));
+    memset(addr, 0, sizeof(addr));
+
+    for (i = 0; i < len; i++) {
+        jobject packet = (*env)->GetObjectArrayElement(env, packets, i + offset);
+        msg[i].msg_hdr.msg_iov = (struct iovec*) (intptr_t) (*env)->GetLongField(env, packet, packetMemoryAddressFieldId);
+        msg[i].msg_hdr.msg_iovlen = (*env)->GetIntField(env, packet, packetCountFieldId);
+
+        msg[i].msg_hdr.msg_name = &addr[i];
+        msg[i].msg_hdr.msg_namelen = sizeof(addr[i]);
+
+        msg[i].msg_hdr.msg_control = control[i];
+        msg[i].msg_hdr.msg_controllen = sizeof(control[i]);
+    }
+
+    ssize_t res;
+    int err;
+    do {
+        if (SYS_recvmmsg == -1) {
+            // recvmmsg(...) is not available, fall back to recvmsg(...) for a single datagram.
+            res = recvmsg(fd, &msg[0].msg_hdr, 0);
+            if (res >= 0) {
+                msg[0].msg_len = res;
+                res = 1;
+            }
+        } else {
+            // We directly use the syscall to prevent depending on GLIBC 2.12.
+            res = syscall(SYS_recvmmsg, fd, &msg, len, 0, NULL);
+        }
+        // keep on reading if it was interrupted
+    } while (res == -1 && ((err = errno) == EINTR));
+
+    if (res < 0) {
+        return -err;
+    }
+
+    for (i = 0; i < res; i++) {
+        jobject packet = (*env)->GetObjectArrayElement(env, packets, i + offset);
+        jbyteArray address = (jbyteArray) (*env)->GetObjectField(env, packet, packetAddrFieldId);
+
+        (*env)->SetIntField(env, packet, packetCountFieldId, msg[i].msg_len);
+
+        jint pid = 0;
+        jint uid = -1;
+        jint gid = -1;
+        struct cmsghdr* cm;
+        for (cm = CMSG_FIRSTHDR(&msg[i].msg_hdr); cm != NULL; cm = CMSG_NXTHDR(&msg[i].msg_hdr, cm)) {
+            if (cm->cmsg_level == SOL_SOCKET && cm->cmsg_type == SCM_CREDENTIALS) {
+                struct ucred* credentials = (struct ucred*) CMSG_DATA(cm);
+                pid = credentials->pid;
+                uid = credentials->uid;
+                gid = credentials->gid;
+                break;
+            }
+        }
+        (*env)->SetIntField(env, packet, packetPidFieldId, pid);
+        (*env)->SetIntField(env, packet, packetUidFieldId, uid);
+        (*env)->SetIntField(env, packet, packetGidFieldId, gid);
+
+        // Unnamed sockets only have the family filled in.
+        jint addrLen = 0;
+        if (msg[i].msg_hdr.msg_namelen > offsetof(struct sockaddr_un, sun_path)) {
+            addrLen = msg[i].msg_hdr.msg_namelen - offsetof(struct sockaddr_un, sun_path);
+            if (addr[i].sun_path[0] != '\0') {
+                // Pathname sockets may include the terminating null byte, abstract ones never do.
+                addrLen = strnlen(addr[i].sun_path, addrLen);
+            }
+            jint capacity = (*env)->GetArrayLength(env, address);
+            if (addrLen > capacity) {
+                addrLen = capacity;
+            }
+            (*env)->SetByteArrayRegion(env, address, 0, addrLen, (jbyte*) addr[i].sun_path);
+        }
+        (*env)->SetIntField(env, packet, packetAddrLenFieldId, addrLen);
+    }
+
+    return (jint) res;
+}
+
 static jstring netty_epoll_native_kernelVersion(JNIEnv* env, jclass clazz) {
     struct utsname name;
 
@@ -441,6 +702,17 @@ static jboolean netty_epoll_native_isSupportingRecvmmsg(JNIEnv* env, jclass claz
     return JNI_TRUE;
 }
 
+static jboolean netty_epoll_native_isSupportingUdpSegment(JNIEnv* env, jclass clazz) {
+    int fd = socket(AF_INET, SOCK_DGRAM, 0);
+    if (fd == -1) {
+        return JNI_FALSE;
+    }
+    int gso = 0;
+    int res = setsockopt(fd, SOL_UDP, UDP_SEGMENT, &gso, sizeof(gso));
+    close(fd);
+    return res == 0 ? JNI_TRUE : JNI_FALSE;
+}
+
 static jboolean netty_epoll_native_isSupportingTcpFastopen(JNIEnv* env, jclass clazz) {
     int fastopen = 0;
     getSysctlValue("/proc/sys/net/ipv4/tcp_fastopen", &fastopen);
@@ -462,6 +734,10 @@ static jint netty_epoll_native_epollout(JNIEnv* env, jclass clazz) {
     return EPOLLOUT;
 }
 
+static jint netty_epoll_native_epollexclusive(JNIEnv* env, jclass clazz) {
+    return EPOLLEXCLUSIVE;
+}
+
 static jint netty_epoll_native_epollrdhup(JNIEnv* env, jclass clazz) {
     return EPOLLRDHUP;
 }
@@ -479,6 +755,10 @@ static jint netty_epoll_native_offsetofEpollData(JNIEnv* env, jclass clazz) {
 }
 
 
+static jint netty_epoll_native_errnoENOBUFS(JNIEnv* env, jclass clazz) {
+    return ENOBUFS;
+}
+
 static jint netty_epoll_native_tcpMd5SigMaxKeyLen(JNIEnv* env, jclass clazz) {
     struct tcp_md5sig md5sig;
 
@@ -489,6 +769,102 @@ static jint netty_epoll_native_tcpMd5SigMaxKeyLen(JNIEnv* env, jclass clazz) {
 
     return TCP_MD5SIG_MAXKEYLEN;
 }
+
+static jint netty_epoll_native_splice0(JNIEnv* env, jclass clazz, jint fd, jlong offIn, jint fdOut, jlong offOut, jlong len) {
+    ssize_t res;
+    int err;
+    loff_t off_in = (loff_t) offIn;
+    loff_t off_out = (loff_t) offOut;
+
+    loff_t* p_off_in = off_in >= 0 ? &off_in : NULL;
+    loff_t* p_off_out = off_out >= 0 ? &off_out : NULL;
+
+    do {
+       res = splice(fd, p_off_in, fdOut, p_off_out, (size_t) len, SPLICE_F_NONBLOCK | SPLICE_F_MOVE);
+       // keep on splicing if it was interrupted
+    } while (res == -1 && ((err = errno) == EINTR));
+
+    if (res < 0) {
+        return -err;
+    }
+    return (jint) res;
+}
+
+static jint netty_epoll_native_schedSetAffinity0(JNIEnv* env, jclass clazz, jintArray cpus) {
+    jsize len = (*env)->GetArrayLength(env, cpus);
+    jint* elements = (*env)->GetIntArrayElements(env, cpus, NULL);
+    if (elements == NULL) {
+        return -ENOMEM;
+    }
+    int maxCpu = 0;
+    int i;
+    for (i = 0; i < len; i++) {
+        if (elements[i] < 0) {
+            (*env)->ReleaseIntArrayElements(env, cpus, elements, JNI_ABORT);
+            return -EINVAL;
+        }
+        if (elements[i] > maxCpu) {
+            maxCpu = elements[i];
+        }
+    }
+    cpu_set_t* set = CPU_ALLOC(maxCpu + 1);
+    if (set == NULL) {
+        (*env)->ReleaseIntArrayElements(env, cpus, elements, JNI_ABORT);
+        return -ENOMEM;
+    }
+    size_t size = CPU_ALLOC_SIZE(maxCpu + 1);
+    CPU_ZERO_S(size, set);
+    for (i = 0; i < len; i++) {
+        CPU_SET_S(elements[i], size, set);
+    }
+    (*env)->ReleaseIntArrayElements(env, cpus, elements, JNI_ABORT);
+
+    // 0 means the calling thread.
+    int res = sched_setaffinity(0, size, set);
+    int err = errno;
+    CPU_FREE(set);
+    return res == 0 ? 0 : -err;
+}
+
+static jintArray netty_epoll_native_schedGetAffinity0(JNIEnv* env, jclass clazz) {
+    long numCpus = sysconf(_SC_NPROCESSORS_CONF);
+    if (numCpus < 1) {
+        numCpus = 1;
+    }
+    for (;;) {
+        cpu_set_t* set = CPU_ALLOC(numCpus);
+        if (set == NULL) {
+            netty_unix_errors_throwOutOfMemoryError(env);
+            return NULL;
+        }
+        size_t size = CPU_ALLOC_SIZE(numCpus);
+        CPU_ZERO_S(size, set);
+        if (sched_getaffinity(0, size, set) != 0) {
+            int err = errno;
+            CPU_FREE(set);
+            if (err == EINVAL && numCpus < 1024 * 1024) {
+                // The kernel supports more CPUs than are configured, retry with a bigger set.
+                numCpus *= 2;
+                continue;
+            }
+            netty_unix_errors_throwRuntimeExceptionErrorNo(env, "sched_getaffinity() failed: ", err);
+            return NULL;
+        }
+        jintArray result = (*env)->NewIntArray(env, CPU_COUNT_S(size, set));
+        if (result != NULL) {
+            jint cpu;
+            jsize idx = 0;
+            for (cpu = 0; cpu < (jint) (size * 8); cpu++) {
+                if (CPU_ISSET_S(cpu, size, set)) {
+                    (*env)->SetIntArrayRegion(env, result, idx++, 1, &cpu);
+                }
+            }
+        }
+        CPU_FREE(set);
+        return result;
+    }
+}
+
 // JNI Registered Methods End
 
 // JNI Method Registration Table Begin
@@ -497,11 +873,14 @@ static const JNINativeMethod statically_referenced_fixed_method_table[] = {
   { "epollin", "()I", (void *) netty_epoll_native_epollin },
   { "epollout", "()I", (void *) netty_epoll_native_epollout },
   { "epollrdhup", "()I", (void *) netty_epoll_native_epollrdhup },
+  { "epollexclusive", "()I", (void *) netty_epoll_native_epollexclusive },
   { "epollerr", "()I", (void *) netty_epoll_native_epollerr },
   { "tcpMd5SigMaxKeyLen", "()I", (void *) netty_epoll_native_tcpMd5SigMaxKeyLen },
+  { "errnoENOBUFS", "()I", (void *) netty_epoll_native_errnoENOBUFS },
   { "isSupportingSendmmsg", "()Z", (void *) netty_epoll_native_isSupportingSendmmsg },
   { "isSupportingRecvmmsg", "()Z", (void *) netty_epoll_native_isSupportingRecvmmsg },
   { "isSupportingTcpFastopen", "()Z", (void *) netty_epoll_native_isSupportingTcpFastopen },
+  { "isSupportingUdpSegment", "()Z", (void *) netty_epoll_native_isSupportingUdpSegment },
   { "kernelVersion", "()Ljava/lang/String;", (void *) netty_epoll_native_kernelVersion }
 };
 static const jint statically_referenced_fixed_method_table_size = sizeof(statically_referenced_fixed_method_table) / sizeof(statically_referenced_fixed_method_table[0]);
@@ -511,6 +890,11 @@ static const JNINativeMethod fixed_method_table[] = {
   { "eventFdWrite", "(IJ)V", (void *) netty_epoll_native_eventFdWrite },
   { "eventFdRead", "(I)V", (void *) netty_epoll_native_eventFdRead },
   { "timerFdRead", "(I)V", (void *) netty_epoll_native_timerFdRead },
+  { "memfdCreate0", "(J)I", (void *) netty_epoll_native_memfdCreate0 },
+  { "isSizeSealed0", "(I)I", (void *) netty_epoll_native_isSizeSealed0 },
+  { "mmapShared0", "(IJ)J", (void *) netty_epoll_native_mmapShared0 },
+  { "munmap0", "(JJ)I", (void *) netty_epoll_native_munmap0 },
+  { "fileSize0", "(I)J", (void *) netty_epoll_native_fileSize0 },
   { "epollCreate", "()I", (void *) netty_epoll_native_epollCreate },
   { "epollWait0", "(IJIIII)I", (void *) netty_epoll_native_epollWait0 }, // This method is deprecated!
   { "epollWait", "(IJII)I", (void *) netty_epoll_native_epollWait },
@@ -518,14 +902,17 @@ static const JNINativeMethod fixed_method_table[] = {
   { "epollCtlAdd0", "(III)I", (void *) netty_epoll_native_epollCtlAdd0 },
   { "epollCtlMod0", "(III)I", (void *) netty_epoll_native_epollCtlMod0 },
   { "epollCtlDel0", "(II)I", (void *) netty_epoll_native_epollCtlDel0 },
-  // "sendmmsg0" has a dynamic signature
+  { "splice0", "(IJIJJ)I", (void *) netty_epoll_native_splice0 },
+  { "schedSetAffinity0", "([I)I", (void *) netty_epoll_native_schedSetAffinity0 },
+  { "schedGetAffinity0", "()[I", (void *) netty_epoll_native_schedGetAffinity0 },
+  // "sendmmsg0", "recvmmsg0", "sendmmsgDomain0" and "recvmmsgDomain0" have dynamic signatures
   { "sizeofEpollEvent", "()I", (void *) netty_epoll_native_sizeofEpollEvent },
   { "offsetofEpollData", "()I", (void *) netty_epoll_native_offsetofEpollData }
 };
 static const jint fixed_method_table_size = sizeof(fixed_method_table) / sizeof(fixed_method_table[0]);
 
 static jint dynamicMethodsTableSize() {
-    return fixed_method_table_size + 2; // 2 is for the dynamic method signatures.
+    return fixed_method_table_size + 4; // 4 is for the dynamic method signatures.
 }
 
 static JNINativeMethod* createDynamicMethodsTable(const char* packagePrefix) {
@@ -552,6 +939,20 @@ static JNINativeMethod* createDynamicMethodsTable(const char* packagePrefix) {
     dynamicMethod->fnPtr = (void *) netty_epoll_native_recvmmsg0;
     netty_unix_util_free_dynamic_name(&dynamicTypeName);
 
+    ++dynamicMethod;
+    NETTY_PREPEND(packagePrefix, "io/netty/channel/epoll/NativeDatagramPacketArray$NativeDatagramPacket;II)I", dynamicTypeName, error);
+    NETTY_PREPEND("(I[L", dynamicTypeName,  dynamicMethod->signature, error);
+    dynamicMethod->name = "sendmmsgDomain0";
+    dynamicMethod->fnPtr = (void *) netty_epoll_native_sendmmsgDomain0;
+    netty_unix_util_free_dynamic_name(&dynamicTypeName);
+
+    ++dynamicMethod;
+    NETTY_PREPEND(packagePrefix, "io/netty/channel/epoll/NativeDatagramPacketArray$NativeDatagramPacket;II)I", dynamicTypeName, error);
+    NETTY_PREPEND("(I[L", dynamicTypeName,  dynamicMethod->signature, error);
+    dynamicMethod->name = "recvmmsgDomain0";
+    dynamicMethod->fnPtr = (void *) netty_epoll_native_recvmmsgDomain0;
+    netty_unix_util_free_dynamic_name(&dynamicTypeName);
+
     return dynamicMethods;
 error:
     free(dynamicTypeName);
@@ -636,6 +1037,10 @@ static jint netty_epoll_native_JNI_OnLoad(JNIEnv* env, const char* packagePrefix
     NETTY_GET_FIELD(env, nativeDatagramPacketCls, packetPortFieldId, "port", "I", done);
     NETTY_GET_FIELD(env, nativeDatagramPacketCls, packetMemoryAddressFieldId, "memoryAddress", "J", done);
     NETTY_GET_FIELD(env, nativeDatagramPacketCls, packetCountFieldId, "count", "I", done);
+    NETTY_GET_FIELD(env, nativeDatagramPacketCls, packetSegmentSizeFieldId, "segmentSize", "I", done);
+    NETTY_GET_FIELD(env, nativeDatagramPacketCls, packetPidFieldId, "pid", "I", done);
+    NETTY_GET_FIELD(env, nativeDatagramPacketCls, packetUidFieldId, "uid", "I", done);
+    NETTY_GET_FIELD(env, nativeDatagramPacketCls, packetGidFieldId, "gid", "I", done);
 
     ret = NETTY_JNI_VERSION;
 done:
@@ -668,6 +1073,10 @@ done:
         packetPortFieldId = NULL;
         packetMemoryAddressFieldId = NULL;
         packetCountFieldId = NULL;
+        packetSegmentSizeFieldId = NULL;
+        packetPidFieldId = NULL;
+        packetUidFieldId = NULL;
+        packetGidFieldId = NULL;
     }
     return ret;
 }
@@ -686,6 +1095,10 @@ static void netty_epoll_native_JNI_OnUnLoad(JNIEnv* env) {
     packetPortFieldId = NULL;
     packetMemoryAddressFieldId = NULL;
     packetCountFieldId = NULL;
+    packetSegmentSizeFieldId = NULL;
+    packetPidFieldId = NULL;
+    packetUidFieldId = NULL;
+    packetGidFieldId = NULL;
 }
 
 // Invoked by the JVM when statically linked
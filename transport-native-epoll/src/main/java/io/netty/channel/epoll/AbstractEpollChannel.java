@@ -387,6 +387,14 @@ abstract class AbstractEpollChannel extends AbstractChannel implements UnixChann
          */
         abstract void epollInReady();
 
+        /**
+         * Called once EPOLLERR event is ready to be processed, before {@link #epollOutReady()} and
+         * {@link #epollInReady()} are called.
+         */
+        void epollErrReady() {
+            // NOOP
+        }
+
         final void epollInBefore() {
             maybeMoreDataToRead = false;
         }
@@ -27,6 +27,7 @@ import io.netty.channel.EventLoop;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.ServerChannel;
 
+import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 
@@ -81,11 +82,21 @@ public abstract class AbstractEpollServerChannel extends AbstractEpollChannel im
 
     abstract Channel newChildChannel(int fd, byte[] remote, int offset, int len) throws Exception;
 
+    /**
+     * Called after {@code accept4} filled a whole batch, which means the accept queue may still not be empty.
+     */
+    void acceptBatchFull() {
+        // NOOP
+    }
+
     final class EpollServerSocketUnsafe extends AbstractEpollUnsafe {
         // Will hold the remote address after accept(...) was successful.
         // We need 24 bytes for the address as maximum + 1 byte for storing the length.
         // So use 26 bytes as it's a power of two.
         private final byte[] acceptedAddress = new byte[26];
+        // Only allocated once accept batching is used.
+        private int[] acceptedFds;
+        private byte[] acceptedAddresses;
 
         @Override
         public void connect(SocketAddress socketAddress, SocketAddress socketAddress2, ChannelPromise channelPromise) {
@@ -111,21 +122,26 @@ public abstract class AbstractEpollServerChannel extends AbstractEpollChannel im
             Throwable exception = null;
             try {
                 try {
-                    do {
-                        // lastBytesRead represents the fd. We use lastBytesRead because it must be set so that the
-                        // EpollRecvByteAllocatorHandle knows if it should try to read again or not when autoRead is
-                        // enabled.
-                        allocHandle.lastBytesRead(socket.accept(acceptedAddress));
-                        if (allocHandle.lastBytesRead() == -1) {
-                            // this means everything was handled for now
-                            break;
-                        }
-                        allocHandle.incMessagesRead(1);
-
-                        readPending = false;
-                        pipeline.fireChannelRead(newChildChannel(allocHandle.lastBytesRead(), acceptedAddress, 1,
-                                                                 acceptedAddress[0]));
-                    } while (allocHandle.continueReading());
+                    int batchSize = ((EpollServerChannelConfig) config).getAcceptBatchSize();
+                    if (batchSize > 0) {
+                        acceptBatches(allocHandle, pipeline, batchSize);
+                    } else {
+                        do {
+                            // lastBytesRead represents the fd. We use lastBytesRead because it must be set so that the
+                            // EpollRecvByteAllocatorHandle knows if it should try to read again or not when autoRead is
+                            // enabled.
+                            allocHandle.lastBytesRead(socket.accept(acceptedAddress));
+                            if (allocHandle.lastBytesRead() == -1) {
+                                // this means everything was handled for now
+                                break;
+                            }
+                            allocHandle.incMessagesRead(1);
+
+                            readPending = false;
+                            pipeline.fireChannelRead(newChildChannel(allocHandle.lastBytesRead(), acceptedAddress, 1,
+                                                                     acceptedAddress[0]));
+                        } while (allocHandle.continueReading());
+                    }
                 } catch (Throwable t) {
                     exception = t;
                 }
@@ -140,6 +156,53 @@ public abstract class AbstractEpollServerChannel extends AbstractEpollChannel im
                 epollInFinally(config);
             }
         }
+
+        private void acceptBatches(EpollRecvByteAllocatorHandle allocHandle, ChannelPipeline pipeline, int batchSize)
+                throws Exception {
+            if (acceptedFds == null || acceptedFds.length != batchSize) {
+                acceptedFds = new int[batchSize];
+                acceptedAddresses = new byte[batchSize * LinuxSocket.ACCEPT_BATCH_ADDRESS_SIZE];
+            }
+            final int[] fds = acceptedFds;
+            do {
+                int accepted = socket.acceptBatch(fds, acceptedAddresses);
+                if (accepted == 0) {
+                    // this means everything was handled for now
+                    allocHandle.lastBytesRead(-1);
+                    break;
+                }
+                readPending = false;
+                // The connections were already accepted, so all of them need to be handed to the pipeline.
+                for (int i = 0, offset = 0; i < accepted; i++, offset += LinuxSocket.ACCEPT_BATCH_ADDRESS_SIZE) {
+                    // lastBytesRead represents the fd, see above.
+                    allocHandle.lastBytesRead(fds[i]);
+                    allocHandle.incMessagesRead(1);
+                    try {
+                        pipeline.fireChannelRead(newChildChannel(fds[i], acceptedAddresses, offset + 1,
+                                acceptedAddresses[offset]));
+                    } catch (Throwable cause) {
+                        closeAccepted(fds, i + 1, accepted);
+                        throw cause;
+                    }
+                }
+                if (accepted < fds.length) {
+                    // The accept queue was drained.
+                    allocHandle.lastBytesRead(-1);
+                    break;
+                }
+                acceptBatchFull();
+            } while (allocHandle.continueReading());
+        }
+
+        private void closeAccepted(int[] fds, int from, int to) {
+            for (int i = from; i < to; i++) {
+                try {
+                    new LinuxSocket(fds[i]).close();
+                } catch (IOException ignore) {
+                    // Nothing we can do about it.
+                }
+            }
+        }
     }
 
     @Override
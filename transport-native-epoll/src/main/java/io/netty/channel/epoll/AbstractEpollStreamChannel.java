@@ -31,10 +31,13 @@ import io.netty.channel.FileRegion;
 import io.netty.channel.RecvByteBufAllocator;
 import io.netty.channel.internal.ChannelUtils;
 import io.netty.channel.socket.DuplexChannel;
+import io.netty.channel.unix.FileDescriptor;
 import io.netty.channel.unix.IovArray;
 import io.netty.channel.unix.SocketWritableByteChannel;
 import io.netty.channel.unix.UnixChannelUtil;
+import io.netty.util.concurrent.GlobalEventExecutor;
 import io.netty.util.internal.StringUtil;
+import io.netty.util.internal.SystemPropertyUtil;
 import io.netty.util.internal.UnstableApi;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
@@ -42,17 +45,29 @@ import io.netty.util.internal.logging.InternalLoggerFactory;
 import java.io.IOException;
 import java.net.SocketAddress;
 import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
 import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+import java.util.Queue;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 import static io.netty.channel.internal.ChannelUtils.MAX_BYTES_PER_GATHERING_WRITE_ATTEMPTED_LOW_THRESHOLD;
 import static io.netty.channel.internal.ChannelUtils.WRITE_STATUS_SNDBUF_FULL;
+import static io.netty.channel.unix.FileDescriptor.pipe;
+import static io.netty.util.internal.ObjectUtil.checkPositiveOrZero;
+import static java.util.Objects.requireNonNull;
 
 public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel implements DuplexChannel {
     private static final ChannelMetadata METADATA = new ChannelMetadata(false, 16);
     private static final String EXPECTED_TYPES =
             " (expected: " + StringUtil.simpleClassName(ByteBuf.class) + ", " +
                     StringUtil.simpleClassName(DefaultFileRegion.class) + ')';
+    // How long a closed channel waits for the kernel to complete its in-flight MSG_ZEROCOPY sends before the socket
+    // is aborted, so the pinned buffers can be released.
+    private static final long ZERO_COPY_CLOSE_TIMEOUT_NANOS = TimeUnit.MILLISECONDS.toNanos(Math.max(0,
+            SystemPropertyUtil.getLong("io.netty.channel.epoll.zeroCopyCloseTimeoutMillis", 10000)));
+    private static final long ZERO_COPY_CLOSE_POLL_MILLIS = 10;
     private static final InternalLogger logger = InternalLoggerFactory.getInstance(AbstractEpollStreamChannel.class);
     private final Runnable flushTask = () -> {
         // Calling flush0 directly to ensure we not try to flush messages that were added via write(...) in the
@@ -61,6 +76,10 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
     };
 
     private WritableByteChannel byteChannel;
+    private Queue<SpliceInTask> spliceQueue;
+    private ZeroCopyWriteQueue zeroCopyQueue;
+    private boolean zeroCopyCopied;
+    private boolean kernelTlsTx;
 
     protected AbstractEpollStreamChannel(Channel parent, EventLoop eventLoop, int fd) {
         this(parent, eventLoop, new LinuxSocket(fd));
@@ -102,6 +121,96 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
         return METADATA;
     }
 
+    /**
+     * Splice from this {@link AbstractEpollStreamChannel} to another {@link AbstractEpollStreamChannel}.
+     * The {@code len} is the number of bytes to splice. If using {@link Integer#MAX_VALUE} it will
+     * splice until this channel reaches EOF or the {@link ChannelFuture} was canceled or failed.
+     * <p>
+     * The bytes are moved from the socket into a pipe and from the pipe into the socket of the target channel
+     * without copying them into user-space. The returned {@link ChannelFuture} is notified once all bytes were
+     * written to the target channel.
+     * <p>
+     * Please note:
+     * <ul>
+     *   <li>both channels need to be registered to the same {@link EventLoop}, otherwise an
+     *   {@link IllegalArgumentException} is thrown.</li>
+     *   <li>bytes which were already read into a {@link ByteBuf} are not spliced, see {@link EpollSpliceHandler}
+     *   for how to forward these.</li>
+     * </ul>
+     */
+    public final ChannelFuture spliceTo(final AbstractEpollStreamChannel ch, final int len) {
+        return spliceTo(ch, len, newPromise());
+    }
+
+    /**
+     * Splice from this {@link AbstractEpollStreamChannel} to another {@link AbstractEpollStreamChannel}.
+     * The {@code len} is the number of bytes to splice. If using {@link Integer#MAX_VALUE} it will
+     * splice until this channel reaches EOF or the {@link ChannelFuture} was canceled or failed.
+     * <p>
+     * The bytes are moved from the socket into a pipe and from the pipe into the socket of the target channel
+     * without copying them into user-space. The given {@link ChannelPromise} is notified once all bytes were
+     * written to the target channel.
+     * <p>
+     * Please note:
+     * <ul>
+     *   <li>both channels need to be registered to the same {@link EventLoop}, otherwise an
+     *   {@link IllegalArgumentException} is thrown.</li>
+     *   <li>bytes which were already read into a {@link ByteBuf} are not spliced, see {@link EpollSpliceHandler}
+     *   for how to forward these.</li>
+     * </ul>
+     */
+    public final ChannelFuture spliceTo(final AbstractEpollStreamChannel ch, final int len,
+                                        final ChannelPromise promise) {
+        requireNonNull(ch, "ch");
+        if (ch.eventLoop() != eventLoop()) {
+            throw new IllegalArgumentException("EventLoops are not the same.");
+        }
+        checkPositiveOrZero(len, "len");
+        requireNonNull(promise, "promise");
+        addToSpliceQueue(new SpliceInChannelTask(ch, len, promise));
+        return promise;
+    }
+
+    /**
+     * Splice from this {@link AbstractEpollStreamChannel} to another {@link FileDescriptor}.
+     * The {@code offset} is the offset for the {@link FileDescriptor} and {@code len} is the
+     * number of bytes to splice. If using {@link Integer#MAX_VALUE} it will splice until this channel reaches
+     * EOF or the {@link ChannelFuture} was canceled or failed.
+     * <p>
+     * Please note:
+     * <ul>
+     *   <li>the {@link FileDescriptor} will not be closed after the {@link ChannelFuture} is notified</li>
+     *   <li>the {@link FileDescriptor} must be blocking (for example a regular file), as the spliced bytes are
+     *   written to it from the {@link EventLoop} before more bytes are read.</li>
+     * </ul>
+     */
+    public final ChannelFuture spliceTo(final FileDescriptor ch, final int offset, final int len) {
+        return spliceTo(ch, offset, len, newPromise());
+    }
+
+    /**
+     * Splice from this {@link AbstractEpollStreamChannel} to another {@link FileDescriptor}.
+     * The {@code offset} is the offset for the {@link FileDescriptor} and {@code len} is the
+     * number of bytes to splice. If using {@link Integer#MAX_VALUE} it will splice until this channel reaches
+     * EOF or the {@link ChannelFuture} was canceled or failed.
+     * <p>
+     * Please note:
+     * <ul>
+     *   <li>the {@link FileDescriptor} will not be closed after the {@link ChannelPromise} is notified</li>
+     *   <li>the {@link FileDescriptor} must be blocking (for example a regular file), as the spliced bytes are
+     *   written to it from the {@link EventLoop} before more bytes are read.</li>
+     * </ul>
+     */
+    public final ChannelFuture spliceTo(final FileDescriptor ch, final int offset, final int len,
+                                        final ChannelPromise promise) {
+        requireNonNull(ch, "ch");
+        checkPositiveOrZero(len, "len");
+        checkPositiveOrZero(offset, "offset");
+        requireNonNull(promise, "promise");
+        addToSpliceQueue(new SpliceFdTask(ch, offset, len, promise));
+        return promise;
+    }
+
     /**
      * Write bytes form the given {@link ByteBuf} to the underlying {@link java.nio.channels.Channel}.
      * @param in the collection which contains objects to write.
@@ -119,10 +228,13 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
     private int writeBytes(ChannelOutboundBuffer in, ByteBuf buf) throws Exception {
         int readableBytes = buf.readableBytes();
         if (readableBytes == 0) {
-            in.remove();
+            removeWritten(in);
             return 0;
         }
 
+        if (useZeroCopyWrite(readableBytes)) {
+            return doWriteMultiple(in);
+        }
         if (buf.hasMemoryAddress() || buf.nioBufferCount() == 1) {
             return doWriteBytes(in, buf);
         } else {
@@ -175,6 +287,92 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
         return WRITE_STATUS_SNDBUF_FULL;
     }
 
+    /**
+     * Write multiple bytes via {@link IovArray} using {@code MSG_ZEROCOPY}. The written buffers are handed over to the
+     * {@link ZeroCopyWriteQueue} and released once the kernel signals the completion of the send.
+     * @param in the collection which contains objects to write.
+     * @param array The array which contains the content to write.
+     * @return The value that should be decremented from the write quantum which starts at
+     * {@link ChannelConfig#getWriteSpinCount()}.
+     * @throws IOException If an I/O exception occurs during write.
+     */
+    private int writeBytesMultipleZeroCopy(ChannelOutboundBuffer in, IovArray array) throws IOException {
+        final long expectedWrittenBytes = array.size();
+        assert expectedWrittenBytes != 0;
+        final int cnt = array.count();
+        assert cnt != 0;
+
+        long localWrittenBytes = -1;
+        if (isZeroCopyEligible(expectedWrittenBytes)) {
+            localWrittenBytes = socket.writevAddressesZeroCopy(array.memoryAddress(0), cnt);
+        }
+        final boolean zeroCopy = localWrittenBytes != -1;
+        if (!zeroCopy) {
+            // Either too small or the kernel could not pin the pages (ENOBUFS), copy it instead.
+            localWrittenBytes = socket.writevAddresses(array.memoryAddress(0), cnt);
+        }
+        if (localWrittenBytes > 0) {
+            adjustMaxBytesPerGatheringWrite(expectedWrittenBytes, localWrittenBytes, array.maxBytes());
+            if (zeroCopyQueue == null) {
+                zeroCopyQueue = new ZeroCopyWriteQueue(in);
+            }
+            zeroCopyQueue.sent(localWrittenBytes, zeroCopy);
+            return 1;
+        }
+        return WRITE_STATUS_SNDBUF_FULL;
+    }
+
+    /**
+     * Remove the current message of the {@link ChannelOutboundBuffer} once it was written completely. If
+     * {@code MSG_ZEROCOPY} sends are still waiting for their completion, its promise is only notified after the ones
+     * of the writes before it.
+     */
+    private void removeWritten(ChannelOutboundBuffer in) {
+        ZeroCopyWriteQueue queue = zeroCopyQueue;
+        if (queue == null || !queue.removeCurrent()) {
+            in.remove();
+        }
+    }
+
+    /**
+     * Returns the minimum number of bytes a write must contain to be done with {@code MSG_ZEROCOPY} or {@code -1} if
+     * zero-copy writes are not enabled for this channel.
+     */
+    int zeroCopyThreshold() {
+        return -1;
+    }
+
+    /**
+     * Returns {@code true} if the {@link ByteBuf}s must be written via {@link #writeBytesMultipleZeroCopy}, either
+     * because the write is large enough or because previous zero-copy writes are still waiting for their completion
+     * and so the following ones must wait as well.
+     */
+    private boolean useZeroCopyWrite(long bytes) {
+        return zeroCopyQueue != null && !zeroCopyQueue.isEmpty() || isZeroCopyEligible(bytes);
+    }
+
+    private boolean isZeroCopyEligible(long bytes) {
+        int threshold = zeroCopyThreshold();
+        // MSG_ZEROCOPY is not supported once the kernel protects the written data with TLS.
+        return threshold >= 0 && bytes >= threshold && !zeroCopyCopied && !kernelTlsTx;
+    }
+
+    /**
+     * Process the completions of {@code MSG_ZEROCOPY} writes that are queued on the error queue of the socket.
+     */
+    final void processZeroCopyCompletions() throws IOException {
+        ZeroCopyWriteQueue queue = zeroCopyQueue;
+        if (queue == null || queue.isEmpty()) {
+            return;
+        }
+        if (queue.processCompletions(socket)) {
+            // The kernel had to copy the data anyway (which is always the case for loopback or if the device does not
+            // support scatter-gather), so we only pay for pinning the pages and the completions.
+            // Stop using MSG_ZEROCOPY for this channel as recommended by the kernel documentation.
+            zeroCopyCopied = true;
+        }
+    }
+
     /**
      * Write multiple bytes via {@link ByteBuffer} array.
      * @param in the collection which contains objects to write.
@@ -228,7 +426,7 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
         final long offset = region.transferred();
         final long regionCount = region.count();
         if (offset >= regionCount) {
-            in.remove();
+            removeWritten(in);
             return 0;
         }
 
@@ -236,7 +434,7 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
         if (flushedAmount > 0) {
             in.progress(flushedAmount);
             if (region.transferred() >= regionCount) {
-                in.remove();
+                removeWritten(in);
             }
             return 1;
         } else if (flushedAmount == 0) {
@@ -261,7 +459,7 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
      */
     private int writeFileRegion(ChannelOutboundBuffer in, FileRegion region) throws Exception {
         if (region.transferred() >= region.count()) {
-            in.remove();
+            removeWritten(in);
             return 0;
         }
 
@@ -272,7 +470,7 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
         if (flushedAmount > 0) {
             in.progress(flushedAmount);
             if (region.transferred() >= region.count()) {
-                in.remove();
+                removeWritten(in);
             }
             return 1;
         }
@@ -340,6 +538,18 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
             return writeDefaultFileRegion(in, (DefaultFileRegion) msg);
         } else if (msg instanceof FileRegion) {
             return writeFileRegion(in, (FileRegion) msg);
+        } else if (msg instanceof SpliceOutTask) {
+            if (!((SpliceOutTask) msg).spliceOut(socket)) {
+                return WRITE_STATUS_SNDBUF_FULL;
+            }
+            removeWritten(in);
+            return 1;
+        } else if (msg instanceof KernelTlsTxTask) {
+            // Everything that was written before is in the socket now, so from here on the kernel can protect the
+            // written data.
+            installKernelTlsTx(((KernelTlsTxTask) msg).cryptoInfo);
+            removeWritten(in);
+            return 0;
         } else {
             // Should never reach here.
             throw new Error();
@@ -367,11 +577,18 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
         in.forEachFlushedMessage(array);
 
         if (array.count() >= 1) {
+            if (useZeroCopyWrite(array.size())) {
+                return writeBytesMultipleZeroCopy(in, array);
+            }
             // TODO: Handle the case where cnt == 1 specially.
             return writeBytesMultiple(in, array);
         }
         // cnt == 0, which means the outbound buffer contained empty buffers only.
-        in.removeBytes(0);
+        if (zeroCopyQueue != null) {
+            zeroCopyQueue.sent(0, false);
+        } else {
+            in.removeBytes(0);
+        }
         return 0;
     }
 
@@ -382,7 +599,7 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
             return UnixChannelUtil.isBufferCopyNeededForWrite(buf)? newDirectBuffer(buf): buf;
         }
 
-        if (msg instanceof FileRegion) {
+        if (msg instanceof FileRegion || msg instanceof SpliceOutTask) {
             return msg;
         }
 
@@ -390,6 +607,127 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
                 "unsupported message type: " + StringUtil.simpleClassName(msg) + EXPECTED_TYPES);
     }
 
+    @Override
+    protected void doClose() throws Exception {
+        try {
+            boolean inFlight = abandonZeroCopyWrites();
+            LinuxSocket drainSocket = inFlight ? keepOpenForZeroCopyCompletions() : null;
+            super.doClose();
+            if (inFlight) {
+                ZeroCopyWriteQueue queue = zeroCopyQueue;
+                zeroCopyQueue = null;
+                if (drainSocket != null) {
+                    new ZeroCopyCloseDrain(queue, drainSocket).schedule();
+                } else {
+                    // The socket was aborted, so the kernel does not transmit from the buffers anymore.
+                    queue.releaseAll();
+                }
+            }
+        } finally {
+            clearSpliceQueue();
+        }
+    }
+
+    /**
+     * Fail the {@code MSG_ZEROCOPY} writes that are still in flight.
+     *
+     * @return {@code true} if there were any, which means their buffers can only be released once the kernel reports
+     * the completion of their sends.
+     */
+    private boolean abandonZeroCopyWrites() {
+        ZeroCopyWriteQueue queue = zeroCopyQueue;
+        if (queue == null || queue.isEmpty()) {
+            return false;
+        }
+        try {
+            // Pick up what was completed in the meantime so we only fail what is really still in flight.
+            processZeroCopyCompletions();
+        } catch (IOException e) {
+            logger.debug("Failed to process zero-copy completions before close: {}", this, e);
+        }
+        if (queue.isEmpty()) {
+            return false;
+        }
+        queue.abandon(new ClosedChannelException());
+        return true;
+    }
+
+    /**
+     * Returns a duplicate of the socket which is used to keep reading the completions of the in-flight
+     * {@code MSG_ZEROCOPY} sends after the channel was closed, or {@code null} if the socket was aborted instead.
+     */
+    private LinuxSocket keepOpenForZeroCopyCompletions() {
+        LinuxSocket drainSocket;
+        try {
+            drainSocket = socket.dup();
+        } catch (IOException e) {
+            // Without a file descriptor the completions can not be read anymore, so abort the connection to make sure
+            // the kernel will not transmit from the buffers once these are released.
+            logger.debug("Failed to keep the socket open to drain zero-copy completions: {}", this, e);
+            abort(socket);
+            return null;
+        }
+        try {
+            // The socket stays open until the completions were drained, so shutdown the connection now as the peer
+            // would otherwise only see the close once this is done.
+            socket.shutdown();
+        } catch (IOException ignore) {
+            // Not connected anymore.
+        }
+        return drainSocket;
+    }
+
+    private static void abort(LinuxSocket socket) {
+        try {
+            // Drops all data that was not sent yet once the socket is closed, instead of lingering.
+            socket.setSoLinger(0);
+        } catch (IOException e) {
+            logger.debug("Failed to set SO_LINGER to 0 on {}", socket, e);
+        }
+    }
+
+    private void clearSpliceQueue() {
+        Queue<SpliceInTask> sQueue = spliceQueue;
+        if (sQueue == null) {
+            return;
+        }
+        ClosedChannelException exception = null;
+
+        for (;;) {
+            SpliceInTask task = sQueue.poll();
+            if (task == null) {
+                break;
+            }
+            if (exception == null) {
+                exception = new ClosedChannelException();
+            }
+            task.fail(exception);
+        }
+    }
+
+    private void addToSpliceQueue(final SpliceInTask task) {
+        EventLoop eventLoop = eventLoop();
+        if (eventLoop.inEventLoop()) {
+            addToSpliceQueue0(task);
+        } else {
+            eventLoop.execute(() -> addToSpliceQueue0(task));
+        }
+    }
+
+    private void addToSpliceQueue0(SpliceInTask task) {
+        if (!isOpen()) {
+            task.fail(new ClosedChannelException());
+            return;
+        }
+        if (spliceQueue == null) {
+            spliceQueue = new ArrayDeque<>();
+        }
+        spliceQueue.add(task);
+        // Because of epoll ET we will not be notified again for bytes that are already in the socket, so trigger a
+        // read now.
+        ((AbstractEpollUnsafe) unsafe()).executeEpollInReadyRunnable(config());
+    }
+
     @UnstableApi
     @Override
     protected final void doShutdownOutput() throws Exception {
@@ -530,6 +868,16 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
             }
         }
 
+        @Override
+        void epollErrReady() {
+            try {
+                processZeroCopyCompletions();
+            } catch (IOException e) {
+                // Any error of the socket itself will also be reported by the next read or write.
+                logger.debug("Failed to process zero-copy completions: {}", AbstractEpollStreamChannel.this, e);
+            }
+        }
+
         @Override
         EpollRecvByteAllocatorHandle newEpollHandle(RecvByteBufAllocator.ExtendedHandle handle) {
             return new EpollRecvByteAllocatorStreamingHandle(handle);
@@ -551,8 +899,33 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
 
             ByteBuf byteBuf = null;
             boolean close = false;
+            boolean spliceBlocked = false;
             try {
                 do {
+                    SpliceInTask spliceTask = spliceQueue != null ? spliceQueue.peek() : null;
+                    if (spliceTask != null) {
+                        if (spliceTask.spliceIn(allocHandle)) {
+                            // We need to check if it is still active as if not we removed all SpliceTasks in
+                            // doClose(...)
+                            if (isActive()) {
+                                spliceQueue.remove();
+                            }
+                            continue;
+                        }
+                        if (spliceTask.blocked) {
+                            // The pipe still contains bytes the target could not take yet, the task will trigger
+                            // another read once these were written.
+                            spliceBlocked = true;
+                            break;
+                        }
+                        if (allocHandle.lastBytesRead() <= 0) {
+                            break;
+                        }
+                        allocHandle.incMessagesRead(1);
+                        readPending = false;
+                        continue;
+                    }
+
                     // we use a direct buffer here as the native implementations only be able
                     // to handle direct buffers.
                     byteBuf = allocHandle.allocate(allocator);
@@ -600,9 +973,349 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
             } catch (Throwable t) {
                 handleReadException(pipeline, byteBuf, t, close, allocHandle);
             } finally {
-                epollInFinally(config);
+                if (spliceBlocked) {
+                    // Ensure a later read() will try again as there may be bytes left in the socket.
+                    maybeMoreDataToRead = true;
+                } else {
+                    epollInFinally(config);
+                }
+            }
+        }
+    }
+
+    private abstract class SpliceInTask {
+        final ChannelPromise promise;
+        int len;
+        boolean blocked;
+
+        protected SpliceInTask(int len, ChannelPromise promise) {
+            this.promise = promise;
+            this.len = len;
+        }
+
+        /**
+         * Splice the next chunk of bytes from the socket. Returns {@code true} if the task is done and should be
+         * removed from the queue.
+         */
+        abstract boolean spliceIn(EpollRecvByteAllocatorHandle handle);
+
+        abstract void fail(Throwable cause);
+
+        protected final int spliceIn(FileDescriptor pipeOut, EpollRecvByteAllocatorHandle handle) throws IOException {
+            // calculate the maximum amount of data we are allowed to splice
+            int length = Math.min(handle.guess(), len);
+            int splicedIn = 0;
+            for (;;) {
+                // Splicing until there is nothing left to splice or we reached the length.
+                handle.attemptedBytesRead(length);
+                int localSplicedIn = Native.splice(socket.intValue(), -1, pipeOut.intValue(), -1, length);
+                handle.lastBytesRead(localSplicedIn);
+                if (localSplicedIn == 0) {
+                    break;
+                }
+                splicedIn += localSplicedIn;
+                length -= localSplicedIn;
+                if (length == 0) {
+                    break;
+                }
+            }
+            return splicedIn;
+        }
+
+        // As we use epoll ET and EPOLLRDHUP nothing spliced after a RDHUP means we reached EOF.
+        final boolean isEof(int splicedIn, EpollRecvByteAllocatorHandle handle) {
+            return splicedIn == 0 && handle.isReceivedRdHup();
+        }
+    }
+
+    // Let it directly implement ChannelFutureListener as well to reduce object creation.
+    private final class SpliceInChannelTask extends SpliceInTask implements ChannelFutureListener {
+        private final AbstractEpollStreamChannel ch;
+        private FileDescriptor pipeIn;
+        private FileDescriptor pipeOut;
+        // The number of SpliceOutTasks that were not written to the target channel yet.
+        private int pendingOut;
+
+        SpliceInChannelTask(AbstractEpollStreamChannel ch, int len, ChannelPromise promise) {
+            super(len, promise);
+            this.ch = ch;
+        }
+
+        @Override
+        public boolean spliceIn(EpollRecvByteAllocatorHandle handle) {
+            assert ch.eventLoop().inEventLoop();
+            if (promise.isDone()) {
+                // Failed or cancelled.
+                closePipeIfDone();
+                return true;
+            }
+            if (len == 0) {
+                completeIfDone();
+                return true;
+            }
+            if (pendingOut > 0) {
+                // Only splice more once the pipe was drained, otherwise we can not tell if nothing was spliced
+                // because the socket or because the pipe is empty.
+                blocked = true;
+                return false;
+            }
+            try {
+                if (pipeOut == null) {
+                    FileDescriptor[] pipe = pipe();
+                    pipeIn = pipe[0];
+                    pipeOut = pipe[1];
+                }
+
+                int splicedIn = spliceIn(pipeOut, handle);
+                if (splicedIn > 0) {
+                    // Integer.MAX_VALUE is a special value which will result in splice forever.
+                    if (len != Integer.MAX_VALUE) {
+                        len -= splicedIn;
+                    }
+
+                    pendingOut++;
+                    // Just call unsafe().write(...) and flush() as we not want to traverse the whole pipeline for
+                    // this case.
+                    ch.unsafe().write(new SpliceOutTask(pipeIn, splicedIn), ch.newPromise().addListener(this));
+                    ch.unsafe().flush();
+                } else if (isEof(splicedIn, handle)) {
+                    len = 0;
+                }
+                if (len == 0) {
+                    completeIfDone();
+                    return true;
+                }
+                return false;
+            } catch (Throwable cause) {
+                fail(cause);
+                return true;
+            }
+        }
+
+        @Override
+        public void operationComplete(ChannelFuture future) {
+            pendingOut--;
+            if (!future.isSuccess()) {
+                promise.tryFailure(future.cause());
+            }
+            if (len == 0) {
+                completeIfDone();
+            } else if (promise.isDone()) {
+                closePipeIfDone();
+            } else if (blocked && pendingOut == 0) {
+                blocked = false;
+                // Bytes may be left in the socket and because of epoll ET we will not be notified for these again.
+                ((AbstractEpollUnsafe) unsafe()).executeEpollInReadyRunnable(config());
             }
         }
+
+        @Override
+        void fail(Throwable cause) {
+            promise.tryFailure(cause);
+            closePipeIfDone();
+        }
+
+        private void completeIfDone() {
+            if (pendingOut == 0) {
+                promise.trySuccess();
+                closePipeIfDone();
+            }
+        }
+
+        private void closePipeIfDone() {
+            // The pipe can only be closed once no SpliceOutTask references it anymore.
+            if (pendingOut == 0 && pipeIn != null) {
+                safeClosePipe(pipeIn);
+                safeClosePipe(pipeOut);
+                pipeIn = null;
+                pipeOut = null;
+            }
+        }
+    }
+
+    private final class SpliceFdTask extends SpliceInTask {
+        private final FileDescriptor fd;
+        private FileDescriptor pipeIn;
+        private FileDescriptor pipeOut;
+        private long offset;
+
+        SpliceFdTask(FileDescriptor fd, int offset, int len, ChannelPromise promise) {
+            super(len, promise);
+            this.fd = fd;
+            this.offset = offset;
+        }
+
+        @Override
+        public boolean spliceIn(EpollRecvByteAllocatorHandle handle) {
+            assert eventLoop().inEventLoop();
+            if (promise.isDone()) {
+                // Failed or cancelled.
+                closePipe();
+                return true;
+            }
+            if (len == 0) {
+                promise.trySuccess();
+                closePipe();
+                return true;
+            }
+
+            try {
+                if (pipeOut == null) {
+                    FileDescriptor[] pipe = pipe();
+                    pipeIn = pipe[0];
+                    pipeOut = pipe[1];
+                }
+                int splicedIn = spliceIn(pipeOut, handle);
+                if (splicedIn > 0) {
+                    // Integer.MAX_VALUE is a special value which will result in splice forever.
+                    if (len != Integer.MAX_VALUE) {
+                        len -= splicedIn;
+                    }
+                    do {
+                        int splicedOut = Native.splice(pipeIn.intValue(), -1, fd.intValue(), offset, splicedIn);
+                        if (splicedOut == 0) {
+                            throw new IOException("splice to " + fd + " would block");
+                        }
+                        offset += splicedOut;
+                        splicedIn -= splicedOut;
+                    } while (splicedIn > 0);
+                } else if (isEof(splicedIn, handle)) {
+                    len = 0;
+                }
+                if (len == 0) {
+                    promise.trySuccess();
+                    closePipe();
+                    return true;
+                }
+                return false;
+            } catch (Throwable cause) {
+                fail(cause);
+                return true;
+            }
+        }
+
+        @Override
+        void fail(Throwable cause) {
+            promise.tryFailure(cause);
+            closePipe();
+        }
+
+        private void closePipe() {
+            if (pipeIn != null) {
+                safeClosePipe(pipeIn);
+                safeClosePipe(pipeOut);
+                pipeIn = null;
+                pipeOut = null;
+            }
+        }
+    }
+
+    /**
+     * Let the kernel protect the data that is written to this {@link Channel} from now on with the given
+     * {@code tls12_crypto_info}. Data that is still in the {@link ChannelOutboundBuffer} is written as it is.
+     */
+    final void setKernelTlsTx(byte[] cryptoInfo) throws IOException {
+        assert eventLoop().inEventLoop();
+        ChannelOutboundBuffer in = unsafe().outboundBuffer();
+        if (in == null) {
+            throw new ClosedChannelException();
+        }
+        if (in.totalPendingWriteBytes() == 0) {
+            installKernelTlsTx(cryptoInfo);
+        } else {
+            in.addMessage(new KernelTlsTxTask(cryptoInfo), 0, newPromise());
+        }
+    }
+
+    private void installKernelTlsTx(byte[] cryptoInfo) throws IOException {
+        socket.setTlsCryptoInfo(true, cryptoInfo);
+        kernelTlsTx = true;
+    }
+
+    /**
+     * Added to the {@link ChannelOutboundBuffer} to call {@link #installKernelTlsTx(byte[])} once everything that was
+     * written before it was written to the socket.
+     */
+    /**
+     * Reads the completions of the {@code MSG_ZEROCOPY} sends that were still in flight when the channel was closed
+     * from a duplicate of its socket and releases their buffers. If these are not completed in time, the socket is
+     * aborted so the kernel drops the data that was not sent yet, and the remaining buffers are released as well.
+     */
+    private static final class ZeroCopyCloseDrain implements Runnable {
+        private final ZeroCopyWriteQueue queue;
+        private final LinuxSocket socket;
+        private final long deadlineNanos;
+
+        ZeroCopyCloseDrain(ZeroCopyWriteQueue queue, LinuxSocket socket) {
+            this.queue = queue;
+            this.socket = socket;
+            deadlineNanos = System.nanoTime() + ZERO_COPY_CLOSE_TIMEOUT_NANOS;
+        }
+
+        void schedule() {
+            // The EventLoop of the channel may be shutting down, which would cancel the task.
+            GlobalEventExecutor.INSTANCE.schedule(this, ZERO_COPY_CLOSE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void run() {
+            try {
+                queue.processCompletions(socket);
+            } catch (IOException e) {
+                logger.debug("Failed to process zero-copy completions after close: {}", socket, e);
+            }
+            if (queue.isEmpty()) {
+                close();
+            } else if (System.nanoTime() - deadlineNanos >= 0) {
+                logger.warn("Aborting the connection of {} as its MSG_ZEROCOPY sends were not completed within " +
+                        "{} ms after close.", socket, TimeUnit.NANOSECONDS.toMillis(ZERO_COPY_CLOSE_TIMEOUT_NANOS));
+                abort(socket);
+                close();
+                queue.releaseAll();
+            } else {
+                schedule();
+            }
+        }
+
+        private void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                logger.debug("Failed to close {}", socket, e);
+            }
+        }
+    }
+
+    private static final class KernelTlsTxTask {
+        private final byte[] cryptoInfo;
+
+        KernelTlsTxTask(byte[] cryptoInfo) {
+            this.cryptoInfo = cryptoInfo;
+        }
+    }
+
+    private static final class SpliceOutTask {
+        private final FileDescriptor pipeIn;
+        private int len;
+
+        SpliceOutTask(FileDescriptor pipeIn, int len) {
+            this.pipeIn = pipeIn;
+            this.len = len;
+        }
+
+        boolean spliceOut(LinuxSocket socket) throws IOException {
+            int splicedOut = Native.splice(pipeIn.intValue(), -1, socket.intValue(), -1, len);
+            len -= splicedOut;
+            return len == 0;
+        }
+    }
+
+    private static void safeClosePipe(FileDescriptor fd) {
+        try {
+            fd.close();
+        } catch (IOException e) {
+            logger.warn("Error while closing a pipe", e);
+        }
     }
 
     private final class EpollSocketWritableByteChannel extends SocketWritableByteChannel {
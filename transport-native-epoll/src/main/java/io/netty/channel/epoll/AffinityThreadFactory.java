@@ -0,0 +1,156 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.FastThreadLocalThread;
+import io.netty.util.concurrent.ThreadPlacement;
+import io.netty.util.concurrent.ThreadProperties;
+import io.netty.util.internal.UnstableApi;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * {@link DefaultThreadFactory} which pins each {@link Thread} it creates to a set of CPUs via
+ * {@code sched_setaffinity}, so an event loop does not migrate between cores or NUMA nodes.
+ * <p>
+ * The CPU sets are assigned to the created {@link Thread}s in round-robin fashion. When no CPUs are given each
+ * {@link Thread} is pinned to its own core, using the CPUs the current process is allowed to run on and preferring
+ * physical cores over their SMT siblings.
+ * <p>
+ * The created {@link Thread}s implement {@link ThreadPlacement} and so the chosen CPU and NUMA node are also exposed
+ * by {@link ThreadProperties#cpu()} and {@link ThreadProperties#numaNode()} of the executor that uses them.
+ */
+@UnstableApi
+public final class AffinityThreadFactory extends DefaultThreadFactory {
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(AffinityThreadFactory.class);
+
+    private final int[][] cpuSets;
+    private final AtomicInteger nextCpuSet = new AtomicInteger();
+
+    /**
+     * Creates a new instance which pins each {@link Thread} to its own core.
+     */
+    public AffinityThreadFactory(Class<?> poolType) {
+        this(toPoolName(poolType), false, Thread.NORM_PRIORITY, cpusPerCore());
+    }
+
+    /**
+     * Creates a new instance which pins each {@link Thread} to its own core.
+     */
+    public AffinityThreadFactory(String poolName) {
+        this(poolName, false, Thread.NORM_PRIORITY, cpusPerCore());
+    }
+
+    /**
+     * Creates a new instance which pins each {@link Thread} to one of the given CPUs.
+     */
+    public AffinityThreadFactory(String poolName, int... cpus) {
+        this(poolName, false, Thread.NORM_PRIORITY, singletonSets(cpus));
+    }
+
+    /**
+     * Creates a new instance which pins each {@link Thread} to one of the given CPU sets. A {@link Thread} that is
+     * pinned to a set with more than one CPU may run on any CPU of its set.
+     */
+    public AffinityThreadFactory(String poolName, boolean daemon, int priority, int[]... cpuSets) {
+        super(poolName, daemon, priority);
+        this.cpuSets = verify(cpuSets);
+    }
+
+    private static int[][] cpusPerCore() {
+        Epoll.ensureAvailability();
+        return singletonSets(LinuxCpuTopology.coreOrdered(Native.schedGetAffinity()));
+    }
+
+    private static int[][] singletonSets(int... cpus) {
+        requireNonNull(cpus, "cpus");
+        int[][] cpuSets = new int[cpus.length][];
+        for (int i = 0; i < cpus.length; i++) {
+            cpuSets[i] = new int[] { cpus[i] };
+        }
+        return cpuSets;
+    }
+
+    private static int[][] verify(int[]... cpuSets) {
+        Epoll.ensureAvailability();
+        requireNonNull(cpuSets, "cpuSets");
+        if (cpuSets.length == 0) {
+            throw new IllegalArgumentException("cpuSets must not be empty");
+        }
+        int[][] copy = new int[cpuSets.length][];
+        for (int i = 0; i < cpuSets.length; i++) {
+            int[] cpuSet = requireNonNull(cpuSets[i], "cpuSet").clone();
+            if (cpuSet.length == 0) {
+                throw new IllegalArgumentException("cpuSet must not be empty");
+            }
+            for (int cpu: cpuSet) {
+                if (cpu < 0) {
+                    throw new IllegalArgumentException("cpu: " + cpu + " (expected: >= 0)");
+                }
+            }
+            copy[i] = cpuSet;
+        }
+        return copy;
+    }
+
+    @Override
+    protected Thread newThread(Runnable r, String name) {
+        int[] cpus = cpuSets[(nextCpuSet.getAndIncrement() & Integer.MAX_VALUE) % cpuSets.length];
+        return new AffinityThread(threadGroup, r, name, cpus);
+    }
+
+    private static final class AffinityThread extends FastThreadLocalThread implements ThreadPlacement {
+        private final int[] cpus;
+        private volatile int cpu;
+        private volatile int numaNode;
+
+        AffinityThread(ThreadGroup group, Runnable target, String name, int[] cpus) {
+            super(group, target, name);
+            this.cpus = cpus;
+            cpu = cpus.length == 1 ? cpus[0] : UNKNOWN;
+            numaNode = LinuxCpuTopology.numaNode(cpus);
+        }
+
+        @Override
+        public void run() {
+            try {
+                Native.schedSetAffinity(cpus);
+            } catch (IOException e) {
+                cpu = UNKNOWN;
+                numaNode = UNKNOWN;
+                logger.warn("Failed to pin thread {} to CPUs {}", getName(), Arrays.toString(cpus), e);
+            }
+            super.run();
+        }
+
+        @Override
+        public int cpu() {
+            return cpu;
+        }
+
+        @Override
+        public int numaNode() {
+            return numaNode;
+        }
+    }
+}
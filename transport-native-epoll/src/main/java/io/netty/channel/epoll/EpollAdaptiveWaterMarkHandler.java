@@ -0,0 +1,203 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.util.internal.UnstableApi;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static io.netty.util.internal.ObjectUtil.checkPositive;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * {@link ChannelHandler} which sizes the {@link WriteBufferWaterMark} of an {@link EpollSocketChannel} to the
+ * bandwidth-delay product of its connection, instead of using the same static values for every peer.
+ * <p>
+ * The {@code TCP_INFO} of the socket is sampled periodically (but at most once per round-trip time) and the
+ * bandwidth-delay product is estimated as the size of the congestion window (or the number of unacknowledged segments
+ * if bigger) multiplied by the sender MSS. The high water mark is set to {@code multiplier} times this estimate,
+ * bounded by {@code minHighWaterMark} and {@code maxHighWaterMark}, and the low water mark to the half of it. A peer
+ * on a fast network so gets enough buffered data to keep the pipe full, while a slow peer can not pile up megabytes
+ * in the {@link ChannelOutboundBuffer}.
+ * <p>
+ * If {@code limitNotSent} is used {@code TCP_NOTSENT_LOWAT} is set to the estimate as well, so the kernel only keeps
+ * about one bandwidth-delay product of not yet sent data in the socket send buffer and everything else stays in the
+ * {@link ChannelOutboundBuffer}, where it is covered by the water marks.
+ * <p>
+ * Changing the water marks does not change the writability of the channel right away, it is re-evaluated with the next
+ * write or once written data is removed from the {@link ChannelOutboundBuffer}.
+ */
+@UnstableApi
+public final class EpollAdaptiveWaterMarkHandler implements ChannelHandler {
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(EpollAdaptiveWaterMarkHandler.class);
+
+    static final int DEFAULT_MIN_HIGH_WATER_MARK = 32 * 1024;
+    static final int DEFAULT_MAX_HIGH_WATER_MARK = 4 * 1024 * 1024;
+    static final int DEFAULT_MULTIPLIER = 2;
+    static final long DEFAULT_SAMPLE_INTERVAL_MILLIS = 100;
+
+    private final int minHighWaterMark;
+    private final int maxHighWaterMark;
+    private final int multiplier;
+    private final long sampleIntervalMicros;
+    private final boolean limitNotSent;
+    private final EpollTcpInfo tcpInfo = new EpollTcpInfo();
+
+    private ChannelHandlerContext ctx;
+    private ScheduledFuture<?> sampleFuture;
+    private long notSentLowAt;
+
+    /**
+     * Creates a new instance which uses high water marks between 32KB and 4MB, twice the estimated bandwidth-delay
+     * product and samples every 100ms.
+     */
+    public EpollAdaptiveWaterMarkHandler() {
+        this(DEFAULT_MIN_HIGH_WATER_MARK, DEFAULT_MAX_HIGH_WATER_MARK, DEFAULT_MULTIPLIER,
+                DEFAULT_SAMPLE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS, false);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param minHighWaterMark  the minimum high water mark to use.
+     * @param maxHighWaterMark  the maximum high water mark to use, this bounds the memory per connection.
+     * @param multiplier        the multiple of the estimated bandwidth-delay product to use as high water mark.
+     * @param sampleInterval    the interval in which {@code TCP_INFO} is sampled. If the round-trip time of the
+     *                          connection is bigger, it is used instead.
+     * @param unit              the {@link TimeUnit} of {@code sampleInterval}.
+     * @param limitNotSent      {@code true} if {@code TCP_NOTSENT_LOWAT} should be adjusted as well.
+     */
+    public EpollAdaptiveWaterMarkHandler(int minHighWaterMark, int maxHighWaterMark, int multiplier,
+                                         long sampleInterval, TimeUnit unit, boolean limitNotSent) {
+        this.minHighWaterMark = checkPositive(minHighWaterMark, "minHighWaterMark");
+        if (maxHighWaterMark < minHighWaterMark) {
+            throw new IllegalArgumentException("maxHighWaterMark: " + maxHighWaterMark +
+                    " (expected: >= minHighWaterMark (" + minHighWaterMark + "))");
+        }
+        this.maxHighWaterMark = maxHighWaterMark;
+        this.multiplier = checkPositive(multiplier, "multiplier");
+        requireNonNull(unit, "unit");
+        this.sampleIntervalMicros = Math.max(1, unit.toMicros(checkPositive(sampleInterval, "sampleInterval")));
+        this.limitNotSent = limitNotSent;
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) {
+        if (!(ctx.channel() instanceof EpollSocketChannel)) {
+            throw new IllegalArgumentException(
+                    "channel must be of type " + EpollSocketChannel.class.getSimpleName());
+        }
+        this.ctx = ctx;
+        if (ctx.channel().isActive()) {
+            sample();
+        }
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) {
+        cancel();
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) {
+        if (sampleFuture == null) {
+            sample();
+        }
+        ctx.fireChannelActive();
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) {
+        cancel();
+        ctx.fireChannelInactive();
+    }
+
+    private void cancel() {
+        if (sampleFuture != null) {
+            sampleFuture.cancel(false);
+            sampleFuture = null;
+        }
+        ctx = null;
+    }
+
+    private void sample() {
+        ChannelHandlerContext ctx = this.ctx;
+        if (ctx == null) {
+            // Removed in the meantime.
+            return;
+        }
+        EpollSocketChannel ch = (EpollSocketChannel) ctx.channel();
+        if (!ch.isActive()) {
+            return;
+        }
+        long delayMicros = sampleIntervalMicros;
+        try {
+            ch.tcpInfo(tcpInfo);
+            long bdp = bandwidthDelayProduct(tcpInfo);
+            if (bdp > 0) {
+                update(ch, bdp);
+            }
+            // The congestion window changes at most once per round-trip.
+            delayMicros = Math.max(delayMicros, tcpInfo.rtt());
+        } catch (Exception e) {
+            logger.debug("Failed to adjust the write buffer water marks of {}", ch, e);
+        }
+        sampleFuture = ctx.executor().schedule(this::sample, delayMicros, TimeUnit.MICROSECONDS);
+    }
+
+    private void update(EpollSocketChannel ch, long bdp) {
+        EpollSocketChannelConfig config = ch.config();
+        int high = highWaterMark(bdp);
+        WriteBufferWaterMark current = config.getWriteBufferWaterMark();
+        if (changedSignificantly(current.high(), high)) {
+            config.setWriteBufferWaterMark(new WriteBufferWaterMark(high >>> 1, high));
+        }
+        if (limitNotSent) {
+            long lowAt = Math.min(bdp, maxHighWaterMark);
+            if (changedSignificantly(notSentLowAt, lowAt)) {
+                config.setTcpNotSentLowAt(lowAt);
+                notSentLowAt = lowAt;
+            }
+        }
+    }
+
+    /**
+     * Returns the estimated bandwidth-delay product in bytes or {@code 0} if it is not known yet.
+     */
+    static long bandwidthDelayProduct(EpollTcpInfo info) {
+        return Math.max(info.sndCwnd(), info.unacked()) * info.sndMss();
+    }
+
+    /**
+     * Returns the high water mark to use for the given bandwidth-delay product.
+     */
+    int highWaterMark(long bdp) {
+        return (int) Math.max(minHighWaterMark, Math.min(maxHighWaterMark, bdp * multiplier));
+    }
+
+    // Only update if the value changed by more than 1/8 to not re-configure the channel for every small fluctuation
+    // of the congestion window.
+    private static boolean changedSignificantly(long oldValue, long newValue) {
+        return Math.abs(newValue - oldValue) > oldValue >>> 3;
+    }
+}
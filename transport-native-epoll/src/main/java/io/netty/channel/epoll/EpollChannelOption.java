@@ -39,8 +39,20 @@ public final class EpollChannelOption<T> extends UnixChannelOption<T> {
             ChannelOption.valueOf(EpollChannelOption.class, "TCP_DEFER_ACCEPT");
     public static final ChannelOption<Boolean> TCP_QUICKACK = valueOf(EpollChannelOption.class, "TCP_QUICKACK");
     public static final ChannelOption<Integer> SO_BUSY_POLL = valueOf(EpollChannelOption.class, "SO_BUSY_POLL");
+    public static final ChannelOption<Boolean> SO_ZEROCOPY = valueOf(EpollChannelOption.class, "SO_ZEROCOPY");
+    public static final ChannelOption<Integer> ZEROCOPY_THRESHOLD =
+            valueOf(EpollChannelOption.class, "ZEROCOPY_THRESHOLD");
     public static final ChannelOption<Map<InetAddress, byte[]>> TCP_MD5SIG = valueOf("TCP_MD5SIG");
     public static final ChannelOption<Integer> MAX_DATAGRAM_PAYLOAD_SIZE = valueOf("MAX_DATAGRAM_PAYLOAD_SIZE");
+    public static final ChannelOption<Boolean> UDP_GRO = valueOf("UDP_GRO");
+    public static final ChannelOption<String> TCP_ULP = valueOf("TCP_ULP");
+    public static final ChannelOption<byte[]> TLS_TX = valueOf("TLS_TX");
+    public static final ChannelOption<byte[]> TLS_RX = valueOf("TLS_RX");
+    public static final ChannelOption<Boolean> SO_PASSCRED = valueOf(EpollChannelOption.class, "SO_PASSCRED");
+    public static final ChannelOption<Boolean> EPOLL_EXCLUSIVE =
+            valueOf(EpollChannelOption.class, "EPOLL_EXCLUSIVE");
+    public static final ChannelOption<Integer> ACCEPT_BATCH_SIZE =
+            valueOf(EpollChannelOption.class, "ACCEPT_BATCH_SIZE");
 
     @SuppressWarnings({ "unused", "deprecation" })
     private EpollChannelOption() {
@@ -27,7 +27,6 @@ import io.netty.channel.ChannelPromise;
 import io.netty.channel.DefaultAddressedEnvelope;
 import io.netty.channel.EventLoop;
 import io.netty.channel.socket.DatagramChannel;
-import io.netty.channel.socket.DatagramChannelConfig;
 import io.netty.channel.socket.DatagramPacket;
 import io.netty.channel.socket.InternetProtocolFamily;
 import io.netty.channel.unix.DatagramSocketAddress;
@@ -295,8 +294,9 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
             }
 
             try {
-                // Check if sendmmsg(...) is supported which is only the case for GLIBC 2.14+
-                if (Native.IS_SUPPORTING_SENDMMSG && in.size() > 1) {
+                // Check if sendmmsg(...) is supported which is only the case for GLIBC 2.14+. A
+                // SegmentedDatagramPacket is always written via sendmmsg(...) as it needs to pass the segment size.
+                if (Native.IS_SUPPORTING_SENDMMSG && in.size() > 1 || msg instanceof SegmentedDatagramPacket) {
                     NativeDatagramPacketArray array = cleanDatagramPacketArray();
                     array.add(in, isConnected());
                     int cnt = array.count();
@@ -408,6 +408,17 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
                     new DatagramPacket(newDirectBuffer(packet, content), packet.recipient()) : msg;
         }
 
+        if (msg instanceof SegmentedDatagramPacket) {
+            if (!SegmentedDatagramPacket.isSupported()) {
+                throw new UnsupportedOperationException("unsupported message type: " +
+                        StringUtil.simpleClassName(msg) + " (UDP_SEGMENT not supported)");
+            }
+            SegmentedDatagramPacket packet = (SegmentedDatagramPacket) msg;
+            ByteBuf content = packet.content();
+            return UnixChannelUtil.isBufferCopyNeededForWrite(content) ?
+                    packet.replace(newDirectBuffer(packet, content)) : msg;
+        }
+
         if (msg instanceof ByteBuf) {
             ByteBuf buf = (ByteBuf) msg;
             return UnixChannelUtil.isBufferCopyNeededForWrite(buf)? newDirectBuffer(buf) : buf;
@@ -462,7 +473,7 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
         @Override
         void epollInReady() {
             assert eventLoop().inEventLoop();
-            DatagramChannelConfig config = config();
+            EpollDatagramChannelConfig config = config();
             if (shouldBreakEpollInReady(config)) {
                 clearEpollIn0();
                 return;
@@ -481,7 +492,7 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
                     do {
                         ByteBuf byteBuf = allocHandle.allocate(allocator);
                         final boolean read;
-                        int datagramSize = config().getMaxDatagramPayloadSize();
+                        int datagramSize = config.getMaxDatagramPayloadSize();
 
                         // Only try to use recvmmsg if its really supported by the running system.
                         int numDatagram = Native.IS_SUPPORTING_RECVMMSG ?
@@ -489,7 +500,10 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
                                 0;
 
                         try {
-                            if (numDatagram <= 1) {
+                            if (config.isUdpGro() && Native.IS_SUPPORTING_RECVMMSG) {
+                                // Read into the whole buffer as the kernel may have coalesced multiple datagrams.
+                                read = groRead(allocHandle, byteBuf);
+                            } else if (numDatagram <= 1) {
                                 if (connected) {
                                     read = connectedRead(allocHandle, byteBuf, datagramSize);
                                 } else {
@@ -645,6 +659,65 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
         }
     }
 
+    private boolean groRead(EpollRecvByteAllocatorHandle allocHandle, ByteBuf byteBuf) throws IOException {
+        RecyclableArrayList bufferPackets = null;
+        try {
+            int writerIndex = byteBuf.writerIndex();
+            int writable = byteBuf.writableBytes();
+            NativeDatagramPacketArray array = cleanDatagramPacketArray();
+            array.addWritable(byteBuf, writerIndex, writable);
+            allocHandle.attemptedBytesRead(writable);
+
+            NativeDatagramPacketArray.NativeDatagramPacket packet = array.packets()[0];
+            if (socket.recvmmsg(array.packets(), 0, 1) == 0) {
+                allocHandle.lastBytesRead(-1);
+                return false;
+            }
+            int received = packet.receivedAmount();
+            int segmentSize = packet.segmentSize();
+            byteBuf.writerIndex(writerIndex + received);
+            allocHandle.lastBytesRead(received);
+
+            InetSocketAddress local = localAddress();
+            InetSocketAddress sender = packet.sender();
+            if (segmentSize <= 0 || received <= segmentSize) {
+                // Nothing was coalesced.
+                allocHandle.incMessagesRead(1);
+                pipeline().fireChannelRead(new DatagramPacket(byteBuf, local, sender));
+                byteBuf = null;
+                return true;
+            }
+
+            // Split the coalesced datagrams into slices that share the memory of the buffer. Like in
+            // scatteringRead(...) we must not touch the NativeDatagramPacketArray anymore once we call
+            // fireChannelRead(...).
+            bufferPackets = RecyclableArrayList.newInstance();
+            while (byteBuf.isReadable()) {
+                int size = Math.min(segmentSize, byteBuf.readableBytes());
+                bufferPackets.add(new DatagramPacket(byteBuf.readRetainedSlice(size), local, sender));
+            }
+            int datagrams = bufferPackets.size();
+            allocHandle.incMessagesRead(datagrams);
+
+            for (int i = 0; i < datagrams; i++) {
+                pipeline().fireChannelRead(bufferPackets.set(i, Unpooled.EMPTY_BUFFER));
+            }
+            bufferPackets.recycle();
+            bufferPackets = null;
+            return true;
+        } finally {
+            if (byteBuf != null) {
+                byteBuf.release();
+            }
+            if (bufferPackets != null) {
+                for (int i = 0; i < bufferPackets.size(); i++) {
+                    ReferenceCountUtil.release(bufferPackets.get(i));
+                }
+                bufferPackets.recycle();
+            }
+        }
+    }
+
     private boolean read(EpollRecvByteAllocatorHandle allocHandle, ByteBuf byteBuf, int maxDatagramPacketSize)
             throws IOException {
         try {
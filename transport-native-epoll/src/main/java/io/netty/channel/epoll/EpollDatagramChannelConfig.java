@@ -35,6 +35,7 @@ public final class EpollDatagramChannelConfig extends EpollChannelConfig impleme
     private static final RecvByteBufAllocator DEFAULT_RCVBUF_ALLOCATOR = new FixedRecvByteBufAllocator(2048);
     private boolean activeOnOpen;
     private volatile int maxDatagramSize;
+    private volatile boolean gro;
 
     EpollDatagramChannelConfig(EpollDatagramChannel channel) {
         super(channel);
@@ -51,7 +52,8 @@ public final class EpollDatagramChannelConfig extends EpollChannelConfig impleme
                 ChannelOption.IP_MULTICAST_ADDR, ChannelOption.IP_MULTICAST_IF, ChannelOption.IP_MULTICAST_TTL,
                 ChannelOption.IP_TOS, ChannelOption.DATAGRAM_CHANNEL_ACTIVE_ON_REGISTRATION,
                 EpollChannelOption.SO_REUSEPORT, EpollChannelOption.IP_FREEBIND, EpollChannelOption.IP_TRANSPARENT,
-                EpollChannelOption.IP_RECVORIGDSTADDR, EpollChannelOption.MAX_DATAGRAM_PAYLOAD_SIZE);
+                EpollChannelOption.IP_RECVORIGDSTADDR, EpollChannelOption.MAX_DATAGRAM_PAYLOAD_SIZE,
+                EpollChannelOption.UDP_GRO);
     }
 
     @SuppressWarnings({ "unchecked", "deprecation" })
@@ -102,6 +104,9 @@ public final class EpollDatagramChannelConfig extends EpollChannelConfig impleme
         if (option == EpollChannelOption.MAX_DATAGRAM_PAYLOAD_SIZE) {
             return (T) Integer.valueOf(getMaxDatagramPayloadSize());
         }
+        if (option == EpollChannelOption.UDP_GRO) {
+            return (T) Boolean.valueOf(isUdpGro());
+        }
         return super.getOption(option);
     }
 
@@ -140,6 +145,8 @@ public final class EpollDatagramChannelConfig extends EpollChannelConfig impleme
             setIpRecvOrigDestAddr((Boolean) value);
         } else if (option == EpollChannelOption.MAX_DATAGRAM_PAYLOAD_SIZE) {
             setMaxDatagramPayloadSize((Integer) value);
+        } else if (option == EpollChannelOption.UDP_GRO) {
+            setUdpGro((Boolean) value);
         } else {
             return super.setOption(option, value);
         }
@@ -520,4 +527,32 @@ public final class EpollDatagramChannelConfig extends EpollChannelConfig impleme
     public int getMaxDatagramPayloadSize() {
         return maxDatagramSize;
     }
+
+    /**
+     * Enable / disable <a href="https://lwn.net/Articles/768995/">UDP_GRO</a>. If enabled the kernel may coalesce
+     * multiple datagrams of the same flow into one buffer, which is read with a single syscall and then split into
+     * {@link io.netty.channel.socket.DatagramPacket}s that share the same memory without copying it. As a coalesced
+     * buffer may contain up to 64KB, the used {@link RecvByteBufAllocator} must allocate buffers that are big enough
+     * to hold it, otherwise the datagrams are truncated. Default is disabled. Enabling it fails if the running system
+     * does not support {@code recvmmsg(...)}, which is needed to learn how the datagrams were coalesced.
+     */
+    public EpollDatagramChannelConfig setUdpGro(boolean gro) {
+        if (gro && !Native.IS_SUPPORTING_RECVMMSG) {
+            throw new ChannelException("UDP_GRO needs recvmmsg(...) which is not supported by the running system");
+        }
+        try {
+            ((EpollDatagramChannel) channel).socket.setUdpGro(gro);
+        } catch (IOException e) {
+            throw new ChannelException(e);
+        }
+        this.gro = gro;
+        return this;
+    }
+
+    /**
+     * Returns {@code true} if <a href="https://lwn.net/Articles/768995/">UDP_GRO</a> is enabled.
+     */
+    public boolean isUdpGro() {
+        return gro;
+    }
 }
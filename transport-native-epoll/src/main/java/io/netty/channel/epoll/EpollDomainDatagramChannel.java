@@ -0,0 +1,365 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.AddressedEnvelope;
+import io.netty.channel.ChannelMetadata;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.EventLoop;
+import io.netty.channel.unix.DomainDatagramChannel;
+import io.netty.channel.unix.DomainDatagramPacket;
+import io.netty.channel.unix.DomainSocketAddress;
+import io.netty.channel.unix.UnixChannelUtil;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.internal.RecyclableArrayList;
+import io.netty.util.internal.StringUtil;
+import io.netty.util.internal.UnstableApi;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.channels.AlreadyConnectedException;
+import java.nio.channels.NotYetConnectedException;
+
+import static io.netty.channel.epoll.LinuxSocket.newSocketDomainDgram;
+
+/**
+ * {@link DomainDatagramChannel} implementation that uses linux EPOLL Edge-Triggered Mode for
+ * maximal performance. Datagrams are written via {@code sendmmsg} and read via {@code recvmmsg}, so multiple
+ * datagrams can be transferred with one syscall. If
+ * {@link EpollDomainDatagramChannelConfig#setPassCredentials(boolean)} is enabled the credentials of the sender are
+ * exposed via {@link DomainDatagramPacket#credentials()}.
+ */
+@UnstableApi
+public final class EpollDomainDatagramChannel extends AbstractEpollChannel implements DomainDatagramChannel {
+    private static final ChannelMetadata METADATA = new ChannelMetadata(true);
+    private static final String EXPECTED_TYPES =
+            " (expected: " + StringUtil.simpleClassName(DomainDatagramPacket.class) + ", " +
+            StringUtil.simpleClassName(AddressedEnvelope.class) + '<' +
+            StringUtil.simpleClassName(ByteBuf.class) + ", " +
+            StringUtil.simpleClassName(DomainSocketAddress.class) + ">, " +
+            StringUtil.simpleClassName(ByteBuf.class) + ')';
+
+    private final EpollDomainDatagramChannelConfig config;
+
+    private volatile boolean connected;
+    private volatile DomainSocketAddress local;
+    private volatile DomainSocketAddress remote;
+
+    public EpollDomainDatagramChannel(EventLoop eventLoop) {
+        this(eventLoop, newSocketDomainDgram(), false);
+    }
+
+    public EpollDomainDatagramChannel(EventLoop eventLoop, int fd) {
+        this(eventLoop, new LinuxSocket(fd), true);
+    }
+
+    private EpollDomainDatagramChannel(EventLoop eventLoop, LinuxSocket fd, boolean active) {
+        super(null, eventLoop, fd, active);
+        config = new EpollDomainDatagramChannelConfig(this);
+    }
+
+    @Override
+    public EpollDomainDatagramChannelConfig config() {
+        return config;
+    }
+
+    @Override
+    public ChannelMetadata metadata() {
+        return METADATA;
+    }
+
+    @Override
+    public boolean isActive() {
+        return socket.isOpen() && (config.getActiveOnOpen() && isRegistered() || active);
+    }
+
+    @Override
+    public boolean isConnected() {
+        return connected;
+    }
+
+    @Override
+    public DomainSocketAddress localAddress() {
+        return (DomainSocketAddress) super.localAddress();
+    }
+
+    @Override
+    public DomainSocketAddress remoteAddress() {
+        return (DomainSocketAddress) super.remoteAddress();
+    }
+
+    @Override
+    protected DomainSocketAddress localAddress0() {
+        return local;
+    }
+
+    @Override
+    protected DomainSocketAddress remoteAddress0() {
+        return remote;
+    }
+
+    @Override
+    protected AbstractEpollUnsafe newUnsafe() {
+        return new EpollDomainDatagramChannelUnsafe();
+    }
+
+    @Override
+    protected void doBind(SocketAddress localAddress) throws Exception {
+        socket.bind(localAddress);
+        local = (DomainSocketAddress) localAddress;
+        active = true;
+    }
+
+    @Override
+    protected boolean doConnect(SocketAddress remoteAddress, SocketAddress localAddress) throws Exception {
+        if (connected) {
+            throw new AlreadyConnectedException();
+        }
+        if (localAddress != null) {
+            doBind(localAddress);
+        }
+        boolean success = false;
+        try {
+            // connect(...) on a datagram socket only records the peer and so never completes asynchronously.
+            socket.connect(remoteAddress);
+            remote = (DomainSocketAddress) remoteAddress;
+            connected = active = true;
+            success = true;
+            return true;
+        } finally {
+            if (!success) {
+                doClose();
+            }
+        }
+    }
+
+    @Override
+    protected void doDisconnect() throws Exception {
+        socket.disconnect();
+        remote = null;
+        connected = false;
+        // Unbound sockets can not receive anything once disconnected.
+        active = local != null;
+    }
+
+    @Override
+    protected void doClose() throws Exception {
+        super.doClose();
+        connected = false;
+    }
+
+    @Override
+    protected void doWrite(ChannelOutboundBuffer in) throws Exception {
+        for (;;) {
+            Object msg = in.current();
+            if (msg == null) {
+                // Wrote all messages.
+                clearFlag(Native.EPOLLOUT);
+                break;
+            }
+
+            try {
+                // There is no sendto(...) variant for domain sockets, so even a single datagram is written via
+                // sendmmsg(...) which also carries the address of the recipient.
+                NativeDatagramPacketArray array = registration().cleanDomainDatagramPacketArray();
+                array.add(in, isConnected());
+                int cnt = array.count();
+
+                if (cnt == 0) {
+                    // Only a ByteBuf that is written while not connected is rejected as it has no recipient.
+                    in.remove(new NotYetConnectedException());
+                    continue;
+                }
+
+                int offset = 0;
+                NativeDatagramPacketArray.NativeDatagramPacket[] packets = array.packets();
+                while (cnt > 0) {
+                    int send = socket.sendmmsgDomain(packets, offset, cnt);
+                    if (send == 0) {
+                        // Did not write all messages.
+                        setFlag(Native.EPOLLOUT);
+                        return;
+                    }
+                    for (int i = 0; i < send; i++) {
+                        in.remove();
+                    }
+                    cnt -= send;
+                    offset += send;
+                }
+            } catch (IOException e) {
+                // Continue on write error as a DomainDatagramChannel can write to multiple remote peers.
+                in.remove(e);
+            }
+        }
+    }
+
+    @Override
+    protected Object filterOutboundMessage(Object msg) {
+        if (msg instanceof DomainDatagramPacket) {
+            DomainDatagramPacket packet = (DomainDatagramPacket) msg;
+            ByteBuf content = packet.content();
+            return UnixChannelUtil.isBufferCopyNeededForWrite(content) ?
+                    packet.replace(newDirectBuffer(packet, content)) : msg;
+        }
+
+        if (msg instanceof ByteBuf) {
+            ByteBuf buf = (ByteBuf) msg;
+            return UnixChannelUtil.isBufferCopyNeededForWrite(buf) ? newDirectBuffer(buf) : buf;
+        }
+
+        if (msg instanceof AddressedEnvelope) {
+            @SuppressWarnings("unchecked")
+            AddressedEnvelope<Object, SocketAddress> e = (AddressedEnvelope<Object, SocketAddress>) msg;
+            SocketAddress recipient = e.recipient();
+            if (e.content() instanceof ByteBuf &&
+                    (recipient == null || recipient instanceof DomainSocketAddress)) {
+
+                ByteBuf content = (ByteBuf) e.content();
+                return UnixChannelUtil.isBufferCopyNeededForWrite(content) ?
+                        new DomainDatagramPacket(newDirectBuffer(e, content), (DomainSocketAddress) recipient) :
+                        new DomainDatagramPacket(content, (DomainSocketAddress) recipient);
+            }
+        }
+
+        throw new UnsupportedOperationException(
+                "unsupported message type: " + StringUtil.simpleClassName(msg) + EXPECTED_TYPES);
+    }
+
+    final class EpollDomainDatagramChannelUnsafe extends AbstractEpollUnsafe {
+
+        @Override
+        void epollInReady() {
+            assert eventLoop().inEventLoop();
+            EpollDomainDatagramChannelConfig config = config();
+            if (shouldBreakEpollInReady(config)) {
+                clearEpollIn0();
+                return;
+            }
+            final EpollRecvByteAllocatorHandle allocHandle = recvBufAllocHandle();
+
+            final ChannelPipeline pipeline = pipeline();
+            final ByteBufAllocator allocator = config.getAllocator();
+            allocHandle.reset(config);
+            epollInBefore();
+
+            Throwable exception = null;
+            try {
+                try {
+                    do {
+                        ByteBuf byteBuf = allocHandle.allocate(allocator);
+                        int datagramSize = config.getMaxDatagramPayloadSize();
+                        int numDatagram = datagramSize == 0 ? 1 : byteBuf.writableBytes() / datagramSize;
+                        if (numDatagram <= 1) {
+                            datagramSize = byteBuf.writableBytes();
+                            numDatagram = 1;
+                        }
+
+                        if (scatteringRead(allocHandle, byteBuf, datagramSize, numDatagram)) {
+                            readPending = false;
+                        } else {
+                            break;
+                        }
+                    } while (allocHandle.continueReading());
+                } catch (Throwable t) {
+                    exception = t;
+                }
+
+                allocHandle.readComplete();
+                pipeline.fireChannelReadComplete();
+
+                if (exception != null) {
+                    pipeline.fireExceptionCaught(exception);
+                }
+                readIfIsAutoRead();
+            } finally {
+                epollInFinally(config);
+            }
+        }
+    }
+
+    private boolean scatteringRead(EpollRecvByteAllocatorHandle allocHandle,
+            ByteBuf byteBuf, int datagramSize, int numDatagram) throws IOException {
+        RecyclableArrayList bufferPackets = null;
+        try {
+            int writerIndex = byteBuf.writerIndex();
+            int offset = writerIndex;
+            NativeDatagramPacketArray array = registration().cleanDomainDatagramPacketArray();
+
+            for (int i = 0; i < numDatagram;  i++, offset += datagramSize) {
+                if (!array.addWritable(byteBuf, offset, datagramSize)) {
+                    break;
+                }
+            }
+
+            allocHandle.attemptedBytesRead(offset - writerIndex);
+
+            NativeDatagramPacketArray.NativeDatagramPacket[] packets = array.packets();
+
+            int received = socket.recvmmsgDomain(packets, 0, array.count());
+            if (received == 0) {
+                allocHandle.lastBytesRead(-1);
+                return false;
+            }
+            DomainSocketAddress local = localAddress();
+            if (received == 1) {
+                // Single packet fast-path
+                int bytesReceived = packets[0].receivedAmount();
+                DomainDatagramPacket packet = packets[0].newDomainDatagramPacket(byteBuf, local);
+                allocHandle.lastBytesRead(bytesReceived);
+                allocHandle.incMessagesRead(1);
+                pipeline().fireChannelRead(packet);
+                byteBuf = null;
+                return true;
+            }
+
+            // Its important that we process all received data out of the NativeDatagramPacketArray
+            // before we call fireChannelRead(...). This is because the user may call flush()
+            // in a channelRead(...) method and so may re-use the NativeDatagramPacketArray again.
+            bufferPackets = RecyclableArrayList.newInstance();
+            int bytesReceived = 0;
+            for (int i = 0; i < received; i++) {
+                // Each datagram was received into its own fixed-size region of the buffer.
+                ByteBuf slice = byteBuf.retainedSlice(writerIndex + i * datagramSize, datagramSize);
+                bufferPackets.add(packets[i].newDomainDatagramPacket(slice.writerIndex(0), local));
+                bytesReceived += packets[i].receivedAmount();
+            }
+
+            allocHandle.lastBytesRead(bytesReceived);
+            allocHandle.incMessagesRead(received);
+
+            for (int i = 0; i < received; i++) {
+                pipeline().fireChannelRead(bufferPackets.set(i, Unpooled.EMPTY_BUFFER));
+            }
+            bufferPackets.recycle();
+            bufferPackets = null;
+            return true;
+        } finally {
+            if (byteBuf != null) {
+                byteBuf.release();
+            }
+            if (bufferPackets != null) {
+                for (int i = 0; i < bufferPackets.size(); i++) {
+                    ReferenceCountUtil.release(bufferPackets.get(i));
+                }
+                bufferPackets.recycle();
+            }
+        }
+    }
+}
@@ -171,6 +171,10 @@ public final class EpollDomainSocketChannel extends AbstractEpollStreamChannel i
                         close(voidPromise());
                         return;
                     default:
+                        // Every received file descriptor is a complete read, so mark it as such. Otherwise the
+                        // stream handle assumes the socket was drained and with epoll ET we would never see the
+                        // remaining file descriptors.
+                        allocHandle.attemptedBytesRead(allocHandle.lastBytesRead());
                         allocHandle.incMessagesRead(1);
                         readPending = false;
                         pipeline.fireChannelRead(new FileDescriptor(allocHandle.lastBytesRead()));
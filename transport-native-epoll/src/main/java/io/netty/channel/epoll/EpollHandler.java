@@ -37,6 +37,7 @@ import io.netty.util.internal.logging.InternalLoggerFactory;
 
 import java.io.IOException;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 
 import static io.netty.util.internal.ObjectUtil.checkPositiveOrZero;
@@ -67,10 +68,12 @@ public class EpollHandler implements IoHandler {
     // These are initialized on first use
     private IovArray iovArray;
     private NativeDatagramPacketArray datagramPacketArray;
+    private NativeDatagramPacketArray domainDatagramPacketArray;
 
     private final SelectStrategy selectStrategy;
     private final IntSupplier selectNowSupplier = this::epollWaitNow;
     private final AtomicInteger wakenUp = new AtomicInteger(1);
+    private final LongAdder wakeups = new LongAdder();
     private boolean pendingWakeup;
 
     // See http://man7.org/linux/man-pages/man2/timerfd_create.2.html.
@@ -182,6 +185,15 @@ public class EpollHandler implements IoHandler {
         return datagramPacketArray;
     }
 
+    private NativeDatagramPacketArray cleanDomainDatagramPacketArray() {
+        if (domainDatagramPacketArray == null) {
+            domainDatagramPacketArray = new NativeDatagramPacketArray(true);
+        } else {
+            domainDatagramPacketArray.clear();
+        }
+        return domainDatagramPacketArray;
+    }
+
     @Override
     public final void register(Channel channel) throws Exception {
         final AbstractEpollChannel epollChannel = cast(channel);
@@ -205,6 +217,11 @@ public class EpollHandler implements IoHandler {
             public NativeDatagramPacketArray cleanDatagramPacketArray() {
                 return EpollHandler.this.cleanDatagramPacketArray();
             }
+
+            @Override
+            public NativeDatagramPacketArray cleanDomainDatagramPacketArray() {
+                return EpollHandler.this.cleanDomainDatagramPacketArray();
+            }
         });
         add(epollChannel);
     }
@@ -219,6 +236,7 @@ public class EpollHandler implements IoHandler {
         if (!inEventLoop && wakenUp.getAndSet(1) == 0) {
             // write to the evfd which will then wake-up epoll_wait(...)
             Native.eventFdWrite(eventFd.intValue(), 1L);
+            wakeups.increment();
         }
     }
 
@@ -239,7 +257,14 @@ public class EpollHandler implements IoHandler {
      * The flags of the given epoll was modified so update the registration
      */
     private void modify(AbstractEpollChannel ch) throws IOException {
-        Native.epollCtlMod(epollFd.intValue(), ch.socket.intValue(), ch.flags);
+        int fd = ch.socket.intValue();
+        if ((ch.flags & Native.EPOLLEXCLUSIVE) != 0) {
+            // EPOLL_CTL_MOD is rejected with EINVAL for exclusive wakeup registrations, so we need to re-add it.
+            Native.epollCtlDel(epollFd.intValue(), fd);
+            Native.epollCtlAdd(epollFd.intValue(), fd, ch.flags);
+        } else {
+            Native.epollCtlMod(epollFd.intValue(), fd, ch.flags);
+        }
     }
 
     /**
@@ -263,6 +288,15 @@ public class EpollHandler implements IoHandler {
     }
 
     private int epollWait(IoExecutionContext context) throws IOException {
+        context.reportBlocking();
+        try {
+            return epollWait0(context);
+        } finally {
+            context.reportUnblocked();
+        }
+    }
+
+    private int epollWait0(IoExecutionContext context) throws IOException {
         int delaySeconds;
         int delayNanos;
         long curDeadlineNanos = context.deadlineNanos();
@@ -282,8 +316,14 @@ public class EpollHandler implements IoHandler {
         return Native.epollWait(epollFd, events, true);
     }
 
-    private int epollBusyWait() throws IOException {
-        return Native.epollBusyWait(epollFd, events);
+    private int epollBusyWait(IoExecutionContext context) throws IOException {
+        // Busy waiting burns CPU but still only waits for IO, so it is not counted as busy time.
+        context.reportBlocking();
+        try {
+            return Native.epollBusyWait(epollFd, events);
+        } finally {
+            context.reportUnblocked();
+        }
     }
 
     private int epollWaitTimeboxed() throws IOException {
@@ -301,14 +341,19 @@ public class EpollHandler implements IoHandler {
                     return 0 ;
 
                 case SelectStrategy.BUSY_WAIT:
-                    strategy = epollBusyWait();
+                    strategy = epollBusyWait(context);
                     break;
 
                 case SelectStrategy.SELECT:
                     if (pendingWakeup) {
                         // We are going to be immediately woken so no need to reset wakenUp
                         // or check for timerfd adjustment.
-                        strategy = epollWaitTimeboxed();
+                        context.reportBlocking();
+                        try {
+                            strategy = epollWaitTimeboxed();
+                        } finally {
+                            context.reportUnblocked();
+                        }
                         if (strategy != 0) {
                             break;
                         }
@@ -339,7 +384,7 @@ public class EpollHandler implements IoHandler {
             }
             if (strategy > 0) {
                 handled = strategy;
-                processReady(events, strategy);
+                processReady(events, strategy, context);
             }
             if (allowGrowing && strategy == events.length()) {
                 //increase the size of the array as we needed the whole space for the events
@@ -377,7 +422,7 @@ public class EpollHandler implements IoHandler {
         }
     }
 
-    private void processReady(EpollEventArray events, int ready) {
+    private void processReady(EpollEventArray events, int ready, IoExecutionContext context) {
         for (int i = 0; i < ready; i ++) {
             final int fd = events.fd(i);
             if (fd == eventFd.intValue()) {
@@ -391,6 +436,8 @@ public class EpollHandler implements IoHandler {
 
                 AbstractEpollChannel ch = channels.get(fd);
                 if (ch != null) {
+                    context.reportProgress(ch);
+
                     // Don't change the ordering of processing EPOLLOUT | EPOLLRDHUP / EPOLLIN if you're not 100%
                     // sure about it!
                     // Re-ordering can easily introduce bugs and bad side-effects, as we found out painfully in the
@@ -405,6 +452,11 @@ public class EpollHandler implements IoHandler {
                     // In either case epollOutReady() will do the correct thing (finish connecting, or fail
                     // the connection).
                     // See https://github.com/netty/netty/issues/3848
+                    if ((ev & Native.EPOLLERR) != 0) {
+                        // Process the error queue first so completed zero-copy writes are released before we
+                        // try to write more data.
+                        unsafe.epollErrReady();
+                    }
                     if ((ev & (Native.EPOLLERR | Native.EPOLLOUT)) != 0) {
                         // Force flush of data as the epoll is writable again
                         unsafe.epollOutReady();
@@ -441,6 +493,16 @@ public class EpollHandler implements IoHandler {
         }
     }
 
+    @Override
+    public int registeredChannels() {
+        return channels.size();
+    }
+
+    @Override
+    public long wakeups() {
+        return wakeups.sum();
+    }
+
     @Override
     public final void destroy() {
         try {
@@ -487,6 +549,10 @@ public class EpollHandler implements IoHandler {
                 datagramPacketArray.release();
                 datagramPacketArray = null;
             }
+            if (domainDatagramPacketArray != null) {
+                domainDatagramPacketArray.release();
+                domainDatagramPacketArray = null;
+            }
             events.free();
         }
     }
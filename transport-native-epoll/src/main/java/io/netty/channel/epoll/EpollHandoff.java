@@ -0,0 +1,162 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.unix.DomainSocketReadMode;
+import io.netty.channel.unix.FileDescriptor;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.Promise;
+import io.netty.util.concurrent.PromiseCombiner;
+import io.netty.util.internal.UnstableApi;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Hands listening and established TCP sockets over to another process via {@code SCM_RIGHTS}, which allows to
+ * restart a server without dropping its accept queue or its connections.
+ * <p>
+ * The old process calls {@link #handoff(EpollDomainSocketChannel, EpollServerSocketChannel, Collection)} on an
+ * {@link EpollDomainSocketChannel} that is connected to the new process. The new process reads the file descriptors
+ * with {@link DomainSocketReadMode#FILE_DESCRIPTORS} and adopts each of them with
+ * {@link #adoptListener(EventLoop, EventLoopGroup, FileDescriptor)} or
+ * {@link #adoptConnection(EventLoop, FileDescriptor)}, depending on {@link #isListener(FileDescriptor)}. For example
+ * the listener can be adopted by a {@link io.netty.bootstrap.ServerBootstrap} via
+ * {@code channelFactory((loop, childGroup) -> EpollHandoff.adoptListener(loop, childGroup, fd))} followed by
+ * {@code register()}.
+ * <p>
+ * Only kernel state moves with a socket: the accept queue of a listener and the send and receive queues of a
+ * connection. State of the old {@link io.netty.channel.ChannelPipeline} (for example partially decoded messages)
+ * is not transferred, which is why connections are only handed over if they have no pending outbound data.
+ */
+@UnstableApi
+public final class EpollHandoff {
+
+    private EpollHandoff() { }
+
+    /**
+     * Hands the given listener over to the peer of {@code channel}.
+     *
+     * @see #handoff(EpollDomainSocketChannel, EpollServerSocketChannel, Collection)
+     */
+    public static Future<Void> handoff(EpollDomainSocketChannel channel, EpollServerSocketChannel listener) {
+        return handoff(channel, listener, Collections.emptyList());
+    }
+
+    /**
+     * Hands the given listener and connections over to the peer of {@code channel}.
+     * <p>
+     * The listener keeps accepting until its file descriptor was sent, so there is no window in which connection
+     * attempts are refused. Each connection is deregistered from its {@link EventLoop} before it is sent, so nothing
+     * is read from it by this process anymore and all unread data is left for the new process. A connection that
+     * still has pending outbound data is registered again and not handed over, which fails the returned
+     * {@link Future}. Every {@link io.netty.channel.Channel} that was sent successfully is closed afterwards, which
+     * only releases this process's reference to the socket.
+     */
+    public static Future<Void> handoff(EpollDomainSocketChannel channel, EpollServerSocketChannel listener,
+                                       Collection<? extends EpollSocketChannel> connections) {
+        requireNonNull(channel, "channel");
+        requireNonNull(listener, "listener");
+        requireNonNull(connections, "connections");
+        EventLoop eventLoop = channel.eventLoop();
+        Promise<Void> promise = eventLoop.newPromise();
+        if (eventLoop.inEventLoop()) {
+            handoff0(channel, listener, connections, promise);
+        } else {
+            eventLoop.execute(() -> handoff0(channel, listener, connections, promise));
+        }
+        return promise;
+    }
+
+    private static void handoff0(EpollDomainSocketChannel channel, EpollServerSocketChannel listener,
+                                 Collection<? extends EpollSocketChannel> connections, Promise<Void> promise) {
+        PromiseCombiner combiner = new PromiseCombiner(channel.eventLoop());
+        Promise<Void> listenerSent = channel.eventLoop().newPromise();
+        combiner.add(listenerSent);
+        send(channel, listener, listenerSent);
+        for (EpollSocketChannel connection : connections) {
+            Promise<Void> sent = channel.eventLoop().newPromise();
+            combiner.add(sent);
+            connection.deregister().addListener(future -> {
+                if (!future.isSuccess()) {
+                    sent.setFailure(future.cause());
+                    return;
+                }
+                // We are on the EventLoop of the connection again, so it is safe to access the outbound buffer.
+                ChannelOutboundBuffer buffer = connection.unsafe().outboundBuffer();
+                if (buffer != null && (!buffer.isEmpty() || buffer.totalPendingWriteBytes() > 0)) {
+                    connection.register();
+                    sent.setFailure(new IllegalStateException("pending outbound data: " + connection));
+                    return;
+                }
+                send(channel, connection, sent);
+            });
+        }
+        combiner.finish(promise);
+    }
+
+    private static void send(EpollDomainSocketChannel channel, AbstractEpollChannel toSend, Promise<Void> promise) {
+        channel.writeAndFlush(toSend.fd()).addListener(future -> {
+            if (future.isSuccess()) {
+                // The peer holds its own reference now, so this only releases ours.
+                toSend.close().addListener(f -> promise.setSuccess(null));
+            } else {
+                if (!toSend.isRegistered() && toSend.isOpen()) {
+                    toSend.register();
+                }
+                promise.setFailure(future.cause());
+            }
+        });
+    }
+
+    /**
+     * Returns {@code true} if the given file descriptor is a listening socket.
+     */
+    public static boolean isListener(FileDescriptor fd) throws IOException {
+        return LinuxSocket.wrapNonSocket(fd.intValue()).isSoAcceptConn();
+    }
+
+    /**
+     * Creates a new {@link EpollServerSocketChannel} for a listening socket which was received from
+     * {@link #handoff(EpollDomainSocketChannel, EpollServerSocketChannel, Collection)}. The channel still needs to be
+     * registered.
+     */
+    public static EpollServerSocketChannel adoptListener(EventLoop eventLoop, EventLoopGroup childEventLoopGroup,
+                                                         FileDescriptor fd) throws IOException {
+        if (!isListener(fd)) {
+            throw new IllegalArgumentException("not a listening socket: " + fd);
+        }
+        return new EpollServerSocketChannel(eventLoop, childEventLoopGroup, fd.intValue());
+    }
+
+    /**
+     * Creates a new {@link EpollSocketChannel} for a connected socket which was received from
+     * {@link #handoff(EpollDomainSocketChannel, EpollServerSocketChannel, Collection)}. The channel still needs to be
+     * registered.
+     */
+    public static EpollSocketChannel adoptConnection(EventLoop eventLoop, FileDescriptor fd) throws IOException {
+        if (isListener(fd)) {
+            throw new IllegalArgumentException("not a connected socket: " + fd);
+        }
+        return new EpollSocketChannel(eventLoop, fd.intValue());
+    }
+}
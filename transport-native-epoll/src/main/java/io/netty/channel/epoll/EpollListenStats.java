@@ -0,0 +1,103 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.util.internal.UnstableApi;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Snapshot of the {@code ListenOverflows} and {@code ListenDrops} counters of the network namespace, as found in
+ * {@code /proc/net/netstat}. Unlike {@link EpollServerSocketChannel#acceptQueueSaturations()} these count every
+ * connection the kernel dropped because an accept queue was full, for all listening sockets.
+ */
+@UnstableApi
+public final class EpollListenStats {
+    private static final String NETSTAT = "/proc/net/netstat";
+    private static final String TCP_EXT = "TcpExt:";
+
+    private final long listenOverflows;
+    private final long listenDrops;
+
+    private EpollListenStats(long listenOverflows, long listenDrops) {
+        this.listenOverflows = listenOverflows;
+        this.listenDrops = listenDrops;
+    }
+
+    /**
+     * Reads the current counters.
+     */
+    public static EpollListenStats read() throws IOException {
+        return read(new FileReader(NETSTAT));
+    }
+
+    static EpollListenStats read(Reader reader) throws IOException {
+        try (BufferedReader in = new BufferedReader(reader)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (!line.startsWith(TCP_EXT)) {
+                    continue;
+                }
+                // The first line contains the names and the second one the values.
+                String values = in.readLine();
+                if (values == null || !values.startsWith(TCP_EXT)) {
+                    break;
+                }
+                String[] names = line.split(" ");
+                String[] counters = values.split(" ");
+                long listenOverflows = -1;
+                long listenDrops = -1;
+                for (int i = 1; i < names.length && i < counters.length; i++) {
+                    if ("ListenOverflows".equals(names[i])) {
+                        listenOverflows = Long.parseLong(counters[i]);
+                    } else if ("ListenDrops".equals(names[i])) {
+                        listenDrops = Long.parseLong(counters[i]);
+                    }
+                }
+                if (listenOverflows >= 0 && listenDrops >= 0) {
+                    return new EpollListenStats(listenOverflows, listenDrops);
+                }
+                break;
+            }
+        } catch (NumberFormatException e) {
+            throw new IOException("Unable to parse " + NETSTAT, e);
+        }
+        throw new IOException("No TcpExt ListenOverflows / ListenDrops found in " + NETSTAT);
+    }
+
+    /**
+     * Returns how often a connection could not be queued because the accept queue of the listening socket was full.
+     */
+    public long listenOverflows() {
+        return listenOverflows;
+    }
+
+    /**
+     * Returns how many connections were dropped while being established, this includes
+     * {@link #listenOverflows()}.
+     */
+    public long listenDrops() {
+        return listenDrops;
+    }
+
+    @Override
+    public String toString() {
+        return "EpollListenStats(listenOverflows: " + listenOverflows + ", listenDrops: " + listenDrops + ')';
+    }
+}
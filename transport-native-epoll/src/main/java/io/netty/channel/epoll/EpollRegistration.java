@@ -43,4 +43,10 @@ interface EpollRegistration {
      * Returns a {@link NativeDatagramPacketArray} that can used for {@code sendmmsg}.
      */
     NativeDatagramPacketArray cleanDatagramPacketArray();
+
+    /**
+     * Returns a {@link NativeDatagramPacketArray} that can hold domain socket addresses and so be used for
+     * {@code sendmmsg} and {@code recvmmsg} on {@code AF_UNIX} datagram sockets.
+     */
+    NativeDatagramPacketArray cleanDomainDatagramPacketArray();
 }
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.bootstrap.ServerBootstrapConfig;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.GlobalEventExecutor;
+import io.netty.util.concurrent.Promise;
+import io.netty.util.concurrent.ThreadPlacement;
+import io.netty.util.internal.UnstableApi;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Binds one {@link EpollServerSocketChannel} per {@link EventLoop} to the same address by using {@code SO_REUSEPORT}.
+ * <p>
+ * Every listener uses its own {@link EventLoop} as child group, which means a connection is accepted and served by
+ * the same thread and the kernel distributes the connections between the listeners. This removes the hand-off
+ * between a boss and a worker {@link EventLoop} and the contention on a single accept queue.
+ * <p>
+ * When CPU steering is requested a classic BPF program is attached to the {@code SO_REUSEPORT} group (linux 4.5+)
+ * which selects the listener whose {@link EventLoop} runs on the CPU that processed the incoming {@code SYN}. This
+ * works best when the {@link EventLoop}s are pinned (for example via {@link AffinityThreadFactory}) to the CPUs that
+ * serve the receive queues of the NIC. Connections that arrive on a CPU without a pinned {@link EventLoop} are
+ * distributed by {@code cpu % listeners}.
+ */
+@UnstableApi
+public final class EpollReusePort {
+
+    // See include/uapi/linux/filter.h
+    private static final int BPF_LD_W_ABS = 0x20;
+    private static final int BPF_JMP_JEQ_K = 0x15;
+    private static final int BPF_ALU_MOD_K = 0x94;
+    private static final int BPF_RET_K = 0x06;
+    private static final int BPF_RET_A = 0x16;
+    private static final int SKF_AD_CPU = -0x1000 + 36;
+
+    private EpollReusePort() { }
+
+    /**
+     * Binds one {@link EpollServerSocketChannel} per {@link EventLoop} of the child group of the given
+     * {@link ServerBootstrap} (or the group if no child group is set) to the given {@code port}.
+     *
+     * @see #bind(ServerBootstrap, SocketAddress, boolean)
+     */
+    public static Future<ChannelGroup> bind(ServerBootstrap bootstrap, int port) {
+        return bind(bootstrap, new InetSocketAddress(port), false);
+    }
+
+    /**
+     * Binds one {@link EpollServerSocketChannel} per {@link EventLoop} of the child group of the given
+     * {@link ServerBootstrap} (or the group if no child group is set) to the given {@link SocketAddress}.
+     *
+     * @see #bind(ServerBootstrap, SocketAddress, boolean)
+     */
+    public static Future<ChannelGroup> bind(ServerBootstrap bootstrap, SocketAddress localAddress) {
+        return bind(bootstrap, localAddress, false);
+    }
+
+    /**
+     * Binds one {@link EpollServerSocketChannel} per {@link EventLoop} of the child group of the given
+     * {@link ServerBootstrap} (or the group if no child group is set) to the given {@link SocketAddress}.
+     * If the address uses port {@code 0} the port that was picked for the first listener is used for all the
+     * others.
+     * <p>
+     * The returned {@link Future} is notified with a {@link ChannelGroup} that contains all listeners once all of
+     * them are bound, or failed if one of them could not be bound. In this case all listeners that were bound
+     * already are closed again.
+     *
+     * @param bootstrap     the {@link ServerBootstrap} that is used as template for all listeners.
+     * @param localAddress  the address to bind to.
+     * @param steerByCpu    {@code true} if a BPF program should be attached that selects the listener by the CPU that
+     *                      processed the incoming connection.
+     */
+    public static Future<ChannelGroup> bind(ServerBootstrap bootstrap, SocketAddress localAddress,
+                                            boolean steerByCpu) {
+        requireNonNull(bootstrap, "bootstrap");
+        requireNonNull(localAddress, "localAddress");
+        ServerBootstrapConfig config = bootstrap.config();
+        EventLoopGroup group = config.childGroup() != null ? config.childGroup() : config.group();
+        if (group == null) {
+            throw new IllegalStateException("group not set");
+        }
+        List<EventLoop> loops = new ArrayList<>();
+        for (EventExecutor executor : group) {
+            loops.add((EventLoop) executor);
+        }
+        Promise<ChannelGroup> promise = GlobalEventExecutor.INSTANCE.newPromise();
+        new Binder(bootstrap, loops, steerByCpu, promise).bind(0, localAddress);
+        return promise;
+    }
+
+    /**
+     * Returns a classic BPF program that selects the index of the listener whose {@link EventLoop} runs on the CPU
+     * that processed the packet. {@code cpus[i]} is the CPU of the {@link EventLoop} of listener {@code i} or
+     * {@link ThreadPlacement#UNKNOWN}.
+     */
+    static int[] cpuSteeringProgram(int[] cpus) {
+        int known = 0;
+        for (int cpu : cpus) {
+            if (cpu != ThreadPlacement.UNKNOWN) {
+                known++;
+            }
+        }
+        int[] program = new int[(known * 2 + 3) * 4];
+        int idx = 0;
+        idx = insn(program, idx, BPF_LD_W_ABS, 0, 0, SKF_AD_CPU);
+        for (int i = 0; i < cpus.length; i++) {
+            if (cpus[i] != ThreadPlacement.UNKNOWN) {
+                // if (A == cpu) return i;
+                idx = insn(program, idx, BPF_JMP_JEQ_K, 0, 1, cpus[i]);
+                idx = insn(program, idx, BPF_RET_K, 0, 0, i);
+            }
+        }
+        idx = insn(program, idx, BPF_ALU_MOD_K, 0, 0, cpus.length);
+        insn(program, idx, BPF_RET_A, 0, 0, 0);
+        return program;
+    }
+
+    private static int insn(int[] program, int idx, int code, int jt, int jf, int k) {
+        program[idx] = code;
+        program[idx + 1] = jt;
+        program[idx + 2] = jf;
+        program[idx + 3] = k;
+        return idx + 4;
+    }
+
+    private static final class Binder {
+        private final ServerBootstrap bootstrap;
+        private final List<EventLoop> loops;
+        private final boolean steerByCpu;
+        private final Promise<ChannelGroup> promise;
+        private final ChannelGroup channels = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
+        private final List<EpollServerSocketChannel> listeners;
+        private final int[] cpus;
+
+        Binder(ServerBootstrap bootstrap, List<EventLoop> loops, boolean steerByCpu, Promise<ChannelGroup> promise) {
+            this.bootstrap = bootstrap;
+            this.loops = loops;
+            this.steerByCpu = steerByCpu;
+            this.promise = promise;
+            listeners = new ArrayList<>(loops.size());
+            cpus = new int[loops.size()];
+        }
+
+        // Listeners are bound one after the other so the order of the SO_REUSEPORT group matches the order of loops.
+        void bind(final int index, final SocketAddress localAddress) {
+            if (index == loops.size()) {
+                done();
+                return;
+            }
+            EventLoop loop = loops.get(index);
+            ServerBootstrap b = bootstrap.clone(loop, loop).option(EpollChannelOption.SO_REUSEPORT, true);
+            if (b.config().channelFactory() == null) {
+                b.channel(EpollServerSocketChannel.class);
+            }
+            b.bind(localAddress).addListener((ChannelFutureListener) future -> {
+                // Listeners are notified on the EventLoop of the channel.
+                Channel channel = future.channel();
+                if (!future.isSuccess()) {
+                    fail(future.cause());
+                    return;
+                }
+                if (!(channel instanceof EpollServerSocketChannel)) {
+                    channel.close();
+                    fail(new IllegalArgumentException(
+                            "channel must be of type " + EpollServerSocketChannel.class.getSimpleName()));
+                    return;
+                }
+                listeners.add((EpollServerSocketChannel) channel);
+                channels.add(channel);
+                cpus[index] = ThreadPlacement.cpu(Thread.currentThread());
+                bind(index + 1, index == 0 ? channel.localAddress() : localAddress);
+            });
+        }
+
+        private void done() {
+            if (steerByCpu) {
+                try {
+                    // The program applies to the whole SO_REUSEPORT group so we only need to attach it once.
+                    listeners.get(0).socket.setReusePortCbpf(cpuSteeringProgram(cpus));
+                } catch (IOException e) {
+                    fail(e);
+                    return;
+                }
+            }
+            promise.setSuccess(channels);
+        }
+
+        private void fail(Throwable cause) {
+            channels.close();
+            promise.setFailure(cause);
+        }
+    }
+}
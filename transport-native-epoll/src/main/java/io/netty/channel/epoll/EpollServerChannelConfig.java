@@ -35,6 +35,8 @@ import static io.netty.util.internal.ObjectUtil.checkPositiveOrZero;
 public class EpollServerChannelConfig extends EpollChannelConfig implements ServerSocketChannelConfig {
     private volatile int backlog = NetUtil.SOMAXCONN;
     private volatile int pendingFastOpenRequestsThreshold;
+    private volatile boolean epollExclusive;
+    private volatile int acceptBatchSize;
 
     EpollServerChannelConfig(AbstractEpollChannel channel) {
         super(channel);
@@ -42,7 +44,8 @@ public class EpollServerChannelConfig extends EpollChannelConfig implements Serv
 
     @Override
     public Map<ChannelOption<?>, Object> getOptions() {
-        return getOptions(super.getOptions(), SO_RCVBUF, SO_REUSEADDR, SO_BACKLOG, EpollChannelOption.TCP_FASTOPEN);
+        return getOptions(super.getOptions(), SO_RCVBUF, SO_REUSEADDR, SO_BACKLOG, EpollChannelOption.TCP_FASTOPEN,
+                EpollChannelOption.EPOLL_EXCLUSIVE, EpollChannelOption.ACCEPT_BATCH_SIZE);
     }
 
     @SuppressWarnings("unchecked")
@@ -60,6 +63,12 @@ public class EpollServerChannelConfig extends EpollChannelConfig implements Serv
         if (option == EpollChannelOption.TCP_FASTOPEN) {
             return (T) Integer.valueOf(getTcpFastopen());
         }
+        if (option == EpollChannelOption.EPOLL_EXCLUSIVE) {
+            return (T) Boolean.valueOf(isEpollExclusive());
+        }
+        if (option == EpollChannelOption.ACCEPT_BATCH_SIZE) {
+            return (T) Integer.valueOf(getAcceptBatchSize());
+        }
         return super.getOption(option);
     }
 
@@ -75,6 +84,10 @@ public class EpollServerChannelConfig extends EpollChannelConfig implements Serv
             setBacklog((Integer) value);
         } else if (option == EpollChannelOption.TCP_FASTOPEN) {
             setTcpFastopen((Integer) value);
+        } else if (option == EpollChannelOption.EPOLL_EXCLUSIVE) {
+            setEpollExclusive((Boolean) value);
+        } else if (option == EpollChannelOption.ACCEPT_BATCH_SIZE) {
+            setAcceptBatchSize((Integer) value);
         } else {
             return super.setOption(option, value);
         }
@@ -156,6 +169,65 @@ public class EpollServerChannelConfig extends EpollChannelConfig implements Serv
         return this;
     }
 
+    /**
+     * Returns {@code true} if the channel is registered with {@code EPOLLEXCLUSIVE}.
+     */
+    public boolean isEpollExclusive() {
+        return epollExclusive;
+    }
+
+    /**
+     * Register the channel with {@code EPOLLEXCLUSIVE}, so that if the listening socket is shared between multiple
+     * {@link io.netty.channel.EventLoop}s or processes only one of them is woken up for an incoming connection
+     * instead of all of them. This requires linux 4.5 or newer and must be set before the channel is registered.
+     * <p>
+     * Exclusive registrations can not be modified in place, so each time {@code EPOLLIN} needs to be toggled (for
+     * example when auto read is disabled) the channel is removed and added to the epoll set again.
+     */
+    public EpollServerChannelConfig setEpollExclusive(boolean epollExclusive) {
+        if (channel.isRegistered()) {
+            throw new IllegalStateException("EPOLL_EXCLUSIVE can only be changed before the channel is registered");
+        }
+        try {
+            if (epollExclusive) {
+                ((AbstractEpollChannel) channel).setFlag(Native.EPOLLEXCLUSIVE);
+            } else {
+                ((AbstractEpollChannel) channel).clearFlag(Native.EPOLLEXCLUSIVE);
+            }
+            this.epollExclusive = epollExclusive;
+            return this;
+        } catch (IOException e) {
+            throw new ChannelException(e);
+        }
+    }
+
+    /**
+     * Returns the maximal number of connections that are accepted with one native call, or {@code 0} if every
+     * connection is accepted with its own call.
+     */
+    public int getAcceptBatchSize() {
+        return acceptBatchSize;
+    }
+
+    /**
+     * Accept up to {@code acceptBatchSize} connections with one native call by calling {@code accept4} in a loop
+     * until the accept queue is empty or the batch is full. A batch is always handed to the pipeline as a whole,
+     * so it may exceed the maximal messages per read by up to {@code acceptBatchSize - 1} connections.
+     * <p>
+     * In this mode {@link EpollServerSocketChannel} also checks its accept queue via {@code TCP_INFO} after each full
+     * batch, see {@link EpollServerSocketChannel#acceptQueueSaturations()}.
+     *
+     * @param acceptBatchSize the batch size, between {@code 0} (disabled) and {@code 64}.
+     */
+    public EpollServerChannelConfig setAcceptBatchSize(int acceptBatchSize) {
+        if (acceptBatchSize < 0 || acceptBatchSize > LinuxSocket.ACCEPT_BATCH_MAX) {
+            throw new IllegalArgumentException("acceptBatchSize: " + acceptBatchSize +
+                    " (expected: 0-" + LinuxSocket.ACCEPT_BATCH_MAX + ')');
+        }
+        this.acceptBatchSize = acceptBatchSize;
+        return this;
+    }
+
     @Override
     public EpollServerChannelConfig setPerformancePreferences(int connectionTime, int latency, int bandwidth) {
         return this;
@@ -16,6 +16,7 @@
 package io.netty.channel.epoll;
 
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelException;
 import io.netty.channel.EventLoop;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.socket.ServerSocketChannel;
@@ -39,6 +40,8 @@ public final class EpollServerSocketChannel extends AbstractEpollServerChannel i
 
     private final EpollServerSocketChannelConfig config;
     private volatile Collection<InetAddress> tcpMd5SigAddresses = Collections.emptyList();
+    private final EpollTcpInfo acceptQueueInfo = new EpollTcpInfo();
+    private volatile long acceptQueueSaturations;
 
     public EpollServerSocketChannel(EventLoop eventLoop, EventLoopGroup childEventLoopGroup) {
         super(eventLoop, childEventLoopGroup, newSocketStream(), false);
@@ -86,6 +89,52 @@ public final class EpollServerSocketChannel extends AbstractEpollServerChannel i
         return config;
     }
 
+    /**
+     * Returns the {@code TCP_INFO} for the current socket. For a listening socket
+     * {@link EpollTcpInfo#unacked()} is the number of connections in the accept queue and
+     * {@link EpollTcpInfo#sacked()} is the backlog.
+     * See <a href="http://linux.die.net/man/7/tcp">man 7 tcp</a>.
+     */
+    public EpollTcpInfo tcpInfo() {
+        return tcpInfo(new EpollTcpInfo());
+    }
+
+    /**
+     * Updates and returns the {@code TCP_INFO} for the current socket.
+     * See <a href="http://linux.die.net/man/7/tcp">man 7 tcp</a>.
+     */
+    public EpollTcpInfo tcpInfo(EpollTcpInfo info) {
+        try {
+            socket.getTcpInfo(info);
+            return info;
+        } catch (IOException e) {
+            throw new ChannelException(e);
+        }
+    }
+
+    /**
+     * Returns how often the accept queue was still full after a whole batch of connections was accepted. If this
+     * grows the kernel is most likely dropping connection attempts because the backlog is too small or the
+     * {@link EventLoop} can't keep up, which is also reflected by {@link EpollListenStats#listenOverflows()}.
+     * This is only tracked if {@link EpollServerSocketChannelConfig#setAcceptBatchSize(int)} is used.
+     */
+    public long acceptQueueSaturations() {
+        return acceptQueueSaturations;
+    }
+
+    @Override
+    void acceptBatchFull() {
+        try {
+            socket.getTcpInfo(acceptQueueInfo);
+        } catch (IOException ignore) {
+            // Only used for statistics.
+            return;
+        }
+        if (acceptQueueInfo.unacked() >= acceptQueueInfo.sacked()) {
+            acceptQueueSaturations++;
+        }
+    }
+
     @Override
     protected Channel newChildChannel(int fd, byte[] address, int offset, int len) throws Exception {
         return new EpollSocketChannel(this, childEventLoopGroup().next(), new LinuxSocket(fd),
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.unix.DomainSocketReadMode;
+import io.netty.channel.unix.FileDescriptor;
+import io.netty.util.concurrent.Promise;
+import io.netty.util.internal.UnstableApi;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * {@link ChannelHandler} for an {@link EpollDomainSocketChannel} that receives the file descriptors sent by
+ * {@link EpollSharedMemoryChannel#offer(EpollDomainSocketChannel, int)} and notifies the given {@link Promise} with
+ * the resulting {@link EpollSharedMemoryChannel}. The handler switches the channel to
+ * {@link DomainSocketReadMode#FILE_DESCRIPTORS} while it is part of the pipeline and removes itself once the
+ * handshake is complete.
+ */
+@UnstableApi
+public final class EpollSharedMemoryAcceptor implements ChannelHandler {
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(EpollSharedMemoryAcceptor.class);
+
+    // memfd, wakeup of the offerer, wakeup of the acceptor
+    private final FileDescriptor[] fds = new FileDescriptor[3];
+    private final Promise<EpollSharedMemoryChannel> promise;
+    private DomainSocketReadMode readMode;
+    private int received;
+
+    public EpollSharedMemoryAcceptor(Promise<EpollSharedMemoryChannel> promise) {
+        this.promise = requireNonNull(promise, "promise");
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) {
+        EpollDomainSocketChannelConfig config = ((EpollDomainSocketChannel) ctx.channel()).config();
+        readMode = config.getReadMode();
+        config.setReadMode(DomainSocketReadMode.FILE_DESCRIPTORS);
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) {
+        ((EpollDomainSocketChannel) ctx.channel()).config().setReadMode(readMode);
+        if (promise.tryFailure(new IllegalStateException("handler removed before the handshake was complete"))) {
+            closeReceived();
+        }
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        if (!(msg instanceof FileDescriptor) || received == fds.length) {
+            ctx.fireChannelRead(msg);
+            return;
+        }
+        fds[received++] = (FileDescriptor) msg;
+        if (received < fds.length) {
+            return;
+        }
+        try {
+            EpollSharedMemoryChannel channel = EpollSharedMemoryChannel.accept(ctx.channel().eventLoop(),
+                    fds[0], fds[1], fds[2]);
+            if (!promise.trySuccess(channel)) {
+                channel.unsafe().closeForcibly();
+            }
+        } catch (Throwable cause) {
+            closeReceived();
+            promise.tryFailure(cause);
+        } finally {
+            ctx.pipeline().remove(this);
+        }
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) {
+        if (promise.tryFailure(new ClosedChannelException())) {
+            closeReceived();
+        }
+        ctx.fireChannelInactive();
+    }
+
+    private void closeReceived() {
+        for (int i = 0; i < received; i++) {
+            try {
+                fds[i].close();
+            } catch (IOException e) {
+                logger.debug("Failed to close {}.", fds[i], e);
+            }
+        }
+    }
+}
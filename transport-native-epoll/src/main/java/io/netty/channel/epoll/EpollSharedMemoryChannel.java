@@ -0,0 +1,452 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelMetadata;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.EventLoop;
+import io.netty.channel.unix.FileDescriptor;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.Promise;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.StringUtil;
+import io.netty.util.internal.UnstableApi;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.channels.ClosedChannelException;
+
+import static io.netty.util.internal.ObjectUtil.checkPositive;
+
+/**
+ * A {@link io.netty.channel.Channel} to a process on the same host that transfers bytes via a pair of
+ * single-producer / single-consumer rings in shared memory ({@code memfd_create} + {@code mmap}) instead of a socket.
+ * Written {@link ByteBuf}s are copied directly into the shared memory and read out of it on the other side without
+ * any syscall. Each side owns an {@code eventfd} that is registered with its {@link EpollHandler}; the peer only
+ * writes to it if this side is parked because it ran out of data to read or space to write.
+ * <p>
+ * The memory and the {@code eventfd}s are exchanged over an {@link EpollDomainSocketChannel} via {@code SCM_RIGHTS}:
+ * one side calls {@link #offer(EpollDomainSocketChannel)} while the other side adds an
+ * {@link EpollSharedMemoryAcceptor} to its {@link EpollDomainSocketChannel}. The returned channel must then be
+ * registered like any other {@link io.netty.channel.Channel}.
+ * <p>
+ * The channel behaves like a stream, message boundaries are not preserved.
+ */
+@UnstableApi
+public final class EpollSharedMemoryChannel extends AbstractEpollChannel {
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(EpollSharedMemoryChannel.class);
+    private static final ChannelMetadata METADATA = new ChannelMetadata(false);
+    private static final String EXPECTED_TYPES = " (expected: " + StringUtil.simpleClassName(ByteBuf.class) + ')';
+
+    static final int DEFAULT_RING_CAPACITY = 256 * 1024;
+    private static final int MIN_RING_CAPACITY = 4096;
+    private static final int MAX_RING_CAPACITY = 1 << 30;
+
+    // Layout of the shared memory: a header page followed by the data of both rings. The offerer writes into the
+    // first ring and reads from the second one, the acceptor the other way around.
+    private static final int MAGIC = 0x4e534d52;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int CAPACITY_OFFSET = 4;
+    private static final int OFFERER_CLOSED_OFFSET = 8;
+    private static final int ACCEPTOR_CLOSED_OFFSET = 12;
+    private static final int FIRST_RING_HEADER_OFFSET = 64;
+    private static final int SECOND_RING_HEADER_OFFSET = FIRST_RING_HEADER_OFFSET + SharedMemoryRing.HEADER_SIZE;
+    private static final int DATA_OFFSET = 4096;
+
+    private final EpollChannelConfig config = new EpollChannelConfig(this);
+    private final FileDescriptor peerWakeup;
+    private final long memoryAddress;
+    private final long memorySize;
+    // Validated once and never read from the shared memory again, as the peer can change it at any time.
+    private final int ringCapacity;
+    private final SharedMemoryRing inbound;
+    private final SharedMemoryRing outbound;
+    private final long closedAddress;
+    private final long peerClosedAddress;
+    // Used to consume the counter of the eventfd.
+    private final long wakeupCounterAddress;
+
+    private boolean writeParked;
+
+    private EpollSharedMemoryChannel(EventLoop eventLoop, FileDescriptor wakeup, FileDescriptor peerWakeup,
+                                     long memoryAddress, long memorySize, int ringCapacity, boolean offerer) {
+        super(null, eventLoop, LinuxSocket.wrapNonSocket(wakeup.intValue()), false);
+        this.peerWakeup = peerWakeup;
+        this.memoryAddress = memoryAddress;
+        this.memorySize = memorySize;
+        this.ringCapacity = ringCapacity;
+        SharedMemoryRing first = new SharedMemoryRing(memoryAddress + FIRST_RING_HEADER_OFFSET,
+                Unpooled.wrappedBuffer(memoryAddress + DATA_OFFSET, ringCapacity, false));
+        SharedMemoryRing second = new SharedMemoryRing(memoryAddress + SECOND_RING_HEADER_OFFSET,
+                Unpooled.wrappedBuffer(memoryAddress + DATA_OFFSET + ringCapacity, ringCapacity, false));
+        outbound = offerer ? first : second;
+        inbound = offerer ? second : first;
+        closedAddress = memoryAddress + (offerer ? OFFERER_CLOSED_OFFSET : ACCEPTOR_CLOSED_OFFSET);
+        peerClosedAddress = memoryAddress + (offerer ? ACCEPTOR_CLOSED_OFFSET : OFFERER_CLOSED_OFFSET);
+        wakeupCounterAddress = PlatformDependent.allocateMemory(8);
+
+        // The eventfd also signals that the peer made space in the outbound ring, so we always need to be notified
+        // even if we are not reading at the moment.
+        flags |= Native.EPOLLIN;
+        active = true;
+    }
+
+    /**
+     * Creates the shared memory with rings of the default capacity and sends it to the peer of the given
+     * {@link EpollDomainSocketChannel}, which must use an {@link EpollSharedMemoryAcceptor}.
+     *
+     * @see #offer(EpollDomainSocketChannel, int)
+     */
+    public static Future<EpollSharedMemoryChannel> offer(EpollDomainSocketChannel handshakeChannel) {
+        return offer(handshakeChannel, DEFAULT_RING_CAPACITY);
+    }
+
+    /**
+     * Creates the shared memory with rings of {@code ringCapacity} bytes (a power of two) and sends it to the peer of
+     * the given {@link EpollDomainSocketChannel}, which must use an {@link EpollSharedMemoryAcceptor}. The returned
+     * {@link Future} is notified with the new channel, which uses the {@link EventLoop} of the
+     * {@code handshakeChannel}, once everything was written.
+     */
+    public static Future<EpollSharedMemoryChannel> offer(EpollDomainSocketChannel handshakeChannel,
+                                                         int ringCapacity) {
+        checkPositive(ringCapacity, "ringCapacity");
+        if (Integer.bitCount(ringCapacity) != 1 || ringCapacity < MIN_RING_CAPACITY ||
+                ringCapacity > MAX_RING_CAPACITY) {
+            throw new IllegalArgumentException("ringCapacity: " + ringCapacity +
+                    " (expected: power of two in range [" + MIN_RING_CAPACITY + ", " + MAX_RING_CAPACITY + "])");
+        }
+        EventLoop eventLoop = handshakeChannel.eventLoop();
+        Promise<EpollSharedMemoryChannel> promise = eventLoop.newPromise();
+        long size = DATA_OFFSET + 2L * ringCapacity;
+        FileDescriptor memfd = null;
+        FileDescriptor wakeup = null;
+        FileDescriptor peerWakeup = null;
+        long address = 0;
+        EpollSharedMemoryChannel channel;
+        try {
+            memfd = Native.newMemfd(size);
+            wakeup = Native.newEventFd();
+            peerWakeup = Native.newEventFd();
+            address = Native.mmapShared(memfd.intValue(), size);
+            // A new memfd is zero-filled, so we only need to initialize the non-zero parts of the header.
+            PlatformDependent.putInt(address + CAPACITY_OFFSET, ringCapacity);
+            PlatformDependent.putIntVolatile(address + MAGIC_OFFSET, MAGIC);
+            channel = new EpollSharedMemoryChannel(eventLoop, wakeup, peerWakeup, address, size, ringCapacity, true);
+        } catch (Throwable cause) {
+            if (address != 0) {
+                try {
+                    Native.munmap(address, size);
+                } catch (IOException e) {
+                    cause.addSuppressed(e);
+                }
+            }
+            closeQuietly(memfd);
+            closeQuietly(wakeup);
+            closeQuietly(peerWakeup);
+            return promise.setFailure(cause);
+        }
+
+        // The order matters, see EpollSharedMemoryAcceptor.
+        final FileDescriptor fd = memfd;
+        final EpollSharedMemoryChannel ch = channel;
+        handshakeChannel.write(memfd);
+        handshakeChannel.write(wakeup);
+        handshakeChannel.writeAndFlush(peerWakeup).addListener(future -> {
+            // The kernel duplicated the file descriptors while sending, we don't need the memfd anymore as it is
+            // already mapped.
+            closeQuietly(fd);
+            if (future.isSuccess()) {
+                promise.setSuccess(ch);
+            } else {
+                ch.unsafe().closeForcibly();
+                promise.setFailure(future.cause());
+            }
+        });
+        return promise;
+    }
+
+    /**
+     * Creates the channel of the acceptor from the file descriptors that were received in the order they were sent by
+     * {@link #offer(EpollDomainSocketChannel, int)}. The file descriptors are owned by the channel afterwards, except
+     * the {@code memfd} which is closed.
+     */
+    static EpollSharedMemoryChannel accept(EventLoop eventLoop, FileDescriptor memfd, FileDescriptor peerWakeup,
+                                           FileDescriptor wakeup) throws IOException {
+        long size;
+        long address;
+        try {
+            // Without the seals the peer could truncate the file while it is mapped, which would cause SIGBUS.
+            if (!Native.isSizeSealed(memfd.intValue())) {
+                throw new IOException("shared memory size not sealed");
+            }
+            size = Native.fileSize(memfd.intValue());
+            if (size < DATA_OFFSET + 2L * MIN_RING_CAPACITY) {
+                throw new IOException("shared memory too small: " + size);
+            }
+            address = Native.mmapShared(memfd.intValue(), size);
+        } finally {
+            memfd.close();
+        }
+        int capacity = PlatformDependent.getIntVolatile(address + CAPACITY_OFFSET);
+        if (PlatformDependent.getIntVolatile(address + MAGIC_OFFSET) != MAGIC || Integer.bitCount(capacity) != 1 ||
+                DATA_OFFSET + 2L * capacity != size) {
+            Native.munmap(address, size);
+            throw new IOException("invalid shared memory header");
+        }
+        return new EpollSharedMemoryChannel(eventLoop, wakeup, peerWakeup, address, size, capacity, false);
+    }
+
+    @Override
+    public EpollChannelConfig config() {
+        return config;
+    }
+
+    @Override
+    public ChannelMetadata metadata() {
+        return METADATA;
+    }
+
+    @Override
+    public boolean isActive() {
+        return active && isOpen();
+    }
+
+    /**
+     * Returns the capacity of each of the rings in bytes.
+     */
+    public int ringCapacity() {
+        return ringCapacity;
+    }
+
+    @Override
+    protected SocketAddress localAddress0() {
+        return null;
+    }
+
+    @Override
+    protected SocketAddress remoteAddress0() {
+        return null;
+    }
+
+    @Override
+    protected void doBind(SocketAddress localAddress) throws Exception {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    protected boolean doConnect(SocketAddress remoteAddress, SocketAddress localAddress) throws Exception {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    void clearFlag(int flag) throws IOException {
+        // Never stop listening for wakeups, see the constructor.
+        super.clearFlag(flag & ~Native.EPOLLIN);
+    }
+
+    @Override
+    protected AbstractEpollUnsafe newUnsafe() {
+        return new EpollSharedMemoryUnsafe();
+    }
+
+    private boolean isPeerClosed() {
+        return PlatformDependent.getIntVolatile(peerClosedAddress) != 0;
+    }
+
+    private void wakeupPeer() {
+        Native.eventFdWrite(peerWakeup.intValue(), 1L);
+    }
+
+    @Override
+    protected Object filterOutboundMessage(Object msg) {
+        if (msg instanceof ByteBuf) {
+            // No need to convert to a direct buffer as the content is copied into the shared memory anyway.
+            return msg;
+        }
+        throw new UnsupportedOperationException(
+                "unsupported message type: " + StringUtil.simpleClassName(msg) + EXPECTED_TYPES);
+    }
+
+    @Override
+    protected void doWrite(ChannelOutboundBuffer in) throws Exception {
+        if (isPeerClosed()) {
+            throw new ClosedChannelException();
+        }
+        boolean written = false;
+        try {
+            for (;;) {
+                ByteBuf buf = (ByteBuf) in.current();
+                if (buf == null) {
+                    break;
+                }
+                int readableBytes = buf.readableBytes();
+                if (readableBytes == 0) {
+                    in.remove();
+                    continue;
+                }
+                int localWritten = outbound.write(buf, buf.readerIndex(), readableBytes);
+                if (localWritten > 0) {
+                    in.removeBytes(localWritten);
+                    written = true;
+                }
+                if (localWritten < readableBytes && outbound.parkProducer()) {
+                    // The ring is full, the peer will wake us up once it consumed some of the data.
+                    writeParked = true;
+                    break;
+                }
+            }
+        } finally {
+            if (written && outbound.isConsumerParked()) {
+                wakeupPeer();
+            }
+        }
+    }
+
+    @Override
+    protected void doClose() throws Exception {
+        try {
+            super.doClose();
+        } finally {
+            try {
+                PlatformDependent.putIntVolatile(closedAddress, 1);
+                wakeupPeer();
+            } catch (Throwable cause) {
+                logger.debug("Failed to wake up the peer of {}.", this, cause);
+            } finally {
+                closeQuietly(peerWakeup);
+                PlatformDependent.freeMemory(wakeupCounterAddress);
+                Native.munmap(memoryAddress, memorySize);
+            }
+        }
+    }
+
+    private static void closeQuietly(FileDescriptor fd) {
+        if (fd != null) {
+            try {
+                fd.close();
+            } catch (IOException e) {
+                logger.debug("Failed to close {}.", fd, e);
+            }
+        }
+    }
+
+    private final class EpollSharedMemoryUnsafe extends AbstractEpollUnsafe {
+
+        EpollSharedMemoryUnsafe() {
+            // The peer may have written data before we were registered and so did not wake us up.
+            maybeMoreDataToRead = true;
+        }
+
+        @Override
+        void epollInReady() {
+            assert eventLoop().inEventLoop();
+            if (!isOpen()) {
+                // The shared memory was already unmapped.
+                return;
+            }
+            final EpollChannelConfig config = config();
+            try {
+                // Reset the eventfd so we will be notified about the next wakeup.
+                socket.readAddress(wakeupCounterAddress, 0, 8);
+            } catch (IOException e) {
+                pipeline().fireExceptionCaught(e);
+                close(voidPromise());
+                return;
+            }
+
+            if (writeParked) {
+                writeParked = false;
+                epollOutReady();
+                if (!isOpen()) {
+                    return;
+                }
+            }
+
+            if (!readPending && !config.isAutoRead()) {
+                // Remember that there may be something to read once the user calls read().
+                maybeMoreDataToRead = true;
+                return;
+            }
+
+            final EpollRecvByteAllocatorHandle allocHandle = recvBufAllocHandle();
+            final ChannelPipeline pipeline = pipeline();
+            final ByteBufAllocator allocator = config.getAllocator();
+            allocHandle.reset(config);
+            epollInBefore();
+
+            ByteBuf byteBuf = null;
+            boolean parked = false;
+            boolean close = false;
+            try {
+                inbound.unparkConsumer();
+                do {
+                    int readableBytes = inbound.readableBytes();
+                    if (readableBytes == 0) {
+                        if (inbound.parkConsumer()) {
+                            parked = true;
+                            // Everything was read, so if the peer is gone there will never be more.
+                            close = isPeerClosed() && inbound.readableBytes() == 0;
+                            break;
+                        }
+                        continue;
+                    }
+                    byteBuf = allocHandle.allocate(allocator);
+                    int length = Math.min(readableBytes, byteBuf.writableBytes());
+                    allocHandle.attemptedBytesRead(byteBuf.writableBytes());
+                    inbound.read(byteBuf, length);
+                    allocHandle.lastBytesRead(length);
+                    allocHandle.incMessagesRead(1);
+                    // Wake up the producer now, so it can fill the ring again while we process the data.
+                    if (inbound.unparkProducer()) {
+                        wakeupPeer();
+                    }
+                    readPending = false;
+                    pipeline.fireChannelRead(byteBuf);
+                    byteBuf = null;
+                    // A handler may have closed the channel and so unmapped the shared memory.
+                } while (isOpen() && allocHandle.continueReading());
+
+                allocHandle.readComplete();
+                pipeline.fireChannelReadComplete();
+                if (close) {
+                    close(voidPromise());
+                } else {
+                    readIfIsAutoRead();
+                }
+            } catch (Throwable t) {
+                if (byteBuf != null) {
+                    byteBuf.release();
+                }
+                pipeline.fireExceptionCaught(t);
+            } finally {
+                epollInFinally(config);
+                if (!parked) {
+                    // The peer only wakes us up when we are parked, so we need to make sure to read again.
+                    maybeMoreDataToRead = true;
+                    if (readPending) {
+                        executeEpollInReadyRunnable(config);
+                    }
+                }
+            }
+        }
+    }
+}
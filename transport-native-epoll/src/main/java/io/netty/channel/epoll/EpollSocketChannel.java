@@ -101,6 +101,11 @@ public final class EpollSocketChannel extends AbstractEpollStreamChannel impleme
         return config;
     }
 
+    @Override
+    int zeroCopyThreshold() {
+        return config.zeroCopyWriteThreshold();
+    }
+
     @Override
     public ServerSocketChannel parent() {
         return (ServerSocketChannel) super.parent();
@@ -36,9 +36,15 @@ import static io.netty.channel.ChannelOption.SO_RCVBUF;
 import static io.netty.channel.ChannelOption.SO_REUSEADDR;
 import static io.netty.channel.ChannelOption.SO_SNDBUF;
 import static io.netty.channel.ChannelOption.TCP_NODELAY;
+import static io.netty.util.internal.ObjectUtil.checkPositiveOrZero;
 
 public final class EpollSocketChannelConfig extends EpollChannelConfig implements SocketChannelConfig {
+    // Below this size the cost of pinning the pages and processing the completion outweighs a plain copy.
+    static final int DEFAULT_ZEROCOPY_THRESHOLD = 16 * 1024;
+
     private volatile boolean allowHalfClosure;
+    private volatile boolean zeroCopy;
+    private volatile int zeroCopyThreshold = DEFAULT_ZEROCOPY_THRESHOLD;
 
     /**
      * Creates a new instance.
@@ -60,7 +66,8 @@ public final class EpollSocketChannelConfig extends EpollChannelConfig implement
                 ALLOW_HALF_CLOSURE, EpollChannelOption.TCP_CORK, EpollChannelOption.TCP_NOTSENT_LOWAT,
                 EpollChannelOption.TCP_KEEPCNT, EpollChannelOption.TCP_KEEPIDLE, EpollChannelOption.TCP_KEEPINTVL,
                 EpollChannelOption.TCP_MD5SIG, EpollChannelOption.TCP_QUICKACK, EpollChannelOption.IP_TRANSPARENT,
-                EpollChannelOption.TCP_FASTOPEN_CONNECT, EpollChannelOption.SO_BUSY_POLL);
+                EpollChannelOption.TCP_FASTOPEN_CONNECT, EpollChannelOption.SO_BUSY_POLL,
+                EpollChannelOption.SO_ZEROCOPY, EpollChannelOption.ZEROCOPY_THRESHOLD);
     }
 
     @SuppressWarnings("unchecked")
@@ -120,6 +127,12 @@ public final class EpollSocketChannelConfig extends EpollChannelConfig implement
         if (option == EpollChannelOption.SO_BUSY_POLL) {
             return (T) Integer.valueOf(getSoBusyPoll());
         }
+        if (option == EpollChannelOption.SO_ZEROCOPY) {
+            return (T) Boolean.valueOf(isSoZeroCopy());
+        }
+        if (option == EpollChannelOption.ZEROCOPY_THRESHOLD) {
+            return (T) Integer.valueOf(getZeroCopyThreshold());
+        }
         return super.getOption(option);
     }
 
@@ -161,12 +174,22 @@ public final class EpollSocketChannelConfig extends EpollChannelConfig implement
             @SuppressWarnings("unchecked")
             final Map<InetAddress, byte[]> m = (Map<InetAddress, byte[]>) value;
             setTcpMd5Sig(m);
+        } else if (option == EpollChannelOption.TCP_ULP) {
+            setTcpUlp((String) value);
+        } else if (option == EpollChannelOption.TLS_TX) {
+            setTlsTx((byte[]) value);
+        } else if (option == EpollChannelOption.TLS_RX) {
+            setTlsRx((byte[]) value);
         } else if (option == EpollChannelOption.TCP_QUICKACK) {
             setTcpQuickAck((Boolean) value);
         } else if (option == EpollChannelOption.TCP_FASTOPEN_CONNECT) {
             setTcpFastOpenConnect((Boolean) value);
         } else if (option == EpollChannelOption.SO_BUSY_POLL) {
             setSoBusyPoll((Integer) value);
+        } else if (option == EpollChannelOption.SO_ZEROCOPY) {
+            setSoZeroCopy((Boolean) value);
+        } else if (option == EpollChannelOption.ZEROCOPY_THRESHOLD) {
+            setZeroCopyThreshold((Integer) value);
         } else {
             return super.setOption(option, value);
         }
@@ -406,6 +429,61 @@ public final class EpollSocketChannelConfig extends EpollChannelConfig implement
         }
     }
 
+    /**
+     * Returns {@code true} if {@code SO_ZEROCOPY} is enabled and writes of at least
+     * {@link #getZeroCopyThreshold()} bytes are sent with {@code MSG_ZEROCOPY}.
+     */
+    public boolean isSoZeroCopy() {
+        try {
+            return ((EpollSocketChannel) channel).socket.isSoZeroCopy();
+        } catch (IOException e) {
+            throw new ChannelException(e);
+        }
+    }
+
+    /**
+     * Set the {@code SO_ZEROCOPY} option on the socket. If enabled, writes of at least
+     * {@link #getZeroCopyThreshold()} bytes are sent with {@code MSG_ZEROCOPY}: the kernel pins the pages of the
+     * buffers instead of copying them, so the buffers are only released and the write promises only completed once
+     * the kernel reports the transmission as done via the socket error queue. If the kernel reports that it had to
+     * copy the data anyway (for example for loopback) the channel stops using {@code MSG_ZEROCOPY}. See
+     * {@code Documentation/networking/msg_zerocopy.rst} in the kernel sources for more details.
+     */
+    public EpollSocketChannelConfig setSoZeroCopy(boolean zeroCopy) {
+        try {
+            ((EpollSocketChannel) channel).socket.setSoZeroCopy(zeroCopy);
+            this.zeroCopy = zeroCopy;
+            return this;
+        } catch (IOException e) {
+            throw new ChannelException(e);
+        }
+    }
+
+    /**
+     * Returns the minimum number of bytes a gathering write must contain to be sent with {@code MSG_ZEROCOPY}.
+     */
+    public int getZeroCopyThreshold() {
+        return zeroCopyThreshold;
+    }
+
+    /**
+     * Set the minimum number of bytes a gathering write must contain to be sent with {@code MSG_ZEROCOPY} when
+     * {@link #setSoZeroCopy(boolean)} is enabled. Smaller writes are copied as usual.
+     */
+    public EpollSocketChannelConfig setZeroCopyThreshold(int zeroCopyThreshold) {
+        this.zeroCopyThreshold = checkPositiveOrZero(zeroCopyThreshold, "zeroCopyThreshold");
+        return this;
+    }
+
+    /**
+     * Returns the minimum number of bytes a write must contain to be sent with {@code MSG_ZEROCOPY} or {@code -1} if
+     * {@code SO_ZEROCOPY} was not enabled. This uses the last value set via {@link #setSoZeroCopy(boolean)}, so the
+     * socket is not queried on every write.
+     */
+    int zeroCopyWriteThreshold() {
+        return zeroCopy ? zeroCopyThreshold : -1;
+    }
+
     /**
      * Set the {@code TCP_NOTSENT_LOWAT} option on the socket. See {@code man 7 tcp} for more details.
      * @param tcpNotSentLowAt is a uint32_t
@@ -524,6 +602,51 @@ public final class EpollSocketChannelConfig extends EpollChannelConfig implement
         }
     }
 
+    /**
+     * Set the {@code TCP_ULP} option on the socket, which attaches the given upper layer protocol (for example
+     * {@code tls}) to it. See {@code linux/tcp.h} for more details.
+     */
+    public EpollSocketChannelConfig setTcpUlp(String ulp) {
+        try {
+            ((EpollSocketChannel) channel).socket.setTcpUlp(ulp);
+            return this;
+        } catch (IOException e) {
+            throw new ChannelException(e);
+        }
+    }
+
+    /**
+     * Set the {@code TLS_TX} option on the socket, so the kernel protects the data that is written to the
+     * {@link io.netty.channel.Channel} from now on with the given {@code struct tls12_crypto_info_*}. Data that is
+     * still in the {@link io.netty.channel.ChannelOutboundBuffer} is written as it is. This requires
+     * {@link #setTcpUlp(String)} {@code tls}, and must be called from the {@link io.netty.channel.EventLoop}.
+     * See {@code linux/tls.h} for more details.
+     * As with {@link #setTcpMd5Sig(Map)} the keys can only be set on, not read.
+     */
+    public EpollSocketChannelConfig setTlsTx(byte[] cryptoInfo) {
+        try {
+            ((EpollSocketChannel) channel).setKernelTlsTx(cryptoInfo);
+            return this;
+        } catch (IOException e) {
+            throw new ChannelException(e);
+        }
+    }
+
+    /**
+     * Set the {@code TLS_RX} option on the socket, so the kernel verifies and decrypts the data that is received from
+     * now on with the given {@code struct tls12_crypto_info_*}. This requires {@link #setTcpUlp(String)} {@code tls}.
+     * See {@code linux/tls.h} for more details.
+     * As with {@link #setTcpMd5Sig(Map)} the keys can only be set on, not read.
+     */
+    public EpollSocketChannelConfig setTlsRx(byte[] cryptoInfo) {
+        try {
+            ((EpollSocketChannel) channel).socket.setTlsCryptoInfo(false, cryptoInfo);
+            return this;
+        } catch (IOException e) {
+            throw new ChannelException(e);
+        }
+    }
+
     /**
      * Set the {@code TCP_QUICKACK} option on the socket. See <a href="http://linux.die.net/man/7/tcp">TCP_QUICKACK</a>
      * for more details.
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPipeline;
+import io.netty.util.internal.UnstableApi;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * {@link ChannelHandler} which switches an {@link AbstractEpollStreamChannel} into splice mode once it is added to
+ * the {@link ChannelPipeline}. From then on all bytes are moved to the target {@link AbstractEpollStreamChannel} via
+ * {@link AbstractEpollStreamChannel#spliceTo(AbstractEpollStreamChannel, int)} without copying them into
+ * user-space, until EOF is reached or this handler is removed again.
+ * <p>
+ * {@link ByteBuf}s that were already read before (for example bytes that were left in the cumulation buffer of a
+ * decoder) are written to the target as they are, before any spliced bytes. A proxy would typically add this handler
+ * once it has parsed the headers and then remove its decoders:
+ * <pre>
+ *     pipeline.addLast(new EpollSpliceHandler(outboundChannel));
+ *     pipeline.remove(headerDecoder);
+ * </pre>
+ * Both channels must be registered to the same {@link io.netty.channel.EventLoop}.
+ */
+@UnstableApi
+public final class EpollSpliceHandler implements ChannelHandler {
+    private final AbstractEpollStreamChannel target;
+    private ChannelFuture spliceFuture;
+
+    public EpollSpliceHandler(AbstractEpollStreamChannel target) {
+        this.target = requireNonNull(target, "target");
+    }
+
+    /**
+     * Returns the {@link ChannelFuture} of the splice operation or {@code null} if this handler was not added to a
+     * {@link ChannelPipeline} yet. The future is notified once EOF was reached and all bytes were written to the
+     * target, or failed if one of the channels was closed before.
+     */
+    public ChannelFuture spliceFuture() {
+        return spliceFuture;
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) {
+        if (!(ctx.channel() instanceof AbstractEpollStreamChannel)) {
+            throw new IllegalArgumentException(
+                    "channel must be of type " + AbstractEpollStreamChannel.class.getSimpleName());
+        }
+        spliceFuture = ((AbstractEpollStreamChannel) ctx.channel()).spliceTo(target, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) {
+        if (spliceFuture != null) {
+            // Stops splicing the next time the channel is read.
+            spliceFuture.cancel(false);
+        }
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        if (msg instanceof ByteBuf) {
+            target.write(msg, target.voidPromise());
+        } else {
+            ctx.fireChannelRead(msg);
+        }
+    }
+
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) {
+        target.flush();
+        ctx.fireChannelReadComplete();
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.util.concurrent.ThreadPlacement;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads the CPU topology from {@code sysfs}.
+ */
+final class LinuxCpuTopology {
+    private static final String CPU_DIR = "/sys/devices/system/cpu/cpu";
+
+    /**
+     * Returns the NUMA node of the given CPU or {@link ThreadPlacement#UNKNOWN}.
+     */
+    static int numaNode(int cpu) {
+        String[] names = new File(CPU_DIR + cpu).list();
+        if (names != null) {
+            for (String name: names) {
+                // The cpu directory contains a link named node<N> to its NUMA node.
+                if (name.startsWith("node") && name.length() > 4) {
+                    try {
+                        return Integer.parseInt(name.substring(4));
+                    } catch (NumberFormatException ignore) {
+                        // Not a node link, try the next one.
+                    }
+                }
+            }
+        }
+        return ThreadPlacement.UNKNOWN;
+    }
+
+    /**
+     * Returns the NUMA node all the given CPUs belong to or {@link ThreadPlacement#UNKNOWN} if they span more than
+     * one node.
+     */
+    static int numaNode(int[] cpus) {
+        int node = ThreadPlacement.UNKNOWN;
+        for (int i = 0; i < cpus.length; i++) {
+            int cpuNode = numaNode(cpus[i]);
+            if (cpuNode == ThreadPlacement.UNKNOWN || i > 0 && cpuNode != node) {
+                return ThreadPlacement.UNKNOWN;
+            }
+            node = cpuNode;
+        }
+        return node;
+    }
+
+    /**
+     * Returns the given CPUs ordered so that the first hardware thread of each physical core comes before the
+     * remaining hardware threads (SMT siblings) of the cores.
+     */
+    static int[] coreOrdered(int[] cpus) {
+        int[] sorted = cpus.clone();
+        Arrays.sort(sorted);
+        int[] ordered = new int[sorted.length];
+        int idx = 0;
+        for (int cpu: sorted) {
+            if (isFirstSibling(cpu, sorted)) {
+                ordered[idx++] = cpu;
+            }
+        }
+        for (int cpu: sorted) {
+            if (!isFirstSibling(cpu, sorted)) {
+                ordered[idx++] = cpu;
+            }
+        }
+        return ordered;
+    }
+
+    private static boolean isFirstSibling(int cpu, int[] sortedCpus) {
+        for (int sibling: siblings(cpu)) {
+            if (sibling < cpu && Arrays.binarySearch(sortedCpus, sibling) >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int[] siblings(int cpu) {
+        try {
+            return parseCpuList(readLine(CPU_DIR + cpu + "/topology/thread_siblings_list"));
+        } catch (IOException | IllegalArgumentException ignore) {
+            return new int[0];
+        }
+    }
+
+    /**
+     * Parses a CPU list like {@code 0-3,8,10-11} as used by the kernel.
+     */
+    static int[] parseCpuList(String list) {
+        List<Integer> cpus = new ArrayList<>();
+        for (String range: list.trim().split(",")) {
+            if (range.isEmpty()) {
+                continue;
+            }
+            int idx = range.indexOf('-');
+            if (idx == -1) {
+                cpus.add(Integer.parseInt(range));
+            } else {
+                int start = Integer.parseInt(range.substring(0, idx));
+                int end = Integer.parseInt(range.substring(idx + 1));
+                if (start > end) {
+                    throw new IllegalArgumentException("invalid CPU range: " + range);
+                }
+                for (int cpu = start; cpu <= end; cpu++) {
+                    cpus.add(cpu);
+                }
+            }
+        }
+        int[] result = new int[cpus.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = cpus.get(i);
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    private static String readLine(String path) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new FileReader(path))) {
+            String line = reader.readLine();
+            if (line == null) {
+                throw new IOException("empty file: " + path);
+            }
+            return line;
+        }
+    }
+
+    private LinuxCpuTopology() {
+    }
+}
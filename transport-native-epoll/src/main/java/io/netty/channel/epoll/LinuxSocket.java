@@ -21,6 +21,7 @@ import io.netty.channel.unix.NativeInetAddress;
 import io.netty.channel.unix.PeerCredentials;
 import io.netty.channel.unix.Socket;
 import io.netty.channel.socket.InternetProtocolFamily;
+import io.netty.util.CharsetUtil;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.SocketUtils;
 
@@ -31,7 +32,10 @@ import java.net.NetworkInterface;
 import java.net.UnknownHostException;
 import java.util.Enumeration;
 
+import static io.netty.channel.unix.Errors.ERRNO_EAGAIN_NEGATIVE;
+import static io.netty.channel.unix.Errors.ERRNO_EWOULDBLOCK_NEGATIVE;
 import static io.netty.channel.unix.Errors.ioResult;
+import static io.netty.channel.unix.Errors.newIOException;
 
 /**
  * A socket which provides access Linux native methods.
@@ -40,11 +44,26 @@ final class LinuxSocket extends Socket {
     static final InetAddress INET6_ANY = unsafeInetAddrByName("::");
     private static final InetAddress INET_ANY = unsafeInetAddrByName("0.0.0.0");
     private static final long MAX_UINT32_T = 0xFFFFFFFFL;
+    // Must be kept in sync with netty_epoll_linuxsocket.c
+    static final int ACCEPT_BATCH_MAX = 64;
+    static final int ACCEPT_BATCH_ADDRESS_SIZE = 26;
 
     LinuxSocket(int fd) {
         super(fd);
     }
 
+    private LinuxSocket(int fd, boolean ipv6) {
+        super(fd, ipv6);
+    }
+
+    /**
+     * Wraps a file descriptor which is not a socket, for example an {@code eventfd}. Only the plain read, write and
+     * close operations can be used on the returned instance.
+     */
+    static LinuxSocket wrapNonSocket(int fd) {
+        return new LinuxSocket(fd, false);
+    }
+
     private InternetProtocolFamily family() {
         return ipv6 ? InternetProtocolFamily.IPv6 : InternetProtocolFamily.IPv4;
     }
@@ -59,6 +78,16 @@ final class LinuxSocket extends Socket {
         return Native.recvmmsg(intValue(), ipv6, msgs, offset, len);
     }
 
+    int sendmmsgDomain(NativeDatagramPacketArray.NativeDatagramPacket[] msgs,
+                       int offset, int len) throws IOException {
+        return Native.sendmmsgDomain(intValue(), msgs, offset, len);
+    }
+
+    int recvmmsgDomain(NativeDatagramPacketArray.NativeDatagramPacket[] msgs,
+                       int offset, int len) throws IOException {
+        return Native.recvmmsgDomain(intValue(), msgs, offset, len);
+    }
+
     void setTimeToLive(int ttl) throws IOException {
         setTimeToLive(intValue(), ttl);
     }
@@ -156,6 +185,22 @@ final class LinuxSocket extends Socket {
         setTcpDeferAccept(intValue(), deferAccept);
     }
 
+    void setSoZeroCopy(boolean zeroCopy) throws IOException {
+        setSoZeroCopy(intValue(), zeroCopy ? 1 : 0);
+    }
+
+    void setUdpGro(boolean gro) throws IOException {
+        setUdpGro(intValue(), gro ? 1 : 0);
+    }
+
+    void setTcpUlp(String name) throws IOException {
+        setTcpUlp(intValue(), name.getBytes(CharsetUtil.US_ASCII));
+    }
+
+    void setTlsCryptoInfo(boolean tx, byte[] cryptoInfo) throws IOException {
+        setTlsCryptoInfo(intValue(), tx, cryptoInfo);
+    }
+
     void setTcpQuickAck(boolean quickAck) throws IOException {
         setTcpQuickAck(intValue(), quickAck ? 1 : 0);
     }
@@ -215,6 +260,10 @@ final class LinuxSocket extends Socket {
         setIpRecvOrigDestAddr(intValue(), enabled ? 1 : 0);
     }
 
+    void setSoPassCred(boolean enabled) throws IOException {
+        setSoPassCred(intValue(), enabled ? 1 : 0);
+    }
+
     int getTimeToLive() throws IOException {
         return getTimeToLive(intValue());
     }
@@ -228,10 +277,85 @@ final class LinuxSocket extends Socket {
         setTcpMd5Sig(intValue(), ipv6, a.address(), a.scopeId(), key);
     }
 
+    /**
+     * Attach a classic BPF program to the {@code SO_REUSEPORT} group of this socket. The program is encoded as four
+     * ints ({@code code}, {@code jt}, {@code jf}, {@code k}) per instruction and must return the index of the socket
+     * in the group that should receive the connection.
+     */
+    void setReusePortCbpf(int[] program) throws IOException {
+        setReusePortCbpf(intValue(), program);
+    }
+
     boolean isTcpCork() throws IOException  {
         return isTcpCork(intValue()) != 0;
     }
 
+    boolean isSoZeroCopy() throws IOException  {
+        return isSoZeroCopy(intValue()) != 0;
+    }
+
+    /**
+     * Write the given iovecs with {@code MSG_ZEROCOPY}.
+     *
+     * @return the number of written bytes, {@code 0} if the socket is not writable or {@code -1} if the kernel could
+     * not pin more memory ({@code ENOBUFS}) and so the bytes must be written without {@code MSG_ZEROCOPY}.
+     */
+    long writevAddressesZeroCopy(long memoryAddress, int length) throws IOException {
+        long res = writevAddressesZeroCopy(intValue(), memoryAddress, length);
+        if (res >= 0) {
+            return res;
+        }
+        if (res == Native.ERRNO_ENOBUFS_NEGATIVE) {
+            return -1;
+        }
+        return ioResult("sendmsg", (int) res);
+    }
+
+    /**
+     * Read the {@code MSG_ZEROCOPY} notifications from the error queue of the socket. Every notification is stored
+     * as three ints (first id, last id, code) into the given array.
+     *
+     * @return the number of notifications that were stored.
+     */
+    int recvZeroCopyCompletions(int[] completions) throws IOException {
+        int res = recvZeroCopyCompletions(intValue(), completions);
+        if (res >= 0) {
+            return res;
+        }
+        throw newIOException("recvmsg", res);
+    }
+
+    /**
+     * Returns a new {@link LinuxSocket} for a duplicate of the file descriptor, which keeps the socket alive even after
+     * this {@link LinuxSocket} was closed.
+     */
+    LinuxSocket dup() throws IOException {
+        int res = dup(intValue());
+        if (res < 0) {
+            throw newIOException("dup", res);
+        }
+        return new LinuxSocket(res);
+    }
+
+    /**
+     * Accept up to {@code fds.length} pending connections with a single JNI call. The file descriptors are stored in
+     * {@code fds} and the remote addresses, encoded like {@link #accept(byte[])} does, are stored in
+     * {@code addresses} using {@link #ACCEPT_BATCH_ADDRESS_SIZE} bytes per connection.
+     *
+     * @return the number of accepted connections, {@code 0} if there was nothing to accept.
+     */
+    int acceptBatch(int[] fds, byte[] addresses) throws IOException {
+        int res = acceptBatch(intValue(), fds, addresses);
+        if (res >= 0) {
+            return res;
+        }
+        if (res == ERRNO_EAGAIN_NEGATIVE || res == ERRNO_EWOULDBLOCK_NEGATIVE) {
+            // Everything consumed so just return 0 here.
+            return 0;
+        }
+        throw newIOException("accept4", res);
+    }
+
     int getSoBusyPoll() throws IOException  {
         return getSoBusyPoll(intValue());
     }
@@ -276,6 +400,14 @@ final class LinuxSocket extends Socket {
         return isIpRecvOrigDestAddr(intValue()) != 0;
     }
 
+    boolean isSoPassCred() throws IOException {
+        return isSoPassCred(intValue()) != 0;
+    }
+
+    boolean isSoAcceptConn() throws IOException {
+        return isSoAcceptConn(intValue()) != 0;
+    }
+
     PeerCredentials getPeerCredentials() throws IOException {
         return getPeerCredentials(intValue());
     }
@@ -335,6 +467,10 @@ final class LinuxSocket extends Socket {
         return new LinuxSocket(newSocketDomain0());
     }
 
+    public static LinuxSocket newSocketDomainDgram() {
+        return new LinuxSocket(newSocketDomainDgram0());
+    }
+
     private static InetAddress unsafeInetAddrByName(String inetName) {
         try {
             return InetAddress.getByName(inetName);
@@ -358,6 +494,11 @@ final class LinuxSocket extends Socket {
     private static native int isTcpQuickAck(int fd) throws IOException;
     private static native int isTcpCork(int fd) throws IOException;
     private static native int getSoBusyPoll(int fd) throws IOException;
+    private static native int isSoZeroCopy(int fd) throws IOException;
+    private static native long writevAddressesZeroCopy(int fd, long memoryAddress, int length);
+    private static native int recvZeroCopyCompletions(int fd, int[] completions);
+    private static native int dup(int fd);
+    private static native int acceptBatch(int fd, int[] fds, byte[] addresses);
     private static native int getTcpNotSentLowAt(int fd) throws IOException;
     private static native int getTcpKeepIdle(int fd) throws IOException;
     private static native int getTcpKeepIntvl(int fd) throws IOException;
@@ -367,6 +508,8 @@ final class LinuxSocket extends Socket {
     private static native int isIpFreeBind(int fd) throws IOException;
     private static native int isIpTransparent(int fd) throws IOException;
     private static native int isIpRecvOrigDestAddr(int fd) throws IOException;
+    private static native int isSoPassCred(int fd) throws IOException;
+    private static native int isSoAcceptConn(int fd) throws IOException;
     private static native void getTcpInfo(int fd, long[] array) throws IOException;
     private static native PeerCredentials getPeerCredentials(int fd) throws IOException;
     private static native int isTcpFastOpenConnect(int fd) throws IOException;
@@ -375,6 +518,10 @@ final class LinuxSocket extends Socket {
     private static native void setTcpQuickAck(int fd, int quickAck) throws IOException;
     private static native void setTcpCork(int fd, int tcpCork) throws IOException;
     private static native void setSoBusyPoll(int fd, int loopMicros) throws IOException;
+    private static native void setSoZeroCopy(int fd, int zeroCopy) throws IOException;
+    private static native void setUdpGro(int fd, int gro) throws IOException;
+    private static native void setTcpUlp(int fd, byte[] name) throws IOException;
+    private static native void setTlsCryptoInfo(int fd, boolean tx, byte[] cryptoInfo) throws IOException;
     private static native void setTcpNotSentLowAt(int fd, int tcpNotSentLowAt) throws IOException;
     private static native void setTcpFastOpen(int fd, int tcpFastopenBacklog) throws IOException;
     private static native void setTcpFastOpenConnect(int fd, int tcpFastOpenConnect) throws IOException;
@@ -385,8 +532,10 @@ final class LinuxSocket extends Socket {
     private static native void setIpFreeBind(int fd, int freeBind) throws IOException;
     private static native void setIpTransparent(int fd, int transparent) throws IOException;
     private static native void setIpRecvOrigDestAddr(int fd, int transparent) throws IOException;
+    private static native void setSoPassCred(int fd, int passCred) throws IOException;
     private static native void setTcpMd5Sig(
             int fd, boolean ipv6, byte[] address, int scopeId, byte[] key) throws IOException;
+    private static native void setReusePortCbpf(int fd, int[] program) throws IOException;
     private static native void setInterface(
             int fd, boolean ipv6, byte[] interfaceAddress, int scopeId, int networkInterfaceIndex) throws IOException;
     private static native int getInterface(int fd, boolean ipv6);
@@ -29,12 +29,15 @@ import java.util.Locale;
 
 import static io.netty.channel.epoll.NativeStaticallyReferencedJniMethods.epollerr;
 import static io.netty.channel.epoll.NativeStaticallyReferencedJniMethods.epollet;
+import static io.netty.channel.epoll.NativeStaticallyReferencedJniMethods.epollexclusive;
 import static io.netty.channel.epoll.NativeStaticallyReferencedJniMethods.epollin;
 import static io.netty.channel.epoll.NativeStaticallyReferencedJniMethods.epollout;
 import static io.netty.channel.epoll.NativeStaticallyReferencedJniMethods.epollrdhup;
+import static io.netty.channel.epoll.NativeStaticallyReferencedJniMethods.errnoENOBUFS;
 import static io.netty.channel.epoll.NativeStaticallyReferencedJniMethods.isSupportingRecvmmsg;
 import static io.netty.channel.epoll.NativeStaticallyReferencedJniMethods.isSupportingSendmmsg;
 import static io.netty.channel.epoll.NativeStaticallyReferencedJniMethods.isSupportingTcpFastopen;
+import static io.netty.channel.epoll.NativeStaticallyReferencedJniMethods.isSupportingUdpSegment;
 import static io.netty.channel.epoll.NativeStaticallyReferencedJniMethods.kernelVersion;
 import static io.netty.channel.epoll.NativeStaticallyReferencedJniMethods.tcpMd5SigMaxKeyLen;
 import static io.netty.channel.unix.Errors.ioResult;
@@ -66,13 +69,16 @@ public final class Native {
     public static final int EPOLLRDHUP = epollrdhup();
     public static final int EPOLLET = epollet();
     public static final int EPOLLERR = epollerr();
+    static final int EPOLLEXCLUSIVE = epollexclusive();
 
     public static final boolean IS_SUPPORTING_SENDMMSG = isSupportingSendmmsg();
     static final boolean IS_SUPPORTING_RECVMMSG = isSupportingRecvmmsg();
 
     public static final boolean IS_SUPPORTING_TCP_FASTOPEN = isSupportingTcpFastopen();
+    static final boolean IS_SUPPORTING_UDP_SEGMENT = isSupportingUdpSegment();
     public static final int TCP_MD5SIG_MAXKEYLEN = tcpMd5SigMaxKeyLen();
     public static final String KERNEL_VERSION = kernelVersion();
+    static final int ERRNO_ENOBUFS_NEGATIVE = -errnoENOBUFS();
 
     public static FileDescriptor newEventFd() {
         return new FileDescriptor(eventFd());
@@ -88,6 +94,61 @@ public final class Native {
     public static native void eventFdRead(int fd);
     static native void timerFdRead(int fd);
 
+    /**
+     * Creates an anonymous shared memory file of the given {@code size} via {@code memfd_create}. The size of the
+     * file is sealed, so it can not be changed anymore.
+     */
+    static FileDescriptor newMemfd(long size) throws IOException {
+        int res = memfdCreate0(size);
+        if (res < 0) {
+            throw newIOException("memfd_create", res);
+        }
+        return new FileDescriptor(res);
+    }
+
+    /**
+     * Returns {@code true} if the given file is sealed against shrinking and growing.
+     */
+    static boolean isSizeSealed(int fd) throws IOException {
+        int res = isSizeSealed0(fd);
+        if (res < 0) {
+            throw newIOException("fcntl", res);
+        }
+        return res == 1;
+    }
+
+    /**
+     * Maps {@code size} bytes of the given file with {@code MAP_SHARED} and returns the address of the mapping.
+     */
+    static long mmapShared(int fd, long size) throws IOException {
+        long res = mmapShared0(fd, size);
+        if (res < 0) {
+            throw newIOException("mmap", (int) res);
+        }
+        return res;
+    }
+
+    static void munmap(long address, long size) throws IOException {
+        int res = munmap0(address, size);
+        if (res < 0) {
+            throw newIOException("munmap", res);
+        }
+    }
+
+    static long fileSize(int fd) throws IOException {
+        long res = fileSize0(fd);
+        if (res < 0) {
+            throw newIOException("fstat", (int) res);
+        }
+        return res;
+    }
+
+    private static native int memfdCreate0(long size);
+    private static native int isSizeSealed0(int fd);
+    private static native long mmapShared0(int fd, long size);
+    private static native int munmap0(long address, long size);
+    private static native long fileSize0(int fd);
+
     public static FileDescriptor newEpollCreate() {
         return new FileDescriptor(epollCreate());
     }
@@ -164,6 +225,42 @@ public final class Native {
     }
     private static native int epollCtlDel0(int efd, int fd);
 
+    /**
+     * Restricts the calling {@link Thread} to the given CPUs.
+     */
+    static void schedSetAffinity(int... cpus) throws IOException {
+        int res = schedSetAffinity0(cpus);
+        if (res < 0) {
+            throw newIOException("sched_setaffinity", res);
+        }
+    }
+
+    /**
+     * Returns the CPUs the calling {@link Thread} is allowed to run on.
+     */
+    static int[] schedGetAffinity() {
+        return schedGetAffinity0();
+    }
+
+    private static native int schedSetAffinity0(int[] cpus);
+    private static native int[] schedGetAffinity0();
+
+    /**
+     * Move up to {@code len} bytes from {@code fd} to {@code fdOut} without copying them to user-space. One of both
+     * must be a pipe. An offset of {@code -1} means the current position of the file descriptor is used.
+     *
+     * @return the number of bytes moved or {@code 0} if the operation would block.
+     */
+    public static int splice(int fd, long offIn, int fdOut, long offOut, long len) throws IOException {
+        int res = splice0(fd, offIn, fdOut, offOut, len);
+        if (res >= 0) {
+            return res;
+        }
+        return ioResult("splice", res);
+    }
+
+    private static native int splice0(int fd, long offIn, int fdOut, long offOut, long len);
+
     @Deprecated
     public static int sendmmsg(int fd, NativeDatagramPacketArray.NativeDatagramPacket[] msgs,
                                int offset, int len) throws IOException {
@@ -194,6 +291,30 @@ public final class Native {
     private static native int recvmmsg0(
             int fd, boolean ipv6, NativeDatagramPacketArray.NativeDatagramPacket[] msgs, int offset, int len);
 
+    static int sendmmsgDomain(int fd, NativeDatagramPacketArray.NativeDatagramPacket[] msgs,
+                              int offset, int len) throws IOException {
+        int res = sendmmsgDomain0(fd, msgs, offset, len);
+        if (res >= 0) {
+            return res;
+        }
+        return ioResult("sendmmsg", res);
+    }
+
+    private static native int sendmmsgDomain0(
+            int fd, NativeDatagramPacketArray.NativeDatagramPacket[] msgs, int offset, int len);
+
+    static int recvmmsgDomain(int fd, NativeDatagramPacketArray.NativeDatagramPacket[] msgs,
+                              int offset, int len) throws IOException {
+        int res = recvmmsgDomain0(fd, msgs, offset, len);
+        if (res >= 0) {
+            return res;
+        }
+        return ioResult("recvmmsg", res);
+    }
+
+    private static native int recvmmsgDomain0(
+            int fd, NativeDatagramPacketArray.NativeDatagramPacket[] msgs, int offset, int len);
+
     // epoll_event related
     public static native int sizeofEpollEvent();
     public static native int offsetofEpollData();
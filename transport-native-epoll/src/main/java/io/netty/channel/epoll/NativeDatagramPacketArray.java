@@ -19,12 +19,18 @@ import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelOutboundBuffer;
 import io.netty.channel.ChannelOutboundBuffer.MessageProcessor;
 import io.netty.channel.socket.DatagramPacket;
+import io.netty.channel.unix.DomainDatagramPacket;
+import io.netty.channel.unix.DomainSocketAddress;
 import io.netty.channel.unix.IovArray;
 import io.netty.channel.unix.Limits;
+import io.netty.channel.unix.PeerCredentials;
+import io.netty.channel.unix.UnixChannelUtil;
+import io.netty.util.CharsetUtil;
 
 import java.net.Inet6Address;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.net.SocketAddress;
 import java.net.UnknownHostException;
 
 import static io.netty.channel.unix.Limits.UIO_MAX_IOV;
@@ -35,6 +41,10 @@ import static io.netty.channel.unix.NativeInetAddress.copyIpv4MappedIpv6Address;
  */
 final class NativeDatagramPacketArray {
 
+    // Size of the sun_path member of struct sockaddr_un.
+    private static final int DOMAIN_ADDRESS_SIZE = 108;
+    private static final int INET_ADDRESS_SIZE = 16;
+
     // Use UIO_MAX_IOV as this is the maximum number we can write with one sendmmsg(...) call.
     private final NativeDatagramPacket[] packets = new NativeDatagramPacket[UIO_MAX_IOV];
 
@@ -45,26 +55,37 @@ final class NativeDatagramPacketArray {
     // temporary array to copy the ipv4 part of ipv6-mapped-ipv4 addresses and then create a Inet4Address out of it.
     private final byte[] ipv4Bytes = new byte[4];
     private final MyMessageProcessor processor = new MyMessageProcessor();
+    private final boolean domain;
 
     private int count;
 
     NativeDatagramPacketArray() {
+        this(false);
+    }
+
+    /**
+     * Creates a new instance whose packets can hold either {@link InetSocketAddress}es or, if {@code domain} is
+     * {@code true}, {@link DomainSocketAddress}es.
+     */
+    NativeDatagramPacketArray(boolean domain) {
+        this.domain = domain;
+        int addressSize = domain ? DOMAIN_ADDRESS_SIZE : INET_ADDRESS_SIZE;
         for (int i = 0; i < packets.length; i++) {
-            packets[i] = new NativeDatagramPacket();
+            packets[i] = new NativeDatagramPacket(addressSize);
         }
     }
 
     boolean addWritable(ByteBuf buf, int index, int len) {
-        return add0(buf, index, len, null);
+        return add0(buf, index, len, 0, null);
     }
 
-    private boolean add0(ByteBuf buf, int index, int len, InetSocketAddress recipient) {
+    private boolean add0(ByteBuf buf, int index, int len, int segmentSize, SocketAddress recipient) {
         if (count == packets.length) {
             // We already filled up to UIO_MAX_IOV messages. This is the max allowed per
             // recvmmsg(...) / sendmmsg(...) call, we will try again later.
             return false;
         }
-        if (len == 0) {
+        if (len == 0 && !domain) {
             return true;
         }
         int offset = iovArray.count();
@@ -73,7 +94,7 @@ final class NativeDatagramPacketArray {
             return false;
         }
         NativeDatagramPacket p = packets[count];
-        p.init(iovArray.memoryAddress(offset), iovArray.count() - offset, recipient);
+        p.init(iovArray.memoryAddress(offset), iovArray.count() - offset, segmentSize, recipient);
 
         count++;
         return true;
@@ -115,11 +136,21 @@ final class NativeDatagramPacketArray {
             if (msg instanceof DatagramPacket) {
                 DatagramPacket packet = (DatagramPacket) msg;
                 ByteBuf buf = packet.content();
-                return add0(buf, buf.readerIndex(), buf.readableBytes(), packet.recipient());
+                return add0(buf, buf.readerIndex(), buf.readableBytes(), 0, packet.recipient());
+            }
+            if (msg instanceof SegmentedDatagramPacket) {
+                SegmentedDatagramPacket packet = (SegmentedDatagramPacket) msg;
+                ByteBuf buf = packet.content();
+                return add0(buf, buf.readerIndex(), buf.readableBytes(), packet.segmentSize(), packet.recipient());
+            }
+            if (msg instanceof DomainDatagramPacket) {
+                DomainDatagramPacket packet = (DomainDatagramPacket) msg;
+                ByteBuf buf = packet.content();
+                return add0(buf, buf.readerIndex(), buf.readableBytes(), 0, packet.recipient());
             }
             if (msg instanceof ByteBuf && connected) {
                 ByteBuf buf = (ByteBuf) msg;
-                return add0(buf, buf.readerIndex(), buf.readableBytes(), null);
+                return add0(buf, buf.readerIndex(), buf.readableBytes(), 0, null);
             }
             return false;
         }
@@ -135,22 +166,42 @@ final class NativeDatagramPacketArray {
         private long memoryAddress;
         private int count;
 
-        private final byte[] addr = new byte[16];
+        // Either an IPv6 (or IPv4-mapped) address or the path of a domain socket.
+        private final byte[] addr;
 
         private int addrLen;
         private int scopeId;
         private int port;
 
-        private void init(long memoryAddress, int count, InetSocketAddress recipient) {
+        // The size of the segments when sending via UDP_SEGMENT or receiving via UDP_GRO, 0 if not segmented.
+        private int segmentSize;
+
+        // The credentials of the sender when receiving via a domain socket with SO_PASSCRED, pid is 0 if none.
+        private int pid;
+        private int uid;
+        private int gid;
+
+        NativeDatagramPacket(int addressSize) {
+            addr = new byte[addressSize];
+        }
+
+        private void init(long memoryAddress, int count, int segmentSize, SocketAddress recipient) {
             this.memoryAddress = memoryAddress;
             this.count = count;
+            this.segmentSize = segmentSize;
 
             if (recipient == null) {
                 this.scopeId = 0;
                 this.port = 0;
                 this.addrLen = 0;
+            } else if (recipient instanceof DomainSocketAddress) {
+                byte[] path = ((DomainSocketAddress) recipient).path().getBytes(CharsetUtil.UTF_8);
+                addrLen = Math.min(path.length, addr.length);
+                System.arraycopy(path, 0, addr, 0, addrLen);
+                scopeId = 0;
+                port = 0;
             } else {
-                InetAddress address = recipient.getAddress();
+                InetAddress address = ((InetSocketAddress) recipient).getAddress();
                 if (address instanceof Inet6Address) {
                     System.arraycopy(address.getAddress(), 0, addr, 0, addr.length);
                     scopeId = ((Inet6Address) address).getScopeId();
@@ -158,12 +209,19 @@ final class NativeDatagramPacketArray {
                     copyIpv4MappedIpv6Address(address.getAddress(), addr);
                     scopeId = 0;
                 }
-                addrLen = addr.length;
-                port = recipient.getPort();
+                addrLen = INET_ADDRESS_SIZE;
+                port = ((InetSocketAddress) recipient).getPort();
             }
         }
 
         DatagramPacket newDatagramPacket(ByteBuf buffer, InetSocketAddress localAddress) throws UnknownHostException {
+            return new DatagramPacket(buffer.writerIndex(count), localAddress, sender());
+        }
+
+        /**
+         * Returns the address of the sender of the received datagram.
+         */
+        InetSocketAddress sender() throws UnknownHostException {
             final InetAddress address;
             if (addrLen == ipv4Bytes.length) {
                 System.arraycopy(addr, 0, ipv4Bytes, 0, addrLen);
@@ -171,8 +229,42 @@ final class NativeDatagramPacketArray {
             } else {
                 address = Inet6Address.getByAddress(null, addr, scopeId);
             }
-            return new DatagramPacket(buffer.writerIndex(count),
-                    localAddress, new InetSocketAddress(address, port));
+            return new InetSocketAddress(address, port);
+        }
+
+        DomainDatagramPacket newDomainDatagramPacket(ByteBuf buffer, DomainSocketAddress localAddress) {
+            return new DomainDatagramPacket(buffer.writerIndex(buffer.writerIndex() + count), localAddress,
+                    domainSender(), credentials());
+        }
+
+        /**
+         * Returns the address of the sender of the received datagram or {@code null} if it was sent from an unnamed
+         * domain socket.
+         */
+        DomainSocketAddress domainSender() {
+            return addrLen == 0 ? null : new DomainSocketAddress(new String(addr, 0, addrLen, CharsetUtil.UTF_8));
+        }
+
+        /**
+         * Returns the credentials of the sender of the received datagram or {@code null} if none were passed.
+         */
+        PeerCredentials credentials() {
+            return pid == 0 ? null : UnixChannelUtil.newPeerCredentials(pid, uid, gid);
+        }
+
+        /**
+         * Returns the number of bytes that were received.
+         */
+        int receivedAmount() {
+            return count;
+        }
+
+        /**
+         * Returns the size of the segments that were coalesced by {@code UDP_GRO} or {@code 0} if the datagram was
+         * not coalesced.
+         */
+        int segmentSize() {
+            return segmentSize;
         }
     }
 }
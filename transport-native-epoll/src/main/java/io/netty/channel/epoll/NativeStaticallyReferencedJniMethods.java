@@ -33,14 +33,17 @@ final class NativeStaticallyReferencedJniMethods {
     static native int epollin();
     static native int epollout();
     static native int epollrdhup();
+    static native int epollexclusive();
     static native int epollet();
     static native int epollerr();
     static native long ssizeMax();
     static native int tcpMd5SigMaxKeyLen();
+    static native int errnoENOBUFS();
     static native int iovMax();
     static native int uioMaxIov();
     static native boolean isSupportingSendmmsg();
     static native boolean isSupportingRecvmmsg();
     static native boolean isSupportingTcpFastopen();
+    static native boolean isSupportingUdpSegment();
     static native String kernelVersion();
 }
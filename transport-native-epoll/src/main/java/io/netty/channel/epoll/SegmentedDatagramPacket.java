@@ -0,0 +1,139 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufHolder;
+import io.netty.channel.DefaultAddressedEnvelope;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.util.internal.UnstableApi;
+
+import java.net.InetSocketAddress;
+
+import static io.netty.util.internal.ObjectUtil.checkPositive;
+
+/**
+ * Allows to use <a href="https://blog.cloudflare.com/accelerating-udp-packet-transmission-for-quic/">GSO</a>
+ * if the underlying OS supports it. Sending one large buffer that is split by the kernel (or the NIC) into datagrams of
+ * {@link #segmentSize()} bytes is a lot cheaper than sending every datagram on its own, as the buffer only needs to
+ * traverse the network stack once. Only the last datagram may be smaller than {@link #segmentSize()}, and the kernel
+ * limits the number of segments per packet to 64.
+ * <p>
+ * This is the GSO counterpart of {@link DatagramPacket}, which is received one by one again on the remote peer.
+ */
+@UnstableApi
+public final class SegmentedDatagramPacket
+        extends DefaultAddressedEnvelope<ByteBuf, InetSocketAddress> implements ByteBufHolder {
+
+    private static final int MAX_SEGMENT_SIZE = 65535;
+
+    private final int segmentSize;
+
+    /**
+     * Create a new instance.
+     *
+     * @param data          the {@link ByteBuf} which must be continuous.
+     * @param segmentSize   the segment size, at most {@code 65535} bytes.
+     * @param recipient     the recipient.
+     */
+    public SegmentedDatagramPacket(ByteBuf data, int segmentSize, InetSocketAddress recipient) {
+        this(data, segmentSize, recipient, null);
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param data          the {@link ByteBuf} which must be continuous.
+     * @param segmentSize   the segment size, at most {@code 65535} bytes.
+     * @param recipient     the recipient.
+     * @param sender        the sender.
+     */
+    public SegmentedDatagramPacket(ByteBuf data, int segmentSize,
+                                   InetSocketAddress recipient, InetSocketAddress sender) {
+        super(data, recipient, sender);
+        this.segmentSize = checkSegmentSize(segmentSize);
+    }
+
+    private static int checkSegmentSize(int segmentSize) {
+        checkPositive(segmentSize, "segmentSize");
+        // The kernel stores UDP_SEGMENT as an unsigned 16 bit value.
+        if (segmentSize > MAX_SEGMENT_SIZE) {
+            throw new IllegalArgumentException("segmentSize: " + segmentSize + " (expected: <= " +
+                    MAX_SEGMENT_SIZE + ')');
+        }
+        return segmentSize;
+    }
+
+    /**
+     * Returns {@code true} if the underlying system supports GSO.
+     */
+    public static boolean isSupported() {
+        return Epoll.isAvailable() && Native.IS_SUPPORTING_SENDMMSG && Native.IS_SUPPORTING_UDP_SEGMENT;
+    }
+
+    /**
+     * Return the size of each segment (the last segment can be smaller).
+     *
+     * @return size of segments.
+     */
+    public int segmentSize() {
+        return segmentSize;
+    }
+
+    @Override
+    public SegmentedDatagramPacket copy() {
+        return replace(content().copy());
+    }
+
+    @Override
+    public SegmentedDatagramPacket duplicate() {
+        return replace(content().duplicate());
+    }
+
+    @Override
+    public SegmentedDatagramPacket retainedDuplicate() {
+        return replace(content().retainedDuplicate());
+    }
+
+    @Override
+    public SegmentedDatagramPacket replace(ByteBuf content) {
+        return new SegmentedDatagramPacket(content, segmentSize, recipient(), sender());
+    }
+
+    @Override
+    public SegmentedDatagramPacket retain() {
+        super.retain();
+        return this;
+    }
+
+    @Override
+    public SegmentedDatagramPacket retain(int increment) {
+        super.retain(increment);
+        return this;
+    }
+
+    @Override
+    public SegmentedDatagramPacket touch() {
+        super.touch();
+        return this;
+    }
+
+    @Override
+    public SegmentedDatagramPacket touch(Object hint) {
+        super.touch(hint);
+        return this;
+    }
+}
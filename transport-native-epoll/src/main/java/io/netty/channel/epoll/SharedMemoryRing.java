@@ -0,0 +1,167 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.internal.PlatformDependent;
+
+/**
+ * A single-producer / single-consumer byte ring that lives in memory shared between two processes. The producer and
+ * consumer each only ever update their own index, the other side reads it with volatile semantics.
+ * <p>
+ * Each side can park itself by setting a flag in the header. A side that parks must check the other index again
+ * afterwards, while the other side checks the flag after it published its index. Because both use volatile writes
+ * followed by volatile reads at least one of them will notice the other, so a wakeup can never be lost.
+ * <p>
+ * <strong>Not thread-safe</strong>, the producer and consumer methods must each only be used from one thread.
+ */
+final class SharedMemoryRing {
+    /**
+     * The size of the header of a ring, each field is on its own cache line to prevent false sharing.
+     */
+    static final int HEADER_SIZE = 256;
+
+    private static final int TAIL_OFFSET = 0;
+    private static final int HEAD_OFFSET = 64;
+    private static final int CONSUMER_PARKED_OFFSET = 128;
+    private static final int PRODUCER_PARKED_OFFSET = 192;
+
+    private final long tailAddress;
+    private final long headAddress;
+    private final long consumerParkedAddress;
+    private final long producerParkedAddress;
+    private final ByteBuf data;
+    private final int capacity;
+    private final int mask;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param headerAddress the address of the {@link #HEADER_SIZE} bytes of the header.
+     * @param data          a {@link ByteBuf} that wraps the shared memory that holds the data.
+     */
+    SharedMemoryRing(long headerAddress, ByteBuf data) {
+        assert Integer.bitCount(data.capacity()) == 1;
+        tailAddress = headerAddress + TAIL_OFFSET;
+        headAddress = headerAddress + HEAD_OFFSET;
+        consumerParkedAddress = headerAddress + CONSUMER_PARKED_OFFSET;
+        producerParkedAddress = headerAddress + PRODUCER_PARKED_OFFSET;
+        this.data = data;
+        capacity = data.capacity();
+        mask = capacity - 1;
+    }
+
+    // Producer side
+
+    /**
+     * Copies up to {@code length} bytes of {@code src} into the ring and returns the number of bytes that were
+     * written, which is {@code 0} if the ring is full.
+     */
+    int write(ByteBuf src, int srcIndex, int length) {
+        int tail = PlatformDependent.getInt(tailAddress);
+        int head = PlatformDependent.getIntVolatile(headAddress);
+        int n = Math.min(length, capacity - (tail - head));
+        if (n <= 0) {
+            return 0;
+        }
+        int offset = tail & mask;
+        int first = Math.min(n, capacity - offset);
+        data.setBytes(offset, src, srcIndex, first);
+        if (first < n) {
+            data.setBytes(0, src, srcIndex + first, n - first);
+        }
+        PlatformDependent.putIntVolatile(tailAddress, tail + n);
+        return n;
+    }
+
+    /**
+     * Park the producer until the consumer made some space. Returns {@code false} if space became available in the
+     * meantime, in which case the producer is not parked.
+     */
+    boolean parkProducer() {
+        PlatformDependent.putIntVolatile(producerParkedAddress, 1);
+        int tail = PlatformDependent.getInt(tailAddress);
+        if (tail - PlatformDependent.getIntVolatile(headAddress) < capacity) {
+            PlatformDependent.putIntOrdered(producerParkedAddress, 0);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns {@code true} if the consumer is parked and so needs to be woken up once data was written.
+     */
+    boolean isConsumerParked() {
+        return PlatformDependent.getIntVolatile(consumerParkedAddress) != 0;
+    }
+
+    // Consumer side
+
+    /**
+     * Returns the number of bytes that can be read.
+     */
+    int readableBytes() {
+        return PlatformDependent.getIntVolatile(tailAddress) - PlatformDependent.getInt(headAddress);
+    }
+
+    /**
+     * Copies {@code length} bytes out of the ring into {@code dst}. The caller must ensure that at least
+     * {@link #readableBytes()} are readable.
+     */
+    void read(ByteBuf dst, int length) {
+        int head = PlatformDependent.getInt(headAddress);
+        assert length <= readableBytes();
+        int offset = head & mask;
+        int first = Math.min(length, capacity - offset);
+        dst.writeBytes(data, offset, first);
+        if (first < length) {
+            dst.writeBytes(data, 0, length - first);
+        }
+        PlatformDependent.putIntVolatile(headAddress, head + length);
+    }
+
+    /**
+     * Park the consumer until the producer wrote more data. Returns {@code false} if data became readable in the
+     * meantime, in which case the consumer is not parked.
+     */
+    boolean parkConsumer() {
+        PlatformDependent.putIntVolatile(consumerParkedAddress, 1);
+        if (readableBytes() != 0) {
+            PlatformDependent.putIntOrdered(consumerParkedAddress, 0);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Mark the consumer as running, the producer will not try to wake it up until it parks again.
+     */
+    void unparkConsumer() {
+        PlatformDependent.putIntOrdered(consumerParkedAddress, 0);
+    }
+
+    /**
+     * Returns {@code true} if the producer was parked and so needs to be woken up, it is considered to be running
+     * again after this method returns.
+     */
+    boolean unparkProducer() {
+        if (PlatformDependent.getIntVolatile(producerParkedAddress) != 0) {
+            PlatformDependent.putIntOrdered(producerParkedAddress, 0);
+            return true;
+        }
+        return false;
+    }
+}
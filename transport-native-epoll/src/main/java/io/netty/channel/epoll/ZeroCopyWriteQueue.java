@@ -0,0 +1,278 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.ChannelOutboundBuffer.DeferredWrite;
+import io.netty.util.ReferenceCountUtil;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps track of the writes that were done via {@code MSG_ZEROCOPY} and so must not be released before the kernel
+ * signals via the error queue of the socket that it no longer references the memory.
+ * <p>
+ * The kernel assigns a sequential 32-bit id to every {@code sendmsg} call that was done with {@code MSG_ZEROCOPY} and
+ * accepted at least one byte, and reports completions as (possible coalesced) ranges of these ids. Writes are always
+ * completed in the order in which they were done, even if the kernel reports the completions out of order. Writes
+ * that were done without {@code MSG_ZEROCOPY} while zero-copy sends are still outstanding, including messages that
+ * are not {@link ByteBuf}s (see {@link #removeCurrent()}), are attached to the last send, so the promises are still
+ * notified in order.
+ * <p>
+ * If the channel is closed while sends are still in flight, the kernel may still transmit from the pinned memory. The
+ * writes are failed in this case but their messages are only released once the kernel reports the completion of their
+ * sends (see {@link #abandon(Throwable)}).
+ * <p>
+ * <strong>Not thread-safe</strong>, must only be used from the {@link io.netty.channel.EventLoop} or, once it was
+ * abandoned, from the thread that drains it.
+ */
+final class ZeroCopyWriteQueue {
+    // See include/uapi/linux/errqueue.h
+    private static final int SO_EE_CODE_ZEROCOPY_COPIED = 1;
+
+    private final ArrayDeque<Send> sends = new ArrayDeque<>();
+    private final ChannelOutboundBuffer in;
+    // Every completion is reported as (first id, last id, code).
+    private final int[] completions = new int[3 * 16];
+    private int nextId;
+    // true if the current message of the ChannelOutboundBuffer was partly written by a send that is still in flight.
+    private boolean currentPinned;
+
+    ZeroCopyWriteQueue(ChannelOutboundBuffer in) {
+        this.in = in;
+    }
+
+    /**
+     * Returns {@code true} if no send is waiting for its completion.
+     */
+    boolean isEmpty() {
+        return sends.isEmpty();
+    }
+
+    /**
+     * Update the {@link ChannelOutboundBuffer} after {@code writtenBytes} were written. Fully written buffers are
+     * removed from the {@link ChannelOutboundBuffer} without releasing them and notifying their promises, as this will
+     * happen once the send is completed.
+     *
+     * @param writtenBytes the number of bytes that were written.
+     * @param zeroCopy {@code true} if the bytes were written with {@code MSG_ZEROCOPY}, {@code false} if these were
+     *                 copied and so only need to wait for the sends before them.
+     */
+    void sent(long writtenBytes, boolean zeroCopy) {
+        final Send send;
+        if (zeroCopy) {
+            send = new Send(nextId++);
+            sends.add(send);
+        } else {
+            send = sends.peekLast();
+            if (send == null) {
+                in.removeBytes(writtenBytes);
+                return;
+            }
+        }
+        for (;;) {
+            Object msg = in.current();
+            if (!(msg instanceof ByteBuf)) {
+                assert writtenBytes == 0;
+                break;
+            }
+
+            final ByteBuf buf = (ByteBuf) msg;
+            final int readerIndex = buf.readerIndex();
+            final int readableBytes = buf.writerIndex() - readerIndex;
+
+            if (readableBytes <= writtenBytes) {
+                if (writtenBytes != 0) {
+                    in.progress(readableBytes);
+                    writtenBytes -= readableBytes;
+                }
+                send.add(in.removeDeferred(), zeroCopy || currentPinned);
+                currentPinned = false;
+            } else { // readableBytes > writtenBytes
+                if (writtenBytes != 0) {
+                    // The written part is pinned by this send but the buffer itself will be attached to the send
+                    // that writes the rest of it, which can only complete after this one.
+                    buf.readerIndex(readerIndex + (int) writtenBytes);
+                    in.progress(writtenBytes);
+                    currentPinned |= zeroCopy;
+                }
+                break;
+            }
+        }
+    }
+
+    /**
+     * Remove the current message of the {@link ChannelOutboundBuffer}, which was written completely without
+     * {@code MSG_ZEROCOPY} and is not a {@link ByteBuf} with readable bytes, and attach it to the last send.
+     *
+     * @return {@code false} if no send is waiting for its completion, in which case nothing was removed.
+     */
+    boolean removeCurrent() {
+        Send send = sends.peekLast();
+        if (send == null) {
+            return false;
+        }
+        assert !currentPinned;
+        send.add(in.removeDeferred(), false);
+        return true;
+    }
+
+    /**
+     * Process the completions that are queued on the error queue of the given socket.
+     *
+     * @return {@code true} if the kernel reported that it had to copy the data of any of the completed sends anyway.
+     */
+    boolean processCompletions(LinuxSocket socket) throws IOException {
+        boolean copied = false;
+        int[] completions = this.completions;
+        for (;;) {
+            int cnt = socket.recvZeroCopyCompletions(completions);
+            for (int i = 0; i < cnt; i++) {
+                int idx = i * 3;
+                if (completions[idx + 2] == SO_EE_CODE_ZEROCOPY_COPIED) {
+                    copied = true;
+                }
+                complete(completions[idx], completions[idx + 1]);
+            }
+            if (cnt * 3 < completions.length) {
+                // Drained the error queue.
+                return copied;
+            }
+        }
+    }
+
+    /**
+     * Mark the sends with the ids in the range {@code [lo, hi]} as completed and release all writes that are not
+     * waiting for an earlier send anymore.
+     */
+    void complete(int lo, int hi) {
+        // The ids wrap around, so compare the offsets within the range.
+        final int range = hi - lo;
+        for (Send send: sends) {
+            if (Integer.compareUnsigned(send.id - lo, range) <= 0) {
+                send.done = true;
+            }
+        }
+        for (;;) {
+            Send send = sends.peekFirst();
+            if (send == null || !send.done) {
+                break;
+            }
+            sends.removeFirst();
+            send.complete();
+        }
+        if (sends.isEmpty()) {
+            // The kernel does not reference any memory of the current message anymore.
+            currentPinned = false;
+        }
+    }
+
+    /**
+     * Fail all writes that are still waiting for their completion because the channel is closed. Messages whose
+     * memory may still be pinned by a send are not released yet, as the kernel may still transmit from them, but once
+     * their send is completed via {@link #complete(int, int)} or {@link #releaseAll()} is called. This includes the
+     * partly written current message of the {@link ChannelOutboundBuffer}, which is removed from it. Messages that
+     * were copied are released right away.
+     * <p>
+     * Afterwards the queue does not reference the {@link ChannelOutboundBuffer} anymore.
+     */
+    void abandon(Throwable cause) {
+        if (currentPinned) {
+            currentPinned = false;
+            // The last send wrote a part of the current message, so it can be released together with the rest of it.
+            sends.getLast().add(in.removeDeferred(), true);
+        }
+        for (Send send: sends) {
+            send.abandon(cause);
+        }
+    }
+
+    /**
+     * Release the messages of all abandoned sends without waiting for their completion. This must only be used once
+     * the kernel does not transmit from their memory anymore, for example because the socket was aborted.
+     */
+    void releaseAll() {
+        for (;;) {
+            Send send = sends.pollFirst();
+            if (send == null) {
+                break;
+            }
+            send.complete();
+        }
+    }
+
+    private static final class Send {
+        final int id;
+        private List<DeferredWrite> writes;
+        // The writes whose memory is pinned by a zero-copy send always come first, followed by copied ones.
+        private int pinned;
+        // true if the promises were already failed and only the pinned messages are left to release.
+        private boolean abandoned;
+        boolean done;
+
+        Send(int id) {
+            this.id = id;
+        }
+
+        void add(DeferredWrite write, boolean pinned) {
+            if (write == null) {
+                // cancelled before it was written, nothing to release.
+                return;
+            }
+            if (writes == null) {
+                writes = new ArrayList<>(2);
+            }
+            assert !pinned || this.pinned == writes.size();
+            writes.add(write);
+            if (pinned) {
+                this.pinned++;
+            }
+        }
+
+        void complete() {
+            if (writes != null) {
+                for (DeferredWrite write: writes) {
+                    if (abandoned) {
+                        ReferenceCountUtil.safeRelease(write.msg());
+                    } else {
+                        write.complete();
+                    }
+                }
+            }
+        }
+
+        void abandon(Throwable cause) {
+            abandoned = true;
+            if (writes == null) {
+                return;
+            }
+            for (int i = 0; i < writes.size(); i++) {
+                DeferredWrite write = writes.get(i);
+                if (i < pinned) {
+                    write.failWithoutRelease(cause);
+                } else {
+                    write.fail(cause);
+                }
+            }
+            // Only keep the pinned writes, these are released once the send is completed.
+            writes.subList(pinned, writes.size()).clear();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.MultithreadEventLoopGroup;
+import io.netty.util.concurrent.SingleThreadEventExecutor;
+import io.netty.util.concurrent.ThreadPlacement;
+import io.netty.util.concurrent.ThreadProperties;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AffinityThreadFactoryTest {
+
+    @Test
+    public void testParseCpuList() {
+        assertArrayEquals(new int[] { 0, 1, 2, 3, 8, 10, 11 }, LinuxCpuTopology.parseCpuList("0-3,8,10-11\n"));
+        assertArrayEquals(new int[] { 5 }, LinuxCpuTopology.parseCpuList("5"));
+    }
+
+    @Test
+    public void testCoreOrderedContainsAllCpus() {
+        int[] cpus = Native.schedGetAffinity();
+        assertTrue(cpus.length > 0);
+        int[] ordered = LinuxCpuTopology.coreOrdered(cpus);
+        int[] sorted = ordered.clone();
+        Arrays.sort(sorted);
+        assertArrayEquals(cpus, sorted);
+    }
+
+    @Test(timeout = 10000)
+    public void testEventLoopIsPinned() throws Exception {
+        int[] allowed = Native.schedGetAffinity();
+        int cpu = allowed[allowed.length - 1];
+        EventLoopGroup group = new MultithreadEventLoopGroup(
+                1, new AffinityThreadFactory("affinity", cpu), EpollHandler.newFactory());
+        try {
+            EventLoop loop = group.next();
+            int[] affinity = loop.submit(Native::schedGetAffinity).sync().getNow();
+            assertArrayEquals(new int[] { cpu }, affinity);
+
+            ThreadProperties properties = ((SingleThreadEventExecutor) loop).threadProperties();
+            assertEquals(cpu, properties.cpu());
+            assertEquals(LinuxCpuTopology.numaNode(cpu), properties.numaNode());
+        } finally {
+            group.shutdownGracefully().sync();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testDefaultPinsOneThreadPerCore() throws Exception {
+        AffinityThreadFactory factory = new AffinityThreadFactory(AffinityThreadFactoryTest.class);
+        int[] ordered = LinuxCpuTopology.coreOrdered(Native.schedGetAffinity());
+        Thread thread = factory.newThread(() -> { });
+        assertEquals(ordered[0], ThreadPlacement.cpu(thread));
+        thread.start();
+        thread.join();
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.MultithreadEventLoopGroup;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.util.NetUtil;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EpollAdaptiveWaterMarkHandlerTest {
+
+    private static EventLoopGroup group;
+
+    @BeforeClass
+    public static void setUp() {
+        Epoll.ensureAvailability();
+        group = new MultithreadEventLoopGroup(1, EpollHandler.newFactory());
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        group.shutdownGracefully().syncUninterruptibly();
+    }
+
+    @Test
+    public void testHighWaterMark() {
+        EpollAdaptiveWaterMarkHandler handler = new EpollAdaptiveWaterMarkHandler(
+                16 * 1024, 1024 * 1024, 2, 10, TimeUnit.MILLISECONDS, false);
+        EpollTcpInfo info = new EpollTcpInfo();
+        assertEquals(0, EpollAdaptiveWaterMarkHandler.bandwidthDelayProduct(info));
+
+        // snd_mss = 1448, snd_cwnd = 4, bounded by the minimum.
+        info.info[10] = 1448;
+        info.info[26] = 4;
+        assertEquals(5792, EpollAdaptiveWaterMarkHandler.bandwidthDelayProduct(info));
+        assertEquals(16 * 1024, handler.highWaterMark(5792));
+
+        // More segments in flight than the congestion window.
+        info.info[12] = 40;
+        assertEquals(57920, EpollAdaptiveWaterMarkHandler.bandwidthDelayProduct(info));
+        assertEquals(115840, handler.highWaterMark(57920));
+
+        // Bounded by the maximum.
+        info.info[26] = 10000;
+        assertEquals(1024 * 1024,
+                handler.highWaterMark(EpollAdaptiveWaterMarkHandler.bandwidthDelayProduct(info)));
+    }
+
+    @Test(timeout = 10000)
+    public void testAdjustWaterMarks() throws Exception {
+        Channel sc = new ServerBootstrap().group(group).channel(EpollServerSocketChannel.class)
+                .childHandler(new ChannelHandler() { })
+                .bind(new InetSocketAddress(NetUtil.LOCALHOST, 0)).syncUninterruptibly().channel();
+        WriteBufferWaterMark initial = new WriteBufferWaterMark(1024, 2048);
+        EpollSocketChannel cc = (EpollSocketChannel) new Bootstrap().group(group).channel(EpollSocketChannel.class)
+                .option(ChannelOption.WRITE_BUFFER_WATER_MARK, initial)
+                .handler(new EpollAdaptiveWaterMarkHandler(
+                        4096, 8 * 1024 * 1024, 2, 10, TimeUnit.MILLISECONDS, true))
+                .connect(sc.localAddress()).syncUninterruptibly().channel();
+        try {
+            EpollTcpInfo info = cc.tcpInfo();
+            long bdp = EpollAdaptiveWaterMarkHandler.bandwidthDelayProduct(info);
+            assertTrue(bdp > 0);
+
+            // The first sample is taken as soon as the channel becomes active.
+            WriteBufferWaterMark waterMark;
+            while ((waterMark = cc.config().getWriteBufferWaterMark()) == initial) {
+                Thread.sleep(10);
+            }
+            assertTrue(waterMark.high() >= 4096);
+            assertEquals(waterMark.high() >>> 1, waterMark.low());
+            assertTrue(cc.config().getTcpNotSentLowAt() > 0);
+        } finally {
+            cc.close().syncUninterruptibly();
+            sc.close().syncUninterruptibly();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.FixedRecvByteBufAllocator;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.testsuite.transport.TestsuitePermutation;
+import io.netty.testsuite.transport.socket.AbstractDatagramTest;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class EpollDatagramSegmentationTest extends AbstractDatagramTest {
+    private static final int SEGMENT_SIZE = 512;
+    private static final int NUM_SEGMENTS = 8;
+    // The last segment is smaller than the others.
+    private static final int LAST_SEGMENT_SIZE = 100;
+
+    @BeforeClass
+    public static void assumeUdpSegmentSupported() {
+        Assume.assumeTrue(SegmentedDatagramPacket.isSupported());
+    }
+
+    @Override
+    protected List<TestsuitePermutation.BootstrapComboFactory<Bootstrap, Bootstrap>> newFactories() {
+        return EpollSocketTestPermutation.INSTANCE.epollOnlyDatagram(internetProtocolFamily());
+    }
+
+    @Test
+    public void testSegmentedDatagramPacket() throws Throwable {
+        run();
+    }
+
+    public void testSegmentedDatagramPacket(Bootstrap sb, Bootstrap cb) throws Throwable {
+        testSegmentedDatagramPacket(sb, cb, false);
+    }
+
+    @Test
+    public void testSegmentedDatagramPacketGro() throws Throwable {
+        run();
+    }
+
+    public void testSegmentedDatagramPacketGro(Bootstrap sb, Bootstrap cb) throws Throwable {
+        testSegmentedDatagramPacket(sb, cb, true);
+    }
+
+    private void testSegmentedDatagramPacket(Bootstrap sb, Bootstrap cb, boolean gro) throws Throwable {
+        if (gro) {
+            // A coalesced buffer can be up to 64KB.
+            sb.option(ChannelOption.RCVBUF_ALLOCATOR, new FixedRecvByteBufAllocator(64 * 1024));
+            sb.option(EpollChannelOption.UDP_GRO, true);
+        }
+        Channel sc = null;
+        Channel cc = null;
+        try {
+            cb.handler(new SimpleChannelInboundHandler<Object>() {
+                @Override
+                public void messageReceived(ChannelHandlerContext ctx, Object msgs) {
+                    // Nothing will be sent.
+                }
+            });
+            cc = cb.bind(newSocketAddress()).sync().channel();
+            final SocketAddress ccAddress = cc.localAddress();
+
+            final int totalSize = SEGMENT_SIZE * (NUM_SEGMENTS - 1) + LAST_SEGMENT_SIZE;
+            final byte[] bytes = new byte[totalSize];
+            ThreadLocalRandom.current().nextBytes(bytes);
+
+            final AtomicReference<Throwable> errorRef = new AtomicReference<>();
+            final CountDownLatch latch = new CountDownLatch(NUM_SEGMENTS);
+            sb.handler(new SimpleChannelInboundHandler<DatagramPacket>() {
+                private int offset;
+
+                @Override
+                protected void messageReceived(ChannelHandlerContext ctx, DatagramPacket msg) {
+                    assertEquals(ccAddress, msg.sender());
+
+                    // Every segment must be received as its own datagram, no matter if coalesced or not.
+                    int expectedSize = Math.min(SEGMENT_SIZE, totalSize - offset);
+                    ByteBuf content = msg.content();
+                    assertEquals(expectedSize, content.readableBytes());
+                    byte[] receivedBytes = new byte[expectedSize];
+                    content.readBytes(receivedBytes);
+                    byte[] expectedBytes = new byte[expectedSize];
+                    System.arraycopy(bytes, offset, expectedBytes, 0, expectedSize);
+                    assertArrayEquals(expectedBytes, receivedBytes);
+
+                    offset += expectedSize;
+                    latch.countDown();
+                }
+
+                @Override
+                public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+                    errorRef.compareAndSet(null, cause);
+                }
+            });
+            sc = sb.bind(newSocketAddress()).sync().channel();
+
+            InetSocketAddress addr = (InetSocketAddress) sc.localAddress();
+            cc.writeAndFlush(new SegmentedDatagramPacket(
+                    cc.alloc().directBuffer().writeBytes(bytes), SEGMENT_SIZE, addr)).sync();
+
+            if (!latch.await(10, TimeUnit.SECONDS)) {
+                Throwable error = errorRef.get();
+                if (error != null) {
+                    throw error;
+                }
+                fail("Timeout while waiting for packets");
+            }
+            Throwable error = errorRef.get();
+            if (error != null) {
+                throw error;
+            }
+        } finally {
+            if (cc != null) {
+                cc.close().syncUninterruptibly();
+            }
+            if (sc != null) {
+                sc.close().syncUninterruptibly();
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSegmentSizeTooBig() {
+        // UDP_SEGMENT is an unsigned 16 bit value.
+        new SegmentedDatagramPacket(Unpooled.EMPTY_BUFFER, 65536, new InetSocketAddress(0));
+    }
+}
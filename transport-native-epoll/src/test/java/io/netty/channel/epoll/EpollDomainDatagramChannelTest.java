@@ -0,0 +1,206 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.FixedRecvByteBufAllocator;
+import io.netty.channel.MultithreadEventLoopGroup;
+import io.netty.channel.unix.DomainDatagramPacket;
+import io.netty.channel.unix.PeerCredentials;
+import io.netty.util.CharsetUtil;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class EpollDomainDatagramChannelTest {
+    private static final int DATAGRAM_SIZE = 64;
+    private static final int NUM_DATAGRAMS = 32;
+
+    private static EventLoopGroup group;
+
+    @BeforeClass
+    public static void before() {
+        group = new MultithreadEventLoopGroup(1, EpollHandler.newFactory());
+    }
+
+    @AfterClass
+    public static void after() {
+        group.shutdownGracefully();
+    }
+
+    @Test(timeout = 30000)
+    public void testSendReceiveBatched() throws Exception {
+        testSendReceive(DATAGRAM_SIZE);
+    }
+
+    @Test(timeout = 30000)
+    public void testSendReceiveSingle() throws Exception {
+        testSendReceive(0);
+    }
+
+    private static void testSendReceive(int maxDatagramPayloadSize) throws Exception {
+        BlockingQueue<DomainDatagramPacket> received = new LinkedBlockingQueue<>();
+        EpollDomainDatagramChannel server = bind(received, maxDatagramPayloadSize, true);
+        EpollDomainDatagramChannel client = bind(new LinkedBlockingQueue<>(), 0, false);
+        try {
+            assertTrue(server.config().isPassCredentials());
+            for (int i = 0; i < NUM_DATAGRAMS; i++) {
+                client.write(new DomainDatagramPacket(
+                        Unpooled.copiedBuffer("datagram-" + i, CharsetUtil.US_ASCII), server.localAddress()));
+            }
+            // All datagrams are flushed at once and so written via a single sendmmsg(...) call.
+            client.flush();
+
+            int pid = currentPid();
+            for (int i = 0; i < NUM_DATAGRAMS; i++) {
+                DomainDatagramPacket packet = received.poll(10, TimeUnit.SECONDS);
+                assertNotNull(packet);
+                try {
+                    assertEquals("datagram-" + i, packet.content().toString(CharsetUtil.US_ASCII));
+                    assertEquals(client.localAddress(), packet.sender());
+                    assertEquals(server.localAddress(), packet.recipient());
+                    PeerCredentials credentials = packet.credentials();
+                    assertNotNull(credentials);
+                    assertEquals(pid, credentials.pid());
+                } finally {
+                    packet.release();
+                }
+            }
+        } finally {
+            client.close().syncUninterruptibly();
+            server.close().syncUninterruptibly();
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testConnectedUnboundSender() throws Exception {
+        BlockingQueue<DomainDatagramPacket> received = new LinkedBlockingQueue<>();
+        EpollDomainDatagramChannel server = bind(received, DATAGRAM_SIZE, false);
+        EpollDomainDatagramChannel client = (EpollDomainDatagramChannel) new Bootstrap().group(group)
+                .channel(EpollDomainDatagramChannel.class)
+                .handler(new ChannelHandler() { })
+                .connect(server.localAddress()).syncUninterruptibly().channel();
+        try {
+            assertTrue(client.isConnected());
+            assertEquals(server.localAddress(), client.remoteAddress());
+
+            client.writeAndFlush(Unpooled.copiedBuffer("connected", CharsetUtil.US_ASCII)).syncUninterruptibly();
+            // An empty datagram is still a datagram.
+            client.writeAndFlush(Unpooled.EMPTY_BUFFER).syncUninterruptibly();
+
+            DomainDatagramPacket packet = received.poll(10, TimeUnit.SECONDS);
+            assertNotNull(packet);
+            try {
+                assertEquals("connected", packet.content().toString(CharsetUtil.US_ASCII));
+                // The client is not bound to a path and so the sender is unnamed.
+                assertNull(packet.sender());
+                // SO_PASSCRED is disabled.
+                assertNull(packet.credentials());
+            } finally {
+                packet.release();
+            }
+
+            packet = received.poll(10, TimeUnit.SECONDS);
+            assertNotNull(packet);
+            try {
+                assertEquals(0, packet.content().readableBytes());
+            } finally {
+                packet.release();
+            }
+
+            client.disconnect().syncUninterruptibly();
+            assertFalse(client.isConnected());
+            assertNull(client.remoteAddress());
+        } finally {
+            client.close().syncUninterruptibly();
+            server.close().syncUninterruptibly();
+        }
+    }
+
+    @Test(timeout = 30000)
+    @SuppressWarnings("deprecation")
+    public void testActiveOnRegistration() throws Exception {
+        BlockingQueue<DomainDatagramPacket> received = new LinkedBlockingQueue<>();
+        EpollDomainDatagramChannel server = bind(received, DATAGRAM_SIZE, false);
+        final CountDownLatch activeLatch = new CountDownLatch(1);
+        EpollDomainDatagramChannel client = (EpollDomainDatagramChannel) new Bootstrap().group(group)
+                .channel(EpollDomainDatagramChannel.class)
+                .option(ChannelOption.DATAGRAM_CHANNEL_ACTIVE_ON_REGISTRATION, true)
+                .handler(new ChannelHandler() {
+                    @Override
+                    public void channelActive(ChannelHandlerContext ctx) {
+                        activeLatch.countDown();
+                    }
+                })
+                .register().syncUninterruptibly().channel();
+        try {
+            // Neither bound nor connected, but active as requested.
+            assertTrue(client.isActive());
+            assertTrue(activeLatch.await(10, TimeUnit.SECONDS));
+
+            client.writeAndFlush(new DomainDatagramPacket(
+                    Unpooled.copiedBuffer("unbound", CharsetUtil.US_ASCII), server.localAddress()))
+                    .syncUninterruptibly();
+            DomainDatagramPacket packet = received.poll(10, TimeUnit.SECONDS);
+            assertNotNull(packet);
+            try {
+                assertEquals("unbound", packet.content().toString(CharsetUtil.US_ASCII));
+            } finally {
+                packet.release();
+            }
+        } finally {
+            client.close().syncUninterruptibly();
+            server.close().syncUninterruptibly();
+        }
+    }
+
+    private static EpollDomainDatagramChannel bind(final BlockingQueue<DomainDatagramPacket> received,
+                                                   int maxDatagramPayloadSize, boolean passCredentials) {
+        return (EpollDomainDatagramChannel) new Bootstrap().group(group)
+                .channel(EpollDomainDatagramChannel.class)
+                .option(ChannelOption.RCVBUF_ALLOCATOR, new FixedRecvByteBufAllocator(DATAGRAM_SIZE * 8))
+                .option(EpollChannelOption.MAX_DATAGRAM_PAYLOAD_SIZE, maxDatagramPayloadSize)
+                .option(EpollChannelOption.SO_PASSCRED, passCredentials)
+                .handler(new ChannelHandler() {
+                    @Override
+                    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                        received.add((DomainDatagramPacket) msg);
+                    }
+                })
+                .bind(EpollSocketTestPermutation.newSocketAddress()).syncUninterruptibly().channel();
+    }
+
+    private static int currentPid() throws Exception {
+        return Integer.parseInt(new File("/proc/self").getCanonicalFile().getName());
+    }
+}
@@ -98,4 +98,60 @@ public class EpollDomainSocketFdTest extends AbstractSocketTest {
             throw (Throwable) received;
         }
     }
+
+    @Test(timeout = 30000)
+    public void testSendRecvMultipleFds() throws Throwable {
+        run();
+    }
+
+    public void testSendRecvMultipleFds(ServerBootstrap sb, Bootstrap cb) throws Throwable {
+        final int numFds = 3;
+        final BlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+        sb.childHandler(new ChannelHandler() {
+            @Override
+            public void channelActive(ChannelHandlerContext ctx) throws Exception {
+                // Write all file descriptors back-to-back, so they are all received with a single epoll event.
+                for (int i = 0; i < numFds; i++) {
+                    final EpollDomainSocketChannel ch = new EpollDomainSocketChannel(ctx.channel().eventLoop());
+                    ctx.write(ch.fd()).addListener((ChannelFutureListener) future -> {
+                        if (!future.isSuccess()) {
+                            queue.offer(future.cause());
+                        }
+                    });
+                }
+                ctx.flush();
+            }
+        });
+        cb.handler(new ChannelHandler() {
+            @Override
+            public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+                queue.offer(msg);
+            }
+
+            @Override
+            public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+                queue.add(cause);
+                ctx.close();
+            }
+        });
+        cb.option(EpollChannelOption.DOMAIN_SOCKET_READ_MODE,
+                DomainSocketReadMode.FILE_DESCRIPTORS);
+        Channel sc = sb.bind().sync().channel();
+        Channel cc = cb.connect(sc.localAddress()).sync().channel();
+
+        try {
+            for (int i = 0; i < numFds; i++) {
+                Object received = queue.take();
+                if (!(received instanceof FileDescriptor)) {
+                    throw (Throwable) received;
+                }
+                FileDescriptor fd = (FileDescriptor) received;
+                Assert.assertTrue(fd.isOpen());
+                fd.close();
+            }
+        } finally {
+            cc.close().sync();
+            sc.close().sync();
+        }
+    }
 }
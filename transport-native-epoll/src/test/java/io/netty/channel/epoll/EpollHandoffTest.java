@@ -0,0 +1,184 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.MultithreadEventLoopGroup;
+import io.netty.channel.unix.DomainSocketReadMode;
+import io.netty.channel.unix.FileDescriptor;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Collections;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class EpollHandoffTest {
+    private static EventLoopGroup group;
+
+    private final BlockingQueue<Channel> accepted = new LinkedBlockingQueue<>();
+    private final BlockingQueue<FileDescriptor> received = new LinkedBlockingQueue<>();
+    private Channel domainServer;
+    private EpollDomainSocketChannel domainClient;
+
+    @BeforeClass
+    public static void beforeClass() {
+        group = new MultithreadEventLoopGroup(2, EpollHandler.newFactory());
+    }
+
+    @AfterClass
+    public static void afterClass() {
+        group.shutdownGracefully();
+    }
+
+    @Before
+    public void connectProcesses() throws Exception {
+        // The domain socket connects the "old" and the "new" process.
+        domainServer = new ServerBootstrap().group(group)
+                .channel(EpollServerDomainSocketChannel.class)
+                .childOption(EpollChannelOption.DOMAIN_SOCKET_READ_MODE, DomainSocketReadMode.FILE_DESCRIPTORS)
+                .childHandler(new ChannelHandler() {
+                    @Override
+                    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                        received.add((FileDescriptor) msg);
+                    }
+                })
+                .bind(EpollSocketTestPermutation.newSocketAddress()).sync().channel();
+        domainClient = (EpollDomainSocketChannel) new Bootstrap().group(group)
+                .channel(EpollDomainSocketChannel.class)
+                .handler(new ChannelHandler() { })
+                .connect(domainServer.localAddress()).sync().channel();
+    }
+
+    @After
+    public void closeProcesses() throws Exception {
+        domainClient.close().sync();
+        domainServer.close().sync();
+    }
+
+    @Test(timeout = 30000)
+    public void testHandoff() throws Exception {
+        EpollServerSocketChannel oldListener = (EpollServerSocketChannel) new ServerBootstrap().group(group)
+                .channel(EpollServerSocketChannel.class)
+                // Leave everything in the receive queue of the socket, which moves to the new process.
+                .childOption(ChannelOption.AUTO_READ, false)
+                .childHandler(new ChannelHandler() {
+                    @Override
+                    public void channelActive(ChannelHandlerContext ctx) {
+                        accepted.add(ctx.channel());
+                    }
+                })
+                .bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0)).sync().channel();
+        InetSocketAddress address = (InetSocketAddress) oldListener.localAddress();
+
+        try (Socket existing = new Socket(address.getAddress(), address.getPort())) {
+            EpollSocketChannel oldConnection = (EpollSocketChannel) accepted.take();
+            // Written before the handoff, so it must be read by the new process.
+            existing.getOutputStream().write(new byte[] { 1, 2 });
+            existing.getOutputStream().flush();
+
+            EpollHandoff.handoff(domainClient, oldListener, Collections.singletonList(oldConnection)).sync();
+            assertFalse(oldListener.isOpen());
+            assertFalse(oldConnection.isOpen());
+
+            Channel newListener = null;
+            Channel newConnection = null;
+            for (int i = 0; i < 2; i++) {
+                FileDescriptor fd = received.poll(10, TimeUnit.SECONDS);
+                assertNotNull(fd);
+                if (EpollHandoff.isListener(fd)) {
+                    newListener = new ServerBootstrap().group(group)
+                            .channelFactory((loop, childGroup) -> {
+                                try {
+                                    return EpollHandoff.adoptListener(loop, childGroup, fd);
+                                } catch (IOException e) {
+                                    throw new IllegalStateException(e);
+                                }
+                            })
+                            .childHandler(new EchoHandler())
+                            .register().sync().channel();
+                } else {
+                    newConnection = EpollHandoff.adoptConnection(group.next(), fd);
+                    newConnection.pipeline().addLast(new EchoHandler());
+                    newConnection.register().sync();
+                }
+            }
+            assertNotNull(newListener);
+            assertNotNull(newConnection);
+            assertTrue(newListener.isActive());
+            assertTrue(newConnection.isActive());
+
+            existing.getOutputStream().write(3);
+            existing.getOutputStream().flush();
+            assertEcho(existing, new byte[] { 1, 2, 3 });
+
+            try (Socket fresh = new Socket(address.getAddress(), address.getPort())) {
+                fresh.getOutputStream().write(new byte[] { 4, 5 });
+                fresh.getOutputStream().flush();
+                assertEcho(fresh, new byte[] { 4, 5 });
+            }
+            newConnection.close().sync();
+            newListener.close().sync();
+        }
+    }
+
+    @Test(timeout = 30000, expected = IllegalArgumentException.class)
+    public void testAdoptListenerAsConnection() throws Exception {
+        Channel listener = new ServerBootstrap().group(group)
+                .channel(EpollServerSocketChannel.class)
+                .childHandler(new ChannelHandler() { })
+                .bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0)).sync().channel();
+        try {
+            EpollHandoff.adoptConnection(group.next(), ((EpollServerSocketChannel) listener).fd());
+        } finally {
+            listener.close().sync();
+        }
+    }
+
+    private static void assertEcho(Socket socket, byte[] expected) throws IOException {
+        byte[] echoed = new byte[expected.length];
+        new DataInputStream(socket.getInputStream()).readFully(echoed);
+        assertArrayEquals(expected, echoed);
+    }
+
+    @ChannelHandler.Sharable
+    private static final class EchoHandler implements ChannelHandler {
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            ctx.writeAndFlush(msg);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.unix.NativeHugePageAllocator;
+import io.netty.util.internal.PlatformDependent;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EpollHugePageAllocatorTest {
+
+    @BeforeClass
+    public static void loadNativeLibrary() {
+        Epoll.ensureAvailability();
+    }
+
+    @Test
+    public void testAllocateAligned() {
+        NativeHugePageAllocator allocator = new NativeHugePageAllocator(true);
+        int hugePageSize = allocator.hugePageSize();
+        assertTrue(hugePageSize > 0);
+        int size = 4 * hugePageSize;
+        long address = allocator.allocate(size);
+        assertNotEquals(0, address);
+        assertEquals(0, address & (hugePageSize - 1));
+        try {
+            PlatformDependent.putLong(address, 42);
+            PlatformDependent.putLong(address + size - 8, 43);
+            assertEquals(42, PlatformDependent.getLong(address));
+            assertEquals(43, PlatformDependent.getLong(address + size - 8));
+        } finally {
+            allocator.free(address, size);
+        }
+    }
+
+    @Test
+    public void testAllocateNotMultipleOfHugePageSize() {
+        NativeHugePageAllocator allocator = new NativeHugePageAllocator(true);
+        int hugePageSize = allocator.hugePageSize();
+        // Can not be served by hugetlbfs, as such a mapping could not be unmapped again.
+        int size = hugePageSize + 4096;
+        long address = allocator.allocate(size);
+        assertNotEquals(0, address);
+        assertEquals(0, address & (hugePageSize - 1));
+        try {
+            PlatformDependent.putLong(address + size - 8, 42);
+            assertEquals(42, PlatformDependent.getLong(address + size - 8));
+        } finally {
+            allocator.free(address, size);
+        }
+    }
+
+    @Test
+    public void testPooledByteBufAllocator() {
+        Assume.assumeTrue(PlatformDependent.hasDirectBufferNoCleanerConstructor());
+        NativeHugePageAllocator hugePageAllocator = new NativeHugePageAllocator(false);
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 0, 1, 8192, 11, 0, 0, false, 0, 0,
+                hugePageAllocator);
+        ByteBuf buffer = allocator.directBuffer(64 * 1024);
+        try {
+            // The first normal allocation starts at the beginning of the chunk.
+            assertEquals(0, buffer.memoryAddress() & (hugePageAllocator.hugePageSize() - 1));
+            buffer.writeLong(42);
+            assertEquals(42, buffer.readLong());
+        } finally {
+            assertTrue(buffer.release());
+        }
+        allocator.trimIdleChunks();
+        assertEquals(allocator.metric().chunkSize(), allocator.trimIdleChunks());
+    }
+
+    @Test
+    public void testTransparentHugePagesMode() {
+        String mode = NativeHugePageAllocator.transparentHugePagesMode();
+        Assume.assumeTrue(mode != null);
+        assertTrue(mode, "always".equals(mode) || "madvise".equals(mode) || "never".equals(mode));
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.MultithreadEventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.handler.ssl.KernelTlsOffload;
+import io.netty.handler.ssl.OpenSsl;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.ssl.SslProvider;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import io.netty.handler.ssl.util.SelfSignedCertificate;
+import io.netty.util.CharsetUtil;
+import io.netty.util.NetUtil;
+import io.netty.util.ReferenceCountUtil;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+public class EpollKernelTlsTest {
+
+    private static EventLoopGroup group;
+
+    @BeforeClass
+    public static void setUp() {
+        Epoll.ensureAvailability();
+        group = new MultithreadEventLoopGroup(1, EpollHandler.newFactory());
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        group.shutdownGracefully().syncUninterruptibly();
+    }
+
+    @Test(timeout = 30000)
+    public void testEcho() throws Throwable {
+        assumeTrue(OpenSsl.isAvailable());
+
+        SelfSignedCertificate cert = new SelfSignedCertificate();
+        final SslContext serverContext = SslContextBuilder.forServer(cert.certificate(), cert.privateKey())
+                .sslProvider(SslProvider.OPENSSL).protocols("TLSv1.2").build();
+        final SslContext clientContext = SslContextBuilder.forClient()
+                .trustManager(InsecureTrustManagerFactory.INSTANCE)
+                .sslProvider(SslProvider.OPENSSL).protocols("TLSv1.2").build();
+        Channel sc = null;
+        Channel cc = null;
+        try {
+            sc = new ServerBootstrap().group(group).channel(EpollServerSocketChannel.class)
+                    .childHandler(new ChannelInitializer<Channel>() {
+                        @Override
+                        protected void initChannel(Channel ch) {
+                            SslHandler sslHandler = serverContext.newHandler(ch.alloc());
+                            sslHandler.setRecordLayerOffload(KernelTlsOffload.INSTANCE);
+                            ch.pipeline().addLast(sslHandler, new SimpleChannelInboundHandler<ByteBuf>() {
+                                @Override
+                                protected void messageReceived(ChannelHandlerContext ctx, ByteBuf msg) {
+                                    ctx.writeAndFlush(msg.retain());
+                                }
+                            });
+                        }
+                    }).bind(new InetSocketAddress(NetUtil.LOCALHOST, 0)).syncUninterruptibly().channel();
+
+            final BlockingQueue<Object> received = new LinkedBlockingQueue<>();
+            cc = new Bootstrap().group(group).channel(EpollSocketChannel.class)
+                    .handler(new ChannelInitializer<Channel>() {
+                        @Override
+                        protected void initChannel(Channel ch) {
+                            SslHandler sslHandler = clientContext.newHandler(ch.alloc());
+                            sslHandler.setRecordLayerOffload(KernelTlsOffload.INSTANCE);
+                            ch.pipeline().addLast(sslHandler, new SimpleChannelInboundHandler<ByteBuf>() {
+                                @Override
+                                protected void messageReceived(ChannelHandlerContext ctx, ByteBuf msg) {
+                                    received.add(msg.toString(CharsetUtil.US_ASCII));
+                                }
+
+                                @Override
+                                public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+                                    received.add(cause);
+                                }
+                            });
+                        }
+                    }).connect(sc.localAddress()).syncUninterruptibly().channel();
+
+            // Written before the handshake is done, so either protected by the SslHandler or by the kernel once
+            // the record layer was offloaded.
+            cc.writeAndFlush(Unpooled.copiedBuffer("hello", CharsetUtil.US_ASCII)).syncUninterruptibly();
+            StringBuilder echo = new StringBuilder();
+            while (echo.length() < 5) {
+                Object msg = received.take();
+                if (msg instanceof Throwable) {
+                    throw (Throwable) msg;
+                }
+                echo.append(msg);
+            }
+            assertEquals("hello", echo.toString());
+        } finally {
+            if (cc != null) {
+                cc.close().syncUninterruptibly();
+            }
+            if (sc != null) {
+                sc.close().syncUninterruptibly();
+            }
+            ReferenceCountUtil.release(serverContext);
+            ReferenceCountUtil.release(clientContext);
+            cert.delete();
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.MultithreadEventLoopGroup;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.util.NetUtil;
+import io.netty.util.concurrent.ThreadPlacement;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EpollReusePortTest {
+    private static final int LOOPS = 3;
+    private static final int CONNECTIONS = 30;
+
+    private static EventLoopGroup group;
+
+    @BeforeClass
+    public static void setUp() {
+        Epoll.ensureAvailability();
+        group = new MultithreadEventLoopGroup(LOOPS, EpollHandler.newFactory());
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        group.shutdownGracefully();
+    }
+
+    @Test(timeout = 10000)
+    public void testBindOnePerEventLoop() throws Throwable {
+        testAcceptOnSameEventLoop(false);
+    }
+
+    @Test(timeout = 10000)
+    public void testBindOnePerEventLoopSteerByCpu() throws Throwable {
+        testAcceptOnSameEventLoop(true);
+    }
+
+    private static void testAcceptOnSameEventLoop(boolean steerByCpu) throws Throwable {
+        final CountDownLatch accepted = new CountDownLatch(CONNECTIONS);
+        final AtomicInteger crossLoop = new AtomicInteger();
+        ServerBootstrap bootstrap = new ServerBootstrap().group(group)
+                .childHandler(new ChannelInitializer<Channel>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        if (ch.eventLoop() != ch.parent().eventLoop() || !ch.eventLoop().inEventLoop()) {
+                            crossLoop.incrementAndGet();
+                        }
+                        accepted.countDown();
+                    }
+                });
+        ChannelGroup listeners = EpollReusePort.bind(
+                bootstrap, new InetSocketAddress(NetUtil.LOCALHOST, 0), steerByCpu).syncUninterruptibly().getNow();
+        try {
+            assertEquals(LOOPS, listeners.size());
+            Set<EventLoop> loops = new HashSet<>();
+            Set<Integer> ports = new HashSet<>();
+            for (Channel listener : listeners) {
+                assertTrue(listener instanceof EpollServerSocketChannel);
+                assertTrue(((EpollServerSocketChannel) listener).config().isReusePort());
+                loops.add(listener.eventLoop());
+                ports.add(((InetSocketAddress) listener.localAddress()).getPort());
+            }
+            assertEquals(LOOPS, loops.size());
+            assertEquals(1, ports.size());
+
+            int port = ports.iterator().next();
+            Socket[] sockets = new Socket[CONNECTIONS];
+            try {
+                for (int i = 0; i < sockets.length; i++) {
+                    sockets[i] = new Socket(NetUtil.LOCALHOST, port);
+                }
+                accepted.await();
+            } finally {
+                for (Socket socket : sockets) {
+                    if (socket != null) {
+                        socket.close();
+                    }
+                }
+            }
+            assertEquals(0, crossLoop.get());
+        } finally {
+            listeners.close().syncUninterruptibly();
+        }
+    }
+
+    @Test
+    public void testCpuSteeringProgram() {
+        int[] program = EpollReusePort.cpuSteeringProgram(new int[] { 2, ThreadPlacement.UNKNOWN, 0 });
+        assertArrayEquals(new int[] {
+                0x20, 0, 0, -0x1000 + 36, // A = cpu
+                0x15, 0, 1, 2,            // if (A == 2)
+                0x06, 0, 0, 0,            //     return 0
+                0x15, 0, 1, 0,            // if (A == 0)
+                0x06, 0, 0, 2,            //     return 2
+                0x94, 0, 0, 3,            // A %= 3
+                0x16, 0, 0, 0             // return A
+        }, program);
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.MultithreadEventLoopGroup;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class EpollServerSocketAcceptBatchTest {
+
+    private static EventLoopGroup group;
+
+    @BeforeClass
+    public static void before() {
+        group = new MultithreadEventLoopGroup(1, EpollHandler.newFactory());
+    }
+
+    @AfterClass
+    public static void after() {
+        group.shutdownGracefully();
+    }
+
+    @Test(timeout = 30000)
+    public void testAcceptBatch() throws Exception {
+        testAccept(false);
+    }
+
+    @Test(timeout = 30000)
+    public void testAcceptBatchEpollExclusive() throws Exception {
+        testAccept(true);
+    }
+
+    private static void testAccept(boolean exclusive) throws Exception {
+        final BlockingQueue<Channel> accepted = new LinkedBlockingQueue<>();
+        ServerBootstrap bootstrap = new ServerBootstrap();
+        EpollServerSocketChannel serverChannel = (EpollServerSocketChannel) bootstrap.group(group)
+                .channel(EpollServerSocketChannel.class)
+                .option(EpollChannelOption.EPOLL_EXCLUSIVE, exclusive)
+                .option(EpollChannelOption.ACCEPT_BATCH_SIZE, 4)
+                // Don't accept yet so the connections pile up in the accept queue and are accepted in batches.
+                .option(ChannelOption.AUTO_READ, false)
+                .handler(new ChannelHandler() {
+                    @Override
+                    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                        accepted.add((Channel) msg);
+                        ctx.fireChannelRead(msg);
+                    }
+                })
+                .childHandler(new ChannelHandler() { })
+                .bind(new InetSocketAddress(0)).syncUninterruptibly().channel();
+        List<Socket> sockets = new ArrayList<>();
+        try {
+            assertEquals(exclusive, serverChannel.config().isEpollExclusive());
+            InetSocketAddress address = serverChannel.localAddress();
+
+            Set<Integer> ports = new HashSet<>();
+            for (int i = 0; i < 10; i++) {
+                Socket socket = new Socket(address.getAddress(), address.getPort());
+                sockets.add(socket);
+                ports.add(socket.getLocalPort());
+            }
+            // For a listening socket unacked is the length of the accept queue.
+            while (serverChannel.tcpInfo().unacked() < 10) {
+                Thread.sleep(10);
+            }
+            assertTrue(accepted.isEmpty());
+
+            serverChannel.config().setAutoRead(true);
+            for (int i = 0; i < 10; i++) {
+                Channel child = accepted.poll(10, TimeUnit.SECONDS);
+                assertNotNull(child);
+                InetSocketAddress remote = (InetSocketAddress) child.remoteAddress();
+                assertTrue(ports.remove(remote.getPort()));
+                child.close().syncUninterruptibly();
+            }
+            assertTrue(ports.isEmpty());
+        } finally {
+            for (Socket socket: sockets) {
+                socket.close();
+            }
+            serverChannel.close().syncUninterruptibly();
+        }
+    }
+
+    @Test
+    public void testListenStats() throws Exception {
+        EpollListenStats stats = EpollListenStats.read(new StringReader(
+                "TcpExt: SyncookiesSent ListenOverflows ListenDrops TCPHPHits\n" +
+                "TcpExt: 1 2 3 4\n" +
+                "IpExt: InNoRoutes\n" +
+                "IpExt: 0\n"));
+        assertEquals(2, stats.listenOverflows());
+        assertEquals(3, stats.listenDrops());
+
+        stats = EpollListenStats.read();
+        assertTrue(stats.listenDrops() >= stats.listenOverflows());
+    }
+}
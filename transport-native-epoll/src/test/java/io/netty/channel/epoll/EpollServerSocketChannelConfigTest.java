@@ -79,6 +79,25 @@ public class EpollServerSocketChannelConfigTest {
         assertTrue(ch.config().isFreeBind());
     }
 
+    @Test(expected = IllegalStateException.class)
+    public void testEpollExclusiveAfterRegistration() {
+        ch.config().setEpollExclusive(true);
+    }
+
+    @Test
+    public void testAcceptBatchSize() {
+        ch.config().setAcceptBatchSize(16);
+        assertEquals(16, ch.config().getAcceptBatchSize());
+        ch.config().setAcceptBatchSize(0);
+        assertEquals(0, ch.config().getAcceptBatchSize());
+        try {
+            ch.config().setAcceptBatchSize(LinuxSocket.ACCEPT_BATCH_MAX + 1);
+            fail();
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+    }
+
     @Test
     public void getGetOptions() {
         Map<ChannelOption<?>, Object> map = ch.config().getOptions();
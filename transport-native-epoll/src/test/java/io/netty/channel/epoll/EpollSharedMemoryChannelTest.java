@@ -0,0 +1,213 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.MultithreadEventLoopGroup;
+import io.netty.channel.unix.FileDescriptor;
+import io.netty.util.concurrent.ImmediateEventExecutor;
+import io.netty.util.concurrent.Promise;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class EpollSharedMemoryChannelTest {
+    private static final int RING_CAPACITY = 4096;
+
+    private static EventLoopGroup group;
+
+    private Channel serverChannel;
+    private EpollDomainSocketChannel clientChannel;
+    private EpollSharedMemoryChannel offerer;
+    private EpollSharedMemoryChannel acceptor;
+
+    @BeforeClass
+    public static void beforeClass() {
+        group = new MultithreadEventLoopGroup(2, EpollHandler.newFactory());
+    }
+
+    @AfterClass
+    public static void afterClass() {
+        group.shutdownGracefully();
+    }
+
+    @Before
+    public void handshake() throws Exception {
+        final Promise<EpollSharedMemoryChannel> accepted = ImmediateEventExecutor.INSTANCE.newPromise();
+        serverChannel = new ServerBootstrap().group(group)
+                .channel(EpollServerDomainSocketChannel.class)
+                .childHandler(new EpollSharedMemoryAcceptor(accepted))
+                .bind(EpollSocketTestPermutation.newSocketAddress()).sync().channel();
+        clientChannel = (EpollDomainSocketChannel) new Bootstrap().group(group)
+                .channel(EpollDomainSocketChannel.class)
+                .handler(new ChannelHandler() { })
+                .connect(serverChannel.localAddress()).sync().channel();
+
+        offerer = EpollSharedMemoryChannel.offer(clientChannel, RING_CAPACITY).sync().getNow();
+        acceptor = accepted.sync().getNow();
+        assertEquals(RING_CAPACITY, offerer.ringCapacity());
+        assertEquals(RING_CAPACITY, acceptor.ringCapacity());
+    }
+
+    @After
+    public void close() throws Exception {
+        if (offerer != null) {
+            offerer.close().sync();
+        }
+        if (acceptor != null) {
+            acceptor.close().sync();
+        }
+        clientChannel.close().sync();
+        serverChannel.close().sync();
+    }
+
+    @Test(timeout = 30000)
+    public void testEcho() throws Exception {
+        // Much more than fits into the rings, so both sides need to park and wake up each other.
+        final byte[] data = new byte[RING_CAPACITY * 256 + 17];
+        ThreadLocalRandom.current().nextBytes(data);
+        final ByteBuf echoed = Unpooled.buffer(data.length);
+        final CountDownLatch latch = new CountDownLatch(1);
+
+        acceptor.pipeline().addLast(new ChannelHandler() {
+            @Override
+            public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                ctx.writeAndFlush(msg);
+            }
+        });
+        acceptor.register().sync();
+
+        offerer.pipeline().addLast(new ChannelHandler() {
+            @Override
+            public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                ByteBuf buf = (ByteBuf) msg;
+                echoed.writeBytes(buf);
+                buf.release();
+                if (echoed.readableBytes() == data.length) {
+                    latch.countDown();
+                }
+            }
+        });
+        offerer.register().sync();
+        assertTrue(offerer.isActive());
+
+        // Write in chunks of different sizes, some of them wrap around the end of the ring.
+        int offset = 0;
+        while (offset < data.length) {
+            int length = Math.min(data.length - offset, ThreadLocalRandom.current().nextInt(1, RING_CAPACITY * 2));
+            offerer.write(Unpooled.wrappedBuffer(data, offset, length));
+            offset += length;
+        }
+        offerer.flush();
+
+        assertTrue(latch.await(20, TimeUnit.SECONDS));
+        assertArrayEquals(data, echoed.array());
+        echoed.release();
+    }
+
+    @Test(timeout = 30000)
+    public void testPeerClose() throws Exception {
+        final CountDownLatch inactive = new CountDownLatch(1);
+        final ByteBuf received = Unpooled.buffer();
+        acceptor.pipeline().addLast(new ChannelHandler() {
+            @Override
+            public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                received.writeBytes((ByteBuf) msg);
+                ((ByteBuf) msg).release();
+            }
+
+            @Override
+            public void channelInactive(ChannelHandlerContext ctx) {
+                inactive.countDown();
+            }
+        });
+        acceptor.register().sync();
+        offerer.register().sync();
+
+        // Data that was written before the close must still be received.
+        offerer.writeAndFlush(Unpooled.wrappedBuffer(new byte[] { 1, 2, 3 })).sync();
+        offerer.close().sync();
+
+        assertTrue(inactive.await(10, TimeUnit.SECONDS));
+        assertFalse(acceptor.isActive());
+        assertEquals(3, received.readableBytes());
+        received.release();
+        // The shared memory is unmapped by now, but the capacity is still known.
+        assertEquals(RING_CAPACITY, offerer.ringCapacity());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidRingCapacity() {
+        EpollSharedMemoryChannel.offer(clientChannel, RING_CAPACITY + 1);
+    }
+
+    @Test
+    public void testMemfdSizeIsSealed() throws Exception {
+        FileDescriptor memfd = Native.newMemfd(8192);
+        try {
+            assertTrue(Native.isSizeSealed(memfd.intValue()));
+            try (RandomAccessFile file = new RandomAccessFile("/proc/self/fd/" + memfd.intValue(), "rw")) {
+                file.setLength(4096);
+                fail();
+            } catch (IOException expected) {
+                // The seals prevent shrinking the file.
+            }
+            assertEquals(8192, Native.fileSize(memfd.intValue()));
+        } finally {
+            memfd.close();
+        }
+    }
+
+    @Test
+    public void testAcceptRejectsUnsealedMemory() throws Exception {
+        File file = File.createTempFile("netty-shm", ".tmp");
+        FileDescriptor wakeup = Native.newEventFd();
+        FileDescriptor peerWakeup = Native.newEventFd();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(4096 + 2 * RING_CAPACITY);
+            EpollSharedMemoryChannel.accept(group.next(), FileDescriptor.from(file), peerWakeup, wakeup);
+            fail();
+        } catch (IOException expected) {
+            // A regular file can not be sealed.
+        } finally {
+            wakeup.close();
+            peerWakeup.close();
+            file.delete();
+        }
+    }
+}
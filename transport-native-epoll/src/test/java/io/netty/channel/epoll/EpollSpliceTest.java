@@ -0,0 +1,241 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.MultithreadEventLoopGroup;
+import io.netty.channel.unix.FileDescriptor;
+import io.netty.util.CharsetUtil;
+import io.netty.util.NetUtil;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EpollSpliceTest {
+    private static final byte[] HEADER = "SPLICE\n".getBytes(CharsetUtil.US_ASCII);
+    private static final byte[] DATA = new byte[1024 * 1024];
+
+    private static EventLoopGroup group;
+    private static Channel echoServer;
+
+    static {
+        new Random().nextBytes(DATA);
+    }
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        Epoll.ensureAvailability();
+        // Splicing between channels requires both to use the same EventLoop.
+        group = new MultithreadEventLoopGroup(1, EpollHandler.newFactory());
+        echoServer = new ServerBootstrap().group(group).channel(EpollServerSocketChannel.class)
+                .childHandler(new ChannelHandler() {
+                    @Override
+                    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                        ctx.write(msg);
+                    }
+
+                    @Override
+                    public void channelReadComplete(ChannelHandlerContext ctx) {
+                        ctx.flush();
+                    }
+                }).bind(new InetSocketAddress(NetUtil.LOCALHOST, 0)).syncUninterruptibly().channel();
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        echoServer.close().syncUninterruptibly();
+        group.shutdownGracefully().syncUninterruptibly();
+    }
+
+    @Test(timeout = 30000)
+    public void testSpliceToChannel() throws Throwable {
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        Channel proxy = new ServerBootstrap().group(group).channel(EpollServerSocketChannel.class)
+                .childOption(ChannelOption.AUTO_READ, false)
+                .childHandler(new ChannelInitializer<Channel>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        final EpollSocketChannel inbound = (EpollSocketChannel) ch;
+                        connectToEchoServer(inbound).addListener((ChannelFutureListener) future -> {
+                            if (!future.isSuccess()) {
+                                error.compareAndSet(null, future.cause());
+                                inbound.close();
+                                return;
+                            }
+                            EpollSocketChannel outbound = (EpollSocketChannel) future.channel();
+                            inbound.spliceTo(outbound, Integer.MAX_VALUE).addListener(closeOnFailure(outbound));
+                            outbound.spliceTo(inbound, Integer.MAX_VALUE).addListener(closeOnFailure(inbound));
+                            inbound.config().setAutoRead(true);
+                        });
+                    }
+                }).bind(new InetSocketAddress(NetUtil.LOCALHOST, 0)).syncUninterruptibly().channel();
+        try {
+            assertArrayEquals(DATA, sendAndReceive(proxy, new byte[0], DATA));
+            if (error.get() != null) {
+                throw error.get();
+            }
+        } finally {
+            proxy.close().syncUninterruptibly();
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testSpliceHandler() throws Throwable {
+        Channel proxy = new ServerBootstrap().group(group).channel(EpollServerSocketChannel.class)
+                .childOption(ChannelOption.AUTO_READ, false)
+                .childHandler(new ChannelInitializer<Channel>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        final EpollSocketChannel inbound = (EpollSocketChannel) ch;
+                        connectToEchoServer(inbound).addListener((ChannelFutureListener) future -> {
+                            EpollSocketChannel outbound = (EpollSocketChannel) future.channel();
+                            outbound.pipeline().addLast(new EpollSpliceHandler(inbound));
+                            inbound.pipeline().addLast(new HeaderHandler(outbound));
+                            inbound.config().setAutoRead(true);
+                        });
+                    }
+                }).bind(new InetSocketAddress(NetUtil.LOCALHOST, 0)).syncUninterruptibly().channel();
+        try {
+            assertArrayEquals(DATA, sendAndReceive(proxy, HEADER, DATA));
+        } finally {
+            proxy.close().syncUninterruptibly();
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testSpliceToFile() throws Throwable {
+        final File file = File.createTempFile("netty-splice", ".tmp");
+        file.deleteOnExit();
+        final FileDescriptor fd = FileDescriptor.from(file);
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        Channel server = new ServerBootstrap().group(group).channel(EpollServerSocketChannel.class)
+                .childHandler(new ChannelHandler() {
+                    @Override
+                    public void handlerAdded(ChannelHandlerContext ctx) {
+                        ((EpollSocketChannel) ctx.channel()).spliceTo(fd, 0, DATA.length)
+                                .addListener((ChannelFutureListener) future -> {
+                                    if (!future.isSuccess()) {
+                                        error.set(future.cause());
+                                    }
+                                    latch.countDown();
+                                });
+                    }
+                }).bind(new InetSocketAddress(NetUtil.LOCALHOST, 0)).syncUninterruptibly().channel();
+        try {
+            Socket socket = new Socket(NetUtil.LOCALHOST, ((InetSocketAddress) server.localAddress()).getPort());
+            try {
+                OutputStream out = socket.getOutputStream();
+                out.write(DATA);
+                out.flush();
+                latch.await();
+            } finally {
+                socket.close();
+            }
+            if (error.get() != null) {
+                throw error.get();
+            }
+            assertArrayEquals(DATA, Files.readAllBytes(file.toPath()));
+        } finally {
+            fd.close();
+            server.close().syncUninterruptibly();
+            assertTrue(file.delete());
+        }
+    }
+
+    private static ChannelFuture connectToEchoServer(Channel inbound) {
+        return new Bootstrap().group(inbound.eventLoop()).channel(EpollSocketChannel.class)
+                .handler(new ChannelHandler() { })
+                .connect(echoServer.localAddress());
+    }
+
+    private static ChannelFutureListener closeOnFailure(final Channel ch) {
+        return future -> {
+            if (!future.isSuccess()) {
+                ch.close();
+            }
+        };
+    }
+
+    private static byte[] sendAndReceive(Channel proxy, byte[] header, byte[] data) throws Exception {
+        Socket socket = new Socket(NetUtil.LOCALHOST, ((InetSocketAddress) proxy.localAddress()).getPort());
+        try {
+            byte[] received = new byte[data.length];
+            OutputStream out = socket.getOutputStream();
+            // Write the header and the first bytes at once so they are read into the same buffer.
+            byte[] first = Arrays.copyOf(header, header.length + 1024);
+            System.arraycopy(data, 0, first, header.length, 1024);
+            out.write(first);
+            out.write(data, 1024, data.length - 1024);
+            out.flush();
+            new DataInputStream(socket.getInputStream()).readFully(received);
+            return received;
+        } finally {
+            socket.close();
+        }
+    }
+
+    /**
+     * Consumes the header and then switches the channel into splice mode, forwarding everything that was read
+     * together with the header.
+     */
+    private static final class HeaderHandler implements ChannelHandler {
+        private final EpollSocketChannel outbound;
+
+        HeaderHandler(EpollSocketChannel outbound) {
+            this.outbound = outbound;
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            ByteBuf buf = (ByteBuf) msg;
+            if (buf.readableBytes() < HEADER.length) {
+                // Keep the test simple, the header is always read at once.
+                buf.release();
+                ctx.close();
+                return;
+            }
+            buf.skipBytes(HEADER.length);
+            ctx.pipeline().addLast(new EpollSpliceHandler(outbound));
+            ctx.pipeline().remove(this);
+            ctx.fireChannelRead(buf);
+        }
+    }
+}
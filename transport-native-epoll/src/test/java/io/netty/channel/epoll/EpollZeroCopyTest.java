@@ -0,0 +1,257 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.DefaultFileRegion;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.MultithreadEventLoopGroup;
+import io.netty.util.NetUtil;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.net.InetSocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class EpollZeroCopyTest {
+    private static final int[] SIZES = { 64 * 1024, 1024, 256 * 1024, 1024 * 1024, 16, 4 * 1024 * 1024 };
+
+    private static EventLoopGroup group;
+
+    @BeforeClass
+    public static void setUp() {
+        Epoll.ensureAvailability();
+        group = new MultithreadEventLoopGroup(2, EpollHandler.newFactory());
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        group.shutdownGracefully().syncUninterruptibly();
+    }
+
+    @Test
+    public void testOptions() throws Exception {
+        EpollSocketChannel ch = new EpollSocketChannel(group.next());
+        try {
+            EpollSocketChannelConfig config = ch.config();
+            assertFalse(config.getOption(EpollChannelOption.SO_ZEROCOPY));
+            assertEquals(EpollSocketChannelConfig.DEFAULT_ZEROCOPY_THRESHOLD,
+                    (int) config.getOption(EpollChannelOption.ZEROCOPY_THRESHOLD));
+            assertTrue(config.setOption(EpollChannelOption.SO_ZEROCOPY, true));
+            assertTrue(config.setOption(EpollChannelOption.ZEROCOPY_THRESHOLD, 1024));
+            assertTrue(config.isSoZeroCopy());
+            assertTrue(ch.socket.isSoZeroCopy());
+            assertTrue(config.getOption(EpollChannelOption.SO_ZEROCOPY));
+            assertEquals(1024, config.getZeroCopyThreshold());
+            assertEquals(1024, config.zeroCopyWriteThreshold());
+        } finally {
+            ch.close().syncUninterruptibly();
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testZeroCopyWrite() throws Throwable {
+        int total = 0;
+        for (int size: SIZES) {
+            total += size;
+        }
+        byte[] expected = new byte[total];
+        new Random().nextBytes(expected);
+
+        final ByteBuf received = Unpooled.buffer(total);
+        final CountDownLatch receivedLatch = new CountDownLatch(1);
+        final int expectedBytes = total;
+        Channel sc = new ServerBootstrap().group(group).channel(EpollServerSocketChannel.class)
+                .childHandler(new ChannelHandler() {
+                    @Override
+                    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                        ByteBuf buf = (ByteBuf) msg;
+                        received.writeBytes(buf);
+                        buf.release();
+                        if (received.readableBytes() == expectedBytes) {
+                            receivedLatch.countDown();
+                        }
+                    }
+                }).bind(new InetSocketAddress(NetUtil.LOCALHOST, 0)).syncUninterruptibly().channel();
+        Channel cc = new Bootstrap().group(group).channel(EpollSocketChannel.class)
+                .option(EpollChannelOption.SO_ZEROCOPY, true)
+                .handler(new ChannelHandler() { })
+                .connect(sc.localAddress()).syncUninterruptibly().channel();
+        try {
+            final Queue<Integer> completed = new ConcurrentLinkedQueue<>();
+            List<ByteBuf> buffers = new ArrayList<>();
+            List<ChannelFuture> futures = new ArrayList<>();
+            int offset = 0;
+            for (int i = 0; i < SIZES.length; i++) {
+                ByteBuf buf = Unpooled.directBuffer(SIZES[i]).writeBytes(expected, offset, SIZES[i]);
+                offset += SIZES[i];
+                buffers.add(buf);
+                final int idx = i;
+                futures.add(cc.writeAndFlush(buf.retain()).addListener(
+                        (ChannelFutureListener) future -> completed.add(idx)));
+            }
+            for (ChannelFuture future: futures) {
+                future.syncUninterruptibly();
+            }
+            assertTrue(receivedLatch.await(10, TimeUnit.SECONDS));
+            assertArrayEquals(expected, received.array());
+
+            // The promises must be notified in the order of the writes, no matter if these were zero-copy or not.
+            List<Integer> order = new ArrayList<>(completed);
+            for (int i = 0; i < SIZES.length; i++) {
+                assertEquals(i, (int) order.get(i));
+            }
+            for (ByteBuf buf: buffers) {
+                // Only our own reference is left.
+                assertEquals(1, buf.refCnt());
+                buf.release();
+            }
+        } finally {
+            cc.close().syncUninterruptibly();
+            sc.close().syncUninterruptibly();
+            received.release();
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testFileRegionCompletesAfterZeroCopyWrite() throws Throwable {
+        File file = File.createTempFile("netty-", ".tmp");
+        file.deleteOnExit();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[1024]);
+        }
+        Channel sc = new ServerBootstrap().group(group).channel(EpollServerSocketChannel.class)
+                .childHandler(new ChannelHandler() { })
+                .bind(new InetSocketAddress(NetUtil.LOCALHOST, 0)).syncUninterruptibly().channel();
+        Channel cc = new Bootstrap().group(group).channel(EpollSocketChannel.class)
+                .option(EpollChannelOption.SO_ZEROCOPY, true)
+                .handler(new ChannelHandler() { })
+                .connect(sc.localAddress()).syncUninterruptibly().channel();
+        try {
+            final Queue<Integer> completed = new ConcurrentLinkedQueue<>();
+            List<ChannelFuture> futures = new ArrayList<>();
+            // The FileRegion and the empty buffer are written while the zero-copy send before them is still waiting
+            // for its completion.
+            futures.add(cc.write(Unpooled.directBuffer(1024 * 1024).writeZero(1024 * 1024)).addListener(
+                    (ChannelFutureListener) future -> completed.add(0)));
+            futures.add(cc.write(new DefaultFileRegion(file, 0, 1024)).addListener(
+                    (ChannelFutureListener) future -> completed.add(1)));
+            futures.add(cc.writeAndFlush(Unpooled.EMPTY_BUFFER).addListener(
+                    (ChannelFutureListener) future -> completed.add(2)));
+            for (ChannelFuture future: futures) {
+                future.syncUninterruptibly();
+            }
+            assertEquals(Arrays.asList(0, 1, 2), new ArrayList<>(completed));
+        } finally {
+            cc.close().syncUninterruptibly();
+            sc.close().syncUninterruptibly();
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testCloseWithInFlightWrites() throws Throwable {
+        final BlockingQueue<Channel> accepted = new LinkedBlockingQueue<>();
+        Channel sc = new ServerBootstrap().group(group).channel(EpollServerSocketChannel.class)
+                // Don't read and keep the window small so the writes can not complete.
+                .childOption(ChannelOption.AUTO_READ, false)
+                .childOption(ChannelOption.SO_RCVBUF, 64 * 1024)
+                .childHandler(new ChannelHandler() {
+                    @Override
+                    public void channelActive(ChannelHandlerContext ctx) {
+                        accepted.add(ctx.channel());
+                    }
+                })
+                .bind(new InetSocketAddress(NetUtil.LOCALHOST, 0)).syncUninterruptibly().channel();
+        Channel cc = new Bootstrap().group(group).channel(EpollSocketChannel.class)
+                .option(EpollChannelOption.SO_ZEROCOPY, true)
+                .option(ChannelOption.SO_SNDBUF, 256 * 1024)
+                .handler(new ChannelHandler() { })
+                .connect(sc.localAddress()).syncUninterruptibly().channel();
+        Channel child = accepted.take();
+        List<ByteBuf> buffers = new ArrayList<>();
+        try {
+            List<ChannelFuture> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                ByteBuf buf = Unpooled.directBuffer(1024 * 1024).writeZero(1024 * 1024);
+                buffers.add(buf);
+                futures.add(cc.writeAndFlush(buf.retain()));
+            }
+            // Make sure all writes were flushed to the socket, which can not take all of them.
+            cc.eventLoop().submit(() -> { }).syncUninterruptibly();
+            cc.close().syncUninterruptibly();
+
+            int kept = 0;
+            for (int i = 0; i < futures.size(); i++) {
+                ChannelFuture future = futures.get(i).awaitUninterruptibly();
+                ByteBuf buf = buffers.get(i);
+                if (future.isSuccess()) {
+                    assertEquals(1, buf.refCnt());
+                } else {
+                    assertTrue(future.cause() instanceof ClosedChannelException);
+                    // Buffers that the kernel may still send from must not be released yet, the others must be.
+                    assertTrue(buf.refCnt() == 1 || buf.refCnt() == 2);
+                    if (buf.refCnt() == 2) {
+                        kept++;
+                    }
+                }
+            }
+            assertTrue(kept > 0);
+
+            // Once the peer reads the data the sends complete, so the buffers are released and the peer sees the
+            // close of the connection.
+            child.config().setAutoRead(true);
+            assertTrue(child.closeFuture().await(10, TimeUnit.SECONDS));
+            for (ByteBuf buf: buffers) {
+                while (buf.refCnt() != 1) {
+                    Thread.sleep(10);
+                }
+            }
+        } finally {
+            child.close().syncUninterruptibly();
+            sc.close().syncUninterruptibly();
+            for (ByteBuf buf: buffers) {
+                buf.release(buf.refCnt());
+            }
+        }
+    }
+}
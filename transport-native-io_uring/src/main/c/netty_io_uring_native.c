@@ -0,0 +1,379 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+#define _GNU_SOURCE
+#include <jni.h>
+#include <stdint.h>
+#include <stdlib.h>
+#include <string.h>
+#include <errno.h>
+#include <signal.h>
+#include <sys/eventfd.h>
+#include <sys/mman.h>
+#include <sys/types.h>
+#include <sys/utsname.h>
+#include <unistd.h>
+#include <dlfcn.h>
+// Needed to be able to use syscalls directly and so not depend on newer GLIBC versions
+#include <sys/syscall.h>
+
+#include "netty_io_uring.h"
+#include "netty_unix_buffer.h"
+#include "netty_unix_errors.h"
+#include "netty_unix_filedescriptor.h"
+#include "netty_unix_jni.h"
+#include "netty_unix_limits.h"
+#include "netty_unix_socket.h"
+#include "netty_unix_util.h"
+
+// The number of elements in the array returned by ioUringSetup(...). Must be kept in sync with RingBuffer.java.
+#define RING_SETUP_ARRAY_LENGTH 20
+
+static int sys_io_uring_setup(unsigned entries, struct netty_io_uring_params* p) {
+    return (int) syscall(SYS_io_uring_setup, entries, p);
+}
+
+static int sys_io_uring_enter(int fd, unsigned toSubmit, unsigned minComplete, unsigned flags, void* arg, size_t argSize) {
+    return (int) syscall(SYS_io_uring_enter, fd, toSubmit, minComplete, flags, arg, argSize);
+}
+
+// JNI Registered Methods Begin
+static jlongArray netty_io_uring_native_ioUringSetup(JNIEnv* env, jclass clazz, jint entries) {
+    struct netty_io_uring_params p;
+    memset(&p, 0, sizeof(p));
+
+    int ringFd = sys_io_uring_setup((unsigned) entries, &p);
+    if (ringFd < 0) {
+        netty_unix_errors_throwChannelExceptionErrorNo(env, "io_uring_setup() failed: ", errno);
+        return NULL;
+    }
+    if ((p.features & NETTY_IORING_FEAT_EXT_ARG) == 0) {
+        close(ringFd);
+        netty_unix_errors_throwChannelExceptionErrorNo(env,
+                "io_uring_setup() failed, IORING_FEAT_EXT_ARG (linux 5.11) is required: ", ENOSYS);
+        return NULL;
+    }
+
+    size_t sqRingSize = p.sq_off.array + p.sq_entries * sizeof(uint32_t);
+    size_t cqRingSize = p.cq_off.cqes + p.cq_entries * sizeof(struct netty_io_uring_cqe);
+    size_t sqesSize = p.sq_entries * sizeof(struct netty_io_uring_sqe);
+    int singleMmap = (p.features & NETTY_IORING_FEAT_SINGLE_MMAP) != 0;
+    if (singleMmap) {
+        if (cqRingSize > sqRingSize) {
+            sqRingSize = cqRingSize;
+        }
+        cqRingSize = sqRingSize;
+    }
+
+    void* sqRing = mmap(NULL, sqRingSize, PROT_READ | PROT_WRITE, MAP_SHARED | MAP_POPULATE,
+                        ringFd, NETTY_IORING_OFF_SQ_RING);
+    if (sqRing == MAP_FAILED) {
+        int err = errno;
+        close(ringFd);
+        netty_unix_errors_throwChannelExceptionErrorNo(env, "mmap() of submission queue failed: ", err);
+        return NULL;
+    }
+
+    void* cqRing = sqRing;
+    if (!singleMmap) {
+        cqRing = mmap(NULL, cqRingSize, PROT_READ | PROT_WRITE, MAP_SHARED | MAP_POPULATE,
+                      ringFd, NETTY_IORING_OFF_CQ_RING);
+        if (cqRing == MAP_FAILED) {
+            int err = errno;
+            munmap(sqRing, sqRingSize);
+            close(ringFd);
+            netty_unix_errors_throwChannelExceptionErrorNo(env, "mmap() of completion queue failed: ", err);
+            return NULL;
+        }
+    }
+
+    void* sqes = mmap(NULL, sqesSize, PROT_READ | PROT_WRITE, MAP_SHARED | MAP_POPULATE,
+                      ringFd, NETTY_IORING_OFF_SQES);
+    if (sqes == MAP_FAILED) {
+        int err = errno;
+        if (cqRing != sqRing) {
+            munmap(cqRing, cqRingSize);
+        }
+        munmap(sqRing, sqRingSize);
+        close(ringFd);
+        netty_unix_errors_throwChannelExceptionErrorNo(env, "mmap() of submission queue entries failed: ", err);
+        return NULL;
+    }
+
+    jlong values[RING_SETUP_ARRAY_LENGTH] = {
+        ringFd,
+        p.features,
+        (jlong) sqRing,
+        (jlong) sqRingSize,
+        (jlong) sqRing + p.sq_off.head,
+        (jlong) sqRing + p.sq_off.tail,
+        (jlong) sqRing + p.sq_off.ring_mask,
+        (jlong) sqRing + p.sq_off.ring_entries,
+        (jlong) sqRing + p.sq_off.flags,
+        (jlong) sqRing + p.sq_off.dropped,
+        (jlong) sqRing + p.sq_off.array,
+        (jlong) sqes,
+        (jlong) sqesSize,
+        (jlong) cqRing,
+        (jlong) cqRingSize,
+        (jlong) cqRing + p.cq_off.head,
+        (jlong) cqRing + p.cq_off.tail,
+        (jlong) cqRing + p.cq_off.ring_mask,
+        (jlong) cqRing + p.cq_off.ring_entries,
+        (jlong) cqRing + p.cq_off.cqes
+    };
+
+    jlongArray array = (*env)->NewLongArray(env, RING_SETUP_ARRAY_LENGTH);
+    if (array == NULL) {
+        // This will put an OOME on the stack
+        munmap(sqes, sqesSize);
+        if (cqRing != sqRing) {
+            munmap(cqRing, cqRingSize);
+        }
+        munmap(sqRing, sqRingSize);
+        close(ringFd);
+        return NULL;
+    }
+    (*env)->SetLongArrayRegion(env, array, 0, RING_SETUP_ARRAY_LENGTH, values);
+    return array;
+}
+
+static jint netty_io_uring_native_ioUringEnter(JNIEnv* env, jclass clazz, jint ringFd, jint toSubmit,
+                                               jint minComplete, jint flags) {
+    int res = sys_io_uring_enter(ringFd, toSubmit, minComplete, flags, NULL, 0);
+    if (res < 0) {
+        return -errno;
+    }
+    return res;
+}
+
+static jint netty_io_uring_native_ioUringEnterTimeout(JNIEnv* env, jclass clazz, jint ringFd, jint toSubmit,
+                                                      jint minComplete, jint flags, jlong timeoutNanos) {
+    struct netty_kernel_timespec ts = {
+        .tv_sec = timeoutNanos / 1000000000L,
+        .tv_nsec = timeoutNanos % 1000000000L
+    };
+    struct netty_io_uring_getevents_arg arg = {
+        .sigmask = 0,
+        .sigmask_sz = _NSIG / 8,
+        .pad = 0,
+        .ts = (uint64_t) (uintptr_t) &ts
+    };
+    int res = sys_io_uring_enter(ringFd, toSubmit, minComplete, flags | NETTY_IORING_ENTER_EXT_ARG,
+                                 &arg, sizeof(arg));
+    if (res < 0) {
+        return -errno;
+    }
+    return res;
+}
+
+static void netty_io_uring_native_ioUringExit(JNIEnv* env, jclass clazz, jint ringFd,
+                                              jlong sqRingAddress, jlong sqRingSize,
+                                              jlong cqRingAddress, jlong cqRingSize,
+                                              jlong sqesAddress, jlong sqesSize) {
+    munmap((void*) sqesAddress, (size_t) sqesSize);
+    if (cqRingAddress != sqRingAddress) {
+        munmap((void*) cqRingAddress, (size_t) cqRingSize);
+    }
+    munmap((void*) sqRingAddress, (size_t) sqRingSize);
+    if (close(ringFd) < 0) {
+        netty_unix_errors_throwChannelExceptionErrorNo(env, "close() of io_uring failed: ", errno);
+    }
+}
+
+static jint netty_io_uring_native_eventFd(JNIEnv* env, jclass clazz) {
+    jint eventFD = eventfd(0, EFD_CLOEXEC);
+
+    if (eventFD < 0) {
+        netty_unix_errors_throwChannelExceptionErrorNo(env, "eventfd() failed: ", errno);
+    }
+    return eventFD;
+}
+
+static void netty_io_uring_native_eventFdWrite(JNIEnv* env, jclass clazz, jint fd, jlong value) {
+    // The eventfd is blocking and drained by the EventLoop via a read submitted to the ring, so a write can only
+    // block if the counter would overflow which will never happen for our usage.
+    if (eventfd_write(fd, (eventfd_t) value) < 0) {
+        netty_unix_errors_throwChannelExceptionErrorNo(env, "eventfd_write(...) failed: ", errno);
+    }
+}
+
+static jstring netty_io_uring_native_kernelVersion(JNIEnv* env, jclass clazz) {
+    struct utsname name;
+
+    int res = uname(&name);
+    if (res == 0) {
+        return (*env)->NewStringUTF(env, name.release);
+    }
+    netty_unix_errors_throwRuntimeExceptionErrorNo(env, "uname() failed: ", errno);
+    return NULL;
+}
+// JNI Registered Methods End
+
+// JNI Method Registration Table Begin
+static const JNINativeMethod statically_referenced_fixed_method_table[] = {
+  { "kernelVersion", "()Ljava/lang/String;", (void *) netty_io_uring_native_kernelVersion }
+};
+static const jint statically_referenced_fixed_method_table_size = sizeof(statically_referenced_fixed_method_table) / sizeof(statically_referenced_fixed_method_table[0]);
+static const JNINativeMethod fixed_method_table[] = {
+  { "ioUringSetup", "(I)[J", (void *) netty_io_uring_native_ioUringSetup },
+  { "ioUringEnter", "(IIII)I", (void *) netty_io_uring_native_ioUringEnter },
+  { "ioUringEnterTimeout", "(IIIIJ)I", (void *) netty_io_uring_native_ioUringEnterTimeout },
+  { "ioUringExit", "(IJJJJJJ)V", (void *) netty_io_uring_native_ioUringExit },
+  { "eventFd", "()I", (void *) netty_io_uring_native_eventFd },
+  { "eventFdWrite", "(IJ)V", (void *) netty_io_uring_native_eventFdWrite }
+};
+static const jint fixed_method_table_size = sizeof(fixed_method_table) / sizeof(fixed_method_table[0]);
+// JNI Method Registration Table End
+
+static jint netty_io_uring_native_JNI_OnLoad(JNIEnv* env, const char* packagePrefix) {
+    int ret = JNI_ERR;
+    int limitsOnLoadCalled = 0;
+    int errorsOnLoadCalled = 0;
+    int filedescriptorOnLoadCalled = 0;
+    int socketOnLoadCalled = 0;
+    int bufferOnLoadCalled = 0;
+
+    // We must register the statically referenced methods first!
+    if (netty_unix_util_register_natives(env,
+            packagePrefix,
+            "io/netty/channel/uring/NativeStaticallyReferencedJniMethods",
+            statically_referenced_fixed_method_table,
+            statically_referenced_fixed_method_table_size) != 0) {
+        goto done;
+    }
+
+    if (netty_unix_util_register_natives(env,
+            packagePrefix,
+            "io/netty/channel/uring/Native",
+            fixed_method_table,
+            fixed_method_table_size) != 0) {
+        goto done;
+    }
+    // Load all c modules that we depend upon
+    if (netty_unix_limits_JNI_OnLoad(env, packagePrefix) == JNI_ERR) {
+        goto done;
+    }
+    limitsOnLoadCalled = 1;
+
+    if (netty_unix_errors_JNI_OnLoad(env, packagePrefix) == JNI_ERR) {
+        goto done;
+    }
+    errorsOnLoadCalled = 1;
+
+    if (netty_unix_filedescriptor_JNI_OnLoad(env, packagePrefix) == JNI_ERR) {
+        goto done;
+    }
+    filedescriptorOnLoadCalled = 1;
+
+    if (netty_unix_socket_JNI_OnLoad(env, packagePrefix) == JNI_ERR) {
+        goto done;
+    }
+    socketOnLoadCalled = 1;
+
+    if (netty_unix_buffer_JNI_OnLoad(env, packagePrefix) == JNI_ERR) {
+        goto done;
+    }
+    bufferOnLoadCalled = 1;
+
+    ret = NETTY_JNI_VERSION;
+done:
+    if (ret == JNI_ERR) {
+        if (limitsOnLoadCalled == 1) {
+            netty_unix_limits_JNI_OnUnLoad(env);
+        }
+        if (errorsOnLoadCalled == 1) {
+            netty_unix_errors_JNI_OnUnLoad(env);
+        }
+        if (filedescriptorOnLoadCalled == 1) {
+            netty_unix_filedescriptor_JNI_OnUnLoad(env);
+        }
+        if (socketOnLoadCalled == 1) {
+            netty_unix_socket_JNI_OnUnLoad(env);
+        }
+        if (bufferOnLoadCalled == 1) {
+            netty_unix_buffer_JNI_OnUnLoad(env);
+        }
+    }
+    return ret;
+}
+
+static void netty_io_uring_native_JNI_OnUnLoad(JNIEnv* env) {
+    netty_unix_limits_JNI_OnUnLoad(env);
+    netty_unix_errors_JNI_OnUnLoad(env);
+    netty_unix_filedescriptor_JNI_OnUnLoad(env);
+    netty_unix_socket_JNI_OnUnLoad(env);
+    netty_unix_buffer_JNI_OnUnLoad(env);
+}
+
+// Invoked by the JVM when statically linked
+static jint JNI_OnLoad_netty_transport_native_io_uring0(JavaVM* vm, void* reserved) {
+    JNIEnv* env;
+    if ((*vm)->GetEnv(vm, (void**) &env, NETTY_JNI_VERSION) != JNI_OK) {
+        return JNI_ERR;
+    }
+    char* packagePrefix = NULL;
+#ifndef NETTY_BUILD_STATIC
+    Dl_info dlinfo;
+    jint status = 0;
+    // We need to use an address of a function that is uniquely part of this library, so choose a static
+    // function. See https://github.com/netty/netty/issues/4840.
+    if (!dladdr((void*) netty_io_uring_native_JNI_OnUnLoad, &dlinfo)) {
+        fprintf(stderr, "FATAL: transport-native-io_uring JNI call to dladdr failed!\n");
+        return JNI_ERR;
+    }
+    packagePrefix = netty_unix_util_parse_package_prefix(dlinfo.dli_fname, "netty_transport_native_io_uring", &status);
+    if (status == JNI_ERR) {
+        fprintf(stderr, "FATAL: transport-native-io_uring JNI encountered unexpected dlinfo.dli_fname: %s\n", dlinfo.dli_fname);
+        return JNI_ERR;
+    }
+#endif /* NETTY_BUILD_STATIC */
+    jint ret = netty_io_uring_native_JNI_OnLoad(env, packagePrefix);
+
+    free(packagePrefix);
+    return ret;
+}
+
+static void JNI_OnUnload_netty_transport_native_io_uring0(JavaVM* vm, void* reserved) {
+    JNIEnv* env;
+    if ((*vm)->GetEnv(vm, (void**) &env, NETTY_JNI_VERSION) != JNI_OK) {
+        // Something is wrong but nothing we can do about this :(
+        return;
+    }
+    netty_io_uring_native_JNI_OnUnLoad(env);
+}
+
+// We build with -fvisibility=hidden so ensure we mark everything that needs to be visible with JNIEXPORT
+// http://mail.openjdk.java.net/pipermail/core-libs-dev/2013-February/014549.html
+
+// Invoked by the JVM when statically linked
+JNIEXPORT jint JNI_OnLoad_netty_transport_native_io_uring(JavaVM* vm, void* reserved) {
+    return JNI_OnLoad_netty_transport_native_io_uring0(vm, reserved);
+}
+
+// Invoked by the JVM when statically linked
+JNIEXPORT void JNI_OnUnload_netty_transport_native_io_uring(JavaVM* vm, void* reserved) {
+    JNI_OnUnload_netty_transport_native_io_uring0(vm, reserved);
+}
+
+#ifndef NETTY_BUILD_STATIC
+JNIEXPORT jint JNI_OnLoad(JavaVM* vm, void* reserved) {
+    return JNI_OnLoad_netty_transport_native_io_uring0(vm, reserved);
+}
+
+JNIEXPORT void JNI_OnUnload(JavaVM* vm, void* reserved) {
+    JNI_OnUnload_netty_transport_native_io_uring0(vm, reserved);
+}
+#endif /* NETTY_BUILD_STATIC */
@@ -0,0 +1,688 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.AbstractChannel;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelConfig;
+import io.netty.channel.ChannelException;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelMetadata;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.ConnectTimeoutException;
+import io.netty.channel.EventLoop;
+import io.netty.channel.socket.ChannelInputShutdownEvent;
+import io.netty.channel.socket.ChannelInputShutdownReadComplete;
+import io.netty.channel.socket.SocketChannelConfig;
+import io.netty.channel.unix.Buffer;
+import io.netty.channel.unix.FileDescriptor;
+import io.netty.channel.unix.Socket;
+import io.netty.channel.unix.UnixChannel;
+import io.netty.util.ReferenceCountUtil;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.AlreadyConnectedException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ConnectionPendingException;
+import java.nio.channels.NotYetConnectedException;
+import java.nio.channels.UnresolvedAddressException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static io.netty.channel.unix.UnixChannelUtil.computeRemoteAddr;
+import static java.util.Objects.requireNonNull;
+
+abstract class AbstractIOUringChannel extends AbstractChannel implements UnixChannel {
+    private static final ChannelMetadata METADATA = new ChannelMetadata(false);
+
+    // The operations that may be in-flight for a Channel. Each of these can only be in-flight once at a time.
+    static final int READ_SCHEDULED = 1;
+    static final int WRITE_SCHEDULED = 1 << 1;
+    static final int POLL_OUT_SCHEDULED = 1 << 2;
+
+    final Socket socket;
+    /**
+     * The future of the current connection attempt.  If not null, subsequent
+     * connection attempts will fail.
+     */
+    private ChannelPromise connectPromise;
+    private ScheduledFuture<?> connectTimeoutFuture;
+    private SocketAddress requestedRemoteAddress;
+    private IOUringRegistration registration;
+
+    private volatile SocketAddress local;
+    private volatile SocketAddress remote;
+
+    // Bitmask of the operations that are currently in-flight and the user_data that was used to submit them.
+    int ioState;
+    private long readUserData;
+    private long writeUserData;
+    private long pollOutUserData;
+    private boolean ioCancelled;
+    boolean inputClosedSeenErrorOnRead;
+
+    protected volatile boolean active;
+
+    AbstractIOUringChannel(EventLoop eventLoop, Socket fd) {
+        this(null, eventLoop, fd, false);
+    }
+
+    AbstractIOUringChannel(Channel parent, EventLoop eventLoop, Socket fd, boolean active) {
+        super(parent, eventLoop);
+        socket = requireNonNull(fd, "fd");
+        this.active = active;
+        if (active) {
+            // Directly cache the remote and local addresses
+            // See https://github.com/netty/netty/issues/2359
+            local = fd.localAddress();
+            remote = fd.remoteAddress();
+        }
+    }
+
+    static boolean isSoErrorZero(Socket fd) {
+        try {
+            return fd.getSoError() == 0;
+        } catch (IOException e) {
+            throw new ChannelException(e);
+        }
+    }
+
+    @Override
+    public final FileDescriptor fd() {
+        return socket;
+    }
+
+    @Override
+    public boolean isActive() {
+        return active;
+    }
+
+    @Override
+    public ChannelMetadata metadata() {
+        return METADATA;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return socket.isOpen();
+    }
+
+    /**
+     * Returns the {@code user_data} for the given {@code op} of this {@link Channel}. The {@code ioBit} is encoded
+     * as well, so we know which operation completed.
+     */
+    final long userData(int ioBit, byte op) {
+        return UserData.encode(registration().id(), op, (short) ioBit);
+    }
+
+    /**
+     * Mark the operation as in-flight, must be called once the submission was added to the
+     * {@link IOUringSubmissionQueue}.
+     */
+    final void ioScheduled(int ioBit, long userData) {
+        assert !isIoScheduled(ioBit);
+        ioState |= ioBit;
+        switch (ioBit) {
+            case READ_SCHEDULED:
+                readUserData = userData;
+                break;
+            case WRITE_SCHEDULED:
+                writeUserData = userData;
+                break;
+            case POLL_OUT_SCHEDULED:
+                pollOutUserData = userData;
+                break;
+            default:
+                throw new AssertionError();
+        }
+    }
+
+    final IOUringRegistration registration() {
+        assert registration != null;
+        return registration;
+    }
+
+    final IOUringSubmissionQueue submissionQueue() {
+        return registration().submissionQueue();
+    }
+
+    final boolean isIoScheduled(int op) {
+        return (ioState & op) != 0;
+    }
+
+    @Override
+    protected void doClose() throws Exception {
+        active = false;
+        // Even if we allow half closed sockets we should give up on reading. Otherwise we may allow a read attempt on a
+        // socket which has not even been connected yet. This has been observed to block during unit tests.
+        inputClosedSeenErrorOnRead = true;
+        try {
+            ChannelPromise promise = connectPromise;
+            if (promise != null) {
+                // Use tryFailure() instead of setFailure() to avoid the race against cancel().
+                promise.tryFailure(new ClosedChannelException());
+                connectPromise = null;
+            }
+
+            ScheduledFuture<?> future = connectTimeoutFuture;
+            if (future != null) {
+                future.cancel(false);
+                connectTimeoutFuture = null;
+            }
+
+            if (isRegistered()) {
+                // Need to check if we are on the EventLoop as doClose() may be triggered by the GlobalEventExecutor
+                // if SO_LINGER is used.
+                //
+                // See https://github.com/netty/netty/issues/7159
+                EventLoop loop = eventLoop();
+                if (loop.inEventLoop()) {
+                    doDeregister();
+                } else {
+                    loop.execute(() -> {
+                        try {
+                            doDeregister();
+                        } catch (Throwable cause) {
+                            pipeline().fireExceptionCaught(cause);
+                        }
+                    });
+                }
+            }
+        } finally {
+            socket.close();
+        }
+    }
+
+    void resetCachedAddresses() {
+        local = socket.localAddress();
+        remote = socket.remoteAddress();
+    }
+
+    @Override
+    protected void doDisconnect() throws Exception {
+        doClose();
+    }
+
+    void register0(IOUringRegistration registration) {
+        if (ioState != 0) {
+            // The kernel may still access memory that belongs to the previous registration.
+            throw new IllegalStateException("Channel has still IO in-flight for a previous registration");
+        }
+        this.registration = registration;
+        ioCancelled = false;
+    }
+
+    void deregister0() throws IOException {
+        if (registration != null) {
+            cancelScheduledIo();
+            registration.remove();
+        }
+    }
+
+    /**
+     * Cancel all in-flight operations. This submits directly as the memory that is used by the operations may be
+     * released once this method returns.
+     */
+    private void cancelScheduledIo() throws IOException {
+        if (registration == null || ioState == 0 || ioCancelled) {
+            return;
+        }
+        ioCancelled = true;
+        IOUringSubmissionQueue submissionQueue = submissionQueue();
+        long cancelUserData = userData(0, Native.IORING_OP_ASYNC_CANCEL);
+        if (isIoScheduled(READ_SCHEDULED)) {
+            submissionQueue.addCancel(readUserData, cancelUserData);
+        }
+        if (isIoScheduled(WRITE_SCHEDULED)) {
+            submissionQueue.addCancel(writeUserData, cancelUserData);
+        }
+        if (isIoScheduled(POLL_OUT_SCHEDULED)) {
+            submissionQueue.addCancel(pollOutUserData, cancelUserData);
+        }
+        registration.submit();
+    }
+
+    @Override
+    protected final void doBeginRead() throws Exception {
+        // Channel.read() or ChannelHandlerContext.read() was called
+        final AbstractIOUringUnsafe unsafe = (AbstractIOUringUnsafe) unsafe();
+        unsafe.readPending = true;
+        // If we are currently processing a read completion the read loop decides itself if it needs to continue.
+        if (!isIoScheduled(READ_SCHEDULED) && !unsafe.inReadComplete) {
+            unsafe.scheduleFirstRead();
+        }
+    }
+
+    final void clearReadPending() {
+        if (isRegistered()) {
+            EventLoop loop = eventLoop();
+            if (loop.inEventLoop()) {
+                ((AbstractIOUringUnsafe) unsafe()).readPending = false;
+            } else {
+                // Already submitted reads can not be taken back, but we will not submit new ones.
+                loop.execute(() -> ((AbstractIOUringUnsafe) unsafe()).readPending = false);
+            }
+        } else {
+            // The EventLoop is not registered atm so just update the flags so the next read does not happen.
+            ((AbstractIOUringUnsafe) unsafe()).readPending = false;
+        }
+    }
+
+    final boolean shouldBreakIoUringInReady(ChannelConfig config) {
+        return socket.isInputShutdown() && (inputClosedSeenErrorOnRead || !isAllowHalfClosure(config));
+    }
+
+    private static boolean isAllowHalfClosure(ChannelConfig config) {
+        return config instanceof SocketChannelConfig &&
+                ((SocketChannelConfig) config).isAllowHalfClosure();
+    }
+
+    @Override
+    protected abstract AbstractIOUringUnsafe newUnsafe();
+
+    /**
+     * Returns an off-heap copy of the specified {@link ByteBuf}, and releases the original one.
+     */
+    protected final ByteBuf newDirectBuffer(ByteBuf buf) {
+        return newDirectBuffer(buf, buf);
+    }
+
+    /**
+     * Returns an off-heap copy of the specified {@link ByteBuf}, and releases the specified holder.
+     * The caller must ensure that the holder releases the original {@link ByteBuf} when the holder is released by
+     * this method.
+     */
+    protected final ByteBuf newDirectBuffer(Object holder, ByteBuf buf) {
+        final int readableBytes = buf.readableBytes();
+        if (readableBytes == 0) {
+            ReferenceCountUtil.release(holder);
+            return Unpooled.EMPTY_BUFFER;
+        }
+
+        final ByteBufAllocator alloc = alloc();
+        if (alloc.isDirectBufferPooled()) {
+            return newDirectBuffer0(holder, buf, alloc, readableBytes);
+        }
+
+        final ByteBuf directBuf = ByteBufUtil.threadLocalDirectBuffer();
+        if (directBuf == null) {
+            return newDirectBuffer0(holder, buf, alloc, readableBytes);
+        }
+
+        directBuf.writeBytes(buf, buf.readerIndex(), readableBytes);
+        ReferenceCountUtil.safeRelease(holder);
+        return directBuf;
+    }
+
+    private static ByteBuf newDirectBuffer0(Object holder, ByteBuf buf, ByteBufAllocator alloc, int capacity) {
+        final ByteBuf directBuf = alloc.directBuffer(capacity);
+        directBuf.writeBytes(buf, buf.readerIndex(), capacity);
+        ReferenceCountUtil.safeRelease(holder);
+        return directBuf;
+    }
+
+    /**
+     * Returns the native memory address of the given direct {@link ByteBuf} at {@code index}.
+     */
+    static long memoryAddress(ByteBuf buf, int index, int length) {
+        if (buf.hasMemoryAddress()) {
+            return buf.memoryAddress() + index;
+        }
+        ByteBuffer nioBuffer = buf.internalNioBuffer(index, length);
+        return Buffer.memoryAddress(nioBuffer) + nioBuffer.position();
+    }
+
+    protected static void checkResolvable(InetSocketAddress addr) {
+        if (addr.isUnresolved()) {
+            throw new UnresolvedAddressException();
+        }
+    }
+
+    protected abstract class AbstractIOUringUnsafe extends AbstractUnsafe {
+        boolean readPending;
+        boolean inReadComplete;
+
+        /**
+         * Schedule the first read of a new read loop.
+         */
+        abstract void scheduleFirstRead();
+
+        /**
+         * Called once a read submitted by this {@link Channel} completed.
+         */
+        abstract void readComplete(int res);
+
+        /**
+         * Called once a write submitted by this {@link Channel} completed.
+         */
+        void writeComplete(int res) {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * Called by the {@link IOUringHandler} once an operation of this {@link Channel} completed.
+         */
+        final void complete(int ioBit, int res) {
+            ioState &= ~ioBit;
+            switch (ioBit) {
+                case READ_SCHEDULED:
+                    inReadComplete = true;
+                    try {
+                        readComplete(res);
+                    } finally {
+                        inReadComplete = false;
+                    }
+                    if (readPending && !isIoScheduled(READ_SCHEDULED) && isActive()) {
+                        // read() was called while the read loop was processed, start a new one.
+                        scheduleFirstRead();
+                    }
+                    break;
+                case WRITE_SCHEDULED:
+                    writeComplete(res);
+                    break;
+                case POLL_OUT_SCHEDULED:
+                    pollOutComplete(res);
+                    break;
+                default:
+                    // The completion of a cancel request, nothing to do.
+                    break;
+            }
+        }
+
+        final void schedulePollOut() {
+            long userData = userData(POLL_OUT_SCHEDULED, Native.IORING_OP_POLL_ADD);
+            if (submissionQueue().addPoll(socket.intValue(), Native.POLLOUT, userData)) {
+                ioScheduled(POLL_OUT_SCHEDULED, userData);
+            }
+        }
+
+        /**
+         * Called once the {@link Native#POLLOUT} submitted by this {@link Channel} completed.
+         */
+        void pollOutComplete(int res) {
+            if (res == Native.ERRNO_ECANCELED_NEGATIVE) {
+                return;
+            }
+            if (connectPromise != null) {
+                // pending connect which is now complete so handle it.
+                finishConnect();
+            } else if (!socket.isOutputShutdown()) {
+                // directly call super.flush0() to force a flush now
+                super.flush0();
+            }
+        }
+
+        /**
+         * Directly flush, bypassing the check for in-flight writes.
+         */
+        final void forceFlush() {
+            super.flush0();
+        }
+
+        @Override
+        protected void flush0() {
+            // Flush immediately only when there's no pending flush.
+            // If there's a pending flush operation, the completion of it will call forceFlush() later,
+            // and thus there's no need to call it now.
+            if (!isIoScheduled(WRITE_SCHEDULED | POLL_OUT_SCHEDULED)) {
+                super.flush0();
+            }
+        }
+
+        /**
+         * Shutdown the input side of the channel.
+         */
+        void shutdownInput(boolean rdHup) {
+            if (!socket.isInputShutdown()) {
+                if (isAllowHalfClosure(config())) {
+                    try {
+                        socket.shutdown(true, false);
+                    } catch (IOException ignored) {
+                        // We attempted to shutdown and failed, which means the input has already effectively been
+                        // shutdown.
+                        fireEventAndClose(ChannelInputShutdownEvent.INSTANCE);
+                        return;
+                    } catch (NotYetConnectedException ignore) {
+                        // We attempted to shutdown and failed, which means the input has already effectively been
+                        // shutdown.
+                    }
+                    pipeline().fireUserEventTriggered(ChannelInputShutdownEvent.INSTANCE);
+                } else {
+                    close(voidPromise());
+                }
+            } else if (!rdHup) {
+                inputClosedSeenErrorOnRead = true;
+                pipeline().fireUserEventTriggered(ChannelInputShutdownReadComplete.INSTANCE);
+            }
+        }
+
+        private void fireEventAndClose(Object evt) {
+            pipeline().fireUserEventTriggered(evt);
+            close(voidPromise());
+        }
+
+        @Override
+        public void connect(
+                final SocketAddress remoteAddress, final SocketAddress localAddress, final ChannelPromise promise) {
+            if (!promise.setUncancellable() || !ensureOpen(promise)) {
+                return;
+            }
+
+            try {
+                if (connectPromise != null) {
+                    throw new ConnectionPendingException();
+                }
+
+                boolean wasActive = isActive();
+                if (doConnect(remoteAddress, localAddress)) {
+                    fulfillConnectPromise(promise, wasActive);
+                } else {
+                    connectPromise = promise;
+                    requestedRemoteAddress = remoteAddress;
+
+                    // Schedule connect timeout.
+                    int connectTimeoutMillis = config().getConnectTimeoutMillis();
+                    if (connectTimeoutMillis > 0) {
+                        connectTimeoutFuture = eventLoop().schedule(() -> {
+                            ChannelPromise connectPromise = AbstractIOUringChannel.this.connectPromise;
+                            ConnectTimeoutException cause =
+                                    new ConnectTimeoutException("connection timed out: " + remoteAddress);
+                            if (connectPromise != null && connectPromise.tryFailure(cause)) {
+                                close(voidPromise());
+                            }
+                        }, connectTimeoutMillis, TimeUnit.MILLISECONDS);
+                    }
+
+                    promise.addListener((ChannelFutureListener) future -> {
+                        if (future.isCancelled()) {
+                            if (connectTimeoutFuture != null) {
+                                connectTimeoutFuture.cancel(false);
+                            }
+                            connectPromise = null;
+                            close(voidPromise());
+                        }
+                    });
+                }
+            } catch (Throwable t) {
+                closeIfClosed();
+                promise.tryFailure(annotateConnectException(t, remoteAddress));
+            }
+        }
+
+        private void fulfillConnectPromise(ChannelPromise promise, boolean wasActive) {
+            if (promise == null) {
+                // Closed via cancellation and the promise has been notified already.
+                return;
+            }
+            active = true;
+
+            // Get the state as trySuccess() may trigger an ChannelFutureListener that will close the Channel.
+            // We still need to ensure we call fireChannelActive() in this case.
+            boolean active = isActive();
+
+            // trySuccess() will return false if a user cancelled the connection attempt.
+            boolean promiseSet = promise.trySuccess();
+
+            // Regardless if the connection attempt was cancelled, channelActive() event should be triggered,
+            // because what happened is what happened.
+            if (!wasActive && active) {
+                pipeline().fireChannelActive();
+                readIfIsAutoRead();
+            }
+
+            // If a user cancelled the connection attempt, close the channel, which is followed by channelInactive().
+            if (!promiseSet) {
+                close(voidPromise());
+            }
+        }
+
+        private void fulfillConnectPromise(ChannelPromise promise, Throwable cause) {
+            if (promise == null) {
+                // Closed via cancellation and the promise has been notified already.
+                return;
+            }
+
+            // Use tryFailure() instead of setFailure() to avoid the race against cancel().
+            promise.tryFailure(cause);
+            closeIfClosed();
+        }
+
+        private void finishConnect() {
+            // Note this method is invoked by the event loop only if the connection attempt was
+            // neither cancelled nor timed out.
+
+            assert eventLoop().inEventLoop();
+
+            boolean connectStillInProgress = false;
+            try {
+                boolean wasActive = isActive();
+                if (!doFinishConnect()) {
+                    connectStillInProgress = true;
+                    return;
+                }
+                fulfillConnectPromise(connectPromise, wasActive);
+            } catch (Throwable t) {
+                fulfillConnectPromise(connectPromise, annotateConnectException(t, requestedRemoteAddress));
+            } finally {
+                if (!connectStillInProgress) {
+                    // Check for null as the connectTimeoutFuture is only created if a connectTimeoutMillis > 0 is used
+                    // See https://github.com/netty/netty/issues/1770
+                    if (connectTimeoutFuture != null) {
+                        connectTimeoutFuture.cancel(false);
+                    }
+                    connectPromise = null;
+                }
+            }
+        }
+
+        /**
+         * Finish the connect
+         */
+        private boolean doFinishConnect() throws Exception {
+            if (socket.finishConnect()) {
+                if (requestedRemoteAddress instanceof InetSocketAddress) {
+                    remote = computeRemoteAddr((InetSocketAddress) requestedRemoteAddress, socket.remoteAddress());
+                }
+                requestedRemoteAddress = null;
+
+                return true;
+            }
+            schedulePollOut();
+            return false;
+        }
+    }
+
+    @Override
+    protected void doBind(SocketAddress local) throws Exception {
+        if (local instanceof InetSocketAddress) {
+            checkResolvable((InetSocketAddress) local);
+        }
+        socket.bind(local);
+        this.local = socket.localAddress();
+    }
+
+    /**
+     * Connect to the remote peer
+     */
+    protected boolean doConnect(SocketAddress remoteAddress, SocketAddress localAddress) throws Exception {
+        if (localAddress instanceof InetSocketAddress) {
+            checkResolvable((InetSocketAddress) localAddress);
+        }
+
+        InetSocketAddress remoteSocketAddr = remoteAddress instanceof InetSocketAddress
+                ? (InetSocketAddress) remoteAddress : null;
+        if (remoteSocketAddr != null) {
+            checkResolvable(remoteSocketAddr);
+        }
+
+        if (remote != null) {
+            // Check if already connected before trying to connect. This is needed as connect(...) will not return -1
+            // and set errno to EISCONN if a previous connect(...) attempt was setting errno to EINPROGRESS and finished
+            // later.
+            throw new AlreadyConnectedException();
+        }
+
+        if (localAddress != null) {
+            socket.bind(localAddress);
+        }
+
+        boolean connected = doConnect0(remoteAddress);
+        if (connected) {
+            remote = remoteSocketAddr == null ?
+                    remoteAddress : computeRemoteAddr(remoteSocketAddr, socket.remoteAddress());
+        }
+        // We always need to set the localAddress even if not connected yet as the bind already took place.
+        //
+        // See https://github.com/netty/netty/issues/3463
+        local = socket.localAddress();
+        return connected;
+    }
+
+    private boolean doConnect0(SocketAddress remote) throws Exception {
+        boolean success = false;
+        try {
+            // The socket is non-blocking so connect(...) will return directly and we use a POLLOUT submission to
+            // be notified once the connection attempt completed.
+            boolean connected = socket.connect(remote);
+            if (!connected) {
+                ((AbstractIOUringUnsafe) unsafe()).schedulePollOut();
+            }
+            success = true;
+            return connected;
+        } finally {
+            if (!success) {
+                doClose();
+            }
+        }
+    }
+
+    @Override
+    protected SocketAddress localAddress0() {
+        return local;
+    }
+
+    @Override
+    protected SocketAddress remoteAddress0() {
+        return remote;
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelConfig;
+import io.netty.channel.ChannelMetadata;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.RecvByteBufAllocator;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.unix.Socket;
+import io.netty.util.UncheckedBooleanSupplier;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+
+import static io.netty.channel.unix.Errors.newIOException;
+import static java.util.Objects.requireNonNull;
+
+public abstract class AbstractIOUringServerChannel extends AbstractIOUringChannel implements ServerChannel {
+    private static final ChannelMetadata METADATA = new ChannelMetadata(false, 16);
+
+    private final EventLoopGroup childEventLoopGroup;
+
+    AbstractIOUringServerChannel(EventLoop eventLoop, EventLoopGroup childEventLoopGroup, Socket fd, boolean active) {
+        super(null, eventLoop, fd, active);
+        this.childEventLoopGroup = requireNonNull(childEventLoopGroup, "childEventLoopGroup");
+    }
+
+    @Override
+    public EventLoopGroup childEventLoopGroup() {
+        return childEventLoopGroup;
+    }
+
+    @Override
+    public ChannelMetadata metadata() {
+        return METADATA;
+    }
+
+    @Override
+    protected InetSocketAddress remoteAddress0() {
+        return null;
+    }
+
+    @Override
+    protected AbstractIOUringUnsafe newUnsafe() {
+        return new IOUringServerSocketUnsafe();
+    }
+
+    @Override
+    protected void doWrite(ChannelOutboundBuffer in) throws Exception {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    protected Object filterOutboundMessage(Object msg) throws Exception {
+        throw new UnsupportedOperationException();
+    }
+
+    abstract Channel newChildChannel(int fd) throws Exception;
+
+    final class IOUringServerSocketUnsafe extends AbstractIOUringUnsafe {
+
+        @Override
+        public void connect(SocketAddress socketAddress, SocketAddress socketAddress2, ChannelPromise channelPromise) {
+            // Connect not supported by ServerChannel implementations
+            channelPromise.setFailure(new UnsupportedOperationException());
+        }
+
+        @Override
+        void scheduleFirstRead() {
+            final ChannelConfig config = config();
+            if (shouldBreakIoUringInReady(config)) {
+                return;
+            }
+            recvBufAllocHandle().reset(config);
+            scheduleAccept();
+        }
+
+        private void scheduleAccept() {
+            recvBufAllocHandle().attemptedBytesRead(1);
+            long userData = userData(READ_SCHEDULED, Native.IORING_OP_ACCEPT);
+            if (submissionQueue().addAccept(socket.intValue(), userData)) {
+                ioScheduled(READ_SCHEDULED, userData);
+            } else {
+                // The submission queue is full, try again once it was drained.
+                eventLoop().execute(() -> {
+                    if (!isIoScheduled(READ_SCHEDULED) && isActive()) {
+                        scheduleAccept();
+                    }
+                });
+            }
+        }
+
+        @Override
+        void readComplete(int res) {
+            if (res == Native.ERRNO_ECANCELED_NEGATIVE) {
+                return;
+            }
+            if (!isOpen()) {
+                // The accept raced with the close of the channel, so just close the accepted socket again.
+                if (res >= 0) {
+                    closeAccepted(res);
+                }
+                return;
+            }
+            final RecvByteBufAllocator.ExtendedHandle allocHandle =
+                    (RecvByteBufAllocator.ExtendedHandle) recvBufAllocHandle();
+            final ChannelPipeline pipeline = pipeline();
+            Throwable exception = null;
+            if (res >= 0) {
+                // lastBytesRead is used to signal that something was accepted so continueReading() works as
+                // expected, the actual value is not important.
+                allocHandle.lastBytesRead(1);
+                allocHandle.incMessagesRead(1);
+                readPending = false;
+                try {
+                    pipeline.fireChannelRead(newChildChannel(res));
+                } catch (Throwable t) {
+                    exception = t;
+                }
+                // There is no way to know if there are more connections to accept, so just keep on submitting
+                // accepts until the allocator tells us to stop.
+                if (exception == null && isActive() &&
+                        allocHandle.continueReading(UncheckedBooleanSupplier.TRUE_SUPPLIER)) {
+                    scheduleAccept();
+                    return;
+                }
+            } else {
+                exception = newIOException("accept", res);
+            }
+            allocHandle.readComplete();
+            pipeline.fireChannelReadComplete();
+
+            if (exception != null) {
+                pipeline.fireExceptionCaught(exception);
+            }
+            readIfIsAutoRead();
+        }
+    }
+
+    private static void closeAccepted(int fd) {
+        try {
+            new Socket(fd).close();
+        } catch (IOException ignore) {
+            // Nothing we can do about it.
+        }
+    }
+
+    @Override
+    protected boolean doConnect(SocketAddress remoteAddress, SocketAddress localAddress) throws Exception {
+        throw new UnsupportedOperationException();
+    }
+}
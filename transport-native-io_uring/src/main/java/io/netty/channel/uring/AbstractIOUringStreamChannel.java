@@ -0,0 +1,409 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelConfig;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelMetadata;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.EventLoop;
+import io.netty.channel.RecvByteBufAllocator;
+import io.netty.channel.socket.DuplexChannel;
+import io.netty.channel.unix.IovArray;
+import io.netty.channel.unix.Socket;
+import io.netty.channel.unix.UnixChannelUtil;
+import io.netty.util.internal.StringUtil;
+import io.netty.util.internal.UnstableApi;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+
+import static io.netty.channel.unix.Errors.newIOException;
+
+/**
+ * Stream based {@link Channel} which submits reads and writes to the {@code io_uring} of its {@link EventLoop}.
+ * At most one read and one write is in-flight at a given time. Gathering writes use {@code writev} with an
+ * {@link IovArray} that is kept alive until the write completed.
+ */
+public abstract class AbstractIOUringStreamChannel extends AbstractIOUringChannel implements DuplexChannel {
+    private static final ChannelMetadata METADATA = new ChannelMetadata(false, 16);
+    private static final String EXPECTED_TYPES =
+            " (expected: " + StringUtil.simpleClassName(ByteBuf.class) + ')';
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(AbstractIOUringStreamChannel.class);
+
+    // Lazy allocated and only released once no write is in-flight anymore.
+    private IovArray iovArray;
+    // The buffer that is used for the in-flight read.
+    private ByteBuf readBuffer;
+    private IOException writeException;
+
+    AbstractIOUringStreamChannel(EventLoop eventLoop, Socket fd, boolean active) {
+        super(null, eventLoop, fd, active);
+    }
+
+    AbstractIOUringStreamChannel(Channel parent, EventLoop eventLoop, Socket fd) {
+        super(parent, eventLoop, fd, true);
+    }
+
+    @Override
+    protected AbstractIOUringUnsafe newUnsafe() {
+        return new IOUringStreamUnsafe();
+    }
+
+    @Override
+    public ChannelMetadata metadata() {
+        return METADATA;
+    }
+
+    @Override
+    protected void doWrite(ChannelOutboundBuffer in) throws Exception {
+        IOException cause = writeException;
+        if (cause != null) {
+            writeException = null;
+            throw cause;
+        }
+        if (isIoScheduled(WRITE_SCHEDULED)) {
+            // The completion of the in-flight write will trigger the next one.
+            return;
+        }
+        for (;;) {
+            final int msgCount = in.size();
+            if (msgCount == 0) {
+                return;
+            }
+            if (msgCount > 1 && in.current() instanceof ByteBuf) {
+                scheduleWriteMultiple(in);
+                return;
+            }
+            ByteBuf buf = (ByteBuf) in.current();
+            int readableBytes = buf.readableBytes();
+            if (readableBytes == 0) {
+                in.remove();
+                continue;
+            }
+            scheduleWriteSingle(buf, readableBytes);
+            return;
+        }
+    }
+
+    private void scheduleWriteMultiple(ChannelOutboundBuffer in) throws Exception {
+        IovArray array = iovArray;
+        if (array == null) {
+            iovArray = array = new IovArray();
+        } else {
+            array.clear();
+        }
+        in.forEachFlushedMessage(array);
+        int count = array.count();
+        if (count == 0) {
+            // The outbound buffer contained empty buffers only.
+            in.removeBytes(0);
+            return;
+        }
+        long userData = userData(WRITE_SCHEDULED, Native.IORING_OP_WRITEV);
+        if (submissionQueue().addWritev(socket.intValue(), array.memoryAddress(0), count, userData)) {
+            ioScheduled(WRITE_SCHEDULED, userData);
+        } else {
+            scheduleFlushRetry();
+        }
+    }
+
+    private void scheduleWriteSingle(ByteBuf buf, int readableBytes) {
+        long address = memoryAddress(buf, buf.readerIndex(), readableBytes);
+        long userData = userData(WRITE_SCHEDULED, Native.IORING_OP_WRITE);
+        if (submissionQueue().addWrite(socket.intValue(), address, readableBytes, userData)) {
+            ioScheduled(WRITE_SCHEDULED, userData);
+        } else {
+            scheduleFlushRetry();
+        }
+    }
+
+    private void scheduleFlushRetry() {
+        // The submission queue is full, try again once it was drained.
+        eventLoop().execute(() -> ((AbstractIOUringUnsafe) unsafe()).flush0());
+    }
+
+    @Override
+    protected Object filterOutboundMessage(Object msg) {
+        if (msg instanceof ByteBuf) {
+            ByteBuf buf = (ByteBuf) msg;
+            return UnixChannelUtil.isBufferCopyNeededForWrite(buf)? newDirectBuffer(buf): buf;
+        }
+
+        throw new UnsupportedOperationException(
+                "unsupported message type: " + StringUtil.simpleClassName(msg) + EXPECTED_TYPES);
+    }
+
+    @Override
+    protected void doClose() throws Exception {
+        try {
+            super.doClose();
+        } finally {
+            releaseIovArrayIfPossible();
+        }
+    }
+
+    private void releaseIovArrayIfPossible() {
+        // The kernel may still access the memory if a write is in-flight, in this case the array will be released
+        // once the write completed.
+        if (iovArray != null && !isIoScheduled(WRITE_SCHEDULED)) {
+            iovArray.release();
+            iovArray = null;
+        }
+    }
+
+    @UnstableApi
+    @Override
+    protected final void doShutdownOutput() throws Exception {
+        socket.shutdown(false, true);
+    }
+
+    private void shutdownInput0(final ChannelPromise promise) {
+        try {
+            socket.shutdown(true, false);
+            promise.setSuccess();
+        } catch (Throwable cause) {
+            promise.setFailure(cause);
+        }
+    }
+
+    @Override
+    public boolean isOutputShutdown() {
+        return socket.isOutputShutdown();
+    }
+
+    @Override
+    public boolean isInputShutdown() {
+        return socket.isInputShutdown();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return socket.isShutdown();
+    }
+
+    @Override
+    public ChannelFuture shutdownOutput() {
+        return shutdownOutput(newPromise());
+    }
+
+    @Override
+    public ChannelFuture shutdownOutput(final ChannelPromise promise) {
+        EventLoop loop = eventLoop();
+        if (loop.inEventLoop()) {
+            ((AbstractUnsafe) unsafe()).shutdownOutput(promise);
+        } else {
+            loop.execute(() -> ((AbstractUnsafe) unsafe()).shutdownOutput(promise));
+        }
+
+        return promise;
+    }
+
+    @Override
+    public ChannelFuture shutdownInput() {
+        return shutdownInput(newPromise());
+    }
+
+    @Override
+    public ChannelFuture shutdownInput(final ChannelPromise promise) {
+        Executor closeExecutor = ((IOUringStreamUnsafe) unsafe()).prepareToClose();
+        if (closeExecutor != null) {
+            closeExecutor.execute(() -> shutdownInput0(promise));
+        } else {
+            EventLoop loop = eventLoop();
+            if (loop.inEventLoop()) {
+                shutdownInput0(promise);
+            } else {
+                loop.execute(() -> shutdownInput0(promise));
+            }
+        }
+        return promise;
+    }
+
+    @Override
+    public ChannelFuture shutdown() {
+        return shutdown(newPromise());
+    }
+
+    @Override
+    public ChannelFuture shutdown(final ChannelPromise promise) {
+        ChannelFuture shutdownOutputFuture = shutdownOutput();
+        if (shutdownOutputFuture.isDone()) {
+            shutdownOutputDone(shutdownOutputFuture, promise);
+        } else {
+            shutdownOutputFuture.addListener((ChannelFutureListener) shutdownOutputFuture1 ->
+                    shutdownOutputDone(shutdownOutputFuture1, promise));
+        }
+        return promise;
+    }
+
+    private void shutdownOutputDone(final ChannelFuture shutdownOutputFuture, final ChannelPromise promise) {
+        ChannelFuture shutdownInputFuture = shutdownInput();
+        if (shutdownInputFuture.isDone()) {
+            shutdownDone(shutdownOutputFuture, shutdownInputFuture, promise);
+        } else {
+            shutdownInputFuture.addListener((ChannelFutureListener) shutdownInputFuture1 ->
+                    shutdownDone(shutdownOutputFuture, shutdownInputFuture1, promise));
+        }
+    }
+
+    private static void shutdownDone(ChannelFuture shutdownOutputFuture,
+                              ChannelFuture shutdownInputFuture,
+                              ChannelPromise promise) {
+        Throwable shutdownOutputCause = shutdownOutputFuture.cause();
+        Throwable shutdownInputCause = shutdownInputFuture.cause();
+        if (shutdownOutputCause != null) {
+            if (shutdownInputCause != null) {
+                logger.debug("Exception suppressed because a previous exception occurred.",
+                        shutdownInputCause);
+            }
+            promise.setFailure(shutdownOutputCause);
+        } else if (shutdownInputCause != null) {
+            promise.setFailure(shutdownInputCause);
+        } else {
+            promise.setSuccess();
+        }
+    }
+
+    class IOUringStreamUnsafe extends AbstractIOUringUnsafe {
+        // Overridden here just to be able to access this method from AbstractIOUringStreamChannel
+        @Override
+        protected Executor prepareToClose() {
+            return super.prepareToClose();
+        }
+
+        @Override
+        void scheduleFirstRead() {
+            final ChannelConfig config = config();
+            if (shouldBreakIoUringInReady(config)) {
+                return;
+            }
+            recvBufAllocHandle().reset(config);
+            scheduleRead();
+        }
+
+        private void scheduleRead() {
+            final RecvByteBufAllocator.ExtendedHandle allocHandle =
+                    (RecvByteBufAllocator.ExtendedHandle) recvBufAllocHandle();
+            final ByteBufAllocator allocator = config().getAllocator();
+            ByteBuf byteBuf = allocHandle.allocate(allocator);
+            if (!byteBuf.isDirect()) {
+                // The kernel needs a stable memory address to read into.
+                int capacity = byteBuf.capacity();
+                byteBuf.release();
+                byteBuf = allocator.directBuffer(capacity);
+            }
+            int writable = byteBuf.writableBytes();
+            allocHandle.attemptedBytesRead(writable);
+            long address = memoryAddress(byteBuf, byteBuf.writerIndex(), writable);
+            long userData = userData(READ_SCHEDULED, Native.IORING_OP_READ);
+            if (submissionQueue().addRead(socket.intValue(), address, writable, userData)) {
+                readBuffer = byteBuf;
+                ioScheduled(READ_SCHEDULED, userData);
+            } else {
+                byteBuf.release();
+                // The submission queue is full, try again once it was drained.
+                eventLoop().execute(() -> {
+                    if (!isIoScheduled(READ_SCHEDULED) && isActive()) {
+                        scheduleRead();
+                    }
+                });
+            }
+        }
+
+        @Override
+        void readComplete(int res) {
+            final ByteBuf byteBuf = readBuffer;
+            readBuffer = null;
+            assert byteBuf != null;
+            if (res == Native.ERRNO_ECANCELED_NEGATIVE || !isOpen()) {
+                // The read raced with the close of the channel.
+                byteBuf.release();
+                return;
+            }
+            final ChannelConfig config = config();
+            final RecvByteBufAllocator.ExtendedHandle allocHandle =
+                    (RecvByteBufAllocator.ExtendedHandle) recvBufAllocHandle();
+            final ChannelPipeline pipeline = pipeline();
+            if (res < 0) {
+                byteBuf.release();
+                handleReadException(pipeline, newIOException("read", res), allocHandle);
+                return;
+            }
+
+            allocHandle.lastBytesRead(res);
+            if (res == 0) {
+                // There is nothing left to read as we received an EOF.
+                byteBuf.release();
+                readPending = false;
+                allocHandle.readComplete();
+                pipeline.fireChannelReadComplete();
+                shutdownInput(false);
+                // If half-closure is allowed we need to read once more to notice that there is nothing left to read.
+                readIfIsAutoRead();
+                return;
+            }
+
+            byteBuf.writerIndex(byteBuf.writerIndex() + res);
+            allocHandle.incMessagesRead(1);
+            readPending = false;
+            pipeline.fireChannelRead(byteBuf);
+
+            if (!shouldBreakIoUringInReady(config) && isActive() && allocHandle.continueReading()) {
+                // The buffer was filled completely, so there may be more data to read. Stay in the same read loop.
+                scheduleRead();
+                return;
+            }
+            allocHandle.readComplete();
+            pipeline.fireChannelReadComplete();
+            readIfIsAutoRead();
+        }
+
+        private void handleReadException(ChannelPipeline pipeline, IOException cause,
+                                         RecvByteBufAllocator.Handle allocHandle) {
+            allocHandle.readComplete();
+            pipeline.fireChannelReadComplete();
+            pipeline.fireExceptionCaught(cause);
+            shutdownInput(false);
+        }
+
+        @Override
+        void writeComplete(int res) {
+            if (res == Native.ERRNO_ECANCELED_NEGATIVE || !isOpen()) {
+                releaseIovArrayIfPossible();
+                return;
+            }
+            if (res < 0) {
+                // Let doWrite(...) throw the exception so it is handled like for every other transport.
+                writeException = newIOException("write", res);
+            } else {
+                ChannelOutboundBuffer in = outboundBuffer();
+                if (in != null) {
+                    in.removeBytes(res);
+                }
+            }
+            forceFlush();
+        }
+    }
+}
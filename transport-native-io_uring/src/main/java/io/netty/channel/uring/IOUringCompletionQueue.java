@@ -0,0 +1,87 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.util.internal.PlatformDependent;
+
+/**
+ * The completion queue of an {@code io_uring} instance.
+ * <p>
+ * <strong>Not thread-safe</strong>, must only be used from the {@link IOUringHandler} thread.
+ */
+final class IOUringCompletionQueue {
+    private static final int CQE_SIZE = 16;
+    private static final int CQE_USER_DATA_FIELD = 0;
+    private static final int CQE_RES_FIELD = 8;
+    private static final int CQE_FLAGS_FIELD = 12;
+
+    private final long kHeadAddress;
+    private final long kTailAddress;
+    private final long completionQueueArrayAddress;
+    private final int ringMask;
+
+    private int head;
+
+    IOUringCompletionQueue(long kHeadAddress, long kTailAddress, long kRingMaskAddress,
+                           long completionQueueArrayAddress) {
+        this.kHeadAddress = kHeadAddress;
+        this.kTailAddress = kTailAddress;
+        this.completionQueueArrayAddress = completionQueueArrayAddress;
+        ringMask = PlatformDependent.getInt(kRingMaskAddress);
+        head = PlatformDependent.getIntVolatile(kHeadAddress);
+    }
+
+    /**
+     * Returns {@code true} if there are completions that can be processed via {@link #process(CompletionCallback)}.
+     */
+    boolean hasCompletions() {
+        return head != PlatformDependent.getIntVolatile(kTailAddress);
+    }
+
+    /**
+     * Process all completions that are ready and return how many were processed.
+     */
+    int process(CompletionCallback callback) {
+        int processed = 0;
+        int tail = PlatformDependent.getIntVolatile(kTailAddress);
+        while (head != tail) {
+            long cqe = completionQueueArrayAddress + (long) (head & ringMask) * CQE_SIZE;
+            long userData = PlatformDependent.getLong(cqe + CQE_USER_DATA_FIELD);
+            int res = PlatformDependent.getInt(cqe + CQE_RES_FIELD);
+            int flags = PlatformDependent.getInt(cqe + CQE_FLAGS_FIELD);
+
+            // Hand the slot back to the kernel before calling the callback as it may submit new operations.
+            head++;
+            PlatformDependent.putIntOrdered(kHeadAddress, head);
+            processed++;
+
+            callback.handle(userData, res, flags);
+
+            if (head == tail) {
+                // Check if more completions were produced in the meantime.
+                tail = PlatformDependent.getIntVolatile(kTailAddress);
+            }
+        }
+        return processed;
+    }
+
+    /**
+     * Callback that is notified for every completion.
+     */
+    interface CompletionCallback {
+        void handle(long userData, int res, int flags);
+    }
+}
@@ -0,0 +1,325 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.channel.Channel;
+import io.netty.channel.IoExecutionContext;
+import io.netty.channel.IoHandler;
+import io.netty.channel.IoHandlerFactory;
+import io.netty.channel.uring.AbstractIOUringChannel.AbstractIOUringUnsafe;
+import io.netty.channel.unix.Buffer;
+import io.netty.channel.unix.FileDescriptor;
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap;
+import io.netty.util.internal.StringUtil;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static io.netty.util.internal.ObjectUtil.checkPositive;
+
+/**
+ * {@link IoHandler} which uses {@code io_uring} under the covers. Only works on Linux!
+ * <p>
+ * All operations of the registered {@link Channel}s are added to the submission queue of the ring and submitted in
+ * one batch, using one {@code io_uring_enter(...)} call per loop iteration that also waits for new completions if
+ * there is nothing else to do.
+ */
+public final class IOUringHandler implements IoHandler {
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(IOUringHandler.class);
+
+    static {
+        // Ensure JNI is initialized by the time this class is loaded by this time!
+        // We use unix-common methods in this class which are backed by JNI methods.
+        IOUring.ensureAvailability();
+    }
+
+    // The id that is used for the eventfd read, channels always use ids > 0.
+    private static final int EVENTFD_ID = 0;
+    private static final long DESTROY_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final RingBuffer ringBuffer;
+    private final IOUringSubmissionQueue submissionQueue;
+    private final IOUringCompletionQueue completionQueue;
+    private final IOUringCompletionQueue.CompletionCallback completionCallback = this::handle;
+    private final IntObjectMap<DefaultIOUringRegistration> registrations = new IntObjectHashMap<>(4096);
+    private final FileDescriptor eventFd;
+    // Used as target for the eventfd reads, the content itself is not interesting.
+    private final ByteBuffer eventFdBuffer;
+    private final long eventFdBufferAddress;
+    private final AtomicInteger wakenUp = new AtomicInteger(1);
+    private final LongAdder wakeups = new LongAdder();
+    private boolean eventFdReadPending;
+    // Only set while completions are processed from within run(...).
+    private IoExecutionContext runContext;
+    private int nextId = EVENTFD_ID;
+
+    private static AbstractIOUringChannel cast(Channel channel) {
+        if (channel instanceof AbstractIOUringChannel) {
+            return (AbstractIOUringChannel) channel;
+        }
+        throw new IllegalArgumentException("Channel of type " + StringUtil.simpleClassName(channel) + " not supported");
+    }
+
+    private IOUringHandler() {
+        this(Native.DEFAULT_RING_SIZE);
+    }
+
+    // Package-private for tests.
+    IOUringHandler(int ringSize) {
+        ringBuffer = Native.createRingBuffer(ringSize);
+        boolean success = false;
+        try {
+            eventFd = Native.newEventFd();
+            success = true;
+        } finally {
+            if (!success) {
+                ringBuffer.close();
+            }
+        }
+        submissionQueue = ringBuffer.submissionQueue();
+        completionQueue = ringBuffer.completionQueue();
+        eventFdBuffer = Buffer.allocateDirectWithNativeOrder(Long.BYTES);
+        eventFdBufferAddress = Buffer.memoryAddress(eventFdBuffer);
+    }
+
+    /**
+     * Returns a new {@link IoHandlerFactory} that creates {@link IOUringHandler} instances.
+     */
+    public static IoHandlerFactory newFactory() {
+        return IOUringHandler::new;
+    }
+
+    /**
+     * Returns a new {@link IoHandlerFactory} that creates {@link IOUringHandler} instances, which use a ring with
+     * the given number of entries.
+     */
+    public static IoHandlerFactory newFactory(final int ringSize) {
+        checkPositive(ringSize, "ringSize");
+        return () -> new IOUringHandler(ringSize);
+    }
+
+    @Override
+    public void register(Channel channel) throws Exception {
+        final AbstractIOUringChannel ch = cast(channel);
+        DefaultIOUringRegistration registration = new DefaultIOUringRegistration(nextId(), ch);
+        ch.register0(registration);
+        registrations.put(registration.id, registration);
+    }
+
+    private int nextId() {
+        // Ids are only re-used once all the operations of the previous owner completed, which guarantees that we never
+        // dispatch a completion to the wrong channel, even if the file descriptor was already re-used.
+        do {
+            nextId++;
+        } while (nextId == EVENTFD_ID || registrations.containsKey(nextId));
+        return nextId;
+    }
+
+    @Override
+    public void deregister(Channel channel) throws Exception {
+        cast(channel).deregister0();
+    }
+
+    @Override
+    public void wakeup(boolean inEventLoop) {
+        if (!inEventLoop && wakenUp.getAndSet(1) == 0) {
+            // write to the evfd which will then complete the pending read and so wake-up io_uring_enter(...)
+            Native.eventFdWrite(eventFd.intValue(), 1L);
+            wakeups.increment();
+        }
+    }
+
+    @Override
+    public int run(IoExecutionContext context) {
+        int handled = 0;
+        try {
+            if (!eventFdReadPending) {
+                eventFdReadPending = submissionQueue.addRead(eventFd.intValue(), eventFdBufferAddress, Long.BYTES,
+                        UserData.encode(EVENTFD_ID, Native.IORING_OP_READ, (short) 0));
+            }
+            if (context.canBlock() && !completionQueue.hasCompletions()) {
+                wakenUp.set(0);
+                try {
+                    // Check again as a task may have been added before we reset wakenUp.
+                    if (context.canBlock()) {
+                        context.reportBlocking();
+                        try {
+                            submissionQueue.submitAndWait(context.delayNanos(System.nanoTime()));
+                        } finally {
+                            context.reportUnblocked();
+                        }
+                    } else {
+                        submissionQueue.submit();
+                    }
+                } finally {
+                    // Other threads don't need to write to the eventfd until we are about to block again.
+                    wakenUp.set(1);
+                }
+            } else {
+                submissionQueue.submit();
+            }
+            runContext = context;
+            try {
+                handled = completionQueue.process(completionCallback);
+            } finally {
+                runContext = null;
+            }
+        } catch (Throwable t) {
+            handleLoopException(t);
+        }
+        return handled;
+    }
+
+    /**
+     * Visible only for testing!
+     */
+    void handleLoopException(Throwable t) {
+        logger.warn("Unexpected exception in the io_uring loop.", t);
+
+        // Prevent possible consecutive immediate failures that lead to
+        // excessive CPU consumption.
+        try {
+            Thread.sleep(1000);
+        } catch (InterruptedException e) {
+            // Ignore.
+        }
+    }
+
+    private void handle(long userData, int res, int flags) {
+        if (UserData.decodeOp(userData) == Native.IORING_OP_ASYNC_CANCEL) {
+            // The completion of the cancelled operation itself is what we are interested in.
+            return;
+        }
+        int id = UserData.decodeId(userData);
+        if (id == EVENTFD_ID) {
+            eventFdReadPending = false;
+            return;
+        }
+        DefaultIOUringRegistration registration = registrations.get(id);
+        if (registration == null) {
+            return;
+        }
+        AbstractIOUringChannel ch = registration.channel;
+        if (runContext != null) {
+            runContext.reportProgress(ch);
+        }
+        ((AbstractIOUringUnsafe) ch.unsafe()).complete(UserData.decodeData(userData), res);
+        registration.removeIfDone();
+    }
+
+    @Override
+    public void prepareToDestroy() {
+        // Using the intermediate collection to prevent ConcurrentModificationException.
+        // In the `close()` method, the channel is deleted from `registrations` map.
+        DefaultIOUringRegistration[] localRegistrations =
+                registrations.values().toArray(new DefaultIOUringRegistration[0]);
+
+        for (DefaultIOUringRegistration registration: localRegistrations) {
+            AbstractIOUringChannel ch = registration.channel;
+            ch.unsafe().close(ch.unsafe().voidPromise());
+        }
+    }
+
+    @Override
+    public int registeredChannels() {
+        return registrations.size();
+    }
+
+    @Override
+    public long wakeups() {
+        return wakeups.sum();
+    }
+
+    @Override
+    public void destroy() {
+        try {
+            if (eventFdReadPending) {
+                submissionQueue.addCancel(UserData.encode(EVENTFD_ID, Native.IORING_OP_READ, (short) 0),
+                        UserData.encode(EVENTFD_ID, Native.IORING_OP_ASYNC_CANCEL, (short) 0));
+            }
+            // Wait until the kernel does not access any memory anymore that belongs to us or one of the channels.
+            long deadline = System.nanoTime() + DESTROY_TIMEOUT_NANOS;
+            while (eventFdReadPending || !registrations.isEmpty()) {
+                long timeout = deadline - System.nanoTime();
+                if (timeout <= 0) {
+                    logger.warn("Operations still in-flight after {}ms, giving up.",
+                            TimeUnit.NANOSECONDS.toMillis(DESTROY_TIMEOUT_NANOS));
+                    break;
+                }
+                submissionQueue.submitAndWait(timeout);
+                completionQueue.process(completionCallback);
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to drain the completion queue.", e);
+        } finally {
+            ringBuffer.close();
+            try {
+                eventFd.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close the event fd.", e);
+            }
+            if (!eventFdReadPending) {
+                // Only release the memory if we are sure the kernel will not write into it anymore.
+                Buffer.free(eventFdBuffer);
+            }
+        }
+    }
+
+    private final class DefaultIOUringRegistration implements IOUringRegistration {
+        private final int id;
+        private final AbstractIOUringChannel channel;
+        private boolean removed;
+
+        DefaultIOUringRegistration(int id, AbstractIOUringChannel channel) {
+            this.id = id;
+            this.channel = channel;
+        }
+
+        @Override
+        public int id() {
+            return id;
+        }
+
+        @Override
+        public IOUringSubmissionQueue submissionQueue() {
+            return submissionQueue;
+        }
+
+        @Override
+        public void submit() throws IOException {
+            submissionQueue.submit();
+        }
+
+        @Override
+        public void remove() {
+            removed = true;
+            removeIfDone();
+        }
+
+        void removeIfDone() {
+            // Keep the mapping as long as there are operations in-flight so we can still dispatch their completions.
+            if (removed && channel.ioState == 0 && registrations.get(id) == this) {
+                registrations.remove(id);
+            }
+        }
+    }
+}
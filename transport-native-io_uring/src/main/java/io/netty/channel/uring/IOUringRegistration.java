@@ -0,0 +1,45 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import java.io.IOException;
+
+/**
+ * Registration with an {@link IOUringHandler}.
+ */
+interface IOUringRegistration {
+
+    /**
+     * The id of this registration which is encoded into the {@code user_data} of every submission, see
+     * {@link UserData}.
+     */
+    int id();
+
+    /**
+     * Returns the {@link IOUringSubmissionQueue} to which operations for this registration should be added.
+     */
+    IOUringSubmissionQueue submissionQueue();
+
+    /**
+     * Submit all pending operations to the kernel now without waiting for the next loop iteration.
+     */
+    void submit() throws IOException;
+
+    /**
+     * Remove the registration. No more IO will be handled for it once all in-flight operations completed.
+     */
+    void remove();
+}
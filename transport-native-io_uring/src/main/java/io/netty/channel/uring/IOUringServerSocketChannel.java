@@ -0,0 +1,78 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.socket.ServerSocketChannel;
+import io.netty.channel.unix.Socket;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+
+import static io.netty.channel.unix.Socket.newSocketStream;
+
+/**
+ * {@link ServerSocketChannel} implementation that uses linux {@code io_uring} to accept new connections.
+ */
+public final class IOUringServerSocketChannel extends AbstractIOUringServerChannel implements ServerSocketChannel {
+
+    private final IOUringServerSocketChannelConfig config;
+
+    public IOUringServerSocketChannel(EventLoop eventLoop, EventLoopGroup childEventLoopGroup) {
+        super(eventLoop, childEventLoopGroup, newSocketStream(), false);
+        config = new IOUringServerSocketChannelConfig(this);
+    }
+
+    public IOUringServerSocketChannel(EventLoop eventLoop, EventLoopGroup childEventLoopGroup, int fd) {
+        // Must call this constructor to ensure this object's local address is configured correctly.
+        // The local address can only be obtained from a Socket object.
+        this(eventLoop, childEventLoopGroup, new Socket(fd));
+    }
+
+    private IOUringServerSocketChannel(EventLoop eventLoop, EventLoopGroup childEventLoopGroup, Socket fd) {
+        super(eventLoop, childEventLoopGroup, fd, isSoErrorZero(fd));
+        config = new IOUringServerSocketChannelConfig(this);
+    }
+
+    @Override
+    protected void doBind(SocketAddress localAddress) throws Exception {
+        super.doBind(localAddress);
+        socket.listen(config.getBacklog());
+        active = true;
+    }
+
+    @Override
+    public InetSocketAddress remoteAddress() {
+        return (InetSocketAddress) super.remoteAddress();
+    }
+
+    @Override
+    public InetSocketAddress localAddress() {
+        return (InetSocketAddress) super.localAddress();
+    }
+
+    @Override
+    public IOUringServerSocketChannelConfig config() {
+        return config;
+    }
+
+    @Override
+    Channel newChildChannel(int fd) throws Exception {
+        return new IOUringSocketChannel(this, childEventLoopGroup().next(), new Socket(fd));
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoop;
+import io.netty.channel.socket.ServerSocketChannel;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.unix.Socket;
+import io.netty.util.concurrent.GlobalEventExecutor;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.Executor;
+
+import static io.netty.channel.unix.Socket.newSocketStream;
+
+/**
+ * {@link SocketChannel} implementation that uses linux {@code io_uring} to submit reads and writes to the kernel.
+ */
+public final class IOUringSocketChannel extends AbstractIOUringStreamChannel implements SocketChannel {
+
+    private final IOUringSocketChannelConfig config;
+
+    public IOUringSocketChannel(EventLoop eventLoop) {
+        super(eventLoop, newSocketStream(), false);
+        config = new IOUringSocketChannelConfig(this);
+    }
+
+    public IOUringSocketChannel(EventLoop eventLoop, int fd) {
+        this(eventLoop, new Socket(fd));
+    }
+
+    private IOUringSocketChannel(EventLoop eventLoop, Socket fd) {
+        super(eventLoop, fd, isSoErrorZero(fd));
+        config = new IOUringSocketChannelConfig(this);
+    }
+
+    IOUringSocketChannel(Channel parent, EventLoop eventLoop, Socket fd) {
+        super(parent, eventLoop, fd);
+        config = new IOUringSocketChannelConfig(this);
+    }
+
+    @Override
+    public InetSocketAddress remoteAddress() {
+        return (InetSocketAddress) super.remoteAddress();
+    }
+
+    @Override
+    public InetSocketAddress localAddress() {
+        return (InetSocketAddress) super.localAddress();
+    }
+
+    @Override
+    public IOUringSocketChannelConfig config() {
+        return config;
+    }
+
+    @Override
+    public ServerSocketChannel parent() {
+        return (ServerSocketChannel) super.parent();
+    }
+
+    @Override
+    protected AbstractIOUringUnsafe newUnsafe() {
+        return new IOUringSocketChannelUnsafe();
+    }
+
+    private final class IOUringSocketChannelUnsafe extends IOUringStreamUnsafe {
+        @Override
+        protected Executor prepareToClose() {
+            try {
+                // Check isOpen() first as otherwise it will throw a RuntimeException
+                // when call getSoLinger() as the fd is not valid anymore.
+                if (isOpen() && config().getSoLinger() > 0) {
+                    // We need to cancel all in-flight operations of the channel as the actual close may happen
+                    // later due SO_LINGER handling.
+                    // See https://github.com/netty/netty/issues/4449
+                    doDeregister();
+                    return GlobalEventExecutor.INSTANCE;
+                }
+            } catch (Throwable ignore) {
+                // Ignore the error as the underlying channel may be closed in the meantime and so
+                // getSoLinger() may produce an exception. In this case we just return null.
+                // See https://github.com/netty/netty/issues/4449
+            }
+            return null;
+        }
+    }
+}
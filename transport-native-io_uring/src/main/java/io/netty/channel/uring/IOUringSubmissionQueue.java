@@ -0,0 +1,203 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.util.internal.PlatformDependent;
+
+import java.io.IOException;
+
+import static io.netty.channel.unix.Errors.ERRNO_EAGAIN_NEGATIVE;
+import static io.netty.channel.unix.Errors.newIOException;
+
+/**
+ * The submission queue of an {@code io_uring} instance. Entries are only added to the ring and are not seen by the
+ * kernel until {@link #submit()} (or one of its variants) is called, which allows to submit many operations with
+ * a single syscall.
+ * <p>
+ * <strong>Not thread-safe</strong>, must only be used from the {@link IOUringHandler} thread.
+ */
+final class IOUringSubmissionQueue {
+    private static final int SQE_SIZE = 64;
+    private static final int INT_SIZE = Integer.BYTES;
+    // See include/uapi/linux/io_uring.h
+    private static final int ERRNO_EBUSY_NEGATIVE = -16;
+
+    private static final int SQE_OP_CODE_FIELD = 0;
+    private static final int SQE_FLAGS_FIELD = 1;
+    private static final int SQE_FD_FIELD = 4;
+    private static final int SQE_OFFSET_FIELD = 8;
+    private static final int SQE_ADDRESS_FIELD = 16;
+    private static final int SQE_LEN_FIELD = 24;
+    private static final int SQE_RW_FLAGS_FIELD = 28;
+    private static final int SQE_USER_DATA_FIELD = 32;
+
+    private final int ringFd;
+    private final long kHeadAddress;
+    private final long kTailAddress;
+    private final int ringMask;
+    private final int ringEntries;
+    private final long submissionQueueArrayAddress;
+    private final long submissionQueueEntriesAddress;
+
+    private int head;
+    private int tail;
+
+    IOUringSubmissionQueue(int ringFd, long kHeadAddress, long kTailAddress, long kRingMaskAddress,
+                           long kRingEntriesAddress, long submissionQueueArrayAddress,
+                           long submissionQueueEntriesAddress) {
+        this.ringFd = ringFd;
+        this.kHeadAddress = kHeadAddress;
+        this.kTailAddress = kTailAddress;
+        this.submissionQueueArrayAddress = submissionQueueArrayAddress;
+        this.submissionQueueEntriesAddress = submissionQueueEntriesAddress;
+        ringMask = PlatformDependent.getInt(kRingMaskAddress);
+        ringEntries = PlatformDependent.getInt(kRingEntriesAddress);
+        head = PlatformDependent.getIntVolatile(kHeadAddress);
+        tail = PlatformDependent.getIntVolatile(kTailAddress);
+
+        // We always use the same index for the entry and the slot in the array, so we can fill it upfront and never
+        // need to touch it again.
+        for (int i = 0; i < ringEntries; i++) {
+            PlatformDependent.putInt(submissionQueueArrayAddress + (long) i * INT_SIZE, i);
+        }
+    }
+
+    /**
+     * Returns the number of entries that were added but not yet consumed by the kernel.
+     */
+    int pending() {
+        return tail - head;
+    }
+
+    /**
+     * Returns the maximal number of entries in this queue.
+     */
+    int capacity() {
+        return ringEntries;
+    }
+
+    boolean addRead(int fd, long address, int length, long userData) {
+        return enqueue(Native.IORING_OP_READ, fd, address, length, 0, 0, userData);
+    }
+
+    boolean addWrite(int fd, long address, int length, long userData) {
+        return enqueue(Native.IORING_OP_WRITE, fd, address, length, 0, 0, userData);
+    }
+
+    boolean addWritev(int fd, long iovAddress, int iovCount, long userData) {
+        return enqueue(Native.IORING_OP_WRITEV, fd, iovAddress, iovCount, 0, 0, userData);
+    }
+
+    boolean addAccept(int fd, long userData) {
+        return enqueue(Native.IORING_OP_ACCEPT, fd, 0, 0, 0, Native.SOCK_NONBLOCK | Native.SOCK_CLOEXEC,
+                userData);
+    }
+
+    boolean addPoll(int fd, int pollMask, long userData) {
+        return enqueue(Native.IORING_OP_POLL_ADD, fd, 0, 0, 0, pollMask, userData);
+    }
+
+    boolean addCancel(long userDataToCancel, long userData) {
+        return enqueue(Native.IORING_OP_ASYNC_CANCEL, -1, userDataToCancel, 0, 0, 0, userData);
+    }
+
+    private boolean enqueue(byte op, int fd, long address, int length, long offset, int rwFlags,
+                            long userData) {
+        if (tail - head == ringEntries) {
+            // The kernel may have consumed some entries since we checked the last time.
+            head = PlatformDependent.getIntVolatile(kHeadAddress);
+            if (tail - head == ringEntries) {
+                // Still full, hand what we have over to the kernel.
+                submitNoThrow();
+                if (tail - head == ringEntries) {
+                    return false;
+                }
+            }
+        }
+        long sqe = submissionQueueEntriesAddress + (long) (tail & ringMask) * SQE_SIZE;
+        PlatformDependent.setMemory(sqe, SQE_SIZE, (byte) 0);
+        PlatformDependent.putByte(sqe + SQE_OP_CODE_FIELD, op);
+        PlatformDependent.putByte(sqe + SQE_FLAGS_FIELD, (byte) 0);
+        PlatformDependent.putInt(sqe + SQE_FD_FIELD, fd);
+        PlatformDependent.putLong(sqe + SQE_OFFSET_FIELD, offset);
+        PlatformDependent.putLong(sqe + SQE_ADDRESS_FIELD, address);
+        PlatformDependent.putInt(sqe + SQE_LEN_FIELD, length);
+        PlatformDependent.putInt(sqe + SQE_RW_FLAGS_FIELD, rwFlags);
+        PlatformDependent.putLong(sqe + SQE_USER_DATA_FIELD, userData);
+        tail++;
+        return true;
+    }
+
+    /**
+     * Submit all pending entries without waiting for any completion.
+     */
+    int submit() throws IOException {
+        return submit(0, 0);
+    }
+
+    /**
+     * Submit all pending entries and wait until at least one completion is produced.
+     */
+    int submitAndWait() throws IOException {
+        return submit(1, Native.IORING_ENTER_GETEVENTS);
+    }
+
+    /**
+     * Submit all pending entries and wait until at least one completion is produced or the timeout elapsed.
+     */
+    int submitAndWait(long timeoutNanos) throws IOException {
+        int toSubmit = publish();
+        int ret = Native.ioUringEnterTimeout(ringFd, toSubmit, 1, Native.IORING_ENTER_GETEVENTS, timeoutNanos);
+        return handleEnterResult(ret);
+    }
+
+    private int submit(int minComplete, int flags) throws IOException {
+        int toSubmit = publish();
+        if (toSubmit == 0 && minComplete == 0) {
+            return 0;
+        }
+        int ret = Native.ioUringEnter(ringFd, toSubmit, minComplete, flags);
+        return handleEnterResult(ret);
+    }
+
+    private void submitNoThrow() {
+        try {
+            submit();
+        } catch (IOException ignore) {
+            // We will retry with the next submit and so also see the error again.
+        }
+    }
+
+    private int publish() {
+        // Release the entries to the kernel.
+        PlatformDependent.putIntOrdered(kTailAddress, tail);
+        return tail - head;
+    }
+
+    private int handleEnterResult(int ret) throws IOException {
+        head = PlatformDependent.getIntVolatile(kHeadAddress);
+        if (ret >= 0) {
+            return ret;
+        }
+        if (ret == Native.ERRNO_EINTR_NEGATIVE || ret == ERRNO_EAGAIN_NEGATIVE || ret == ERRNO_EBUSY_NEGATIVE
+                || ret == Native.ERRNO_ETIME_NEGATIVE) {
+            // Either interrupted, timed out or the completion queue is full and we need to reap completions first.
+            // Everything that was not consumed will be submitted with the next call.
+            return 0;
+        }
+        throw newIOException("io_uring_enter", ret);
+    }
+}
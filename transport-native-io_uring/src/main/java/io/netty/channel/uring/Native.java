@@ -0,0 +1,132 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.channel.unix.FileDescriptor;
+import io.netty.channel.unix.Socket;
+import io.netty.util.internal.NativeLibraryLoader;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.SystemPropertyUtil;
+import io.netty.util.internal.ThrowableUtil;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.util.Locale;
+
+import static io.netty.channel.uring.NativeStaticallyReferencedJniMethods.kernelVersion;
+
+/**
+ * Native helper methods
+ * <p><strong>Internal usage only!</strong>
+ * <p>Static members which call JNI methods must be defined in {@link NativeStaticallyReferencedJniMethods}.
+ */
+final class Native {
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(Native.class);
+
+    static {
+        try {
+            // First, try calling a side-effect free JNI method to see if the library was already
+            // loaded by the application.
+            kernelVersion();
+        } catch (UnsatisfiedLinkError ignore) {
+            // The library was not previously loaded, load it now.
+            loadNativeLibrary();
+        }
+        Socket.initialize();
+    }
+
+    static final int DEFAULT_RING_SIZE = Math.max(64,
+            SystemPropertyUtil.getInt("io.netty.uring.ringSize", 4096));
+
+    // io_uring opcodes, see include/uapi/linux/io_uring.h. These are part of the kernel ABI and so stable.
+    static final byte IORING_OP_WRITEV = 2;
+    static final byte IORING_OP_POLL_ADD = 6;
+    static final byte IORING_OP_ACCEPT = 13;
+    static final byte IORING_OP_ASYNC_CANCEL = 14;
+    static final byte IORING_OP_READ = 22;
+    static final byte IORING_OP_WRITE = 23;
+
+    static final int IORING_ENTER_GETEVENTS = 1;
+
+    static final int POLLIN = 0x1;
+    static final int POLLOUT = 0x4;
+    static final int POLLERR = 0x8;
+    static final int POLLHUP = 0x10;
+    static final int POLLRDHUP = 0x2000;
+
+    static final int SOCK_NONBLOCK = 0x800;
+    static final int SOCK_CLOEXEC = 0x80000;
+
+    static final int ERRNO_EINTR_NEGATIVE = -4;
+    static final int ERRNO_ETIME_NEGATIVE = -62;
+    static final int ERRNO_ECANCELED_NEGATIVE = -125;
+
+    static final String KERNEL_VERSION = kernelVersion();
+
+    static RingBuffer createRingBuffer(int ringSize) {
+        long[] values = ioUringSetup(ringSize);
+        assert values.length == RingBuffer.SETUP_ARRAY_LENGTH;
+        return new RingBuffer(values);
+    }
+
+    static FileDescriptor newEventFd() {
+        return new FileDescriptor(eventFd());
+    }
+
+    private static native long[] ioUringSetup(int entries);
+
+    /**
+     * Calls {@code io_uring_enter(...)} and returns the number of submitted entries or the negative errno.
+     */
+    static native int ioUringEnter(int ringFd, int toSubmit, int minComplete, int flags);
+
+    /**
+     * Calls {@code io_uring_enter(...)} with a timeout after which we will return even if less than
+     * {@code minComplete} completions were produced. Returns the number of submitted entries or the negative errno.
+     */
+    static native int ioUringEnterTimeout(int ringFd, int toSubmit, int minComplete, int flags, long timeoutNanos);
+
+    static native void ioUringExit(int ringFd, long sqRingAddress, long sqRingSize, long cqRingAddress,
+                                   long cqRingSize, long sqesAddress, long sqesSize);
+
+    private static native int eventFd();
+    static native void eventFdWrite(int fd, long value);
+
+    private static void loadNativeLibrary() {
+        String name = SystemPropertyUtil.get("os.name").toLowerCase(Locale.UK).trim();
+        if (!name.startsWith("linux")) {
+            throw new IllegalStateException("Only supported on Linux");
+        }
+        String staticLibName = "netty_transport_native_io_uring";
+        String sharedLibName = staticLibName + '_' + PlatformDependent.normalizedArch();
+        ClassLoader cl = PlatformDependent.getClassLoader(Native.class);
+        try {
+            NativeLibraryLoader.load(sharedLibName, cl);
+        } catch (UnsatisfiedLinkError e1) {
+            try {
+                NativeLibraryLoader.load(staticLibName, cl);
+                logger.debug("Failed to load {}", sharedLibName, e1);
+            } catch (UnsatisfiedLinkError e2) {
+                ThrowableUtil.addSuppressed(e1, e2);
+                throw e1;
+            }
+        }
+    }
+
+    private Native() {
+        // utility
+    }
+}
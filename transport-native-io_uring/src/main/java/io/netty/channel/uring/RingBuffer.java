@@ -0,0 +1,72 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+/**
+ * The memory mapped submission and completion queues of an {@code io_uring} instance.
+ */
+final class RingBuffer {
+    // Must be kept in sync with netty_io_uring_native.c
+    static final int SETUP_ARRAY_LENGTH = 20;
+
+    private final int ringFd;
+    private final long sqRingAddress;
+    private final long sqRingSize;
+    private final long sqesAddress;
+    private final long sqesSize;
+    private final long cqRingAddress;
+    private final long cqRingSize;
+    private final IOUringSubmissionQueue submissionQueue;
+    private final IOUringCompletionQueue completionQueue;
+    private boolean closed;
+
+    RingBuffer(long[] values) {
+        ringFd = (int) values[0];
+        // values[1] contains the features which we already validated in native code.
+        sqRingAddress = values[2];
+        sqRingSize = values[3];
+        sqesAddress = values[11];
+        sqesSize = values[12];
+        cqRingAddress = values[13];
+        cqRingSize = values[14];
+        submissionQueue = new IOUringSubmissionQueue(ringFd, values[4], values[5], values[6], values[7],
+                values[10], values[11]);
+        completionQueue = new IOUringCompletionQueue(values[15], values[16], values[17], values[19]);
+    }
+
+    int fd() {
+        return ringFd;
+    }
+
+    IOUringSubmissionQueue submissionQueue() {
+        return submissionQueue;
+    }
+
+    IOUringCompletionQueue completionQueue() {
+        return completionQueue;
+    }
+
+    /**
+     * Unmap the queues and close the ring. Once closed further using of the queues may crash the JVM!
+     */
+    void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        Native.ioUringExit(ringFd, sqRingAddress, sqRingSize, cqRingAddress, cqRingSize, sqesAddress, sqesSize);
+    }
+}
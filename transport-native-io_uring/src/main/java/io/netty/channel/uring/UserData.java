@@ -0,0 +1,45 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+/**
+ * Encodes / decodes the {@code user_data} that is passed with every submission and returned with its completion.
+ * <p>
+ * The lower 32 bits contain the id of the registration, the next 8 bits the opcode and the upper 16 bits some
+ * operation specific data.
+ */
+final class UserData {
+
+    static long encode(int id, byte op, short data) {
+        return ((long) data << 48) | ((long) (op & 0xFF) << 32) | (id & 0xFFFFFFFFL);
+    }
+
+    static int decodeId(long userData) {
+        return (int) userData;
+    }
+
+    static byte decodeOp(long userData) {
+        return (byte) (userData >>> 32);
+    }
+
+    static short decodeData(long userData) {
+        return (short) (userData >>> 48);
+    }
+
+    private UserData() {
+        // utility
+    }
+}
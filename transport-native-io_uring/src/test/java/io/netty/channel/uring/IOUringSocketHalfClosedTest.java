@@ -0,0 +1,41 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.testsuite.transport.TestsuitePermutation;
+import io.netty.testsuite.transport.socket.SocketHalfClosedTest;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.List;
+
+public class IOUringSocketHalfClosedTest extends SocketHalfClosedTest {
+
+    @Ignore("Blocks the EventLoop while waiting for the peer to read the data, which will never happen as the write " +
+            "is only submitted to the ring once the EventLoop is not blocked anymore")
+    @Test
+    @Override
+    public void testAutoCloseFalseDoesShutdownOutput() throws Throwable {
+        super.testAutoCloseFalseDoesShutdownOutput();
+    }
+
+    @Override
+    protected List<TestsuitePermutation.BootstrapComboFactory<ServerBootstrap, Bootstrap>> newFactories() {
+        return IOUringSocketTestPermutation.INSTANCE.socket();
+    }
+}
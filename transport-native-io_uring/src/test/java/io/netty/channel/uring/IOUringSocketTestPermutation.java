@@ -0,0 +1,100 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFactory;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.MultithreadEventLoopGroup;
+import io.netty.channel.socket.InternetProtocolFamily;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.testsuite.transport.TestsuitePermutation;
+import io.netty.testsuite.transport.TestsuitePermutation.BootstrapFactory;
+import io.netty.testsuite.transport.socket.SocketTestPermutation;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.util.Arrays;
+import java.util.List;
+
+class IOUringSocketTestPermutation extends SocketTestPermutation {
+
+    static final IOUringSocketTestPermutation INSTANCE = new IOUringSocketTestPermutation();
+
+    static final EventLoopGroup IO_URING_BOSS_GROUP =
+            new MultithreadEventLoopGroup(BOSSES, new DefaultThreadFactory("testsuite-io_uring-boss", true),
+                    IOUringHandler.newFactory());
+    static final EventLoopGroup IO_URING_WORKER_GROUP =
+            new MultithreadEventLoopGroup(WORKERS, new DefaultThreadFactory("testsuite-io_uring-worker", true),
+                    IOUringHandler.newFactory());
+
+    @Override
+    public List<TestsuitePermutation.BootstrapComboFactory<ServerBootstrap, Bootstrap>> socket() {
+
+        List<TestsuitePermutation.BootstrapComboFactory<ServerBootstrap, Bootstrap>> list =
+                combo(serverSocket(), clientSocket());
+
+        list.remove(list.size() - 1); // Exclude NIO x NIO test
+
+        return list;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public List<BootstrapFactory<ServerBootstrap>> serverSocket() {
+        return Arrays.asList(
+                () -> new ServerBootstrap().group(IO_URING_BOSS_GROUP, IO_URING_WORKER_GROUP)
+                        .channel(IOUringServerSocketChannel.class),
+                () -> new ServerBootstrap().group(nioBossGroup, nioWorkerGroup)
+                        .channel(NioServerSocketChannel.class)
+        );
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public List<BootstrapFactory<Bootstrap>> clientSocket() {
+        return Arrays.asList(
+                () -> new Bootstrap().group(IO_URING_WORKER_GROUP).channel(IOUringSocketChannel.class),
+                () -> new Bootstrap().group(nioWorkerGroup).channel(NioSocketChannel.class)
+        );
+    }
+
+    @Override
+    public List<TestsuitePermutation.BootstrapComboFactory<Bootstrap, Bootstrap>> datagram(
+            final InternetProtocolFamily family) {
+        // Make the list of Bootstrap factories.
+        @SuppressWarnings("unchecked")
+        List<BootstrapFactory<Bootstrap>> bfs = Arrays.asList(
+                () -> new Bootstrap().group(nioWorkerGroup).channelFactory(new ChannelFactory<Channel>() {
+                    @Override
+                    public Channel newChannel(EventLoop eventLoop) {
+                        return new NioDatagramChannel(eventLoop, family);
+                    }
+
+                    @Override
+                    public String toString() {
+                        return NioDatagramChannel.class.getSimpleName() + ".class";
+                    }
+                }),
+                () -> new Bootstrap().group(IO_URING_WORKER_GROUP).channel(IOUringDatagramChannel.class)
+        );
+        return combo(bfs, bfs);
+    }
+}
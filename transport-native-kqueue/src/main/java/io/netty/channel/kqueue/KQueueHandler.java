@@ -36,6 +36,7 @@ import io.netty.util.internal.logging.InternalLoggerFactory;
 
 import java.io.IOException;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
 
 import static io.netty.util.internal.ObjectUtil.checkPositiveOrZero;
 import static java.lang.Math.min;
@@ -67,6 +68,7 @@ public final class KQueueHandler implements IoHandler {
     private final IntObjectMap<AbstractKQueueChannel> channels = new IntObjectHashMap<AbstractKQueueChannel>(4096);
 
     private volatile int wakenUp;
+    private final LongAdder wakeups = new LongAdder();
 
     private static AbstractKQueueChannel cast(Channel channel) {
         if (channel instanceof AbstractKQueueChannel) {
@@ -172,6 +174,7 @@ public final class KQueueHandler implements IoHandler {
     public void wakeup(boolean inEventLoop) {
         if (!inEventLoop && WAKEN_UP_UPDATER.compareAndSet(this, 0, 1)) {
             wakeup();
+            wakeups.increment();
         }
     }
 
@@ -192,7 +195,12 @@ public final class KQueueHandler implements IoHandler {
 
         long totalDelay = context.delayNanos(System.nanoTime());
         int delaySeconds = (int) min(totalDelay / 1000000000L, Integer.MAX_VALUE);
-        return kqueueWait(delaySeconds, (int) min(totalDelay - delaySeconds * 1000000000L, Integer.MAX_VALUE));
+        context.reportBlocking();
+        try {
+            return kqueueWait(delaySeconds, (int) min(totalDelay - delaySeconds * 1000000000L, Integer.MAX_VALUE));
+        } finally {
+            context.reportUnblocked();
+        }
     }
 
     private int kqueueWaitNow() throws IOException {
@@ -205,7 +213,7 @@ public final class KQueueHandler implements IoHandler {
         return numEvents;
     }
 
-    private void processReady(int ready) {
+    private void processReady(int ready, IoExecutionContext context) {
         for (int i = 0; i < ready; ++i) {
             final short filter = eventList.filter(i);
             final short flags = eventList.flags(i);
@@ -227,6 +235,7 @@ public final class KQueueHandler implements IoHandler {
                 continue;
             }
 
+            context.reportProgress(channel);
             AbstractKQueueUnsafe unsafe = (AbstractKQueueUnsafe) channel.unsafe();
             // First check for EPOLLOUT as we may need to fail the connect ChannelPromise before try
             // to read from the file descriptor.
@@ -300,7 +309,7 @@ public final class KQueueHandler implements IoHandler {
 
             if (strategy > 0) {
                 handled = strategy;
-                processReady(strategy);
+                processReady(strategy, context);
             }
             if (allowGrowing && strategy == eventList.capacity()) {
                 //increase the size of the array as we needed the whole space for the events
@@ -312,6 +321,16 @@ public final class KQueueHandler implements IoHandler {
         return handled;
     }
 
+    @Override
+    public int registeredChannels() {
+        return channels.size();
+    }
+
+    @Override
+    public long wakeups() {
+        return wakeups.sum();
+    }
+
     @Override
     public void destroy() {
         try {
@@ -13,10 +13,19 @@
  * License for the specific language governing permissions and limitations
  * under the License.
  */
+#include <errno.h>
+#include <stdint.h>
+#include <sys/mman.h>
+
 #include "netty_unix_jni.h"
 #include "netty_unix_util.h"
 #include "netty_unix_buffer.h"
 
+// MAP_HUGE_SHIFT is defined in linux 3.8. We define this here so older kernels can compile.
+#ifndef MAP_HUGE_SHIFT
+#define MAP_HUGE_SHIFT 26
+#endif
+
 // JNI Registered Methods Begin
 static jlong netty_unix_buffer_memoryAddress0(JNIEnv* env, jclass clazz, jobject buffer) {
     return (jlong) (*env)->GetDirectBufferAddress(env, buffer);
@@ -26,12 +35,59 @@ static jint netty_unix_buffer_addressSize0(JNIEnv* env, jclass clazz) {
    return (jint) sizeof(int*);
 }
 
+static jlong netty_unix_buffer_allocateHugePages0(JNIEnv* env, jclass clazz, jlong size, jlong alignment, jboolean hugeTlb) {
+#ifdef MAP_HUGETLB
+    // The huge pages of hugetlbfs can only be unmapped as a whole, so the size must be a multiple of the page size.
+    if (hugeTlb == JNI_TRUE && size % alignment == 0) {
+        // Try the hugetlbfs pool of the requested page size first, this fails if the pool is exhausted. Without
+        // MAP_HUGE_SHIFT the default hugetlbfs page size would be used, which may be bigger than the size.
+        int pageSizeLog2 = __builtin_ctzll((unsigned long long) alignment);
+        void* hugeTlbAddress = mmap(NULL, (size_t) size, PROT_READ | PROT_WRITE,
+                MAP_PRIVATE | MAP_ANONYMOUS | MAP_HUGETLB | (pageSizeLog2 << MAP_HUGE_SHIFT), -1, 0);
+        if (hugeTlbAddress != MAP_FAILED) {
+            return (jlong) hugeTlbAddress;
+        }
+    }
+#endif // MAP_HUGETLB
+
+    // Map more than needed and unmap the unaligned head and tail, so the memory is aligned to the huge page size.
+    size_t length = (size_t) (size + alignment);
+    char* address = mmap(NULL, length, PROT_READ | PROT_WRITE, MAP_PRIVATE | MAP_ANONYMOUS, -1, 0);
+    if (address == MAP_FAILED) {
+        return -errno;
+    }
+    char* aligned = (char*) (((uintptr_t) address + (uintptr_t) alignment - 1) & ~((uintptr_t) alignment - 1));
+    size_t head = (size_t) (aligned - address);
+    size_t tail = length - head - (size_t) size;
+    if (head > 0) {
+        munmap(address, head);
+    }
+    if (tail > 0) {
+        munmap(aligned + size, tail);
+    }
+
+#ifdef MADV_HUGEPAGE
+    // Failures are ignored as the memory is still usable, just not backed by transparent huge pages.
+    madvise(aligned, (size_t) size, MADV_HUGEPAGE);
+#endif // MADV_HUGEPAGE
+    return (jlong) aligned;
+}
+
+static jint netty_unix_buffer_freeHugePages0(JNIEnv* env, jclass clazz, jlong address, jlong size) {
+    if (munmap((void*) address, (size_t) size) == -1) {
+        return -errno;
+    }
+    return 0;
+}
+
 // JNI Registered Methods End
 
 // JNI Method Registration Table Begin
 static const JNINativeMethod statically_referenced_fixed_method_table[] = {
   { "memoryAddress0", "(Ljava/nio/ByteBuffer;)J", (void *) netty_unix_buffer_memoryAddress0 },
-  { "addressSize0", "()I", (void *) netty_unix_buffer_addressSize0 }
+  { "addressSize0", "()I", (void *) netty_unix_buffer_addressSize0 },
+  { "allocateHugePages0", "(JJZ)J", (void *) netty_unix_buffer_allocateHugePages0 },
+  { "freeHugePages0", "(JJ)I", (void *) netty_unix_buffer_freeHugePages0 }
 };
 static const jint statically_referenced_fixed_method_table_size = sizeof(statically_referenced_fixed_method_table) / sizeof(statically_referenced_fixed_method_table[0]);
 // JNI Method Registration Table End
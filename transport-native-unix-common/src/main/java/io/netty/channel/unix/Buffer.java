@@ -65,4 +65,8 @@ public final class Buffer {
     // If Unsafe can not be used we will need to do JNI calls.
     private static native int addressSize0();
     private static native long memoryAddress0(ByteBuffer buffer);
+
+    // Used by NativeHugePageAllocator, return a negative errno on failure.
+    static native long allocateHugePages0(long size, long alignment, boolean hugeTlb);
+    static native int freeHugePages0(long address, long size);
 }
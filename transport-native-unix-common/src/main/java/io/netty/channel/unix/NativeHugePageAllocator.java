@@ -0,0 +1,156 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.unix;
+
+import io.netty.buffer.HugePageAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.util.internal.UnstableApi;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+import static io.netty.util.internal.ObjectUtil.checkPositive;
+
+/**
+ * {@link HugePageAllocator} which maps the chunks of a {@link PooledByteBufAllocator} with {@code mmap}, aligned to the
+ * huge page size and advised to be backed by transparent huge pages ({@code madvise(MADV_HUGEPAGE)}). Optionally it
+ * first tries to allocate from the hugetlbfs pool ({@code MAP_HUGETLB}).
+ * <p>
+ * The native library of a transport (for example {@code Epoll.ensureAvailability()}) must be loaded, otherwise the
+ * chunks are allocated like any other direct memory.
+ */
+@UnstableApi
+public final class NativeHugePageAllocator implements HugePageAllocator {
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(NativeHugePageAllocator.class);
+
+    private static final int DEFAULT_HUGE_PAGE_SIZE = 2 * 1024 * 1024;
+    private static final String TRANSPARENT_HUGE_PAGE = "/sys/kernel/mm/transparent_hugepage/";
+
+    private final int hugePageSize;
+    private final boolean hugeTlb;
+    private volatile boolean unavailable;
+
+    /**
+     * Creates a new instance which uses the huge page size of transparent huge pages, which is 2MB on most platforms.
+     *
+     * @param hugeTlb {@code true} if chunks should be allocated from the hugetlbfs pool of this huge page size
+     *                (see {@code /sys/kernel/mm/hugepages/hugepages-<size>kB/nr_hugepages}) if possible.
+     */
+    public NativeHugePageAllocator(boolean hugeTlb) {
+        this(transparentHugePageSize(), hugeTlb);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param hugePageSize the huge page size the chunks are aligned to, which must be a power of two.
+     * @param hugeTlb {@code true} if chunks should be allocated from the hugetlbfs pool of {@code hugePageSize}
+     *                (see {@code /sys/kernel/mm/hugepages/hugepages-<size>kB/nr_hugepages}) if possible. This is only
+     *                done for chunks whose size is a multiple of {@code hugePageSize}.
+     */
+    public NativeHugePageAllocator(int hugePageSize, boolean hugeTlb) {
+        checkPositive(hugePageSize, "hugePageSize");
+        if ((hugePageSize & hugePageSize - 1) != 0) {
+            throw new IllegalArgumentException("hugePageSize: " + hugePageSize + " (expected: power of 2)");
+        }
+        this.hugePageSize = hugePageSize;
+        this.hugeTlb = hugeTlb;
+    }
+
+    @Override
+    public int hugePageSize() {
+        return hugePageSize;
+    }
+
+    @Override
+    public long allocate(int size) {
+        if (unavailable) {
+            return 0;
+        }
+        final long address;
+        try {
+            address = Buffer.allocateHugePages0(size, hugePageSize, hugeTlb);
+        } catch (UnsatisfiedLinkError e) {
+            unavailable = true;
+            logger.debug("Native library not loaded, not using huge pages for direct chunks", e);
+            return 0;
+        }
+        if (address < 0) {
+            logger.debug("Failed to map {} bytes for a direct chunk", size,
+                    Errors.newIOException("mmap", (int) address));
+            return 0;
+        }
+        return address;
+    }
+
+    @Override
+    public void free(long address, int size) {
+        int res = Buffer.freeHugePages0(address, size);
+        if (res < 0) {
+            logger.warn("Failed to unmap {} bytes of a direct chunk", size, Errors.newIOException("munmap", res));
+        }
+    }
+
+    /**
+     * Returns the mode of transparent huge pages, which is one of {@code always}, {@code madvise} and {@code never},
+     * or {@code null} if it is unknown. Chunks are only backed by transparent huge pages if it is not {@code never}.
+     */
+    public static String transparentHugePagesMode() {
+        String modes = readFirstLine(TRANSPARENT_HUGE_PAGE + "enabled");
+        if (modes == null) {
+            return null;
+        }
+        // The active mode is in brackets, for example "always [madvise] never".
+        int start = modes.indexOf('[');
+        int end = modes.indexOf(']', start + 1);
+        return start < 0 || end < 0 ? null : modes.substring(start + 1, end);
+    }
+
+    private static int transparentHugePageSize() {
+        String size = readFirstLine(TRANSPARENT_HUGE_PAGE + "hpage_pmd_size");
+        if (size != null) {
+            try {
+                int pageSize = Integer.parseInt(size.trim());
+                if (pageSize > 0 && (pageSize & pageSize - 1) == 0) {
+                    return pageSize;
+                }
+            } catch (NumberFormatException ignore) {
+                // Use the default.
+            }
+        }
+        return DEFAULT_HUGE_PAGE_SIZE;
+    }
+
+    private static String readFirstLine(String path) {
+        File file = new File(path);
+        if (!file.canRead()) {
+            return null;
+        }
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.US_ASCII))) {
+            return reader.readLine();
+        } catch (IOException e) {
+            logger.debug("Failed to read {}", path, e);
+            return null;
+        }
+    }
+}
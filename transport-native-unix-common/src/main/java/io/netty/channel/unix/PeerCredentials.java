@@ -33,7 +33,7 @@ public final class PeerCredentials {
     private final int uid;
     private final int[] gids;
 
-    // These values are set by JNI via Socket.peerCredentials()
+    // These values are set by JNI via Socket.peerCredentials() or via UnixChannelUtil.newPeerCredentials(...)
     PeerCredentials(int p, int u, int... gids) {
         pid = p;
         uid = u;
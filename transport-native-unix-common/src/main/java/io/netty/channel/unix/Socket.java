@@ -55,6 +55,15 @@ public class Socket extends FileDescriptor {
         this.ipv6 = isIPv6(fd);
     }
 
+    /**
+     * Creates a new instance without querying the address family of {@code fd}, which allows to wrap file descriptors
+     * that are not sockets (like an {@code eventfd}) and so only support plain reads and writes.
+     */
+    protected Socket(int fd, boolean ipv6) {
+        super(fd);
+        this.ipv6 = ipv6;
+    }
+
     public final void shutdown() throws IOException {
         shutdown(true, true);
     }
@@ -405,6 +414,10 @@ public class Socket extends FileDescriptor {
         return new Socket(newSocketDomain0());
     }
 
+    public static Socket newSocketDomainDgram() {
+        return new Socket(newSocketDomainDgram0());
+    }
+
     public static void initialize() {
         if (INITIALIZED.compareAndSet(false, true)) {
             initialize(NetUtil.isIpV4StackPreferred());
@@ -435,6 +448,14 @@ public class Socket extends FileDescriptor {
         return res;
     }
 
+    protected static int newSocketDomainDgram0() {
+        int res = newSocketDomainDgramFd();
+        if (res < 0) {
+            throw new ChannelException(newIOException("newSocketDomainDgram", res));
+        }
+        return res;
+    }
+
     protected static int newSocketDomain0() {
         int res = newSocketDomainFd();
         if (res < 0) {
@@ -473,6 +494,7 @@ public class Socket extends FileDescriptor {
     private static native int newSocketStreamFd(boolean ipv6);
     private static native int newSocketDgramFd(boolean ipv6);
     private static native int newSocketDomainFd();
+    private static native int newSocketDomainDgramFd();
 
     private static native int isReuseAddress(int fd) throws IOException;
     private static native int isReusePort(int fd) throws IOException;
@@ -16,6 +16,7 @@
 package io.netty.channel.unix;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.util.internal.UnstableApi;
 
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
@@ -40,6 +41,17 @@ public final class UnixChannelUtil {
         return !byteBuf.hasMemoryAddress() && (!byteBuf.isDirect() || byteBuf.nioBufferCount() > iovMax);
     }
 
+    /**
+     * Returns the {@link PeerCredentials} for the given values, for transports that receive {@code SCM_CREDENTIALS}.
+     * <p>
+     * This is only meant to be used by the native transports and not by user code, which should only obtain
+     * {@link PeerCredentials} from the transport itself.
+     */
+    @UnstableApi
+    public static PeerCredentials newPeerCredentials(int pid, int uid, int... gids) {
+        return new PeerCredentials(pid, uid, gids);
+    }
+
     public static InetSocketAddress computeRemoteAddr(InetSocketAddress remoteAddr, InetSocketAddress osRemoteAddr) {
         if (osRemoteAddr != null) {
             try {
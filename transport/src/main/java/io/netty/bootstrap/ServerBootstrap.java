@@ -292,6 +292,20 @@ public class ServerBootstrap extends AbstractBootstrap<ServerBootstrap, ServerCh
         return new ServerBootstrap(this);
     }
 
+    /**
+     * Returns a deep clone of this bootstrap which has the identical configuration except that it uses
+     * the given {@link EventLoopGroup}s. This method is useful when binding multiple {@link ServerChannel}s with
+     * similar settings, for example one per {@link EventLoop} when using {@code SO_REUSEPORT}.
+     */
+    public ServerBootstrap clone(EventLoopGroup parentGroup, EventLoopGroup childGroup) {
+        requireNonNull(parentGroup, "parentGroup");
+        requireNonNull(childGroup, "childGroup");
+        ServerBootstrap bs = new ServerBootstrap(this);
+        bs.group = parentGroup;
+        bs.childGroup = childGroup;
+        return bs;
+    }
+
     /**
      * Return the configured {@link EventLoopGroup} which will be used for the child channels or {@code null}
      * if non is configured yet.
@@ -27,6 +27,7 @@ import io.netty.util.internal.ObjectPool.Handle;
 import io.netty.util.internal.ObjectPool.ObjectCreator;
 import io.netty.util.internal.PromiseNotificationUtil;
 import io.netty.util.internal.SystemPropertyUtil;
+import io.netty.util.internal.UnstableApi;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 
@@ -315,6 +316,31 @@ public final class ChannelOutboundBuffer {
         return true;
     }
 
+    /**
+     * Will remove the current message like {@link #remove()}, but neither release it nor notify its
+     * {@link ChannelPromise}. The ownership of both is transferred to the returned {@link DeferredWrite}, which must
+     * be completed once the transport does not reference the message anymore (for example because the kernel still
+     * uses its memory after it was written). Until then the message is still accounted for in
+     * {@link #totalPendingWriteBytes()}.
+     *
+     * @return the {@link DeferredWrite} or {@code null} if no flushed message exists or it was cancelled before.
+     */
+    @UnstableApi
+    public DeferredWrite removeDeferred() {
+        Entry e = flushedEntry;
+        if (e == null) {
+            clearNioBuffers();
+            return null;
+        }
+        DeferredWrite write = e.cancelled ? null : new DeferredWrite(e.msg, e.promise, e.pendingSize);
+
+        removeEntry(e);
+
+        // recycle the entry
+        e.recycle();
+        return write;
+    }
+
     private void removeEntry(Entry e) {
         if (-- flushed == 0) {
             // processed everything
@@ -713,6 +739,59 @@ public final class ChannelOutboundBuffer {
         PromiseNotificationUtil.tryFailure(promise, cause, promise instanceof VoidChannelPromise ? null : logger);
     }
 
+    /**
+     * A message that was removed via {@link #removeDeferred()} but is still referenced by the transport. All methods
+     * must be called from the I/O thread.
+     */
+    @UnstableApi
+    public final class DeferredWrite {
+        private final Object msg;
+        private final ChannelPromise promise;
+        private final int pendingSize;
+
+        DeferredWrite(Object msg, ChannelPromise promise, int pendingSize) {
+            this.msg = msg;
+            this.promise = promise;
+            this.pendingSize = pendingSize;
+        }
+
+        /**
+         * Returns the message.
+         */
+        public Object msg() {
+            return msg;
+        }
+
+        /**
+         * Release the message and mark its {@link ChannelPromise} as success.
+         */
+        public void complete() {
+            ReferenceCountUtil.safeRelease(msg);
+            safeSuccess(promise);
+            decrementPendingOutboundBytes(pendingSize, false, true);
+        }
+
+        /**
+         * Release the message and mark its {@link ChannelPromise} as failure using the given {@link Throwable}.
+         */
+        public void fail(Throwable cause) {
+            ReferenceCountUtil.safeRelease(msg);
+            safeFail(promise, cause);
+            decrementPendingOutboundBytes(pendingSize, false, true);
+        }
+
+        /**
+         * Mark its {@link ChannelPromise} as failure using the given {@link Throwable} but do not release the
+         * message. This must be used if the memory of the message may still be in use (for example by the kernel),
+         * as releasing it would allow the memory to be reused while it is still read. The caller is responsible for
+         * releasing the message once it is not in use anymore.
+         */
+        public void failWithoutRelease(Throwable cause) {
+            safeFail(promise, cause);
+            decrementPendingOutboundBytes(pendingSize, false, true);
+        }
+    }
+
     @Deprecated
     public void recycle() {
         // NOOP
@@ -697,6 +697,50 @@ public class DefaultChannelPipeline implements ChannelPipeline {
         }
     }
 
+    /**
+     * Returns the {@link ChannelHandlerContext} of the handler that was invoked last in the given stack or
+     * {@code null} if none of the handlers of this pipeline was invoked. This may be called from any thread, for
+     * example to find the handler of a stalled {@link EventLoop}.
+     */
+    final ChannelHandlerContext invokedContext(StackTraceElement[] stackTrace) {
+        String ctxClassName = DefaultChannelHandlerContext.class.getName();
+        for (int i = 1; i < stackTrace.length; i++) {
+            String className = stackTrace[i - 1].getClassName();
+            // Handlers are called by DefaultChannelHandlerContext, so the frame above belongs to the handler.
+            if (ctxClassName.equals(stackTrace[i].getClassName()) && !ctxClassName.equals(className)) {
+                ChannelHandlerContext ctx = findInvokedCtx(className);
+                if (ctx != null) {
+                    return ctx;
+                }
+            }
+        }
+        return null;
+    }
+
+    private DefaultChannelHandlerContext findInvokedCtx(String className) {
+        DefaultChannelHandlerContext inherited = null;
+        synchronized (handlers) {
+            for (int i = -1; i <= handlers.size(); i++) {
+                DefaultChannelHandlerContext ctx = i < 0 ? head : i == handlers.size() ? tail : handlers.get(i);
+                Class<?> type = ctx.handler().getClass();
+                if (type.getName().equals(className)) {
+                    return ctx;
+                }
+                if (inherited == null) {
+                    // The method may be implemented by a super class, which is shared by other handlers though.
+                    for (type = type.getSuperclass(); type != null && type != Object.class;
+                         type = type.getSuperclass()) {
+                        if (type.getName().equals(className)) {
+                            inherited = ctx;
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+        return inherited;
+    }
+
     @Override
     public final List<String> names() {
         synchronized (handlers) {
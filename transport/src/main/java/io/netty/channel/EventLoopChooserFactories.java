@@ -0,0 +1,89 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel;
+
+import io.netty.util.concurrent.DefaultEventExecutorChooserFactory;
+import io.netty.util.concurrent.EventExecutorChooserFactory;
+import io.netty.util.concurrent.LoadAwareEventExecutorChooserFactory;
+import io.netty.util.internal.UnstableApi;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link EventExecutorChooserFactory}s that can be used with a {@link MultithreadEventLoopGroup} to select the
+ * {@link EventLoop} for new {@link Channel}s, for example when a {@link io.netty.bootstrap.ServerBootstrap} accepts
+ * a new connection or a {@link io.netty.bootstrap.Bootstrap} creates a new {@link Channel}.
+ * <p>
+ * All load-aware strategies use the "power of two choices" algorithm as described in
+ * {@link LoadAwareEventExecutorChooserFactory} and only take {@link SingleThreadEventLoop}s into account.
+ */
+@UnstableApi
+public final class EventLoopChooserFactories {
+
+    private static final EventExecutorChooserFactory LEAST_REGISTERED_CHANNELS =
+            new LoadAwareEventExecutorChooserFactory(executor -> executor instanceof SingleThreadEventLoop ?
+                    ((SingleThreadEventLoop) executor).registeredChannels() : 0);
+
+    private static final EventExecutorChooserFactory LEAST_RECENT_IO_TIME =
+            new LoadAwareEventExecutorChooserFactory(executor -> executor instanceof SingleThreadEventLoop ?
+                    ((SingleThreadEventLoop) executor).recentIoTime(TimeUnit.NANOSECONDS) : 0);
+
+    private static final EventExecutorChooserFactory LEAST_BUSY =
+            new LoadAwareEventExecutorChooserFactory(executor -> executor instanceof SingleThreadEventLoop ?
+                    ((SingleThreadEventLoop) executor).busyRatio() : 0);
+
+    private EventLoopChooserFactories() { }
+
+    /**
+     * Returns a {@link EventExecutorChooserFactory} which uses round-robin. This is the default.
+     */
+    public static EventExecutorChooserFactory roundRobin() {
+        return DefaultEventExecutorChooserFactory.INSTANCE;
+    }
+
+    /**
+     * Returns a {@link EventExecutorChooserFactory} which prefers the {@link EventLoop} with less pending tasks.
+     */
+    public static EventExecutorChooserFactory leastPendingTasks() {
+        return LoadAwareEventExecutorChooserFactory.PENDING_TASKS;
+    }
+
+    /**
+     * Returns a {@link EventExecutorChooserFactory} which prefers the {@link EventLoop} with less registered
+     * {@link Channel}s, see {@link SingleThreadEventLoop#registeredChannels()}.
+     */
+    public static EventExecutorChooserFactory leastRegisteredChannels() {
+        return LEAST_REGISTERED_CHANNELS;
+    }
+
+    /**
+     * Returns a {@link EventExecutorChooserFactory} which prefers the {@link EventLoop} that spent less time with
+     * processing IO recently, see {@link SingleThreadEventLoop#recentIoTime(TimeUnit)}. This needs the metrics of the
+     * {@link EventLoop}s to be enabled, see {@link SingleThreadEventLoop#metric()}.
+     */
+    public static EventExecutorChooserFactory leastRecentIoTime() {
+        return LEAST_RECENT_IO_TIME;
+    }
+
+    /**
+     * Returns a {@link EventExecutorChooserFactory} which prefers the {@link EventLoop} that was less busy with
+     * processing IO and tasks recently, see {@link SingleThreadEventLoop#busyRatio()}. This needs the metrics of the
+     * {@link EventLoop}s to be enabled, see {@link SingleThreadEventLoop#metric()}.
+     */
+    public static EventExecutorChooserFactory leastBusy() {
+        return LEAST_BUSY;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel;
+
+import io.netty.util.concurrent.EventExecutorMetric;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runtime metrics of an {@link EventLoop}. All methods may be called from any thread and so the returned values are
+ * only estimates.
+ */
+public interface EventLoopMetric extends EventExecutorMetric {
+    /**
+     * Returns the number of {@link Channel}s that are registered with the {@link EventLoop} or {@code -1} if unknown.
+     */
+    int registeredChannels();
+
+    /**
+     * Returns the fraction of time (between {@code 0.0} and {@code 1.0}) that the {@link EventLoop} spent with
+     * processing IO and tasks instead of waiting for work or {@code -1} if unknown.
+     */
+    double busyRatio();
+
+    /**
+     * Returns how often the {@link IoHandler} was run or {@code -1} if unknown.
+     */
+    long ioRuns();
+
+    /**
+     * Returns the number of IO events that were handled over all {@link #ioRuns()} or {@code -1} if unknown.
+     */
+    long ioEvents();
+
+    /**
+     * Returns the time that was spent in the {@link IoHandler}, including the time it was blocked while waiting for
+     * IO, or {@code -1} if unknown. Runs that neither blocked nor handled any IO events are not timed separately and
+     * are included in {@link #taskTime(TimeUnit)}.
+     */
+    long ioTime(TimeUnit unit);
+
+    /**
+     * Returns the time that was spent with running tasks or {@code -1} if unknown.
+     */
+    long taskTime(TimeUnit unit);
+
+    /**
+     * Returns how often not all tasks could be run because the maximum number of tasks per run was reached or
+     * {@code -1} if unknown.
+     */
+    long maxTasksPerRunExhausted();
+
+    /**
+     * Returns how often the {@link IoHandler} was woken up by another thread or {@code -1} if unknown.
+     */
+    long wakeups();
+}
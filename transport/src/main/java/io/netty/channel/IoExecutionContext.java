@@ -36,4 +36,26 @@ public interface IoExecutionContext {
      * closest scheduled task should run.
      */
     long deadlineNanos();
+
+    /**
+     * Reports that IO is about to be processed for the given {@link Channel}. This is used to detect if the
+     * {@link EventLoop} is stalled and so should be called for every {@link Channel} for which IO is processed.
+     */
+    default void reportProgress(Channel channel) {
+    }
+
+    /**
+     * Reports that the {@link IoHandler} is about to block while waiting for IO to become ready. Must be followed by
+     * {@link #reportUnblocked()} once the blocking call returns. The time in between is not counted as busy time of
+     * the {@link EventLoop}.
+     */
+    default void reportBlocking() {
+    }
+
+    /**
+     * Reports that the {@link IoHandler} returned from the blocking call that was announced by
+     * {@link #reportBlocking()}.
+     */
+    default void reportUnblocked() {
+    }
 }
@@ -47,4 +47,21 @@ public interface IoHandler extends EventLoop.Unsafe {
      * Destroy the {@link IoHandler} and free all its resources.
      */
     void destroy();
+
+    /**
+     * Returns the number of {@link Channel}s that are registered with this {@link IoHandler} or {@code -1} if not
+     * supported. This method may be called from any thread and so the returned value is only an estimate.
+     */
+    default int registeredChannels() {
+        return -1;
+    }
+
+    /**
+     * Returns how often {@link #wakeup(boolean)} actually woke up this {@link IoHandler} from another thread or
+     * {@code -1} if not supported. This method may be called from any thread and so the returned value is only an
+     * estimate.
+     */
+    default long wakeups() {
+        return -1;
+    }
 }
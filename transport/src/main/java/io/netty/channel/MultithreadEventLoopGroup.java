@@ -16,10 +16,16 @@
 package io.netty.channel;
 
 import io.netty.util.NettyRuntime;
+import io.netty.util.concurrent.DefaultEventExecutorChooserFactory;
 import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.EventExecutorChooserFactory;
+import io.netty.util.concurrent.EventExecutorMetric;
+import io.netty.util.concurrent.EventExecutorMetricProvider;
 import io.netty.util.concurrent.MultithreadEventExecutorGroup;
 import io.netty.util.concurrent.RejectedExecutionHandler;
 import io.netty.util.concurrent.RejectedExecutionHandlers;
+import io.netty.util.concurrent.ScheduledTaskQueueType;
 import io.netty.util.concurrent.ThreadPerTaskExecutor;
 import io.netty.util.internal.EmptyArrays;
 import io.netty.util.internal.SystemPropertyUtil;
@@ -33,6 +39,8 @@ import java.util.List;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ThreadFactory;
 
+import static java.util.Objects.requireNonNull;
+
 /**
  * {@link EventLoopGroup} implementation that will handle its tasks with multiple threads.
  */
@@ -212,6 +220,140 @@ public class MultithreadEventLoopGroup extends MultithreadEventExecutorGroup imp
                 maxPendingTasks, rejectedHandler, maxTasksPerRun, EmptyArrays.EMPTY_OBJECTS);
     }
 
+    /**
+     * Create a new instance.
+     *
+     * @param nThreads          the number of threads that will be used by this instance.
+     * @param ioHandlerFactory  the {@link IoHandlerFactory} to use for creating new
+     *                          {@link IoHandler} instances that will handle the IO for the
+     *                          {@link EventLoop}.
+     * @param chooserFactory    the {@link EventExecutorChooserFactory} that is used to choose the {@link EventLoop}
+     *                          when {@link #next()} is called.
+     */
+    public MultithreadEventLoopGroup(int nThreads, IoHandlerFactory ioHandlerFactory,
+                                     EventExecutorChooserFactory chooserFactory) {
+        this(nThreads, (Executor) null, ioHandlerFactory, chooserFactory,
+                SingleThreadEventLoop.DEFAULT_MAX_PENDING_TASKS, RejectedExecutionHandlers.reject(),
+                SingleThreadEventLoop.DEFAULT_MAX_TASKS_PER_RUN);
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param nThreads                  the number of threads that will be used by this instance.
+     * @param ioHandlerFactory          the {@link IoHandlerFactory} to use for creating new
+     *                                  {@link IoHandler} instances that will handle the IO for the
+     *                                  {@link EventLoop}.
+     * @param scheduledTaskQueueType    the {@link ScheduledTaskQueueType} that is used by the {@link EventLoop}s to
+     *                                  store scheduled tasks.
+     */
+    public MultithreadEventLoopGroup(int nThreads, IoHandlerFactory ioHandlerFactory,
+                                     ScheduledTaskQueueType scheduledTaskQueueType) {
+        this(nThreads, (Executor) null, ioHandlerFactory, DefaultEventExecutorChooserFactory.INSTANCE,
+                SingleThreadEventLoop.DEFAULT_MAX_PENDING_TASKS, RejectedExecutionHandlers.reject(),
+                SingleThreadEventLoop.DEFAULT_MAX_TASKS_PER_RUN, scheduledTaskQueueType);
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param nThreads          the number of threads that will be used by this instance.
+     * @param executor          the {@link Executor} to use, or {@code null} if the default should be used.
+     * @param ioHandlerFactory  the {@link IoHandlerFactory} to use for creating new
+     *                          {@link IoHandler} instances that will handle the IO for the
+     *                          {@link EventLoop}.
+     * @param chooserFactory    the {@link EventExecutorChooserFactory} that is used to choose the {@link EventLoop}
+     *                          when {@link #next()} is called.
+     * @param maxPendingTasks   the maximum number of pending tasks before new tasks will be rejected.
+     * @param rejectedHandler   the {@link RejectedExecutionHandler} to use.
+     * @param maxTasksPerRun    the maximum number of tasks per {@link EventLoop} run that will be processed
+     *                          before trying to handle IO again.
+     */
+    public MultithreadEventLoopGroup(int nThreads, Executor executor,
+                                     IoHandlerFactory ioHandlerFactory,
+                                     EventExecutorChooserFactory chooserFactory,
+                                     int maxPendingTasks, RejectedExecutionHandler rejectedHandler,
+                                     int maxTasksPerRun) {
+        this(nThreads, executor, ioHandlerFactory, chooserFactory,
+                maxPendingTasks, rejectedHandler, maxTasksPerRun, ScheduledTaskQueueType.PRIORITY_QUEUE);
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param nThreads                  the number of threads that will be used by this instance.
+     * @param executor               the {@link Executor} to use, or {@code null} if the default should be used.
+     * @param ioHandlerFactory          the {@link IoHandlerFactory} to use for creating new
+     *                                  {@link IoHandler} instances that will handle the IO for the
+     *                                  {@link EventLoop}.
+     * @param chooserFactory            the {@link EventExecutorChooserFactory} that is used to choose the
+     *                                  {@link EventLoop} when {@link #next()} is called.
+     * @param maxPendingTasks           the maximum number of pending tasks before new tasks will be rejected.
+     * @param rejectedHandler           the {@link RejectedExecutionHandler} to use.
+     * @param maxTasksPerRun            the maximum number of tasks per {@link EventLoop} run that will be processed
+     *                                  before trying to handle IO again.
+     * @param scheduledTaskQueueType    the {@link ScheduledTaskQueueType} that is used by the {@link EventLoop}s to
+     *                                  store scheduled tasks.
+     */
+    public MultithreadEventLoopGroup(int nThreads, Executor executor,
+                                     IoHandlerFactory ioHandlerFactory,
+                                     EventExecutorChooserFactory chooserFactory,
+                                     int maxPendingTasks, RejectedExecutionHandler rejectedHandler,
+                                     int maxTasksPerRun, ScheduledTaskQueueType scheduledTaskQueueType) {
+        this(nThreads, executor, ioHandlerFactory, chooserFactory,
+                maxPendingTasks, rejectedHandler, maxTasksPerRun, scheduledTaskQueueType, EmptyArrays.EMPTY_OBJECTS);
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param nThreads          the number of threads that will be used by this instance.
+     * @param threadFactory     the {@link ThreadFactory} to use, or {@code null} if the default should be used.
+     * @param ioHandlerFactory  the {@link IoHandlerFactory} to use for creating new
+     *                          {@link IoHandler} instances that will handle the IO for the
+     *                          {@link EventLoop}.
+     * @param chooserFactory    the {@link EventExecutorChooserFactory} that is used to choose the {@link EventLoop}
+     *                          when {@link #next()} is called.
+     * @param maxPendingTasks   the maximum number of pending tasks before new tasks will be rejected.
+     * @param rejectedHandler   the {@link RejectedExecutionHandler} to use.
+     * @param maxTasksPerRun    the maximum number of tasks per {@link EventLoop} run that will be processed
+     *                          before trying to handle IO again.
+     */
+    public MultithreadEventLoopGroup(int nThreads, ThreadFactory threadFactory,
+                                     IoHandlerFactory ioHandlerFactory,
+                                     EventExecutorChooserFactory chooserFactory,
+                                     int maxPendingTasks, RejectedExecutionHandler rejectedHandler,
+                                     int maxTasksPerRun) {
+        this(nThreads, threadFactory, ioHandlerFactory, chooserFactory,
+                maxPendingTasks, rejectedHandler, maxTasksPerRun, ScheduledTaskQueueType.PRIORITY_QUEUE);
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param nThreads                  the number of threads that will be used by this instance.
+     * @param threadFactory          the {@link ThreadFactory} to use, or {@code null} if the default should be used.
+     * @param ioHandlerFactory          the {@link IoHandlerFactory} to use for creating new
+     *                                  {@link IoHandler} instances that will handle the IO for the
+     *                                  {@link EventLoop}.
+     * @param chooserFactory            the {@link EventExecutorChooserFactory} that is used to choose the
+     *                                  {@link EventLoop} when {@link #next()} is called.
+     * @param maxPendingTasks           the maximum number of pending tasks before new tasks will be rejected.
+     * @param rejectedHandler           the {@link RejectedExecutionHandler} to use.
+     * @param maxTasksPerRun            the maximum number of tasks per {@link EventLoop} run that will be processed
+     *                                  before trying to handle IO again.
+     * @param scheduledTaskQueueType    the {@link ScheduledTaskQueueType} that is used by the {@link EventLoop}s to
+     *                                  store scheduled tasks.
+     */
+    public MultithreadEventLoopGroup(int nThreads, ThreadFactory threadFactory,
+                                     IoHandlerFactory ioHandlerFactory,
+                                     EventExecutorChooserFactory chooserFactory,
+                                     int maxPendingTasks, RejectedExecutionHandler rejectedHandler,
+                                     int maxTasksPerRun, ScheduledTaskQueueType scheduledTaskQueueType) {
+        this(nThreads, threadFactory, ioHandlerFactory, chooserFactory,
+                maxPendingTasks, rejectedHandler, maxTasksPerRun, scheduledTaskQueueType, EmptyArrays.EMPTY_OBJECTS);
+    }
+
     // Constructors provided for sub-classes that want to pass more args to newChild(...).
 
     /**
@@ -233,9 +375,8 @@ public class MultithreadEventLoopGroup extends MultithreadEventExecutorGroup imp
                                      IoHandlerFactory ioHandlerFactory,
                                      int maxPendingTasks, RejectedExecutionHandler rejectedHandler,
                                      int maxTasksPerRun, Object... args) {
-        super(pickThreadCount(nThreads),
-                executor == null ? new ThreadPerTaskExecutor(newDefaultThreadFactory()) : executor,
-                maxPendingTasks, rejectedHandler, merge(ioHandlerFactory, maxTasksPerRun, args));
+        this(nThreads, executor, ioHandlerFactory, DefaultEventExecutorChooserFactory.INSTANCE,
+                maxPendingTasks, rejectedHandler, maxTasksPerRun, ScheduledTaskQueueType.PRIORITY_QUEUE, args);
     }
 
     /**
@@ -257,8 +398,69 @@ public class MultithreadEventLoopGroup extends MultithreadEventExecutorGroup imp
                                      IoHandlerFactory ioHandlerFactory,
                                      int maxPendingTasks, RejectedExecutionHandler rejectedHandler,
                                      int maxTasksPerRun, Object... args) {
+        this(nThreads, threadFactory, ioHandlerFactory, DefaultEventExecutorChooserFactory.INSTANCE,
+                maxPendingTasks, rejectedHandler, maxTasksPerRun, ScheduledTaskQueueType.PRIORITY_QUEUE, args);
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param nThreads          the number of threads that will be used by this instance.
+     * @param executor          the {@link Executor} to use, or {@code null} if the default should be used.
+     * @param ioHandlerFactory  the {@link IoHandlerFactory} to use for creating new
+     *                          {@link IoHandler} instances that will handle the IO for the
+     *                          {@link EventLoop}.
+     * @param chooserFactory    the {@link EventExecutorChooserFactory} that is used to choose the {@link EventLoop}
+     *                          when {@link #next()} is called.
+     * @param maxPendingTasks   the maximum number of pending tasks before new tasks will be rejected.
+     * @param rejectedHandler   the {@link RejectedExecutionHandler} to use.
+     * @param maxTasksPerRun    the maximum number of tasks per {@link EventLoop} run that will be processed
+     *                          before trying to handle IO again.
+     * @param scheduledTaskQueueType    the {@link ScheduledTaskQueueType} that is used by the {@link EventLoop}s to
+     *                                  store scheduled tasks.
+     * @param args              extra arguments passed to {@link #newChild(Executor, int, RejectedExecutionHandler,
+     *                          IoHandler, int, ScheduledTaskQueueType, Object...)}
+     */
+    protected MultithreadEventLoopGroup(int nThreads, Executor executor,
+                                     IoHandlerFactory ioHandlerFactory,
+                                     EventExecutorChooserFactory chooserFactory,
+                                     int maxPendingTasks, RejectedExecutionHandler rejectedHandler,
+                                     int maxTasksPerRun, ScheduledTaskQueueType scheduledTaskQueueType,
+                                     Object... args) {
+        super(pickThreadCount(nThreads),
+                executor == null ? new ThreadPerTaskExecutor(newDefaultThreadFactory()) : executor,
+                chooserFactory, maxPendingTasks, rejectedHandler, merge(ioHandlerFactory, maxTasksPerRun,
+                        scheduledTaskQueueType, args));
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param nThreads          the number of threads that will be used by this instance.
+     * @param threadFactory     the {@link ThreadFactory} to use, or {@code null} if the default should be used.
+     * @param ioHandlerFactory  the {@link IoHandlerFactory} to use for creating new
+     *                          {@link IoHandler} instances that will handle the IO for the
+     *                          {@link EventLoop}.
+     * @param chooserFactory    the {@link EventExecutorChooserFactory} that is used to choose the {@link EventLoop}
+     *                          when {@link #next()} is called.
+     * @param maxPendingTasks   the maximum number of pending tasks before new tasks will be rejected.
+     * @param rejectedHandler   the {@link RejectedExecutionHandler} to use.
+     * @param maxTasksPerRun    the maximum number of tasks per {@link EventLoop} run that will be processed
+     *                          before trying to handle IO again.
+     * @param scheduledTaskQueueType    the {@link ScheduledTaskQueueType} that is used by the {@link EventLoop}s to
+     *                                  store scheduled tasks.
+     * @param args              extra arguments passed to {@link #newChild(Executor, int, RejectedExecutionHandler,
+     *                          IoHandler, int, ScheduledTaskQueueType, Object...)}
+     */
+    protected MultithreadEventLoopGroup(int nThreads, ThreadFactory threadFactory,
+                                     IoHandlerFactory ioHandlerFactory,
+                                     EventExecutorChooserFactory chooserFactory,
+                                     int maxPendingTasks, RejectedExecutionHandler rejectedHandler,
+                                     int maxTasksPerRun, ScheduledTaskQueueType scheduledTaskQueueType,
+                                     Object... args) {
         super(pickThreadCount(nThreads), threadFactory == null ? newDefaultThreadFactory() : threadFactory,
-                maxPendingTasks, rejectedHandler, merge(ioHandlerFactory, maxTasksPerRun, args));
+                chooserFactory, maxPendingTasks, rejectedHandler, merge(ioHandlerFactory, maxTasksPerRun,
+                        scheduledTaskQueueType, args));
     }
 
     private static ThreadFactory newDefaultThreadFactory() {
@@ -272,11 +474,12 @@ public class MultithreadEventLoopGroup extends MultithreadEventExecutorGroup imp
         return nThreads == 0 ? DEFAULT_EVENT_LOOP_THREADS : nThreads;
     }
 
-    private static Object[] merge(IoHandlerFactory ioHandlerFactory,
-                                  int maxTasksPerRun, Object... args) {
-        List<Object> argList = new ArrayList<Object>(2 + args.length);
+    private static Object[] merge(IoHandlerFactory ioHandlerFactory, int maxTasksPerRun,
+                                  ScheduledTaskQueueType scheduledTaskQueueType, Object... args) {
+        List<Object> argList = new ArrayList<Object>(3 + args.length);
         argList.add(ioHandlerFactory);
         argList.add(maxTasksPerRun);
+        argList.add(requireNonNull(scheduledTaskQueueType, "scheduledTaskQueueType"));
         Collections.addAll(argList, args);
         return argList.toArray();
     }
@@ -286,12 +489,63 @@ public class MultithreadEventLoopGroup extends MultithreadEventExecutorGroup imp
         return (EventLoop) super.next();
     }
 
+    /**
+     * Returns the {@link EventLoopMetric}s of the {@link EventLoop}s that are used by this
+     * {@link MultithreadEventLoopGroup}. {@link EventLoop}s that do not provide an {@link EventLoopMetric} are
+     * skipped.
+     */
+    public final List<EventLoopMetric> metrics() {
+        List<EventExecutor> executors = executors();
+        List<EventLoopMetric> metrics = new ArrayList<>(executors.size());
+        for (EventExecutor executor: executors) {
+            if (executor instanceof EventExecutorMetricProvider) {
+                EventExecutorMetric metric = ((EventExecutorMetricProvider) executor).metric();
+                if (metric instanceof EventLoopMetric) {
+                    metrics.add((EventLoopMetric) metric);
+                }
+            }
+        }
+        return Collections.unmodifiableList(metrics);
+    }
+
     @Override
     protected final EventLoop newChild(Executor executor, int maxPendingTasks,
                                        RejectedExecutionHandler rejectedExecutionHandler, Object... args) {
         return newChild(executor, maxPendingTasks, rejectedExecutionHandler,
-                ((IoHandlerFactory) args[0]).newHandler(), (Integer) args[1],
-                Arrays.copyOfRange(args, 2, args.length));
+                ((IoHandlerFactory) args[0]).newHandler(), (Integer) args[1], (ScheduledTaskQueueType) args[2],
+                Arrays.copyOfRange(args, 3, args.length));
+    }
+
+    /**
+     * Creates a new {@link EventLoop} to use.
+     *
+     * As this method is called from within the constructor you can only use the parameters passed into the method when
+     * overriding this method. By default this calls
+     * {@link #newChild(Executor, int, RejectedExecutionHandler, IoHandler, int, Object...)} if
+     * {@link ScheduledTaskQueueType#PRIORITY_QUEUE} is used.
+     *
+     * @param executor                  the {@link Executor} to use for execution.
+     * @param maxPendingTasks           the maximum number of pending tasks.
+     * @param rejectedExecutionHandler  the {@link RejectedExecutionHandler} to use when the number of outstanding tasks
+     *                                  reach {@code maxPendingTasks}.
+     * @param ioHandler                 the {@link IoHandler} to use.
+     * @param maxTasksPerRun            the maximum number of tasks per {@link EventLoop} run that will be processed
+     *                                  before trying to handle IO again.
+     * @param scheduledTaskQueueType    the {@link ScheduledTaskQueueType} to use for storing scheduled tasks.
+     * @param args                      any extra args needed to construct the {@link EventLoop}. This will be an empty
+     *                                  array if not sub-classes and extra arguments are given.
+     * @return                          the {@link EventLoop} to use.
+     */
+    protected EventLoop newChild(Executor executor, int maxPendingTasks,
+                                 RejectedExecutionHandler rejectedExecutionHandler,
+                                 IoHandler ioHandler, int maxTasksPerRun,
+                                 ScheduledTaskQueueType scheduledTaskQueueType, Object... args) {
+        if (scheduledTaskQueueType == ScheduledTaskQueueType.PRIORITY_QUEUE) {
+            return newChild(executor, maxPendingTasks, rejectedExecutionHandler, ioHandler, maxTasksPerRun, args);
+        }
+        assert args.length == 0;
+        return new SingleThreadEventLoop(executor, ioHandler, maxPendingTasks,
+                rejectedExecutionHandler, maxTasksPerRun, scheduledTaskQueueType);
     }
 
     /**
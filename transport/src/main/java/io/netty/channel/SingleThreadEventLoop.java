@@ -20,6 +20,7 @@ import static java.util.Objects.requireNonNull;
 
 import io.netty.util.concurrent.RejectedExecutionHandler;
 import io.netty.util.concurrent.RejectedExecutionHandlers;
+import io.netty.util.concurrent.ScheduledTaskQueueType;
 import io.netty.util.concurrent.SingleThreadEventExecutor;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.SystemPropertyUtil;
@@ -27,6 +28,8 @@ import io.netty.util.internal.SystemPropertyUtil;
 import java.util.Queue;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 
 /**
  * {@link EventLoop} that execute all its submitted tasks in a single thread and uses an {@link IoHandler} for
@@ -41,6 +44,10 @@ public class SingleThreadEventLoop extends SingleThreadEventExecutor implements
     protected static final int DEFAULT_MAX_TASKS_PER_RUN = Math.max(1,
             SystemPropertyUtil.getInt("io.netty.eventLoop.maxTaskPerRun", 1024 * 4));
 
+    // If false the time spent in the IoHandler and with running tasks is not measured, so run() does not pay for it.
+    private static final boolean METRICS_ENABLED = SystemPropertyUtil.getBoolean("io.netty.eventLoop.metrics",
+            SystemPropertyUtil.getBoolean("io.netty.eventexecutor.metrics", true));
+
     private final IoExecutionContext context = new IoExecutionContext() {
         @Override
         public boolean canBlock() {
@@ -59,6 +66,30 @@ public class SingleThreadEventLoop extends SingleThreadEventExecutor implements
             assert inEventLoop();
             return SingleThreadEventLoop.this.deadlineNanos();
         }
+
+        @Override
+        public void reportProgress(Channel channel) {
+            assert inEventLoop();
+            SingleThreadEventLoop.this.reportProgress(channel);
+        }
+
+        @Override
+        public void reportBlocking() {
+            assert inEventLoop();
+            if (METRICS_ENABLED) {
+                blockedSinceNanos = System.nanoTime();
+                blocked = true;
+            }
+        }
+
+        @Override
+        public void reportUnblocked() {
+            assert inEventLoop();
+            if (blocked) {
+                blocked = false;
+                runBlockedNanos += System.nanoTime() - blockedSinceNanos;
+            }
+        }
     };
 
     private final Unsafe unsafe = new Unsafe() {
@@ -73,9 +104,99 @@ public class SingleThreadEventLoop extends SingleThreadEventExecutor implements
         }
     };
 
+    // The window over which the busy ratio is calculated.
+    private static final long BUSY_RATIO_WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private static final AtomicLongFieldUpdater<SingleThreadEventLoop> IO_RUNS_UPDATER =
+            AtomicLongFieldUpdater.newUpdater(SingleThreadEventLoop.class, "ioRuns");
+    private static final AtomicLongFieldUpdater<SingleThreadEventLoop> IO_EVENTS_UPDATER =
+            AtomicLongFieldUpdater.newUpdater(SingleThreadEventLoop.class, "ioEvents");
+    private static final AtomicLongFieldUpdater<SingleThreadEventLoop> IO_NANOS_UPDATER =
+            AtomicLongFieldUpdater.newUpdater(SingleThreadEventLoop.class, "ioNanos");
+    private static final AtomicLongFieldUpdater<SingleThreadEventLoop> TASK_NANOS_UPDATER =
+            AtomicLongFieldUpdater.newUpdater(SingleThreadEventLoop.class, "taskNanos");
+    private static final AtomicLongFieldUpdater<SingleThreadEventLoop> MAX_TASKS_PER_RUN_EXHAUSTED_UPDATER =
+            AtomicLongFieldUpdater.newUpdater(SingleThreadEventLoop.class, "maxTasksPerRunExhausted");
+
     private final IoHandler ioHandler;
     private final int maxTasksPerRun;
 
+    // Only accessed by the EventLoop thread.
+    private long runBlockedNanos;
+    private long busyNanos;
+    private long busyIoNanos;
+    private long busyWindowStartNanos;
+
+    // Only written by the EventLoop thread.
+    private volatile boolean blocked;
+    private volatile long blockedSinceNanos;
+    private volatile double busyRatio;
+    private volatile long recentIoNanos;
+
+    // Only written by the EventLoop thread.
+    private volatile long ioRuns;
+    private volatile long ioEvents;
+    private volatile long ioNanos;
+    private volatile long taskNanos;
+    private volatile long maxTasksPerRunExhausted;
+
+    private final EventLoopMetric metric = new EventLoopMetric() {
+        @Override
+        public int pendingTasks() {
+            return SingleThreadEventLoop.super.metric().pendingTasks();
+        }
+
+        @Override
+        public long executedTasks() {
+            return SingleThreadEventLoop.super.metric().executedTasks();
+        }
+
+        @Override
+        public long averageTaskWaitTime(TimeUnit unit) {
+            return SingleThreadEventLoop.super.metric().averageTaskWaitTime(unit);
+        }
+
+        @Override
+        public int registeredChannels() {
+            return SingleThreadEventLoop.this.registeredChannels();
+        }
+
+        @Override
+        public double busyRatio() {
+            return SingleThreadEventLoop.this.busyRatio();
+        }
+
+        @Override
+        public long ioRuns() {
+            return METRICS_ENABLED ? ioRuns : -1;
+        }
+
+        @Override
+        public long ioEvents() {
+            return METRICS_ENABLED ? ioEvents : -1;
+        }
+
+        @Override
+        public long ioTime(TimeUnit unit) {
+            return METRICS_ENABLED ? unit.convert(ioNanos, TimeUnit.NANOSECONDS) : -1;
+        }
+
+        @Override
+        public long taskTime(TimeUnit unit) {
+            return METRICS_ENABLED ? unit.convert(taskNanos, TimeUnit.NANOSECONDS) : -1;
+        }
+
+        @Override
+        public long maxTasksPerRunExhausted() {
+            return METRICS_ENABLED ? maxTasksPerRunExhausted : -1;
+        }
+
+        @Override
+        public long wakeups() {
+            return ioHandler.wakeups();
+        }
+    };
+
     /**
      * Create a new instance
      *
@@ -137,7 +258,26 @@ public class SingleThreadEventLoop extends SingleThreadEventExecutor implements
     public SingleThreadEventLoop(ThreadFactory threadFactory,
                                  IoHandler ioHandler, int maxPendingTasks,
                                  RejectedExecutionHandler rejectedHandler, int maxTasksPerRun) {
-        super(threadFactory, maxPendingTasks, rejectedHandler);
+        this(threadFactory, ioHandler, maxPendingTasks, rejectedHandler, maxTasksPerRun,
+                ScheduledTaskQueueType.PRIORITY_QUEUE);
+    }
+
+    /**
+     * Create a new instance
+     *
+     * @param threadFactory          the {@link ThreadFactory} which will be used for the used {@link Thread}
+     * @param ioHandler                 the {@link IoHandler} to use.
+     * @param maxPendingTasks           the maximum number of pending tasks before new tasks will be rejected.
+     * @param rejectedHandler           the {@link RejectedExecutionHandler} to use.
+     * @param maxTasksPerRun            the maximum number of tasks per {@link EventLoop} run that will be processed
+     *                                  before trying to handle IO again.
+     * @param scheduledTaskQueueType    the {@link ScheduledTaskQueueType} that is used to store scheduled tasks.
+     */
+    public SingleThreadEventLoop(ThreadFactory threadFactory,
+                                 IoHandler ioHandler, int maxPendingTasks,
+                                 RejectedExecutionHandler rejectedHandler, int maxTasksPerRun,
+                                 ScheduledTaskQueueType scheduledTaskQueueType) {
+        super(threadFactory, maxPendingTasks, rejectedHandler, scheduledTaskQueueType);
         this.ioHandler = requireNonNull(ioHandler, "ioHandler");
         this.maxTasksPerRun = checkPositive(maxTasksPerRun, "maxTasksPerRun");
     }
@@ -155,7 +295,26 @@ public class SingleThreadEventLoop extends SingleThreadEventExecutor implements
     public SingleThreadEventLoop(Executor executor,
                                  IoHandler ioHandler, int maxPendingTasks,
                                  RejectedExecutionHandler rejectedHandler, int maxTasksPerRun) {
-        super(executor, maxPendingTasks, rejectedHandler);
+        this(executor, ioHandler, maxPendingTasks, rejectedHandler, maxTasksPerRun,
+                ScheduledTaskQueueType.PRIORITY_QUEUE);
+    }
+
+    /**
+     * Create a new instance
+     *
+     * @param executor               the {@link Executor} which will be used to run this {@link EventLoop}.
+     * @param ioHandler                 the {@link IoHandler} to use.
+     * @param maxPendingTasks           the maximum number of pending tasks before new tasks will be rejected.
+     * @param rejectedHandler           the {@link RejectedExecutionHandler} to use.
+     * @param maxTasksPerRun            the maximum number of tasks per {@link EventLoop} run that will be processed
+     *                                  before trying to handle IO again.
+     * @param scheduledTaskQueueType    the {@link ScheduledTaskQueueType} that is used to store scheduled tasks.
+     */
+    public SingleThreadEventLoop(Executor executor,
+                                 IoHandler ioHandler, int maxPendingTasks,
+                                 RejectedExecutionHandler rejectedHandler, int maxTasksPerRun,
+                                 ScheduledTaskQueueType scheduledTaskQueueType) {
+        super(executor, maxPendingTasks, rejectedHandler, scheduledTaskQueueType);
         this.ioHandler = requireNonNull(ioHandler, "ioHandler");
         this.maxTasksPerRun = checkPositive(maxTasksPerRun, "maxTasksPerRun");
     }
@@ -182,6 +341,17 @@ public class SingleThreadEventLoop extends SingleThreadEventExecutor implements
      */
     interface NonWakeupRunnable extends Runnable { }
 
+    @Override
+    protected Object stalledHandlerContext(Object context, StackTraceElement[] stackTrace) {
+        if (context instanceof Channel) {
+            ChannelPipeline pipeline = ((Channel) context).pipeline();
+            if (pipeline instanceof DefaultChannelPipeline) {
+                return ((DefaultChannelPipeline) pipeline).invokedContext(stackTrace);
+            }
+        }
+        return null;
+    }
+
     @Override
     public final Unsafe unsafe() {
         return unsafe;
@@ -192,15 +362,128 @@ public class SingleThreadEventLoop extends SingleThreadEventExecutor implements
     @Override
     protected void run() {
         assert inEventLoop();
+        if (!METRICS_ENABLED) {
+            do {
+                reportHeartbeat();
+                runIo();
+                if (isShuttingDown()) {
+                    ioHandler.prepareToDestroy();
+                }
+                runAllTasks(maxTasksPerRun);
+            } while (!confirmShutdown());
+            return;
+        }
+        long startNanos = System.nanoTime();
+        busyWindowStartNanos = startNanos;
         do {
-            runIo();
+            reportHeartbeat();
+            runBlockedNanos = 0;
+            int ioEvents = runIo();
+            // A poll that neither blocked nor found any events is cheap, so its time is accounted to the tasks
+            // instead of taking another timestamp.
+            boolean ioMeasured = ioEvents > 0 || runBlockedNanos > 0;
+            long ioEndNanos = ioMeasured ? System.nanoTime() : startNanos;
             if (isShuttingDown()) {
                 ioHandler.prepareToDestroy();
             }
-            runAllTasks(maxTasksPerRun);
+            int tasks = runAllTasks(maxTasksPerRun);
+            long endNanos = tasks == 0 && ioMeasured ? ioEndNanos : System.nanoTime();
+            // The time the IoHandler was blocked while waiting for IO is not counted as busy.
+            recordBusyTime(ioEndNanos - startNanos - runBlockedNanos, endNanos - ioEndNanos, endNanos);
+            recordRun(ioEvents, ioEndNanos - startNanos, endNanos - ioEndNanos, tasks >= maxTasksPerRun);
+            // System.nanoTime() is not free, so every iteration starts where the previous one ended.
+            startNanos = endNanos;
         } while (!confirmShutdown());
     }
 
+    private void reportHeartbeat() {
+        if (context.canBlock()) {
+            // The IoHandler will report progress once it processes IO for a Channel.
+            reportIdle();
+        } else {
+            reportProgress(null);
+        }
+    }
+
+    private void recordRun(int events, long ioRunNanos, long taskRunNanos, boolean exhausted) {
+        // Use lazySet as we are the only writer and the values are only used for metrics.
+        IO_RUNS_UPDATER.lazySet(this, ioRuns + 1);
+        if (events > 0) {
+            IO_EVENTS_UPDATER.lazySet(this, ioEvents + events);
+        }
+        IO_NANOS_UPDATER.lazySet(this, ioNanos + ioRunNanos);
+        TASK_NANOS_UPDATER.lazySet(this, taskNanos + taskRunNanos);
+        if (exhausted) {
+            MAX_TASKS_PER_RUN_EXHAUSTED_UPDATER.lazySet(this, maxTasksPerRunExhausted + 1);
+        }
+    }
+
+    private void recordBusyTime(long ioNanos, long taskNanos, long nowNanos) {
+        busyIoNanos += ioNanos;
+        busyNanos += ioNanos + taskNanos;
+        long elapsedNanos = nowNanos - busyWindowStartNanos;
+        if (elapsedNanos >= BUSY_RATIO_WINDOW_NANOS) {
+            busyRatio = Math.min(1.0, (double) busyNanos / elapsedNanos);
+            recentIoNanos = (long) ((double) busyIoNanos / elapsedNanos * BUSY_RATIO_WINDOW_NANOS);
+            busyNanos = 0;
+            busyIoNanos = 0;
+            busyWindowStartNanos = nowNanos;
+        }
+    }
+
+    /**
+     * No measurement window is closed while the {@link EventLoop} is blocked waiting for IO, so the last published
+     * values are decayed by the time spent blocked since then.
+     */
+    private double idleDecay() {
+        if (!blocked) {
+            return 1.0;
+        }
+        long blockedNanos = System.nanoTime() - blockedSinceNanos;
+        return blockedNanos <= 0 ? 1.0 : (double) BUSY_RATIO_WINDOW_NANOS / (BUSY_RATIO_WINDOW_NANOS + blockedNanos);
+    }
+
+    /**
+     * Returns the number of {@link Channel}s that are registered with this {@link EventLoop} or {@code -1} if the
+     * used {@link IoHandler} does not support it. This method may be called from any thread and so the returned value
+     * is only an estimate.
+     */
+    public int registeredChannels() {
+        return ioHandler.registeredChannels();
+    }
+
+    /**
+     * Returns the fraction of time (between {@code 0.0} and {@code 1.0}) that this {@link EventLoop} spent with
+     * processing IO and tasks instead of waiting for work, measured over the last completed window of roughly 100
+     * milliseconds, or {@code -1} if the metrics are disabled (see {@link #metric()}). The value decays while the
+     * {@link EventLoop} is blocked waiting for IO. This method may be called from any thread and so the returned value
+     * is only an estimate.
+     */
+    public double busyRatio() {
+        return METRICS_ENABLED ? busyRatio * idleDecay() : -1;
+    }
+
+    /**
+     * Returns the time this {@link EventLoop} spent with processing IO, not counting the time it was blocked waiting
+     * for IO, during the last completed window, scaled to a window of 100 milliseconds, or {@code -1} if the metrics
+     * are disabled (see {@link #metric()}). The value decays while the {@link EventLoop} is blocked waiting for IO.
+     * This method may be called from any thread and so the returned value is only an estimate.
+     */
+    public long recentIoTime(TimeUnit unit) {
+        return METRICS_ENABLED ? unit.convert((long) (recentIoNanos * idleDecay()), TimeUnit.NANOSECONDS) : -1;
+    }
+
+    /**
+     * Returns the {@link EventLoopMetric} of this {@link SingleThreadEventLoop}. The metric is maintained with cheap
+     * counters and timestamps, which can be disabled by setting the system property {@code io.netty.eventLoop.metrics}
+     * (or {@code io.netty.eventexecutor.metrics}) to {@code false}. In this case the values that depend on them are
+     * reported as unknown.
+     */
+    @Override
+    public EventLoopMetric metric() {
+        return metric;
+    }
+
     /**
      * Called when IO will be processed for all the {@link Channel}s on this {@link SingleThreadEventLoop}.
      * This method returns the number of {@link Channel}s for which IO was processed.
@@ -23,6 +23,8 @@ import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelId;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.EventLoop;
 import io.netty.channel.ServerChannel;
 import io.netty.util.ReferenceCountUtil;
 import io.netty.util.concurrent.EventExecutor;
@@ -31,12 +33,16 @@ import io.netty.util.internal.StringUtil;
 import java.util.AbstractSet;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 /**
  * The default {@link ChannelGroup} implementation.
@@ -256,25 +262,62 @@ public class DefaultChannelGroup extends AbstractSet<Channel> implements Channel
 
         final ChannelGroupFuture future;
         if (voidPromise) {
-            for (Channel c: nonServerChannels.values()) {
-                if (matcher.matches(c)) {
-                    c.write(safeDuplicate(message), c.voidPromise());
-                }
-            }
+            write0(message, matcher, false, null);
             future = voidFuture;
         } else {
             Map<Channel, ChannelFuture> futures = new LinkedHashMap<>(size());
-            for (Channel c: nonServerChannels.values()) {
-                if (matcher.matches(c)) {
-                    futures.put(c, c.write(safeDuplicate(message)));
-                }
-            }
+            write0(message, matcher, false, futures);
             future = new DefaultChannelGroupFuture(this, futures, executor);
         }
         ReferenceCountUtil.release(message);
         return future;
     }
 
+    /**
+     * Writes a duplicate of the message to all matching {@link Channel}s. The writes are grouped by the
+     * {@link EventLoop} of the {@link Channel}s, so each {@link EventLoop} is only woken up once.
+     *
+     * @param futures   the {@link Map} to which the {@link ChannelFuture} of each write is added or {@code null} if
+     *                  the void promise should be used.
+     */
+    private void write0(Object message, ChannelMatcher matcher, boolean flush, Map<Channel, ChannelFuture> futures) {
+        Map<EventLoop, List<Runnable>> batches = new IdentityHashMap<>();
+        for (Channel c: nonServerChannels.values()) {
+            if (matcher.matches(c)) {
+                ChannelPromise promise = futures == null ? c.voidPromise() : c.newPromise();
+                if (futures != null) {
+                    futures.put(c, promise);
+                }
+                Object msg = safeDuplicate(message);
+                EventLoop loop = c.eventLoop();
+                if (loop.inEventLoop()) {
+                    write(c, msg, flush, promise);
+                } else {
+                    batches.computeIfAbsent(loop, k -> new ArrayList<>())
+                            .add(new WriteTask(c, msg, flush, promise));
+                }
+            }
+        }
+        for (Map.Entry<EventLoop, List<Runnable>> batch: batches.entrySet()) {
+            try {
+                batch.getKey().executeBatch(batch.getValue());
+            } catch (RejectedExecutionException e) {
+                // Fail all writes that were not picked up by the EventLoop.
+                for (Runnable task: batch.getValue()) {
+                    ((WriteTask) task).reject(e);
+                }
+            }
+        }
+    }
+
+    private static void write(Channel c, Object msg, boolean flush, ChannelPromise promise) {
+        if (flush) {
+            c.writeAndFlush(msg, promise);
+        } else {
+            c.write(msg, promise);
+        }
+    }
+
     @Override
     public ChannelGroup flush() {
         return flush(ChannelMatchers.all());
@@ -365,9 +408,22 @@ public class DefaultChannelGroup extends AbstractSet<Channel> implements Channel
 
     @Override
     public ChannelGroup flush(ChannelMatcher matcher) {
+        Map<EventLoop, List<Runnable>> batches = new IdentityHashMap<>();
         for (Channel c: nonServerChannels.values()) {
             if (matcher.matches(c)) {
-                c.flush();
+                EventLoop loop = c.eventLoop();
+                if (loop.inEventLoop()) {
+                    c.flush();
+                } else {
+                    batches.computeIfAbsent(loop, k -> new ArrayList<>()).add(c::flush);
+                }
+            }
+        }
+        for (Map.Entry<EventLoop, List<Runnable>> batch: batches.entrySet()) {
+            try {
+                batch.getKey().executeBatch(batch.getValue());
+            } catch (RejectedExecutionException ignore) {
+                // The EventLoop was shutdown and so there is nothing left to flush.
             }
         }
         return this;
@@ -389,19 +445,11 @@ public class DefaultChannelGroup extends AbstractSet<Channel> implements Channel
 
         final ChannelGroupFuture future;
         if (voidPromise) {
-            for (Channel c: nonServerChannels.values()) {
-                if (matcher.matches(c)) {
-                    c.writeAndFlush(safeDuplicate(message), c.voidPromise());
-                }
-            }
+            write0(message, matcher, true, null);
             future = voidFuture;
         } else {
             Map<Channel, ChannelFuture> futures = new LinkedHashMap<>(size());
-            for (Channel c: nonServerChannels.values()) {
-                if (matcher.matches(c)) {
-                    futures.put(c, c.writeAndFlush(safeDuplicate(message)));
-                }
-            }
+            write0(message, matcher, true, futures);
             future = new DefaultChannelGroupFuture(this, futures, executor);
         }
         ReferenceCountUtil.release(message);
@@ -456,4 +504,36 @@ public class DefaultChannelGroup extends AbstractSet<Channel> implements Channel
     public String toString() {
         return StringUtil.simpleClassName(this) + "(name: " + name() + ", size: " + size() + ')';
     }
+
+    private static final class WriteTask implements Runnable {
+        private static final AtomicIntegerFieldUpdater<WriteTask> DONE_UPDATER =
+                AtomicIntegerFieldUpdater.newUpdater(WriteTask.class, "done");
+
+        private final Channel channel;
+        private final Object msg;
+        private final boolean flush;
+        private final ChannelPromise promise;
+        private volatile int done;
+
+        WriteTask(Channel channel, Object msg, boolean flush, ChannelPromise promise) {
+            this.channel = channel;
+            this.msg = msg;
+            this.flush = flush;
+            this.promise = promise;
+        }
+
+        @Override
+        public void run() {
+            if (DONE_UPDATER.compareAndSet(this, 0, 1)) {
+                write(channel, msg, flush, promise);
+            }
+        }
+
+        void reject(Throwable cause) {
+            if (DONE_UPDATER.compareAndSet(this, 0, 1)) {
+                ReferenceCountUtil.release(msg);
+                promise.tryFailure(cause);
+            }
+        }
+    }
 }
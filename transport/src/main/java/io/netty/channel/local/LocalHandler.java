@@ -56,7 +56,9 @@ public final class LocalHandler implements IoHandler {
         }
         if (runner.canBlock()) {
             // Just block until there is a task ready to process or wakeup(...) is called.
+            runner.reportBlocking();
             LockSupport.parkNanos(this, runner.delayNanos(System.nanoTime()));
+            runner.reportUnblocked();
         }
         return 0;
     }
@@ -80,6 +82,11 @@ public final class LocalHandler implements IoHandler {
         registeredChannels.clear();
     }
 
+    @Override
+    public int registeredChannels() {
+        return registeredChannels.size();
+    }
+
     @Override
     public void destroy() {
     }
@@ -50,6 +50,7 @@ import java.util.Iterator;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * {@link IoHandler} implementation which register the {@link Channel}'s to a
@@ -118,12 +119,16 @@ public final class NioHandler implements IoHandler {
      * waken up.
      */
     private final AtomicBoolean wakenUp = new AtomicBoolean();
+    private final LongAdder wakeups = new LongAdder();
 
     private final SelectStrategy selectStrategy;
 
     private int cancelledKeys;
     private boolean needsToSelectAgain;
 
+    // Only written by the EventLoop thread, the Selector's key set must not be accessed from other threads.
+    private volatile int registeredChannels;
+
     private NioHandler() {
         this(SelectorProvider.provider(), DefaultSelectStrategyFactory.INSTANCE.newSelectStrategy());
     }
@@ -369,6 +374,7 @@ public final class NioHandler implements IoHandler {
         for (;;) {
             try {
                 nioChannel.selectionKey = nioChannel.javaChannel().register(unwrappedSelector(), 0, nioChannel);
+                registeredChannels++;
                 return;
             } catch (CancelledKeyException e) {
                 if (!selected) {
@@ -389,6 +395,7 @@ public final class NioHandler implements IoHandler {
     public void deregister(Channel channel) {
         AbstractNioChannel nioChannel = cast(channel);
         cancel(nioChannel.selectionKey());
+        registeredChannels--;
     }
 
     @Override
@@ -450,7 +457,7 @@ public final class NioHandler implements IoHandler {
 
             cancelledKeys = 0;
             needsToSelectAgain = false;
-            handled = processSelectedKeys();
+            handled = processSelectedKeys(runner);
         } catch (Throwable t) {
             handleLoopException(t);
         }
@@ -469,14 +476,24 @@ public final class NioHandler implements IoHandler {
         }
     }
 
-    private int processSelectedKeys() {
+    private int processSelectedKeys(IoExecutionContext context) {
         if (selectedKeys != null) {
-            return processSelectedKeysOptimized();
+            return processSelectedKeysOptimized(context);
         } else {
-            return processSelectedKeysPlain(selector.selectedKeys());
+            return processSelectedKeysPlain(selector.selectedKeys(), context);
         }
     }
 
+    @Override
+    public int registeredChannels() {
+        return registeredChannels;
+    }
+
+    @Override
+    public long wakeups() {
+        return wakeups.sum();
+    }
+
     @Override
     public void destroy() {
         try {
@@ -495,7 +512,7 @@ public final class NioHandler implements IoHandler {
         }
     }
 
-    private int processSelectedKeysPlain(Set<SelectionKey> selectedKeys) {
+    private int processSelectedKeysPlain(Set<SelectionKey> selectedKeys, IoExecutionContext context) {
         // check if the set is empty and if so just return to not create garbage by
         // creating a new Iterator every time even if there is nothing to process.
         // See https://github.com/netty/netty/issues/597
@@ -509,7 +526,7 @@ public final class NioHandler implements IoHandler {
             final SelectionKey k = i.next();
             i.remove();
 
-            processSelectedKey(k);
+            processSelectedKey(k, context);
             ++handled;
 
             if (!i.hasNext()) {
@@ -531,7 +548,7 @@ public final class NioHandler implements IoHandler {
         return handled;
     }
 
-    private int processSelectedKeysOptimized() {
+    private int processSelectedKeysOptimized(IoExecutionContext context) {
         int handled = 0;
         for (int i = 0; i < selectedKeys.size; ++i) {
             final SelectionKey k = selectedKeys.keys[i];
@@ -539,7 +556,7 @@ public final class NioHandler implements IoHandler {
             // See https://github.com/netty/netty/issues/2363
             selectedKeys.keys[i] = null;
 
-            processSelectedKey(k);
+            processSelectedKey(k, context);
             ++handled;
 
             if (needsToSelectAgain) {
@@ -554,11 +571,13 @@ public final class NioHandler implements IoHandler {
         return handled;
     }
 
-    private void processSelectedKey(SelectionKey k) {
+    private void processSelectedKey(SelectionKey k, IoExecutionContext context) {
         final Object a = k.attachment();
 
         if (a instanceof AbstractNioChannel) {
-            processSelectedKey(k, (AbstractNioChannel) a);
+            AbstractNioChannel ch = (AbstractNioChannel) a;
+            context.reportProgress(ch);
+            processSelectedKey(k, ch);
         } else {
             @SuppressWarnings("unchecked")
             NioTask<SelectableChannel> task = (NioTask<SelectableChannel>) a;
@@ -663,6 +682,7 @@ public final class NioHandler implements IoHandler {
     public void wakeup(boolean inEventLoop) {
         if (!inEventLoop && wakenUp.compareAndSet(false, true)) {
             selector.wakeup();
+            wakeups.increment();
         }
     }
 
@@ -708,7 +728,13 @@ public final class NioHandler implements IoHandler {
                     break;
                 }
 
-                int selectedKeys = selector.select(timeoutMillis);
+                runner.reportBlocking();
+                int selectedKeys;
+                try {
+                    selectedKeys = selector.select(timeoutMillis);
+                } finally {
+                    runner.reportUnblocked();
+                }
                 selectCnt ++;
 
                 if (selectedKeys != 0 || oldWakenUp || wakenUp.get() || !runner.canBlock()) {
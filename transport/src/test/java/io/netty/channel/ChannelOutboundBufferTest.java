@@ -120,6 +120,64 @@ public class ChannelOutboundBufferTest {
         buf.release();
     }
 
+    @Test
+    public void testRemoveDeferred() {
+        TestChannel channel = new TestChannel();
+        ChannelOutboundBuffer buffer = new ChannelOutboundBuffer(channel);
+        assertNull(buffer.removeDeferred());
+
+        ByteBuf buf1 = copiedBuffer("buf1", CharsetUtil.US_ASCII);
+        ByteBuf buf2 = copiedBuffer("buf2", CharsetUtil.US_ASCII);
+        ChannelPromise promise1 = channel.newPromise();
+        ChannelPromise promise2 = channel.newPromise();
+        buffer.addMessage(buf1, buf1.readableBytes(), promise1);
+        buffer.addMessage(buf2, buf2.readableBytes(), promise2);
+        buffer.addFlush();
+        long pending = buffer.totalPendingWriteBytes();
+
+        ChannelOutboundBuffer.DeferredWrite write1 = buffer.removeDeferred();
+        ChannelOutboundBuffer.DeferredWrite write2 = buffer.removeDeferred();
+        assertSame(buf1, write1.msg());
+        assertSame(buf2, write2.msg());
+        assertTrue(buffer.isEmpty());
+        assertNull(buffer.removeDeferred());
+
+        // Nothing is released or notified until the writes are completed.
+        assertEquals(1, buf1.refCnt());
+        assertEquals(1, buf2.refCnt());
+        assertFalse(promise1.isDone());
+        assertEquals(pending, buffer.totalPendingWriteBytes());
+
+        write1.complete();
+        assertEquals(0, buf1.refCnt());
+        assertTrue(promise1.isSuccess());
+
+        IllegalStateException cause = new IllegalStateException();
+        write2.fail(cause);
+        assertEquals(0, buf2.refCnt());
+        assertSame(cause, promise2.cause());
+        assertEquals(0, buffer.totalPendingWriteBytes());
+    }
+
+    @Test
+    public void testRemoveDeferredFailWithoutRelease() {
+        TestChannel channel = new TestChannel();
+        ChannelOutboundBuffer buffer = new ChannelOutboundBuffer(channel);
+
+        ByteBuf buf = copiedBuffer("buf", CharsetUtil.US_ASCII);
+        ChannelPromise promise = channel.newPromise();
+        buffer.addMessage(buf, buf.readableBytes(), promise);
+        buffer.addFlush();
+
+        ChannelOutboundBuffer.DeferredWrite write = buffer.removeDeferred();
+        IllegalStateException cause = new IllegalStateException();
+        write.failWithoutRelease(cause);
+        assertSame(cause, promise.cause());
+        assertEquals(1, buf.refCnt());
+        assertEquals(0, buffer.totalPendingWriteBytes());
+        buf.release();
+    }
+
     private static void release(ChannelOutboundBuffer buffer) {
         for (;;) {
             if (!buffer.remove()) {
@@ -158,6 +158,34 @@ public class DefaultChannelPipelineTest {
         }
     }
 
+    @Test
+    public void testInvokedContext() {
+        ChannelHandler forwarding = new ChannelHandler() {
+            @Override
+            public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                ctx.fireChannelRead(msg);
+            }
+        };
+        // Uses a sub-class, so the stack only contains the super class which implements channelRead(...).
+        StackTraceRecordingHandler recording = new StackTraceRecordingHandler() { };
+        EmbeddedChannel channel = new EmbeddedChannel(forwarding, recording);
+        DefaultChannelPipeline pipeline = (DefaultChannelPipeline) channel.pipeline();
+
+        assertNull(pipeline.invokedContext(Thread.currentThread().getStackTrace()));
+        assertFalse(channel.writeInbound("msg"));
+        assertSame(pipeline.context(recording), pipeline.invokedContext(recording.stackTrace));
+        assertFalse(channel.finish());
+    }
+
+    private static class StackTraceRecordingHandler implements ChannelHandler {
+        StackTraceElement[] stackTrace;
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            stackTrace = Thread.currentThread().getStackTrace();
+        }
+    }
+
     private static LocalChannel newLocalChannel() {
         return new LocalChannel(group.next());
     }
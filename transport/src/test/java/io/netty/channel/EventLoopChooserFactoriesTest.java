@@ -0,0 +1,138 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel;
+
+import io.netty.channel.local.LocalChannel;
+import io.netty.channel.local.LocalHandler;
+import io.netty.util.concurrent.EventExecutor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class EventLoopChooserFactoriesTest {
+
+    private MultithreadEventLoopGroup group;
+
+    @Before
+    public void setUp() {
+        group = new MultithreadEventLoopGroup(2, LocalHandler.newFactory(),
+                EventLoopChooserFactories.leastRegisteredChannels());
+    }
+
+    @After
+    public void tearDown() {
+        group.shutdownGracefully(0, 0, TimeUnit.SECONDS).syncUninterruptibly();
+    }
+
+    @Test(timeout = 5000)
+    public void testLeastRegisteredChannels() throws Exception {
+        SingleThreadEventLoop busyLoop = (SingleThreadEventLoop) executor(group, 0);
+        SingleThreadEventLoop idleLoop = (SingleThreadEventLoop) executor(group, 1);
+        assertEquals(0, busyLoop.registeredChannels());
+
+        List<Channel> channels = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Channel channel = new LocalChannel(busyLoop);
+            channel.register().sync();
+            channels.add(channel);
+        }
+        assertEquals(4, busyLoop.registeredChannels());
+        assertEquals(0, idleLoop.registeredChannels());
+
+        // With only two EventLoops both are always compared.
+        for (int i = 0; i < 10; i++) {
+            assertSame(idleLoop, group.next());
+        }
+
+        for (Channel channel : channels) {
+            channel.close().sync();
+        }
+        // The deregistration may happen a bit later.
+        while (busyLoop.registeredChannels() != 0) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void testBusyRatio() throws Exception {
+        SingleThreadEventLoop loop = (SingleThreadEventLoop) executor(group, 0);
+        assertEquals(0.0, loop.busyRatio(), 0.0);
+
+        loop.submit(() -> {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(300);
+            while (System.nanoTime() < deadline) {
+                // Keep the EventLoop busy.
+            }
+        }).sync();
+
+        // The ratio is only updated after the task completed.
+        while (loop.busyRatio() == 0.0) {
+            Thread.sleep(10);
+        }
+        assertTrue(loop.busyRatio() > 0.5);
+        // Running tasks is not IO processing.
+        assertTrue(loop.recentIoTime(TimeUnit.MILLISECONDS) < 50);
+    }
+
+    @Test(timeout = 5000)
+    public void testBusyRatioDecaysWhileBlocked() throws Exception {
+        SingleThreadEventLoop loop = (SingleThreadEventLoop) executor(group, 0);
+        loop.submit(() -> {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(300);
+            while (System.nanoTime() < deadline) {
+                // Keep the EventLoop busy.
+            }
+        }).sync();
+        while (loop.busyRatio() == 0.0) {
+            Thread.sleep(10);
+        }
+
+        // The EventLoop is blocked waiting for IO now and so does not close a new window.
+        Thread.sleep(500);
+        assertTrue(loop.busyRatio() < 0.25);
+    }
+
+    private static EventExecutor executor(EventLoopGroup group, int index) {
+        Iterator<EventExecutor> executors = group.iterator();
+        for (int i = 0; i < index; i++) {
+            executors.next();
+        }
+        return executors.next();
+    }
+
+    @Test
+    public void testDefaultIsRoundRobin() {
+        MultithreadEventLoopGroup roundRobinGroup = new MultithreadEventLoopGroup(2, LocalHandler.newFactory());
+        try {
+            EventExecutor first = roundRobinGroup.next();
+            EventExecutor second = roundRobinGroup.next();
+            assertSame(executor(roundRobinGroup, 0), first);
+            assertSame(executor(roundRobinGroup, 1), second);
+            assertSame(first, roundRobinGroup.next());
+        } finally {
+            roundRobinGroup.shutdownGracefully(0, 0, TimeUnit.SECONDS).syncUninterruptibly();
+        }
+    }
+}
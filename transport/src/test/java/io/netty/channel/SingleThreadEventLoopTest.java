@@ -19,7 +19,10 @@ import ch.qos.logback.classic.Logger;
 import ch.qos.logback.classic.spi.ILoggingEvent;
 import ch.qos.logback.core.Appender;
 import io.netty.channel.local.LocalChannel;
+import io.netty.channel.local.LocalHandler;
 import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.RejectedExecutionHandlers;
+import io.netty.util.concurrent.ScheduledTaskQueueType;
 import io.netty.util.concurrent.SingleThreadEventExecutor;
 import org.junit.After;
 import org.junit.Before;
@@ -50,11 +53,15 @@ public class SingleThreadEventLoopTest {
 
     private SingleThreadEventLoopA loopA;
     private SingleThreadEventLoopB loopB;
+    private SingleThreadEventLoop loopWheel;
 
     @Before
     public void newEventLoop() {
         loopA = new SingleThreadEventLoopA();
         loopB = new SingleThreadEventLoopB();
+        loopWheel = new SingleThreadEventLoop(Executors.defaultThreadFactory(), LocalHandler.newFactory().newHandler(),
+                SingleThreadEventLoop.DEFAULT_MAX_PENDING_TASKS, RejectedExecutionHandlers.reject(),
+                SingleThreadEventLoop.DEFAULT_MAX_TASKS_PER_RUN, ScheduledTaskQueueType.TIMING_WHEEL);
     }
 
     @After
@@ -82,6 +89,8 @@ public class SingleThreadEventLoopTest {
                 // Ignore
             }
         }
+
+        loopWheel.shutdownGracefully(0, 0, TimeUnit.MILLISECONDS).syncUninterruptibly();
     }
 
     @Test
@@ -131,6 +140,11 @@ public class SingleThreadEventLoopTest {
         testScheduleTask(loopB);
     }
 
+    @Test
+    public void scheduleTaskTimingWheel() throws Exception {
+        testScheduleTask(loopWheel);
+    }
+
     private static void testScheduleTask(EventLoop loopA) throws InterruptedException, ExecutionException {
         long startTime = System.nanoTime();
         final AtomicLong endTime = new AtomicLong();
@@ -149,6 +163,11 @@ public class SingleThreadEventLoopTest {
         testScheduleTaskAtFixedRate(loopB);
     }
 
+    @Test(timeout = 5000)
+    public void scheduleTaskAtFixedRateTimingWheel() throws Exception {
+        testScheduleTaskAtFixedRate(loopWheel);
+    }
+
     private static void testScheduleTaskAtFixedRate(EventLoop loopA) throws InterruptedException {
         final Queue<Long> timestamps = new LinkedBlockingQueue<>();
         final int expectedTimeStamps = 5;
@@ -245,6 +264,11 @@ public class SingleThreadEventLoopTest {
         testScheduleTaskWithFixedDelay(loopB);
     }
 
+    @Test(timeout = 5000)
+    public void scheduleTaskWithFixedDelayTimingWheel() throws Exception {
+        testScheduleTaskWithFixedDelay(loopWheel);
+    }
+
     private static void testScheduleTaskWithFixedDelay(EventLoop loopA) throws InterruptedException {
         final Queue<Long> timestamps = new LinkedBlockingQueue<>();
         final int expectedTimeStamps = 3;
@@ -429,6 +453,42 @@ public class SingleThreadEventLoopTest {
         assertThat(loopA.isShutdown(), is(true));
     }
 
+    @Test(timeout = 10000)
+    public void testMetric() throws Exception {
+        SingleThreadEventLoop loop = new SingleThreadEventLoop(Executors.defaultThreadFactory(),
+                LocalHandler.newFactory().newHandler(), SingleThreadEventLoop.DEFAULT_MAX_PENDING_TASKS,
+                RejectedExecutionHandlers.reject(), 2);
+        try {
+            CountDownLatch blockLatch = new CountDownLatch(1);
+            loop.execute(() -> {
+                try {
+                    blockLatch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            CountDownLatch doneLatch = new CountDownLatch(10);
+            for (int i = 0; i < 10; i++) {
+                loop.execute(doneLatch::countDown);
+            }
+            blockLatch.countDown();
+            doneLatch.await();
+
+            EventLoopMetric metric = loop.metric();
+            assertEquals(11, metric.executedTasks());
+            assertThat(metric.ioRuns(), greaterThan(0L));
+            assertThat(metric.maxTasksPerRunExhausted(), greaterThan(0L));
+            assertThat(metric.ioTime(TimeUnit.NANOSECONDS), greaterThanOrEqualTo(0L));
+            assertThat(metric.taskTime(TimeUnit.NANOSECONDS), greaterThan(0L));
+            assertThat(metric.averageTaskWaitTime(TimeUnit.NANOSECONDS), greaterThanOrEqualTo(0L));
+            assertEquals(0, metric.registeredChannels());
+            // LocalHandler does not track wakeups.
+            assertEquals(-1, metric.wakeups());
+        } finally {
+            loop.shutdownGracefully(0, 0, TimeUnit.MILLISECONDS).syncUninterruptibly();
+        }
+    }
+
     private static class SingleThreadEventLoopA extends SingleThreadEventExecutor implements EventLoop {
 
         final AtomicInteger cleanedUp = new AtomicInteger();
@@ -15,17 +15,35 @@
  */
 package io.netty.channel.group;
 
+import io.netty.bootstrap.Bootstrap;
 import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.MultithreadEventLoopGroup;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.local.LocalChannel;
+import io.netty.channel.local.LocalHandler;
+import io.netty.channel.local.LocalServerChannel;
 import io.netty.channel.nio.NioHandler;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.util.CharsetUtil;
 import io.netty.util.concurrent.GlobalEventExecutor;
 import org.junit.Test;
 
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
 public class DefaultChannelGroupTest {
 
     // Test for #1183
@@ -58,4 +76,68 @@ public class DefaultChannelGroupTest {
         bossGroup.terminationFuture().sync();
         workerGroup.terminationFuture().sync();
     }
+
+    @Test(timeout = 10000)
+    public void testWriteToChannelsOnDifferentEventLoops() throws Exception {
+        EventLoopGroup serverGroup = new MultithreadEventLoopGroup(1, LocalHandler.newFactory());
+        EventLoopGroup clientGroup = new MultithreadEventLoopGroup(2, LocalHandler.newFactory());
+        BlockingQueue<String> received = new LinkedBlockingQueue<>();
+        try {
+            ServerBootstrap sb = new ServerBootstrap()
+                    .group(serverGroup)
+                    .channel(LocalServerChannel.class)
+                    .childHandler(new ChannelHandler() {
+                        @Override
+                        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                            ByteBuf buf = (ByteBuf) msg;
+                            received.add(ctx.channel().remoteAddress() + ":" + buf.toString(
+                                    buf.readerIndex(), buf.readableBytes(), CharsetUtil.US_ASCII));
+                            buf.release();
+                        }
+                    });
+            Channel sc = sb.bind(new LocalAddress("DefaultChannelGroupTest")).sync().channel();
+
+            Bootstrap cb = new Bootstrap()
+                    .group(clientGroup)
+                    .channel(LocalChannel.class)
+                    .handler(new ChannelHandler() { });
+            ChannelGroup group = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
+            for (int i = 0; i < 4; i++) {
+                group.add(cb.connect(sc.localAddress()).sync().channel());
+            }
+
+            ByteBuf message = Unpooled.copiedBuffer(new byte[] { 'a' });
+            ChannelGroupFuture future = group.write(message);
+            group.flush();
+            assertTrue(future.sync().isSuccess());
+            assertReceived(received, group, "a");
+            assertEquals(0, message.refCnt());
+
+            message = Unpooled.copiedBuffer(new byte[] { 'b' });
+            assertTrue(group.writeAndFlush(message).sync().isSuccess());
+            assertReceived(received, group, "b");
+            assertEquals(0, message.refCnt());
+
+            message = Unpooled.copiedBuffer(new byte[] { 'c' });
+            group.writeAndFlush(message, ChannelMatchers.all(), true);
+            assertReceived(received, group, "c");
+            assertEquals(0, message.refCnt());
+
+            group.close().sync();
+            sc.close().sync();
+        } finally {
+            serverGroup.shutdownGracefully();
+            clientGroup.shutdownGracefully();
+        }
+    }
+
+    private static void assertReceived(BlockingQueue<String> received, ChannelGroup group, String expected)
+            throws InterruptedException {
+        for (int i = 0; i < group.size(); i++) {
+            String msg = received.poll(5, TimeUnit.SECONDS);
+            assertNotNull(msg);
+            assertTrue(msg, msg.endsWith(":" + expected));
+        }
+        assertNull(received.poll(100, TimeUnit.MILLISECONDS));
+    }
 }
@@ -17,6 +17,8 @@ package io.netty.channel.nio;
 
 import io.netty.channel.AbstractEventLoopTest;
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.EventLoop;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.MultithreadEventLoopGroup;
@@ -27,6 +29,7 @@ import io.netty.channel.socket.ServerSocketChannel;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.util.IntSupplier;
 import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.EventExecutorWatchdog;
 import io.netty.util.concurrent.Future;
 import org.hamcrest.core.IsInstanceOf;
 import org.junit.Test;
@@ -37,7 +40,9 @@ import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
 import java.nio.channels.spi.SelectorProvider;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
@@ -237,4 +242,80 @@ public class NioEventLoopTest extends AbstractEventLoopTest {
         }
     }
 
+    @Test(timeout = 10000)
+    public void testStallWatchdogReportsChannel() throws Exception {
+        SingleThreadEventLoop loop = new SingleThreadEventLoop(new DefaultThreadFactory("ioPool"),
+                NioHandler.newFactory().newHandler());
+        BlockingQueue<EventExecutorWatchdog.Stall> stalls = new LinkedBlockingQueue<>();
+        EventExecutorWatchdog.watch(loop, 100, TimeUnit.MILLISECONDS, stalls::add);
+        try {
+            Channel channel = new NioServerSocketChannel(loop, loop);
+            channel.pipeline().addLast(new ChannelHandler() {
+                @Override
+                public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+                    // Block the EventLoop while processing the accepted Channel.
+                    Thread.sleep(500);
+                    ((Channel) msg).unsafe().closeForcibly();
+                }
+            });
+            channel.register().syncUninterruptibly();
+            channel.bind(new InetSocketAddress(0)).syncUninterruptibly();
+
+            // The EventLoop is blocked in select(...) and so not stalled.
+            assertNull(stalls.poll(300, TimeUnit.MILLISECONDS));
+
+            try (SocketChannel ignored = SocketChannel.open(channel.localAddress())) {
+                EventExecutorWatchdog.Stall stall = stalls.take();
+                assertSame(loop, stall.executor());
+                assertSame(channel, stall.context());
+            }
+            channel.close().syncUninterruptibly();
+        } finally {
+            EventExecutorWatchdog.unwatch(loop);
+            loop.shutdownGracefully();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testRegisteredChannelsAndIoBusyRatio() throws Exception {
+        SingleThreadEventLoop loop = new SingleThreadEventLoop(new DefaultThreadFactory("ioPool"),
+                NioHandler.newFactory().newHandler());
+        try {
+            assertEquals(0, loop.registeredChannels());
+            Channel channel = new NioServerSocketChannel(loop, loop);
+            CountDownLatch accepted = new CountDownLatch(1);
+            channel.pipeline().addLast(new ChannelHandler() {
+                @Override
+                public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+                    // Processing IO keeps the EventLoop busy even though it was allowed to block in select(...).
+                    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(300);
+                    while (System.nanoTime() < deadline) {
+                        // Spin
+                    }
+                    ((Channel) msg).unsafe().closeForcibly();
+                    accepted.countDown();
+                }
+            });
+            channel.register().syncUninterruptibly();
+            assertEquals(1, loop.registeredChannels());
+            channel.bind(new InetSocketAddress(0)).syncUninterruptibly();
+
+            try (SocketChannel ignored = SocketChannel.open(channel.localAddress())) {
+                accepted.await();
+            }
+            while (loop.recentIoTime(TimeUnit.NANOSECONDS) == 0) {
+                Thread.sleep(10);
+            }
+            assertTrue(loop.busyRatio() > 0.5);
+            assertTrue(loop.recentIoTime(TimeUnit.MILLISECONDS) > 50);
+
+            channel.close().syncUninterruptibly();
+            // The deregistration may happen a bit later.
+            while (loop.registeredChannels() != 0) {
+                Thread.sleep(10);
+            }
+        } finally {
+            loop.shutdownGracefully();
+        }
+    }
 }